@@ -7,22 +7,40 @@
  */
 package com.sitewhere.batch;
 
+import java.util.Map;
+import java.util.UUID;
+
 import com.sitewhere.batch.spi.IBatchOperationManager;
+import com.sitewhere.batch.spi.IBatchOperationMetadataUpdater;
 import com.sitewhere.batch.spi.microservice.IBatchOperationsTenantEngine;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.batch.IBatchManagement;
 import com.sitewhere.spi.batch.IBatchOperation;
 import com.sitewhere.spi.batch.request.IBatchCommandInvocationRequest;
+import com.sitewhere.spi.batch.request.IBatchOperationCreateRequest;
+import com.sitewhere.spi.batch.request.IBatchOperationUpdateRequest;
 
 /**
  * Attaches logic to batch management API invocations.
  */
-public class BatchManagementTriggers extends BatchManagementDecorator {
+public class BatchManagementTriggers extends BatchManagementDecorator implements IBatchOperationMetadataUpdater {
 
     public BatchManagementTriggers(IBatchManagement delegate) {
 	super(delegate);
     }
 
+    /*
+     * @see
+     * com.sitewhere.batch.BatchManagementDecorator#createBatchOperation(com.
+     * sitewhere.spi.batch.request.IBatchOperationCreateRequest)
+     */
+    @Override
+    public IBatchOperation createBatchOperation(IBatchOperationCreateRequest request) throws SiteWhereException {
+	IBatchOperation result = super.createBatchOperation(request);
+	getBatchOperationManager().addUnprocessedBatchOperation(result, request.getDeviceTokens());
+	return result;
+    }
+
     /*
      * @see
      * com.sitewhere.batch.BatchManagementDecorator#createBatchCommandInvocation(com
@@ -36,6 +54,36 @@ public class BatchManagementTriggers extends BatchManagementDecorator {
 	return result;
     }
 
+    /*
+     * @see
+     * com.sitewhere.batch.BatchManagementDecorator#updateBatchOperation(java.util.
+     * UUID, com.sitewhere.spi.batch.request.IBatchOperationUpdateRequest)
+     */
+    @Override
+    public IBatchOperation updateBatchOperation(UUID batchOperationId, IBatchOperationUpdateRequest request)
+	    throws SiteWhereException {
+	IBatchOperation result = super.updateBatchOperation(batchOperationId, request);
+	getBatchOperationManager().applyDispatchSettings(result);
+	return result;
+    }
+
+    /*
+     * @see com.sitewhere.batch.spi.IBatchOperationMetadataUpdater#
+     * updateBatchOperationMetadata(java.util.UUID, java.util.Map)
+     */
+    @Override
+    public void updateBatchOperationMetadata(UUID batchOperationId, Map<String, String> values)
+	    throws SiteWhereException {
+	if (getDelegate() instanceof IBatchOperationMetadataUpdater) {
+	    ((IBatchOperationMetadataUpdater) getDelegate()).updateBatchOperationMetadata(batchOperationId, values);
+	    return;
+	}
+	IBatchOperation operation = getDelegate().getBatchOperation(batchOperationId);
+	if (operation != null) {
+	    getDelegate().updateBatchOperation(batchOperationId, BatchDispatchMetadata.buildUpdate(operation, values));
+	}
+    }
+
     protected IBatchOperationManager getBatchOperationManager() {
 	return ((IBatchOperationsTenantEngine) getTenantEngine()).getBatchOperationManager();
     }
@@ -7,6 +7,7 @@
  */
 package com.sitewhere.batch;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +17,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.codahale.metrics.Gauge;
+import com.sitewhere.batch.dispatch.BatchOperationDispatcher;
 import com.sitewhere.batch.handler.BatchCommandInvocationHandler;
 import com.sitewhere.batch.kafka.UnprocessedBatchElementsConsumer;
 import com.sitewhere.batch.kafka.UnprocessedBatchOperationsConsumer;
@@ -26,6 +29,7 @@ import com.sitewhere.batch.spi.kafka.IUnprocessedBatchElementsConsumer;
 import com.sitewhere.batch.spi.kafka.IUnprocessedBatchElementsProducer;
 import com.sitewhere.batch.spi.kafka.IUnprocessedBatchOperationsConsumer;
 import com.sitewhere.batch.spi.kafka.IUnprocessedBatchOperationsProducer;
+import com.sitewhere.batch.spi.microservice.IBatchOperationsMicroservice;
 import com.sitewhere.batch.spi.microservice.IBatchOperationsTenantEngine;
 import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.grpc.client.batch.BatchModelConverter;
@@ -47,6 +51,9 @@ import com.sitewhere.spi.batch.IBatchOperation;
 import com.sitewhere.spi.batch.kafka.IUnprocessedBatchElement;
 import com.sitewhere.spi.batch.kafka.IUnprocessedBatchOperation;
 import com.sitewhere.spi.batch.request.IBatchElementCreateRequest;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
 import com.sitewhere.spi.server.lifecycle.ICompositeLifecycleStep;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
@@ -54,21 +61,40 @@ import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
 
 /**
  * Default implementation of {@link IBatchOperationManager}. Uses multiple
- * threads to process batch operations.
+ * threads to create batch operations and a rate-controlled dispatcher to
+ * process batch elements.
  * 
  * @author Derek
  */
 public class BatchOperationManager extends TenantEngineLifecycleComponent implements IBatchOperationManager {
 
-    /** Number of threads used for batch operation processing */
+    /** Number of threads used for batch operation creation */
     private static final int BATCH_PROCESSOR_THREAD_COUNT = 10;
 
+    /** Dispatch rate used if no throttle delay is configured */
+    private static final double DEFAULT_INITIAL_DISPATCH_RATE = 10;
+
+    /** Number of batch elements created per bulk insert */
+    private static final int BATCH_ELEMENT_CHUNK_SIZE = 500;
+
     /** Thread pool for processing events */
     private ExecutorService processorPool;
 
-    /** Throttling delay in milliseconds */
+    /** Throttling delay in milliseconds (used to derive initial dispatch rate) */
     private long throttleDelayMs;
 
+    /** Minimum elements dispatched per second */
+    private double minDispatchRate = 1;
+
+    /** Maximum elements dispatched per second */
+    private double maxDispatchRate = 1000;
+
+    /** Maximum elements processed concurrently */
+    private int maxConcurrentDispatches = 10;
+
+    /** Dispatches batch elements for processing */
+    private BatchOperationDispatcher dispatcher;
+
     /** Map of handlers by operation type */
     private Map<String, IBatchOperationHandler> handlersByOperationType = new HashMap<String, IBatchOperationHandler>();
 
@@ -133,6 +159,15 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	    getProcessorPool().shutdownNow();
 	}
 	processorPool = Executors.newFixedThreadPool(BATCH_PROCESSOR_THREAD_COUNT, new ProcessorsThreadFactory());
+	if (getDispatcher() != null) {
+	    getDispatcher().stop();
+	}
+	double initialRate = (getThrottleDelayMs() > 0) ? (1000.0 / getThrottleDelayMs())
+		: DEFAULT_INITIAL_DISPATCH_RATE;
+	this.dispatcher = new BatchOperationDispatcher(this, element -> new BatchElementProcessor(element),
+		getMinDispatchRate(), getMaxDispatchRate(), initialRate, getMaxConcurrentDispatches());
+	getDispatcher().start();
+	registerDispatchMetrics();
 
 	// Create step that will start components.
 	ICompositeLifecycleStep start = new CompositeLifecycleStep("Start " + getComponentName());
@@ -180,6 +215,9 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	if (getProcessorPool() != null) {
 	    getProcessorPool().shutdownNow();
 	}
+	if (getDispatcher() != null) {
+	    getDispatcher().stop();
+	}
 
 	// Create step that will stop components.
 	ICompositeLifecycleStep stop = new CompositeLifecycleStep("Stop " + getComponentName());
@@ -227,7 +265,35 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
      */
     @Override
     public void processBatchElement(IUnprocessedBatchElement element) throws SiteWhereException {
-	getProcessorPool().execute(new BatchElementProcessor(element));
+	try {
+	    getDispatcher().submit(element);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while queueing batch element.", e);
+	}
+    }
+
+    /*
+     * @see com.sitewhere.batch.spi.IBatchOperationManager#applyDispatchSettings(
+     * com.sitewhere.spi.batch.IBatchOperation)
+     */
+    @Override
+    public void applyDispatchSettings(IBatchOperation operation) throws SiteWhereException {
+	if (getDispatcher() != null) {
+	    getDispatcher().applySettings(operation);
+	}
+    }
+
+    /**
+     * Register gauges for dispatch rate and queue size.
+     */
+    protected void registerDispatchMetrics() {
+	String rate = getTenantMetricName("batch.dispatch.rate");
+	String queued = getTenantMetricName("batch.dispatch.queued");
+	getMetricRegistry().remove(rate);
+	getMetricRegistry().remove(queued);
+	getMetricRegistry().register(rate, (Gauge<Double>) () -> getDispatcher().getRate());
+	getMetricRegistry().register(queued, (Gauge<Integer>) () -> getDispatcher().getQueued());
     }
 
     /*
@@ -256,6 +322,34 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	this.throttleDelayMs = throttleDelayMs;
     }
 
+    public double getMinDispatchRate() {
+	return minDispatchRate;
+    }
+
+    public void setMinDispatchRate(double minDispatchRate) {
+	this.minDispatchRate = minDispatchRate;
+    }
+
+    public double getMaxDispatchRate() {
+	return maxDispatchRate;
+    }
+
+    public void setMaxDispatchRate(double maxDispatchRate) {
+	this.maxDispatchRate = maxDispatchRate;
+    }
+
+    public int getMaxConcurrentDispatches() {
+	return maxConcurrentDispatches;
+    }
+
+    public void setMaxConcurrentDispatches(int maxConcurrentDispatches) {
+	this.maxConcurrentDispatches = maxConcurrentDispatches;
+    }
+
+    protected BatchOperationDispatcher getDispatcher() {
+	return dispatcher;
+    }
+
     /**
      * Creates an unprocessed batch operation in a separate thread.
      * 
@@ -283,7 +377,7 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	    // Create payload to carry unprocessed batch operation information.
 	    UnprocessedBatchOperation unprocessed = new UnprocessedBatchOperation();
 	    unprocessed.setBatchOperation(getBatchOperation());
-	    unprocessed.setDeviceTokens(getDeviceTokens());
+	    unprocessed.setDeviceTokens((getDeviceTokens() != null) ? getDeviceTokens() : new ArrayList<String>());
 
 	    getLogger().info("Submitting batch operation for processing. " + getBatchOperation().getId().toString());
 	    try {
@@ -305,7 +399,12 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
     }
 
     /**
-     * Initializes a batch operation in a separate thread.
+     * Initializes a batch operation in a separate thread. Elements are created in
+     * chunks with a single bulk insert per chunk and each chunk is published for
+     * processing as soon as it is stored, so that element processing overlaps
+     * with creation of the remaining elements. Operations that carry device
+     * criteria rather than device tokens resolve matching devices one page at a
+     * time as elements are created.
      * 
      * @author Derek
      */
@@ -314,6 +413,12 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	/** Operation being processed */
 	private IUnprocessedBatchOperation unprocessed;
 
+	/** Elements waiting to be created */
+	private List<BatchElementCreateRequest> chunk = new ArrayList<>();
+
+	/** Number of elements that could not be created */
+	private int errorCount;
+
 	public BatchOperationInitializer(IUnprocessedBatchOperation unprocessed) {
 	    super(BatchOperationManager.this.getMicroservice(),
 		    BatchOperationManager.this.getTenantEngine().getTenant());
@@ -329,26 +434,20 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 		request.setProcessingStatus(BatchOperationStatus.Initializing);
 		request.setProcessingStartedDate(new Date());
 		getBatchManagement().updateBatchOperation(getUnprocessed().getBatchOperation().getId(), request);
-
-		int errorCount = 0;
+		applyDispatchSettings(getUnprocessed().getBatchOperation());
+
+		IDeviceSearchCriteria criteria = BatchUtils.getDeviceCriteria(getUnprocessed().getBatchOperation());
+		if (criteria != null) {
+		    BatchUtils.forEachDevicePage(criteria, getDeviceManagement(), page -> {
+			for (IDevice device : page) {
+			    addElement(device.getToken());
+			}
+		    });
+		}
 		for (String deviceToken : getUnprocessed().getDeviceTokens()) {
-		    BatchElementCreateRequest element = new BatchElementCreateRequest();
-		    element.setDeviceToken(deviceToken);
-		    element.setProcessingStatus(ElementProcessingStatus.Unprocessed);
-		    element.setProcessedDate(null);
-		    try {
-			IBatchElement created = getBatchManagement()
-				.createBatchElement(getUnprocessed().getBatchOperation().getId(), element);
-			sendUnprocessedBatchElement(created);
-		    } catch (SiteWhereException e) {
-			getLogger().error("Unable to create batch element.", e);
-			sendFailedBatchElementRequest(element);
-			errorCount++;
-		    }
-
-		    // Potentially pause or throttle batch element processing.
-		    handlePauseAndThrottle();
+		    addElement(deviceToken);
 		}
+		errorCount += createBatchElements(chunk);
 
 		// Update operation to reflect processing results.
 		request = new BatchOperationUpdateRequest();
@@ -363,6 +462,70 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	    }
 	}
 
+	/**
+	 * Add an element for a device, creating the pending chunk once it is full.
+	 * 
+	 * @param deviceToken
+	 * @throws SiteWhereException
+	 */
+	protected void addElement(String deviceToken) throws SiteWhereException {
+	    BatchElementCreateRequest element = new BatchElementCreateRequest();
+	    element.setDeviceToken(deviceToken);
+	    element.setProcessingStatus(ElementProcessingStatus.Unprocessed);
+	    element.setProcessedDate(null);
+	    chunk.add(element);
+	    if (chunk.size() >= BATCH_ELEMENT_CHUNK_SIZE) {
+		errorCount += createBatchElements(chunk);
+	    }
+	}
+
+	/**
+	 * Create a chunk of batch elements with a single bulk insert and publish the
+	 * created elements for processing.
+	 * 
+	 * @param chunk
+	 * @return number of elements that could not be created
+	 * @throws SiteWhereException
+	 */
+	protected int createBatchElements(List<BatchElementCreateRequest> chunk) throws SiteWhereException {
+	    if (chunk.isEmpty()) {
+		return 0;
+	    }
+	    int errorCount = 0;
+	    List<IBatchElement> created;
+	    try {
+		created = getBatchManagement().createBatchElements(getUnprocessed().getBatchOperation().getId(),
+			chunk);
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to create batch elements.", e);
+		created = new ArrayList<>();
+		for (int i = 0; i < chunk.size(); i++) {
+		    created.add(null);
+		}
+	    }
+	    for (int i = 0; i < chunk.size(); i++) {
+		if (created.get(i) == null) {
+		    errorCount++;
+		}
+	    }
+	    getDispatcher().addExpectedElements(getUnprocessed().getBatchOperation().getId(),
+		    chunk.size() - errorCount);
+	    for (int i = 0; i < chunk.size(); i++) {
+		IBatchElement element = created.get(i);
+		if (element != null) {
+		    sendUnprocessedBatchElement(element);
+		} else {
+		    getLogger().warn("Unable to create batch element for '" + chunk.get(i).getDeviceToken() + "'.");
+		    sendFailedBatchElementRequest(chunk.get(i));
+		}
+	    }
+
+	    // Potentially pause batch element creation.
+	    handlePause();
+	    chunk.clear();
+	    return errorCount;
+	}
+
 	/**
 	 * Send unprocessed batch element to Kafka topic.
 	 * 
@@ -415,9 +578,6 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	public void runAsSystemUser() throws SiteWhereException {
 	    getLogger().info("Processing batch element: " + getUnprocessed().getBatchElement().getId().toString());
 
-	    // Check whether manager has been paused.
-	    handlePauseAndThrottle();
-
 	    // Only process unprocessed elements.
 	    IBatchElement element = getUnprocessed().getBatchElement();
 	    IBatchOperation operation = getBatchManagement().getBatchOperation(element.getBatchOperationId());
@@ -433,6 +593,8 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	    request = new BatchElementCreateRequest();
 	    request.setMetadata(new HashMap<String, String>());
 	    ElementProcessingStatus status = ElementProcessingStatus.Succeeded;
+	    long start = System.currentTimeMillis();
+	    boolean delivered = false;
 	    try {
 		IBatchOperationHandler handler = getHandlersByOperationType().get(operation.getOperationType());
 		if (handler != null) {
@@ -440,6 +602,7 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 		} else {
 		    status = ElementProcessingStatus.Failed;
 		}
+		delivered = true;
 
 		// Indicate element succeeded in processing.
 		request.setProcessingStatus(status);
@@ -449,6 +612,7 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 		getLogger().error("Error processing batch invocation element.", t);
 		request.setProcessingStatus(ElementProcessingStatus.Failed);
 	    } finally {
+		getDispatcher().recordDelivery(System.currentTimeMillis() - start, delivered);
 		getBatchManagement().updateBatchElement(element.getId(), request);
 	    }
 	}
@@ -461,20 +625,13 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
     /**
      * Handle case where batch operation manager has been paused.
      */
-    protected void handlePauseAndThrottle() {
+    protected void handlePause() {
 	while (getLifecycleStatus() == LifecycleStatus.Paused) {
 	    try {
 		Thread.sleep(1000);
 	    } catch (InterruptedException e) {
 	    }
 	}
-	if (getThrottleDelayMs() > 0) {
-	    try {
-		Thread.sleep(getThrottleDelayMs());
-	    } catch (InterruptedException e) {
-		getLogger().warn("Throttle timer interrupted.");
-	    }
-	}
     }
 
     public Map<String, IBatchOperationHandler> getHandlersByOperationType() {
@@ -505,6 +662,11 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	return ((IBatchOperationsTenantEngine) getTenantEngine()).getBatchManagement();
     }
 
+    protected IDeviceManagement getDeviceManagement() {
+	return ((IBatchOperationsMicroservice) getTenantEngine().getMicroservice()).getDeviceManagementApiDemux()
+		.getApiChannel();
+    }
+
     /** Used for naming batch operation processor threads */
     private class ProcessorsThreadFactory implements ThreadFactory {
 
@@ -98,9 +98,22 @@ public class BatchOperationsModelProvider extends ConfigurationModelProvider {
 
 	builder.attribute((new AttributeNode.Builder("Throttle delay (ms)", "throttleDelayMs", AttributeType.Integer,
 		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
-			.description("Number of milliseconds to wait between processing elements in a "
-				+ "batch operation. This throttles the output to prevent overloading the system.")
+			.description("Delay in milliseconds between processing elements used to derive the "
+				+ "initial dispatch rate. The rate is adjusted automatically afterward.")
 			.defaultValue("0").build()));
+	builder.attribute((new AttributeNode.Builder("Minimum dispatch rate", "minDispatchRate", AttributeType.Decimal,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Lowest number of batch elements per second dispatched when command "
+				+ "delivery is congested.")
+			.defaultValue("1").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum dispatch rate", "maxDispatchRate", AttributeType.Decimal,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Highest number of batch elements per second dispatched for the tenant.")
+			.defaultValue("1000").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum concurrent dispatches", "maxConcurrentDispatches",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Maximum number of batch elements processed concurrently.")
+			.defaultValue("10").build()));
 	return builder.build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+/**
+ * Adjusts a dispatch rate using additive increase and multiplicative decrease.
+ * The rate grows by a fixed step for each interval without congestion and is
+ * cut by a constant factor when congestion is detected.
+ * 
+ * @author Derek
+ */
+public class AimdRateController {
+
+    /** Factor applied to rate on congestion */
+    private static final double DECREASE_FACTOR = 0.5;
+
+    /** Minimum rate */
+    private final double minimum;
+
+    /** Maximum rate */
+    private final double maximum;
+
+    /** Amount rate is increased per interval without congestion */
+    private final double increase;
+
+    /** Current rate */
+    private double rate;
+
+    public AimdRateController(double minimum, double maximum, double initial) {
+	this.minimum = minimum;
+	this.maximum = Math.max(minimum, maximum);
+	this.increase = Math.max(1, this.maximum / 100);
+	this.rate = Math.min(this.maximum, Math.max(minimum, initial));
+    }
+
+    /**
+     * Update rate based on whether congestion was detected over the last
+     * interval.
+     * 
+     * @param congested
+     * @return updated rate
+     */
+    public synchronized double update(boolean congested) {
+	if (congested) {
+	    rate = Math.max(minimum, rate * DECREASE_FACTOR);
+	} else {
+	    rate = Math.min(maximum, rate + increase);
+	}
+	return rate;
+    }
+
+    public synchronized double getRate() {
+	return rate;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sitewhere.spi.batch.kafka.IUnprocessedBatchElement;
+
+/**
+ * Dispatch state for a single batch operation. Queue and scheduling fields are
+ * guarded by the owning {@link BatchOperationDispatcher}.
+ * 
+ * @author Derek
+ */
+public class BatchDispatchState {
+
+    /** Default priority */
+    public static final int DEFAULT_PRIORITY = 5;
+
+    /** Minimum priority */
+    public static final int MIN_PRIORITY = 1;
+
+    /** Maximum priority */
+    public static final int MAX_PRIORITY = 10;
+
+    /** Weight given to latest sample when smoothing rate */
+    private static final double RATE_SMOOTHING = 0.3;
+
+    /** Batch operation id */
+    private final UUID batchOperationId;
+
+    /** Elements waiting to be dispatched */
+    private final Deque<IUnprocessedBatchElement> queue = new ArrayDeque<>();
+
+    /** Ids of elements queued or in flight */
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    /** Indicates elements are read from storage rather than taken from Kafka */
+    private boolean fromStorage;
+
+    /** Indicates storage may hold elements that have not been read */
+    private boolean reloadNeeded;
+
+    /** Limits rate for this batch */
+    private final TokenBucket bucket;
+
+    /** Indicates dispatch is paused */
+    private volatile boolean paused;
+
+    /** Relative share of dispatch capacity */
+    private volatile int priority = DEFAULT_PRIORITY;
+
+    /** Current weight for smooth weighted round robin */
+    private int currentWeight;
+
+    /** Total elements expected for the batch (0 if not known) */
+    private final AtomicLong expected = new AtomicLong();
+
+    /** Elements dispatched and not yet completed */
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /** Elements completed (successfully or not) */
+    private final AtomicLong completed = new AtomicLong();
+
+    /** Completed count at last rate update */
+    private long lastCompleted;
+
+    /** Smoothed completion rate in elements per second */
+    private volatile double rate;
+
+    /** Last time an element was submitted or completed */
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    public BatchDispatchState(UUID batchOperationId, double maxRate) {
+	this.batchOperationId = batchOperationId;
+	this.bucket = new TokenBucket(maxRate);
+    }
+
+    /**
+     * Update smoothed completion rate.
+     * 
+     * @param intervalSeconds
+     */
+    public void updateRate(double intervalSeconds) {
+	long now = completed.get();
+	double sample = (now - lastCompleted) / intervalSeconds;
+	lastCompleted = now;
+	rate = (rate == 0) ? sample : (RATE_SMOOTHING * sample) + ((1 - RATE_SMOOTHING) * rate);
+    }
+
+    /**
+     * Get number of elements not yet completed.
+     * 
+     * @param queued
+     * @return
+     */
+    public long getRemaining(int queued) {
+	long known = expected.get() - completed.get();
+	return Math.max(known, queued + inFlight.get());
+    }
+
+    /**
+     * Get estimated milliseconds until completion (-1 if unknown).
+     * 
+     * @param queued
+     * @return
+     */
+    public long getEtaMs(int queued) {
+	long remaining = getRemaining(queued);
+	if (remaining == 0) {
+	    return 0;
+	}
+	return (rate > 0) ? (long) (remaining * 1000 / rate) : -1;
+    }
+
+    public UUID getBatchOperationId() {
+	return batchOperationId;
+    }
+
+    public Deque<IUnprocessedBatchElement> getQueue() {
+	return queue;
+    }
+
+    public Set<UUID> getPending() {
+	return pending;
+    }
+
+    public boolean isFromStorage() {
+	return fromStorage;
+    }
+
+    public void setFromStorage(boolean fromStorage) {
+	this.fromStorage = fromStorage;
+    }
+
+    public boolean isReloadNeeded() {
+	return reloadNeeded;
+    }
+
+    public void setReloadNeeded(boolean reloadNeeded) {
+	this.reloadNeeded = reloadNeeded;
+    }
+
+    public TokenBucket getBucket() {
+	return bucket;
+    }
+
+    public boolean isPaused() {
+	return paused;
+    }
+
+    public void setPaused(boolean paused) {
+	this.paused = paused;
+    }
+
+    public int getPriority() {
+	return priority;
+    }
+
+    public void setPriority(int priority) {
+	this.priority = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+    }
+
+    public int getCurrentWeight() {
+	return currentWeight;
+    }
+
+    public void setCurrentWeight(int currentWeight) {
+	this.currentWeight = currentWeight;
+    }
+
+    public AtomicLong getExpected() {
+	return expected;
+    }
+
+    public AtomicLong getInFlight() {
+	return inFlight;
+    }
+
+    public AtomicLong getCompleted() {
+	return completed;
+    }
+
+    public double getRate() {
+	return rate;
+    }
+
+    public long getLastActivity() {
+	return lastActivity;
+    }
+
+    public void touch() {
+	this.lastActivity = System.currentTimeMillis();
+    }
+}
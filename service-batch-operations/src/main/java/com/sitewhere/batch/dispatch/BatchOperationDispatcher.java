@@ -0,0 +1,746 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.batch.BatchDispatchMetadata;
+import com.sitewhere.batch.spi.IBatchOperationManager;
+import com.sitewhere.batch.spi.IBatchOperationMetadataUpdater;
+import com.sitewhere.batch.spi.microservice.IBatchOperationsTenantEngine;
+import com.sitewhere.microservice.security.SystemUserRunnable;
+import com.sitewhere.rest.model.batch.kafka.UnprocessedBatchElement;
+import com.sitewhere.rest.model.search.device.BatchElementSearchCriteria;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.batch.ElementProcessingStatus;
+import com.sitewhere.spi.batch.IBatchElement;
+import com.sitewhere.spi.batch.IBatchManagement;
+import com.sitewhere.spi.batch.IBatchOperation;
+import com.sitewhere.spi.batch.kafka.IUnprocessedBatchElement;
+import com.sitewhere.spi.search.ISearchResults;
+import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
+
+/**
+ * Dispatches batch elements for processing at a controlled rate. Each batch
+ * has its own token bucket (optionally capped per batch) and the tenant as a
+ * whole shares a bucket whose rate is adjusted with AIMD based on feedback
+ * from command delivery: processing latency, delivery errors and consumer lag
+ * on the enriched command invocations topic. Batches are served with smooth
+ * weighted round robin so that higher priority batches get a larger share of
+ * capacity without starving the others. Individual batches may be paused and
+ * resumed. Only a limited number of elements is held for a paused batch so
+ * that it does not hold up consumption for other batches. Past that limit,
+ * elements for the batch are dropped and its unprocessed elements are read
+ * from storage once it is resumed. Rate, remaining elements and estimated
+ * completion time are periodically written to the batch operation metadata
+ * without touching the settings that are written through the REST API.
+ * 
+ * @author Derek
+ */
+public class BatchOperationDispatcher {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(BatchOperationDispatcher.class);
+
+    /** Maximum elements queued for batches that are not paused */
+    private static final int MAX_QUEUED = 10000;
+
+    /** Maximum elements queued for each paused batch */
+    private static final int MAX_QUEUED_PER_PAUSED_BATCH = 1000;
+
+    /** Number of unprocessed elements read from storage at a time */
+    private static final int RELOAD_PAGE_SIZE = 1000;
+
+    /** Interval at which rate is adjusted */
+    private static final long CONTROL_INTERVAL_MS = 1000;
+
+    /** Number of control intervals between command delivery lag checks */
+    private static final int LAG_CHECK_INTERVALS = 5;
+
+    /** Number of control intervals between progress reports */
+    private static final int REPORT_INTERVALS = 10;
+
+    /** Idle time after which state for a finished batch is discarded */
+    private static final long IDLE_BATCH_MS = 10 * 60 * 1000;
+
+    /** Latency above this multiple of the baseline indicates congestion */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /** Fraction of failed deliveries that indicates congestion */
+    private static final double ERROR_TOLERANCE = 0.05;
+
+    /** Backlog (in seconds at current rate) that indicates congestion */
+    private static final double LAG_TOLERANCE_SECONDS = 2.0;
+
+    /** Number of intervals over which the minimum latency is taken as baseline */
+    private static final int BASELINE_INTERVALS = 60;
+
+    /** Batch operation manager */
+    private IBatchOperationManager manager;
+
+    /** Creates runnables that process elements */
+    private Function<IUnprocessedBatchElement, Runnable> processorFactory;
+
+    /** Maximum dispatch rate */
+    private double maxRate;
+
+    /** Adjusts tenant dispatch rate */
+    private AimdRateController controller;
+
+    /** Shared bucket for all batches in the tenant */
+    private TokenBucket tenantBucket;
+
+    /** Limits number of elements processed concurrently */
+    private Semaphore concurrency;
+
+    /** Measures command delivery backlog */
+    private CommandDeliveryLagMonitor lagMonitor;
+
+    /** Dispatch state by batch operation id */
+    private Map<UUID, BatchDispatchState> batches = new LinkedHashMap<>();
+
+    /** Total elements queued */
+    private int queued;
+
+    /** Guards batch state */
+    private ReentrantLock lock = new ReentrantLock();
+
+    /** Signaled when elements are added or batches are resumed */
+    private Condition changed = lock.newCondition();
+
+    /** Signaled when queue space is available */
+    private Condition notFull = lock.newCondition();
+
+    /** Processing latency total for the current interval */
+    private AtomicLong intervalLatencyMs = new AtomicLong();
+
+    /** Completions in the current interval */
+    private AtomicInteger intervalCompleted = new AtomicInteger();
+
+    /** Failures in the current interval */
+    private AtomicInteger intervalFailed = new AtomicInteger();
+
+    /** Mean processing latency for recent intervals */
+    private Deque<Double> recentLatencyMs = new ArrayDeque<>();
+
+    /** Baseline processing latency (minimum over recent intervals) */
+    private double baselineLatencyMs;
+
+    /** Lag at last check */
+    private long lastLag;
+
+    /** Number of control intervals run */
+    private long intervals;
+
+    /** Runs dispatch loop */
+    private ExecutorService dispatcher;
+
+    /** Processes elements */
+    private ExecutorService workers;
+
+    /** Runs rate control and reporting */
+    private ScheduledExecutorService control;
+
+    public BatchOperationDispatcher(IBatchOperationManager manager,
+	    Function<IUnprocessedBatchElement, Runnable> processorFactory, double minRate, double maxRate,
+	    double initialRate, int maxConcurrent) {
+	this.manager = manager;
+	this.processorFactory = processorFactory;
+	this.maxRate = maxRate;
+	this.controller = new AimdRateController(minRate, maxRate, initialRate);
+	this.tenantBucket = new TokenBucket(controller.getRate());
+	this.concurrency = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Start dispatching.
+     */
+    public void start() {
+	this.lagMonitor = new CommandDeliveryLagMonitor(manager.getMicroservice(),
+		manager.getTenantEngine().getTenant());
+	this.workers = Executors.newCachedThreadPool(new NamedThreadFactory("Batch Element Processor"));
+	this.dispatcher = Executors.newSingleThreadExecutor(new NamedThreadFactory("Batch Dispatcher"));
+	this.control = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Batch Dispatch Control"));
+	dispatcher.execute(new DispatchLoop());
+	control.scheduleWithFixedDelay(new ControlTask(), CONTROL_INTERVAL_MS, CONTROL_INTERVAL_MS,
+		TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop dispatching. Queued elements are discarded.
+     */
+    public void stop() {
+	if (control != null) {
+	    control.shutdownNow();
+	}
+	if (dispatcher != null) {
+	    dispatcher.shutdownNow();
+	}
+	if (workers != null) {
+	    workers.shutdownNow();
+	}
+	if (lagMonitor != null) {
+	    lagMonitor.close();
+	}
+	lock.lock();
+	try {
+	    batches.clear();
+	    queued = 0;
+	    notFull.signalAll();
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Queue an element for dispatch. Blocks while the queue for batches that are
+     * not paused is full so that the Kafka consumer is slowed down. Elements for
+     * paused batches do not count toward that limit. Once a paused batch has
+     * its maximum number of elements queued, its elements are dropped and read
+     * from storage after the batch is resumed.
+     * 
+     * @param element
+     * @throws InterruptedException
+     */
+    public void submit(IUnprocessedBatchElement element) throws InterruptedException {
+	UUID batchId = element.getBatchElement().getBatchOperationId();
+	lock.lock();
+	try {
+	    BatchDispatchState state;
+	    while (true) {
+		state = getOrCreateState(batchId);
+		if (state.isPaused() && (state.getQueue().size() >= MAX_QUEUED_PER_PAUSED_BATCH)) {
+		    state.setFromStorage(true);
+		}
+		if (state.isFromStorage()) {
+		    state.setReloadNeeded(true);
+		    state.touch();
+		    return;
+		}
+		if (state.isPaused() || (getActiveQueued() < MAX_QUEUED)) {
+		    break;
+		}
+		notFull.await();
+	    }
+	    enqueue(state, element);
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Add an element to the queue for a batch unless it is already queued or in
+     * flight. Must be called with lock held.
+     * 
+     * @param state
+     * @param element
+     * @return true if element was added
+     */
+    protected boolean enqueue(BatchDispatchState state, IUnprocessedBatchElement element) {
+	if (!state.getPending().add(element.getBatchElement().getId())) {
+	    return false;
+	}
+	state.getQueue().addLast(element);
+	state.touch();
+	queued++;
+	changed.signalAll();
+	return true;
+    }
+
+    /**
+     * Get number of elements queued for batches that are not paused. Must be
+     * called with lock held.
+     * 
+     * @return
+     */
+    protected int getActiveQueued() {
+	int active = queued;
+	for (BatchDispatchState state : batches.values()) {
+	    if (state.isPaused()) {
+		active -= state.getQueue().size();
+	    }
+	}
+	return active;
+    }
+
+    /**
+     * Add to the number of elements expected for a batch.
+     * 
+     * @param batchOperationId
+     * @param count
+     */
+    public void addExpectedElements(UUID batchOperationId, long count) {
+	lock.lock();
+	try {
+	    getOrCreateState(batchOperationId).getExpected().addAndGet(count);
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Record the result of processing an element.
+     * 
+     * @param elapsedMs
+     * @param successful
+     */
+    public void recordDelivery(long elapsedMs, boolean successful) {
+	intervalLatencyMs.addAndGet(elapsedMs);
+	intervalCompleted.incrementAndGet();
+	if (!successful) {
+	    intervalFailed.incrementAndGet();
+	}
+    }
+
+    /**
+     * Apply dispatch settings from batch operation metadata.
+     * 
+     * @param operation
+     */
+    public void applySettings(IBatchOperation operation) {
+	if (operation.getMetadata() == null) {
+	    return;
+	}
+	lock.lock();
+	try {
+	    BatchDispatchState state = getOrCreateState(operation.getId());
+	    String paused = operation.getMetadata().get(BatchDispatchMetadata.PAUSED);
+	    if (paused != null) {
+		state.setPaused(Boolean.parseBoolean(paused));
+	    }
+	    String priority = operation.getMetadata().get(BatchDispatchMetadata.PRIORITY);
+	    if (priority != null) {
+		state.setPriority(Integer.parseInt(priority.trim()));
+	    }
+	    String batchMaxRate = operation.getMetadata().get(BatchDispatchMetadata.MAX_RATE);
+	    if (batchMaxRate != null) {
+		double rate = Double.parseDouble(batchMaxRate.trim());
+		state.getBucket().setRate((rate > 0) ? rate : maxRate);
+	    }
+	    changed.signalAll();
+	    notFull.signalAll();
+	} catch (NumberFormatException e) {
+	    LOGGER.warn("Invalid dispatch setting for batch operation '" + operation.getToken() + "'.", e);
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Get state for a batch, creating it if necessary. Must be called with lock
+     * held.
+     * 
+     * @param batchId
+     * @return
+     */
+    protected BatchDispatchState getOrCreateState(UUID batchId) {
+	BatchDispatchState state = batches.get(batchId);
+	if (state == null) {
+	    state = new BatchDispatchState(batchId, maxRate);
+	    batches.put(batchId, state);
+	}
+	return state;
+    }
+
+    /**
+     * Choose next batch to dispatch from using smooth weighted round robin among
+     * batches that have elements, are not paused and have rate available. Must
+     * be called with lock held.
+     * 
+     * @return
+     */
+    protected BatchDispatchState selectNext() {
+	BatchDispatchState best = null;
+	int total = 0;
+	for (BatchDispatchState state : batches.values()) {
+	    if (state.isPaused() || state.getQueue().isEmpty() || !state.getBucket().isAvailable()) {
+		continue;
+	    }
+	    state.setCurrentWeight(state.getCurrentWeight() + state.getPriority());
+	    total += state.getPriority();
+	    if ((best == null) || (state.getCurrentWeight() > best.getCurrentWeight())) {
+		best = state;
+	    }
+	}
+	if (best != null) {
+	    best.setCurrentWeight(best.getCurrentWeight() - total);
+	}
+	return best;
+    }
+
+    /**
+     * Adjust tenant rate based on feedback from the last interval.
+     */
+    protected void adjustRate() {
+	int completed = intervalCompleted.getAndSet(0);
+	int failed = intervalFailed.getAndSet(0);
+	long latency = intervalLatencyMs.getAndSet(0);
+
+	boolean congested = false;
+	if (completed > 0) {
+	    double meanLatency = (double) latency / completed;
+	    updateBaselineLatency(meanLatency);
+	    if (meanLatency > Math.max(1, baselineLatencyMs) * LATENCY_TOLERANCE) {
+		congested = true;
+	    }
+	    if (((double) failed / completed) > ERROR_TOLERANCE) {
+		congested = true;
+	    }
+	}
+	if ((completed > 0) && ((intervals % LAG_CHECK_INTERVALS) == 0)) {
+	    try {
+		long lag = lagMonitor.getLag();
+		if ((lag > controller.getRate() * LAG_TOLERANCE_SECONDS) && (lag > lastLag)) {
+		    congested = true;
+		}
+		lastLag = lag;
+	    } catch (SiteWhereException e) {
+		LOGGER.debug("Unable to check command delivery lag.", e);
+	    }
+	}
+
+	// Only grow rate while there is demand for it.
+	if (congested || (completed > 0)) {
+	    tenantBucket.setRate(controller.update(congested));
+	}
+    }
+
+    /**
+     * Add the mean latency for an interval and take the minimum over recent
+     * intervals as the baseline, so that one unusually fast interval only
+     * affects the baseline until it leaves the window.
+     * 
+     * @param meanLatency
+     * @return updated baseline
+     */
+    protected double updateBaselineLatency(double meanLatency) {
+	recentLatencyMs.addLast(meanLatency);
+	if (recentLatencyMs.size() > BASELINE_INTERVALS) {
+	    recentLatencyMs.removeFirst();
+	}
+	double minimum = Double.MAX_VALUE;
+	for (double sample : recentLatencyMs) {
+	    minimum = Math.min(minimum, sample);
+	}
+	baselineLatencyMs = minimum;
+	return baselineLatencyMs;
+    }
+
+    /**
+     * Read unprocessed elements from storage for batches that dropped elements
+     * while paused, once they are resumed and running low on queued elements.
+     * Elements already queued or in flight are not added again.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void reloadFromStorage() throws SiteWhereException {
+	List<BatchDispatchState> reloading = new ArrayList<>();
+	lock.lock();
+	try {
+	    for (BatchDispatchState state : batches.values()) {
+		if (state.isReloadNeeded() && !state.isPaused()
+			&& (state.getQueue().size() < (RELOAD_PAGE_SIZE / 2))) {
+		    state.setReloadNeeded(false);
+		    reloading.add(state);
+		}
+	    }
+	} finally {
+	    lock.unlock();
+	}
+	for (BatchDispatchState state : reloading) {
+	    List<IBatchElement> unprocessed;
+	    try {
+		unprocessed = loadUnprocessedElements(state.getBatchOperationId(), RELOAD_PAGE_SIZE);
+	    } catch (SiteWhereException e) {
+		lock.lock();
+		try {
+		    state.setReloadNeeded(true);
+		} finally {
+		    lock.unlock();
+		}
+		throw e;
+	    }
+	    lock.lock();
+	    try {
+		for (IBatchElement element : unprocessed) {
+		    UnprocessedBatchElement wrapper = new UnprocessedBatchElement();
+		    wrapper.setBatchElement(element);
+		    enqueue(state, wrapper);
+		}
+
+		// A full page means more may be waiting in storage.
+		if (unprocessed.size() >= RELOAD_PAGE_SIZE) {
+		    state.setReloadNeeded(true);
+		}
+	    } finally {
+		lock.unlock();
+	    }
+	}
+    }
+
+    /**
+     * Load unprocessed elements for a batch from storage.
+     * 
+     * @param batchOperationId
+     * @param max
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<IBatchElement> loadUnprocessedElements(UUID batchOperationId, int max) throws SiteWhereException {
+	BatchElementSearchCriteria criteria = new BatchElementSearchCriteria(1, max);
+	criteria.setProcessingStatus(ElementProcessingStatus.Unprocessed);
+	ISearchResults<IBatchElement> results = getBatchManagement().listBatchElements(batchOperationId, criteria);
+	return results.getResults();
+    }
+
+    /**
+     * Update per-batch rates, report progress and discard finished batches.
+     * 
+     * @param report
+     * @return batches to report on
+     */
+    protected List<BatchDispatchState> updateBatches(boolean report) {
+	List<BatchDispatchState> reporting = new ArrayList<>();
+	lock.lock();
+	try {
+	    long now = System.currentTimeMillis();
+	    Iterator<BatchDispatchState> it = batches.values().iterator();
+	    while (it.hasNext()) {
+		BatchDispatchState state = it.next();
+		state.updateRate(CONTROL_INTERVAL_MS / 1000.0);
+		boolean idle = state.getQueue().isEmpty() && (state.getInFlight().get() == 0)
+			&& !state.isReloadNeeded();
+		if (report && ((state.getRate() > 0) || !idle)) {
+		    reporting.add(state);
+		}
+		if (idle && !state.isPaused() && ((now - state.getLastActivity()) > IDLE_BATCH_MS)) {
+		    it.remove();
+		}
+	    }
+	} finally {
+	    lock.unlock();
+	}
+	return reporting;
+    }
+
+    /**
+     * Write rate, remaining count and ETA to batch operation metadata.
+     * 
+     * @param states
+     * @throws SiteWhereException
+     */
+    protected void reportProgress(List<BatchDispatchState> states) throws SiteWhereException {
+	SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+	iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+	for (BatchDispatchState state : states) {
+	    int waiting;
+	    lock.lock();
+	    try {
+		waiting = state.getQueue().size();
+	    } finally {
+		lock.unlock();
+	    }
+	    Map<String, String> values = new HashMap<>();
+	    values.put(BatchDispatchMetadata.RATE, String.format("%.1f", state.getRate()));
+	    values.put(BatchDispatchMetadata.REMAINING, String.valueOf(state.getRemaining(waiting)));
+	    long eta = state.getEtaMs(waiting);
+	    if (eta >= 0) {
+		values.put(BatchDispatchMetadata.ETA, iso.format(new Date(System.currentTimeMillis() + eta)));
+	    }
+	    updateMetadata(state.getBatchOperationId(), values);
+	}
+    }
+
+    /**
+     * Set reported values in batch operation metadata. Other values are left
+     * unchanged where batch management supports it.
+     * 
+     * @param batchOperationId
+     * @param values
+     * @throws SiteWhereException
+     */
+    protected void updateMetadata(UUID batchOperationId, Map<String, String> values) throws SiteWhereException {
+	IBatchManagement management = getBatchManagement();
+	if (management instanceof IBatchOperationMetadataUpdater) {
+	    ((IBatchOperationMetadataUpdater) management).updateBatchOperationMetadata(batchOperationId, values);
+	    return;
+	}
+	IBatchOperation operation = management.getBatchOperation(batchOperationId);
+	if (operation != null) {
+	    management.updateBatchOperation(batchOperationId, BatchDispatchMetadata.buildUpdate(operation, values));
+	}
+    }
+
+    /**
+     * Get current tenant dispatch rate.
+     * 
+     * @return
+     */
+    public double getRate() {
+	return controller.getRate();
+    }
+
+    /**
+     * Get number of elements waiting to be dispatched.
+     * 
+     * @return
+     */
+    public int getQueued() {
+	lock.lock();
+	try {
+	    return queued;
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    protected IBatchManagement getBatchManagement() {
+	return ((IBatchOperationsTenantEngine) manager.getTenantEngine()).getBatchManagement();
+    }
+
+    /**
+     * Takes elements from batch queues and hands them to workers.
+     */
+    private class DispatchLoop implements Runnable {
+
+	@Override
+	public void run() {
+	    try {
+		while (!Thread.currentThread().isInterrupted()) {
+		    // Hold dispatch while manager is paused.
+		    if (manager.getLifecycleStatus() == LifecycleStatus.Paused) {
+			Thread.sleep(1000);
+			continue;
+		    }
+
+		    // Pick batch and element.
+		    BatchDispatchState state;
+		    IUnprocessedBatchElement element;
+		    lock.lock();
+		    try {
+			while ((state = selectNext()) == null) {
+			    changed.await(10, TimeUnit.MILLISECONDS);
+			}
+			state.getBucket().tryAcquire();
+			element = state.getQueue().pollFirst();
+			queued--;
+			state.getInFlight().incrementAndGet();
+			notFull.signalAll();
+		    } finally {
+			lock.unlock();
+		    }
+
+		    // Wait for processing capacity and tenant rate.
+		    concurrency.acquire();
+		    long wait;
+		    while ((wait = tenantBucket.tryAcquire()) > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		    }
+		    dispatch(state, element);
+		}
+	    } catch (InterruptedException e) {
+		LOGGER.info("Batch dispatcher shutting down.");
+	    }
+	}
+
+	/**
+	 * Process element on a worker thread.
+	 * 
+	 * @param state
+	 * @param element
+	 */
+	protected void dispatch(BatchDispatchState state, IUnprocessedBatchElement element) {
+	    Runnable processor = processorFactory.apply(element);
+	    try {
+		workers.execute(() -> {
+		    try {
+			processor.run();
+		    } finally {
+			state.getPending().remove(element.getBatchElement().getId());
+			state.getInFlight().decrementAndGet();
+			state.getCompleted().incrementAndGet();
+			state.touch();
+			concurrency.release();
+		    }
+		});
+	    } catch (RuntimeException e) {
+		state.getPending().remove(element.getBatchElement().getId());
+		state.getInFlight().decrementAndGet();
+		concurrency.release();
+		LOGGER.error("Unable to dispatch batch element.", e);
+	    }
+	}
+    }
+
+    /**
+     * Periodically adjusts rate and reports progress.
+     */
+    private class ControlTask extends SystemUserRunnable {
+
+	public ControlTask() {
+	    super(manager.getMicroservice(), manager.getTenantEngine().getTenant());
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#runAsSystemUser()
+	 */
+	@Override
+	public void runAsSystemUser() throws SiteWhereException {
+	    adjustRate();
+	    boolean report = (++intervals % REPORT_INTERVALS) == 0;
+	    List<BatchDispatchState> reporting = updateBatches(report);
+	    if (report) {
+		reportProgress(reporting);
+	    }
+	    reloadFromStorage();
+	}
+    }
+
+    /** Used for naming dispatcher threads */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+	/** Prefix for thread names */
+	private String prefix;
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public NamedThreadFactory(String prefix) {
+	    this.prefix = prefix;
+	}
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, prefix + " " + counter.incrementAndGet());
+	}
+    }
+}
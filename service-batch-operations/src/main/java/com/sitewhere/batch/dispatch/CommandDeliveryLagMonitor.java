@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.IMicroservice;
+import com.sitewhere.spi.tenant.ITenant;
+
+/**
+ * Measures how far command delivery is behind on the enriched command
+ * invocations topic for a tenant. Lag is the difference between the end
+ * offsets of the topic and the offsets committed by the command delivery
+ * consumer group.
+ * 
+ * @author Derek
+ */
+public class CommandDeliveryLagMonitor {
+
+    /** Group id suffix used by command delivery for enriched invocations */
+    private static final String COMMAND_DELIVERY_GROUP_SUFFIX = "enriched-command-invocation-consumers";
+
+    /** Timeout for admin requests */
+    private static final long ADMIN_TIMEOUT_MS = 5 * 1000;
+
+    /** Microservice */
+    private IMicroservice<?> microservice;
+
+    /** Tenant */
+    private ITenant tenant;
+
+    /** Admin client used to read committed offsets */
+    private AdminClient admin;
+
+    /** Consumer used to read end offsets (never subscribes) */
+    private KafkaConsumer<byte[], byte[]> offsets;
+
+    public CommandDeliveryLagMonitor(IMicroservice<?> microservice, ITenant tenant) {
+	this.microservice = microservice;
+	this.tenant = tenant;
+    }
+
+    /**
+     * Get total number of enriched command invocations not yet consumed by
+     * command delivery.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    public synchronized long getLag() throws SiteWhereException {
+	try {
+	    String topic = microservice.getKafkaTopicNaming().getInboundEnrichedCommandInvocationsTopic(tenant);
+	    String groupId = microservice.getKafkaTopicNaming().getTenantPrefix(tenant)
+		    + COMMAND_DELIVERY_GROUP_SUFFIX;
+	    List<TopicPartition> partitions = new ArrayList<>();
+	    List<PartitionInfo> infos = getOffsets().partitionsFor(topic);
+	    if (infos == null) {
+		return 0;
+	    }
+	    for (PartitionInfo info : infos) {
+		partitions.add(new TopicPartition(info.topic(), info.partition()));
+	    }
+	    Map<TopicPartition, Long> ends = getOffsets().endOffsets(partitions);
+	    Map<TopicPartition, OffsetAndMetadata> committed = getAdmin().listConsumerGroupOffsets(groupId)
+		    .partitionsToOffsetAndMetadata().get(ADMIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+	    long lag = 0;
+	    for (TopicPartition partition : partitions) {
+		Long end = ends.get(partition);
+		OffsetAndMetadata position = committed.get(partition);
+		if ((end != null) && (position != null)) {
+		    lag += Math.max(0, end - position.offset());
+		}
+	    }
+	    return lag;
+	} catch (Exception e) {
+	    throw new SiteWhereException("Unable to compute command delivery lag.", e);
+	}
+    }
+
+    /**
+     * Release Kafka clients.
+     */
+    public synchronized void close() {
+	if (admin != null) {
+	    admin.close();
+	    admin = null;
+	}
+	if (offsets != null) {
+	    offsets.close();
+	    offsets = null;
+	}
+    }
+
+    protected AdminClient getAdmin() {
+	if (admin == null) {
+	    Properties config = new Properties();
+	    config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+		    microservice.getInstanceSettings().getKafkaBootstrapServers());
+	    this.admin = AdminClient.create(config);
+	}
+	return admin;
+    }
+
+    protected KafkaConsumer<byte[], byte[]> getOffsets() {
+	if (offsets == null) {
+	    Properties config = new Properties();
+	    config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
+		    microservice.getInstanceSettings().getKafkaBootstrapServers());
+	    config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	    config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	    this.offsets = new KafkaConsumer<>(config);
+	}
+	return offsets;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that refills at a configurable rate. Used to limit the rate at
+ * which batch elements are dispatched. Capacity is one second worth of tokens
+ * so that a bucket that has been idle allows a short burst.
+ * 
+ * @author Derek
+ */
+public class TokenBucket {
+
+    /** Tokens added per second */
+    private double rate;
+
+    /** Tokens currently available */
+    private double tokens;
+
+    /** Last refill time in nanoseconds */
+    private long lastRefill = System.nanoTime();
+
+    public TokenBucket(double rate) {
+	this.rate = rate;
+	this.tokens = 1;
+    }
+
+    /**
+     * Take a token if one is available.
+     * 
+     * @return 0 if a token was taken, otherwise nanoseconds until one will be
+     *         available
+     */
+    public synchronized long tryAcquire() {
+	refill();
+	if (tokens >= 1) {
+	    tokens -= 1;
+	    return 0;
+	}
+	return (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * Indicates whether a token is available without taking it.
+     * 
+     * @return
+     */
+    public synchronized boolean isAvailable() {
+	refill();
+	return tokens >= 1;
+    }
+
+    /**
+     * Add tokens based on time elapsed since last refill.
+     */
+    protected void refill() {
+	long now = System.nanoTime();
+	double added = (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1);
+	tokens = Math.min(Math.max(1, rate), tokens + added);
+	lastRefill = now;
+    }
+
+    public synchronized double getRate() {
+	return rate;
+    }
+
+    public synchronized void setRate(double rate) {
+	refill();
+	this.rate = rate;
+    }
+}
@@ -10,6 +10,7 @@ package com.sitewhere.batch.handler;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.sitewhere.batch.BatchDispatchMetadata;
 import com.sitewhere.batch.BatchOperationTypes;
 import com.sitewhere.batch.spi.IBatchOperationHandler;
 import com.sitewhere.batch.spi.microservice.IBatchOperationsMicroservice;
@@ -88,7 +89,7 @@ public class BatchCommandInvocationHandler extends TenantEngineLifecycleComponen
 	request.setInitiatorId(operation.getId().toString());
 	request.setTarget(CommandTarget.Assignment);
 	request.setTargetId(assignment.getToken());
-	request.setParameterValues(operation.getMetadata());
+	request.setParameterValues(BatchDispatchMetadata.withoutDispatchKeys(operation.getMetadata()));
 	Map<String, String> metadata = new HashMap<String, String>();
 	metadata.put(IBatchOperationCreateRequest.META_BATCH_OPERATION_TOKEN, operation.getToken());
 	request.setMetadata(metadata);
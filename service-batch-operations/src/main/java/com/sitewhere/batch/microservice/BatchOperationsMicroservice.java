@@ -72,6 +72,16 @@ public class BatchOperationsMicroservice
 	return false;
     }
 
+    /*
+     * @see com.sitewhere.microservice.multitenant.MultitenantMicroservice#
+     * isTenantEngineLazyActivationSupported()
+     */
+    @Override
+    protected boolean isTenantEngineLazyActivationSupported() {
+	// Batches are dispatched on a timer, so engines are not shut down when idle.
+	return false;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.IMicroservice#buildConfigurationModel()
      */
@@ -7,17 +7,26 @@
  */
 package com.sitewhere.batch.persistence.mongodb;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.bson.Document;
 
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
 import com.sitewhere.batch.persistence.BatchManagementPersistence;
+import com.sitewhere.batch.spi.IBatchOperationMetadataUpdater;
 import com.sitewhere.batch.spi.microservice.IBatchOperationsMicroservice;
 import com.sitewhere.mongodb.IMongoConverterLookup;
 import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.mongodb.common.MongoMetadataProvider;
 import com.sitewhere.mongodb.common.MongoPersistentEntity;
 import com.sitewhere.rest.model.batch.BatchElement;
 import com.sitewhere.rest.model.batch.BatchOperation;
@@ -41,7 +50,8 @@ import com.sitewhere.spi.search.batch.IBatchOperationSearchCriteria;
 import com.sitewhere.spi.search.device.IBatchElementSearchCriteria;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 
-public class MongoBatchManagement extends TenantEngineLifecycleComponent implements IBatchManagement {
+public class MongoBatchManagement extends TenantEngineLifecycleComponent
+	implements IBatchManagement, IBatchOperationMetadataUpdater {
 
     /** Converter lookup */
     private static IMongoConverterLookup LOOKUP = new MongoConverters();
@@ -106,6 +116,26 @@ public class MongoBatchManagement extends TenantEngineLifecycleComponent impleme
 	return MongoBatchOperation.fromDocument(updated);
     }
 
+    /*
+     * @see com.sitewhere.batch.spi.IBatchOperationMetadataUpdater#
+     * updateBatchOperationMetadata(java.util.UUID, java.util.Map)
+     */
+    @Override
+    public void updateBatchOperationMetadata(UUID batchOperationId, Map<String, String> values)
+	    throws SiteWhereException {
+	MongoCollection<Document> batchops = getMongoClient().getBatchOperationsCollection();
+	Document fields = new Document();
+	for (Map.Entry<String, String> entry : values.entrySet()) {
+	    fields.append(MongoMetadataProvider.PROP_METADATA + "." + entry.getKey(), entry.getValue());
+	}
+	Document query = new Document(MongoPersistentEntity.PROP_ID, batchOperationId);
+	try {
+	    MongoPersistence.update(batchops, query, fields);
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#getBatchOperation(java.util.UUID)
@@ -202,6 +232,58 @@ public class MongoBatchManagement extends TenantEngineLifecycleComponent impleme
 	return element;
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.batch.IBatchManagement#createBatchElements(java.util.UUID,
+     * java.util.List)
+     */
+    @Override
+    public List<IBatchElement> createBatchElements(UUID batchOperationId,
+	    List<? extends IBatchElementCreateRequest> requests) throws SiteWhereException {
+	MongoCollection<Document> elements = getMongoClient().getBatchOperationElementsCollection();
+	IBatchOperation operation = getBatchOperation(batchOperationId);
+
+	// Resolve all devices in a single call.
+	List<String> tokens = new ArrayList<>();
+	for (IBatchElementCreateRequest request : requests) {
+	    tokens.add(request.getDeviceToken());
+	}
+	Map<String, IDevice> devicesByToken = new HashMap<>();
+	for (IDevice device : getDeviceManagement().getDevicesByTokens(tokens)) {
+	    devicesByToken.put(device.getToken(), device);
+	}
+
+	List<IBatchElement> results = new ArrayList<>();
+	List<Document> documents = new ArrayList<>();
+	List<Integer> positions = new ArrayList<>();
+	for (IBatchElementCreateRequest request : requests) {
+	    IDevice device = devicesByToken.get(request.getDeviceToken());
+	    if (device == null) {
+		results.add(null);
+		continue;
+	    }
+	    BatchElement element = BatchManagementPersistence.batchElementCreateLogic(operation, device);
+	    positions.add(results.size());
+	    results.add(element);
+	    documents.add(MongoBatchElement.toDocument(element));
+	}
+	if (documents.isEmpty()) {
+	    return results;
+	}
+
+	// Insert unordered so that duplicates do not prevent other inserts.
+	try {
+	    elements.insertMany(documents, new InsertManyOptions().ordered(false));
+	} catch (MongoBulkWriteException e) {
+	    for (BulkWriteError error : e.getWriteErrors()) {
+		results.set(positions.get(error.getIndex()), null);
+	    }
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+	return results;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#updateBatchElement(java.util.UUID,
@@ -50,6 +50,15 @@ public interface IBatchOperationManager extends ITenantEngineLifecycleComponent
      */
     public void processBatchElement(IUnprocessedBatchElement element) throws SiteWhereException;
 
+    /**
+     * Apply dispatch settings (pause, priority, rate limit) found in batch
+     * operation metadata.
+     * 
+     * @param operation
+     * @throws SiteWhereException
+     */
+    public void applyDispatchSettings(IBatchOperation operation) throws SiteWhereException;
+
     /**
      * Get consumer for unprocessed batch operations.
      * 
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.spi;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Implemented by batch management implementations that can set individual
+ * batch operation metadata values without replacing the rest of the metadata.
+ * 
+ * @author Derek
+ */
+public interface IBatchOperationMetadataUpdater {
+
+    /**
+     * Set the given metadata values on a batch operation, leaving other values
+     * unchanged.
+     * 
+     * @param batchOperationId
+     * @param values
+     * @throws SiteWhereException
+     */
+    public void updateBatchOperationMetadata(UUID batchOperationId, Map<String, String> values)
+	    throws SiteWhereException;
+}
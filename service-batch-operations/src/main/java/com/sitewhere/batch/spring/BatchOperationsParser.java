@@ -113,6 +113,21 @@ public class BatchOperationsParser extends AbstractBeanDefinitionParser {
 	    manager.addPropertyValue("throttleDelayMs", throttleDelayMs.getValue());
 	}
 
+	Attr minDispatchRate = element.getAttributeNode("minDispatchRate");
+	if (minDispatchRate != null) {
+	    manager.addPropertyValue("minDispatchRate", minDispatchRate.getValue());
+	}
+
+	Attr maxDispatchRate = element.getAttributeNode("maxDispatchRate");
+	if (maxDispatchRate != null) {
+	    manager.addPropertyValue("maxDispatchRate", maxDispatchRate.getValue());
+	}
+
+	Attr maxConcurrentDispatches = element.getAttributeNode("maxConcurrentDispatches");
+	if (maxConcurrentDispatches != null) {
+	    manager.addPropertyValue("maxConcurrentDispatches", maxConcurrentDispatches.getValue());
+	}
+
 	context.getRegistry().registerBeanDefinition(BatchManagementBeans.BEAN_BATCH_OPERATION_MANAGER,
 		manager.getBeanDefinition());
     }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Verifies that the rate grows additively while there is no congestion, is
+ * halved on congestion and stays within its limits.
+ *
+ * @author Derek
+ */
+public class AimdRateControllerTest {
+
+    @Test
+    public void testAdditiveIncrease() throws Exception {
+	AimdRateController controller = new AimdRateController(1, 1000, 100);
+	assertEquals(100, controller.getRate(), 0);
+	assertEquals(110, controller.update(false), 0);
+	for (int i = 0; i < 200; i++) {
+	    controller.update(false);
+	}
+	assertEquals(1000, controller.getRate(), 0);
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() throws Exception {
+	AimdRateController controller = new AimdRateController(10, 1000, 800);
+	assertEquals(400, controller.update(true), 0);
+	assertEquals(200, controller.update(true), 0);
+	for (int i = 0; i < 10; i++) {
+	    controller.update(true);
+	}
+	assertEquals(10, controller.getRate(), 0);
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+	assertEquals(50, new AimdRateController(1, 50, 100).getRate(), 0);
+	assertEquals(5, new AimdRateController(5, 50, 1).getRate(), 0);
+
+	// Increase is at least one element per second.
+	AimdRateController controller = new AimdRateController(1, 20, 1);
+	assertEquals(2, controller.update(false), 0);
+    }
+}
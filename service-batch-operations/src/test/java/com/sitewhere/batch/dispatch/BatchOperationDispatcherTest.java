@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.sitewhere.batch.BatchDispatchMetadata;
+import com.sitewhere.rest.model.batch.BatchElement;
+import com.sitewhere.rest.model.batch.BatchOperation;
+import com.sitewhere.rest.model.batch.kafka.UnprocessedBatchElement;
+import com.sitewhere.spi.batch.IBatchElement;
+import com.sitewhere.spi.batch.kafka.IUnprocessedBatchElement;
+
+/**
+ * Verifies batch selection for paused batches and batches with different
+ * priorities, that paused batches do not hold up other batches and have
+ * dropped elements read from storage, and that the latency baseline follows
+ * recent intervals.
+ *
+ * @author Derek
+ */
+public class BatchOperationDispatcherTest {
+
+    /** Per-batch rate high enough that batch buckets never limit selection */
+    private static final double MAX_RATE = 1e9;
+
+    /** Queue limit used by the dispatcher for batches that are not paused */
+    private static final int MAX_QUEUED = 10000;
+
+    /** Queue limit used by the dispatcher for each paused batch */
+    private static final int MAX_QUEUED_PER_PAUSED_BATCH = 1000;
+
+    /** Intervals over which the dispatcher takes the minimum latency */
+    private static final int BASELINE_INTERVALS = 60;
+
+    @Test
+    public void testPausedBatchIsNotSelected() throws Exception {
+	BatchOperationDispatcher dispatcher = create();
+	UUID paused = UUID.randomUUID();
+	UUID active = UUID.randomUUID();
+	dispatcher.applySettings(operation(paused, BatchDispatchMetadata.PAUSED, "true"));
+	dispatcher.submit(element(paused));
+	dispatcher.submit(element(active));
+
+	BatchDispatchState selected = dispatcher.selectNext();
+	assertEquals(active, selected.getBatchOperationId());
+	selected.getQueue().pollFirst();
+	assertNull(dispatcher.selectNext());
+
+	dispatcher.applySettings(operation(paused, BatchDispatchMetadata.PAUSED, "false"));
+	assertEquals(paused, dispatcher.selectNext().getBatchOperationId());
+    }
+
+    @Test
+    public void testPriorityShare() throws Exception {
+	BatchOperationDispatcher dispatcher = create();
+	UUID high = UUID.randomUUID();
+	UUID low = UUID.randomUUID();
+	dispatcher.applySettings(operation(high, BatchDispatchMetadata.PRIORITY, "8"));
+	dispatcher.applySettings(operation(low, BatchDispatchMetadata.PRIORITY, "2"));
+	dispatcher.submit(element(high));
+	dispatcher.submit(element(low));
+
+	Map<UUID, Integer> counts = new HashMap<>();
+	for (int i = 0; i < 100; i++) {
+	    counts.merge(dispatcher.selectNext().getBatchOperationId(), 1, Integer::sum);
+	}
+	assertEquals(80, counts.get(high).intValue());
+	assertEquals(20, counts.get(low).intValue());
+    }
+
+    @Test
+    public void testPriorityIsClamped() throws Exception {
+	BatchOperationDispatcher dispatcher = create();
+	UUID id = UUID.randomUUID();
+	dispatcher.applySettings(operation(id, BatchDispatchMetadata.PRIORITY, "50"));
+	dispatcher.submit(element(id));
+	BatchDispatchState state = dispatcher.selectNext();
+	assertSame(state, dispatcher.getOrCreateState(id));
+	assertEquals(BatchDispatchState.MAX_PRIORITY, state.getPriority());
+    }
+
+    @Test
+    public void testPausedBatchDoesNotBlockOtherBatches() throws Exception {
+	BatchOperationDispatcher dispatcher = create();
+	UUID paused = UUID.randomUUID();
+	dispatcher.applySettings(operation(paused, BatchDispatchMetadata.PAUSED, "true"));
+	for (int i = 0; i < MAX_QUEUED_PER_PAUSED_BATCH + 10; i++) {
+	    dispatcher.submit(element(paused));
+	}
+	assertEquals(MAX_QUEUED_PER_PAUSED_BATCH, dispatcher.getQueued());
+
+	// Elements for other batches are still accepted up to the active limit.
+	UUID active = UUID.randomUUID();
+	for (int i = 0; i < MAX_QUEUED; i++) {
+	    dispatcher.submit(element(active));
+	}
+	assertEquals(MAX_QUEUED_PER_PAUSED_BATCH + MAX_QUEUED, dispatcher.getQueued());
+    }
+
+    @Test
+    public void testActiveElementsBlockAtLimit() throws Exception {
+	BatchOperationDispatcher dispatcher = create();
+	UUID active = UUID.randomUUID();
+	for (int i = 0; i < MAX_QUEUED; i++) {
+	    dispatcher.submit(element(active));
+	}
+	assertEquals(MAX_QUEUED, dispatcher.getQueued());
+
+	CountDownLatch submitted = new CountDownLatch(1);
+	Thread consumer = new Thread(() -> {
+	    try {
+		dispatcher.submit(element(UUID.randomUUID()));
+		submitted.countDown();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	});
+	consumer.start();
+	assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+
+	// Pausing the batch frees space for other batches.
+	dispatcher.applySettings(operation(active, BatchDispatchMetadata.PAUSED, "true"));
+	assertTrue(submitted.await(5, TimeUnit.SECONDS));
+	consumer.join();
+	dispatcher.stop();
+    }
+
+    @Test
+    public void testDroppedElementsAreReloadedFromStorage() throws Exception {
+	List<IBatchElement> storage = new ArrayList<>();
+	BatchOperationDispatcher dispatcher = new BatchOperationDispatcher(null, element -> () -> {
+	}, 1, MAX_RATE, 100, 10) {
+
+	    @Override
+	    protected List<IBatchElement> loadUnprocessedElements(UUID batchOperationId, int max) {
+		return new ArrayList<>(storage.subList(0, Math.min(max, storage.size())));
+	    }
+	};
+	UUID paused = UUID.randomUUID();
+	dispatcher.applySettings(operation(paused, BatchDispatchMetadata.PAUSED, "true"));
+	List<UUID> dropped = new ArrayList<>();
+	for (int i = 0; i < MAX_QUEUED_PER_PAUSED_BATCH + 5; i++) {
+	    UnprocessedBatchElement element = element(paused);
+	    storage.add(element.getBatchElement());
+	    dispatcher.submit(element);
+	    if (i >= MAX_QUEUED_PER_PAUSED_BATCH) {
+		dropped.add(element.getBatchElement().getId());
+	    }
+	}
+
+	// Nothing is read while paused.
+	dispatcher.reloadFromStorage();
+	assertEquals(MAX_QUEUED_PER_PAUSED_BATCH, dispatcher.getQueued());
+
+	// Process queued elements after the batch is resumed.
+	dispatcher.applySettings(operation(paused, BatchDispatchMetadata.PAUSED, "false"));
+	BatchDispatchState state = dispatcher.getOrCreateState(paused);
+	IUnprocessedBatchElement processed;
+	while ((processed = state.getQueue().pollFirst()) != null) {
+	    UUID id = processed.getBatchElement().getId();
+	    state.getPending().remove(id);
+	    storage.removeIf(element -> element.getId().equals(id));
+	}
+	assertEquals(dropped.size(), storage.size());
+
+	dispatcher.reloadFromStorage();
+	List<UUID> reloaded = new ArrayList<>();
+	for (IUnprocessedBatchElement element : state.getQueue()) {
+	    reloaded.add(element.getBatchElement().getId());
+	}
+	assertEquals(dropped, reloaded);
+
+	// Elements still arriving from Kafka are dropped since storage is read.
+	dispatcher.submit(element(paused));
+	assertEquals(dropped.size(), state.getQueue().size());
+
+	// Elements already queued are not added again.
+	dispatcher.reloadFromStorage();
+	assertEquals(dropped.size(), state.getQueue().size());
+    }
+
+    @Test
+    public void testBaselineLatencyUsesRecentMinimum() throws Exception {
+	BatchOperationDispatcher dispatcher = create();
+	assertEquals(1, dispatcher.updateBaselineLatency(1), 0);
+	for (int i = 1; i < BASELINE_INTERVALS; i++) {
+	    assertEquals(1, dispatcher.updateBaselineLatency(10), 0);
+	}
+
+	// Fast sample no longer holds the baseline down once it leaves the window.
+	assertEquals(10, dispatcher.updateBaselineLatency(10), 0);
+	assertEquals(5, dispatcher.updateBaselineLatency(5), 0);
+    }
+
+    protected BatchOperationDispatcher create() {
+	return new BatchOperationDispatcher(null, element -> () -> {
+	}, 1, MAX_RATE, 100, 10);
+    }
+
+    protected BatchOperation operation(UUID id, String key, String value) {
+	BatchOperation operation = new BatchOperation();
+	operation.setId(id);
+	operation.setToken(id.toString());
+	Map<String, String> metadata = new HashMap<>();
+	metadata.put(key, value);
+	operation.setMetadata(metadata);
+	return operation;
+    }
+
+    protected UnprocessedBatchElement element(UUID batchOperationId) {
+	BatchElement element = new BatchElement();
+	element.setId(UUID.randomUUID());
+	element.setBatchOperationId(batchOperationId);
+	UnprocessedBatchElement unprocessed = new UnprocessedBatchElement();
+	unprocessed.setBatchElement(element);
+	return unprocessed;
+    }
+}
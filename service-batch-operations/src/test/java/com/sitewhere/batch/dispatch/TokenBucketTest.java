@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Verifies that the token bucket starts with one token, refills at its rate
+ * and does not accumulate more than one second of tokens.
+ *
+ * @author Derek
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void testAcquireAndWait() throws Exception {
+	TokenBucket bucket = new TokenBucket(10);
+	assertTrue(bucket.isAvailable());
+	assertEquals(0, bucket.tryAcquire());
+	assertFalse(bucket.isAvailable());
+	long wait = bucket.tryAcquire();
+	assertTrue(wait > 0);
+	assertTrue(wait <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testRefill() throws Exception {
+	TokenBucket bucket = new TokenBucket(100);
+	assertEquals(0, bucket.tryAcquire());
+	Thread.sleep(50);
+	assertTrue(bucket.isAvailable());
+	assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    public void testBurstIsCapped() throws Exception {
+	TokenBucket bucket = new TokenBucket(10);
+	Thread.sleep(1500);
+	int acquired = 0;
+	while (bucket.tryAcquire() == 0) {
+	    acquired++;
+	}
+	assertEquals(10, acquired);
+    }
+
+    @Test
+    public void testSetRate() throws Exception {
+	TokenBucket bucket = new TokenBucket(1);
+	assertEquals(0, bucket.tryAcquire());
+	assertTrue(bucket.tryAcquire() > TimeUnit.MILLISECONDS.toNanos(500));
+	bucket.setRate(1000);
+	assertEquals(1000, bucket.getRate(), 0);
+	assertTrue(bucket.tryAcquire() <= TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -7,14 +7,25 @@
  */
 package com.sitewhere.commands;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import com.sitewhere.commands.routing.CommandRoutingLogic;
+import com.sitewhere.commands.spi.ICommandAttempt;
+import com.sitewhere.commands.spi.ICommandDestination;
+import com.sitewhere.commands.spi.ICommandDestinationsManager;
 import com.sitewhere.commands.spi.ICommandExecutionBuilder;
 import com.sitewhere.commands.spi.ICommandProcessingStrategy;
+import com.sitewhere.commands.spi.ICommandRetryManager;
 import com.sitewhere.commands.spi.ICommandTargetResolver;
+import com.sitewhere.commands.spi.IGatewayTopologyCache;
 import com.sitewhere.commands.spi.IOutboundCommandRouter;
-import com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer;
 import com.sitewhere.commands.spi.microservice.ICommandDeliveryMicroservice;
 import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
@@ -65,22 +76,49 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	if (command != null) {
 	    IDeviceCommandExecution execution = getCommandExecutionBuilder().createExecution(command, invocation);
 	    List<IDeviceAssignment> assignments = getCommandTargetResolver().resolveTargets(invocation);
+	    Map<UUID, IDeviceNestingContext> nestings = expandTargets(assignments);
 	    for (IDeviceAssignment assignment : assignments) {
-		IDevice device = getDeviceManagementApiChannel().getDevice(assignment.getDeviceId());
-		if (device == null) {
-		    throw new SiteWhereException("Targeted assignment references device that does not exist.");
-		}
-
-		IDeviceNestingContext nesting = NestedDeviceSupport.calculateNestedDeviceInformation(device,
-			getTenantEngine().getTenant());
-		CommandRoutingLogic.routeCommand(getOutboundCommandRouter(), getUndeliveredCommandInvocationsProducer(),
-			context, execution, nesting, assignment);
+		CommandRoutingLogic.routeCommand(getOutboundCommandRouter(), getCommandRetryManager(), context,
+			execution, nestings.get(assignment.getDeviceId()), assignment);
 	    }
 	} else {
 	    throw new SiteWhereException("Invalid command referenced from invocation.");
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.commands.spi.ICommandProcessingStrategy#retryCommand(com.
+     * sitewhere.spi.device.event.IDeviceEventContext,
+     * com.sitewhere.spi.device.event.IDeviceCommandInvocation,
+     * com.sitewhere.commands.spi.ICommandAttempt)
+     */
+    @Override
+    public void retryCommand(IDeviceEventContext context, IDeviceCommandInvocation invocation,
+	    ICommandAttempt attempt) throws SiteWhereException {
+	ICommandDestination<?, ?> destination = getCommandDestinationsManager().getCommandDestinations()
+		.get(attempt.getDestinationId());
+	if (destination == null) {
+	    getLogger().warn("Dropping command retry for destination '" + attempt.getDestinationId()
+		    + "' which is no longer configured.");
+	    return;
+	}
+	IDeviceCommand command = getDeviceManagementApiChannel().getDeviceCommandByToken(invocation.getCommandToken());
+	if (command == null) {
+	    throw new SiteWhereException("Invalid command referenced from invocation.");
+	}
+	IDeviceAssignment assignment = getDeviceManagementApiChannel()
+		.getDeviceAssignment(invocation.getDeviceAssignmentId());
+	if (assignment == null) {
+	    throw new SiteWhereException("Command invocation references assignment that does not exist.");
+	}
+	IDeviceCommandExecution execution = getCommandExecutionBuilder().createExecution(command, invocation);
+	IDeviceNestingContext nesting = expandTargets(Collections.singletonList(assignment))
+		.get(assignment.getDeviceId());
+	CommandRoutingLogic.retryCommand(destination, getCommandRetryManager(), context, execution, nesting,
+		assignment, attempt);
+    }
+
     /*
      * @see
      * com.sitewhere.commands.spi.ICommandProcessingStrategy#deliverSystemCommand(
@@ -97,11 +135,38 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	}
 	IDeviceAssignment assignment = getDeviceManagementApiChannel()
 		.getDeviceAssignment(device.getDeviceAssignmentId());
-	IDeviceNestingContext nesting = NestedDeviceSupport.calculateNestedDeviceInformation(device,
-		getTenantEngine().getTenant());
+	List<IDevice> devices = new ArrayList<>();
+	devices.add(device);
+	IDeviceNestingContext nesting = getGatewayTopologyCache().getNestingContexts(devices).get(device.getId());
 	CommandRoutingLogic.routeSystemCommand(getOutboundCommandRouter(), command, nesting, assignment);
     }
 
+    /**
+     * Resolve the devices and nesting information for all targets of an
+     * invocation at once. Devices are loaded with a single lookup and gateways
+     * are taken from the topology cache, so routing individual targets does not
+     * require any further lookups.
+     * 
+     * @param assignments
+     * @return nesting information indexed by device id
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IDeviceNestingContext> expandTargets(List<IDeviceAssignment> assignments)
+	    throws SiteWhereException {
+	Set<UUID> deviceIds = new LinkedHashSet<>();
+	for (IDeviceAssignment assignment : assignments) {
+	    deviceIds.add(assignment.getDeviceId());
+	}
+	Map<UUID, IDevice> devices = new HashMap<>();
+	for (IDevice device : getDeviceManagementApiChannel().getDevicesByIds(new ArrayList<>(deviceIds))) {
+	    devices.put(device.getId(), device);
+	}
+	if (devices.size() < deviceIds.size()) {
+	    throw new SiteWhereException("Targeted assignment references device that does not exist.");
+	}
+	return getGatewayTopologyCache().getNestingContexts(new ArrayList<>(devices.values()));
+    }
+
     /*
      * @see
      * com.sitewhere.server.lifecycle.LifecycleComponent#initialize(com.sitewhere.
@@ -185,11 +250,19 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	return ((ICommandDeliveryMicroservice) getMicroservice()).getDeviceManagementApiDemux().getApiChannel();
     }
 
+    private IGatewayTopologyCache getGatewayTopologyCache() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getGatewayTopologyCache();
+    }
+
     private IOutboundCommandRouter getOutboundCommandRouter() {
 	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getOutboundCommandRouter();
     }
 
-    private IUndeliveredCommandInvocationsProducer getUndeliveredCommandInvocationsProducer() {
-	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getUndeliveredCommandInvocationsProducer();
+    private ICommandDestinationsManager getCommandDestinationsManager() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandDestinationsManager();
+    }
+
+    private ICommandRetryManager getCommandRetryManager() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandRetryManager();
     }
 }
\ No newline at end of file
@@ -44,6 +44,21 @@ public class NestedDeviceSupport {
 	if (parent == null) {
 	    throw new SiteWhereException("Parent device reference points to device that does not exist.");
 	}
+	return calculateNestedDeviceInformation(target, parent);
+    }
+
+    /**
+     * Calculate nesting information for a target device given its parent device
+     * (which has already been resolved).
+     * 
+     * @param target
+     * @param parent
+     * @return
+     * @throws SiteWhereException
+     */
+    public static NestedDeviceInformation calculateNestedDeviceInformation(IDevice target, IDevice parent)
+	    throws SiteWhereException {
+	NestedDeviceInformation nested = new NestedDeviceInformation();
 
 	// Parent should contain a mapping entry for the target device.
 	IDeviceElementMapping mapping = DeviceUtils.findMappingFor(parent, target.getToken());
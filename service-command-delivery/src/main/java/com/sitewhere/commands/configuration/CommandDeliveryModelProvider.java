@@ -201,6 +201,7 @@ public class CommandDeliveryModelProvider extends ConfigurationModelProvider {
 		+ "to deliver the payload to the subscriber.");
 	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY);
 	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_AUTHENTICATION);
+	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE);
 
 	// Add common command destination attributes.
 	addCommandDestinationAttributes(builder, ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY);
@@ -215,6 +216,25 @@ public class CommandDeliveryModelProvider extends ConfigurationModelProvider {
 	CommonConnectorModel.addMqttCommonAttributes(builder, ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY,
 		ConfigurationModelProvider.ATTR_GROUP_AUTHENTICATION);
 
+	// Add publishing attributes.
+	builder.attribute((new AttributeNode.Builder("Number of connections", "numConnections", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Number of broker connections. Commands are assigned to connections by topic so "
+				+ "that commands for a device are published in order.")
+			.defaultValue("1").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum messages in flight", "maxInFlight", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Maximum number of unacknowledged commands per connection.").defaultValue("1000")
+			.build()));
+	builder.attribute((new AttributeNode.Builder("Maximum publish rate", "maxPublishRate", AttributeType.Decimal,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Maximum commands published per second for the tenant (0 for no limit).")
+			.defaultValue("0").build()));
+	builder.attribute((new AttributeNode.Builder("Delivery receipts", "deliveryReceipts", AttributeType.Boolean,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Record a command response for each command once the broker acknowledges it.")
+			.defaultValue("false").build()));
+
 	return builder.build();
     }
 
@@ -7,12 +7,16 @@
  */
 package com.sitewhere.commands.destination.mqtt;
 
-import org.fusesource.hawtdispatch.ShutdownException;
-import org.fusesource.mqtt.client.FutureConnection;
-import org.fusesource.mqtt.client.QoS;
+import org.fusesource.hawtdispatch.Dispatch;
+import org.fusesource.mqtt.client.Callback;
+import org.fusesource.mqtt.client.MQTT;
 
+import com.sitewhere.commands.routing.DeliveryFailureHandler;
 import com.sitewhere.commands.spi.ICommandDeliveryProvider;
+import com.sitewhere.commands.spi.kafka.IDeliveryReceiptsProducer;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
 import com.sitewhere.communication.mqtt.MqttLifecycleComponent;
+import com.sitewhere.communication.mqtt.MqttPublishingEngine;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.IDeviceNestingContext;
@@ -25,13 +29,35 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
  * an MQTT topic so that they can be processed asynchronously by a device
  * listening on the topic.
  * 
+ * Commands are published with QoS 1 through an {@link MqttPublishingEngine}
+ * which spreads them over a pool of broker connections by topic (so commands
+ * for a device stay in order) and keeps a window of unacknowledged messages on
+ * each connection rather than waiting for each acknowledgement. Publishing may
+ * be limited to a maximum rate for the tenant. If delivery receipts are
+ * enabled, a command response is reported for each command once the broker
+ * acknowledges it (or publishing fails). Commands the broker fails to accept
+ * are scheduled for a delayed retry in the same way as commands that fail
+ * synchronously.
+ * 
  * @author Derek
  */
 public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
 	implements ICommandDeliveryProvider<byte[], MqttParameters> {
 
-    /** Shared MQTT connection */
-    private FutureConnection connection;
+    /** Number of broker connections */
+    private int numConnections = 1;
+
+    /** Unacknowledged messages allowed per connection */
+    private int maxInFlight = 1000;
+
+    /** Maximum commands published per second for the tenant (0 for no limit) */
+    private double maxPublishRate = 0;
+
+    /** Indicates whether delivery receipts are reported */
+    private boolean deliveryReceipts = false;
+
+    /** Publishes to the broker */
+    private MqttPublishingEngine engine;
 
     public MqttCommandDeliveryProvider() {
 	super(LifecycleComponentType.CommandDeliveryProvider);
@@ -46,10 +72,16 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
      */
     @Override
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
-	super.start(monitor);
+	MQTT mqtt = MqttLifecycleComponent.configure(this, Dispatch.createQueue(getComponentId().toString()));
 
-	getLogger().info("Connecting to MQTT broker at '" + getHostname() + ":" + getPort() + "'...");
-	connection = getConnection();
+	getLogger().info(String.format("Connecting to MQTT broker at %s:%s using %d %s ...", getHostname(), getPort(),
+		getNumConnections(), (getNumConnections() == 1) ? "connection" : "connections"));
+	this.engine = new MqttPublishingEngine();
+	engine.setNumConnections(getNumConnections());
+	engine.setMaxInFlight(getMaxInFlight());
+	engine.setMaxPublishRate(getMaxPublishRate());
+	engine.setMeterFactory(name -> createMeterMetric("commandDelivery." + name));
+	engine.start(mqtt, "MQTT Command Delivery " + getComponentId());
 	getLogger().info("Connected to MQTT broker.");
     }
 
@@ -61,15 +93,9 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
-	if (connection != null) {
-	    try {
-		connection.disconnect().await();
-		connection.kill().await();
-	    } catch (ShutdownException e) {
-		getLogger().info("Dispatcher has already been shut down.");
-	    } catch (Exception e) {
-		getLogger().error("Error shutting down MQTT device event receiver.", e);
-	    }
+	if (engine != null) {
+	    engine.stop();
+	    engine = null;
 	}
 	super.stop(monitor);
     }
@@ -86,13 +112,11 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
     @Override
     public void deliver(IDeviceNestingContext nested, IDeviceAssignment assignment, IDeviceCommandExecution execution,
 	    byte[] encoded, MqttParameters params) throws SiteWhereException {
-	try {
-	    getLogger().info("About to publish command message to topic: " + params.getCommandTopic());
-	    connection.publish(params.getCommandTopic(), encoded, QoS.AT_LEAST_ONCE, false);
-	    getLogger().info("Command published.");
-	} catch (Exception e) {
-	    throw new SiteWhereException("Unable to publish command to MQTT topic.", e);
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug("Publishing command message to topic: " + params.getCommandTopic());
 	}
+	publish(params.getCommandTopic(), encoded,
+		new DeliveryCallback(nested, execution, DeliveryFailureHandler.current()));
     }
 
     /*
@@ -106,12 +130,129 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
     @Override
     public void deliverSystemCommand(IDeviceNestingContext nested, IDeviceAssignment assignment, byte[] encoded,
 	    MqttParameters params) throws SiteWhereException {
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug("Publishing system message to topic: " + params.getSystemTopic());
+	}
+	publish(params.getSystemTopic(), encoded, new DeliveryCallback(nested, null, null));
+    }
+
+    /**
+     * Publish a message, sharding by topic so that messages for a topic are
+     * published in order on the same connection.
+     * 
+     * @param topic
+     * @param encoded
+     * @param callback
+     * @throws SiteWhereException
+     */
+    protected void publish(String topic, byte[] encoded, Callback<Void> callback) throws SiteWhereException {
+	MqttPublishingEngine current = engine;
+	if (current == null) {
+	    throw new SiteWhereException("MQTT command delivery provider is not started.");
+	}
 	try {
-	    getLogger().info("About to publish system message to topic: " + params.getSystemTopic());
-	    connection.publish(params.getSystemTopic(), encoded, QoS.AT_LEAST_ONCE, false);
-	    getLogger().info("Command published.");
+	    current.publish(topic, topic, encoded, callback);
+	} catch (SiteWhereException e) {
+	    throw e;
 	} catch (Exception e) {
 	    throw new SiteWhereException("Unable to publish command to MQTT topic.", e);
 	}
     }
-}
\ No newline at end of file
+
+    protected IDeliveryReceiptsProducer getDeliveryReceiptsProducer() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getDeliveryReceiptsProducer();
+    }
+
+    public int getNumConnections() {
+	return numConnections;
+    }
+
+    public void setNumConnections(int numConnections) {
+	this.numConnections = numConnections;
+    }
+
+    public int getMaxInFlight() {
+	return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+	this.maxInFlight = maxInFlight;
+    }
+
+    public double getMaxPublishRate() {
+	return maxPublishRate;
+    }
+
+    public void setMaxPublishRate(double maxPublishRate) {
+	this.maxPublishRate = maxPublishRate;
+    }
+
+    public boolean isDeliveryReceipts() {
+	return deliveryReceipts;
+    }
+
+    public void setDeliveryReceipts(boolean deliveryReceipts) {
+	this.deliveryReceipts = deliveryReceipts;
+    }
+
+    /**
+     * Reports the outcome of publishing a command. Runs on an MQTT dispatch
+     * thread, so it only hands receipts and retries to (asynchronous) Kafka
+     * producers.
+     */
+    private class DeliveryCallback implements Callback<Void> {
+
+	/** Nesting context for target device */
+	private final IDeviceNestingContext nesting;
+
+	/** Command execution (null for system commands) */
+	private final IDeviceCommandExecution execution;
+
+	/** Schedules retry on failure (null if not delivered through routing) */
+	private final DeliveryFailureHandler failureHandler;
+
+	public DeliveryCallback(IDeviceNestingContext nesting, IDeviceCommandExecution execution,
+		DeliveryFailureHandler failureHandler) {
+	    this.nesting = nesting;
+	    this.execution = execution;
+	    this.failureHandler = failureHandler;
+	}
+
+	/*
+	 * @see org.fusesource.mqtt.client.Callback#onSuccess(java.lang.Object)
+	 */
+	@Override
+	public void onSuccess(Void value) {
+	    sendReceipt(IDeliveryReceiptsProducer.RESPONSE_DELIVERED);
+	}
+
+	/*
+	 * @see org.fusesource.mqtt.client.Callback#onFailure(java.lang.Throwable)
+	 */
+	@Override
+	public void onFailure(Throwable e) {
+	    sendReceipt(IDeliveryReceiptsProducer.RESPONSE_DELIVERY_FAILED);
+	    if (failureHandler != null) {
+		failureHandler.failed(e);
+	    } else {
+		getLogger().error("Unable to publish command to MQTT topic.", e);
+	    }
+	}
+
+	/**
+	 * Send a receipt if enabled and the message was for a device command.
+	 * 
+	 * @param response
+	 */
+	protected void sendReceipt(String response) {
+	    if (!isDeliveryReceipts() || (execution == null)) {
+		return;
+	    }
+	    try {
+		getDeliveryReceiptsProducer().sendReceipt(nesting, execution, response);
+	    } catch (Throwable e) {
+		getLogger().warn("Unable to send command delivery receipt.", e);
+	    }
+	}
+    }
+}
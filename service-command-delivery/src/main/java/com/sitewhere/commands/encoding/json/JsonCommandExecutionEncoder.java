@@ -43,7 +43,9 @@ public class JsonCommandExecutionEncoder extends TenantEngineLifecycleComponent
     public byte[] encode(IDeviceCommandExecution command, IDeviceNestingContext nested, IDeviceAssignment assignment)
 	    throws SiteWhereException {
 	EncodedCommandExecution encoded = new EncodedCommandExecution(command, nested, assignment);
-	getLogger().debug("Custom command being encoded:\n\n" + MarshalUtils.marshalJsonAsPrettyString(encoded));
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug("Custom command being encoded:\n\n" + MarshalUtils.marshalJsonAsPrettyString(encoded));
+	}
 	return MarshalUtils.marshalJson(encoded);
     }
 
@@ -59,7 +61,9 @@ public class JsonCommandExecutionEncoder extends TenantEngineLifecycleComponent
     public byte[] encodeSystemCommand(ISystemCommand command, IDeviceNestingContext nested,
 	    IDeviceAssignment assignment) throws SiteWhereException {
 	EncodedCommandExecution encoded = new EncodedCommandExecution(command, nested, assignment);
-	getLogger().debug("System command being encoded:\n\n" + MarshalUtils.marshalJsonAsPrettyString(encoded));
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug("System command being encoded:\n\n" + MarshalUtils.marshalJsonAsPrettyString(encoded));
+	}
 	return MarshalUtils.marshalJson(encoded);
     }
 }
\ No newline at end of file
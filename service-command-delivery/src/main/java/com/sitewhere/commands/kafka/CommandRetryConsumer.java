@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.kafka;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import com.sitewhere.commands.retry.CommandAttempt;
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.commands.spi.kafka.ICommandRetryConsumer;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer;
+import com.sitewhere.microservice.security.SystemUserRunnable;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
+
+/**
+ * Consumes command invocations from the delay tier topics and hands them back
+ * to the {@link ICommandRetryManager} once they are due. Each tier has a fixed
+ * delay, so records in a partition become due in order. When the record at the
+ * head of a partition is not yet due, the partition is paused and rewound to
+ * that record, then resumed once it is due. Records are handled on the consumer
+ * thread and no worker threads are held while waiting.
+ *
+ * @author Derek
+ */
+public class CommandRetryConsumer extends MicroserviceKafkaConsumer implements ICommandRetryConsumer {
+
+    /** Consumer id */
+    private static String CONSUMER_ID = UUID.randomUUID().toString();
+
+    /** Suffix for group id */
+    private static String GROUP_ID_SUFFIX = "command-retry-consumers";
+
+    /** Longest time a poll waits so paused partitions are resumed promptly */
+    private static final long POLL_TIMEOUT_MS = 1000;
+
+    /** Paused partitions with time the head record is due */
+    private Map<TopicPartition, Long> paused = new ConcurrentHashMap<>();
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
+     * getConsumerId()
+     */
+    @Override
+    public String getConsumerId() throws SiteWhereException {
+	return CONSUMER_ID;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
+     * getConsumerGroupId()
+     */
+    @Override
+    public String getConsumerGroupId() throws SiteWhereException {
+	return getMicroservice().getKafkaTopicNaming().getTenantPrefix(getTenantEngine().getTenant()) + GROUP_ID_SUFFIX;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
+     * getSourceTopicNames()
+     */
+    @Override
+    public List<String> getSourceTopicNames() throws SiteWhereException {
+	List<String> topics = new ArrayList<String>();
+	for (String tier : getRetryManager().getTierNames()) {
+	    topics.add(getMicroservice().getKafkaTopicNaming().getCommandRetryTopic(getTenantEngine().getTenant(),
+		    tier));
+	}
+	return topics;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#getPollTimeoutMs()
+     */
+    @Override
+    protected long getPollTimeoutMs() {
+	return POLL_TIMEOUT_MS;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#process(org.
+     * apache.kafka.common.TopicPartition, java.util.List)
+     */
+    @Override
+    public void process(TopicPartition topicPartition, List<ConsumerRecord<String, byte[]>> records) {
+	long lastOffset = -1;
+	for (ConsumerRecord<String, byte[]> record : records) {
+	    CommandAttempt attempt = CommandAttempt.fromHeaders(record.headers());
+	    if (attempt == null) {
+		getLogger().warn("Skipping command retry record without attempt metadata.");
+		lastOffset = record.offset();
+		continue;
+	    }
+	    long now = System.currentTimeMillis();
+	    if (attempt.getDueAt() > now) {
+		getConsumer().pause(Collections.singleton(topicPartition));
+		getConsumer().seek(topicPartition, record.offset());
+		paused.put(topicPartition, attempt.getDueAt());
+		break;
+	    }
+	    new RetryProcessor(record.value(), attempt).run();
+	    lastOffset = record.offset();
+	}
+	if (lastOffset >= 0) {
+	    getConsumer().commitAsync(
+		    Collections.singletonMap(topicPartition, new OffsetAndMetadata(lastOffset + 1)),
+		    (offsets, e) -> {
+			if (e != null) {
+			    getLogger().error("Commit failed for offsets " + offsets, e);
+			}
+		    });
+	}
+    }
+
+    /*
+     * Resume paused partitions once the record at their head is due.
+     *
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#afterPoll()
+     */
+    @Override
+    protected void afterPoll() {
+	if (paused.isEmpty()) {
+	    return;
+	}
+	long now = System.currentTimeMillis();
+	Set<TopicPartition> assigned = getConsumer().assignment();
+	List<TopicPartition> due = new ArrayList<>();
+	for (Iterator<Map.Entry<TopicPartition, Long>> it = paused.entrySet().iterator(); it.hasNext();) {
+	    Map.Entry<TopicPartition, Long> entry = it.next();
+	    if (!assigned.contains(entry.getKey())) {
+		it.remove();
+	    } else if (entry.getValue() <= now) {
+		due.add(entry.getKey());
+		it.remove();
+	    }
+	}
+	if (!due.isEmpty()) {
+	    getConsumer().resume(due);
+	}
+    }
+
+    protected ICommandRetryManager getRetryManager() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandRetryManager();
+    }
+
+    /**
+     * Unmarshals an invocation that is due and passes it to the retry manager.
+     */
+    protected class RetryProcessor extends SystemUserRunnable {
+
+	/** Encoded payload */
+	private byte[] encoded;
+
+	/** Attempt metadata */
+	private CommandAttempt attempt;
+
+	public RetryProcessor(byte[] encoded, CommandAttempt attempt) {
+	    super(getTenantEngine().getMicroservice(), getTenantEngine().getTenant());
+	    this.encoded = encoded;
+	    this.attempt = attempt;
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#
+	 * runAsSystemUser()
+	 */
+	@Override
+	public void runAsSystemUser() throws SiteWhereException {
+	    try {
+		EnrichedEventPayload payload = EventModelConverter
+			.asApiEnrichedEventPayload(EventModelMarshaler.parseEnrichedEventPayloadMessage(encoded));
+		getRetryManager().retry(payload.getEventContext(), (IDeviceCommandInvocation) payload.getEvent(),
+			attempt);
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to retry command invocation.", e);
+	    } catch (Throwable e) {
+		getLogger().error("Unhandled exception retrying command invocation.", e);
+	    }
+	}
+    }
+}
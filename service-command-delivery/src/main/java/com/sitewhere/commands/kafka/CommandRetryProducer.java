@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.kafka;
+
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import com.codahale.metrics.Timer;
+import com.sitewhere.commands.retry.CommandAttempt;
+import com.sitewhere.commands.spi.ICommandAttempt;
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.commands.spi.kafka.ICommandRetryProducer;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
+import com.sitewhere.microservice.kafka.AckPolicy;
+import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Kafka producer that writes command invocations waiting to be retried to the
+ * topic for a delay tier. Records are acknowledged by all replicas since the
+ * topics hold the only copy of commands waiting for delivery.
+ *
+ * @author Derek
+ */
+public class CommandRetryProducer extends MicroserviceKafkaProducer implements ICommandRetryProducer {
+
+    public CommandRetryProducer() {
+	super(AckPolicy.All);
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer#
+     * getTargetTopicName()
+     */
+    @Override
+    public String getTargetTopicName() throws SiteWhereException {
+	return getTopicName(getRetryManager().getTierNames().get(0));
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.kafka.ICommandRetryProducer#send(java.lang.String,
+     * java.lang.String, byte[], com.sitewhere.commands.spi.ICommandAttempt)
+     */
+    @Override
+    public Future<RecordMetadata> send(String tier, String key, byte[] message, ICommandAttempt attempt)
+	    throws SiteWhereException {
+	ProducerRecord<String, byte[]> record = new ProducerRecord<String, byte[]>(getTopicName(tier), null, key,
+		message, CommandAttempt.toHeaders(attempt));
+	final Timer.Context context = getProduceTimer().time();
+	try {
+	    return getProducer().send(record, (metadata, exception) -> context.stop());
+	} catch (IllegalStateException e) {
+	    throw new SiteWhereException("Producer unable to send record.", e);
+	} catch (Throwable e) {
+	    throw new SiteWhereException("Unhandled exception in producer while sending record.", e);
+	}
+    }
+
+    /**
+     * Get topic name for a delay tier.
+     *
+     * @param tier
+     * @return
+     */
+    protected String getTopicName(String tier) {
+	return getMicroservice().getKafkaTopicNaming().getCommandRetryTopic(getTenantEngine().getTenant(), tier);
+    }
+
+    protected ICommandRetryManager getRetryManager() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandRetryManager();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.kafka;
+
+import java.util.Date;
+
+import com.sitewhere.commands.spi.kafka.IDeliveryReceiptsProducer;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.microservice.kafka.AckPolicy;
+import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
+import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
+import com.sitewhere.rest.model.device.event.request.DeviceCommandResponseCreateRequest;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceNestingContext;
+import com.sitewhere.spi.device.command.IDeviceCommandExecution;
+
+/**
+ * Produces delivery receipts to the decoded events topic for the tenant. Each
+ * receipt is a command response that references the delivered invocation and
+ * is keyed by device token, as with events decoded by event sources.
+ * 
+ * @author Derek
+ */
+public class DeliveryReceiptsProducer extends MicroserviceKafkaProducer implements IDeliveryReceiptsProducer {
+
+    /** Source id recorded on receipts */
+    private static final String SOURCE_ID = "command-delivery";
+
+    public DeliveryReceiptsProducer() {
+	super(AckPolicy.FireAndForget);
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer#
+     * getTargetTopicName()
+     */
+    @Override
+    public String getTargetTopicName() throws SiteWhereException {
+	return getMicroservice().getKafkaTopicNaming().getEventSourceDecodedEventsTopic(getTenantEngine().getTenant());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.kafka.IDeliveryReceiptsProducer#sendReceipt(com.
+     * sitewhere.spi.device.IDeviceNestingContext,
+     * com.sitewhere.spi.device.command.IDeviceCommandExecution, java.lang.String)
+     */
+    @Override
+    public void sendReceipt(IDeviceNestingContext nesting, IDeviceCommandExecution execution, String response)
+	    throws SiteWhereException {
+	IDevice target = (nesting.getNested() != null) ? nesting.getNested() : nesting.getGateway();
+	DeviceCommandResponseCreateRequest receipt = new DeviceCommandResponseCreateRequest();
+	receipt.setOriginatingEventId(execution.getInvocation().getId());
+	receipt.setResponse(response);
+	receipt.setEventDate(new Date());
+
+	InboundEventPayload payload = new InboundEventPayload();
+	payload.setSourceId(SOURCE_ID);
+	payload.setDeviceToken(target.getToken());
+	payload.setEventCreateRequest(receipt);
+	send(target.getToken(), EventModelMarshaler.buildInboundEventPayloadMessage(payload));
+    }
+}
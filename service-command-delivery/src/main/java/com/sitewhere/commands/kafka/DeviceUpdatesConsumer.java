@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.commands.spi.IGatewayTopologyCache;
+import com.sitewhere.commands.spi.kafka.IDeviceUpdatesConsumer;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
+import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GAnyDeviceEvent;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceStateChange;
+import com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
+import com.sitewhere.spi.device.event.state.PresenceState;
+
+/**
+ * Watches the enriched events topic for the registration state changes fired
+ * when devices are created, updated or deleted and invalidates the gateway
+ * topology cached for those devices. Presence state changes reported by device
+ * state management are passed to the command retry manager. Records whose event
+ * type header shows they are not state changes are skipped without parsing the
+ * payload. Every microservice instance holds its own cache, so each instance
+ * consumes with its own consumer group starting from the latest offset. Offsets
+ * are not committed since a restarted instance starts with an empty cache.
+ * 
+ * @author Derek
+ */
+public class DeviceUpdatesConsumer extends MicroserviceKafkaConsumer implements IDeviceUpdatesConsumer {
+
+    /** Consumer id */
+    private static String CONSUMER_ID = UUID.randomUUID().toString();
+
+    /** Suffix for group id */
+    private static String GROUP_ID_SUFFIX = "command-delivery-device-update-consumers-";
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
+     * getConsumerId()
+     */
+    @Override
+    public String getConsumerId() throws SiteWhereException {
+	return CONSUMER_ID;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
+     * getConsumerGroupId()
+     */
+    @Override
+    public String getConsumerGroupId() throws SiteWhereException {
+	return getMicroservice().getKafkaTopicNaming().getTenantPrefix(getTenantEngine().getTenant()) + GROUP_ID_SUFFIX
+		+ CONSUMER_ID;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
+     * getSourceTopicNames()
+     */
+    @Override
+    public List<String> getSourceTopicNames() throws SiteWhereException {
+	List<String> topics = new ArrayList<String>();
+	topics.add(
+		getMicroservice().getKafkaTopicNaming().getInboundEnrichedEventsTopic(getTenantEngine().getTenant()));
+	return topics;
+    }
+
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * buildConfiguration()
+     */
+    @Override
+    protected Properties buildConfiguration() throws SiteWhereException {
+	Properties config = super.buildConfiguration();
+	config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+	return config;
+    }
+
+    /*
+     * Device updates alone should not keep a lazily started tenant engine running.
+     * 
+     * @see
+     * com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#markTenantActive()
+     */
+    @Override
+    protected void markTenantActive() {
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#process(org.
+     * apache.kafka.common.TopicPartition, java.util.List)
+     */
+    @Override
+    public void process(TopicPartition topicPartition, List<ConsumerRecord<String, byte[]>> records) {
+	IGatewayTopologyCache topology = ((ICommandDeliveryTenantEngine) getTenantEngine()).getGatewayTopologyCache();
+	ICommandRetryManager retries = ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandRetryManager();
+	for (ConsumerRecord<String, byte[]> record : records) {
+	    // Records written before event type headers were added are parsed.
+	    DeviceEventType type = EventModelMarshaler.getEventType(record.headers());
+	    if ((type != null) && (type != DeviceEventType.StateChange)) {
+		continue;
+	    }
+	    try {
+		GAnyDeviceEvent event = EventModelMarshaler.parseEnrichedEventPayloadMessage(record.value()).getEvent();
+		if (event.getEventCase() != GAnyDeviceEvent.EventCase.STATECHANGE) {
+		    continue;
+		}
+		GDeviceStateChange state = event.getStateChange();
+		if (IDeviceStateChangeCreateRequest.ATTRIBUTE_REGISTRATION.equals(state.getAttribute())) {
+		    topology.invalidate(CommonModelConverter.asApiUuid(state.getEvent().getDeviceId()));
+		} else if (IDeviceStateChangeCreateRequest.ATTRIBUTE_PRESENCE.equals(state.getAttribute())
+			&& state.hasNewState()) {
+		    String presence = state.getNewState().getValue();
+		    if (PresenceState.NOT_PRESENT.name().equals(presence)) {
+			retries.deviceNotPresent(CommonModelConverter.asApiUuid(state.getEvent().getDeviceId()));
+		    } else if (PresenceState.PRESENT.name().equals(presence)) {
+			retries.devicePresent(CommonModelConverter.asApiUuid(state.getEvent().getDeviceId()));
+		    }
+		}
+	    } catch (SiteWhereException e) {
+		getLogger().warn("Unable to parse enriched event while checking for device updates.", e);
+	    } catch (Throwable e) {
+		getLogger().error("Unhandled exception checking for device updates.", e);
+	    }
+	}
+    }
+}
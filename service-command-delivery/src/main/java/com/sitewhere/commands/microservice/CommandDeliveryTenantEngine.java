@@ -8,14 +8,28 @@
 package com.sitewhere.commands.microservice;
 
 import com.sitewhere.commands.DefaultCommandProcessingStrategy;
+import com.sitewhere.commands.kafka.CommandRetryConsumer;
+import com.sitewhere.commands.kafka.CommandRetryProducer;
+import com.sitewhere.commands.kafka.DeliveryReceiptsProducer;
+import com.sitewhere.commands.kafka.DeviceUpdatesConsumer;
 import com.sitewhere.commands.kafka.EnrichedCommandInvocationsConsumer;
 import com.sitewhere.commands.kafka.UndeliveredCommandInvocationsProducer;
 import com.sitewhere.commands.spi.ICommandDestinationsManager;
+import com.sitewhere.commands.retry.CommandRetryManager;
 import com.sitewhere.commands.spi.ICommandProcessingStrategy;
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.commands.spi.IGatewayTopologyCache;
 import com.sitewhere.commands.spi.IOutboundCommandRouter;
+import com.sitewhere.commands.spi.kafka.ICommandRetryConsumer;
+import com.sitewhere.commands.spi.kafka.ICommandRetryProducer;
+import com.sitewhere.commands.spi.kafka.IDeliveryReceiptsProducer;
+import com.sitewhere.commands.spi.kafka.IDeviceUpdatesConsumer;
 import com.sitewhere.commands.spi.kafka.IEnrichedCommandInvocationsConsumer;
 import com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryMicroservice;
 import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
+import com.sitewhere.commands.topology.GatewayTopologyCache;
+import com.sitewhere.microservice.cache.DeviceManagementCacheWarmer;
 import com.sitewhere.microservice.multitenant.MicroserviceTenantEngine;
 import com.sitewhere.server.lifecycle.CompositeLifecycleStep;
 import com.sitewhere.spi.SiteWhereException;
@@ -49,6 +63,27 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
     /** Kafka producer for undelivered command invocations */
     private IUndeliveredCommandInvocationsProducer undeliveredCommandInvocationsProducer;
 
+    /** Kafka producer for command delivery receipts */
+    private IDeliveryReceiptsProducer deliveryReceiptsProducer;
+
+    /** Preloads device management caches */
+    private DeviceManagementCacheWarmer deviceManagementCacheWarmer;
+
+    /** Caches gateway topology for nested devices */
+    private IGatewayTopologyCache gatewayTopologyCache;
+
+    /** Kafka consumer that invalidates gateway topology on device updates */
+    private IDeviceUpdatesConsumer deviceUpdatesConsumer;
+
+    /** Schedules delayed retries for undelivered commands */
+    private ICommandRetryManager commandRetryManager;
+
+    /** Kafka producer for commands waiting to be retried */
+    private ICommandRetryProducer commandRetryProducer;
+
+    /** Kafka consumer for commands waiting to be retried */
+    private ICommandRetryConsumer commandRetryConsumer;
+
     public CommandDeliveryTenantEngine(ITenant tenant) {
 	super(tenant);
     }
@@ -66,6 +101,22 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Listener for enriched command invocations.
 	this.undeliveredCommandInvocationsProducer = new UndeliveredCommandInvocationsProducer();
 
+	// Producer for command delivery receipts.
+	this.deliveryReceiptsProducer = new DeliveryReceiptsProducer();
+
+	// Warms device management caches.
+	this.deviceManagementCacheWarmer = new DeviceManagementCacheWarmer(
+		((ICommandDeliveryMicroservice) getMicroservice()).getDeviceManagementApiDemux());
+
+	// Caches gateway topology and invalidates it on device updates.
+	this.gatewayTopologyCache = new GatewayTopologyCache();
+	this.deviceUpdatesConsumer = new DeviceUpdatesConsumer();
+
+	// Schedules delayed retries for undelivered commands.
+	this.commandRetryManager = new CommandRetryManager();
+	this.commandRetryProducer = new CommandRetryProducer();
+	this.commandRetryConsumer = new CommandRetryConsumer();
+
 	// Load configured command destinations manager.
 	this.commandDestinationsManager = (ICommandDestinationsManager) getModuleContext()
 		.getBean(CommandDestinationsBeans.BEAN_COMMAND_DESTINATIONS_MANAGER);
@@ -77,6 +128,21 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Create step that will initialize components.
 	ICompositeLifecycleStep init = new CompositeLifecycleStep("Initialize " + getComponentName());
 
+	// Initialize device management cache warmer.
+	init.addInitializeStep(this, getDeviceManagementCacheWarmer(), true);
+
+	// Initialize gateway topology cache.
+	init.addInitializeStep(this, getGatewayTopologyCache(), true);
+
+	// Initialize command retry manager.
+	init.addInitializeStep(this, getCommandRetryManager(), true);
+
+	// Initialize device updates consumer.
+	init.addInitializeStep(this, getDeviceUpdatesConsumer(), true);
+
+	// Initialize delivery receipts producer.
+	init.addInitializeStep(this, getDeliveryReceiptsProducer(), true);
+
 	// Initialize command destinations manager.
 	init.addInitializeStep(this, getCommandDestinationsManager(), true);
 
@@ -89,6 +155,12 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Initialize undelivered command invocations producer.
 	init.addInitializeStep(this, getUndeliveredCommandInvocationsProducer(), true);
 
+	// Initialize command retry producer.
+	init.addInitializeStep(this, getCommandRetryProducer(), true);
+
+	// Initialize command retry consumer.
+	init.addInitializeStep(this, getCommandRetryConsumer(), true);
+
 	// Initialize enriched command invocations consumer.
 	init.addInitializeStep(this, getEnrichedCommandInvocationsConsumer(), true);
 
@@ -105,6 +177,21 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Create step that will start components.
 	ICompositeLifecycleStep start = new CompositeLifecycleStep("Start " + getComponentName());
 
+	// Start device management cache warmer.
+	start.addStartStep(this, getDeviceManagementCacheWarmer(), true);
+
+	// Start gateway topology cache.
+	start.addStartStep(this, getGatewayTopologyCache(), true);
+
+	// Start command retry manager.
+	start.addStartStep(this, getCommandRetryManager(), true);
+
+	// Start device updates consumer.
+	start.addStartStep(this, getDeviceUpdatesConsumer(), true);
+
+	// Start delivery receipts producer.
+	start.addStartStep(this, getDeliveryReceiptsProducer(), true);
+
 	// Start command destinations manager.
 	start.addStartStep(this, getCommandDestinationsManager(), true);
 
@@ -117,6 +204,12 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Start undelivered command invocations producer.
 	start.addStartStep(this, getUndeliveredCommandInvocationsProducer(), true);
 
+	// Start command retry producer.
+	start.addStartStep(this, getCommandRetryProducer(), true);
+
+	// Start command retry consumer.
+	start.addStartStep(this, getCommandRetryConsumer(), true);
+
 	// Start command invocations consumer.
 	start.addStartStep(this, getEnrichedCommandInvocationsConsumer(), true);
 
@@ -146,6 +239,12 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Stop command invocations consumer.
 	stop.addStopStep(this, getEnrichedCommandInvocationsConsumer());
 
+	// Stop command retry consumer.
+	stop.addStopStep(this, getCommandRetryConsumer());
+
+	// Stop command retry producer.
+	stop.addStopStep(this, getCommandRetryProducer());
+
 	// Stop undelivered command invocations producer.
 	stop.addStopStep(this, getUndeliveredCommandInvocationsProducer());
 
@@ -158,6 +257,21 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	// Stop command destinations manager.
 	stop.addStopStep(this, getCommandDestinationsManager());
 
+	// Stop delivery receipts producer.
+	stop.addStopStep(this, getDeliveryReceiptsProducer());
+
+	// Stop device updates consumer.
+	stop.addStopStep(this, getDeviceUpdatesConsumer());
+
+	// Stop command retry manager.
+	stop.addStopStep(this, getCommandRetryManager());
+
+	// Stop gateway topology cache.
+	stop.addStopStep(this, getGatewayTopologyCache());
+
+	// Stop device management cache warmer.
+	stop.addStopStep(this, getDeviceManagementCacheWarmer());
+
 	// Execute shutdown steps.
 	stop.execute(monitor);
     }
@@ -228,4 +342,90 @@ public class CommandDeliveryTenantEngine extends MicroserviceTenantEngine implem
 	    IUndeliveredCommandInvocationsProducer undeliveredCommandInvocationsProducer) {
 	this.undeliveredCommandInvocationsProducer = undeliveredCommandInvocationsProducer;
     }
+
+    /*
+     * @see com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine#
+     * getDeliveryReceiptsProducer()
+     */
+    @Override
+    public IDeliveryReceiptsProducer getDeliveryReceiptsProducer() {
+	return deliveryReceiptsProducer;
+    }
+
+    public void setDeliveryReceiptsProducer(IDeliveryReceiptsProducer deliveryReceiptsProducer) {
+	this.deliveryReceiptsProducer = deliveryReceiptsProducer;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine#
+     * getGatewayTopologyCache()
+     */
+    @Override
+    public IGatewayTopologyCache getGatewayTopologyCache() {
+	return gatewayTopologyCache;
+    }
+
+    public void setGatewayTopologyCache(IGatewayTopologyCache gatewayTopologyCache) {
+	this.gatewayTopologyCache = gatewayTopologyCache;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine#
+     * getDeviceUpdatesConsumer()
+     */
+    @Override
+    public IDeviceUpdatesConsumer getDeviceUpdatesConsumer() {
+	return deviceUpdatesConsumer;
+    }
+
+    public void setDeviceUpdatesConsumer(IDeviceUpdatesConsumer deviceUpdatesConsumer) {
+	this.deviceUpdatesConsumer = deviceUpdatesConsumer;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine#
+     * getCommandRetryManager()
+     */
+    @Override
+    public ICommandRetryManager getCommandRetryManager() {
+	return commandRetryManager;
+    }
+
+    public void setCommandRetryManager(ICommandRetryManager commandRetryManager) {
+	this.commandRetryManager = commandRetryManager;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine#
+     * getCommandRetryProducer()
+     */
+    @Override
+    public ICommandRetryProducer getCommandRetryProducer() {
+	return commandRetryProducer;
+    }
+
+    public void setCommandRetryProducer(ICommandRetryProducer commandRetryProducer) {
+	this.commandRetryProducer = commandRetryProducer;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine#
+     * getCommandRetryConsumer()
+     */
+    @Override
+    public ICommandRetryConsumer getCommandRetryConsumer() {
+	return commandRetryConsumer;
+    }
+
+    public void setCommandRetryConsumer(ICommandRetryConsumer commandRetryConsumer) {
+	this.commandRetryConsumer = commandRetryConsumer;
+    }
+
+    public DeviceManagementCacheWarmer getDeviceManagementCacheWarmer() {
+	return deviceManagementCacheWarmer;
+    }
+
+    public void setDeviceManagementCacheWarmer(DeviceManagementCacheWarmer deviceManagementCacheWarmer) {
+	this.deviceManagementCacheWarmer = deviceManagementCacheWarmer;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.retry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import com.sitewhere.commands.spi.ICommandAttempt;
+
+/**
+ * Default {@link ICommandAttempt} implementation. Attempt metadata is carried
+ * in Kafka record headers so that the invocation payload is written in the
+ * same format used by the other command topics.
+ *
+ * @author Derek
+ */
+public class CommandAttempt implements ICommandAttempt {
+
+    /** Header for retry id */
+    private static final String HEADER_RETRY_ID = "sw-retry-id";
+
+    /** Header for destination id */
+    private static final String HEADER_DESTINATION_ID = "sw-destination-id";
+
+    /** Header for attempt number */
+    private static final String HEADER_ATTEMPT = "sw-attempt";
+
+    /** Header for time of first failure */
+    private static final String HEADER_FIRST_FAILURE = "sw-first-failure";
+
+    /** Header for time attempt is due */
+    private static final String HEADER_DUE_AT = "sw-due-at";
+
+    /** Retry id */
+    private String retryId;
+
+    /** Destination id */
+    private String destinationId;
+
+    /** Number of failed attempts */
+    private int attempt;
+
+    /** Time of first failure */
+    private long firstFailure;
+
+    /** Time attempt is due */
+    private long dueAt;
+
+    public CommandAttempt(String retryId, String destinationId, int attempt, long firstFailure, long dueAt) {
+	this.retryId = retryId;
+	this.destinationId = destinationId;
+	this.attempt = attempt;
+	this.firstFailure = firstFailure;
+	this.dueAt = dueAt;
+    }
+
+    /**
+     * Build record headers for an attempt.
+     *
+     * @param attempt
+     * @return
+     */
+    public static List<Header> toHeaders(ICommandAttempt attempt) {
+	List<Header> headers = new ArrayList<>();
+	headers.add(header(HEADER_RETRY_ID, attempt.getRetryId()));
+	headers.add(header(HEADER_DESTINATION_ID, attempt.getDestinationId()));
+	headers.add(header(HEADER_ATTEMPT, String.valueOf(attempt.getAttempt())));
+	headers.add(header(HEADER_FIRST_FAILURE, String.valueOf(attempt.getFirstFailure())));
+	headers.add(header(HEADER_DUE_AT, String.valueOf(attempt.getDueAt())));
+	return headers;
+    }
+
+    /**
+     * Read an attempt from record headers.
+     *
+     * @param headers
+     * @return attempt or null if headers are missing
+     */
+    public static CommandAttempt fromHeaders(Headers headers) {
+	String retryId = value(headers, HEADER_RETRY_ID);
+	String destinationId = value(headers, HEADER_DESTINATION_ID);
+	String attempt = value(headers, HEADER_ATTEMPT);
+	String firstFailure = value(headers, HEADER_FIRST_FAILURE);
+	String dueAt = value(headers, HEADER_DUE_AT);
+	if ((retryId == null) || (destinationId == null) || (attempt == null) || (firstFailure == null)
+		|| (dueAt == null)) {
+	    return null;
+	}
+	try {
+	    return new CommandAttempt(retryId, destinationId, Integer.parseInt(attempt), Long.parseLong(firstFailure),
+		    Long.parseLong(dueAt));
+	} catch (NumberFormatException e) {
+	    return null;
+	}
+    }
+
+    protected static Header header(String key, String value) {
+	return new RecordHeader(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static String value(Headers headers, String key) {
+	Header header = headers.lastHeader(key);
+	return (header != null) ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.ICommandAttempt#getRetryId()
+     */
+    @Override
+    public String getRetryId() {
+	return retryId;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.ICommandAttempt#getDestinationId()
+     */
+    @Override
+    public String getDestinationId() {
+	return destinationId;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.ICommandAttempt#getAttempt()
+     */
+    @Override
+    public int getAttempt() {
+	return attempt;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.ICommandAttempt#getFirstFailure()
+     */
+    @Override
+    public long getFirstFailure() {
+	return firstFailure;
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.ICommandAttempt#getDueAt()
+     */
+    @Override
+    public long getDueAt() {
+	return dueAt;
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.retry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Meter;
+import com.sitewhere.commands.spi.ICommandAttempt;
+import com.sitewhere.commands.spi.ICommandProcessingStrategy;
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.commands.spi.kafka.ICommandRetryProducer;
+import com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryTenantEngine;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.microservice.security.SystemUserRunnable;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
+
+/**
+ * Default {@link ICommandRetryManager} implementation. Each failed attempt
+ * moves an invocation to the next delay tier until the longest tier is
+ * reached. Invocations are abandoned to the undelivered command invocations
+ * topic once the next attempt would fall outside the maximum age.
+ *
+ * Invocations for devices reported as not present skip straight to the longest
+ * tier and are also parked in memory. When the device is reported as present
+ * again, parked invocations are retried at once and the copies waiting in the
+ * delay tier are skipped when they come due. Delivery is still attempted each
+ * time an invocation comes due in the longest tier, so invocations reach the
+ * maximum age and are abandoned if the device never returns. A device is
+ * treated as present again if it has not been reported as not present within
+ * an expiry period. Parked invocations are only held
+ * by the instance that parked them, so with several instances an invocation
+ * may occasionally be delivered twice.
+ *
+ * @author Derek
+ */
+public class CommandRetryManager extends TenantEngineLifecycleComponent implements ICommandRetryManager {
+
+    /** Default delays for each tier */
+    private static final List<Long> DEFAULT_TIER_DELAYS_MS = Arrays.asList(10 * 1000L, 60 * 1000L, 10 * 60 * 1000L);
+
+    /** Default maximum age of an invocation before retries are abandoned */
+    private static final long DEFAULT_MAX_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    /** Default maximum number of invocations parked in memory */
+    private static final int DEFAULT_MAX_PARKED = 10000;
+
+    /** Default maximum number of devices tracked as not present */
+    private static final int DEFAULT_MAX_NOT_PRESENT = 100000;
+
+    /** Default time after which a device reported not present is forgotten */
+    private static final long DEFAULT_NOT_PRESENT_EXPIRY_MS = 60 * 60 * 1000L;
+
+    /** Delays for each tier in increasing order */
+    private List<Long> tierDelaysMs = DEFAULT_TIER_DELAYS_MS;
+
+    /** Maximum age of an invocation before retries are abandoned */
+    private long maxAgeMs = DEFAULT_MAX_AGE_MS;
+
+    /** Maximum number of invocations parked in memory */
+    private int maxParked = DEFAULT_MAX_PARKED;
+
+    /** Maximum number of devices tracked as not present */
+    private int maxNotPresent = DEFAULT_MAX_NOT_PRESENT;
+
+    /** Time after which a device reported not present is forgotten */
+    private long notPresentExpiryMs = DEFAULT_NOT_PRESENT_EXPIRY_MS;
+
+    /** Devices reported as not present with time reported */
+    private Map<UUID, Long> notPresent = new ConcurrentHashMap<>();
+
+    /** Parked invocations by device id and retry id */
+    private Map<UUID, Map<String, Parked>> parked = new ConcurrentHashMap<>();
+
+    /** Number of parked invocations */
+    private AtomicInteger parkedCount = new AtomicInteger();
+
+    /** Retry ids released early with time released */
+    private Map<String, Long> released = new ConcurrentHashMap<>();
+
+    /** Executor for retrying released invocations */
+    private ExecutorService releaseExecutor;
+
+    /** Meter for scheduled retries */
+    private Meter scheduledRetries;
+
+    /** Meter for abandoned retries */
+    private Meter abandonedRetries;
+
+    /** Meter for parked invocations */
+    private Meter parkedCommands;
+
+    /** Meter for released invocations */
+    private Meter releasedCommands;
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#initialize(com.sitewhere.
+     * spi.server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.initialize(monitor);
+	if ((getTierDelaysMs() == null) || getTierDelaysMs().isEmpty()) {
+	    throw new SiteWhereException("At least one command retry tier must be configured.");
+	}
+	this.scheduledRetries = createMeterMetric("commandRetriesScheduled");
+	this.abandonedRetries = createMeterMetric("commandRetriesAbandoned");
+	this.parkedCommands = createMeterMetric("commandsParked");
+	this.releasedCommands = createMeterMetric("commandsReleased");
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#start(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.releaseExecutor = Executors.newSingleThreadExecutor(new ReleaseThreadFactory());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (releaseExecutor != null) {
+	    releaseExecutor.shutdownNow();
+	}
+	notPresent.clear();
+	parked.clear();
+	parkedCount.set(0);
+	released.clear();
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.ICommandRetryManager#getTierNames()
+     */
+    @Override
+    public List<String> getTierNames() {
+	List<String> names = new ArrayList<>();
+	for (Long delay : getTierDelaysMs()) {
+	    names.add(getTierName(delay));
+	}
+	return names;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.ICommandRetryManager#schedule(com.sitewhere.spi.
+     * device.event.IDeviceEventContext,
+     * com.sitewhere.spi.device.event.IDeviceCommandInvocation, java.lang.String,
+     * com.sitewhere.commands.spi.ICommandAttempt)
+     */
+    @Override
+    public void schedule(IDeviceEventContext context, IDeviceCommandInvocation invocation, String destinationId,
+	    ICommandAttempt previous) throws SiteWhereException {
+	long now = System.currentTimeMillis();
+	String retryId = (previous != null) ? previous.getRetryId() : UUID.randomUUID().toString();
+	int attempt = (previous != null) ? previous.getAttempt() + 1 : 1;
+	long firstFailure = (previous != null) ? previous.getFirstFailure() : now;
+
+	// Devices known not to be present skip straight to the longest delay.
+	boolean absent = getNotPresentSince(context.getDeviceId(), now) != null;
+	int last = getTierDelaysMs().size() - 1;
+	int tier = absent ? last : Math.min(attempt - 1, last);
+	long dueAt = now + getTierDelaysMs().get(tier);
+
+	EnrichedEventPayload payload = new EnrichedEventPayload();
+	payload.setEventContext(context);
+	payload.setEvent(invocation);
+	byte[] message = EventModelMarshaler.buildEnrichedEventPayloadMessage(payload);
+	String key = context.getDeviceId().toString();
+
+	if ((dueAt - firstFailure) > getMaxAgeMs()) {
+	    getUndeliveredCommandInvocationsProducer().send(key, message);
+	    getAbandonedRetries().mark();
+	    getLogger().warn("Abandoned command delivery to destination '" + destinationId + "' after " + attempt
+		    + " attempts. Pushed command to undeliverable topic.");
+	    return;
+	}
+	CommandAttempt next = new CommandAttempt(retryId, destinationId, attempt, firstFailure, dueAt);
+	getCommandRetryProducer().send(getTierName(getTierDelaysMs().get(tier)), key, message, next);
+	getScheduledRetries().mark();
+	if (absent) {
+	    park(context, invocation, next);
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.ICommandRetryManager#retry(com.sitewhere.spi.
+     * device.event.IDeviceEventContext,
+     * com.sitewhere.spi.device.event.IDeviceCommandInvocation,
+     * com.sitewhere.commands.spi.ICommandAttempt)
+     */
+    @Override
+    public void retry(IDeviceEventContext context, IDeviceCommandInvocation invocation, ICommandAttempt attempt)
+	    throws SiteWhereException {
+	// Already retried when device was reported present.
+	if (released.remove(attempt.getRetryId()) != null) {
+	    return;
+	}
+	// Device not present, so move to the longest tier without attempting
+	// delivery unless the attempt already waited there.
+	Long since = getNotPresentSince(context.getDeviceId(), System.currentTimeMillis());
+	if ((since != null) && !isFromLongestTier(attempt, since)) {
+	    schedule(context, invocation, attempt.getDestinationId(), attempt);
+	    return;
+	}
+	unpark(context.getDeviceId(), attempt.getRetryId());
+	getCommandProcessingStrategy().retryCommand(context, invocation, attempt);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.ICommandRetryManager#deviceNotPresent(java.util.
+     * UUID)
+     */
+    @Override
+    public void deviceNotPresent(UUID deviceId) {
+	long now = System.currentTimeMillis();
+	if ((notPresent.size() >= getMaxNotPresent()) && !notPresent.containsKey(deviceId)) {
+	    purgeNotPresent(now);
+	}
+	if ((notPresent.size() < getMaxNotPresent()) || notPresent.containsKey(deviceId)) {
+	    notPresent.put(deviceId, now);
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.ICommandRetryManager#devicePresent(java.util.UUID)
+     */
+    @Override
+    public void devicePresent(UUID deviceId) {
+	notPresent.remove(deviceId);
+	Map<String, Parked> commands = parked.remove(deviceId);
+	if (commands == null) {
+	    return;
+	}
+	parkedCount.addAndGet(-commands.size());
+	long now = System.currentTimeMillis();
+	purgeReleased(now);
+	for (Parked command : commands.values()) {
+	    ICommandAttempt attempt = command.getAttempt();
+	    released.put(attempt.getRetryId(), now);
+
+	    // Use a new retry id so further failures are not skipped.
+	    CommandAttempt early = new CommandAttempt(UUID.randomUUID().toString(), attempt.getDestinationId(),
+		    attempt.getAttempt(), attempt.getFirstFailure(), now);
+	    releaseExecutor.execute(new ReleaseProcessor(command.getContext(), command.getInvocation(), early));
+	}
+	getReleasedCommands().mark(commands.size());
+	getLogger().debug("Released " + commands.size() + " parked commands for device " + deviceId + ".");
+    }
+
+    /**
+     * Get time a device was reported as not present. Returns null if the device
+     * is not known to be absent or the report has expired.
+     *
+     * @param deviceId
+     * @param now
+     * @return
+     */
+    protected Long getNotPresentSince(UUID deviceId, long now) {
+	Long since = notPresent.get(deviceId);
+	if ((since != null) && ((now - since) > getNotPresentExpiryMs())) {
+	    if (notPresent.remove(deviceId, since)) {
+		unpark(deviceId, null);
+	    }
+	    return null;
+	}
+	return since;
+    }
+
+    /**
+     * Indicates whether an attempt came due in the longest tier. Attempts are
+     * written to the longest tier once earlier tiers are used up or if the device
+     * was already reported as not present when the attempt was scheduled.
+     *
+     * @param attempt
+     * @param notPresentSince
+     * @return
+     */
+    protected boolean isFromLongestTier(ICommandAttempt attempt, long notPresentSince) {
+	int tiers = getTierDelaysMs().size();
+	if (attempt.getAttempt() >= tiers) {
+	    return true;
+	}
+	return notPresentSince <= (attempt.getDueAt() - getTierDelaysMs().get(tiers - 1));
+    }
+
+    /**
+     * Remove devices whose not present reports have expired.
+     *
+     * @param now
+     */
+    protected void purgeNotPresent(long now) {
+	for (Iterator<Map.Entry<UUID, Long>> it = notPresent.entrySet().iterator(); it.hasNext();) {
+	    Map.Entry<UUID, Long> entry = it.next();
+	    if ((now - entry.getValue()) > getNotPresentExpiryMs()) {
+		it.remove();
+		unpark(entry.getKey(), null);
+	    }
+	}
+    }
+
+    /**
+     * Park an invocation in memory until the device is reported present. The
+     * invocation is still waiting in the longest delay tier, so nothing is lost
+     * if the parked copy is not kept.
+     *
+     * @param context
+     * @param invocation
+     * @param attempt
+     */
+    protected void park(IDeviceEventContext context, IDeviceCommandInvocation invocation, ICommandAttempt attempt) {
+	if (parkedCount.get() >= getMaxParked()) {
+	    return;
+	}
+	Map<String, Parked> commands = parked.computeIfAbsent(context.getDeviceId(), id -> new ConcurrentHashMap<>());
+	if (commands.put(attempt.getRetryId(), new Parked(context, invocation, attempt)) == null) {
+	    parkedCount.incrementAndGet();
+	    getParkedCommands().mark();
+	}
+    }
+
+    /**
+     * Discard parked copies of invocations for a device. The invocations are
+     * still waiting in the longest delay tier.
+     *
+     * @param deviceId
+     * @param retryId
+     *            retry id to discard or null for all invocations
+     */
+    protected void unpark(UUID deviceId, String retryId) {
+	Map<String, Parked> commands = parked.get(deviceId);
+	if (commands == null) {
+	    return;
+	}
+	if (retryId == null) {
+	    if (parked.remove(deviceId, commands)) {
+		parkedCount.addAndGet(-commands.size());
+	    }
+	} else if (commands.remove(retryId) != null) {
+	    parkedCount.decrementAndGet();
+	}
+    }
+
+    /**
+     * Remove released retry ids whose records can no longer be waiting.
+     *
+     * @param now
+     */
+    protected void purgeReleased(long now) {
+	for (Iterator<Map.Entry<String, Long>> it = released.entrySet().iterator(); it.hasNext();) {
+	    if ((now - it.next().getValue()) > getMaxAgeMs()) {
+		it.remove();
+	    }
+	}
+    }
+
+    /**
+     * Get name of tier for a delay.
+     *
+     * @param delayMs
+     * @return
+     */
+    protected static String getTierName(long delayMs) {
+	if ((delayMs % (60 * 60 * 1000)) == 0) {
+	    return (delayMs / (60 * 60 * 1000)) + "h";
+	} else if ((delayMs % (60 * 1000)) == 0) {
+	    return (delayMs / (60 * 1000)) + "m";
+	} else if ((delayMs % 1000) == 0) {
+	    return (delayMs / 1000) + "s";
+	}
+	return delayMs + "ms";
+    }
+
+    protected ICommandProcessingStrategy getCommandProcessingStrategy() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandProcessingStrategy();
+    }
+
+    protected ICommandRetryProducer getCommandRetryProducer() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getCommandRetryProducer();
+    }
+
+    protected IUndeliveredCommandInvocationsProducer getUndeliveredCommandInvocationsProducer() {
+	return ((ICommandDeliveryTenantEngine) getTenantEngine()).getUndeliveredCommandInvocationsProducer();
+    }
+
+    protected Meter getScheduledRetries() {
+	return scheduledRetries;
+    }
+
+    protected Meter getAbandonedRetries() {
+	return abandonedRetries;
+    }
+
+    protected Meter getParkedCommands() {
+	return parkedCommands;
+    }
+
+    protected Meter getReleasedCommands() {
+	return releasedCommands;
+    }
+
+    public List<Long> getTierDelaysMs() {
+	return tierDelaysMs;
+    }
+
+    public void setTierDelaysMs(List<Long> tierDelaysMs) {
+	this.tierDelaysMs = tierDelaysMs;
+    }
+
+    public long getMaxAgeMs() {
+	return maxAgeMs;
+    }
+
+    public void setMaxAgeMs(long maxAgeMs) {
+	this.maxAgeMs = maxAgeMs;
+    }
+
+    public int getMaxParked() {
+	return maxParked;
+    }
+
+    public void setMaxParked(int maxParked) {
+	this.maxParked = maxParked;
+    }
+
+    public int getMaxNotPresent() {
+	return maxNotPresent;
+    }
+
+    public void setMaxNotPresent(int maxNotPresent) {
+	this.maxNotPresent = maxNotPresent;
+    }
+
+    public long getNotPresentExpiryMs() {
+	return notPresentExpiryMs;
+    }
+
+    public void setNotPresentExpiryMs(long notPresentExpiryMs) {
+	this.notPresentExpiryMs = notPresentExpiryMs;
+    }
+
+    /**
+     * Retries an invocation released for a device reported present.
+     */
+    protected class ReleaseProcessor extends SystemUserRunnable {
+
+	/** Event context */
+	private IDeviceEventContext context;
+
+	/** Command invocation */
+	private IDeviceCommandInvocation invocation;
+
+	/** Attempt metadata */
+	private ICommandAttempt attempt;
+
+	public ReleaseProcessor(IDeviceEventContext context, IDeviceCommandInvocation invocation,
+		ICommandAttempt attempt) {
+	    super(getTenantEngine().getMicroservice(), getTenantEngine().getTenant());
+	    this.context = context;
+	    this.invocation = invocation;
+	    this.attempt = attempt;
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#
+	 * runAsSystemUser()
+	 */
+	@Override
+	public void runAsSystemUser() throws SiteWhereException {
+	    try {
+		getCommandProcessingStrategy().retryCommand(context, invocation, attempt);
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to retry released command invocation.", e);
+	    } catch (Throwable e) {
+		getLogger().error("Unhandled exception retrying released command invocation.", e);
+	    }
+	}
+    }
+
+    /**
+     * Invocation parked for a device that is not present.
+     */
+    private static class Parked {
+
+	/** Event context */
+	private final IDeviceEventContext context;
+
+	/** Command invocation */
+	private final IDeviceCommandInvocation invocation;
+
+	/** Attempt metadata */
+	private final ICommandAttempt attempt;
+
+	public Parked(IDeviceEventContext context, IDeviceCommandInvocation invocation, ICommandAttempt attempt) {
+	    this.context = context;
+	    this.invocation = invocation;
+	    this.attempt = attempt;
+	}
+
+	public IDeviceEventContext getContext() {
+	    return context;
+	}
+
+	public IDeviceCommandInvocation getInvocation() {
+	    return invocation;
+	}
+
+	public ICommandAttempt getAttempt() {
+	    return attempt;
+	}
+    }
+
+    /** Used for naming release threads */
+    private class ReleaseThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "Command Retry Release " + counter.incrementAndGet());
+	}
+    }
+}
@@ -9,11 +9,10 @@ package com.sitewhere.commands.routing;
 
 import java.util.List;
 
+import com.sitewhere.commands.spi.ICommandAttempt;
 import com.sitewhere.commands.spi.ICommandDestination;
+import com.sitewhere.commands.spi.ICommandRetryManager;
 import com.sitewhere.commands.spi.IOutboundCommandRouter;
-import com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer;
-import com.sitewhere.grpc.client.event.EventModelMarshaler;
-import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.IDeviceNestingContext;
@@ -25,42 +24,76 @@ import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
 public class CommandRoutingLogic {
 
     /**
-     * Route a command using the given router.
+     * Route a command using the given router. Delivery is retried after a delay
+     * for each destination that is unavailable or fails.
      * 
      * @param router
-     * @param undelivered
+     * @param retries
      * @param eventContext
      * @param execution
      * @param nesting
      * @param assignment
      * @throws SiteWhereException
      */
-    public static void routeCommand(IOutboundCommandRouter router, IUndeliveredCommandInvocationsProducer undelivered,
+    public static void routeCommand(IOutboundCommandRouter router, ICommandRetryManager retries,
 	    IDeviceEventContext eventContext, IDeviceCommandExecution execution, IDeviceNestingContext nesting,
 	    IDeviceAssignment assignment) throws SiteWhereException {
 	List<ICommandDestination<?, ?>> destinations = router.getDestinationsFor(execution, nesting, assignment);
-	boolean deliveredToAll = true;
 	for (ICommandDestination<?, ?> destination : destinations) {
-	    if (destination.getLifecycleStatus() == LifecycleStatus.Started) {
-		try {
-		    deliverCommand(destination, execution, nesting, assignment);
-		} catch (SiteWhereException e) {
-		    router.getLogger().error("Unable to deliver command to destination.", e);
-		    deliveredToAll = false;
-		}
-	    } else {
-		deliveredToAll = false;
-	    }
+	    attemptDelivery(destination, retries, eventContext, execution, nesting, assignment, null);
 	}
-	// If any command destination was not available, add to undelivered topic.
-	if (!deliveredToAll) {
-	    EnrichedEventPayload payload = new EnrichedEventPayload();
-	    payload.setEventContext(eventContext);
-	    payload.setEvent(execution.getInvocation());
-	    byte[] message = EventModelMarshaler.buildEnrichedEventPayloadMessage(payload);
-	    undelivered.send(eventContext.getDeviceId().toString(), message);
-	    router.getLogger().warn("Due to delivery failure, pushed command to undeliverable topic.");
+    }
+
+    /**
+     * Retry delivery of a command to a destination it previously failed for.
+     * 
+     * @param destination
+     * @param retries
+     * @param eventContext
+     * @param execution
+     * @param nesting
+     * @param assignment
+     * @param attempt
+     * @throws SiteWhereException
+     */
+    public static void retryCommand(ICommandDestination<?, ?> destination, ICommandRetryManager retries,
+	    IDeviceEventContext eventContext, IDeviceCommandExecution execution, IDeviceNestingContext nesting,
+	    IDeviceAssignment assignment, ICommandAttempt attempt) throws SiteWhereException {
+	attemptDelivery(destination, retries, eventContext, execution, nesting, assignment, attempt);
+    }
+
+    /**
+     * Deliver a command to a destination, scheduling a delayed retry if the
+     * destination is unavailable or delivery fails. Providers that complete
+     * delivery asynchronously report later failures through the
+     * {@link DeliveryFailureHandler} for the attempt.
+     * 
+     * @param destination
+     * @param retries
+     * @param eventContext
+     * @param execution
+     * @param nesting
+     * @param assignment
+     * @param previous
+     * @throws SiteWhereException
+     */
+    protected static void attemptDelivery(ICommandDestination<?, ?> destination, ICommandRetryManager retries,
+	    IDeviceEventContext eventContext, IDeviceCommandExecution execution, IDeviceNestingContext nesting,
+	    IDeviceAssignment assignment, ICommandAttempt previous) throws SiteWhereException {
+	if (destination.getLifecycleStatus() == LifecycleStatus.Started) {
+	    DeliveryFailureHandler.setCurrent(
+		    new DeliveryFailureHandler(destination, retries, eventContext, execution.getInvocation(), previous));
+	    try {
+		deliverCommand(destination, execution, nesting, assignment);
+		return;
+	    } catch (SiteWhereException e) {
+		destination.getLogger().error("Unable to deliver command to destination.", e);
+	    } finally {
+		DeliveryFailureHandler.setCurrent(null);
+	    }
 	}
+	retries.schedule(eventContext, execution.getInvocation(), destination.getDestinationId(), previous);
+	destination.getLogger().warn("Due to delivery failure, scheduled command for retry.");
     }
 
     /**
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.routing;
+
+import com.sitewhere.commands.spi.ICommandAttempt;
+import com.sitewhere.commands.spi.ICommandDestination;
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+
+/**
+ * Schedules a retry for a command whose delivery fails after the delivery
+ * provider has returned, such as a publish that the broker later rejects. A
+ * handler for the delivery in progress is available to the provider on the
+ * calling thread while {@link CommandRoutingLogic} delivers a command, so
+ * providers that complete asynchronously can capture it.
+ * 
+ * @author Derek
+ */
+public class DeliveryFailureHandler {
+
+    /** Handler for delivery in progress on the current thread */
+    private static final ThreadLocal<DeliveryFailureHandler> CURRENT = new ThreadLocal<>();
+
+    /** Destination command is delivered to */
+    private final ICommandDestination<?, ?> destination;
+
+    /** Schedules retries */
+    private final ICommandRetryManager retries;
+
+    /** Event context for invocation */
+    private final IDeviceEventContext eventContext;
+
+    /** Command invocation */
+    private final IDeviceCommandInvocation invocation;
+
+    /** Previous attempt or null for first delivery */
+    private final ICommandAttempt previous;
+
+    public DeliveryFailureHandler(ICommandDestination<?, ?> destination, ICommandRetryManager retries,
+	    IDeviceEventContext eventContext, IDeviceCommandInvocation invocation, ICommandAttempt previous) {
+	this.destination = destination;
+	this.retries = retries;
+	this.eventContext = eventContext;
+	this.invocation = invocation;
+	this.previous = previous;
+    }
+
+    /**
+     * Get handler for the delivery in progress on the current thread.
+     * 
+     * @return handler or null if no command delivery is in progress
+     */
+    public static DeliveryFailureHandler current() {
+	return CURRENT.get();
+    }
+
+    /**
+     * Set handler for the delivery in progress on the current thread.
+     * 
+     * @param handler
+     */
+    protected static void setCurrent(DeliveryFailureHandler handler) {
+	if (handler != null) {
+	    CURRENT.set(handler);
+	} else {
+	    CURRENT.remove();
+	}
+    }
+
+    /**
+     * Called when delivery fails. Schedules a delayed retry, which abandons the
+     * command to the undelivered command invocations topic once it is too old.
+     * 
+     * @param cause
+     */
+    public void failed(Throwable cause) {
+	destination.getLogger().error("Delivery of command to destination failed.", cause);
+	try {
+	    retries.schedule(eventContext, invocation, destination.getDestinationId(), previous);
+	    destination.getLogger().warn("Due to delivery failure, scheduled command for retry.");
+	} catch (SiteWhereException e) {
+	    destination.getLogger().error("Unable to schedule retry for failed command delivery.", e);
+	}
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi;
+
+/**
+ * Metadata carried with a command invocation that is waiting to be retried for
+ * a command destination.
+ *
+ * @author Derek
+ */
+public interface ICommandAttempt {
+
+    /**
+     * Get unique id shared by all attempts to deliver the invocation to the
+     * destination.
+     *
+     * @return
+     */
+    public String getRetryId();
+
+    /**
+     * Get id of command destination delivery failed for.
+     *
+     * @return
+     */
+    public String getDestinationId();
+
+    /**
+     * Get number of failed delivery attempts so far.
+     *
+     * @return
+     */
+    public int getAttempt();
+
+    /**
+     * Get time (in ms) of first failed delivery attempt.
+     *
+     * @return
+     */
+    public long getFirstFailure();
+
+    /**
+     * Get time (in ms) at which the next attempt is due.
+     *
+     * @return
+     */
+    public long getDueAt();
+}
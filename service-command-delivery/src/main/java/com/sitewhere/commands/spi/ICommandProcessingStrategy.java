@@ -37,6 +37,18 @@ public interface ICommandProcessingStrategy extends ITenantEngineLifecycleCompon
     public void deliverCommand(IDeviceEventContext eventContext, IDeviceCommandInvocation invocation)
 	    throws SiteWhereException;
 
+    /**
+     * Retry delivery of a command invocation to the destination it previously
+     * failed for.
+     * 
+     * @param eventContext
+     * @param invocation
+     * @param attempt
+     * @throws SiteWhereException
+     */
+    public void retryCommand(IDeviceEventContext eventContext, IDeviceCommandInvocation invocation,
+	    ICommandAttempt attempt) throws SiteWhereException;
+
     /**
      * Deliver a system command.
      * 
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+import com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Schedules delayed retries for command invocations that could not be delivered
+ * to a command destination. Retries are written to a series of delay tiers
+ * with increasing delays so that no thread is held while waiting, and are
+ * abandoned once older than a maximum age. Commands for devices known not to
+ * be present are parked until presence is detected.
+ *
+ * @author Derek
+ */
+public interface ICommandRetryManager extends ITenantEngineLifecycleComponent {
+
+    /**
+     * Get names of delay tiers in order of increasing delay.
+     *
+     * @return
+     */
+    public List<String> getTierNames();
+
+    /**
+     * Schedule a delayed attempt to deliver an invocation to a destination.
+     *
+     * @param context
+     * @param invocation
+     * @param destinationId
+     * @param previous
+     *            previous attempt or null if first delivery failed
+     * @throws SiteWhereException
+     */
+    public void schedule(IDeviceEventContext context, IDeviceCommandInvocation invocation, String destinationId,
+	    ICommandAttempt previous) throws SiteWhereException;
+
+    /**
+     * Called when a scheduled attempt is due.
+     *
+     * @param context
+     * @param invocation
+     * @param attempt
+     * @throws SiteWhereException
+     */
+    public void retry(IDeviceEventContext context, IDeviceCommandInvocation invocation, ICommandAttempt attempt)
+	    throws SiteWhereException;
+
+    /**
+     * Called when a device is reported as not present.
+     *
+     * @param deviceId
+     */
+    public void deviceNotPresent(UUID deviceId);
+
+    /**
+     * Called when a device is reported as present. Commands parked for the device
+     * are retried immediately.
+     *
+     * @param deviceId
+     */
+    public void devicePresent(UUID deviceId);
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceNestingContext;
+import com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Caches the gateway topology used to address nested devices. The cache holds
+ * the gateway devices that nested devices are mapped under along with the
+ * children resolved for each gateway (parent to children) and the gateway and
+ * mapping path for each nested device (child to parent), so that commands can
+ * be routed without looking up the gateway for every target.
+ *
+ * @author Derek
+ */
+public interface IGatewayTopologyCache extends ITenantEngineLifecycleComponent {
+
+    /**
+     * Get nesting information for a list of target devices. Gateways that are not
+     * cached are loaded with a single lookup for the whole list.
+     *
+     * @param devices
+     * @return nesting information indexed by device id
+     * @throws SiteWhereException
+     */
+    public Map<UUID, IDeviceNestingContext> getNestingContexts(List<IDevice> devices) throws SiteWhereException;
+
+    /**
+     * Get ids of nested devices currently cached for a gateway.
+     *
+     * @param gatewayId
+     * @return
+     */
+    public Set<UUID> getChildren(UUID gatewayId);
+
+    /**
+     * Remove cached topology for a device that has been updated. If the device is
+     * a gateway, entries for its children are removed as well. If the device is
+     * nested, the entry for its gateway is removed since the mapping may have
+     * changed.
+     *
+     * @param deviceId
+     */
+    public void invalidate(UUID deviceId);
+
+    /**
+     * Remove all cached topology.
+     */
+    public void clear();
+}
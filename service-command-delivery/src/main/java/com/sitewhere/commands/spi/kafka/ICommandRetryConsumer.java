@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi.kafka;
+
+import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer;
+
+/**
+ * Kafka consumer that reads command invocations from the delay tier topics and
+ * hands them back for delivery once they are due.
+ *
+ * @author Derek
+ */
+public interface ICommandRetryConsumer extends IMicroserviceKafkaConsumer {
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi.kafka;
+
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import com.sitewhere.commands.spi.ICommandAttempt;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
+
+/**
+ * Kafka producer that writes command invocations waiting to be retried to the
+ * topic for a delay tier.
+ *
+ * @author Derek
+ */
+public interface ICommandRetryProducer extends IMicroserviceKafkaProducer {
+
+    /**
+     * Send an invocation to the topic for a delay tier with attempt metadata.
+     *
+     * @param tier
+     * @param key
+     * @param message
+     * @param attempt
+     * @return
+     * @throws SiteWhereException
+     */
+    public Future<RecordMetadata> send(String tier, String key, byte[] message, ICommandAttempt attempt)
+	    throws SiteWhereException;
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi.kafka;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDeviceNestingContext;
+import com.sitewhere.spi.device.command.IDeviceCommandExecution;
+import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
+
+/**
+ * Kafka producer that reports the outcome of command deliveries as command
+ * response events so that they are processed like responses sent by devices.
+ * 
+ * @author Derek
+ */
+public interface IDeliveryReceiptsProducer extends IMicroserviceKafkaProducer {
+
+    /** Response recorded when a command is accepted by the transport */
+    public static final String RESPONSE_DELIVERED = "delivered";
+
+    /** Response recorded when a command could not be delivered */
+    public static final String RESPONSE_DELIVERY_FAILED = "delivery-failed";
+
+    /**
+     * Send a receipt for a command delivered to the device addressed by the
+     * nesting context.
+     * 
+     * @param nesting
+     * @param execution
+     * @param response
+     * @throws SiteWhereException
+     */
+    public void sendReceipt(IDeviceNestingContext nesting, IDeviceCommandExecution execution, String response)
+	    throws SiteWhereException;
+}
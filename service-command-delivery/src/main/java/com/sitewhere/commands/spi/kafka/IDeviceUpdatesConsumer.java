@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.spi.kafka;
+
+import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer;
+
+/**
+ * Kafka consumer that watches enriched events for device registration updates
+ * and invalidates cached gateway topology for the affected devices. Presence
+ * updates are passed to the command retry manager so that commands for devices
+ * that are not present can be parked.
+ * 
+ * @author Derek
+ */
+public interface IDeviceUpdatesConsumer extends IMicroserviceKafkaConsumer {
+}
@@ -9,7 +9,13 @@ package com.sitewhere.commands.spi.microservice;
 
 import com.sitewhere.commands.spi.ICommandDestinationsManager;
 import com.sitewhere.commands.spi.ICommandProcessingStrategy;
+import com.sitewhere.commands.spi.ICommandRetryManager;
+import com.sitewhere.commands.spi.IGatewayTopologyCache;
 import com.sitewhere.commands.spi.IOutboundCommandRouter;
+import com.sitewhere.commands.spi.kafka.ICommandRetryConsumer;
+import com.sitewhere.commands.spi.kafka.ICommandRetryProducer;
+import com.sitewhere.commands.spi.kafka.IDeliveryReceiptsProducer;
+import com.sitewhere.commands.spi.kafka.IDeviceUpdatesConsumer;
 import com.sitewhere.commands.spi.kafka.IEnrichedCommandInvocationsConsumer;
 import com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
@@ -56,4 +62,46 @@ public interface ICommandDeliveryTenantEngine extends IMicroserviceTenantEngine
      * @return
      */
     public IUndeliveredCommandInvocationsProducer getUndeliveredCommandInvocationsProducer();
+
+    /**
+     * Get Kafka producer for command delivery receipts.
+     * 
+     * @return
+     */
+    public IDeliveryReceiptsProducer getDeliveryReceiptsProducer();
+
+    /**
+     * Get cache of gateway topology used to address nested devices.
+     * 
+     * @return
+     */
+    public IGatewayTopologyCache getGatewayTopologyCache();
+
+    /**
+     * Get Kafka consumer that invalidates gateway topology on device updates.
+     * 
+     * @return
+     */
+    public IDeviceUpdatesConsumer getDeviceUpdatesConsumer();
+
+    /**
+     * Get manager that schedules delayed retries for undelivered commands.
+     * 
+     * @return
+     */
+    public ICommandRetryManager getCommandRetryManager();
+
+    /**
+     * Get Kafka producer for commands waiting to be retried.
+     * 
+     * @return
+     */
+    public ICommandRetryProducer getCommandRetryProducer();
+
+    /**
+     * Get Kafka consumer for commands waiting to be retried.
+     * 
+     * @return
+     */
+    public ICommandRetryConsumer getCommandRetryConsumer();
 }
\ No newline at end of file
@@ -239,6 +239,14 @@ public class CommandDeliveryParser extends AbstractBeanDefinitionParser {
 	    mqtt.addPropertyValue("keyStorePassword", trustStorePassword.getValue());
 	}
 
+	// Parse publishing settings.
+	for (String name : new String[] { "numConnections", "maxInFlight", "maxPublishRate", "deliveryReceipts" }) {
+	    Attr attr = element.getAttributeNode(name);
+	    if (attr != null) {
+		mqtt.addPropertyValue(name, attr.getValue());
+	    }
+	}
+
 	return mqtt.getBeanDefinition();
     }
 
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sitewhere.commands.NestedDeviceSupport;
+import com.sitewhere.commands.NestedDeviceSupport.NestedDeviceInformation;
+import com.sitewhere.commands.spi.IGatewayTopologyCache;
+import com.sitewhere.commands.spi.microservice.ICommandDeliveryMicroservice;
+import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
+import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceNestingContext;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
+
+/**
+ * Default {@link IGatewayTopologyCache} implementation. Gateways are cached by
+ * id along with the ids of children resolved against them, and each nested
+ * device is cached with its gateway id and mapping path. Entries are removed
+ * when a device update is reported and are otherwise treated as stale once
+ * older than the maximum age, which bounds how long changes to element
+ * mappings (which are not reported as device updates) take to be picked up.
+ *
+ * @author Derek
+ */
+public class GatewayTopologyCache extends TenantEngineLifecycleComponent implements IGatewayTopologyCache {
+
+    /** Default maximum age of entries */
+    private static final long DEFAULT_MAX_AGE_MS = 5 * 60 * 1000;
+
+    /** Default maximum number of gateways cached */
+    private static final int DEFAULT_MAX_GATEWAYS = 10000;
+
+    /** Maximum age of entries */
+    private long maxAgeMs = DEFAULT_MAX_AGE_MS;
+
+    /** Maximum number of gateways cached */
+    private int maxGateways = DEFAULT_MAX_GATEWAYS;
+
+    /** Gateways by device id */
+    private Map<UUID, Gateway> gateways = new ConcurrentHashMap<>();
+
+    /** Nested devices by device id */
+    private Map<UUID, Child> children = new ConcurrentHashMap<>();
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	clear();
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.IGatewayTopologyCache#getNestingContexts(java.util
+     * .List)
+     */
+    @Override
+    public Map<UUID, IDeviceNestingContext> getNestingContexts(List<IDevice> devices) throws SiteWhereException {
+	Map<UUID, IDeviceNestingContext> results = new HashMap<>();
+	List<IDevice> unresolved = new ArrayList<>();
+	long now = System.currentTimeMillis();
+	for (IDevice device : devices) {
+	    if (device.getParentDeviceId() == null) {
+		NestedDeviceInformation nesting = new NestedDeviceInformation();
+		nesting.setGateway(device);
+		results.put(device.getId(), nesting);
+		continue;
+	    }
+	    IDeviceNestingContext nesting = lookup(device, now);
+	    if (nesting != null) {
+		results.put(device.getId(), nesting);
+	    } else {
+		unresolved.add(device);
+	    }
+	}
+	if (unresolved.isEmpty()) {
+	    return results;
+	}
+
+	// Load all missing gateways with a single lookup.
+	Set<UUID> missing = new LinkedHashSet<>();
+	for (IDevice device : unresolved) {
+	    Gateway gateway = gateways.get(device.getParentDeviceId());
+	    if ((gateway == null) || isStale(gateway.getLoadedAt(), now)) {
+		missing.add(device.getParentDeviceId());
+	    }
+	}
+	if (!missing.isEmpty()) {
+	    if (gateways.size() + missing.size() > getMaxGateways()) {
+		purge(now);
+	    }
+	    for (IDevice parent : getDeviceManagementApiChannel().getDevicesByIds(new ArrayList<>(missing))) {
+		gateways.put(parent.getId(), new Gateway(parent, now));
+	    }
+	}
+
+	for (IDevice device : unresolved) {
+	    Gateway gateway = gateways.get(device.getParentDeviceId());
+	    if (gateway == null) {
+		throw new SiteWhereException("Parent device reference points to device that does not exist.");
+	    }
+	    NestedDeviceInformation nesting = NestedDeviceSupport.calculateNestedDeviceInformation(device,
+		    gateway.getDevice());
+	    children.put(device.getId(), new Child(gateway.getDevice().getId(), nesting.getPath(), now));
+	    gateway.getChildren().add(device.getId());
+	    results.put(device.getId(), nesting);
+	}
+	return results;
+    }
+
+    /**
+     * Build nesting information for a device from cached entries. Returns null
+     * if the device or its gateway is not cached, if either entry is stale or if
+     * the device now references a different gateway.
+     *
+     * @param device
+     * @param now
+     * @return
+     */
+    protected IDeviceNestingContext lookup(IDevice device, long now) {
+	Child child = children.get(device.getId());
+	if ((child == null) || isStale(child.getLoadedAt(), now)
+		|| !child.getGatewayId().equals(device.getParentDeviceId())) {
+	    return null;
+	}
+	Gateway gateway = gateways.get(child.getGatewayId());
+	if ((gateway == null) || isStale(gateway.getLoadedAt(), now)) {
+	    return null;
+	}
+	NestedDeviceInformation nesting = new NestedDeviceInformation();
+	if (child.getPath() == null) {
+	    nesting.setGateway(device);
+	} else {
+	    nesting.setGateway(gateway.getDevice());
+	    nesting.setNested(device);
+	    nesting.setPath(child.getPath());
+	}
+	return nesting;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.IGatewayTopologyCache#getChildren(java.util.UUID)
+     */
+    @Override
+    public Set<UUID> getChildren(UUID gatewayId) {
+	Gateway gateway = gateways.get(gatewayId);
+	if (gateway == null) {
+	    return Collections.emptySet();
+	}
+	return Collections.unmodifiableSet(gateway.getChildren());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.commands.spi.IGatewayTopologyCache#invalidate(java.util.UUID)
+     */
+    @Override
+    public void invalidate(UUID deviceId) {
+	if (deviceId == null) {
+	    return;
+	}
+	removeGateway(deviceId);
+	Child child = children.remove(deviceId);
+	if (child != null) {
+	    removeGateway(child.getGatewayId());
+	}
+    }
+
+    /*
+     * @see com.sitewhere.commands.spi.IGatewayTopologyCache#clear()
+     */
+    @Override
+    public void clear() {
+	gateways.clear();
+	children.clear();
+    }
+
+    /**
+     * Remove a gateway along with entries for its children.
+     *
+     * @param gatewayId
+     */
+    protected void removeGateway(UUID gatewayId) {
+	Gateway gateway = gateways.remove(gatewayId);
+	if (gateway != null) {
+	    for (UUID childId : gateway.getChildren()) {
+		children.remove(childId);
+	    }
+	}
+    }
+
+    /**
+     * Remove stale gateways, clearing the cache if it is still full.
+     *
+     * @param now
+     */
+    protected void purge(long now) {
+	for (Iterator<Map.Entry<UUID, Gateway>> it = gateways.entrySet().iterator(); it.hasNext();) {
+	    Map.Entry<UUID, Gateway> entry = it.next();
+	    if (isStale(entry.getValue().getLoadedAt(), now)) {
+		removeGateway(entry.getKey());
+	    }
+	}
+	if (gateways.size() >= getMaxGateways()) {
+	    clear();
+	}
+    }
+
+    /**
+     * Indicates whether an entry is too old to be used.
+     *
+     * @param loadedAt
+     * @param now
+     * @return
+     */
+    protected boolean isStale(long loadedAt, long now) {
+	return (now - loadedAt) > getMaxAgeMs();
+    }
+
+    protected IDeviceManagementApiChannel<?> getDeviceManagementApiChannel() {
+	return ((ICommandDeliveryMicroservice) getMicroservice()).getDeviceManagementApiDemux().getApiChannel();
+    }
+
+    public long getMaxAgeMs() {
+	return maxAgeMs;
+    }
+
+    public void setMaxAgeMs(long maxAgeMs) {
+	this.maxAgeMs = maxAgeMs;
+    }
+
+    public int getMaxGateways() {
+	return maxGateways;
+    }
+
+    public void setMaxGateways(int maxGateways) {
+	this.maxGateways = maxGateways;
+    }
+
+    /**
+     * Cached gateway device with the children resolved against it.
+     */
+    private static class Gateway {
+
+	/** Gateway device */
+	private final IDevice device;
+
+	/** Time gateway was loaded */
+	private final long loadedAt;
+
+	/** Ids of nested devices resolved against gateway */
+	private final Set<UUID> children = ConcurrentHashMap.newKeySet();
+
+	public Gateway(IDevice device, long loadedAt) {
+	    this.device = device;
+	    this.loadedAt = loadedAt;
+	}
+
+	public IDevice getDevice() {
+	    return device;
+	}
+
+	public long getLoadedAt() {
+	    return loadedAt;
+	}
+
+	public Set<UUID> getChildren() {
+	    return children;
+	}
+    }
+
+    /**
+     * Cached gateway reference and mapping path for a nested device. A null path
+     * indicates the gateway has no mapping for the device, in which case the
+     * device is addressed directly.
+     */
+    private static class Child {
+
+	/** Gateway device id */
+	private final UUID gatewayId;
+
+	/** Path to nested device */
+	private final String path;
+
+	/** Time entry was loaded */
+	private final long loadedAt;
+
+	public Child(UUID gatewayId, String path, long loadedAt) {
+	    this.gatewayId = gatewayId;
+	    this.path = path;
+	    this.loadedAt = loadedAt;
+	}
+
+	public UUID getGatewayId() {
+	    return gatewayId;
+	}
+
+	public String getPath() {
+	    return path;
+	}
+
+	public long getLoadedAt() {
+	    return loadedAt;
+	}
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.grpc;
+
+import com.sitewhere.grpc.client.common.MultiGetRequest;
+import com.sitewhere.grpc.client.device.DeviceManagementExtensionsGrpc;
+import com.sitewhere.grpc.model.DeviceModel.GAreaSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GCustomerSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignmentSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceTypeSearchResults;
+import com.sitewhere.grpc.service.DeviceManagementGrpc;
+
+import io.grpc.BindableService;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Routes calls for device management methods that are not part of the
+ * generated service definition to service implementations in tenants.
+ * 
+ * @author Derek
+ */
+public class DeviceManagementExtensionsRouter implements BindableService {
+
+    /** Router for generated service (used to locate tenant implementations) */
+    private DeviceManagementRouter router;
+
+    public DeviceManagementExtensionsRouter(DeviceManagementRouter router) {
+	this.router = router;
+    }
+
+    /*
+     * @see io.grpc.BindableService#bindService()
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+	return ServerServiceDefinition.builder(DeviceManagementExtensionsGrpc.SERVICE_NAME)
+		.addMethod(DeviceManagementExtensionsGrpc.getGetDeviceTypesByIdsMethod(),
+			ServerCalls.asyncUnaryCall(this::getDeviceTypesByIds))
+		.addMethod(DeviceManagementExtensionsGrpc.getGetDevicesByIdsMethod(),
+			ServerCalls.asyncUnaryCall(this::getDevicesByIds))
+		.addMethod(DeviceManagementExtensionsGrpc.getGetDevicesByTokensMethod(),
+			ServerCalls.asyncUnaryCall(this::getDevicesByTokens))
+		.addMethod(DeviceManagementExtensionsGrpc.getGetDeviceAssignmentsByIdsMethod(),
+			ServerCalls.asyncUnaryCall(this::getDeviceAssignmentsByIds))
+		.addMethod(DeviceManagementExtensionsGrpc.getGetCustomersByIdsMethod(),
+			ServerCalls.asyncUnaryCall(this::getCustomersByIds))
+		.addMethod(DeviceManagementExtensionsGrpc.getGetAreasByIdsMethod(),
+			ServerCalls.asyncUnaryCall(this::getAreasByIds))
+		.build();
+    }
+
+    /**
+     * Route multi-get request for device types by id to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDeviceTypesByIds(MultiGetRequest request,
+	    StreamObserver<GDeviceTypeSearchResults> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getRouter().getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getDeviceTypesByIds(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route multi-get request for devices by id to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDevicesByIds(MultiGetRequest request, StreamObserver<GDeviceSearchResults> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getRouter().getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getDevicesByIds(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route multi-get request for devices by token to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDevicesByTokens(MultiGetRequest request, StreamObserver<GDeviceSearchResults> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getRouter().getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getDevicesByTokens(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route multi-get request for device assignments by id to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDeviceAssignmentsByIds(MultiGetRequest request,
+	    StreamObserver<GDeviceAssignmentSearchResults> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getRouter().getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getDeviceAssignmentsByIds(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route multi-get request for customers by id to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getCustomersByIds(MultiGetRequest request, StreamObserver<GCustomerSearchResults> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getRouter().getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getCustomersByIds(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route multi-get request for areas by id to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getAreasByIds(MultiGetRequest request, StreamObserver<GAreaSearchResults> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getRouter().getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getAreasByIds(request, responseObserver);
+	}
+    }
+
+    public DeviceManagementRouter getRouter() {
+	return router;
+    }
+}
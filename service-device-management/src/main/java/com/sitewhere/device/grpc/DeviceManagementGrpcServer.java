@@ -20,5 +20,7 @@ public class DeviceManagementGrpcServer extends MultitenantGrpcServer implements
 
     public DeviceManagementGrpcServer(IDeviceManagementMicroservice microservice) {
 	super(new DeviceManagementRouter(microservice), microservice.getInstanceSettings().getGrpcPort());
+	getAdditionalServices()
+		.add(new DeviceManagementExtensionsRouter((DeviceManagementRouter) getServiceImplementation()));
     }
 }
\ No newline at end of file
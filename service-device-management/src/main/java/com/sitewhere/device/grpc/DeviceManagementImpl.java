@@ -11,7 +11,9 @@ import java.util.List;
 
 import com.sitewhere.device.spi.microservice.IDeviceManagementMicroservice;
 import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.common.MultiGetRequest;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
+import com.sitewhere.grpc.client.device.DeviceManagementExtensionsGrpc;
 import com.sitewhere.grpc.client.device.DeviceModelConverter;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
 import com.sitewhere.grpc.model.DeviceModel.GAreaSearchResults;
@@ -2269,6 +2271,158 @@ public class DeviceManagementImpl extends DeviceManagementGrpc.DeviceManagementI
 	}
     }
 
+    /**
+     * Get multiple device types by id in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDeviceTypesByIds(MultiGetRequest request,
+	    StreamObserver<GDeviceTypeSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceManagementExtensionsGrpc.getGetDeviceTypesByIdsMethod());
+	    List<IDeviceType> apiResult = getDeviceManagement().getDeviceTypesByIds(request.getIds());
+	    GDeviceTypeSearchResults.Builder results = GDeviceTypeSearchResults.newBuilder();
+	    for (IDeviceType api : apiResult) {
+		results.addDeviceTypes(DeviceModelConverter.asGrpcDeviceType(api));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceManagementExtensionsGrpc.getGetDeviceTypesByIdsMethod(), e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceManagementExtensionsGrpc.getGetDeviceTypesByIdsMethod());
+	}
+    }
+
+    /**
+     * Get multiple devices by id in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDevicesByIds(MultiGetRequest request, StreamObserver<GDeviceSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceManagementExtensionsGrpc.getGetDevicesByIdsMethod());
+	    List<IDevice> apiResult = getDeviceManagement().getDevicesByIds(request.getIds());
+	    GDeviceSearchResults.Builder results = GDeviceSearchResults.newBuilder();
+	    for (IDevice api : apiResult) {
+		results.addDevices(DeviceModelConverter.asGrpcDevice(api));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceManagementExtensionsGrpc.getGetDevicesByIdsMethod(), e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceManagementExtensionsGrpc.getGetDevicesByIdsMethod());
+	}
+    }
+
+    /**
+     * Get multiple devices by token in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDevicesByTokens(MultiGetRequest request, StreamObserver<GDeviceSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceManagementExtensionsGrpc.getGetDevicesByTokensMethod());
+	    List<IDevice> apiResult = getDeviceManagement().getDevicesByTokens(request.getTokens());
+	    GDeviceSearchResults.Builder results = GDeviceSearchResults.newBuilder();
+	    for (IDevice api : apiResult) {
+		results.addDevices(DeviceModelConverter.asGrpcDevice(api));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceManagementExtensionsGrpc.getGetDevicesByTokensMethod(), e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceManagementExtensionsGrpc.getGetDevicesByTokensMethod());
+	}
+    }
+
+    /**
+     * Get multiple device assignments by id in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDeviceAssignmentsByIds(MultiGetRequest request,
+	    StreamObserver<GDeviceAssignmentSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceManagementExtensionsGrpc.getGetDeviceAssignmentsByIdsMethod());
+	    List<IDeviceAssignment> apiResult = getDeviceManagement().getDeviceAssignmentsByIds(request.getIds());
+	    GDeviceAssignmentSearchResults.Builder results = GDeviceAssignmentSearchResults.newBuilder();
+	    for (IDeviceAssignment api : apiResult) {
+		results.addAssignments(DeviceModelConverter.asGrpcDeviceAssignment(api));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceManagementExtensionsGrpc.getGetDeviceAssignmentsByIdsMethod(), e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceManagementExtensionsGrpc.getGetDeviceAssignmentsByIdsMethod());
+	}
+    }
+
+    /**
+     * Get multiple customers by id in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getCustomersByIds(MultiGetRequest request, StreamObserver<GCustomerSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceManagementExtensionsGrpc.getGetCustomersByIdsMethod());
+	    List<ICustomer> apiResult = getDeviceManagement().getCustomersByIds(request.getIds());
+	    GCustomerSearchResults.Builder results = GCustomerSearchResults.newBuilder();
+	    for (ICustomer api : apiResult) {
+		results.addCustomers(DeviceModelConverter.asGrpcCustomer(api));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceManagementExtensionsGrpc.getGetCustomersByIdsMethod(), e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceManagementExtensionsGrpc.getGetCustomersByIdsMethod());
+	}
+    }
+
+    /**
+     * Get multiple areas by id in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getAreasByIds(MultiGetRequest request, StreamObserver<GAreaSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceManagementExtensionsGrpc.getGetAreasByIdsMethod());
+	    List<IArea> apiResult = getDeviceManagement().getAreasByIds(request.getIds());
+	    GAreaSearchResults.Builder results = GAreaSearchResults.newBuilder();
+	    for (IArea api : apiResult) {
+		results.addAreas(DeviceModelConverter.asGrpcArea(api));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceManagementExtensionsGrpc.getGetAreasByIdsMethod(), e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceManagementExtensionsGrpc.getGetAreasByIdsMethod());
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation#getMicroservice()
@@ -183,6 +183,17 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return null;
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDeviceTypesByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<IDeviceType> getDeviceTypesByIds(List<UUID> ids) throws SiteWhereException {
+	return listIn(IDeviceType.class, getMongoClient().getDeviceTypesCollection(), MongoPersistentEntity.PROP_ID,
+		ids);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getDeviceTypeByToken(java.lang.
@@ -723,6 +734,26 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return null;
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevicesByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<IDevice> getDevicesByIds(List<UUID> ids) throws SiteWhereException {
+	return listIn(IDevice.class, getMongoClient().getDevicesCollection(), MongoPersistentEntity.PROP_ID, ids);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDevicesByTokens(java.util.
+     * List)
+     */
+    @Override
+    public List<IDevice> getDevicesByTokens(List<String> tokens) throws SiteWhereException {
+	return listIn(IDevice.class, getMongoClient().getDevicesCollection(), MongoPersistentEntity.PROP_TOKEN,
+		tokens);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getCurrentDeviceAssignment(java.
@@ -825,6 +856,26 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return devices.find(query).first();
     }
 
+    /**
+     * List entities whose field value is in the given list using a single
+     * <code>$in</code> query.
+     * 
+     * @param api
+     * @param collection
+     * @param field
+     * @param values
+     * @return
+     * @throws SiteWhereException
+     */
+    protected <T> List<T> listIn(Class<T> api, MongoCollection<Document> collection, String field, List<?> values)
+	    throws SiteWhereException {
+	if ((values == null) || (values.isEmpty())) {
+	    return new ArrayList<T>();
+	}
+	Document query = new Document(field, new Document("$in", values));
+	return MongoPersistence.list(api, collection, query, null, LOOKUP);
+    }
+
     /**
      * Get the {@link Document} containing device information that matches the given
      * id.
@@ -916,6 +967,17 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return null;
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDeviceAssignmentsByIds(java.
+     * util.List)
+     */
+    @Override
+    public List<IDeviceAssignment> getDeviceAssignmentsByIds(List<UUID> ids) throws SiteWhereException {
+	return listIn(IDeviceAssignment.class, getMongoClient().getDeviceAssignmentsCollection(),
+		MongoPersistentEntity.PROP_ID, ids);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -1334,6 +1396,15 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return null;
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getCustomersByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<ICustomer> getCustomersByIds(List<UUID> ids) throws SiteWhereException {
+	return listIn(ICustomer.class, getMongoClient().getCustomersCollection(), MongoPersistentEntity.PROP_ID, ids);
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#getCustomerByToken(java.lang.
      * String)
@@ -1555,6 +1626,14 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return null;
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getAreasByIds(java.util.List)
+     */
+    @Override
+    public List<IArea> getAreasByIds(List<UUID> ids) throws SiteWhereException {
+	return listIn(IArea.class, getMongoClient().getAreasCollection(), MongoPersistentEntity.PROP_ID, ids);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getAreaByToken(java.lang.String)
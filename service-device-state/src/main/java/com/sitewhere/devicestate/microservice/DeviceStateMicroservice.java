@@ -71,6 +71,16 @@ public class DeviceStateMicroservice extends MultitenantMicroservice<Microservic
 	return false;
     }
 
+    /*
+     * @see com.sitewhere.microservice.multitenant.MultitenantMicroservice#
+     * isTenantEngineLazyActivationSupported()
+     */
+    @Override
+    protected boolean isTenantEngineLazyActivationSupported() {
+	// Presence checks run on a timer, so engines are not shut down when idle.
+	return false;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.IMicroservice#buildConfigurationModel()
      */
@@ -14,20 +14,27 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 
 import com.codahale.metrics.Meter;
 import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.devicestate.spi.microservice.IDeviceStateMicroservice;
 import com.sitewhere.devicestate.spi.microservice.IDeviceStateTenantEngine;
 import com.sitewhere.devicestate.spi.processing.IDeviceStateProcessingLogic;
+import com.sitewhere.grpc.client.event.BlockingDeviceEventManagement;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
 import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
 import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.rest.model.device.event.request.DeviceStateChangeCreateRequest;
 import com.sitewhere.rest.model.device.state.request.DeviceStateCreateRequest;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventContext;
+import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
+import com.sitewhere.spi.device.event.state.PresenceState;
 import com.sitewhere.spi.device.state.IDeviceState;
 import com.sitewhere.spi.device.state.IDeviceStateManagement;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
@@ -130,6 +137,11 @@ public class DeviceStateProcessingLogic extends TenantEngineLifecycleComponent i
 	    if ((original == null) || (original.getPresenceMissingDate() == null)) {
 		return;
 	    }
+	    // Presence state changes are generated here and do not indicate presence.
+	    if ((event instanceof IDeviceStateChange) && IDeviceStateChangeCreateRequest.ATTRIBUTE_PRESENCE
+		    .equals(((IDeviceStateChange) event).getAttribute())) {
+		return;
+	    }
 	}
 	}
 	DeviceStateCreateRequest request = new DeviceStateCreateRequest();
@@ -154,11 +166,36 @@ public class DeviceStateProcessingLogic extends TenantEngineLifecycleComponent i
 	// Create or update device state.
 	if (original != null) {
 	    getDeviceStateManagement().updateDeviceState(original.getId(), request);
+	    if (original.getPresenceMissingDate() != null) {
+		sendPresenceDetected(original);
+	    }
 	} else {
 	    getDeviceStateManagement().createDeviceState(request);
 	}
     }
 
+    /**
+     * Create state change event to indicate a device that was not present has
+     * been detected again. This allows other services (such as command delivery)
+     * to react when a device returns.
+     * 
+     * @param original
+     */
+    protected void sendPresenceDetected(IDeviceState original) {
+	DeviceStateChangeCreateRequest create = new DeviceStateChangeCreateRequest();
+	create.setAttribute(IDeviceStateChangeCreateRequest.ATTRIBUTE_PRESENCE);
+	create.setType("automated");
+	create.setPreviousState(PresenceState.NOT_PRESENT.name());
+	create.setNewState(PresenceState.PRESENT.name());
+	try {
+	    IDeviceEventManagement eventManagement = new BlockingDeviceEventManagement(
+		    ((IDeviceStateMicroservice) getMicroservice()).getDeviceEventManagementApiDemux().getApiChannel());
+	    eventManagement.addDeviceStateChanges(original.getDeviceAssignmentId(), create);
+	} catch (SiteWhereException e) {
+	    getLogger().error("Unable to create state change event for presence detected.", e);
+	}
+    }
+
     /**
      * Merge location information.
      * 
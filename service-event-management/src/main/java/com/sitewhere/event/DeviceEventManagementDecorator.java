@@ -10,6 +10,8 @@ package com.sitewhere.event;
 import java.util.List;
 import java.util.UUID;
 
+import com.sitewhere.device.charting.MeasurementAggregator;
+import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponentDecorator;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.DeviceEventIndex;
@@ -23,6 +25,12 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExport;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportHandler;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -40,7 +48,7 @@ import com.sitewhere.spi.search.ISearchResults;
  * @author Derek
  */
 public class DeviceEventManagementDecorator extends TenantEngineLifecycleComponentDecorator<IDeviceEventManagement>
-	implements IDeviceEventManagement {
+	implements IDeviceEventManagement, IDeviceMeasurementAggregation, IDeviceEventExport {
 
     public DeviceEventManagementDecorator(IDeviceEventManagement delegate) {
 	super(delegate);
@@ -67,6 +75,16 @@ public class DeviceEventManagementDecorator extends TenantEngineLifecycleCompone
 	return getDelegate().getDeviceEventById(eventId);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceEventManagement#getDeviceEventsByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IDeviceEvent> getDeviceEventsByIds(List<UUID> eventIds) throws SiteWhereException {
+	return getDelegate().getDeviceEventsByIds(eventIds);
+    }
+
     /*
      * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
      * getDeviceEventByAlternateId(java.lang.String)
@@ -100,6 +118,40 @@ public class DeviceEventManagementDecorator extends TenantEngineLifecycleCompone
 	return getDelegate().listDeviceMeasurementsForIndex(index, entityIds, criteria);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List,
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria)
+     */
+    @Override
+    public List<IMeasurementAggregateSeries> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	if (getDelegate() instanceof IDeviceMeasurementAggregation) {
+	    return ((IDeviceMeasurementAggregation) getDelegate()).aggregateDeviceMeasurementsForIndex(index,
+		    entityIds, criteria);
+	}
+	return MeasurementAggregator.aggregate(getDelegate(), index, entityIds, criteria);
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.export.IDeviceEventExport#
+     * exportDeviceEventsForIndex(com.sitewhere.spi.device.event.DeviceEventIndex,
+     * java.util.List,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportHandler)
+     */
+    @Override
+    public long exportDeviceEventsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IDeviceEventExportCriteria criteria, IDeviceEventExportHandler handler) throws SiteWhereException {
+	if (getDelegate() instanceof IDeviceEventExport) {
+	    return ((IDeviceEventExport) getDelegate()).exportDeviceEventsForIndex(index, entityIds, criteria,
+		    handler);
+	}
+	return DeviceEventManagementPersistence.exportEventsByPaging(getDelegate(), index, entityIds, criteria,
+		handler);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.grpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportHandler;
+
+import io.grpc.stub.ServerCallStreamObserver;
+
+/**
+ * Writes exported events to a gRPC stream as chunks of newline-delimited JSON.
+ * Before each chunk is sent the writer waits until the transport signals that
+ * it is ready to accept more data, so a slow client throttles the export
+ * instead of causing the server to buffer the whole result set. The writer
+ * must be created before the service method returns so that its handlers are
+ * registered, and events must be written from a thread other than the call
+ * thread, since transport callbacks are not delivered while it is blocked.
+ * 
+ * @author Derek
+ */
+public class DeviceEventExportWriter implements IDeviceEventExportHandler {
+
+    /** Default chunk size in bytes */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /** Maximum time to wait for client to accept more data */
+    private static final long MAX_STALL_MS = 5 * 60 * 1000;
+
+    /** Line separator */
+    private static final byte NEWLINE = '\n';
+
+    /** Stream chunks are sent to */
+    private ServerCallStreamObserver<byte[]> stream;
+
+    /** Chunk size in bytes */
+    private int chunkSize;
+
+    /** Buffer for chunk being built */
+    private ByteArrayOutputStream buffer;
+
+    /** Notified when transport becomes ready or call is cancelled */
+    private Object readyLock = new Object();
+
+    /** Indicates whether client cancelled the call */
+    private volatile boolean cancelled = false;
+
+    public DeviceEventExportWriter(ServerCallStreamObserver<byte[]> stream, int chunkSize) {
+	this.stream = stream;
+	this.chunkSize = chunkSize;
+	this.buffer = new ByteArrayOutputStream(chunkSize + 1024);
+	stream.setOnReadyHandler(() -> signal());
+	stream.setOnCancelHandler(() -> {
+	    cancelled = true;
+	    signal();
+	});
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportHandler#handle(com.
+     * sitewhere.spi.device.event.IDeviceEvent)
+     */
+    @Override
+    public void handle(IDeviceEvent event) throws SiteWhereException {
+	try {
+	    buffer.write(MarshalUtils.marshalJson(event));
+	    buffer.write(NEWLINE);
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to write exported event.", e);
+	}
+	if (buffer.size() >= chunkSize) {
+	    flush();
+	}
+    }
+
+    /**
+     * Send any buffered events to the client.
+     * 
+     * @throws SiteWhereException
+     */
+    public void flush() throws SiteWhereException {
+	if (buffer.size() == 0) {
+	    return;
+	}
+	waitUntilReady();
+	stream.onNext(buffer.toByteArray());
+	buffer.reset();
+    }
+
+    /**
+     * Wait until the transport can accept another chunk without buffering. Fails
+     * if the client cancels the call or stops reading for too long.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void waitUntilReady() throws SiteWhereException {
+	long deadline = System.currentTimeMillis() + MAX_STALL_MS;
+	synchronized (readyLock) {
+	    while (!cancelled && !stream.isReady()) {
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+		    throw new SiteWhereException("Export client stopped reading. Aborting export.");
+		}
+		try {
+		    readyLock.wait(remaining);
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new SiteWhereException("Interrupted while waiting for export client.", e);
+		}
+	    }
+	}
+	if (cancelled) {
+	    throw new SiteWhereException("Export cancelled by client.");
+	}
+    }
+
+    /**
+     * Wake up a writer waiting for the transport.
+     */
+    protected void signal() {
+	synchronized (readyLock) {
+	    readyLock.notifyAll();
+	}
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.grpc;
+
+import com.sitewhere.grpc.client.common.MultiGetRequest;
+import com.sitewhere.grpc.client.event.DeviceEventExportRequest;
+import com.sitewhere.grpc.client.event.DeviceEventManagementExtensionsGrpc;
+import com.sitewhere.grpc.client.event.MeasurementAggregationRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationResponse;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventSearchResults;
+import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
+
+import io.grpc.BindableService;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Routes calls for device event management methods that are not part of the
+ * generated service definition to service implementations in tenants.
+ * 
+ * @author Derek
+ */
+public class EventManagementExtensionsRouter implements BindableService {
+
+    /** Router for generated service (used to locate tenant implementations) */
+    private EventManagementRouter router;
+
+    public EventManagementExtensionsRouter(EventManagementRouter router) {
+	this.router = router;
+    }
+
+    /*
+     * @see io.grpc.BindableService#bindService()
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+	return ServerServiceDefinition.builder(DeviceEventManagementExtensionsGrpc.SERVICE_NAME)
+		.addMethod(DeviceEventManagementExtensionsGrpc.getAggregateMeasurementsForIndexMethod(),
+			ServerCalls.asyncUnaryCall(this::aggregateMeasurementsForIndex))
+		.addMethod(DeviceEventManagementExtensionsGrpc.getExportDeviceEventsForIndexMethod(),
+			ServerCalls.asyncServerStreamingCall(this::exportDeviceEventsForIndex))
+		.addMethod(DeviceEventManagementExtensionsGrpc.getGetDeviceEventsByIdsMethod(),
+			ServerCalls.asyncUnaryCall(this::getDeviceEventsByIds))
+		.build();
+    }
+
+    /**
+     * Route measurement aggregation request to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void aggregateMeasurementsForIndex(MeasurementAggregationRequest request,
+	    StreamObserver<MeasurementAggregationResponse> responseObserver) {
+	DeviceEventManagementGrpc.DeviceEventManagementImplBase engine = getRouter()
+		.getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((EventManagementImpl) engine).aggregateMeasurementsForIndex(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route device event export request to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void exportDeviceEventsForIndex(DeviceEventExportRequest request, StreamObserver<byte[]> responseObserver) {
+	DeviceEventManagementGrpc.DeviceEventManagementImplBase engine = getRouter()
+		.getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((EventManagementImpl) engine).exportDeviceEventsForIndex(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route multi-get request for device events to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDeviceEventsByIds(MultiGetRequest request,
+	    StreamObserver<GDeviceEventSearchResults> responseObserver) {
+	DeviceEventManagementGrpc.DeviceEventManagementImplBase engine = getRouter()
+		.getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((EventManagementImpl) engine).getDeviceEventsByIds(request, responseObserver);
+	}
+    }
+
+    public EventManagementRouter getRouter() {
+	return router;
+    }
+}
@@ -20,5 +20,7 @@ public class EventManagementGrpcServer extends MultitenantGrpcServer implements
 
     public EventManagementGrpcServer(IEventManagementMicroservice microservice) {
 	super(new EventManagementRouter(microservice), microservice.getInstanceSettings().getGrpcPort());
+	getAdditionalServices()
+		.add(new EventManagementExtensionsRouter((EventManagementRouter) getServiceImplementation()));
     }
 }
\ No newline at end of file
@@ -8,15 +8,28 @@
 package com.sitewhere.event.grpc;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.common.MultiGetRequest;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
+import com.sitewhere.grpc.client.event.DeviceEventExportRequest;
+import com.sitewhere.grpc.client.event.DeviceEventManagementExtensionsGrpc;
 import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.MeasurementAggregationRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationResponse;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceAlertSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandInvocationSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandResponseSearchResults;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceLocationSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceMeasurementSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceStateChangeSearchResults;
@@ -54,6 +67,8 @@ import com.sitewhere.grpc.service.GListMeasurementsForIndexResponse;
 import com.sitewhere.grpc.service.GListStateChangesForIndexRequest;
 import com.sitewhere.grpc.service.GListStateChangesForIndexResponse;
 import com.sitewhere.rest.model.device.event.DeviceEventBatch;
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregateSeries;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
 import com.sitewhere.spi.device.event.IDeviceCommandResponse;
@@ -63,6 +78,9 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.export.IDeviceEventExport;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -72,6 +90,7 @@ import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
 import com.sitewhere.spi.microservice.IMicroservice;
 import com.sitewhere.spi.search.ISearchResults;
 
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -88,6 +107,9 @@ public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventMa
     /** Device management persistence */
     private IDeviceEventManagement deviceEventManagement;
 
+    /** Runs exports off the call thread so transport callbacks are delivered */
+    private ExecutorService exportExecutor = Executors.newCachedThreadPool(new ExportThreadFactory());
+
     public EventManagementImpl(IEventManagementMicroservice microservice,
 	    IDeviceEventManagement deviceEventManagement) {
 	this.microservice = microservice;
@@ -240,6 +262,103 @@ public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventMa
 	}
     }
 
+    /**
+     * Aggregate measurements for an index. Hosted as part of the device event
+     * management extensions service rather than the generated service.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void aggregateMeasurementsForIndex(MeasurementAggregationRequest request,
+	    StreamObserver<MeasurementAggregationResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this,
+		    DeviceEventManagementExtensionsGrpc.getAggregateMeasurementsForIndexMethod());
+	    if (!(getDeviceEventManagement() instanceof IDeviceMeasurementAggregation)) {
+		throw new SiteWhereException("Event management implementation does not support aggregation.");
+	    }
+	    List<IMeasurementAggregateSeries> apiResult = ((IDeviceMeasurementAggregation) getDeviceEventManagement())
+		    .aggregateDeviceMeasurementsForIndex(request.getIndex(), request.getEntityIds(),
+			    request.getCriteria());
+	    MeasurementAggregationResponse response = new MeasurementAggregationResponse();
+	    for (IMeasurementAggregateSeries series : apiResult) {
+		response.getSeries().add((MeasurementAggregateSeries) series);
+	    }
+	    responseObserver.onNext(response);
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(
+		    DeviceEventManagementExtensionsGrpc.getAggregateMeasurementsForIndexMethod(), e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceEventManagementExtensionsGrpc.getAggregateMeasurementsForIndexMethod());
+	}
+    }
+
+    /**
+     * Export device events as a stream of newline-delimited JSON chunks.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void exportDeviceEventsForIndex(DeviceEventExportRequest request, StreamObserver<byte[]> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this,
+		    DeviceEventManagementExtensionsGrpc.getExportDeviceEventsForIndexMethod());
+	    if (!(getDeviceEventManagement() instanceof IDeviceEventExport)) {
+		throw new SiteWhereException("Event management implementation does not support export.");
+	    }
+	    DeviceEventExportWriter writer = new DeviceEventExportWriter(
+		    (ServerCallStreamObserver<byte[]>) responseObserver, DeviceEventExportWriter.DEFAULT_CHUNK_SIZE);
+	    SecurityContext security = SecurityContextHolder.createEmptyContext();
+	    security.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+	    exportExecutor.execute(() -> {
+		SecurityContextHolder.setContext(security);
+		try {
+		    ((IDeviceEventExport) getDeviceEventManagement()).exportDeviceEventsForIndex(request.getIndex(),
+			    request.getEntityIds(), request.getCriteria(), writer);
+		    writer.flush();
+		    responseObserver.onCompleted();
+		} catch (Throwable e) {
+		    GrpcUtils.handleServerMethodException(
+			    DeviceEventManagementExtensionsGrpc.getExportDeviceEventsForIndexMethod(), e, responseObserver);
+		} finally {
+		    SecurityContextHolder.clearContext();
+		}
+	    });
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(
+		    DeviceEventManagementExtensionsGrpc.getExportDeviceEventsForIndexMethod(), e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceEventManagementExtensionsGrpc.getExportDeviceEventsForIndexMethod());
+	}
+    }
+
+    /**
+     * Get multiple device events by unique id in a single call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDeviceEventsByIds(MultiGetRequest request,
+	    StreamObserver<GDeviceEventSearchResults> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceEventManagementExtensionsGrpc.getGetDeviceEventsByIdsMethod());
+	    List<IDeviceEvent> apiResult = getDeviceEventManagement().getDeviceEventsByIds(request.getIds());
+	    GDeviceEventSearchResults.Builder results = GDeviceEventSearchResults.newBuilder();
+	    for (IDeviceEvent event : apiResult) {
+		results.addEvents(EventModelConverter.asGrpcGenericDeviceEvent(event));
+	    }
+	    results.setCount(apiResult.size());
+	    responseObserver.onNext(results.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceEventManagementExtensionsGrpc.getGetDeviceEventsByIdsMethod(),
+		    e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceEventManagementExtensionsGrpc.getGetDeviceEventsByIdsMethod());
+	}
+    }
+
     /*
      * @see com.sitewhere.grpc.service.DeviceEventManagementGrpc.
      * DeviceEventManagementImplBase#addLocations(com.sitewhere.grpc.service.
@@ -582,4 +701,17 @@ public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventMa
     public void setDeviceEventManagement(IDeviceEventManagement deviceEventManagement) {
 	this.deviceEventManagement = deviceEventManagement;
     }
+
+    /** Used for naming event export threads */
+    private class ExportThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, "Event Export " + counter.incrementAndGet());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
 }
\ No newline at end of file
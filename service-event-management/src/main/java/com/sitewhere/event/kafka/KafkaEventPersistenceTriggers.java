@@ -8,17 +8,21 @@
 package com.sitewhere.event.kafka;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.codahale.metrics.Timer;
 import com.sitewhere.event.DeviceEventManagementDecorator;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
 import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.rest.model.device.event.kafka.PersistedEventPayload;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.SiteWhereSystemException;
@@ -27,6 +31,7 @@ import com.sitewhere.spi.device.IDeviceManagement;
 import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
 import com.sitewhere.spi.device.event.IDeviceCommandResponse;
+import com.sitewhere.spi.device.event.DeviceEventType;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
@@ -56,6 +61,9 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     /** Parent tenant engine */
     private IEventManagementTenantEngine tenantEngine;
 
+    /** Timers for persistence latency by event type */
+    private Map<DeviceEventType, Timer> flushTimers = new ConcurrentHashMap<>();
+
     public KafkaEventPersistenceTriggers(IEventManagementTenantEngine tenantEngine, IDeviceEventManagement delegate) {
 	super(delegate);
 	this.tenantEngine = tenantEngine;
@@ -84,6 +92,39 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
 	return events;
     }
 
+    /**
+     * Execute a call to the persistence layer and record its latency.
+     * 
+     * @param type
+     * @param call
+     * @return
+     * @throws SiteWhereException
+     */
+    protected <T extends IDeviceEvent> List<T> persist(DeviceEventType type, PersistenceCall<T> call)
+	    throws SiteWhereException {
+	final Timer.Context context = getFlushTimer(type).time();
+	try {
+	    return call.execute();
+	} finally {
+	    context.stop();
+	}
+    }
+
+    /**
+     * Get timer for persistence latency of an event type.
+     * 
+     * @param type
+     * @return
+     */
+    protected Timer getFlushTimer(DeviceEventType type) {
+	return flushTimers.computeIfAbsent(type, t -> {
+	    String name = getTenantEngine().getMicroservice().getIdentifier().getPath() + ".persistence.flush";
+	    name = MetricsUtils.tagged(name, "type", t.name(), MetricsUtils.TAG_TENANT,
+		    getTenantEngine().getTenant().getToken());
+	    return MetricsUtils.timer(getTenantEngine().getMicroservice().getMetricRegistry(), name);
+	});
+    }
+
     /*
      * @see
      * com.sitewhere.event.DeviceEventManagementDecorator#addDeviceMeasurements(java
@@ -93,7 +134,8 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     @Override
     public List<IDeviceMeasurement> addDeviceMeasurements(UUID deviceAssignmentId,
 	    IDeviceMeasurementCreateRequest... measurements) throws SiteWhereException {
-	return forwardEvents(deviceAssignmentId, super.addDeviceMeasurements(deviceAssignmentId, measurements));
+	return forwardEvents(deviceAssignmentId, persist(DeviceEventType.Measurement,
+		() -> super.addDeviceMeasurements(deviceAssignmentId, measurements)));
     }
 
     /*
@@ -105,7 +147,8 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     @Override
     public List<IDeviceLocation> addDeviceLocations(UUID deviceAssignmentId, IDeviceLocationCreateRequest... request)
 	    throws SiteWhereException {
-	return forwardEvents(deviceAssignmentId, super.addDeviceLocations(deviceAssignmentId, request));
+	return forwardEvents(deviceAssignmentId, persist(DeviceEventType.Location,
+		() -> super.addDeviceLocations(deviceAssignmentId, request)));
     }
 
     /*
@@ -116,7 +159,8 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     @Override
     public List<IDeviceAlert> addDeviceAlerts(UUID deviceAssignmentId, IDeviceAlertCreateRequest... request)
 	    throws SiteWhereException {
-	return forwardEvents(deviceAssignmentId, super.addDeviceAlerts(deviceAssignmentId, request));
+	return forwardEvents(deviceAssignmentId, persist(DeviceEventType.Alert,
+		() -> super.addDeviceAlerts(deviceAssignmentId, request)));
     }
 
     /*
@@ -128,7 +172,8 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     @Override
     public List<IDeviceCommandInvocation> addDeviceCommandInvocations(UUID deviceAssignmentId,
 	    IDeviceCommandInvocationCreateRequest... request) throws SiteWhereException {
-	return forwardEvents(deviceAssignmentId, super.addDeviceCommandInvocations(deviceAssignmentId, request));
+	return forwardEvents(deviceAssignmentId, persist(DeviceEventType.CommandInvocation,
+		() -> super.addDeviceCommandInvocations(deviceAssignmentId, request)));
     }
 
     /*
@@ -140,7 +185,8 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     @Override
     public List<IDeviceCommandResponse> addDeviceCommandResponses(UUID deviceAssignmentId,
 	    IDeviceCommandResponseCreateRequest... request) throws SiteWhereException {
-	return forwardEvents(deviceAssignmentId, super.addDeviceCommandResponses(deviceAssignmentId, request));
+	return forwardEvents(deviceAssignmentId, persist(DeviceEventType.CommandResponse,
+		() -> super.addDeviceCommandResponses(deviceAssignmentId, request)));
     }
 
     /*
@@ -152,7 +198,8 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     @Override
     public List<IDeviceStateChange> addDeviceStateChanges(UUID deviceAssignmentId,
 	    IDeviceStateChangeCreateRequest... request) throws SiteWhereException {
-	return forwardEvents(deviceAssignmentId, super.addDeviceStateChanges(deviceAssignmentId, request));
+	return forwardEvents(deviceAssignmentId, persist(DeviceEventType.StateChange,
+		() -> super.addDeviceStateChanges(deviceAssignmentId, request)));
     }
 
     /**
@@ -182,4 +229,15 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     public void setTenantEngine(IEventManagementTenantEngine tenantEngine) {
 	this.tenantEngine = tenantEngine;
     }
-}
\ No newline at end of file
+
+    /**
+     * Call that persists a list of events.
+     * 
+     * @param <T>
+     */
+    @FunctionalInterface
+    protected static interface PersistenceCall<T extends IDeviceEvent> {
+
+	public List<T> execute() throws SiteWhereException;
+    }
+}
@@ -7,8 +7,12 @@
  */
 package com.sitewhere.event.persistence;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import com.sitewhere.persistence.Persistence;
@@ -22,13 +26,19 @@ import com.sitewhere.rest.model.device.event.DeviceLocation;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.rest.model.device.event.DeviceStateChange;
 import com.sitewhere.rest.model.device.streaming.DeviceStreamData;
+import com.sitewhere.rest.model.search.DateRangeSearchCriteria;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.command.ICommandParameter;
 import com.sitewhere.spi.device.event.AlertLevel;
 import com.sitewhere.spi.device.event.AlertSource;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventBatch;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportHandler;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -37,6 +47,8 @@ import com.sitewhere.spi.device.event.request.IDeviceLocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceMeasurementCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
 import com.sitewhere.spi.device.streaming.request.IDeviceStreamDataCreateRequest;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
+import com.sitewhere.spi.search.ISearchResults;
 
 /**
  * Common methods needed by device service provider implementations.
@@ -45,6 +57,14 @@ import com.sitewhere.spi.device.streaming.request.IDeviceStreamDataCreateRequest
  */
 public class DeviceEventManagementPersistence extends Persistence {
 
+    /** Event types included in an export if none are specified */
+    private static final List<DeviceEventType> EXPORT_EVENT_TYPES = Arrays.asList(DeviceEventType.Measurement,
+	    DeviceEventType.Location, DeviceEventType.Alert, DeviceEventType.CommandInvocation,
+	    DeviceEventType.CommandResponse, DeviceEventType.StateChange);
+
+    /** Page size used when exporting from paged search results */
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     /**
      * Executes logic to process a batch of device events.
      * 
@@ -324,4 +344,109 @@ public class DeviceEventManagementPersistence extends Persistence {
 
 	return state;
     }
-}
\ No newline at end of file
+
+    /**
+     * Get event types included in an export. All persisted event types are
+     * included if none are specified.
+     * 
+     * @param criteria
+     * @return
+     */
+    public static List<DeviceEventType> getExportEventTypes(IDeviceEventExportCriteria criteria) {
+	if ((criteria.getEventTypes() == null) || (criteria.getEventTypes().isEmpty())) {
+	    return EXPORT_EVENT_TYPES;
+	}
+	return criteria.getEventTypes();
+    }
+
+    /**
+     * Export events by reading search results page by page. Used for event stores
+     * that do not support streaming natively. Rather than skipping over earlier
+     * results, each page narrows the end date to the last event date returned so
+     * that deep pages are no more expensive than the first.
+     * 
+     * @param events
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @param handler
+     * @return
+     * @throws SiteWhereException
+     */
+    public static long exportEventsByPaging(IDeviceEventManagement events, DeviceEventIndex index,
+	    List<UUID> entityIds, IDeviceEventExportCriteria criteria, IDeviceEventExportHandler handler)
+	    throws SiteWhereException {
+	long count = 0;
+	for (DeviceEventType type : getExportEventTypes(criteria)) {
+	    Date endDate = criteria.getEndDate();
+	    Set<UUID> boundary = new HashSet<>();
+	    int page = 1;
+	    while (true) {
+		DateRangeSearchCriteria search = new DateRangeSearchCriteria(page, EXPORT_PAGE_SIZE,
+			criteria.getStartDate(), endDate);
+		List<? extends IDeviceEvent> results = listEventsForIndex(events, type, index, entityIds, search)
+			.getResults();
+		for (IDeviceEvent event : results) {
+		    if (!boundary.contains(event.getId())) {
+			handler.handle(event);
+			count++;
+		    }
+		}
+		if (results.size() < EXPORT_PAGE_SIZE) {
+		    break;
+		}
+
+		// Page is all one date, so narrowing the range would not make progress.
+		Date first = results.get(0).getEventDate();
+		Date last = results.get(results.size() - 1).getEventDate();
+		if (first.equals(last)) {
+		    page++;
+		    continue;
+		}
+
+		// Continue from last date, ignoring events already handled at that date.
+		endDate = last;
+		page = 1;
+		boundary.clear();
+		for (IDeviceEvent event : results) {
+		    if (last.equals(event.getEventDate())) {
+			boundary.add(event.getId());
+		    }
+		}
+	    }
+	}
+	return count;
+    }
+
+    /**
+     * List events of the given type for an index.
+     * 
+     * @param events
+     * @param type
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static ISearchResults<? extends IDeviceEvent> listEventsForIndex(IDeviceEventManagement events,
+	    DeviceEventType type, DeviceEventIndex index, List<UUID> entityIds, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException {
+	switch (type) {
+	case Measurement:
+	    return events.listDeviceMeasurementsForIndex(index, entityIds, criteria);
+	case Location:
+	    return events.listDeviceLocationsForIndex(index, entityIds, criteria);
+	case Alert:
+	    return events.listDeviceAlertsForIndex(index, entityIds, criteria);
+	case CommandInvocation:
+	    return events.listDeviceCommandInvocationsForIndex(index, entityIds, criteria);
+	case CommandResponse:
+	    return events.listDeviceCommandResponsesForIndex(index, entityIds, criteria);
+	case StateChange:
+	    return events.listDeviceStateChangesForIndex(index, entityIds, criteria);
+	default:
+	    throw new SiteWhereException("Export not supported for event type: " + type.name());
+	}
+    }
+}
@@ -8,8 +8,7 @@
 package com.sitewhere.event.persistence.cassandra;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,11 +16,12 @@ import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
-import com.datastax.driver.core.Row;
+import com.datastax.driver.core.UDTValue;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.sitewhere.cassandra.CassandraClient;
+import com.sitewhere.device.charting.MeasurementAggregator;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.rest.model.device.event.DeviceAlert;
@@ -30,7 +30,6 @@ import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
 import com.sitewhere.rest.model.device.event.DeviceLocation;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.rest.model.device.event.DeviceStateChange;
-import com.sitewhere.rest.model.search.Pager;
 import com.sitewhere.rest.model.search.SearchResults;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
@@ -49,6 +48,12 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExport;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportHandler;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -68,7 +73,8 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
  * 
  * @author Derek
  */
-public class CassandraDeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
+public class CassandraDeviceEventManagement extends TenantEngineLifecycleComponent
+	implements IDeviceEventManagement, IDeviceMeasurementAggregation, IDeviceEventExport {
 
     /** Configured Cassandra client */
     private CassandraClient client;
@@ -76,6 +82,15 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     /** Cassandra event management client */
     private CassandraEventManagementClient cassandraEventManagementClient;
 
+    /** Engine for queries that span buckets and keys */
+    private CassandraEventQueryEngine queryEngine;
+
+    /** Max number of partition queries issued concurrently */
+    private int maxConcurrentQueries = CassandraEventQueryEngine.DEFAULT_MAX_CONCURRENT_QUERIES;
+
+    /** Indicates whether all matching rows are counted for result totals */
+    private boolean exactResultCounts = false;
+
     public CassandraDeviceEventManagement() {
 	super(LifecycleComponentType.DataStore);
     }
@@ -95,6 +110,11 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	// Initialize event management client wrapper.
 	this.cassandraEventManagementClient = new CassandraEventManagementClient(getClient());
 	getCassandraEventManagementClient().initialize(monitor);
+
+	// Initialize engine for multi-partition queries.
+	this.queryEngine = new CassandraEventQueryEngine(getClient(), getCassandraEventManagementClient());
+	getQueryEngine().setMaxConcurrentQueries(getMaxConcurrentQueries());
+	getQueryEngine().setExactResultCounts(isExactResultCounts());
     }
 
     /*
@@ -141,6 +161,16 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	throw new SiteWhereException("Not implemented.");
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceEventManagement#getDeviceEventsByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IDeviceEvent> getDeviceEventsByIds(List<UUID> eventIds) throws SiteWhereException {
+	throw new SiteWhereException("Not implemented.");
+    }
+
     /*
      * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
      * getDeviceEventByAlternateId(java.lang.String)
@@ -181,6 +211,74 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	return searchEventsByIndex(index, entityIds, criteria, CassandraDeviceMeasurement.INSTANCE);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List,
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria)
+     */
+    @Override
+    public List<IMeasurementAggregateSeries> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria);
+	getQueryEngine().scan(getQueryForIndex(index), entityIds, DeviceEventType.Measurement,
+		criteria.getStartDate(), criteria.getEndDate(), row -> {
+		    UDTValue udt = row.getUDTValue(CassandraDeviceMeasurement.FIELD_MEASUREMENT);
+		    aggregator.add(udt.getString(CassandraDeviceMeasurement.FIELD_MXNAME),
+			    row.getTimestamp(CassandraDeviceEvent.FIELD_EVENT_DATE),
+			    udt.getDouble(CassandraDeviceMeasurement.FIELD_MXVALUE));
+		});
+	return aggregator.getResults();
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.export.IDeviceEventExport#
+     * exportDeviceEventsForIndex(com.sitewhere.spi.device.event.DeviceEventIndex,
+     * java.util.List,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportHandler)
+     */
+    @Override
+    public long exportDeviceEventsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IDeviceEventExportCriteria criteria, IDeviceEventExportHandler handler) throws SiteWhereException {
+	long count = 0;
+	for (DeviceEventType type : DeviceEventManagementPersistence.getExportEventTypes(criteria)) {
+	    ICassandraEventBinder<? extends IDeviceEvent> binder = getBinderForEventType(type);
+	    count += getQueryEngine().scan(getQueryForIndex(index), entityIds, type, criteria.getStartDate(),
+		    criteria.getEndDate(), row -> {
+			handler.handle(binder.load(getCassandraEventManagementClient(), row));
+		    });
+	}
+	return count;
+    }
+
+    /**
+     * Get binder used to load events of the given type.
+     * 
+     * @param type
+     * @return
+     * @throws SiteWhereException
+     */
+    protected ICassandraEventBinder<? extends IDeviceEvent> getBinderForEventType(DeviceEventType type)
+	    throws SiteWhereException {
+	switch (type) {
+	case Measurement:
+	    return CassandraDeviceMeasurement.INSTANCE;
+	case Location:
+	    return CassandraDeviceLocation.INSTANCE;
+	case Alert:
+	    return CassandraDeviceAlert.INSTANCE;
+	case CommandInvocation:
+	    return CassandraDeviceCommandInvocation.INSTANCE;
+	case CommandResponse:
+	    return CassandraDeviceCommandResponse.INSTANCE;
+	case StateChange:
+	    return CassandraDeviceStateChange.INSTANCE;
+	default:
+	    throw new SiteWhereException("Event type not handled: " + type.name());
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
@@ -405,7 +503,6 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
      * 
      * @param index
      * @param entityIds
-     * @param eventType
      * @param criteria
      * @param binder
      * @return
@@ -414,20 +511,32 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     protected <I extends IDeviceEvent> ISearchResults<I> searchEventsByIndex(DeviceEventIndex index,
 	    List<UUID> entityIds, IDateRangeSearchCriteria criteria, ICassandraEventBinder<I> binder)
 	    throws SiteWhereException {
-	PreparedStatement query = getQueryForIndex(index);
-	Pager<I> pager = new Pager<>(criteria);
-	List<Integer> buckets = getBucketsForDateRange(criteria);
-	for (int bucket : buckets) {
-	    List<ResultSet> perBucket = listResultsForBucket(query, entityIds, criteria, binder.getEventType(), bucket);
-	    List<I> bucketEvents = new ArrayList<>();
-	    for (ResultSet perKey : perBucket) {
-		for (Row row : perKey) {
-		    bucketEvents.add(binder.load(getCassandraEventManagementClient(), row));
-		}
-	    }
-	    addSortedEventsToPager(pager, bucketEvents, bucket);
-	}
-	return new SearchResults<I>(pager.getResults(), pager.getTotal());
+	int skip = Math.max(0, criteria.getPageNumber() - 1) * criteria.getPageSize();
+	int limit = (criteria.getPageSize() == 0) ? Integer.MAX_VALUE : criteria.getPageSize();
+	CassandraEventPage<I> page = getQueryEngine().query(getQueryForIndex(index), entityIds, binder,
+		criteria.getStartDate(), criteria.getEndDate(), skip, limit, null);
+	return new SearchResults<I>(page.getResults(), page.getTotal());
+    }
+
+    /**
+     * Search events by a given index, continuing after the position encoded in a
+     * token returned by a previous call.
+     * 
+     * @param index
+     * @param entityIds
+     * @param startDate
+     * @param endDate
+     * @param pageSize
+     * @param continuationToken
+     * @param binder
+     * @return
+     * @throws SiteWhereException
+     */
+    public <I extends IDeviceEvent> CassandraEventPage<I> searchEventsByIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, Date startDate, Date endDate, int pageSize, String continuationToken,
+	    ICassandraEventBinder<I> binder) throws SiteWhereException {
+	return getQueryEngine().query(getQueryForIndex(index), entityIds, binder, startDate, endDate, 0, pageSize,
+		continuationToken);
     }
 
     /**
@@ -484,77 +593,6 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	throw new SiteWhereException("Index type not implemented: " + index.name());
     }
 
-    /**
-     * Find the list of buckets required to cover a given date range.
-     * 
-     * @param client
-     * @param criteria
-     * @return
-     */
-    protected List<Integer> getBucketsForDateRange(IDateRangeSearchCriteria criteria) {
-	long bucket = getClient().getBucketLengthInMs();
-	long current = criteria.getEndDate() != null ? criteria.getEndDate().getTime() : System.currentTimeMillis();
-	long start = criteria.getStartDate() != null ? criteria.getStartDate().getTime() : current - 1;
-	List<Integer> buckets = new ArrayList<>();
-	while (current >= start) {
-	    buckets.add(getClient().getBucketValue(current));
-	    current -= bucket;
-	}
-	getLogger().debug("Processing " + buckets.size() + " buckets.");
-	return buckets;
-    }
-
-    /**
-     * Perform parallel queries to get results for a single bucket.
-     * 
-     * @param keyField
-     * @param keys
-     * @param criteria
-     * @param eventType
-     * @param bucket
-     * @return
-     * @throws SiteWhereException
-     */
-    protected List<ResultSet> listResultsForBucket(PreparedStatement statement, List<UUID> keys,
-	    IDateRangeSearchCriteria criteria, DeviceEventType eventType, int bucket) throws SiteWhereException {
-	List<ResultSetFuture> futures = new ArrayList<>();
-	for (UUID key : keys) {
-	    BoundStatement query = statement.bind();
-	    query.setUUID(0, key);
-	    query.setByte(1, CassandraDeviceEvent.getIndicatorForEventType(eventType));
-	    query.setInt(2, bucket);
-	    query.setTimestamp(3, criteria.getStartDate());
-	    query.setTimestamp(4, criteria.getEndDate());
-	    ResultSetFuture resultSetFuture = getClient().getSession().executeAsync(query);
-	    futures.add(resultSetFuture);
-	}
-	List<ResultSet> results = new ArrayList<>();
-	for (ResultSetFuture future : futures) {
-	    results.add(future.getUninterruptibly());
-	}
-	return results;
-    }
-
-    /**
-     * Sort the list of device events, then add them to the pager.
-     * 
-     * @param pager
-     * @param events
-     */
-    protected <T extends IDeviceEvent> void addSortedEventsToPager(Pager<T> pager, List<T> events, int bucket) {
-	Collections.sort(events, new Comparator<T>() {
-
-	    @Override
-	    public int compare(IDeviceEvent o1, IDeviceEvent o2) {
-		return 1 - (o1.getEventDate().compareTo(o2.getEventDate()));
-	    }
-	});
-	for (T event : events) {
-	    pager.process(event);
-	}
-	getLogger().debug("Processed " + events.size() + " events for bucket " + bucket + ".");
-    }
-
     /**
      * Assert that a device assignment exists and throw an exception if not.
      * 
@@ -590,4 +628,24 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     protected void setCassandraEventManagementClient(CassandraEventManagementClient cassandraEventManagementClient) {
 	this.cassandraEventManagementClient = cassandraEventManagementClient;
     }
+
+    protected CassandraEventQueryEngine getQueryEngine() {
+	return queryEngine;
+    }
+
+    public int getMaxConcurrentQueries() {
+	return maxConcurrentQueries;
+    }
+
+    public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+	this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+
+    public boolean isExactResultCounts() {
+	return exactResultCounts;
+    }
+
+    public void setExactResultCounts(boolean exactResultCounts) {
+	this.exactResultCounts = exactResultCounts;
+    }
 }
\ No newline at end of file
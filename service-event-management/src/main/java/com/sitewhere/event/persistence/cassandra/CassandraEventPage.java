@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.cassandra;
+
+import java.util.List;
+
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+/**
+ * Page of events returned by {@link CassandraEventQueryEngine} along with a
+ * token that may be used to continue reading after the last event returned.
+ *
+ * @author Derek
+ *
+ * @param <I>
+ */
+public class CassandraEventPage<I extends IDeviceEvent> {
+
+    /** Events in page */
+    private List<I> results;
+
+    /** Total number of matches (may be a lower bound if not counted exactly) */
+    private long total;
+
+    /** Token for continuing after last result (null if no more results) */
+    private String continuationToken;
+
+    public CassandraEventPage(List<I> results, long total, String continuationToken) {
+	this.results = results;
+	this.total = total;
+	this.continuationToken = continuationToken;
+    }
+
+    public List<I> getResults() {
+	return results;
+    }
+
+    public long getTotal() {
+	return total;
+    }
+
+    public String getContinuationToken() {
+	return continuationToken;
+    }
+}
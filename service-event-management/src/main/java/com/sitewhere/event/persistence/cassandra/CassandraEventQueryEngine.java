@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.cassandra;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.sitewhere.cassandra.CassandraClient;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+/**
+ * Executes event queries that span multiple time buckets and index keys. Each
+ * (bucket, key) partition is already ordered by event date on the server, so
+ * partitions are queried concurrently (with bounded lookahead) and merged with
+ * a heap. Reading stops as soon as the requested page has been filled, so the
+ * cost of a query depends on the page requested rather than the date range.
+ * Totals are therefore one past the rows read when more results exist, unless
+ * exact counts are enabled.
+ *
+ * Continuation tokens encode the date of the last event returned along with
+ * the number of events already consumed at that date, allowing a caller to
+ * resume a scan without recomputing earlier pages.
+ *
+ * @author Derek
+ */
+public class CassandraEventQueryEngine {
+
+    /** Static logger instance */
+    private static Logger LOGGER = LoggerFactory.getLogger(CassandraEventQueryEngine.class);
+
+    /** Default number of partition queries issued ahead of the merge */
+    public static final int DEFAULT_MAX_CONCURRENT_QUERIES = 16;
+
+    /** Default number of rows fetched per partition page */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    /** Cassandra client */
+    private CassandraClient client;
+
+    /** Event management client */
+    private CassandraEventManagementClient eventClient;
+
+    /** Max partition queries in flight ahead of the merge */
+    private int maxConcurrentQueries = DEFAULT_MAX_CONCURRENT_QUERIES;
+
+    /** Max rows fetched per partition page */
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /** Indicates whether all matching rows are counted for result totals */
+    private boolean exactResultCounts = false;
+
+    public CassandraEventQueryEngine(CassandraClient client, CassandraEventManagementClient eventClient) {
+	this.client = client;
+	this.eventClient = eventClient;
+    }
+
+    /**
+     * Query a page of events across all buckets covering the date range for the
+     * given index keys.
+     *
+     * @param statement
+     * @param keys
+     * @param binder
+     * @param startDate
+     * @param endDate
+     * @param skip
+     * @param limit
+     * @param continuationToken
+     * @return
+     * @throws SiteWhereException
+     */
+    public <I extends IDeviceEvent> CassandraEventPage<I> query(PreparedStatement statement, List<UUID> keys,
+	    ICassandraEventBinder<I> binder, Date startDate, Date endDate, int skip, int limit,
+	    String continuationToken) throws SiteWhereException {
+	ContinuationToken resume = ContinuationToken.decode(continuationToken);
+	if (resume != null) {
+	    endDate = ((endDate == null) || resume.getEventDate().before(endDate)) ? resume.getEventDate() : endDate;
+	}
+
+	// Build the ordered list of partitions to read.
+	int fetchSize = (int) Math.max(1, Math.min(getFetchSize(), (long) skip + limit));
+	List<Partition> partitions = createPartitions(statement, keys, binder.getEventType(), startDate, endDate,
+		fetchSize);
+	Scan scan = new Scan(partitions);
+
+	List<I> results = new ArrayList<>();
+	long consumed = 0;
+	long lastDate = -1;
+	int sameDateCount = 0;
+	int lastResultSameDateCount = 0;
+	boolean more = false;
+	try {
+	    int b = 0;
+	    int index = 0;
+	    while (index < partitions.size()) {
+		// Open all partitions for the current bucket and merge them.
+		PriorityQueue<Partition> heap = new PriorityQueue<>();
+		while ((index < partitions.size()) && (partitions.get(index).getBucket() == b)) {
+		    Partition partition = partitions.get(index++);
+		    scan.open(partition);
+		    if (partition.hasRow()) {
+			heap.add(partition);
+		    }
+		}
+		b++;
+
+		while (!heap.isEmpty()) {
+		    Partition partition = heap.poll();
+		    Row row = partition.getRow();
+		    long date = row.getTimestamp(CassandraDeviceEvent.FIELD_EVENT_DATE).getTime();
+		    sameDateCount = (date == lastDate) ? sameDateCount + 1 : 1;
+		    lastDate = date;
+
+		    boolean skipped = (resume != null) && (date == resume.getEventDate().getTime())
+			    && (sameDateCount <= resume.getSameDateCount());
+		    if (!skipped) {
+			if (consumed >= skip && results.size() < limit) {
+			    results.add(binder.load(getEventClient(), row));
+			    lastResultSameDateCount = sameDateCount;
+			} else if (results.size() >= limit) {
+			    more = true;
+			    if (!isExactResultCounts()) {
+				break;
+			    }
+			}
+			consumed++;
+		    }
+		    if (partition.advance(fetchSize)) {
+			heap.add(partition);
+		    }
+		}
+		if (more && !isExactResultCounts()) {
+		    break;
+		}
+	    }
+	} finally {
+	    scan.close();
+	}
+
+	String token = null;
+	if (more && !results.isEmpty()) {
+	    Date last = results.get(results.size() - 1).getEventDate();
+	    token = new ContinuationToken(last, lastResultSameDateCount).encode();
+	}
+	LOGGER.debug("Event query read " + scan.getOpened() + " of " + partitions.size() + " partitions.");
+	long total = more && !isExactResultCounts() ? consumed + 1 : consumed;
+	return new CassandraEventPage<I>(results, total, token);
+    }
+
+    /**
+     * Read every row for the given index keys and date range, passing each to a
+     * handler. Rows are not merged, so they arrive ordered by date only within
+     * each partition. Used for aggregations and exports that need to see all
+     * rows without holding them in memory.
+     *
+     * @param statement
+     * @param keys
+     * @param eventType
+     * @param startDate
+     * @param endDate
+     * @param handler
+     * @return number of rows read
+     * @throws SiteWhereException
+     */
+    public long scan(PreparedStatement statement, List<UUID> keys, DeviceEventType eventType, Date startDate,
+	    Date endDate, RowHandler handler) throws SiteWhereException {
+	List<Partition> partitions = createPartitions(statement, keys, eventType, startDate, endDate, getFetchSize());
+	Scan scan = new Scan(partitions);
+	long count = 0;
+	try {
+	    for (Partition partition : partitions) {
+		scan.open(partition);
+		while (partition.hasRow()) {
+		    handler.handle(partition.getRow());
+		    count++;
+		    partition.advance(getFetchSize());
+		}
+	    }
+	} finally {
+	    scan.close();
+	}
+	return count;
+    }
+
+    /**
+     * Create partitions (most recent bucket first) for the given keys and date
+     * range.
+     *
+     * @param statement
+     * @param keys
+     * @param eventType
+     * @param startDate
+     * @param endDate
+     * @param fetchSize
+     * @return
+     * @throws SiteWhereException
+     */
+    private List<Partition> createPartitions(PreparedStatement statement, List<UUID> keys,
+	    DeviceEventType eventType, Date startDate, Date endDate, int fetchSize) throws SiteWhereException {
+	List<Partition> partitions = new ArrayList<>();
+	List<Integer> buckets = getBucketsForDateRange(startDate, endDate);
+	for (int b = 0; b < buckets.size(); b++) {
+	    for (UUID key : keys) {
+		BoundStatement query = statement.bind();
+		query.setUUID(0, key);
+		query.setByte(1, CassandraDeviceEvent.getIndicatorForEventType(eventType));
+		query.setInt(2, buckets.get(b));
+		query.setTimestamp(3, startDate);
+		query.setTimestamp(4, endDate);
+		query.setFetchSize(fetchSize);
+		partitions.add(new Partition(partitions.size(), b, query));
+	    }
+	}
+	return partitions;
+    }
+
+    /**
+     * Find the list of buckets required to cover a given date range (most recent
+     * first).
+     *
+     * @param startDate
+     * @param endDate
+     * @return
+     */
+    public List<Integer> getBucketsForDateRange(Date startDate, Date endDate) {
+	long bucket = getClient().getBucketLengthInMs();
+	long current = endDate != null ? endDate.getTime() : System.currentTimeMillis();
+	long start = startDate != null ? startDate.getTime() : current - 1;
+	List<Integer> buckets = new ArrayList<>();
+	while (current >= start) {
+	    buckets.add(getClient().getBucketValue(current));
+	    current -= bucket;
+	}
+	int first = getClient().getBucketValue(start);
+	if (!buckets.isEmpty() && (buckets.get(buckets.size() - 1) > first)) {
+	    buckets.add(first);
+	}
+	return buckets;
+    }
+
+    /**
+     * Receives rows read during a scan.
+     */
+    public static interface RowHandler {
+
+	/**
+	 * Handle a row.
+	 *
+	 * @param row
+	 * @throws SiteWhereException
+	 */
+	public void handle(Row row) throws SiteWhereException;
+    }
+
+    /**
+     * Tracks partition queries issued ahead of the merge.
+     */
+    private class Scan {
+
+	/** Partitions in read order */
+	private List<Partition> partitions;
+
+	/** Index of next partition to issue */
+	private int nextIssue = 0;
+
+	/** Number of partitions opened by the merge */
+	private int opened = 0;
+
+	public Scan(List<Partition> partitions) {
+	    this.partitions = partitions;
+	}
+
+	/**
+	 * Open a partition, issuing it (and lookahead partitions) if needed.
+	 *
+	 * @param partition
+	 */
+	public void open(Partition partition) {
+	    while (nextIssue <= partition.getIndex()) {
+		issue(partitions.get(nextIssue++));
+	    }
+	    partition.open();
+	    opened++;
+	    while ((nextIssue < partitions.size()) && (nextIssue - opened < getMaxConcurrentQueries())) {
+		issue(partitions.get(nextIssue++));
+	    }
+	}
+
+	/**
+	 * Cancel any queries issued ahead but never read.
+	 */
+	public void close() {
+	    for (int i = opened; i < nextIssue; i++) {
+		partitions.get(i).cancel();
+	    }
+	}
+
+	protected void issue(Partition partition) {
+	    partition.setFuture(getClient().getSession().executeAsync(partition.getStatement()));
+	}
+
+	public int getOpened() {
+	    return opened;
+	}
+    }
+
+    /**
+     * Ordered stream of rows for a single (bucket, key) partition.
+     */
+    private static class Partition implements Comparable<Partition> {
+
+	/** Position in read order (used for stable ordering on ties) */
+	private int index;
+
+	/** Index of bucket in bucket list */
+	private int bucket;
+
+	/** Query for partition */
+	private BoundStatement statement;
+
+	/** Future for first page */
+	private ResultSetFuture future;
+
+	/** Result set once available */
+	private ResultSet results;
+
+	/** Current row */
+	private Row row;
+
+	/** Event date for current row */
+	private long date;
+
+	public Partition(int index, int bucket, BoundStatement statement) {
+	    this.index = index;
+	    this.bucket = bucket;
+	    this.statement = statement;
+	}
+
+	public void open() {
+	    this.results = future.getUninterruptibly();
+	    this.future = null;
+	    advance(0);
+	}
+
+	public void cancel() {
+	    if (future != null) {
+		future.cancel(true);
+	    }
+	}
+
+	/**
+	 * Move to next row, prefetching the next page asynchronously when the
+	 * current one is running low.
+	 *
+	 * @param fetchSize
+	 * @return
+	 */
+	public boolean advance(int fetchSize) {
+	    if ((fetchSize > 0) && (!results.isFullyFetched())
+		    && (results.getAvailableWithoutFetching() == (fetchSize / 4))) {
+		results.fetchMoreResults();
+	    }
+	    this.row = results.one();
+	    if (row != null) {
+		this.date = row.getTimestamp(CassandraDeviceEvent.FIELD_EVENT_DATE).getTime();
+	    }
+	    return row != null;
+	}
+
+	public boolean hasRow() {
+	    return row != null;
+	}
+
+	/*
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(Partition other) {
+	    int result = Long.compare(other.date, date);
+	    return (result != 0) ? result : Integer.compare(index, other.index);
+	}
+
+	public int getIndex() {
+	    return index;
+	}
+
+	public int getBucket() {
+	    return bucket;
+	}
+
+	public BoundStatement getStatement() {
+	    return statement;
+	}
+
+	public void setFuture(ResultSetFuture future) {
+	    this.future = future;
+	}
+
+	public Row getRow() {
+	    return row;
+	}
+    }
+
+    /**
+     * Position from which a scan may be resumed.
+     */
+    private static class ContinuationToken {
+
+	/** Date of last event returned */
+	private Date eventDate;
+
+	/** Number of events at that date already consumed */
+	private int sameDateCount;
+
+	public ContinuationToken(Date eventDate, int sameDateCount) {
+	    this.eventDate = eventDate;
+	    this.sameDateCount = sameDateCount;
+	}
+
+	public String encode() {
+	    String value = eventDate.getTime() + ":" + sameDateCount;
+	    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static ContinuationToken decode(String token) throws SiteWhereException {
+	    if (token == null) {
+		return null;
+	    }
+	    try {
+		String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		String[] parts = value.split(":");
+		return new ContinuationToken(new Date(Long.parseLong(parts[0])), Integer.parseInt(parts[1]));
+	    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+		throw new SiteWhereException("Invalid continuation token: " + token, e);
+	    }
+	}
+
+	public Date getEventDate() {
+	    return eventDate;
+	}
+
+	public int getSameDateCount() {
+	    return sameDateCount;
+	}
+    }
+
+    public CassandraClient getClient() {
+	return client;
+    }
+
+    public CassandraEventManagementClient getEventClient() {
+	return eventClient;
+    }
+
+    public int getMaxConcurrentQueries() {
+	return maxConcurrentQueries;
+    }
+
+    public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+	this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+
+    public int getFetchSize() {
+	return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+	this.fetchSize = fetchSize;
+    }
+
+    public boolean isExactResultCounts() {
+	return exactResultCounts;
+    }
+
+    public void setExactResultCounts(boolean exactResultCounts) {
+	this.exactResultCounts = exactResultCounts;
+    }
+}
@@ -111,6 +111,32 @@ public class InfluxDbDeviceEvent {
 	return null;
     }
 
+    /**
+     * Get events for a list of ids in a single query.
+     * 
+     * @param eventIds
+     * @param client
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IDeviceEvent> getEventsByIds(List<UUID> eventIds, InfluxDbClient client)
+	    throws SiteWhereException {
+	if (eventIds.isEmpty()) {
+	    return new ArrayList<IDeviceEvent>();
+	}
+	StringBuilder where = new StringBuilder();
+	for (UUID eventId : eventIds) {
+	    if (where.length() > 0) {
+		where.append(" OR ");
+	    }
+	    where.append(EVENT_ID + "='" + eventId + "'");
+	}
+	Query query = new Query("SELECT * FROM " + InfluxDbDeviceEvent.COLLECTION_EVENTS + " where " + where.toString(),
+		client.getDatabase().getValue());
+	QueryResult response = client.getInflux().query(query, TimeUnit.MILLISECONDS);
+	return InfluxDbDeviceEvent.eventsOfType(response, IDeviceEvent.class);
+    }
+
     /**
      * Get an event by alternate id.
      * 
@@ -40,6 +40,9 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -59,7 +62,8 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
  * 
  * @author Derek
  */
-public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
+public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponent
+	implements IDeviceEventManagement, IDeviceMeasurementAggregation {
 
     /** Client */
     private InfluxDbClient client;
@@ -152,6 +156,16 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
 	return InfluxDbDeviceEvent.getEventById(eventId, getClient());
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceEventManagement#getDeviceEventsByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IDeviceEvent> getDeviceEventsByIds(List<UUID> eventIds) throws SiteWhereException {
+	return InfluxDbDeviceEvent.getEventsByIds(eventIds, getClient());
+    }
+
     /*
      * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
      * getDeviceEventByAlternateId(java.lang.String)
@@ -210,6 +224,18 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
 		IDeviceMeasurement.class);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List,
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria)
+     */
+    @Override
+    public List<IMeasurementAggregateSeries> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	return InfluxDbMeasurementAggregation.aggregate(index, entityIds, criteria, getClient());
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
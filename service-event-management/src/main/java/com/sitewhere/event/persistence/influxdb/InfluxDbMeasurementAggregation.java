@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.influxdb;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.influxdb.dto.Query;
+import org.influxdb.dto.QueryResult;
+import org.influxdb.dto.QueryResult.Result;
+import org.influxdb.dto.QueryResult.Series;
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.sitewhere.device.charting.MeasurementAggregator;
+import com.sitewhere.influxdb.InfluxDbClient;
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregateSeries;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.aggregation.MeasurementAggregateFunction;
+
+/**
+ * Aggregates measurements using InfluxDB <code>GROUP BY time()</code> queries.
+ * Measurement names are stored as fields rather than tags, so a query is issued
+ * per measurement name.
+ * 
+ * @author Derek
+ */
+public class InfluxDbMeasurementAggregation {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(InfluxDbMeasurementAggregation.class);
+
+    /**
+     * Aggregate measurements for an index.
+     * 
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @param client
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IMeasurementAggregateSeries> aggregate(DeviceEventIndex index, List<UUID> entityIds,
+	    IMeasurementAggregationCriteria criteria, InfluxDbClient client) throws SiteWhereException {
+	MeasurementAggregator.validate(criteria);
+	if (criteria.getStartDate() == null) {
+	    throw new SiteWhereException("Start date is required when aggregating InfluxDB measurements.");
+	}
+	String where = " where type='" + DeviceEventType.Measurement.name() + "' and "
+		+ InfluxDbDeviceEvent.buildInClause(index, entityIds) + buildDateRangeCriteria(criteria);
+	String database = client.getDatabase().getValue();
+
+	List<String> names = criteria.getMeasurementNames();
+	if ((names == null) || (names.isEmpty())) {
+	    names = getMeasurementNames(where, database, client);
+	}
+
+	List<MeasurementAggregateSeries> results = new ArrayList<>();
+	for (String name : names) {
+	    Query query = new Query("SELECT " + buildSelections(criteria) + " FROM "
+		    + InfluxDbDeviceEvent.COLLECTION_EVENTS + where + " and " + InfluxDbDeviceMeasurements.MX_NAME
+		    + "='" + escape(name) + "' GROUP BY time(" + criteria.getIntervalMs() + "ms) fill(none)", database);
+	    LOGGER.debug("Aggregate: " + query.getCommand());
+	    QueryResult response = client.getInflux().query(query, TimeUnit.MILLISECONDS);
+	    InfluxDbDeviceEvent.handleError(response);
+
+	    MeasurementAggregateSeries series = new MeasurementAggregateSeries(name);
+	    for (Result result : response.getResults()) {
+		if (result.getSeries() == null) {
+		    continue;
+		}
+		for (Series current : result.getSeries()) {
+		    for (List<Object> values : current.getValues()) {
+			Map<String, Object> row = InfluxDbDeviceEvent.getValueMap(current, values);
+			series.getEntries()
+				.add(MeasurementAggregator.createAggregate(criteria,
+					new Date(((Number) row.get("time")).longValue()), asLong(row.get("count")),
+					asDouble(row.get("min")), asDouble(row.get("max")),
+					asDouble(row.get("mean")), asDouble(row.get("last"))));
+		    }
+		}
+	    }
+	    if (!series.getEntries().isEmpty()) {
+		results.add(series);
+	    }
+	}
+	return MeasurementAggregator.finish(results, criteria);
+    }
+
+    /**
+     * Find distinct measurement names matching the query.
+     * 
+     * @param where
+     * @param database
+     * @param client
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static List<String> getMeasurementNames(String where, String database, InfluxDbClient client)
+	    throws SiteWhereException {
+	Query query = new Query("SELECT DISTINCT(" + InfluxDbDeviceMeasurements.MX_NAME + ") FROM "
+		+ InfluxDbDeviceEvent.COLLECTION_EVENTS + where, database);
+	QueryResult response = client.getInflux().query(query);
+	InfluxDbDeviceEvent.handleError(response);
+	List<String> names = new ArrayList<>();
+	for (Result result : response.getResults()) {
+	    if (result.getSeries() == null) {
+		continue;
+	    }
+	    for (Series series : result.getSeries()) {
+		for (List<Object> values : series.getValues()) {
+		    Object name = InfluxDbDeviceEvent.getValueMap(series, values).get("distinct");
+		    if (name != null) {
+			names.add(String.valueOf(name));
+		    }
+		}
+	    }
+	}
+	return names;
+    }
+
+    /**
+     * Build list of selections for requested functions.
+     * 
+     * @param criteria
+     * @return
+     */
+    protected static String buildSelections(IMeasurementAggregationCriteria criteria) {
+	Set<MeasurementAggregateFunction> functions = MeasurementAggregator.getFunctions(criteria);
+	String value = InfluxDbDeviceMeasurements.MX_VALUE;
+	List<String> selections = new ArrayList<>();
+	selections.add("count(" + value + ") as count");
+	if (functions.contains(MeasurementAggregateFunction.Min)) {
+	    selections.add("min(" + value + ") as min");
+	}
+	if (functions.contains(MeasurementAggregateFunction.Max)) {
+	    selections.add("max(" + value + ") as max");
+	}
+	if (functions.contains(MeasurementAggregateFunction.Avg)) {
+	    selections.add("mean(" + value + ") as mean");
+	}
+	if (functions.contains(MeasurementAggregateFunction.Last)) {
+	    selections.add("last(" + value + ") as last");
+	}
+	return String.join(", ", selections);
+    }
+
+    /**
+     * Build date range clause.
+     * 
+     * @param criteria
+     * @return
+     */
+    protected static String buildDateRangeCriteria(IMeasurementAggregationCriteria criteria) {
+	String clause = "";
+	if (criteria.getStartDate() != null) {
+	    clause += " and time >= '" + ISODateTimeFormat.dateTime().print(criteria.getStartDate().getTime()) + "'";
+	}
+	if (criteria.getEndDate() != null) {
+	    clause += " and time <= '" + ISODateTimeFormat.dateTime().print(criteria.getEndDate().getTime()) + "'";
+	}
+	return clause;
+    }
+
+    protected static String escape(String value) {
+	return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    protected static Long asLong(Object value) {
+	return (value != null) ? ((Number) value).longValue() : null;
+    }
+
+    protected static Double asDouble(Object value) {
+	return (value != null) ? ((Number) value).doubleValue() : null;
+    }
+}
@@ -27,7 +27,8 @@ import com.mongodb.client.model.WriteModel;
 import com.sitewhere.spi.SiteWhereException;
 
 /**
- * Buffers {@link Document} for bulk inserts.
+ * Buffers {@link Document} inserts and other {@link WriteModel} operations for
+ * bulk writes.
  * 
  * @author Derek
  */
@@ -42,8 +43,9 @@ public class DeviceEventBuffer implements IDeviceEventBuffer {
     /** Max number of milliseconds cache before sending */
     private static final int MAX_TIME_BEFORE_WRITE = 250;
 
-    /** Buffer of Documents to insert */
-    private BlockingQueue<Document> buffer = new ArrayBlockingQueue<Document>(MAX_QUEUE_SIZE);
+    /** Buffer of writes to execute */
+    private BlockingQueue<WriteModel<Document>> buffer = new ArrayBlockingQueue<WriteModel<Document>>(
+	    MAX_QUEUE_SIZE);
 
     /** Used to create the buffer sending thread */
     private ExecutorService executor;
@@ -84,15 +86,23 @@ public class DeviceEventBuffer implements IDeviceEventBuffer {
      * @see com.sitewhere.mongodb.device.IDeviceEventBuffer#add(org.bson.Document)
      */
     public void add(Document record) {
+	addWrite(new InsertOneModel<Document>(record));
+    }
+
+    /*
+     * @see com.sitewhere.event.persistence.mongodb.IDeviceEventBuffer#addWrite(com.
+     * mongodb.client.model.WriteModel)
+     */
+    public void addWrite(WriteModel<Document> write) {
 	try {
-	    buffer.put(record);
+	    buffer.put(write);
 	} catch (InterruptedException e) {
 	    LOGGER.error("Interrupted while trying to put data.", e);
 	}
     }
 
     /**
-     * Thread that sends {@link Document} inserts to MongoDB in batches.
+     * Thread that sends {@link WriteModel} operations to MongoDB in batches.
      * 
      * @author Derek
      */
@@ -108,9 +118,9 @@ public class DeviceEventBuffer implements IDeviceEventBuffer {
 
 		while (true) {
 		    try {
-			Document record = buffer.poll(MAX_TIME_BEFORE_WRITE, TimeUnit.MILLISECONDS);
-			if (record != null) {
-			    writes.add(new InsertOneModel<Document>(record));
+			WriteModel<Document> write = buffer.poll(MAX_TIME_BEFORE_WRITE, TimeUnit.MILLISECONDS);
+			if (write != null) {
+			    writes.add(write);
 			    count++;
 			}
 		    } catch (InterruptedException e) {
@@ -120,7 +130,7 @@ public class DeviceEventBuffer implements IDeviceEventBuffer {
 		    if ((count >= maxChunkSize) || ((System.currentTimeMillis() - lastPut) > MAX_TIME_BEFORE_WRITE)) {
 			if (count > 0) {
 			    try {
-				LOGGER.debug("Executing bulk insert of " + count + " event records.");
+				LOGGER.debug("Executing bulk write of " + count + " event records.");
 				events.bulkWrite(writes);
 			    } catch (MongoBulkWriteException e) {
 				LOGGER.error("Error during MongoDB bulk write.", e);
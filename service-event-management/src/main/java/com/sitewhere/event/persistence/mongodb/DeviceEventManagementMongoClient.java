@@ -24,6 +24,15 @@ public class DeviceEventManagementMongoClient extends MongoDbClient implements I
     /** Injected name used for events collection */
     private String eventsCollectionName = IDeviceEventManagementMongoClient.DEFAULT_EVENTS_COLLECTION_NAME;
 
+    /** Injected name used for measurement buckets collection */
+    private String measurementBucketsCollectionName = IDeviceEventManagementMongoClient.DEFAULT_MEASUREMENT_BUCKETS_COLLECTION_NAME;
+
+    /** Injected name used for measurement keys collection */
+    private String measurementKeysCollectionName = IDeviceEventManagementMongoClient.DEFAULT_MEASUREMENT_KEYS_COLLECTION_NAME;
+
+    /** Injected name used for measurement migration collection */
+    private String measurementMigrationCollectionName = IDeviceEventManagementMongoClient.DEFAULT_MEASUREMENT_MIGRATION_COLLECTION_NAME;
+
     public DeviceEventManagementMongoClient(MongoConfiguration configuration) {
 	super(configuration);
     }
@@ -37,6 +46,33 @@ public class DeviceEventManagementMongoClient extends MongoDbClient implements I
 	return getDatabase().getCollection(getEventsCollectionName());
     }
 
+    /*
+     * @see
+     * com.sitewhere.event.persistence.mongodb.IDeviceEventManagementMongoClient#
+     * getMeasurementBucketsCollection()
+     */
+    public MongoCollection<Document> getMeasurementBucketsCollection() throws SiteWhereException {
+	return getDatabase().getCollection(getMeasurementBucketsCollectionName());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.event.persistence.mongodb.IDeviceEventManagementMongoClient#
+     * getMeasurementKeysCollection()
+     */
+    public MongoCollection<Document> getMeasurementKeysCollection() throws SiteWhereException {
+	return getDatabase().getCollection(getMeasurementKeysCollectionName());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.event.persistence.mongodb.IDeviceEventManagementMongoClient#
+     * getMeasurementMigrationCollection()
+     */
+    public MongoCollection<Document> getMeasurementMigrationCollection() throws SiteWhereException {
+	return getDatabase().getCollection(getMeasurementMigrationCollectionName());
+    }
+
     public String getEventsCollectionName() {
 	return eventsCollectionName;
     }
@@ -44,4 +80,28 @@ public class DeviceEventManagementMongoClient extends MongoDbClient implements I
     public void setEventsCollectionName(String eventsCollectionName) {
 	this.eventsCollectionName = eventsCollectionName;
     }
+
+    public String getMeasurementBucketsCollectionName() {
+	return measurementBucketsCollectionName;
+    }
+
+    public void setMeasurementBucketsCollectionName(String measurementBucketsCollectionName) {
+	this.measurementBucketsCollectionName = measurementBucketsCollectionName;
+    }
+
+    public String getMeasurementKeysCollectionName() {
+	return measurementKeysCollectionName;
+    }
+
+    public void setMeasurementKeysCollectionName(String measurementKeysCollectionName) {
+	this.measurementKeysCollectionName = measurementKeysCollectionName;
+    }
+
+    public String getMeasurementMigrationCollectionName() {
+	return measurementMigrationCollectionName;
+    }
+
+    public void setMeasurementMigrationCollectionName(String measurementMigrationCollectionName) {
+	this.measurementMigrationCollectionName = measurementMigrationCollectionName;
+    }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ package com.sitewhere.event.persistence.mongodb;
 
 import org.bson.Document;
 
+import com.mongodb.client.model.WriteModel;
 import com.sitewhere.spi.SiteWhereException;
 
 /**
@@ -39,4 +40,12 @@ public interface IDeviceEventBuffer {
      * @throws SiteWhereException
      */
     public void add(Document put) throws SiteWhereException;
-}
\ No newline at end of file
+
+    /**
+     * Add an arbitrary {@link WriteModel} (e.g. an upsert) to the queue.
+     * 
+     * @param write
+     * @throws SiteWhereException
+     */
+    public void addWrite(WriteModel<Document> write) throws SiteWhereException;
+}
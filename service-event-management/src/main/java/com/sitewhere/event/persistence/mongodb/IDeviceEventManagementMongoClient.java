@@ -22,6 +22,15 @@ public interface IDeviceEventManagementMongoClient {
     /** Default collection name for SiteWhere events */
     public static final String DEFAULT_EVENTS_COLLECTION_NAME = "events";
 
+    /** Default collection name for time-bucketed measurements */
+    public static final String DEFAULT_MEASUREMENT_BUCKETS_COLLECTION_NAME = "measurementBuckets";
+
+    /** Default collection name for measurement bucket keys */
+    public static final String DEFAULT_MEASUREMENT_KEYS_COLLECTION_NAME = "measurementKeys";
+
+    /** Default collection name for measurement migration state */
+    public static final String DEFAULT_MEASUREMENT_MIGRATION_COLLECTION_NAME = "measurementMigration";
+
     /**
      * Collection for events.
      * 
@@ -29,4 +38,29 @@ public interface IDeviceEventManagementMongoClient {
      * @throws SiteWhereException
      */
     public MongoCollection<Document> getEventsCollection() throws SiteWhereException;
+
+    /**
+     * Collection for time-bucketed measurements.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    public MongoCollection<Document> getMeasurementBucketsCollection() throws SiteWhereException;
+
+    /**
+     * Collection for keys that map event ids and alternate ids to measurement
+     * buckets.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    public MongoCollection<Document> getMeasurementKeysCollection() throws SiteWhereException;
+
+    /**
+     * Collection for state of migration to measurement buckets.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    public MongoCollection<Document> getMeasurementMigrationCollection() throws SiteWhereException;
 }
@@ -8,14 +8,22 @@
 package com.sitewhere.event.persistence.mongodb;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bson.Document;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.IndexOptions;
+import com.sitewhere.device.charting.MeasurementAggregator;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.mongodb.IMongoConverterLookup;
@@ -26,6 +34,7 @@ import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
 import com.sitewhere.rest.model.device.event.DeviceLocation;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.rest.model.device.event.DeviceStateChange;
+import com.sitewhere.rest.model.search.DateRangeSearchCriteria;
 import com.sitewhere.rest.model.search.SearchResults;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
@@ -44,6 +53,12 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExport;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportHandler;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -62,11 +77,18 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
  * 
  * @author Derek
  */
-public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
+public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent
+	implements IDeviceEventManagement, IDeviceMeasurementAggregation, IDeviceEventExport {
 
     /** Converter lookup */
     private static IMongoConverterLookup LOOKUP = new MongoConverters();
 
+    /** Number of documents fetched per cursor batch during export */
+    private static final int EXPORT_BATCH_SIZE = 1000;
+
+    /** Interval at which measurement migration state is reloaded */
+    private static final long MIGRATION_STATE_CHECK_INTERVAL = 60 * 1000;
+
     /** Injected with global SiteWhere Mongo client */
     private IDeviceEventManagementMongoClient mongoClient;
 
@@ -79,6 +101,36 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     /** Maximum number of records to write in a chunk */
     private int bulkInsertMaxChunkSize = 200;
 
+    /** Indicates whether measurements are stored in time buckets */
+    private boolean useMeasurementBuckets = false;
+
+    /** Width of measurement bucket time window in seconds */
+    private int measurementBucketIntervalSecs = 3600;
+
+    /** Maximum number of samples stored in a single measurement bucket */
+    private int measurementBucketMaxSamples = 1000;
+
+    /** Indicates whether existing measurements are migrated to buckets on start */
+    private boolean migrateMeasurementsOnStart = false;
+
+    /** Indicates whether measurement documents are removed once migrated */
+    private boolean deleteMigratedMeasurements = false;
+
+    /** Indicates all measurement documents have been migrated to buckets */
+    private volatile boolean measurementMigrationComplete = false;
+
+    /** Id of last measurement document migrated to buckets */
+    private volatile UUID measurementMigrationCheckpoint;
+
+    /** Time migration state was last loaded */
+    private volatile long measurementMigrationCheckedAt;
+
+    /** Buffer used for measurement bucket upserts */
+    private IDeviceEventBuffer measurementBucketBuffer;
+
+    /** Executor used for measurement migration */
+    private ExecutorService migrationExecutor;
+
     public MongoDeviceEventManagement() {
 	super(LifecycleComponentType.DataStore);
     }
@@ -104,6 +156,20 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	} else {
 	    getLogger().info("MongoDB device event management is not using bulk inserts for events.");
 	}
+
+	// Support time-bucketed measurements.
+	if (isUseMeasurementBuckets()) {
+	    if (isUseBulkEventInserts()) {
+		this.measurementBucketBuffer = new DeviceEventBuffer(getMongoClient().getMeasurementBucketsCollection(),
+			getBulkInsertMaxChunkSize());
+		getMeasurementBucketBuffer().start();
+	    }
+	    getLogger().info("MongoDB device event management is storing measurements in "
+		    + getMeasurementBucketIntervalSecs() + " second buckets.");
+	    if (isMigrateMeasurementsOnStart()) {
+		startMeasurementMigration();
+	    }
+	}
     }
 
     /*
@@ -119,6 +185,42 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	if (getEventBuffer() != null) {
 	    getEventBuffer().stop();
 	}
+	if (getMeasurementBucketBuffer() != null) {
+	    getMeasurementBucketBuffer().stop();
+	}
+	if (migrationExecutor != null) {
+	    migrationExecutor.shutdownNow();
+	}
+    }
+
+    /**
+     * Migrate measurements stored as individual event documents into buckets on a
+     * background thread.
+     */
+    protected void startMeasurementMigration() {
+	MongoMeasurementBucketMigration migration;
+	try {
+	    migration = new MongoMeasurementBucketMigration(getMongoClient().getEventsCollection(),
+		    getMongoClient().getMeasurementBucketsCollection(), getMongoClient().getMeasurementKeysCollection(),
+		    getMongoClient().getMeasurementMigrationCollection(), getMeasurementBucketIntervalMs(),
+		    getMeasurementBucketMaxSamples(), getBulkInsertMaxChunkSize(), isDeleteMigratedMeasurements());
+	} catch (SiteWhereException e) {
+	    getLogger().error("Unable to access collections for measurement migration.", e);
+	    return;
+	}
+	migrationExecutor = Executors.newSingleThreadExecutor();
+	migrationExecutor.execute(new Runnable() {
+
+	    @Override
+	    public void run() {
+		try {
+		    migration.migrate();
+		    measurementMigrationCheckedAt = 0;
+		} catch (Throwable e) {
+		    getLogger().error("Measurement bucket migration failed.", e);
+		}
+	    }
+	});
     }
 
     /**
@@ -138,6 +240,66 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 		.append(MongoDeviceEvent.PROP_EVENT_TYPE, 1).append(MongoDeviceEvent.PROP_EVENT_DATE, -1));
 	getMongoClient().getEventsCollection().createIndex(new BasicDBObject(MongoDeviceEvent.PROP_ASSET_ID, 1)
 		.append(MongoDeviceEvent.PROP_EVENT_TYPE, 1).append(MongoDeviceEvent.PROP_EVENT_DATE, -1));
+	if (isUseMeasurementBuckets()) {
+	    ensureMeasurementBucketIndexes();
+	}
+    }
+
+    /**
+     * Ensure that indexes exist for the measurement buckets collection.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void ensureMeasurementBucketIndexes() throws SiteWhereException {
+	MongoCollection<Document> buckets = getMongoClient().getMeasurementBucketsCollection();
+	buckets.createIndex(new BasicDBObject(MongoMeasurementBucket.PROP_DEVICE_ASSIGNMENT_ID, 1)
+		.append(MongoMeasurementBucket.PROP_NAME, 1).append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+	buckets.createIndex(new BasicDBObject(MongoDeviceEvent.PROP_DEVICE_ASSIGNMENT_ID, 1)
+		.append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+	buckets.createIndex(new BasicDBObject(MongoDeviceEvent.PROP_CUSTOMER_ID, 1)
+		.append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+	buckets.createIndex(
+		new BasicDBObject(MongoDeviceEvent.PROP_AREA_ID, 1).append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+	buckets.createIndex(new BasicDBObject(MongoDeviceEvent.PROP_ASSET_ID, 1)
+		.append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+	buckets.createIndex(new BasicDBObject(MongoMeasurementBucket.PROP_SAMPLE_KEY_HASH, 1)
+		.append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+    }
+
+    /**
+     * Get query for measurements that are still stored as individual event
+     * documents or null if all have been migrated to buckets. Documents up to the
+     * migration checkpoint are already in buckets and are excluded.
+     * 
+     * @param index
+     * @param entityIds
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Document getLegacyMeasurementQuery(DeviceEventIndex index, List<UUID> entityIds)
+	    throws SiteWhereException {
+	long now = System.currentTimeMillis();
+	if ((!measurementMigrationComplete)
+		&& ((now - measurementMigrationCheckedAt) > MIGRATION_STATE_CHECK_INTERVAL)) {
+	    Document state = MongoMeasurementBucketMigration
+		    .getState(getMongoClient().getMeasurementMigrationCollection());
+	    if (state != null) {
+		measurementMigrationCheckpoint = (UUID) state.get(MongoMeasurementBucketMigration.PROP_LAST_ID);
+		measurementMigrationComplete = Boolean.TRUE
+			.equals(state.get(MongoMeasurementBucketMigration.PROP_COMPLETE));
+	    }
+	    measurementMigrationCheckedAt = now;
+	}
+	if (measurementMigrationComplete) {
+	    return null;
+	}
+	Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds))
+		.append(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+	UUID checkpoint = measurementMigrationCheckpoint;
+	if (checkpoint != null) {
+	    query.append(MongoDeviceEvent.PROP_ID, new Document("$gt", checkpoint));
+	}
+	return query;
     }
 
     /*
@@ -161,12 +323,46 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     public IDeviceEvent getDeviceEventById(UUID eventId) throws SiteWhereException {
 	Document query = new Document(MongoDeviceEvent.PROP_ID, eventId);
 	Document found = getMongoClient().getEventsCollection().find(query).first();
+	if ((found == null) && (isUseMeasurementBuckets())) {
+	    List<IDeviceEvent> matches = new ArrayList<>();
+	    findBucketedMeasurements(Collections.singleton(eventId), matches);
+	    return matches.isEmpty() ? null : matches.get(0);
+	}
 	if (found == null) {
 	    return null;
 	}
 	return MongoDeviceEventManagementPersistence.unmarshalEvent(found);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceEventManagement#getDeviceEventsByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IDeviceEvent> getDeviceEventsByIds(List<UUID> eventIds) throws SiteWhereException {
+	List<IDeviceEvent> results = new ArrayList<>();
+	if (eventIds.isEmpty()) {
+	    return results;
+	}
+	Set<UUID> missing = new HashSet<>(eventIds);
+	Document query = new Document(MongoDeviceEvent.PROP_ID, new Document("$in", eventIds));
+	MongoCursor<Document> cursor = getMongoClient().getEventsCollection().find(query).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		IDeviceEvent event = MongoDeviceEventManagementPersistence.unmarshalEvent(cursor.next());
+		missing.remove(event.getId());
+		results.add(event);
+	    }
+	} finally {
+	    cursor.close();
+	}
+	if ((!missing.isEmpty()) && (isUseMeasurementBuckets())) {
+	    findBucketedMeasurements(missing, results);
+	}
+	return results;
+    }
+
     /*
      * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
      * getDeviceEventByAlternateId(java.lang.String)
@@ -175,6 +371,9 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     public IDeviceEvent getDeviceEventByAlternateId(String alternateId) throws SiteWhereException {
 	Document query = new Document(MongoDeviceEvent.PROP_ALTERNATE_ID, alternateId);
 	Document found = getMongoClient().getEventsCollection().find(query).first();
+	if ((found == null) && (isUseMeasurementBuckets())) {
+	    return findBucketedMeasurementByAlternateId(alternateId);
+	}
 	if (found == null) {
 	    return null;
 	}
@@ -196,6 +395,23 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	    DeviceMeasurement measurements = DeviceEventManagementPersistence.deviceMeasurementCreateLogic(request,
 		    assignment);
 
+	    if (isUseMeasurementBuckets()) {
+		measurements
+			.setId(MongoMeasurementBucket.createSampleId(measurements, getMeasurementBucketIntervalMs()));
+		if (measurements.getAlternateId() != null) {
+		    MongoDeviceEventManagementPersistence.writeEvent(getMongoClient().getMeasurementKeysCollection(),
+			    MongoMeasurementBucket.createKeyUpsert(measurements.getAlternateId(), measurements,
+				    getMeasurementBucketIntervalMs()),
+			    false, null);
+		}
+		MongoDeviceEventManagementPersistence.writeEvent(getMongoClient().getMeasurementBucketsCollection(),
+			MongoMeasurementBucket.createUpsert(measurements, getMeasurementBucketIntervalMs(),
+				getMeasurementBucketMaxSamples()),
+			isUseBulkEventInserts(), getMeasurementBucketBuffer());
+		result.add(measurements);
+		continue;
+	    }
+
 	    MongoCollection<Document> events = getMongoClient().getEventsCollection();
 	    Document mObject = MongoDeviceMeasurement.toDocument(measurements, false);
 	    MongoDeviceEventManagementPersistence.insertEvent(events, mObject, isUseBulkEventInserts(),
@@ -214,6 +430,15 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     @Override
     public SearchResults<IDeviceMeasurement> listDeviceMeasurementsForIndex(DeviceEventIndex index,
 	    List<UUID> entityIds, IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	if (isUseMeasurementBuckets()) {
+	    Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds));
+	    Document legacy = getLegacyMeasurementQuery(index, entityIds);
+	    if (legacy == null) {
+		return MongoDeviceEventManagementPersistence
+			.searchMeasurementBuckets(getMongoClient().getMeasurementBucketsCollection(), query, criteria);
+	    }
+	    return searchMeasurementsWithLegacy(query, legacy, criteria);
+	}
 	MongoCollection<Document> events = getMongoClient().getEventsCollection();
 	Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds))
 		.append(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
@@ -222,6 +447,68 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	return MongoPersistence.search(IDeviceMeasurement.class, events, query, sort, criteria, LOOKUP);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List,
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria)
+     */
+    @Override
+    public List<IMeasurementAggregateSeries> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds));
+	if ((isUseMeasurementBuckets()) && (getLegacyMeasurementQuery(index, entityIds) != null)) {
+	    return MeasurementAggregator.aggregate(this, index, entityIds, criteria);
+	}
+	if (isUseMeasurementBuckets()) {
+	    return MongoMeasurementAggregation.aggregateBuckets(getMongoClient().getMeasurementBucketsCollection(),
+		    query, criteria);
+	}
+	query.append(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+	return MongoMeasurementAggregation.aggregateEvents(getMongoClient().getEventsCollection(), query, criteria);
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.export.IDeviceEventExport#
+     * exportDeviceEventsForIndex(com.sitewhere.spi.device.event.DeviceEventIndex,
+     * java.util.List,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportHandler)
+     */
+    @Override
+    public long exportDeviceEventsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IDeviceEventExportCriteria criteria, IDeviceEventExportHandler handler) throws SiteWhereException {
+	DateRangeSearchCriteria dates = new DateRangeSearchCriteria(1, 0, criteria.getStartDate(),
+		criteria.getEndDate());
+	List<String> types = new ArrayList<>();
+	boolean bucketed = false;
+	for (DeviceEventType type : DeviceEventManagementPersistence.getExportEventTypes(criteria)) {
+	    if ((type == DeviceEventType.Measurement) && (isUseMeasurementBuckets())) {
+		bucketed = true;
+	    } else {
+		types.add(type.name());
+	    }
+	}
+	long count = 0;
+	if (!types.isEmpty()) {
+	    Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds))
+		    .append(MongoDeviceEvent.PROP_EVENT_TYPE, new Document("$in", types));
+	    count += MongoDeviceEventManagementPersistence.exportEvents(getMongoClient().getEventsCollection(), query,
+		    dates, EXPORT_BATCH_SIZE, handler);
+	}
+	if (bucketed) {
+	    Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds));
+	    count += MongoDeviceEventManagementPersistence.exportMeasurementBuckets(
+		    getMongoClient().getMeasurementBucketsCollection(), query, dates, EXPORT_BATCH_SIZE, handler);
+	    Document legacy = getLegacyMeasurementQuery(index, entityIds);
+	    if (legacy != null) {
+		count += MongoDeviceEventManagementPersistence.exportEvents(getMongoClient().getEventsCollection(),
+			legacy, dates, EXPORT_BATCH_SIZE, handler);
+	    }
+	}
+	return count;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
@@ -451,6 +738,109 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	return assignment;
     }
 
+    /**
+     * Find measurements stored in buckets by id. Buckets are located from the id
+     * itself for ids created with the bucket encoding, otherwise from key
+     * documents.
+     * 
+     * @param ids
+     * @param results
+     * @throws SiteWhereException
+     */
+    protected void findBucketedMeasurements(Collection<UUID> ids, List<? super DeviceMeasurement> results)
+	    throws SiteWhereException {
+	List<Document> locations = new ArrayList<>();
+	List<UUID> referenced = new ArrayList<>();
+	for (UUID id : ids) {
+	    if (MongoMeasurementBucket.isBucketSampleId(id)) {
+		locations.add(MongoMeasurementBucket.getSampleIdQuery(id));
+	    } else {
+		referenced.add(id);
+	    }
+	}
+	if (!referenced.isEmpty()) {
+	    Document query = new Document(MongoDeviceEvent.PROP_ID, new Document("$in", referenced));
+	    MongoCursor<Document> cursor = getMongoClient().getMeasurementKeysCollection().find(query).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    locations.add(MongoMeasurementBucket.getKeyBucketQuery(cursor.next()));
+		}
+	    } finally {
+		cursor.close();
+	    }
+	}
+	if (locations.isEmpty()) {
+	    return;
+	}
+	Set<UUID> missing = new HashSet<>(ids);
+	MongoCursor<Document> cursor = getMongoClient().getMeasurementBucketsCollection()
+		.find(new Document("$or", locations)).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		MongoMeasurementBucket.findSamples(cursor.next(), MongoDeviceEvent.PROP_ID, missing, results);
+	    }
+	} finally {
+	    cursor.close();
+	}
+    }
+
+    /**
+     * Find a measurement stored in a bucket by alternate id using its key
+     * document.
+     * 
+     * @param alternateId
+     * @return
+     * @throws SiteWhereException
+     */
+    protected IDeviceMeasurement findBucketedMeasurementByAlternateId(String alternateId) throws SiteWhereException {
+	Document key = getMongoClient().getMeasurementKeysCollection()
+		.find(new Document(MongoDeviceEvent.PROP_ID, alternateId)).first();
+	if (key == null) {
+	    return null;
+	}
+	UUID sampleId = (UUID) key.get(MongoMeasurementBucket.PROP_KEY_SAMPLE_ID);
+	MongoCursor<Document> cursor = getMongoClient().getMeasurementBucketsCollection()
+		.find(MongoMeasurementBucket.getKeyBucketQuery(key)).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		IDeviceMeasurement found = MongoMeasurementBucket.findSample(cursor.next(), MongoDeviceEvent.PROP_ID,
+			sampleId);
+		if (found != null) {
+		    return found;
+		}
+	    }
+	} finally {
+	    cursor.close();
+	}
+	return null;
+    }
+
+    /**
+     * Search measurements in buckets and measurements not yet migrated from
+     * individual event documents. The leading results up to the end of the
+     * requested page are read from each collection and merged.
+     * 
+     * @param bucketQuery
+     * @param legacyQuery
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    protected SearchResults<IDeviceMeasurement> searchMeasurementsWithLegacy(Document bucketQuery,
+	    Document legacyQuery, IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	int needed = (criteria.getPageSize() == 0) ? 0
+		: (Math.max(1, criteria.getPageNumber()) * criteria.getPageSize());
+	DateRangeSearchCriteria leading = new DateRangeSearchCriteria(1, needed, criteria.getStartDate(),
+		criteria.getEndDate());
+	SearchResults<IDeviceMeasurement> bucketed = MongoDeviceEventManagementPersistence
+		.searchMeasurementBuckets(getMongoClient().getMeasurementBucketsCollection(), bucketQuery, leading);
+	MongoPersistence.addDateSearchCriteria(legacyQuery, MongoDeviceEvent.PROP_EVENT_DATE, leading);
+	Document sort = new Document(MongoDeviceEvent.PROP_EVENT_DATE, -1);
+	SearchResults<IDeviceMeasurement> legacy = MongoPersistence.search(IDeviceMeasurement.class,
+		getMongoClient().getEventsCollection(), legacyQuery, sort, leading, LOOKUP);
+	return MongoDeviceEventManagementPersistence.mergeMeasurementResults(bucketed, legacy, criteria);
+    }
+
     /**
      * Get field name associated with index.
      * 
@@ -515,6 +905,54 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	this.bulkInsertMaxChunkSize = bulkInsertMaxChunkSize;
     }
 
+    public boolean isUseMeasurementBuckets() {
+	return useMeasurementBuckets;
+    }
+
+    public void setUseMeasurementBuckets(boolean useMeasurementBuckets) {
+	this.useMeasurementBuckets = useMeasurementBuckets;
+    }
+
+    public int getMeasurementBucketIntervalSecs() {
+	return measurementBucketIntervalSecs;
+    }
+
+    public void setMeasurementBucketIntervalSecs(int measurementBucketIntervalSecs) {
+	this.measurementBucketIntervalSecs = measurementBucketIntervalSecs;
+    }
+
+    protected long getMeasurementBucketIntervalMs() {
+	return getMeasurementBucketIntervalSecs() * 1000L;
+    }
+
+    public int getMeasurementBucketMaxSamples() {
+	return measurementBucketMaxSamples;
+    }
+
+    public void setMeasurementBucketMaxSamples(int measurementBucketMaxSamples) {
+	this.measurementBucketMaxSamples = measurementBucketMaxSamples;
+    }
+
+    public boolean isMigrateMeasurementsOnStart() {
+	return migrateMeasurementsOnStart;
+    }
+
+    public void setMigrateMeasurementsOnStart(boolean migrateMeasurementsOnStart) {
+	this.migrateMeasurementsOnStart = migrateMeasurementsOnStart;
+    }
+
+    public boolean isDeleteMigratedMeasurements() {
+	return deleteMigratedMeasurements;
+    }
+
+    public void setDeleteMigratedMeasurements(boolean deleteMigratedMeasurements) {
+	this.deleteMigratedMeasurements = deleteMigratedMeasurements;
+    }
+
+    public IDeviceEventBuffer getMeasurementBucketBuffer() {
+	return measurementBucketBuffer;
+    }
+
     public IDeviceEventManagementMongoClient getMongoClient() {
 	return mongoClient;
     }
@@ -7,12 +7,26 @@
  */
 package com.sitewhere.event.persistence.mongodb;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 import org.bson.Document;
 
+import com.mongodb.MongoClientException;
 import com.mongodb.MongoCommandException;
 import com.mongodb.MongoTimeoutException;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.WriteModel;
 import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.rest.model.search.SearchResults;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.DeviceEventType;
 import com.sitewhere.spi.device.event.IDeviceAlert;
@@ -22,6 +36,9 @@ import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportHandler;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
+import com.sitewhere.spi.search.ISearchResults;
 
 public class MongoDeviceEventManagementPersistence extends MongoPersistence {
 
@@ -50,6 +67,263 @@ public class MongoDeviceEventManagementPersistence extends MongoPersistence {
 	}
     }
 
+    /**
+     * Execute a write (e.g. a measurement bucket upsert), taking into account
+     * whether the implementation is configured for bulk operations.
+     * 
+     * @param collection
+     * @param write
+     * @param bulk
+     * @param buffer
+     * @throws SiteWhereException
+     */
+    public static void writeEvent(MongoCollection<Document> collection, WriteModel<Document> write, boolean bulk,
+	    IDeviceEventBuffer buffer) throws SiteWhereException {
+	try {
+	    if (bulk) {
+		buffer.addWrite(write);
+	    } else {
+		collection.bulkWrite(Collections.singletonList(write));
+	    }
+	} catch (MongoCommandException e) {
+	    throw new SiteWhereException("Error during MongoDB write.", e);
+	} catch (MongoTimeoutException e) {
+	    throw new SiteWhereException("Connection to MongoDB lost.", e);
+	}
+    }
+
+    /**
+     * Search time-bucketed measurements and unpack the samples into a page of
+     * results ordered by event date (most recent first). Buckets are read in
+     * descending time order and reading stops as soon as no remaining bucket can
+     * contribute to the requested page.
+     * 
+     * @param buckets
+     * @param query
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public static SearchResults<IDeviceMeasurement> searchMeasurementBuckets(MongoCollection<Document> buckets,
+	    Document query, IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	try {
+	    addBucketDateCriteria(query, criteria);
+	    Document sort = new Document(MongoMeasurementBucket.PROP_BUCKET_START, -1);
+
+	    int offset = Math.max(0, criteria.getPageNumber() - 1) * criteria.getPageSize();
+	    int needed = (criteria.getPageSize() == 0) ? Integer.MAX_VALUE : offset + criteria.getPageSize();
+
+	    List<IDeviceMeasurement> matches = new ArrayList<IDeviceMeasurement>();
+	    MongoCursor<Document> cursor = buckets.find(query).sort(sort).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    Document bucket = cursor.next();
+		    if (matches.size() >= needed) {
+			sortByEventDate(matches);
+			matches.subList(needed, matches.size()).clear();
+			Date bucketEnd = (Date) bucket.get(MongoMeasurementBucket.PROP_BUCKET_END);
+			if (!bucketEnd.after(matches.get(needed - 1).getEventDate())) {
+			    break;
+			}
+		    }
+		    MongoMeasurementBucket.unpack(bucket, criteria.getStartDate(), criteria.getEndDate(), matches);
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    sortByEventDate(matches);
+
+	    List<IDeviceMeasurement> page = new ArrayList<IDeviceMeasurement>();
+	    if (offset < matches.size()) {
+		page.addAll(matches.subList(offset, Math.min(needed, matches.size())));
+	    }
+	    SearchResults<IDeviceMeasurement> results = new SearchResults<IDeviceMeasurement>(page);
+	    results.setNumResults(countBucketedSamples(buckets, query, criteria));
+	    return results;
+	} catch (MongoClientException e) {
+	    throw handleClientException(e);
+	}
+    }
+
+    /**
+     * Merge leading results of two measurement searches into the requested page,
+     * ordered by event date (most recent first). Measurements present in both are
+     * only included once. The total is approximate: it is the sum of both totals
+     * less the duplicates found in the leading results, so measurements present in
+     * both searches beyond those results are counted twice.
+     * 
+     * @param first
+     * @param second
+     * @param criteria
+     * @return
+     */
+    public static SearchResults<IDeviceMeasurement> mergeMeasurementResults(ISearchResults<IDeviceMeasurement> first,
+	    ISearchResults<IDeviceMeasurement> second, IDateRangeSearchCriteria criteria) {
+	List<IDeviceMeasurement> matches = new ArrayList<IDeviceMeasurement>(first.getResults());
+	Set<UUID> ids = new HashSet<UUID>();
+	for (IDeviceMeasurement mx : matches) {
+	    ids.add(mx.getId());
+	}
+	long duplicates = 0;
+	for (IDeviceMeasurement mx : second.getResults()) {
+	    if (ids.add(mx.getId())) {
+		matches.add(mx);
+	    } else {
+		duplicates++;
+	    }
+	}
+	sortByEventDate(matches);
+
+	int offset = Math.max(0, criteria.getPageNumber() - 1) * criteria.getPageSize();
+	int needed = (criteria.getPageSize() == 0) ? Integer.MAX_VALUE : offset + criteria.getPageSize();
+	List<IDeviceMeasurement> page = new ArrayList<IDeviceMeasurement>();
+	if (offset < matches.size()) {
+	    page.addAll(matches.subList(offset, Math.min(needed, matches.size())));
+	}
+	SearchResults<IDeviceMeasurement> results = new SearchResults<IDeviceMeasurement>(page);
+	results.setNumResults(first.getNumResults() + second.getNumResults() - duplicates);
+	return results;
+    }
+
+    /**
+     * Stream all events matching a query to an export handler. Documents are read
+     * with a cursor in batches and are not sorted, so no in-memory sort is needed
+     * on the server regardless of the number of matches.
+     * 
+     * @param events
+     * @param query
+     * @param criteria
+     * @param batchSize
+     * @param handler
+     * @return
+     * @throws SiteWhereException
+     */
+    public static long exportEvents(MongoCollection<Document> events, Document query,
+	    IDateRangeSearchCriteria criteria, int batchSize, IDeviceEventExportHandler handler)
+	    throws SiteWhereException {
+	try {
+	    addDateSearchCriteria(query, MongoDeviceEvent.PROP_EVENT_DATE, criteria);
+	    long count = 0;
+	    MongoCursor<Document> cursor = events.find(query).batchSize(batchSize).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    handler.handle(unmarshalEvent(cursor.next()));
+		    count++;
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    return count;
+	} catch (MongoClientException e) {
+	    throw handleClientException(e);
+	}
+    }
+
+    /**
+     * Stream all samples from time-bucketed measurements matching a query to an
+     * export handler. Samples are unpacked one bucket at a time.
+     * 
+     * @param buckets
+     * @param query
+     * @param criteria
+     * @param batchSize
+     * @param handler
+     * @return
+     * @throws SiteWhereException
+     */
+    public static long exportMeasurementBuckets(MongoCollection<Document> buckets, Document query,
+	    IDateRangeSearchCriteria criteria, int batchSize, IDeviceEventExportHandler handler)
+	    throws SiteWhereException {
+	try {
+	    addBucketDateCriteria(query, criteria);
+	    long count = 0;
+	    List<IDeviceMeasurement> samples = new ArrayList<IDeviceMeasurement>();
+	    MongoCursor<Document> cursor = buckets.find(query).batchSize(batchSize).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    samples.clear();
+		    MongoMeasurementBucket.unpack(cursor.next(), criteria.getStartDate(), criteria.getEndDate(),
+			    samples);
+		    for (IDeviceMeasurement sample : samples) {
+			handler.handle(sample);
+			count++;
+		    }
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    return count;
+	} catch (MongoClientException e) {
+	    throw handleClientException(e);
+	}
+    }
+
+    /**
+     * Count samples matching a bucket query. Without a date range the stored sample
+     * counts are summed, otherwise samples are filtered on the server.
+     * 
+     * @param buckets
+     * @param query
+     * @param criteria
+     * @return
+     */
+    protected static long countBucketedSamples(MongoCollection<Document> buckets, Document query,
+	    IDateRangeSearchCriteria criteria) {
+	List<Object> conditions = new ArrayList<Object>();
+	String sampleDate = "$$sample." + MongoDeviceEvent.PROP_EVENT_DATE;
+	if (criteria.getStartDate() != null) {
+	    conditions.add(new Document("$gte", Arrays.asList(sampleDate, criteria.getStartDate())));
+	}
+	if (criteria.getEndDate() != null) {
+	    conditions.add(new Document("$lte", Arrays.asList(sampleDate, criteria.getEndDate())));
+	}
+	Object count;
+	if (conditions.isEmpty()) {
+	    count = "$" + MongoMeasurementBucket.PROP_SAMPLE_COUNT;
+	} else {
+	    Document filter = new Document("input", "$" + MongoMeasurementBucket.PROP_SAMPLES).append("as", "sample")
+		    .append("cond", new Document("$and", conditions));
+	    count = new Document("$size", new Document("$filter", filter));
+	}
+	List<Document> pipeline = Arrays.asList(new Document("$match", query),
+		new Document("$group", new Document("_id", null).append("total", new Document("$sum", count))));
+	Document result = buckets.aggregate(pipeline).first();
+	if (result == null) {
+	    return 0;
+	}
+	return ((Number) result.get("total")).longValue();
+    }
+
+    /**
+     * Add criteria that limit buckets to those overlapping the given date range.
+     * 
+     * @param query
+     * @param criteria
+     */
+    protected static void addBucketDateCriteria(Document query, IDateRangeSearchCriteria criteria) {
+	if (criteria.getStartDate() != null) {
+	    query.append(MongoMeasurementBucket.PROP_BUCKET_END, new Document("$gt", criteria.getStartDate()));
+	}
+	if (criteria.getEndDate() != null) {
+	    query.append(MongoMeasurementBucket.PROP_BUCKET_START, new Document("$lte", criteria.getEndDate()));
+	}
+    }
+
+    /**
+     * Sort measurements by event date with most recent first.
+     * 
+     * @param measurements
+     */
+    protected static void sortByEventDate(List<IDeviceMeasurement> measurements) {
+	Collections.sort(measurements, new Comparator<IDeviceMeasurement>() {
+
+	    @Override
+	    public int compare(IDeviceMeasurement o1, IDeviceMeasurement o2) {
+		return o2.getEventDate().compareTo(o1.getEventDate());
+	    }
+	});
+    }
+
     /**
      * Marshal an {@link IDeviceEvent} into a {@link Document}.
      * 
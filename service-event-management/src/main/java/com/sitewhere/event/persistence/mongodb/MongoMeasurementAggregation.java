@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+
+import com.mongodb.MongoClientException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.sitewhere.device.charting.MeasurementAggregator;
+import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregateSeries;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.aggregation.MeasurementAggregateFunction;
+
+/**
+ * Builds MongoDB aggregation pipelines that group measurements into fixed-width
+ * time buckets on the server. Only one document per (measurement name, bucket)
+ * is returned to the caller.
+ * 
+ * @author Derek
+ */
+public class MongoMeasurementAggregation {
+
+    /** Group key for measurement name */
+    private static final String KEY_NAME = "n";
+
+    /** Group key for bucket start */
+    private static final String KEY_BUCKET = "b";
+
+    /** Field for count */
+    private static final String FIELD_COUNT = "count";
+
+    /** Field for minimum */
+    private static final String FIELD_MIN = "min";
+
+    /** Field for maximum */
+    private static final String FIELD_MAX = "max";
+
+    /** Field for average */
+    private static final String FIELD_AVG = "avg";
+
+    /** Field for last value */
+    private static final String FIELD_LAST = "last";
+
+    /**
+     * Aggregate measurements stored as individual event documents.
+     * 
+     * @param events
+     * @param query
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IMeasurementAggregateSeries> aggregateEvents(MongoCollection<Document> events, Document query,
+	    IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	MeasurementAggregator.validate(criteria);
+	addDateCriteria(query, MongoDeviceEvent.PROP_EVENT_DATE, criteria);
+	addNameCriteria(query, criteria);
+
+	List<Document> pipeline = new ArrayList<Document>();
+	pipeline.add(new Document("$match", query));
+	if (MeasurementAggregator.getFunctions(criteria).contains(MeasurementAggregateFunction.Last)) {
+	    pipeline.add(new Document("$sort", new Document(MongoDeviceEvent.PROP_EVENT_DATE, 1)));
+	}
+	pipeline.add(createGroup("$" + MongoDeviceEvent.PROP_EVENT_DATE, "$" + MongoDeviceMeasurement.PROP_VALUE,
+		criteria));
+	pipeline.add(new Document("$sort", new Document("_id." + KEY_BUCKET, 1)));
+	return execute(events, pipeline, criteria);
+    }
+
+    /**
+     * Aggregate measurements stored in time-bucketed documents. Samples are
+     * unwound on the server so that bucket intervals and aggregation intervals
+     * may differ.
+     * 
+     * @param buckets
+     * @param query
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IMeasurementAggregateSeries> aggregateBuckets(MongoCollection<Document> buckets,
+	    Document query, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	MeasurementAggregator.validate(criteria);
+	if (criteria.getStartDate() != null) {
+	    query.append(MongoMeasurementBucket.PROP_BUCKET_END, new Document("$gt", criteria.getStartDate()));
+	}
+	if (criteria.getEndDate() != null) {
+	    query.append(MongoMeasurementBucket.PROP_BUCKET_START, new Document("$lte", criteria.getEndDate()));
+	}
+	addNameCriteria(query, criteria);
+
+	List<Document> pipeline = new ArrayList<Document>();
+	pipeline.add(new Document("$match", query));
+	pipeline.add(new Document("$unwind", "$" + MongoMeasurementBucket.PROP_SAMPLES));
+	Document samples = new Document();
+	addDateCriteria(samples, MongoMeasurementBucket.PATH_SAMPLE_EVENT_DATE, criteria);
+	if (!samples.isEmpty()) {
+	    pipeline.add(new Document("$match", samples));
+	}
+	if (MeasurementAggregator.getFunctions(criteria).contains(MeasurementAggregateFunction.Last)) {
+	    pipeline.add(new Document("$sort", new Document(MongoMeasurementBucket.PATH_SAMPLE_EVENT_DATE, 1)));
+	}
+	pipeline.add(createGroup("$" + MongoMeasurementBucket.PATH_SAMPLE_EVENT_DATE,
+		"$" + MongoMeasurementBucket.PROP_SAMPLES + "." + MongoDeviceMeasurement.PROP_VALUE, criteria));
+	pipeline.add(new Document("$sort", new Document("_id." + KEY_BUCKET, 1)));
+	return execute(buckets, pipeline, criteria);
+    }
+
+    /**
+     * Create the group stage. Input is sorted by date when the last value is
+     * requested so that <code>$last</code> is well defined. Accumulators are only added for requested functions.
+     * 
+     * @param dateField
+     * @param valueField
+     * @param criteria
+     * @return
+     */
+    protected static Document createGroup(String dateField, String valueField,
+	    IMeasurementAggregationCriteria criteria) {
+	Document millis = new Document("$subtract", Arrays.asList(dateField, new Date(0)));
+	Document bucket = new Document("$subtract",
+		Arrays.asList(millis, new Document("$mod", Arrays.asList(millis, criteria.getIntervalMs()))));
+	Document id = new Document(KEY_NAME, "$" + MongoDeviceMeasurement.PROP_NAME).append(KEY_BUCKET, bucket);
+
+	Document group = new Document("_id", id);
+	Set<MeasurementAggregateFunction> functions = MeasurementAggregator.getFunctions(criteria);
+	group.append(FIELD_COUNT, new Document("$sum", 1));
+	if (functions.contains(MeasurementAggregateFunction.Min)) {
+	    group.append(FIELD_MIN, new Document("$min", valueField));
+	}
+	if (functions.contains(MeasurementAggregateFunction.Max)) {
+	    group.append(FIELD_MAX, new Document("$max", valueField));
+	}
+	if (functions.contains(MeasurementAggregateFunction.Avg)) {
+	    group.append(FIELD_AVG, new Document("$avg", valueField));
+	}
+	if (functions.contains(MeasurementAggregateFunction.Last)) {
+	    group.append(FIELD_LAST, new Document("$last", valueField));
+	}
+	return new Document("$group", group);
+    }
+
+    /**
+     * Execute pipeline and convert results into series.
+     * 
+     * @param collection
+     * @param pipeline
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static List<IMeasurementAggregateSeries> execute(MongoCollection<Document> collection,
+	    List<Document> pipeline, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	try {
+	    Map<String, MeasurementAggregateSeries> byName = new LinkedHashMap<String, MeasurementAggregateSeries>();
+	    MongoCursor<Document> cursor = collection.aggregate(pipeline).allowDiskUse(true).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    Document result = cursor.next();
+		    Document id = (Document) result.get("_id");
+		    String name = id.getString(KEY_NAME);
+		    MeasurementAggregateSeries series = byName.get(name);
+		    if (series == null) {
+			series = new MeasurementAggregateSeries(name);
+			byName.put(name, series);
+		    }
+		    Date bucketDate = new Date(((Number) id.get(KEY_BUCKET)).longValue());
+		    series.getEntries()
+			    .add(MeasurementAggregator.createAggregate(criteria, bucketDate,
+				    asLong(result.get(FIELD_COUNT)), asDouble(result.get(FIELD_MIN)),
+				    asDouble(result.get(FIELD_MAX)), asDouble(result.get(FIELD_AVG)),
+				    asDouble(result.get(FIELD_LAST))));
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    return MeasurementAggregator.finish(new ArrayList<MeasurementAggregateSeries>(byName.values()), criteria);
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Add date range criteria for a field.
+     * 
+     * @param query
+     * @param field
+     * @param criteria
+     */
+    protected static void addDateCriteria(Document query, String field, IMeasurementAggregationCriteria criteria) {
+	if ((criteria.getStartDate() == null) && (criteria.getEndDate() == null)) {
+	    return;
+	}
+	Document range = new Document();
+	if (criteria.getStartDate() != null) {
+	    range.append("$gte", criteria.getStartDate());
+	}
+	if (criteria.getEndDate() != null) {
+	    range.append("$lte", criteria.getEndDate());
+	}
+	query.append(field, range);
+    }
+
+    /**
+     * Limit query to requested measurement names.
+     * 
+     * @param query
+     * @param criteria
+     */
+    protected static void addNameCriteria(Document query, IMeasurementAggregationCriteria criteria) {
+	if ((criteria.getMeasurementNames() != null) && (!criteria.getMeasurementNames().isEmpty())) {
+	    query.append(MongoDeviceMeasurement.PROP_NAME, new Document("$in", criteria.getMeasurementNames()));
+	}
+    }
+
+    protected static Long asLong(Object value) {
+	return (value != null) ? ((Number) value).longValue() : null;
+    }
+
+    protected static Double asDouble(Object value) {
+	return (value != null) ? ((Number) value).doubleValue() : null;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.mongodb;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bson.Document;
+
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.sitewhere.mongodb.common.MongoMetadataProvider;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+
+/**
+ * Used to load or save time-bucketed device measurement data to MongoDB. Each
+ * bucket document holds all samples for a single device assignment and
+ * measurement name that fall within a fixed time window. Samples are appended
+ * with <code>$push</code> upserts so that index entries are maintained per
+ * bucket rather than per event.
+ * 
+ * Sample ids are generated so that the bucket holding a sample can be found
+ * from the id alone: the most significant bits hold the bucket start (in
+ * seconds) and a hash of the assignment and measurement name, marked as a
+ * version 8 (custom) UUID. Measurements that keep ids which do not follow this
+ * layout (migrated measurements) and measurements with alternate ids get a
+ * small key document that points at the bucket instead.
+ *
+ * @author Derek
+ */
+public class MongoMeasurementBucket {
+
+    /** Property for device assignment id (shared with event documents) */
+    public static final String PROP_DEVICE_ASSIGNMENT_ID = MongoDeviceEvent.PROP_DEVICE_ASSIGNMENT_ID;
+
+    /** Property for measurement name (shared with measurement documents) */
+    public static final String PROP_NAME = MongoDeviceMeasurement.PROP_NAME;
+
+    /** Property for start of bucket time window (inclusive) */
+    public static final String PROP_BUCKET_START = "bkst";
+
+    /** Property for end of bucket time window (exclusive) */
+    public static final String PROP_BUCKET_END = "bken";
+
+    /** Property for number of samples in bucket */
+    public static final String PROP_SAMPLE_COUNT = "smct";
+
+    /** Property for array of samples */
+    public static final String PROP_SAMPLES = "smpl";
+
+    /** Property for earliest sample date in bucket */
+    public static final String PROP_FIRST_DATE = "fsdt";
+
+    /** Property for latest sample date in bucket */
+    public static final String PROP_LAST_DATE = "lsdt";
+
+    /** Property for hash of assignment and measurement name encoded in sample ids */
+    public static final String PROP_SAMPLE_KEY_HASH = "skhs";
+
+    /** Property for sample id in key documents */
+    public static final String PROP_KEY_SAMPLE_ID = "sid";
+
+    /** Path used for projecting event ids within samples */
+    public static final String PATH_SAMPLE_ID = PROP_SAMPLES + "." + MongoDeviceEvent.PROP_ID;
+
+    /** Path used for matching sample event dates */
+    public static final String PATH_SAMPLE_EVENT_DATE = PROP_SAMPLES + "." + MongoDeviceEvent.PROP_EVENT_DATE;
+
+    /**
+     * Calculate start of bucket window that contains the given date.
+     *
+     * @param eventDate
+     * @param bucketIntervalMs
+     * @return
+     */
+    public static Date getBucketStart(Date eventDate, long bucketIntervalMs) {
+	long time = eventDate.getTime();
+	return new Date(time - Math.floorMod(time, bucketIntervalMs));
+    }
+
+    /**
+     * Create an id for a new sample that encodes the bucket it is stored in.
+     *
+     * @param source
+     * @param bucketIntervalMs
+     * @return
+     */
+    public static UUID createSampleId(IDeviceMeasurement source, long bucketIntervalMs) {
+	long start = getBucketStart(source.getEventDate(), bucketIntervalMs).getTime() / 1000;
+	long msb = (start << 32) | getSampleKeyHash(source.getDeviceAssignmentId(), source.getName()) | 0x8000L;
+	long lsb = (ThreadLocalRandom.current().nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+	return new UUID(msb, lsb);
+    }
+
+    /**
+     * Indicates whether an id was created by {@link #createSampleId}.
+     *
+     * @param id
+     * @return
+     */
+    public static boolean isBucketSampleId(UUID id) {
+	return (id.version() == 8) && (id.variant() == 2);
+    }
+
+    /**
+     * Get hash of assignment and measurement name in the form stored in bucket
+     * documents and sample ids (version bits cleared).
+     *
+     * @param deviceAssignmentId
+     * @param name
+     * @return
+     */
+    public static long getSampleKeyHash(UUID deviceAssignmentId, String name) {
+	int hash = 31 * deviceAssignmentId.hashCode() + ((name != null) ? name.hashCode() : 0);
+	return hash & 0xffff0fffL;
+    }
+
+    /**
+     * Get query for buckets that may hold the sample with the given id. Only valid
+     * for ids created by {@link #createSampleId}.
+     *
+     * @param id
+     * @return
+     */
+    public static Document getSampleIdQuery(UUID id) {
+	long msb = id.getMostSignificantBits();
+	return new Document(PROP_SAMPLE_KEY_HASH, msb & 0xffff0fffL).append(PROP_BUCKET_START,
+		new Date((msb >>> 32) * 1000));
+    }
+
+    /**
+     * Create an upsert for a key document that maps an event id or alternate id to
+     * the bucket holding the sample.
+     *
+     * @param key
+     * @param source
+     * @param bucketIntervalMs
+     * @return
+     */
+    public static ReplaceOneModel<Document> createKeyUpsert(Object key, IDeviceMeasurement source,
+	    long bucketIntervalMs) {
+	Document document = new Document(MongoDeviceEvent.PROP_ID, key)
+		.append(PROP_DEVICE_ASSIGNMENT_ID, source.getDeviceAssignmentId()).append(PROP_NAME, source.getName())
+		.append(PROP_BUCKET_START, getBucketStart(source.getEventDate(), bucketIntervalMs))
+		.append(PROP_KEY_SAMPLE_ID, source.getId());
+	return new ReplaceOneModel<Document>(new Document(MongoDeviceEvent.PROP_ID, key), document,
+		new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Get query for buckets referenced by a key document.
+     *
+     * @param key
+     * @return
+     */
+    public static Document getKeyBucketQuery(Document key) {
+	return new Document(PROP_DEVICE_ASSIGNMENT_ID, key.get(PROP_DEVICE_ASSIGNMENT_ID))
+		.append(PROP_NAME, key.get(PROP_NAME)).append(PROP_BUCKET_START, key.get(PROP_BUCKET_START));
+    }
+
+    /**
+     * Create the sample sub-document stored in the bucket array. Only fields that
+     * vary per event are stored at this level.
+     *
+     * @param source
+     * @return
+     */
+    public static Document toSample(IDeviceMeasurement source) {
+	Document sample = new Document();
+	sample.append(MongoDeviceEvent.PROP_ID, source.getId());
+	if (source.getAlternateId() != null) {
+	    sample.append(MongoDeviceEvent.PROP_ALTERNATE_ID, source.getAlternateId());
+	}
+	sample.append(MongoDeviceEvent.PROP_EVENT_DATE, source.getEventDate());
+	sample.append(MongoDeviceEvent.PROP_RECEIVED_DATE, source.getReceivedDate());
+	sample.append(MongoDeviceMeasurement.PROP_VALUE, source.getValue());
+	if ((source.getMetadata() != null) && (!source.getMetadata().isEmpty())) {
+	    MongoMetadataProvider.toDocument(source, sample);
+	}
+	return sample;
+    }
+
+    /**
+     * Create an upsert that appends a measurement to the matching bucket or creates
+     * a new bucket if none exists (or the existing bucket is full).
+     *
+     * @param source
+     * @param bucketIntervalMs
+     * @param maxSamplesPerBucket
+     * @return
+     */
+    public static UpdateOneModel<Document> createUpsert(IDeviceMeasurement source, long bucketIntervalMs,
+	    int maxSamplesPerBucket) {
+	Date start = getBucketStart(source.getEventDate(), bucketIntervalMs);
+	Date end = new Date(start.getTime() + bucketIntervalMs);
+
+	Document filter = new Document(PROP_DEVICE_ASSIGNMENT_ID, source.getDeviceAssignmentId())
+		.append(PROP_NAME, source.getName()).append(PROP_BUCKET_START, start)
+		.append(PROP_SAMPLE_COUNT, new Document("$lt", maxSamplesPerBucket));
+
+	Document onInsert = new Document(PROP_BUCKET_END, end)
+		.append(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name())
+		.append(MongoDeviceEvent.PROP_DEVICE_ID, source.getDeviceId())
+		.append(MongoDeviceEvent.PROP_CUSTOMER_ID, source.getCustomerId())
+		.append(MongoDeviceEvent.PROP_AREA_ID, source.getAreaId())
+		.append(MongoDeviceEvent.PROP_ASSET_ID, source.getAssetId());
+
+	Document update = new Document("$push", new Document(PROP_SAMPLES, toSample(source)))
+		.append("$inc", new Document(PROP_SAMPLE_COUNT, 1))
+		.append("$min", new Document(PROP_FIRST_DATE, source.getEventDate()))
+		.append("$max", new Document(PROP_LAST_DATE, source.getEventDate()))
+		.append("$set",
+			new Document(PROP_SAMPLE_KEY_HASH,
+				getSampleKeyHash(source.getDeviceAssignmentId(), source.getName())))
+		.append("$setOnInsert", onInsert);
+
+	return new UpdateOneModel<Document>(filter, update, new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Unpack a single sample from a bucket into a measurement.
+     *
+     * @param bucket
+     * @param sample
+     * @return
+     */
+    public static DeviceMeasurement fromSample(Document bucket, Document sample) {
+	DeviceMeasurement result = new DeviceMeasurement();
+	result.setEventType(DeviceEventType.Measurement);
+	result.setId((UUID) sample.get(MongoDeviceEvent.PROP_ID));
+	result.setAlternateId((String) sample.get(MongoDeviceEvent.PROP_ALTERNATE_ID));
+	result.setDeviceId((UUID) bucket.get(MongoDeviceEvent.PROP_DEVICE_ID));
+	result.setDeviceAssignmentId((UUID) bucket.get(PROP_DEVICE_ASSIGNMENT_ID));
+	result.setCustomerId((UUID) bucket.get(MongoDeviceEvent.PROP_CUSTOMER_ID));
+	result.setAreaId((UUID) bucket.get(MongoDeviceEvent.PROP_AREA_ID));
+	result.setAssetId((UUID) bucket.get(MongoDeviceEvent.PROP_ASSET_ID));
+	result.setEventDate((Date) sample.get(MongoDeviceEvent.PROP_EVENT_DATE));
+	result.setReceivedDate((Date) sample.get(MongoDeviceEvent.PROP_RECEIVED_DATE));
+	result.setName((String) bucket.get(PROP_NAME));
+	result.setValue((Double) sample.get(MongoDeviceMeasurement.PROP_VALUE));
+	MongoMetadataProvider.fromDocument(sample, result);
+	return result;
+    }
+
+    /**
+     * Unpack all samples from a bucket that fall within the given date range into
+     * the list of measurements. Null dates indicate an open range.
+     *
+     * @param bucket
+     * @param startDate
+     * @param endDate
+     * @param target
+     */
+    @SuppressWarnings("unchecked")
+    public static void unpack(Document bucket, Date startDate, Date endDate, List<IDeviceMeasurement> target) {
+	List<Document> samples = (List<Document>) bucket.get(PROP_SAMPLES);
+	if (samples == null) {
+	    return;
+	}
+	for (Document sample : samples) {
+	    Date eventDate = (Date) sample.get(MongoDeviceEvent.PROP_EVENT_DATE);
+	    if ((startDate != null) && (eventDate.before(startDate))) {
+		continue;
+	    }
+	    if ((endDate != null) && (eventDate.after(endDate))) {
+		continue;
+	    }
+	    target.add(fromSample(bucket, sample));
+	}
+    }
+
+    /**
+     * Find a sample in a bucket based on the value of a sample field.
+     *
+     * @param bucket
+     * @param field
+     * @param value
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static DeviceMeasurement findSample(Document bucket, String field, Object value) {
+	List<Document> samples = (List<Document>) bucket.get(PROP_SAMPLES);
+	if (samples == null) {
+	    return null;
+	}
+	for (Document sample : samples) {
+	    if (value.equals(sample.get(field))) {
+		return fromSample(bucket, sample);
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Add all samples in a bucket whose field value is in the given set to the
+     * list of results.
+     *
+     * @param bucket
+     * @param field
+     * @param values
+     * @param target
+     */
+    @SuppressWarnings("unchecked")
+    public static void findSamples(Document bucket, String field, Set<?> values,
+	    List<? super DeviceMeasurement> target) {
+	List<Document> samples = (List<Document>) bucket.get(PROP_SAMPLES);
+	if (samples == null) {
+	    return;
+	}
+	for (Document sample : samples) {
+	    if (values.contains(sample.get(field))) {
+		target.add(fromSample(bucket, sample));
+	    }
+	}
+    }
+}
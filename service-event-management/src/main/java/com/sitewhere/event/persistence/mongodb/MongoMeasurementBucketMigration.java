@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoClientException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
+
+/**
+ * Copies measurements stored as individual event documents into the
+ * time-bucketed measurement schema. Measurements are read in id order and
+ * written as chunked bulk upserts, with the id of the last measurement in each
+ * chunk saved as a checkpoint so that an interrupted migration resumes where it
+ * left off. Before a chunk is written, the buckets it targets are checked for
+ * samples that are already present, so a chunk that is re-applied after an
+ * interruption does not create duplicates. Each measurement gets a key document
+ * so that it can still be found by its original id.
+ * 
+ * Only one instance runs the migration at a time. The state document holds a
+ * lease that is renewed with every checkpoint and may be taken over by another
+ * instance once it expires. Source documents are only removed if configured.
+ *
+ * @author Derek
+ */
+public class MongoMeasurementBucketMigration {
+
+    /** Static logger instance */
+    private static Logger LOGGER = LoggerFactory.getLogger(MongoMeasurementBucketMigration.class);
+
+    /** Id of document holding migration state */
+    public static final String STATE_ID = "measurements";
+
+    /** Property indicating migration is complete */
+    public static final String PROP_COMPLETE = "cmpl";
+
+    /** Property for id of last migrated measurement */
+    public static final String PROP_LAST_ID = "last";
+
+    /** Property for number of measurements migrated */
+    public static final String PROP_MIGRATED = "mgct";
+
+    /** Property for instance holding the lease */
+    public static final String PROP_OWNER = "ownr";
+
+    /** Property for lease expiration date */
+    public static final String PROP_LEASE_EXPIRES = "lsex";
+
+    /** Time a lease is held without being renewed */
+    private static final long LEASE_MS = 5 * 60 * 1000;
+
+    /** MongoDB error code for duplicate keys */
+    private static final int DUPLICATE_KEY = 11000;
+
+    /** Interval at which progress is logged */
+    private static final int PROGRESS_INTERVAL = 100000;
+
+    /** Collection containing individual event documents */
+    private MongoCollection<Document> events;
+
+    /** Collection containing measurement buckets */
+    private MongoCollection<Document> buckets;
+
+    /** Collection containing measurement keys */
+    private MongoCollection<Document> keys;
+
+    /** Collection containing migration state */
+    private MongoCollection<Document> state;
+
+    /** Bucket interval in milliseconds */
+    private long bucketIntervalMs;
+
+    /** Maximum samples stored in a bucket */
+    private int maxSamplesPerBucket;
+
+    /** Number of measurements written per bulk operation */
+    private int chunkSize;
+
+    /** Indicates whether migrated event documents should be removed */
+    private boolean deleteMigrated;
+
+    /** Identifies this instance as lease owner */
+    private String owner = UUID.randomUUID().toString();
+
+    public MongoMeasurementBucketMigration(MongoCollection<Document> events, MongoCollection<Document> buckets,
+	    MongoCollection<Document> keys, MongoCollection<Document> state, long bucketIntervalMs,
+	    int maxSamplesPerBucket, int chunkSize, boolean deleteMigrated) {
+	this.events = events;
+	this.buckets = buckets;
+	this.keys = keys;
+	this.state = state;
+	this.bucketIntervalMs = bucketIntervalMs;
+	this.maxSamplesPerBucket = maxSamplesPerBucket;
+	this.chunkSize = chunkSize;
+	this.deleteMigrated = deleteMigrated;
+    }
+
+    /**
+     * Get the migration state document or null if no migration has been started.
+     * 
+     * @param state
+     * @return
+     */
+    public static Document getState(MongoCollection<Document> state) {
+	return state.find(new Document(MongoDeviceEvent.PROP_ID, STATE_ID)).first();
+    }
+
+    /**
+     * Migrate all measurement event documents into buckets. Returns without
+     * migrating if the migration is complete or running on another instance.
+     *
+     * @return number of measurements migrated
+     * @throws SiteWhereException
+     */
+    public long migrate() throws SiteWhereException {
+	try {
+	    Document current = acquireLease();
+	    if (current == null) {
+		LOGGER.info("Measurement bucket migration is running on another instance.");
+		return 0;
+	    }
+	    try {
+		if (Boolean.TRUE.equals(current.get(PROP_COMPLETE))) {
+		    return 0;
+		}
+		return migrateFrom((UUID) current.get(PROP_LAST_ID));
+	    } finally {
+		releaseLease();
+	    }
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Migrate measurements with ids after the given checkpoint.
+     * 
+     * @param checkpoint
+     * @return
+     * @throws SiteWhereException
+     */
+    protected long migrateFrom(UUID checkpoint) throws SiteWhereException {
+	long start = System.currentTimeMillis();
+	long migrated = 0;
+	Document query = new Document(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+	if (checkpoint != null) {
+	    query.append(MongoDeviceEvent.PROP_ID, new Document("$gt", checkpoint));
+	    LOGGER.info("Resuming measurement bucket migration after " + checkpoint + ".");
+	}
+	Document sort = new Document(MongoDeviceEvent.PROP_ID, 1);
+	List<DeviceMeasurement> chunk = new ArrayList<DeviceMeasurement>();
+	MongoCursor<Document> cursor = getEvents().find(query).sort(sort).batchSize(getChunkSize()).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		chunk.add(MongoDeviceMeasurement.fromDocument(cursor.next(), false));
+		if (chunk.size() >= getChunkSize()) {
+		    migrated += flush(chunk);
+		    if ((migrated % PROGRESS_INTERVAL) < getChunkSize()) {
+			LOGGER.info("Migrated " + migrated + " measurements to buckets.");
+		    }
+		}
+	    }
+	    migrated += flush(chunk);
+	} finally {
+	    cursor.close();
+	}
+	checkpoint(new Document(PROP_COMPLETE, true), 0);
+	LOGGER.info("Migrated " + migrated + " measurements to buckets in " + (System.currentTimeMillis() - start)
+		+ "ms.");
+	return migrated;
+    }
+
+    /**
+     * Write a chunk of bucket upserts and key documents, optionally remove the
+     * source documents and save a checkpoint. Samples already present in their
+     * bucket are not written again.
+     *
+     * @param chunk
+     * @return
+     * @throws SiteWhereException
+     */
+    protected int flush(List<DeviceMeasurement> chunk) throws SiteWhereException {
+	int count = chunk.size();
+	if (count == 0) {
+	    return 0;
+	}
+	Set<UUID> existing = findExistingSamples(chunk);
+	List<WriteModel<Document>> writes = new ArrayList<WriteModel<Document>>();
+	List<WriteModel<Document>> keyWrites = new ArrayList<WriteModel<Document>>();
+	List<UUID> ids = new ArrayList<UUID>();
+	for (DeviceMeasurement mx : chunk) {
+	    if (!existing.contains(mx.getId())) {
+		writes.add(MongoMeasurementBucket.createUpsert(mx, getBucketIntervalMs(), getMaxSamplesPerBucket()));
+	    }
+	    keyWrites.add(MongoMeasurementBucket.createKeyUpsert(mx.getId(), mx, getBucketIntervalMs()));
+	    if (mx.getAlternateId() != null) {
+		keyWrites.add(MongoMeasurementBucket.createKeyUpsert(mx.getAlternateId(), mx, getBucketIntervalMs()));
+	    }
+	    ids.add(mx.getId());
+	}
+	if (!writes.isEmpty()) {
+	    getBuckets().bulkWrite(writes);
+	}
+	getKeys().bulkWrite(keyWrites);
+	if (isDeleteMigrated()) {
+	    getEvents().deleteMany(new Document(MongoDeviceEvent.PROP_ID, new Document("$in", ids)));
+	}
+	checkpoint(new Document(PROP_LAST_ID, ids.get(ids.size() - 1)), count);
+	chunk.clear();
+	return count;
+    }
+
+    /**
+     * Find ids of measurements in a chunk that are already stored in buckets.
+     * Buckets are located by assignment, name and bucket start.
+     * 
+     * @param chunk
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<UUID> findExistingSamples(List<DeviceMeasurement> chunk) {
+	Set<Document> locations = new LinkedHashSet<Document>();
+	for (DeviceMeasurement mx : chunk) {
+	    locations.add(new Document(MongoMeasurementBucket.PROP_DEVICE_ASSIGNMENT_ID, mx.getDeviceAssignmentId())
+		    .append(MongoMeasurementBucket.PROP_NAME, mx.getName()).append(
+			    MongoMeasurementBucket.PROP_BUCKET_START,
+			    MongoMeasurementBucket.getBucketStart(mx.getEventDate(), getBucketIntervalMs())));
+	}
+	Set<UUID> existing = new HashSet<UUID>();
+	Document query = new Document("$or", new ArrayList<Document>(locations));
+	Document projection = new Document(MongoMeasurementBucket.PATH_SAMPLE_ID, 1);
+	MongoCursor<Document> cursor = getBuckets().find(query).projection(projection).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		List<Document> samples = (List<Document>) cursor.next().get(MongoMeasurementBucket.PROP_SAMPLES);
+		if (samples != null) {
+		    for (Document sample : samples) {
+			existing.add((UUID) sample.get(MongoDeviceEvent.PROP_ID));
+		    }
+		}
+	    }
+	} finally {
+	    cursor.close();
+	}
+	return existing;
+    }
+
+    /**
+     * Acquire the migration lease, creating the state document if needed.
+     * 
+     * @return state document or null if the lease is held by another instance
+     */
+    protected Document acquireLease() {
+	Date now = new Date();
+	Document filter = new Document(MongoDeviceEvent.PROP_ID, STATE_ID).append("$or",
+		Arrays.asList(new Document(PROP_OWNER, null), new Document(PROP_OWNER, getOwner()),
+			new Document(PROP_LEASE_EXPIRES, new Document("$lt", now))));
+	Document update = new Document("$set", new Document(PROP_OWNER, getOwner()).append(PROP_LEASE_EXPIRES,
+		new Date(now.getTime() + LEASE_MS)));
+	try {
+	    return getState().findOneAndUpdate(filter, update,
+		    new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+	} catch (MongoCommandException e) {
+	    if (e.getErrorCode() == DUPLICATE_KEY) {
+		return null;
+	    }
+	    throw e;
+	}
+    }
+
+    /**
+     * Save migration progress and renew the lease.
+     * 
+     * @param values
+     * @param migrated
+     * @throws SiteWhereException
+     */
+    protected void checkpoint(Document values, int migrated) throws SiteWhereException {
+	values.append(PROP_LEASE_EXPIRES, new Date(System.currentTimeMillis() + LEASE_MS));
+	Document update = new Document("$set", values).append("$inc", new Document(PROP_MIGRATED, migrated));
+	UpdateResult result = getState()
+		.updateOne(new Document(MongoDeviceEvent.PROP_ID, STATE_ID).append(PROP_OWNER, getOwner()), update);
+	if (result.getMatchedCount() == 0) {
+	    throw new SiteWhereException("Measurement bucket migration lease was taken over by another instance.");
+	}
+    }
+
+    /**
+     * Release the migration lease.
+     */
+    protected void releaseLease() {
+	getState().updateOne(new Document(MongoDeviceEvent.PROP_ID, STATE_ID).append(PROP_OWNER, getOwner()),
+		new Document("$unset", new Document(PROP_OWNER, "").append(PROP_LEASE_EXPIRES, "")));
+    }
+
+    public MongoCollection<Document> getEvents() {
+	return events;
+    }
+
+    public MongoCollection<Document> getBuckets() {
+	return buckets;
+    }
+
+    public MongoCollection<Document> getKeys() {
+	return keys;
+    }
+
+    public MongoCollection<Document> getState() {
+	return state;
+    }
+
+    public long getBucketIntervalMs() {
+	return bucketIntervalMs;
+    }
+
+    public int getMaxSamplesPerBucket() {
+	return maxSamplesPerBucket;
+    }
+
+    public int getChunkSize() {
+	return chunkSize;
+    }
+
+    public boolean isDeleteMigrated() {
+	return deleteMigrated;
+    }
+
+    public String getOwner() {
+	return owner;
+    }
+}
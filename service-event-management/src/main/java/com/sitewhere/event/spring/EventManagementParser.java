@@ -14,6 +14,7 @@ import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.xml.AbstractBeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.springframework.util.xml.DomUtils;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
 
 import com.sitewhere.cassandra.CassandraClient;
@@ -79,6 +80,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(MongoDeviceEventManagement.class);
 	    management.addPropertyReference("mongoClient", EventManagementBeans.BEAN_MONGODB_CLIENT);
+	    parseMongoMeasurementBucketAttributes(element, management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -94,6 +96,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(MongoDeviceEventManagement.class);
 	    management.addPropertyReference("mongoClient", EventManagementBeans.BEAN_MONGODB_CLIENT);
+	    parseMongoMeasurementBucketAttributes(element, management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -136,6 +139,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(CassandraDeviceEventManagement.class);
 	    management.addPropertyReference("client", EventManagementBeans.BEAN_CASSANDRA_CLIENT);
+	    parseCassandraQueryAttributes(element, management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -150,6 +154,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(CassandraDeviceEventManagement.class);
 	    management.addPropertyReference("client", EventManagementBeans.BEAN_CASSANDRA_CLIENT);
+	    parseCassandraQueryAttributes(element, management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -160,4 +165,46 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	}
 	}
     }
+
+    /**
+     * Parse attributes that control time-bucketed measurement storage in MongoDB.
+     * 
+     * @param element
+     * @param management
+     */
+    protected void parseMongoMeasurementBucketAttributes(Element element, BeanDefinitionBuilder management) {
+	Attr useMeasurementBuckets = element.getAttributeNode("useMeasurementBuckets");
+	if (useMeasurementBuckets != null) {
+	    management.addPropertyValue("useMeasurementBuckets", useMeasurementBuckets.getValue());
+	}
+	Attr measurementBucketIntervalSecs = element.getAttributeNode("measurementBucketIntervalSecs");
+	if (measurementBucketIntervalSecs != null) {
+	    management.addPropertyValue("measurementBucketIntervalSecs", measurementBucketIntervalSecs.getValue());
+	}
+	Attr measurementBucketMaxSamples = element.getAttributeNode("measurementBucketMaxSamples");
+	if (measurementBucketMaxSamples != null) {
+	    management.addPropertyValue("measurementBucketMaxSamples", measurementBucketMaxSamples.getValue());
+	}
+	Attr migrateMeasurementsOnStart = element.getAttributeNode("migrateMeasurementsOnStart");
+	if (migrateMeasurementsOnStart != null) {
+	    management.addPropertyValue("migrateMeasurementsOnStart", migrateMeasurementsOnStart.getValue());
+	}
+	Attr deleteMigratedMeasurements = element.getAttributeNode("deleteMigratedMeasurements");
+	if (deleteMigratedMeasurements != null) {
+	    management.addPropertyValue("deleteMigratedMeasurements", deleteMigratedMeasurements.getValue());
+	}
+    }
+
+    /**
+     * Parse attributes that control event queries in Cassandra.
+     * 
+     * @param element
+     * @param management
+     */
+    protected void parseCassandraQueryAttributes(Element element, BeanDefinitionBuilder management) {
+	Attr exactResultCounts = element.getAttributeNode("exactResultCounts");
+	if (exactResultCounts != null) {
+	    management.addPropertyValue("exactResultCounts", exactResultCounts.getValue());
+	}
+    }
 }
\ No newline at end of file
@@ -7,11 +7,15 @@
  */
 package com.sitewhere.sources;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.sitewhere.grpc.client.device.DeviceModelMarshaler;
+import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
 import com.sitewhere.rest.model.device.event.kafka.DeviceRegistrationPayload;
 import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
 import com.sitewhere.server.lifecycle.CompositeLifecycleStep;
@@ -182,6 +186,77 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
 	}
     }
 
+    /*
+     * @see com.sitewhere.sources.spi.IEventSourcesManager#handleDecodedEvents(java.
+     * lang.String, byte[], java.util.Map, java.util.List)
+     */
+    @Override
+    public void handleDecodedEvents(String sourceId, byte[] encoded, Map<String, Object> metadata,
+	    List<IDecodedDeviceRequest<?>> decoded) throws SiteWhereException {
+	if (!EventModelMarshaler.isGroupedPayloads() || (decoded.size() < 2)) {
+	    for (IDecodedDeviceRequest<?> request : decoded) {
+		handleDecodedEventSafely(sourceId, encoded, metadata, request);
+	    }
+	    return;
+	}
+
+	// Group event create requests by device, preserving order within a device.
+	Map<String, List<GInboundEventPayload>> byDevice = new LinkedHashMap<>();
+	for (IDecodedDeviceRequest<?> request : decoded) {
+	    if (request.getRequest() instanceof IDeviceEventCreateRequest) {
+		InboundEventPayload payload = new InboundEventPayload();
+		payload.setSourceId(sourceId);
+		payload.setDeviceToken(request.getDeviceToken());
+		payload.setOriginator(request.getOriginator());
+		payload.setEventCreateRequest((IDeviceEventCreateRequest) request.getRequest());
+		try {
+		    byDevice.computeIfAbsent(request.getDeviceToken(), token -> new ArrayList<>())
+			    .add(EventModelConverter.asGrpcInboundEventPayload(payload));
+		} catch (SiteWhereException e) {
+		    getLogger().error("Unable to handle decoded event.", e);
+		}
+	    } else {
+		handleDecodedEventSafely(sourceId, encoded, metadata, request);
+	    }
+	}
+	if (byDevice.isEmpty()) {
+	    return;
+	}
+	if (getDecodedEventsProducer().getLifecycleStatus() != LifecycleStatus.Started) {
+	    getLogger().warn("Producer not started. Unable to add decoded events to topic.");
+	    return;
+	}
+	for (Map.Entry<String, List<GInboundEventPayload>> entry : byDevice.entrySet()) {
+	    List<GInboundEventPayload> payloads = entry.getValue();
+	    try {
+		byte[] message = (payloads.size() == 1)
+			? EventModelMarshaler.buildInboundEventPayloadMessage(payloads.get(0))
+			: EventModelMarshaler.buildInboundEventPayloadsMessage(payloads);
+		getDecodedEventsProducer().send(entry.getKey(), message);
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to handle decoded events for device '" + entry.getKey() + "'.", e);
+	    }
+	}
+    }
+
+    /**
+     * Handle a single decoded request, logging any failure so that the other
+     * requests decoded from the same payload are still processed.
+     * 
+     * @param sourceId
+     * @param encoded
+     * @param metadata
+     * @param decoded
+     */
+    protected void handleDecodedEventSafely(String sourceId, byte[] encoded, Map<String, Object> metadata,
+	    IDecodedDeviceRequest<?> decoded) {
+	try {
+	    handleDecodedEvent(sourceId, encoded, metadata, decoded);
+	} catch (SiteWhereException e) {
+	    getLogger().error("Unable to handle decoded event.", e);
+	}
+    }
+
     /*
      * @see com.sitewhere.sources.spi.IEventSourcesManager#handleFailedDecode(java.
      * lang.String, byte[], java.util.Map, java.lang.Throwable)
@@ -12,6 +12,8 @@ import java.util.List;
 import java.util.Map;
 
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.sources.spi.EventDecodeException;
 import com.sitewhere.sources.spi.IDecodedDeviceRequest;
@@ -55,6 +57,12 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
     /** Meter for counting duplicate events */
     private Meter duplicates;
 
+    /** Timer for payload decode latency */
+    private Timer decodeTimer;
+
+    /** Timer for duplicate detection latency */
+    private Timer dedupTimer;
+
     public InboundEventSource() {
 	super(LifecycleComponentType.InboundEventSource);
     }
@@ -76,9 +84,11 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
 	}
 
 	// Set up metrics.
-	this.decodedEvents = createMeterMetric(getMetricPrefix() + "decodedEvents");
-	this.decodeFailures = createMeterMetric(getMetricPrefix() + "decodeFailures");
-	this.duplicates = createMeterMetric(getMetricPrefix() + "duplicates");
+	this.decodedEvents = createMeterMetric(getMetricName("decodedEvents"));
+	this.decodeFailures = createMeterMetric(getMetricName("decodeFailures"));
+	this.duplicates = createMeterMetric(getMetricName("duplicates"));
+	this.decodeTimer = createTimerMetric(getMetricName("decode"));
+	this.dedupTimer = createTimerMetric(getMetricName("dedup"));
 
 	// Initialize device event decoder.
 	initializeNestedComponent(getDeviceEventDecoder(), monitor, true);
@@ -96,12 +106,13 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
     }
 
     /**
-     * Get prefix appended to metrics.
+     * Get metric name tagged with the event source id.
      * 
+     * @param name
      * @return
      */
-    protected String getMetricPrefix() {
-	return getSourceId() + ".";
+    protected String getMetricName(String name) {
+	return MetricsUtils.tagged("eventSource." + name, "source", getSourceId());
     }
 
     /*
@@ -189,12 +200,16 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
     public void onEncodedEventReceived(IInboundEventReceiver<T> receiver, T encoded, Map<String, Object> metadata) {
 	List<IDecodedDeviceRequest<?>> requests = decodeEvent(encoded, metadata);
 	if (requests != null) {
+	    List<IDecodedDeviceRequest<?>> accepted = new ArrayList<>(requests.size());
 	    for (IDecodedDeviceRequest<?> decoded : requests) {
 		getDecodedEvents().mark();
 		if (shouldProcess(decoded)) {
-		    handleDecodedRequest(encoded, metadata, decoded);
+		    accepted.add(decoded);
 		}
 	    }
+	    if (!accepted.isEmpty()) {
+		handleDecodedRequests(encoded, metadata, accepted);
+	    }
 	}
     }
 
@@ -206,11 +221,14 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
      * @return
      */
     protected List<IDecodedDeviceRequest<?>> decodeEvent(T encoded, Map<String, Object> metadata) {
+	final Timer.Context context = getDecodeTimer().time();
 	try {
 	    return decodePayload(encoded, metadata);
 	} catch (EventDecodeException e) {
 	    onEventDecodeFailed(encoded, metadata, e);
 	    return null;
+	} finally {
+	    context.stop();
 	}
     }
 
@@ -222,9 +240,12 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
      * @return
      */
     protected boolean shouldProcess(IDecodedDeviceRequest<?> decoded) {
+	if (getDeviceEventDeduplicator() == null) {
+	    return true;
+	}
+	final Timer.Context context = getDedupTimer().time();
 	try {
-	    boolean isDuplicate = ((getDeviceEventDeduplicator() != null)
-		    && (getDeviceEventDeduplicator().isDuplicate(decoded)));
+	    boolean isDuplicate = getDeviceEventDeduplicator().isDuplicate(decoded);
 	    if (isDuplicate) {
 		getDuplicates().mark();
 		getLogger().info("Event not processed due to duplicate detected.");
@@ -233,20 +254,23 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
 	} catch (SiteWhereException e) {
 	    getLogger().error("Error determining whether request should be processed. Skipping.", e);
 	    return false;
+	} finally {
+	    context.stop();
 	}
     }
 
     /**
-     * Pass decoded events to the {@link IEventSourcesManager} for further
-     * processing.
+     * Pass events decoded from a payload to the {@link IEventSourcesManager} for
+     * further processing.
      * 
      * @param encoded
      * @param metadata
      * @param decoded
      */
-    protected void handleDecodedRequest(T encoded, Map<String, Object> metadata, IDecodedDeviceRequest<?> decoded) {
+    protected void handleDecodedRequests(T encoded, Map<String, Object> metadata,
+	    List<IDecodedDeviceRequest<?>> decoded) {
 	try {
-	    getEventSourcesManager().handleDecodedEvent(getSourceId(), getRawPayload(encoded), metadata, decoded);
+	    getEventSourcesManager().handleDecodedEvents(getSourceId(), getRawPayload(encoded), metadata, decoded);
 	} catch (SiteWhereException e) {
 	    getLogger().error("Unable to handle decoded event.", e);
 	}
@@ -345,6 +369,14 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
 	return duplicates;
     }
 
+    protected Timer getDecodeTimer() {
+	return decodeTimer;
+    }
+
+    protected Timer getDedupTimer() {
+	return dedupTimer;
+    }
+
     protected IEventSourcesManager getEventSourcesManager() {
 	return ((IEventSourcesTenantEngine) getTenantEngine()).getEventSourcesManager();
     }
@@ -23,6 +23,7 @@ import org.fusesource.mqtt.client.Topic;
 
 import com.codahale.metrics.Meter;
 import com.sitewhere.communication.mqtt.MqttLifecycleComponent;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.sources.messages.EventSourcesMessages;
 import com.sitewhere.sources.spi.IInboundEventReceiver;
 import com.sitewhere.sources.spi.IInboundEventSource;
@@ -87,7 +88,7 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
 	this.processorsExecutor = Executors.newFixedThreadPool(getNumThreads(), new ProcessorsThreadFactory());
 
 	// Set up metrics.
-	this.receivedEvents = createMeterMetric(getMetricPrefix() + "receivedEvents");
+	this.receivedEvents = createMeterMetric(getMetricName("receivedEvents"));
 
 	getLogger().info("Receiver connecting to MQTT broker at '" + getBrokerInfo() + "'...");
 	connection = getConnection();
@@ -128,12 +129,13 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
     }
 
     /**
-     * Get prefix appended to metrics.
+     * Get metric name tagged with the event source id.
      * 
+     * @param name
      * @return
      */
-    protected String getMetricPrefix() {
-	return getEventSource().getSourceId() + ".MqttEventReceiver.";
+    protected String getMetricName(String name) {
+	return MetricsUtils.tagged("eventSource.mqtt." + name, "source", getEventSource().getSourceId());
     }
 
     /*
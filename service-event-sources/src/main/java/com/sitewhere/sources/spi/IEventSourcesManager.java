@@ -63,6 +63,21 @@ public interface IEventSourcesManager extends ITenantEngineLifecycleComponent {
     public void handleDecodedEvent(String sourceId, byte[] encoded, Map<String, Object> metadata,
 	    IDecodedDeviceRequest<?> decoded) throws SiteWhereException;
 
+    /**
+     * Handle processing for all events decoded from a single payload. Events for
+     * the same device may be forwarded as a single grouped record. Failures are
+     * logged per request (or per device record) so that one failure does not
+     * drop the remaining requests.
+     * 
+     * @param sourceId
+     * @param encoded
+     * @param metadata
+     * @param decoded
+     * @throws SiteWhereException
+     */
+    public void handleDecodedEvents(String sourceId, byte[] encoded, Map<String, Object> metadata,
+	    List<IDecodedDeviceRequest<?>> decoded) throws SiteWhereException;
+
     /**
      * Handle failed decode from an event source.
      * 
@@ -8,6 +8,7 @@
 package com.sitewhere.inbound.kafka;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -49,6 +50,9 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
     /** Number of threads processing inbound events */
     private static final int CONCURRENT_EVENT_PROCESSING_THREADS = 10;
 
+    /** Maximum number of payloads enriched together */
+    private static final int ENRICHMENT_BATCH_SIZE = 100;
+
     /** Executor */
     private ExecutorService executor;
 
@@ -132,13 +136,32 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
     @Override
     public void attemptToProcess(TopicPartition topicPartition, List<ConsumerRecord<String, byte[]>> records)
 	    throws SiteWhereException {
+	List<byte[]> batch = new ArrayList<>();
 	for (ConsumerRecord<String, byte[]> record : records) {
-	    received(record.key(), record.value());
+	    batch.add(record.value());
+	    if (batch.size() == ENRICHMENT_BATCH_SIZE) {
+		received(batch);
+		batch = new ArrayList<>();
+	    }
+	}
+	if (!batch.isEmpty()) {
+	    received(batch);
 	}
     }
 
     public void received(String key, byte[] message) throws SiteWhereException {
-	executor.execute(new PersistedEventPayloadProcessor(getTenantEngine(), message));
+	received(Collections.singletonList(message));
+    }
+
+    /**
+     * Queue a batch of encoded payloads from a single partition to be enriched
+     * together.
+     * 
+     * @param messages
+     * @throws SiteWhereException
+     */
+    public void received(List<byte[]> messages) throws SiteWhereException {
+	executor.execute(new PersistedEventPayloadProcessor(getTenantEngine(), messages));
     }
 
     public OutboundPayloadEnrichmentLogic getOutboundPayloadEnrichmentLogic() {
@@ -150,16 +173,16 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
     }
 
     /**
-     * Processor that unmarshals a persisted event and processes it.
+     * Processor that unmarshals a batch of persisted events and processes them.
      * 
      * @author Derek
      */
     protected class PersistedEventPayloadProcessor extends SystemUserRunnable {
 
-	/** Encoded payload */
-	private byte[] encoded;
+	/** Encoded payloads */
+	private List<byte[]> encoded;
 
-	public PersistedEventPayloadProcessor(IMicroserviceTenantEngine tenantEngine, byte[] encoded) {
+	public PersistedEventPayloadProcessor(IMicroserviceTenantEngine tenantEngine, List<byte[]> encoded) {
 	    super(tenantEngine.getMicroservice(), tenantEngine.getTenant());
 	    this.encoded = encoded;
 	}
@@ -170,16 +193,24 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
 	 */
 	@Override
 	public void runAsSystemUser() throws SiteWhereException {
-	    try {
-		GPersistedEventPayload grpc = EventModelMarshaler.parsePersistedEventPayloadMessage(encoded);
-		if (getLogger().isDebugEnabled()) {
-		    PersistedEventPayload payload = EventModelConverter.asApiPersisedEventPayload(grpc);
-		    getLogger().debug(
-			    "Received persisted event payload:\n\n" + MarshalUtils.marshalJsonAsPrettyString(payload));
+	    List<GPersistedEventPayload> payloads = new ArrayList<>(encoded.size());
+	    for (byte[] message : encoded) {
+		try {
+		    GPersistedEventPayload grpc = EventModelMarshaler.parsePersistedEventPayloadMessage(message);
+		    if (getLogger().isDebugEnabled()) {
+			PersistedEventPayload payload = EventModelConverter.asApiPersisedEventPayload(grpc);
+			getLogger().debug("Received persisted event payload:\n\n"
+				+ MarshalUtils.marshalJsonAsPrettyString(payload));
+		    }
+		    payloads.add(grpc);
+		} catch (SiteWhereException e) {
+		    getLogger().error("Unable to parse persisted event payload.", e);
 		}
-		getOutboundPayloadEnrichmentLogic().process(grpc);
+	    }
+	    try {
+		getOutboundPayloadEnrichmentLogic().process(payloads);
 	    } catch (SiteWhereException e) {
-		getLogger().error("Unable to parse persisted event payload.", e);
+		getLogger().error("Unable to enrich persisted event payloads.", e);
 	    }
 	}
     }
@@ -12,13 +12,17 @@ import com.sitewhere.inbound.kafka.EnrichedCommandInvocationsProducer;
 import com.sitewhere.inbound.kafka.EnrichedEventsProducer;
 import com.sitewhere.inbound.kafka.PersistedEventsConsumer;
 import com.sitewhere.inbound.kafka.UnregisteredEventsProducer;
+import com.sitewhere.inbound.processing.ResolvedDeviceCache;
 import com.sitewhere.inbound.spi.kafka.IDecodedEventsConsumer;
 import com.sitewhere.inbound.spi.kafka.IEnrichedCommandInvocationsProducer;
 import com.sitewhere.inbound.spi.kafka.IEnrichedEventsProducer;
 import com.sitewhere.inbound.spi.kafka.IPersistedEventsConsumer;
 import com.sitewhere.inbound.spi.kafka.IUnregisteredEventsProducer;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
 import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
+import com.sitewhere.inbound.spi.processing.IResolvedDeviceCache;
+import com.sitewhere.microservice.cache.DeviceManagementCacheWarmer;
 import com.sitewhere.microservice.multitenant.MicroserviceTenantEngine;
 import com.sitewhere.server.lifecycle.CompositeLifecycleStep;
 import com.sitewhere.spi.SiteWhereException;
@@ -52,6 +56,12 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine impl
     /** Kafka producer for forwarding enriched command invocations */
     private IEnrichedCommandInvocationsProducer enrichedCommandInvocationsProducer;
 
+    /** Preloads device management caches */
+    private DeviceManagementCacheWarmer deviceManagementCacheWarmer;
+
+    /** Devices and assignments resolved during inbound processing */
+    private IResolvedDeviceCache resolvedDeviceCache = new ResolvedDeviceCache();
+
     public InboundProcessingTenantEngine(ITenant tenant) {
 	super(tenant);
     }
@@ -72,10 +82,15 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine impl
 	this.persistedEventsConsumer = new PersistedEventsConsumer();
 	this.enrichedEventsProducer = new EnrichedEventsProducer();
 	this.enrichedCommandInvocationsProducer = new EnrichedCommandInvocationsProducer();
+	this.deviceManagementCacheWarmer = new DeviceManagementCacheWarmer(
+		((IInboundProcessingMicroservice) getMicroservice()).getDeviceManagementApiDemux());
 
 	// Create step that will initialize components.
 	ICompositeLifecycleStep init = new CompositeLifecycleStep("Initialize " + getComponentName());
 
+	// Initialize device management cache warmer.
+	init.addInitializeStep(this, getDeviceManagementCacheWarmer(), true);
+
 	// Initialize decoded events consumer.
 	init.addInitializeStep(this, getDecodedEventsConsumer(), true);
 
@@ -104,6 +119,9 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine impl
 	// Create step that will start components.
 	ICompositeLifecycleStep start = new CompositeLifecycleStep("Start " + getComponentName());
 
+	// Start device management cache warmer.
+	start.addStartStep(this, getDeviceManagementCacheWarmer(), true);
+
 	// Start unregistered device events producer.
 	start.addStartStep(this, getUnregisteredDeviceEventsProducer(), true);
 
@@ -157,6 +175,9 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine impl
 	// Stop enriched command invocations producer.
 	stop.addStopStep(this, getEnrichedCommandInvocationsProducer());
 
+	// Stop device management cache warmer.
+	stop.addStopStep(this, getDeviceManagementCacheWarmer());
+
 	// Execute shutdown steps.
 	stop.execute(monitor);
     }
@@ -226,4 +247,25 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine impl
 	    IEnrichedCommandInvocationsProducer enrichedCommandInvocationsProducer) {
 	this.enrichedCommandInvocationsProducer = enrichedCommandInvocationsProducer;
     }
+
+    /*
+     * @see com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine#
+     * getResolvedDeviceCache()
+     */
+    @Override
+    public IResolvedDeviceCache getResolvedDeviceCache() {
+	return resolvedDeviceCache;
+    }
+
+    public void setResolvedDeviceCache(IResolvedDeviceCache resolvedDeviceCache) {
+	this.resolvedDeviceCache = resolvedDeviceCache;
+    }
+
+    public DeviceManagementCacheWarmer getDeviceManagementCacheWarmer() {
+	return deviceManagementCacheWarmer;
+    }
+
+    public void setDeviceManagementCacheWarmer(DeviceManagementCacheWarmer deviceManagementCacheWarmer) {
+	this.deviceManagementCacheWarmer = deviceManagementCacheWarmer;
+    }
 }
\ No newline at end of file
@@ -140,38 +140,43 @@ public class InboundPayloadProcessingLogic extends TenantEngineLifecycleComponen
     }
 
     /**
-     * Process a single record.
+     * Process a single record. Records may contain several events for a device.
      * 
      * @param record
      * @throws SiteWhereException
      */
     protected void processRecord(ConsumerRecord<String, byte[]> record) throws SiteWhereException {
-	GInboundEventPayload payload = decodeRequest(record);
-	IDeviceAssignment assignment = validateAssignment(payload);
-	if (assignment != null) {
-	    final Timer.Context eventStorageTime = getEventStorageTimer().time();
-	    try {
-		getEventStorageStrategy().storeDeviceEvent(assignment, payload);
-	    } finally {
-		eventStorageTime.stop();
+	for (GInboundEventPayload payload : decodeRequests(record)) {
+	    IDeviceAssignment assignment = validateAssignment(payload);
+	    if (assignment != null) {
+		final Timer.Context eventStorageTime = getEventStorageTimer().time();
+		try {
+		    getEventStorageStrategy().storeDeviceEvent(assignment, payload);
+		} finally {
+		    eventStorageTime.stop();
+		}
 	    }
 	}
     }
 
     /**
-     * Process an inbound payload into an assignment event create request.
+     * Process an inbound record into one or more inbound event payloads.
      * 
      * @param record
      * @return
      * @throws SiteWhereException
      */
-    protected GInboundEventPayload decodeRequest(ConsumerRecord<String, byte[]> record) throws SiteWhereException {
-	GInboundEventPayload message = EventModelMarshaler.parseInboundEventPayloadMessage(record.value());
+    protected List<GInboundEventPayload> decodeRequests(ConsumerRecord<String, byte[]> record)
+	    throws SiteWhereException {
+	List<GInboundEventPayload> messages = EventModelMarshaler.parseInboundEventPayloadsMessage(record.value());
 	if (getLogger().isDebugEnabled()) {
-	    InboundEventPayload payload = EventModelConverter.asApiInboundEventPayload(message);
-	    getLogger().debug("Received decoded event payload:\n\n" + MarshalUtils.marshalJsonAsPrettyString(payload));
+	    for (GInboundEventPayload message : messages) {
+		InboundEventPayload payload = EventModelConverter.asApiInboundEventPayload(message);
+		getLogger().debug(
+			"Received decoded event payload:\n\n" + MarshalUtils.marshalJsonAsPrettyString(payload));
+	    }
 	}
-	return message;
+	return messages;
     }
 
     /**
@@ -215,6 +220,8 @@ public class InboundPayloadProcessingLogic extends TenantEngineLifecycleComponen
 	    return null;
 	}
 
+	// Allow enrichment of persisted event to reuse references.
+	((IInboundProcessingTenantEngine) getTenantEngine()).getResolvedDeviceCache().put(device, assignment);
 	return assignment;
     }
 
@@ -7,6 +7,15 @@
  */
 package com.sitewhere.inbound.processing;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -16,6 +25,7 @@ import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
 import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
+import com.sitewhere.inbound.spi.processing.IResolvedDeviceCache.IResolvedDevice;
 import com.sitewhere.rest.model.device.event.DeviceEventContext;
 import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
 import com.sitewhere.spi.SiteWhereException;
@@ -29,12 +39,15 @@ import com.sitewhere.spi.device.event.IDeviceEvent;
  * Logic for taking a persisted event payload, enriching it with extra
  * device/assignment data, then forwarding it to a topic for further processing.
  * 
+ * Devices and assignments resolved by inbound processing are reused when still
+ * fresh. Payloads are enriched in batches so that any references which must be
+ * looked up are loaded with a single multi-get call per entity type.
+ * 
  * @author Derek
  */
 public class OutboundPayloadEnrichmentLogic {
 
     /** Static logger instance */
-    @SuppressWarnings("unused")
     private static Log LOGGER = LogFactory.getLog(OutboundPayloadEnrichmentLogic.class);
 
     /** Handle to inbound processing tenant engine */
@@ -52,19 +65,100 @@ public class OutboundPayloadEnrichmentLogic {
      * @throws SiteWhereException
      */
     public void process(GPersistedEventPayload payload) throws SiteWhereException {
-	IDeviceEvent event = EventModelConverter.asApiGenericDeviceEvent(payload.getEvent());
-	IDeviceAssignment assignment = getDeviceManagement().getDeviceAssignment(event.getDeviceAssignmentId());
-	if (assignment == null) {
-	    // TODO: Is there a separate topic for these events?
-	    throw new SiteWhereException("Event references non-existent device assignment.");
+	process(Collections.singletonList(payload));
+    }
+
+    /**
+     * Enrich and forward a batch of persisted event payloads. Events referencing
+     * assignments or devices that do not exist, or that can not be converted or
+     * sent, are logged and skipped without affecting the rest of the batch.
+     * 
+     * @param payloads
+     * @throws SiteWhereException
+     */
+    public void process(List<GPersistedEventPayload> payloads) throws SiteWhereException {
+	List<IDeviceEvent> events = new ArrayList<>(payloads.size());
+	for (GPersistedEventPayload payload : payloads) {
+	    try {
+		events.add(EventModelConverter.asApiGenericDeviceEvent(payload.getEvent()));
+	    } catch (SiteWhereException e) {
+		LOGGER.error("Unable to convert persisted event payload.", e);
+	    }
+	}
+	Map<UUID, IResolvedDevice> resolved = resolve(events);
+	for (IDeviceEvent event : events) {
+	    IResolvedDevice references = resolved.get(event.getDeviceAssignmentId());
+	    if (references == null) {
+		// TODO: Is there a separate topic for these events?
+		LOGGER.error("Event references non-existent device assignment or device: "
+			+ event.getDeviceAssignmentId());
+		continue;
+	    }
+	    try {
+		send(event, references.getDevice(), references.getAssignment());
+	    } catch (Throwable t) {
+		LOGGER.error("Unable to send enriched payload for event '" + event.getId() + "'.", t);
+	    }
+	}
+    }
+
+    /**
+     * Resolve devices and assignments for a batch of events. References resolved
+     * by inbound processing are used if available. Others are loaded with one
+     * multi-get call for assignments and one for devices.
+     * 
+     * @param events
+     * @return resolved references by assignment id
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IResolvedDevice> resolve(List<IDeviceEvent> events) throws SiteWhereException {
+	Map<UUID, IResolvedDevice> resolved = new HashMap<>();
+	Set<UUID> missing = new LinkedHashSet<>();
+	for (IDeviceEvent event : events) {
+	    UUID assignmentId = event.getDeviceAssignmentId();
+	    if ((assignmentId == null) || resolved.containsKey(assignmentId)) {
+		continue;
+	    }
+	    IResolvedDevice references = getTenantEngine().getResolvedDeviceCache().get(assignmentId);
+	    if (references != null) {
+		resolved.put(assignmentId, references);
+	    } else {
+		missing.add(assignmentId);
+	    }
+	}
+	if (missing.isEmpty()) {
+	    return resolved;
 	}
 
-	IDevice device = getDeviceManagement().getDevice(assignment.getDeviceId());
-	if (device == null) {
-	    // TODO: Is there a separate topic for these events?
-	    throw new SiteWhereException("Event references assignment for non-existent device.");
+	List<IDeviceAssignment> assignments = getDeviceManagement()
+		.getDeviceAssignmentsByIds(new ArrayList<>(missing));
+	Set<UUID> deviceIds = new LinkedHashSet<>();
+	for (IDeviceAssignment assignment : assignments) {
+	    deviceIds.add(assignment.getDeviceId());
+	}
+	Map<UUID, IDevice> devices = new HashMap<>();
+	for (IDevice device : getDeviceManagement().getDevicesByIds(new ArrayList<>(deviceIds))) {
+	    devices.put(device.getId(), device);
 	}
+	for (IDeviceAssignment assignment : assignments) {
+	    IDevice device = devices.get(assignment.getDeviceId());
+	    if (device != null) {
+		resolved.put(assignment.getId(), getTenantEngine().getResolvedDeviceCache().put(device, assignment));
+	    }
+	}
+	return resolved;
+    }
 
+    /**
+     * Build enriched payload for an event and send it to the enriched events
+     * topic.
+     * 
+     * @param event
+     * @param device
+     * @param assignment
+     * @throws SiteWhereException
+     */
+    protected void send(IDeviceEvent event, IDevice device, IDeviceAssignment assignment) throws SiteWhereException {
 	// Build event context.
 	DeviceEventContext context = new DeviceEventContext();
 	context.setDeviceId(device.getId());
@@ -83,7 +177,8 @@ public class OutboundPayloadEnrichmentLogic {
 	// Send enriched payload to topic.
 	GEnrichedEventPayload grpc = EventModelConverter.asGrpcEnrichedEventPayload(enriched);
 	byte[] message = EventModelMarshaler.buildEnrichedEventPayloadMessage(grpc);
-	getTenantEngine().getEnrichedEventsProducer().send(device.getToken(), message);
+	getTenantEngine().getEnrichedEventsProducer().send(device.getToken(), message,
+		Collections.singletonList(EventModelMarshaler.buildEventTypeHeader(event.getEventType())));
 
 	// Send enriched command invocations to topic.
 	if (event.getEventType() == DeviceEventType.CommandInvocation) {
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.inbound.processing;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sitewhere.inbound.spi.processing.IResolvedDeviceCache;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+
+/**
+ * Default {@link IResolvedDeviceCache} implementation. Entries are stamped
+ * with the time they were resolved and treated as stale once older than the
+ * maximum age, so changes to devices and assignments are picked up by lookups
+ * within a bounded time. When the cache grows beyond its maximum size, stale
+ * entries are purged and, if that is not enough, the cache is cleared.
+ * 
+ * @author Derek
+ */
+public class ResolvedDeviceCache implements IResolvedDeviceCache {
+
+    /** Default maximum age of entries */
+    private static final long DEFAULT_MAX_AGE_MS = 30 * 1000;
+
+    /** Default maximum number of entries */
+    private static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    /** Maximum age of entries */
+    private long maxAgeMs = DEFAULT_MAX_AGE_MS;
+
+    /** Maximum number of entries */
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /** Resolved references by assignment id */
+    private Map<UUID, ResolvedDevice> entries = new ConcurrentHashMap<>();
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.processing.IResolvedDeviceCache#put(com.sitewhere.
+     * spi.device.IDevice, com.sitewhere.spi.device.IDeviceAssignment)
+     */
+    @Override
+    public IResolvedDevice put(IDevice device, IDeviceAssignment assignment) {
+	if (entries.size() >= getMaxEntries()) {
+	    purge();
+	}
+	ResolvedDevice resolved = new ResolvedDevice(device, assignment, System.currentTimeMillis());
+	entries.put(assignment.getId(), resolved);
+	return resolved;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.processing.IResolvedDeviceCache#get(java.util.UUID)
+     */
+    @Override
+    public IResolvedDevice get(UUID assignmentId) {
+	if (assignmentId == null) {
+	    return null;
+	}
+	ResolvedDevice resolved = entries.get(assignmentId);
+	if ((resolved != null) && isStale(resolved, System.currentTimeMillis())) {
+	    entries.remove(assignmentId, resolved);
+	    return null;
+	}
+	return resolved;
+    }
+
+    /**
+     * Remove stale entries, clearing the cache if it is still full.
+     */
+    protected void purge() {
+	long now = System.currentTimeMillis();
+	for (Iterator<ResolvedDevice> it = entries.values().iterator(); it.hasNext();) {
+	    if (isStale(it.next(), now)) {
+		it.remove();
+	    }
+	}
+	if (entries.size() >= getMaxEntries()) {
+	    entries.clear();
+	}
+    }
+
+    /**
+     * Indicates whether an entry is too old to be used.
+     * 
+     * @param resolved
+     * @param now
+     * @return
+     */
+    protected boolean isStale(ResolvedDevice resolved, long now) {
+	return (now - resolved.getResolvedAt()) > getMaxAgeMs();
+    }
+
+    public long getMaxAgeMs() {
+	return maxAgeMs;
+    }
+
+    public void setMaxAgeMs(long maxAgeMs) {
+	this.maxAgeMs = maxAgeMs;
+    }
+
+    public int getMaxEntries() {
+	return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+	this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Device and assignment resolved at a point in time.
+     */
+    private static class ResolvedDevice implements IResolvedDevice {
+
+	/** Device */
+	private final IDevice device;
+
+	/** Device assignment */
+	private final IDeviceAssignment assignment;
+
+	/** Time references were resolved */
+	private final long resolvedAt;
+
+	public ResolvedDevice(IDevice device, IDeviceAssignment assignment, long resolvedAt) {
+	    this.device = device;
+	    this.assignment = assignment;
+	    this.resolvedAt = resolvedAt;
+	}
+
+	/*
+	 * @see com.sitewhere.inbound.spi.processing.IResolvedDeviceCache.
+	 * IResolvedDevice#getDevice()
+	 */
+	@Override
+	public IDevice getDevice() {
+	    return device;
+	}
+
+	/*
+	 * @see com.sitewhere.inbound.spi.processing.IResolvedDeviceCache.
+	 * IResolvedDevice#getAssignment()
+	 */
+	@Override
+	public IDeviceAssignment getAssignment() {
+	    return assignment;
+	}
+
+	/*
+	 * @see com.sitewhere.inbound.spi.processing.IResolvedDeviceCache.
+	 * IResolvedDevice#getResolvedAt()
+	 */
+	@Override
+	public long getResolvedAt() {
+	    return resolvedAt;
+	}
+    }
+}
@@ -12,6 +12,7 @@ import com.sitewhere.inbound.spi.kafka.IEnrichedCommandInvocationsProducer;
 import com.sitewhere.inbound.spi.kafka.IEnrichedEventsProducer;
 import com.sitewhere.inbound.spi.kafka.IPersistedEventsConsumer;
 import com.sitewhere.inbound.spi.kafka.IUnregisteredEventsProducer;
+import com.sitewhere.inbound.spi.processing.IResolvedDeviceCache;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
 
 /**
@@ -60,4 +61,11 @@ public interface IInboundProcessingTenantEngine extends IMicroserviceTenantEngin
      * @return
      */
     public IEnrichedCommandInvocationsProducer getEnrichedCommandInvocationsProducer();
+
+    /**
+     * Get cache of devices and assignments resolved during inbound processing.
+     * 
+     * @return
+     */
+    public IResolvedDeviceCache getResolvedDeviceCache();
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.inbound.spi.processing;
+
+import java.util.UUID;
+
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+
+/**
+ * Holds devices and assignments resolved while processing inbound events so
+ * that later stages handling the same events (such as outbound payload
+ * enrichment) can use them without looking them up again.
+ * 
+ * @author Derek
+ */
+public interface IResolvedDeviceCache {
+
+    /**
+     * Store a device and its assignment.
+     * 
+     * @param device
+     * @param assignment
+     * @return stored references
+     */
+    public IResolvedDevice put(IDevice device, IDeviceAssignment assignment);
+
+    /**
+     * Get device and assignment for an assignment id.
+     * 
+     * @param assignmentId
+     * @return resolved references or null if not present or stale
+     */
+    public IResolvedDevice get(UUID assignmentId);
+
+    /**
+     * Device and assignment resolved at a point in time.
+     * 
+     * @author Derek
+     */
+    public static interface IResolvedDevice {
+
+	/**
+	 * Get device.
+	 * 
+	 * @return
+	 */
+	public IDevice getDevice();
+
+	/**
+	 * Get device assignment.
+	 * 
+	 * @return
+	 */
+	public IDeviceAssignment getAssignment();
+
+	/**
+	 * Get time (in milliseconds) at which references were resolved.
+	 * 
+	 * @return
+	 */
+	public long getResolvedAt();
+    }
+}
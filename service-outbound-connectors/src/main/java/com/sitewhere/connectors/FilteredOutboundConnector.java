@@ -9,23 +9,41 @@ package com.sitewhere.connectors;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import com.sitewhere.connectors.filter.DeviceEventFilterChain;
 import com.sitewhere.connectors.spi.IDeviceEventFilter;
 import com.sitewhere.connectors.spi.IFilteredOutboundConnector;
+import com.sitewhere.microservice.security.SystemUserRunnable;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.kafka.IEnrichedEventPayload;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
 /**
- * Extends {@link OutboundConnector} with filtering functionality.
+ * Extends {@link OutboundConnector} with filtering functionality. Filters are
+ * compiled into a {@link DeviceEventFilterChain} when the connector starts.
+ * References used by filters are resolved at startup and refreshed
+ * periodically so that filtering an event does not require remote calls.
  * 
  * @author Derek
  */
 public abstract class FilteredOutboundConnector extends OutboundConnector implements IFilteredOutboundConnector {
 
+    /** Interval at which filter references are refreshed */
+    private static final long REFRESH_INTERVAL_SECS = 60;
+
     /** List of filters in order they should be applied */
     private List<IDeviceEventFilter> filters = new ArrayList<IDeviceEventFilter>();
 
+    /** Compiled filters */
+    private DeviceEventFilterChain filterChain;
+
+    /** Refreshes filter references */
+    private ScheduledExecutorService refresher;
+
     /*
      * @see
      * com.sitewhere.server.lifecycle.LifecycleComponent#initialize(com.sitewhere.
@@ -50,6 +68,13 @@ public abstract class FilteredOutboundConnector extends OutboundConnector implem
 	for (IDeviceEventFilter filter : getFilters()) {
 	    startNestedComponent(filter, monitor, true);
 	}
+	this.filterChain = new DeviceEventFilterChain(this, getConnectorId(), getFilters());
+	if (filterChain.size() > 0) {
+	    ReferenceRefresher refresh = new ReferenceRefresher();
+	    refresh.run();
+	    this.refresher = Executors.newSingleThreadScheduledExecutor(new RefresherThreadFactory());
+	    refresher.scheduleWithFixedDelay(refresh, REFRESH_INTERVAL_SECS, REFRESH_INTERVAL_SECS, TimeUnit.SECONDS);
+	}
     }
 
     /*
@@ -59,6 +84,10 @@ public abstract class FilteredOutboundConnector extends OutboundConnector implem
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (refresher != null) {
+	    refresher.shutdownNow();
+	    refresher = null;
+	}
 	for (IDeviceEventFilter filter : getFilters()) {
 	    stopNestedComponent(filter, monitor);
 	}
@@ -89,14 +118,20 @@ public abstract class FilteredOutboundConnector extends OutboundConnector implem
      * @throws SiteWhereException
      */
     protected boolean isFiltered(IEnrichedEventPayload payload) throws SiteWhereException {
-	for (IDeviceEventFilter filter : getFilters()) {
-	    if (filter.isFiltered(payload.getEventContext(), payload.getEvent())) {
-		getLogger().info(String.format("Event payload filtered for %s based on %s.",
-			payload.getEvent().getDeviceId().toString(), filter.getClass().getSimpleName()));
-		return true;
-	    }
+	DeviceEventFilterChain chain = getFilterChain();
+	if (chain == null) {
+	    chain = new DeviceEventFilterChain(this, getConnectorId(), getFilters());
+	    this.filterChain = chain;
+	}
+	IDeviceEventFilter filter = chain.evaluate(payload.getEventContext(), payload.getEvent());
+	if (filter == null) {
+	    return false;
+	}
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug(String.format("Event payload filtered for %s based on %s.",
+		    payload.getEvent().getDeviceId().toString(), filter.getClass().getSimpleName()));
 	}
-	return false;
+	return true;
     }
 
     /*
@@ -109,5 +144,41 @@ public abstract class FilteredOutboundConnector extends OutboundConnector implem
 
     public void setFilters(List<IDeviceEventFilter> filters) {
 	this.filters = filters;
+	this.filterChain = null;
+    }
+
+    public DeviceEventFilterChain getFilterChain() {
+	return filterChain;
+    }
+
+    /**
+     * Resolves filter references as the system user for the tenant.
+     */
+    private class ReferenceRefresher extends SystemUserRunnable {
+
+	public ReferenceRefresher() {
+	    super(getTenantEngine().getMicroservice(), getTenantEngine().getTenant());
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#runAsSystemUser()
+	 */
+	@Override
+	public void runAsSystemUser() throws SiteWhereException {
+	    DeviceEventFilterChain chain = getFilterChain();
+	    if (chain != null) {
+		chain.resolveReferences();
+	    }
+	}
+    }
+
+    /** Used for naming filter refresh threads */
+    private class RefresherThreadFactory implements ThreadFactory {
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, "Filter Refresh " + getConnectorId());
+	    thread.setDaemon(true);
+	    return thread;
+	}
     }
 }
\ No newline at end of file
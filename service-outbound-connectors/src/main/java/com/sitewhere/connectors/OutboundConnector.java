@@ -29,12 +29,42 @@ public abstract class OutboundConnector extends TenantEngineLifecycleComponent i
     /** Default number of threads used for processing */
     private static final int DEFAULT_NUM_PROCESSING_THREADS = 2;
 
+    /** Default number of batches queued for processing threads */
+    private static final int DEFAULT_MAX_QUEUED_BATCHES = 100;
+
+    /** Default consecutive failures before batches are spilled */
+    private static final int DEFAULT_BULKHEAD_FAILURE_THRESHOLD = 5;
+
+    /** Default time before processing is retried after failures */
+    private static final long DEFAULT_BULKHEAD_OPEN_MS = 30 * 1000;
+
+    /** Default spilled batches resubmitted per second */
+    private static final int DEFAULT_SPILL_DRAIN_RATE = 20;
+
+    /** Default maximum size of spilled data */
+    private static final int DEFAULT_MAX_SPILL_MEGABYTES = 1024;
+
     /** Unqiue connector id */
     private String connectorId;
 
     /** Number of threads used for processing events */
     private int numProcessingThreads = DEFAULT_NUM_PROCESSING_THREADS;
 
+    /** Number of batches queued for processing threads */
+    private int maxQueuedBatches = DEFAULT_MAX_QUEUED_BATCHES;
+
+    /** Consecutive failures before batches are spilled */
+    private int bulkheadFailureThreshold = DEFAULT_BULKHEAD_FAILURE_THRESHOLD;
+
+    /** Time before processing is retried after failures */
+    private long bulkheadOpenMs = DEFAULT_BULKHEAD_OPEN_MS;
+
+    /** Spilled batches resubmitted per second */
+    private int spillDrainRate = DEFAULT_SPILL_DRAIN_RATE;
+
+    /** Maximum size of spilled data */
+    private int maxSpillMegabytes = DEFAULT_MAX_SPILL_MEGABYTES;
+
     public OutboundConnector() {
 	super(LifecycleComponentType.OutboundConnector);
     }
@@ -64,6 +94,67 @@ public abstract class OutboundConnector extends TenantEngineLifecycleComponent i
 	this.numProcessingThreads = numProcessingThreads;
     }
 
+    /*
+     * @see com.sitewhere.connectors.spi.IOutboundConnector#getMaxQueuedBatches()
+     */
+    @Override
+    public int getMaxQueuedBatches() {
+	return maxQueuedBatches;
+    }
+
+    public void setMaxQueuedBatches(int maxQueuedBatches) {
+	this.maxQueuedBatches = maxQueuedBatches;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.connectors.spi.IOutboundConnector#getBulkheadFailureThreshold()
+     */
+    @Override
+    public int getBulkheadFailureThreshold() {
+	return bulkheadFailureThreshold;
+    }
+
+    public void setBulkheadFailureThreshold(int bulkheadFailureThreshold) {
+	this.bulkheadFailureThreshold = bulkheadFailureThreshold;
+    }
+
+    /*
+     * @see com.sitewhere.connectors.spi.IOutboundConnector#getBulkheadOpenMs()
+     */
+    @Override
+    public long getBulkheadOpenMs() {
+	return bulkheadOpenMs;
+    }
+
+    public void setBulkheadOpenMs(long bulkheadOpenMs) {
+	this.bulkheadOpenMs = bulkheadOpenMs;
+    }
+
+    /*
+     * @see com.sitewhere.connectors.spi.IOutboundConnector#getSpillDrainRate()
+     */
+    @Override
+    public int getSpillDrainRate() {
+	return spillDrainRate;
+    }
+
+    public void setSpillDrainRate(int spillDrainRate) {
+	this.spillDrainRate = spillDrainRate;
+    }
+
+    /*
+     * @see com.sitewhere.connectors.spi.IOutboundConnector#getMaxSpillMegabytes()
+     */
+    @Override
+    public int getMaxSpillMegabytes() {
+	return maxSpillMegabytes;
+    }
+
+    public void setMaxSpillMegabytes(int maxSpillMegabytes) {
+	this.maxSpillMegabytes = maxSpillMegabytes;
+    }
+
     /*
      * @see
      * com.sitewhere.connectors.spi.IOutboundConnector#handleFailedBatch(java.util.
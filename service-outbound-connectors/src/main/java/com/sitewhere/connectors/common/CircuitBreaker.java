@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.common;
+
+/**
+ * Circuit breaker for a downstream endpoint. After a number of consecutive
+ * failures the breaker opens and requests are rejected without being sent.
+ * Once the open interval passes, a single probe request is allowed through.
+ * The breaker closes if the probe succeeds and opens again if it fails.
+ *
+ * @author Derek
+ */
+public class CircuitBreaker {
+
+    /** Breaker states */
+    public static enum State {
+	Closed, Open, HalfOpen;
+    }
+
+    /** Consecutive failures that cause the breaker to open */
+    private final int failureThreshold;
+
+    /** Time breaker stays open before allowing a probe */
+    private final long openMillis;
+
+    /** Current state */
+    private State state = State.Closed;
+
+    /** Consecutive failures while closed */
+    private int failures;
+
+    /** Time breaker was last opened */
+    private long openedAt;
+
+    /** Indicates a probe request is outstanding */
+    private boolean probing;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+	this.failureThreshold = failureThreshold;
+	this.openMillis = openMillis;
+    }
+
+    /**
+     * Indicates whether a request may be sent to the endpoint.
+     *
+     * @return
+     */
+    public synchronized boolean allowRequest() {
+	switch (state) {
+	case Closed:
+	    return true;
+	case Open:
+	    if ((System.currentTimeMillis() - openedAt) < openMillis) {
+		return false;
+	    }
+	    state = State.HalfOpen;
+	    probing = true;
+	    return true;
+	case HalfOpen:
+	default:
+	    if (probing) {
+		return false;
+	    }
+	    probing = true;
+	    return true;
+	}
+    }
+
+    /**
+     * Record a successful request.
+     */
+    public synchronized void onSuccess() {
+	state = State.Closed;
+	failures = 0;
+	probing = false;
+    }
+
+    /**
+     * Record a failed request.
+     *
+     * @return true if the failure caused the breaker to open
+     */
+    public synchronized boolean onFailure() {
+	if (state == State.HalfOpen) {
+	    open();
+	    return true;
+	}
+	failures++;
+	if ((state == State.Closed) && (failures >= failureThreshold)) {
+	    open();
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * Move breaker to the open state.
+     */
+    protected void open() {
+	state = State.Open;
+	openedAt = System.currentTimeMillis();
+	probing = false;
+	failures = 0;
+    }
+
+    public synchronized State getState() {
+	return state;
+    }
+}
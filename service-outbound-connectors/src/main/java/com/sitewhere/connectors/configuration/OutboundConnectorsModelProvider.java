@@ -124,6 +124,7 @@ public class OutboundConnectorsModelProvider extends ConfigurationModelProvider
 		+ "field determines where events are delivered.");
 	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY);
 	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_AUTHENTICATION);
+	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE);
 
 	addCommonConnectorAttributes(builder, ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY);
 	CommonConnectorModel.addMqttCommonAttributes(builder, ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY,
@@ -131,6 +132,20 @@ public class OutboundConnectorsModelProvider extends ConfigurationModelProvider
 	builder.attribute((new AttributeNode.Builder("MQTT topic", "topic", AttributeType.String,
 		ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY)
 			.description("MQTT topic used if no route builder is specified.").build()));
+	builder.attribute((new AttributeNode.Builder("Payload encoding", "encoding", AttributeType.String,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Encoding used for published events.").choice("JSON", "json")
+			.choice("Protocol Buffers", "protobuf").defaultValue("json").build()));
+	builder.attribute((new AttributeNode.Builder("Number of connections", "numConnections", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Number of broker connections. Events are assigned to connections by device so "
+				+ "that events for a device are published in order.")
+			.defaultValue("1").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum messages in flight", "maxInFlight", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Maximum number of unacknowledged messages per connection. Processing threads "
+				+ "block when the limit is reached.")
+			.defaultValue("1000").build()));
 	return builder.build();
     }
 
@@ -279,12 +294,50 @@ public class OutboundConnectorsModelProvider extends ConfigurationModelProvider
 	builder.description("Allows HTTP requests to be issued as the result of event processing. "
 		+ "Both URI and payload may be customized by delgating to various builders.");
 	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_GENERAL);
+	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE);
 
 	addCommonConnectorAttributes(builder, ConfigurationModelProvider.ATTR_GROUP_GENERAL);
 	builder.attribute((new AttributeNode.Builder("HTTP method", "method", AttributeType.String,
 		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
 			.description("HTTP method used for delivery of payload to URI.").choice("POST", "post")
 			.choice("PUT", "put").defaultValue("post").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum connections", "maxConnections", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Maximum number of pooled connections to each endpoint.").defaultValue("20")
+			.build()));
+	builder.attribute((new AttributeNode.Builder("Maximum requests in flight", "maxInFlight", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Maximum number of requests awaiting a response. Processing threads block "
+				+ "when the limit is reached.")
+			.defaultValue("100").build()));
+	builder.attribute((new AttributeNode.Builder("Request timeout (ms)", "requestTimeoutMs", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Time to wait for a response before the request is considered failed.")
+			.defaultValue("10000").build()));
+	builder.attribute((new AttributeNode.Builder("Batch size", "batchSize", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Number of payloads sent per request as a JSON array. A value of 1 sends "
+				+ "each payload as-is in its own request.")
+			.defaultValue("1").build()));
+	builder.attribute((new AttributeNode.Builder("Batch linger (ms)", "batchLingerMs", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Longest time a payload waits for a batch to fill before it is sent.")
+			.defaultValue("50").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum retries", "maxRetries", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Number of times a failed request is retried.").defaultValue("3").build()));
+	builder.attribute((new AttributeNode.Builder("Retry backoff (ms)", "retryBackoffMs", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Delay before the first retry. The delay doubles for each later attempt.")
+			.defaultValue("200").build()));
+	builder.attribute((new AttributeNode.Builder("Circuit breaker threshold", "circuitBreakerThreshold",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Consecutive failures after which requests to an endpoint are rejected.")
+			.defaultValue("5").build()));
+	builder.attribute((new AttributeNode.Builder("Circuit breaker open time (ms)", "circuitBreakerOpenMs",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Time requests are rejected before the endpoint is tried again.")
+			.defaultValue("30000").build()));
 	return builder.build();
     }
 
@@ -360,6 +413,26 @@ public class OutboundConnectorsModelProvider extends ConfigurationModelProvider
 		AttributeType.Integer, group)
 			.description("Number of threads used to load inbound events into connector.").makeRequired()
 			.build()));
+	builder.attribute((new AttributeNode.Builder("Maximum queued batches", "maxQueuedBatches",
+		AttributeType.Integer, group)
+			.description("Number of batches queued for processing threads. Batches that do not fit are "
+				+ "spilled to local disk.")
+			.defaultValue("100").build()));
+	builder.attribute((new AttributeNode.Builder("Bulkhead failure threshold", "bulkheadFailureThreshold",
+		AttributeType.Integer, group)
+			.description("Consecutive failed batches after which new batches are spilled to local disk.")
+			.defaultValue("5").build()));
+	builder.attribute((new AttributeNode.Builder("Bulkhead open time (ms)", "bulkheadOpenMs", AttributeType.Integer,
+		group).description("Time to wait after batches start failing before processing is retried.")
+			.defaultValue("30000").build()));
+	builder.attribute((new AttributeNode.Builder("Spill drain rate", "spillDrainRate", AttributeType.Integer, group)
+		.description("Spilled batches per second resubmitted for processing while the queue is busy.")
+		.defaultValue("20").build()));
+	builder.attribute((new AttributeNode.Builder("Maximum spill size (MB)", "maxSpillMegabytes",
+		AttributeType.Integer, group)
+			.description("Maximum size of spilled batches on local disk. Batches that do not fit are "
+				+ "passed to the connector failure handler.")
+			.defaultValue("1024").build()));
     }
 
     /**
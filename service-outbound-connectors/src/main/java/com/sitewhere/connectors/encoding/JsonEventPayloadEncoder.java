@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.connectors.spi.common.IEventPayloadEncoder;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+
+/**
+ * Encodes events as JSON in the same format as {@link MarshalUtils}. Each
+ * thread writes into a reusable buffer sized for typical events so that
+ * encoding does not repeatedly grow a new buffer.
+ * 
+ * @author Derek
+ */
+public class JsonEventPayloadEncoder implements IEventPayloadEncoder {
+
+    /** Initial size of per-thread buffers */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /** Buffers larger than this are not kept for reuse */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    /** Writer based on shared mapper */
+    private static final ObjectWriter WRITER = MarshalUtils.MAPPER.writer();
+
+    /** Per-thread output buffers */
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFERS = ThreadLocal
+	    .withInitial(() -> new ByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+
+    /*
+     * @see
+     * com.sitewhere.connectors.spi.common.IEventPayloadEncoder#encode(com.sitewhere
+     * .spi.device.event.IDeviceEventContext,
+     * com.sitewhere.spi.device.event.IDeviceEvent)
+     */
+    @Override
+    public byte[] encode(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
+	ByteArrayOutputStream buffer = BUFFERS.get();
+	buffer.reset();
+	try {
+	    WRITER.writeValue(buffer, event);
+	    return buffer.toByteArray();
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to encode event as JSON.", e);
+	} finally {
+	    if (buffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+		BUFFERS.remove();
+	    }
+	}
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.encoding;
+
+import com.sitewhere.connectors.spi.common.IEventPayloadEncoder;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+
+/**
+ * Encodes events as binary GAnyDeviceEvent protobuf messages. Payloads are
+ * considerably smaller and cheaper to produce than JSON.
+ * 
+ * @author Derek
+ */
+public class ProtobufEventPayloadEncoder implements IEventPayloadEncoder {
+
+    /*
+     * @see
+     * com.sitewhere.connectors.spi.common.IEventPayloadEncoder#encode(com.sitewhere
+     * .spi.device.event.IDeviceEventContext,
+     * com.sitewhere.spi.device.event.IDeviceEvent)
+     */
+    @Override
+    public byte[] encode(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
+	return EventModelConverter.asGrpcGenericDeviceEvent(event).toByteArray();
+    }
+}
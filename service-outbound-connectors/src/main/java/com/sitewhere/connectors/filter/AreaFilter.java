@@ -7,13 +7,17 @@
  */
 package com.sitewhere.connectors.filter;
 
+import java.util.UUID;
+
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.area.IArea;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventContext;
 
 /**
- * Includes or excludes events for devices associated with a given area.
+ * Includes or excludes events for devices associated with a given area. The
+ * area token is resolved to an id when the filter starts (and refreshed
+ * periodically) so that events are matched on the area id they already carry.
  * 
  * @author Derek
  */
@@ -25,6 +29,26 @@ public class AreaFilter extends DeviceEventFilter {
     /** Operation filter performs */
     private FilterOperation operation = FilterOperation.Include;
 
+    /** Id of area with the configured token (null if area does not exist) */
+    private volatile UUID areaId;
+
+    /** Indicates token has been resolved */
+    private volatile boolean resolved;
+
+    /*
+     * @see com.sitewhere.connectors.filter.DeviceEventFilter#resolveReferences()
+     */
+    @Override
+    public void resolveReferences() throws SiteWhereException {
+	IArea area = getDeviceManagementApiDemux().getApiChannel().getAreaByToken(getAreaToken());
+	UUID id = (area != null) ? area.getId() : null;
+	if ((id == null) && (!resolved || (areaId != null))) {
+	    getLogger().warn("Area filter references unknown area token '" + getAreaToken() + "'.");
+	}
+	this.areaId = id;
+	this.resolved = true;
+    }
+
     /*
      * @see
      * com.sitewhere.outbound.spi.IDeviceEventFilter#isFiltered(com.sitewhere.spi.
@@ -33,15 +57,12 @@ public class AreaFilter extends DeviceEventFilter {
      */
     @Override
     public boolean isFiltered(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
-	if (event.getAreaId() != null) {
-	    IArea area = getDeviceManagementApiDemux().getApiChannel().getArea(event.getAreaId());
-	    if (area == null) {
-		throw new SiteWhereException("Unable to process event filter for non-existent area.");
-	    }
-	    if (getAreaToken().equals(area.getToken())) {
-		return (getOperation() != FilterOperation.Include);
-	    }
-	    return (getOperation() == FilterOperation.Include);
+	if (!resolved) {
+	    resolveReferences();
+	}
+	UUID id = areaId;
+	if ((id != null) && id.equals(event.getAreaId())) {
+	    return (getOperation() != FilterOperation.Include);
 	}
 	return (getOperation() == FilterOperation.Include);
     }
@@ -52,6 +73,7 @@ public class AreaFilter extends DeviceEventFilter {
 
     public void setAreaToken(String areaToken) {
 	this.areaToken = areaToken;
+	this.resolved = false;
     }
 
     public FilterOperation getOperation() {
@@ -12,6 +12,7 @@ import com.sitewhere.connectors.spi.microservice.IOutboundConnectorsMicroservice
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiDemux;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiDemux;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 
 /**
@@ -21,10 +22,37 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
  */
 public abstract class DeviceEventFilter extends TenantEngineLifecycleComponent implements IDeviceEventFilter {
 
+    /** Cost of filters that only compare values already in the event */
+    public static final int COST_LOW = 10;
+
+    /** Cost of filters that run scripts or perform lookups */
+    public static final int COST_HIGH = 100;
+
     public DeviceEventFilter() {
 	super(LifecycleComponentType.OutboundEventProcessorFilter);
     }
 
+    /**
+     * Get relative cost of evaluating the filter. Cheaper filters are evaluated
+     * first so that expensive filters only see events that have not already been
+     * dropped.
+     * 
+     * @return
+     */
+    public int getEvaluationCost() {
+	return COST_LOW;
+    }
+
+    /**
+     * Resolve configured tokens to the ids carried by events. Called when the
+     * filter starts and periodically afterward so that changes are picked up
+     * without a lookup per event.
+     * 
+     * @throws SiteWhereException
+     */
+    public void resolveReferences() throws SiteWhereException {
+    }
+
     /**
      * Allow access to the device management API channels.
      * 
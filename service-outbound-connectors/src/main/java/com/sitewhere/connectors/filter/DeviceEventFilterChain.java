@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.codahale.metrics.Meter;
+import com.sitewhere.connectors.spi.IDeviceEventFilter;
+import com.sitewhere.metrics.MetricsUtils;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+import com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Compiled form of the filters configured for an outbound connector. Filters
+ * are ordered by evaluation cost (preserving configured order for filters of
+ * equal cost) and combined so that an event is dropped as soon as any filter
+ * matches. Each filter tracks how many events it passed and dropped.
+ *
+ * @author Derek
+ */
+public class DeviceEventFilterChain {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(DeviceEventFilterChain.class);
+
+    /** Metric name for events passed by a filter */
+    private static final String METRIC_PASSED = "outboundConnector.filterPassed";
+
+    /** Metric name for events dropped by a filter */
+    private static final String METRIC_DROPPED = "outboundConnector.filterDropped";
+
+    /** Filters in evaluation order */
+    private final Stage[] stages;
+
+    public DeviceEventFilterChain(ITenantEngineLifecycleComponent connector, String connectorId,
+	    List<IDeviceEventFilter> filters) {
+	List<IDeviceEventFilter> ordered = new ArrayList<>(filters);
+	Collections.sort(ordered, Comparator.comparingInt(DeviceEventFilterChain::getEvaluationCost));
+	this.stages = new Stage[ordered.size()];
+	for (int i = 0; i < stages.length; i++) {
+	    IDeviceEventFilter filter = ordered.get(i);
+	    String name = filter.getClass().getSimpleName();
+	    String position = String.valueOf(filters.indexOf(filter));
+	    Meter passed = connector.createMeterMetric(
+		    MetricsUtils.tagged(METRIC_PASSED, "connector", connectorId, "filter", name, "position", position));
+	    Meter dropped = connector.createMeterMetric(
+		    MetricsUtils.tagged(METRIC_DROPPED, "connector", connectorId, "filter", name, "position", position));
+	    stages[i] = new Stage(filter, passed, dropped);
+	}
+    }
+
+    /**
+     * Evaluate filters against an event. Evaluation stops at the first filter
+     * that drops the event.
+     *
+     * @param context
+     * @param event
+     * @return filter that dropped the event or null if not filtered
+     * @throws SiteWhereException
+     */
+    public IDeviceEventFilter evaluate(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
+	for (Stage stage : stages) {
+	    if (stage.getFilter().isFiltered(context, event)) {
+		stage.getDropped().mark();
+		return stage.getFilter();
+	    }
+	    stage.getPassed().mark();
+	}
+	return null;
+    }
+
+    /**
+     * Re-resolve tokens referenced by filters. Failures are logged and the
+     * previously resolved values are kept.
+     */
+    public void resolveReferences() {
+	for (Stage stage : stages) {
+	    if (stage.getFilter() instanceof DeviceEventFilter) {
+		try {
+		    ((DeviceEventFilter) stage.getFilter()).resolveReferences();
+		} catch (Throwable e) {
+		    LOGGER.warn("Unable to resolve references for " + stage.getFilter().getClass().getSimpleName()
+			    + ". Previous values will be used.", e);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Get number of filters in the chain.
+     *
+     * @return
+     */
+    public int size() {
+	return stages.length;
+    }
+
+    /**
+     * Get evaluation cost for a filter. Filters not based on
+     * {@link DeviceEventFilter} are assumed to be expensive.
+     *
+     * @param filter
+     * @return
+     */
+    protected static int getEvaluationCost(IDeviceEventFilter filter) {
+	return (filter instanceof DeviceEventFilter) ? ((DeviceEventFilter) filter).getEvaluationCost()
+		: DeviceEventFilter.COST_HIGH;
+    }
+
+    /**
+     * Filter along with its counters.
+     */
+    private static class Stage {
+
+	/** Filter */
+	private final IDeviceEventFilter filter;
+
+	/** Events passed by filter */
+	private final Meter passed;
+
+	/** Events dropped by filter */
+	private final Meter dropped;
+
+	public Stage(IDeviceEventFilter filter, Meter passed, Meter dropped) {
+	    this.filter = filter;
+	    this.passed = passed;
+	    this.dropped = dropped;
+	}
+
+	public IDeviceEventFilter getFilter() {
+	    return filter;
+	}
+
+	public Meter getPassed() {
+	    return passed;
+	}
+
+	public Meter getDropped() {
+	    return dropped;
+	}
+    }
+}
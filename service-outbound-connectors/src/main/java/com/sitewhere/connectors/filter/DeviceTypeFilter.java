@@ -7,13 +7,18 @@
  */
 package com.sitewhere.connectors.filter;
 
+import java.util.UUID;
+
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.IDeviceType;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventContext;
 
 /**
- * Includes or excludes events for devices using a given device type.
+ * Includes or excludes events for devices using a given device type. The device
+ * type token is resolved to an id when the filter starts (and refreshed
+ * periodically) so that events are matched on the device type id already
+ * present in the event context.
  * 
  * @author Derek
  */
@@ -25,6 +30,28 @@ public class DeviceTypeFilter extends DeviceEventFilter {
     /** Operation filter performs */
     private FilterOperation operation = FilterOperation.Include;
 
+    /** Id of device type with the configured token (null if it does not exist) */
+    private volatile UUID deviceTypeId;
+
+    /** Indicates token has been resolved */
+    private volatile boolean resolved;
+
+    /*
+     * @see com.sitewhere.connectors.filter.DeviceEventFilter#resolveReferences()
+     */
+    @Override
+    public void resolveReferences() throws SiteWhereException {
+	IDeviceType deviceType = getDeviceManagementApiDemux().getApiChannel()
+		.getDeviceTypeByToken(getDeviceTypeToken());
+	UUID id = (deviceType != null) ? deviceType.getId() : null;
+	if ((id == null) && (!resolved || (deviceTypeId != null))) {
+	    getLogger().warn(
+		    "Device type filter references unknown device type token '" + getDeviceTypeToken() + "'.");
+	}
+	this.deviceTypeId = id;
+	this.resolved = true;
+    }
+
     /*
      * @see
      * com.sitewhere.outbound.spi.IDeviceEventFilter#isFiltered(com.sitewhere.spi.
@@ -33,11 +60,11 @@ public class DeviceTypeFilter extends DeviceEventFilter {
      */
     @Override
     public boolean isFiltered(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
-	IDeviceType deviceType = getDeviceManagementApiDemux().getApiChannel().getDeviceType(context.getDeviceTypeId());
-	if (deviceType == null) {
-	    throw new SiteWhereException("Event filter unable to process event for unknown device type.");
+	if (!resolved) {
+	    resolveReferences();
 	}
-	if (getDeviceTypeToken().equals(deviceType.getToken())) {
+	UUID id = deviceTypeId;
+	if ((id != null) && id.equals(context.getDeviceTypeId())) {
 	    return (getOperation() != FilterOperation.Include);
 	}
 	return (getOperation() == FilterOperation.Include);
@@ -49,6 +76,7 @@ public class DeviceTypeFilter extends DeviceEventFilter {
 
     public void setDeviceTypeToken(String deviceTypeToken) {
 	this.deviceTypeToken = deviceTypeToken;
+	this.resolved = false;
     }
 
     public FilterOperation getOperation() {
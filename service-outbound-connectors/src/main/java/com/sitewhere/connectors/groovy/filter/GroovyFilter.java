@@ -81,6 +81,14 @@ public class GroovyFilter extends DeviceEventFilter {
 	stopNestedComponent(getGroovyComponent(), monitor);
     }
 
+    /*
+     * @see com.sitewhere.connectors.filter.DeviceEventFilter#getEvaluationCost()
+     */
+    @Override
+    public int getEvaluationCost() {
+	return COST_HIGH;
+    }
+
     /*
      * @see
      * com.sitewhere.outbound.spi.IDeviceEventFilter#isFiltered(com.sitewhere.spi.
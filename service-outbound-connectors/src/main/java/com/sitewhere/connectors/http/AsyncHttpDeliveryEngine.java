@@ -0,0 +1,644 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+
+import com.codahale.metrics.Meter;
+import com.sitewhere.connectors.common.CircuitBreaker;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Delivers payloads to HTTP endpoints using a pooled, non-blocking client.
+ * Connections are kept alive and shared across requests. The number of
+ * requests in flight is bounded, so callers block only when the window is full
+ * rather than for the duration of each request. Payloads may optionally be
+ * batched per URI and sent as a JSON array once the batch is full or the linger
+ * interval expires (batching assumes payloads are JSON documents). Failed
+ * requests are retried with exponential backoff and each endpoint has a circuit
+ * breaker that rejects requests while the endpoint is failing.
+ *
+ * @author Derek
+ */
+public class AsyncHttpDeliveryEngine {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(AsyncHttpDeliveryEngine.class);
+
+    /** Interval at which idle connections are closed */
+    private static final long IDLE_CHECK_INTERVAL_MS = 30 * 1000;
+
+    /** Maximum number of pooled connections */
+    private int maxConnections = 50;
+
+    /** Maximum number of pooled connections per endpoint */
+    private int maxConnectionsPerEndpoint = 20;
+
+    /** Maximum number of requests in flight */
+    private int maxInFlight = 100;
+
+    /** Connect timeout in milliseconds */
+    private int connectTimeoutMs = 5000;
+
+    /** Timeout for a response in milliseconds */
+    private int requestTimeoutMs = 10000;
+
+    /** Payloads per request (1 disables batching) */
+    private int batchSize = 1;
+
+    /** Longest time a payload waits for a batch to fill */
+    private long batchLingerMs = 50;
+
+    /** Number of times a failed request is retried */
+    private int maxRetries = 3;
+
+    /** Delay before first retry (doubled on each attempt) */
+    private long retryBackoffMs = 200;
+
+    /** Longest delay between retries */
+    private long maxRetryBackoffMs = 10000;
+
+    /** Consecutive failures that open an endpoint circuit breaker */
+    private int circuitBreakerThreshold = 5;
+
+    /** Time an endpoint circuit breaker stays open */
+    private long circuitBreakerOpenMs = 30000;
+
+    /** Creates meters for delivery metrics */
+    private Function<String, Meter> meterFactory = name -> new Meter();
+
+    /** Pooled asynchronous client */
+    private CloseableHttpAsyncClient client;
+
+    /** Connection manager for client */
+    private PoolingNHttpClientConnectionManager connectionManager;
+
+    /** Bounds requests in flight */
+    private Semaphore window;
+
+    /** Schedules retries and idle connection checks (never blocks) */
+    private ScheduledExecutorService scheduler;
+
+    /** Flushes batches on linger timeout (may block on window) */
+    private ScheduledExecutorService lingerTimer;
+
+    /** Batches being filled by key */
+    private Map<String, Batch> batches = new HashMap<>();
+
+    /** Circuit breakers by endpoint */
+    private Map<HttpHost, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /** Requests completed successfully */
+    private Meter delivered;
+
+    /** Requests that failed after all retries */
+    private Meter failed;
+
+    /** Requests retried */
+    private Meter retried;
+
+    /** Requests rejected by an open circuit breaker */
+    private Meter rejected;
+
+    /**
+     * Start the client and supporting threads.
+     *
+     * @throws SiteWhereException
+     */
+    public void start() throws SiteWhereException {
+	try {
+	    IOReactorConfig reactor = IOReactorConfig.custom().setConnectTimeout(getConnectTimeoutMs())
+		    .setSoTimeout(getRequestTimeoutMs()).setSoKeepAlive(true).setTcpNoDelay(true).build();
+	    this.connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactor));
+	} catch (IOReactorException e) {
+	    throw new SiteWhereException("Unable to create HTTP connection manager.", e);
+	}
+	connectionManager.setMaxTotal(getMaxConnections());
+	connectionManager.setDefaultMaxPerRoute(getMaxConnectionsPerEndpoint());
+	RequestConfig config = RequestConfig.custom().setConnectTimeout(getConnectTimeoutMs())
+		.setSocketTimeout(getRequestTimeoutMs()).setConnectionRequestTimeout(getRequestTimeoutMs()).build();
+	this.client = HttpAsyncClients.custom().setConnectionManager(connectionManager).setDefaultRequestConfig(config)
+		.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE).build();
+	client.start();
+
+	this.window = new Semaphore(getMaxInFlight());
+	this.delivered = getMeterFactory().apply("outboundConnector.httpDelivered");
+	this.failed = getMeterFactory().apply("outboundConnector.httpFailed");
+	this.retried = getMeterFactory().apply("outboundConnector.httpRetried");
+	this.rejected = getMeterFactory().apply("outboundConnector.httpRejected");
+	this.scheduler = Executors.newSingleThreadScheduledExecutor(new DeliveryThreadFactory("HTTP Retry"));
+	this.lingerTimer = Executors.newSingleThreadScheduledExecutor(new DeliveryThreadFactory("HTTP Batch"));
+	scheduler.scheduleWithFixedDelay(() -> {
+	    connectionManager.closeExpiredConnections();
+	    connectionManager.closeIdleConnections(IDLE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}, IDLE_CHECK_INTERVAL_MS, IDLE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flush pending batches, wait up to the request timeout for requests in
+     * flight and release resources.
+     */
+    public void stop() {
+	if (client == null) {
+	    return;
+	}
+	List<Batch> pending;
+	synchronized (batches) {
+	    pending = new ArrayList<>(batches.values());
+	    batches.clear();
+	}
+	for (Batch batch : pending) {
+	    batch.getLinger().cancel(false);
+	    send(batch);
+	}
+	try {
+	    if (window.tryAcquire(getMaxInFlight(), getRequestTimeoutMs(), TimeUnit.MILLISECONDS)) {
+		window.release(getMaxInFlight());
+	    } else {
+		LOGGER.warn("Stopping HTTP delivery with requests still in flight.");
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	lingerTimer.shutdownNow();
+	scheduler.shutdownNow();
+	try {
+	    client.close();
+	} catch (IOException e) {
+	    LOGGER.warn("Error closing HTTP client.", e);
+	}
+	client = null;
+    }
+
+    /**
+     * Submit a payload for delivery. Blocks only while the in-flight window is
+     * full.
+     *
+     * @param method
+     * @param uri
+     * @param payload
+     * @throws SiteWhereException
+     */
+    public void submit(String method, String uri, byte[] payload) throws SiteWhereException {
+	validateMethod(method);
+	if (getBatchSize() <= 1) {
+	    List<byte[]> payloads = new ArrayList<>(1);
+	    payloads.add(payload);
+	    send(new Batch(method, uri, payloads));
+	    return;
+	}
+	Batch full = null;
+	synchronized (batches) {
+	    String key = method + " " + uri;
+	    Batch batch = batches.get(key);
+	    if (batch == null) {
+		Batch created = new Batch(method, uri, new ArrayList<>(getBatchSize()));
+		created.setLinger(
+			lingerTimer.schedule(() -> flush(key, created), getBatchLingerMs(), TimeUnit.MILLISECONDS));
+		batches.put(key, created);
+		batch = created;
+	    }
+	    batch.getPayloads().add(payload);
+	    if (batch.getPayloads().size() >= getBatchSize()) {
+		batches.remove(key);
+		batch.getLinger().cancel(false);
+		full = batch;
+	    }
+	}
+	if (full != null) {
+	    send(full);
+	}
+    }
+
+    /**
+     * Send a batch whose linger interval expired.
+     *
+     * @param key
+     * @param batch
+     */
+    protected void flush(String key, Batch batch) {
+	synchronized (batches) {
+	    if (batches.get(key) != batch) {
+		return;
+	    }
+	    batches.remove(key);
+	}
+	send(batch);
+    }
+
+    /**
+     * Acquire a slot in the in-flight window and send a batch.
+     *
+     * @param batch
+     */
+    protected void send(Batch batch) {
+	HttpEntityEnclosingRequestBase request;
+	try {
+	    request = "put".equalsIgnoreCase(batch.getMethod()) ? new HttpPut(batch.getUri())
+		    : new HttpPost(batch.getUri());
+	} catch (IllegalArgumentException e) {
+	    LOGGER.error("Invalid HTTP delivery URI: " + batch.getUri());
+	    failed.mark();
+	    return;
+	}
+	if (getBatchSize() <= 1) {
+	    request.setEntity(new ByteArrayEntity(batch.getPayloads().get(0), ContentType.APPLICATION_OCTET_STREAM));
+	} else {
+	    request.setEntity(new ByteArrayEntity(asJsonArray(batch.getPayloads()), ContentType.APPLICATION_JSON));
+	}
+	try {
+	    window.acquire();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    failed.mark();
+	    return;
+	}
+	execute(request, getCircuitBreaker(URIUtils.extractHost(request.getURI())), 0);
+    }
+
+    /**
+     * Verify that an HTTP method is supported for delivery.
+     *
+     * @param method
+     * @throws SiteWhereException
+     */
+    public static void validateMethod(String method) throws SiteWhereException {
+	if (!"post".equalsIgnoreCase(method) && !"put".equalsIgnoreCase(method)) {
+	    throw new SiteWhereException("Unsupported HTTP delivery method '" + method + "'. Use 'post' or 'put'.");
+	}
+    }
+
+    /**
+     * Execute a request. The window slot acquired for the request is held until
+     * it succeeds or is abandoned.
+     *
+     * @param request
+     * @param breaker
+     * @param attempt
+     */
+    protected void execute(HttpEntityEnclosingRequestBase request, CircuitBreaker breaker, int attempt) {
+	if ((breaker != null) && (!breaker.allowRequest())) {
+	    rejected.mark();
+	    window.release();
+	    if (LOGGER.isDebugEnabled()) {
+		LOGGER.debug("Circuit breaker open. Rejected HTTP request to " + request.getURI());
+	    }
+	    return;
+	}
+	client.execute(request, new FutureCallback<HttpResponse>() {
+
+	    @Override
+	    public void completed(HttpResponse response) {
+		int status = response.getStatusLine().getStatusCode();
+		if (status < 300) {
+		    succeeded(breaker);
+		} else if (isRetryable(status)) {
+		    retryOrFail(request, breaker, attempt, "HTTP status " + status);
+		} else {
+		    // Endpoint is responsive, so the request itself is at fault.
+		    if (breaker != null) {
+			breaker.onSuccess();
+		    }
+		    getFailed().mark();
+		    window.release();
+		    LOGGER.error(String.format("HTTP delivery to %s rejected with status %d.", request.getURI(), status));
+		}
+	    }
+
+	    @Override
+	    public void failed(Exception e) {
+		retryOrFail(request, breaker, attempt, e.getMessage());
+	    }
+
+	    @Override
+	    public void cancelled() {
+		retryOrFail(request, breaker, attempt, "Request cancelled.");
+	    }
+	});
+    }
+
+    /**
+     * Record a successful request.
+     *
+     * @param breaker
+     */
+    protected void succeeded(CircuitBreaker breaker) {
+	if (breaker != null) {
+	    breaker.onSuccess();
+	}
+	delivered.mark();
+	window.release();
+    }
+
+    /**
+     * Schedule a retry for a failed request or give up if retries are exhausted.
+     *
+     * @param request
+     * @param breaker
+     * @param attempt
+     * @param reason
+     */
+    protected void retryOrFail(HttpEntityEnclosingRequestBase request, CircuitBreaker breaker, int attempt,
+	    String reason) {
+	if ((breaker != null) && breaker.onFailure()) {
+	    LOGGER.warn(String.format("Circuit breaker opened for %s after failure: %s", request.getURI(), reason));
+	}
+	if ((attempt < getMaxRetries()) && (client != null) && (!scheduler.isShutdown())) {
+	    retried.mark();
+	    scheduler.schedule(() -> execute(request, breaker, attempt + 1), getRetryDelay(attempt),
+		    TimeUnit.MILLISECONDS);
+	    return;
+	}
+	failed.mark();
+	window.release();
+	LOGGER.error(String.format("Unable to send HTTP payload to %s: %s", request.getURI(), reason));
+    }
+
+    /**
+     * Get delay before a retry using exponential backoff with jitter.
+     *
+     * @param attempt
+     * @return
+     */
+    protected long getRetryDelay(int attempt) {
+	long delay = Math.min(getMaxRetryBackoffMs(), getRetryBackoffMs() << Math.min(attempt, 20));
+	return (delay / 2) + ThreadLocalRandom.current().nextLong((delay / 2) + 1);
+    }
+
+    /**
+     * Indicates if a response status should be retried.
+     *
+     * @param status
+     * @return
+     */
+    protected boolean isRetryable(int status) {
+	return (status >= 500) || (status == 429) || (status == 408);
+    }
+
+    /**
+     * Get circuit breaker for an endpoint.
+     *
+     * @param host
+     * @return
+     */
+    protected CircuitBreaker getCircuitBreaker(HttpHost host) {
+	if (host == null) {
+	    return null;
+	}
+	return breakers.computeIfAbsent(host,
+		h -> new CircuitBreaker(getCircuitBreakerThreshold(), getCircuitBreakerOpenMs()));
+    }
+
+    /**
+     * Combine JSON payloads into a JSON array.
+     *
+     * @param payloads
+     * @return
+     */
+    protected static byte[] asJsonArray(List<byte[]> payloads) {
+	int length = payloads.size() + 1;
+	for (byte[] payload : payloads) {
+	    length += payload.length;
+	}
+	ByteArrayOutputStream output = new ByteArrayOutputStream(length);
+	output.write('[');
+	for (int i = 0; i < payloads.size(); i++) {
+	    if (i > 0) {
+		output.write(',');
+	    }
+	    byte[] payload = payloads.get(i);
+	    output.write(payload, 0, payload.length);
+	}
+	output.write(']');
+	return output.toByteArray();
+    }
+
+    /**
+     * Get number of requests currently in flight.
+     *
+     * @return
+     */
+    public int getInFlightCount() {
+	return (window != null) ? getMaxInFlight() - window.availablePermits() : 0;
+    }
+
+    public Meter getDelivered() {
+	return delivered;
+    }
+
+    public Meter getFailed() {
+	return failed;
+    }
+
+    public Meter getRetried() {
+	return retried;
+    }
+
+    public Meter getRejected() {
+	return rejected;
+    }
+
+    public int getMaxConnections() {
+	return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+	this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerEndpoint() {
+	return maxConnectionsPerEndpoint;
+    }
+
+    public void setMaxConnectionsPerEndpoint(int maxConnectionsPerEndpoint) {
+	this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+    }
+
+    public int getMaxInFlight() {
+	return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+	this.maxInFlight = maxInFlight;
+    }
+
+    public int getConnectTimeoutMs() {
+	return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+	this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getRequestTimeoutMs() {
+	return requestTimeoutMs;
+    }
+
+    public void setRequestTimeoutMs(int requestTimeoutMs) {
+	this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    public int getBatchSize() {
+	return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+	this.batchSize = batchSize;
+    }
+
+    public long getBatchLingerMs() {
+	return batchLingerMs;
+    }
+
+    public void setBatchLingerMs(long batchLingerMs) {
+	this.batchLingerMs = batchLingerMs;
+    }
+
+    public int getMaxRetries() {
+	return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+	this.maxRetries = maxRetries;
+    }
+
+    public long getRetryBackoffMs() {
+	return retryBackoffMs;
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+	this.retryBackoffMs = retryBackoffMs;
+    }
+
+    public long getMaxRetryBackoffMs() {
+	return maxRetryBackoffMs;
+    }
+
+    public void setMaxRetryBackoffMs(long maxRetryBackoffMs) {
+	this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    public int getCircuitBreakerThreshold() {
+	return circuitBreakerThreshold;
+    }
+
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+	this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public long getCircuitBreakerOpenMs() {
+	return circuitBreakerOpenMs;
+    }
+
+    public void setCircuitBreakerOpenMs(long circuitBreakerOpenMs) {
+	this.circuitBreakerOpenMs = circuitBreakerOpenMs;
+    }
+
+    public Function<String, Meter> getMeterFactory() {
+	return meterFactory;
+    }
+
+    public void setMeterFactory(Function<String, Meter> meterFactory) {
+	this.meterFactory = meterFactory;
+    }
+
+    /**
+     * Payloads sent in a single request.
+     */
+    protected static class Batch {
+
+	/** HTTP method */
+	private final String method;
+
+	/** Destination URI */
+	private final String uri;
+
+	/** Payloads in batch */
+	private final List<byte[]> payloads;
+
+	/** Flushes batch when linger interval expires */
+	private ScheduledFuture<?> linger;
+
+	public Batch(String method, String uri, List<byte[]> payloads) {
+	    this.method = method;
+	    this.uri = uri;
+	    this.payloads = payloads;
+	}
+
+	public String getMethod() {
+	    return method;
+	}
+
+	public String getUri() {
+	    return uri;
+	}
+
+	public List<byte[]> getPayloads() {
+	    return payloads;
+	}
+
+	public ScheduledFuture<?> getLinger() {
+	    return linger;
+	}
+
+	public void setLinger(ScheduledFuture<?> linger) {
+	    this.linger = linger;
+	}
+    }
+
+    /** Used for naming delivery threads */
+    private static class DeliveryThreadFactory implements ThreadFactory {
+
+	/** Thread name */
+	private final String name;
+
+	public DeliveryThreadFactory(String name) {
+	    this.name = name;
+	}
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, name);
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+}
@@ -7,13 +7,11 @@
  */
 package com.sitewhere.connectors.http;
 
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
-
 import com.sitewhere.connectors.SerialOutboundConnector;
 import com.sitewhere.connectors.spi.IOutboundConnector;
 import com.sitewhere.connectors.spi.common.IPayloadBuilder;
 import com.sitewhere.connectors.spi.common.IUriBuilder;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
@@ -27,12 +25,14 @@ import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
 /**
  * Implementation of {@link IOutboundConnector} that sends a payload to an HTTP
- * URI.
+ * URI. Requests are delivered asynchronously over pooled connections by an
+ * {@link AsyncHttpDeliveryEngine} so that a slow endpoint does not hold
+ * processing threads for the duration of each request.
  */
 public class HttpOutboundConnector extends SerialOutboundConnector {
 
-    /** Use Spring RestTemplate to send requests */
-    private RestTemplate client;
+    /** Delivers requests */
+    private AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
 
     /** HTTP method to be invoked */
     private String method = "post";
@@ -52,6 +52,9 @@ public class HttpOutboundConnector extends SerialOutboundConnector {
     public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	super.initialize(monitor);
 
+	// Fail early rather than sending requests with the wrong method.
+	AsyncHttpDeliveryEngine.validateMethod(getMethod());
+
 	// Verify URI builder is set.
 	if (getUriBuilder() == null) {
 	    getLogger().warn("No URI builder specified for HTTP outbound connector.");
@@ -89,7 +92,19 @@ public class HttpOutboundConnector extends SerialOutboundConnector {
 	    startNestedComponent(getPayloadBuilder(), monitor, true);
 	}
 
-	this.client = new RestTemplate();
+	getEngine().setMeterFactory(name -> createMeterMetric(MetricsUtils.tagged(name, "connector", getConnectorId())));
+	getEngine().start();
+    }
+
+    /*
+     * @see
+     * com.sitewhere.connectors.FilteredOutboundConnector#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	getEngine().stop();
+	super.stop(monitor);
     }
 
     /*
@@ -167,28 +182,17 @@ public class HttpOutboundConnector extends SerialOutboundConnector {
      * @throws SiteWhereException
      */
     protected void processDeviceEvent(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
-	try {
-	    if ((getUriBuilder() != null) && (getPayloadBuilder() != null)) {
-		String uri = getUriBuilder().buildUri(this, context, event);
-		byte[] payload = getPayloadBuilder().buildPayload(this, context, event);
-		if ("post".equalsIgnoreCase(method)) {
-		    getClient().postForLocation(uri, payload);
-		} else if ("put".equalsIgnoreCase(method)) {
-		    getClient().put(uri, payload);
-		}
-	    } else {
-		getLogger().warn("Skipping HTTP outbound event due to missing configuration.");
-	    }
-	} catch (RestClientException e) {
-	    getLogger().error(String.format("Unable to send HTTP payload: %s", e.getMessage()));
-	    if (getLogger().isDebugEnabled()) {
-		getLogger().error("Error sending payload via REST client.", e);
-	    }
+	if ((getUriBuilder() != null) && (getPayloadBuilder() != null)) {
+	    String uri = getUriBuilder().buildUri(this, context, event);
+	    byte[] payload = getPayloadBuilder().buildPayload(this, context, event);
+	    getEngine().submit(getMethod(), uri, payload);
+	} else {
+	    getLogger().warn("Skipping HTTP outbound event due to missing configuration.");
 	}
     }
 
-    protected RestTemplate getClient() {
-	return client;
+    protected AsyncHttpDeliveryEngine getEngine() {
+	return engine;
     }
 
     public IUriBuilder getUriBuilder() {
@@ -214,4 +218,77 @@ public class HttpOutboundConnector extends SerialOutboundConnector {
     public void setMethod(String method) {
 	this.method = method;
     }
+
+    public int getMaxConnections() {
+	return getEngine().getMaxConnections();
+    }
+
+    public void setMaxConnections(int maxConnections) {
+	getEngine().setMaxConnections(maxConnections);
+	getEngine().setMaxConnectionsPerEndpoint(maxConnections);
+    }
+
+    public int getMaxInFlight() {
+	return getEngine().getMaxInFlight();
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+	getEngine().setMaxInFlight(maxInFlight);
+    }
+
+    public int getRequestTimeoutMs() {
+	return getEngine().getRequestTimeoutMs();
+    }
+
+    public void setRequestTimeoutMs(int requestTimeoutMs) {
+	getEngine().setRequestTimeoutMs(requestTimeoutMs);
+    }
+
+    public int getBatchSize() {
+	return getEngine().getBatchSize();
+    }
+
+    public void setBatchSize(int batchSize) {
+	getEngine().setBatchSize(batchSize);
+    }
+
+    public long getBatchLingerMs() {
+	return getEngine().getBatchLingerMs();
+    }
+
+    public void setBatchLingerMs(long batchLingerMs) {
+	getEngine().setBatchLingerMs(batchLingerMs);
+    }
+
+    public int getMaxRetries() {
+	return getEngine().getMaxRetries();
+    }
+
+    public void setMaxRetries(int maxRetries) {
+	getEngine().setMaxRetries(maxRetries);
+    }
+
+    public long getRetryBackoffMs() {
+	return getEngine().getRetryBackoffMs();
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+	getEngine().setRetryBackoffMs(retryBackoffMs);
+    }
+
+    public int getCircuitBreakerThreshold() {
+	return getEngine().getCircuitBreakerThreshold();
+    }
+
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+	getEngine().setCircuitBreakerThreshold(circuitBreakerThreshold);
+    }
+
+    public long getCircuitBreakerOpenMs() {
+	return getEngine().getCircuitBreakerOpenMs();
+    }
+
+    public void setCircuitBreakerOpenMs(long circuitBreakerOpenMs) {
+	getEngine().setCircuitBreakerOpenMs(circuitBreakerOpenMs);
+    }
 }
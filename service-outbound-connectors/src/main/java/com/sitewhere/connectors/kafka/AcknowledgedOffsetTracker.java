@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.kafka;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks record batches that have been handed to an outbound connector but not
+ * yet acknowledged. Batches may complete in any order, but the committable
+ * offset for a partition only advances past batches that have completed along
+ * with every batch before them, so an offset is never committed for events
+ * that have not been delivered.
+ * 
+ * @author Derek
+ */
+public class AcknowledgedOffsetTracker {
+
+    /** Outstanding batches in offset order by partition */
+    private Map<TopicPartition, Deque<PendingBatch>> pending = new HashMap<>();
+
+    /**
+     * Register a batch that has been submitted for processing.
+     * 
+     * @param partition
+     * @param nextOffset
+     *            offset following the last record in the batch
+     * @return
+     */
+    public synchronized PendingBatch register(TopicPartition partition, long nextOffset) {
+	PendingBatch batch = new PendingBatch(nextOffset);
+	pending.computeIfAbsent(partition, key -> new ArrayDeque<>()).addLast(batch);
+	return batch;
+    }
+
+    /**
+     * Get offsets that may be committed and stop tracking the batches they cover.
+     * 
+     * @return
+     */
+    public synchronized Map<TopicPartition, OffsetAndMetadata> drainCommittable() {
+	Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+	for (Map.Entry<TopicPartition, Deque<PendingBatch>> entry : pending.entrySet()) {
+	    Deque<PendingBatch> batches = entry.getValue();
+	    PendingBatch last = null;
+	    while (!batches.isEmpty() && batches.peekFirst().isComplete()) {
+		last = batches.removeFirst();
+	    }
+	    if (last != null) {
+		offsets.put(entry.getKey(), new OffsetAndMetadata(last.getNextOffset()));
+	    }
+	}
+	return offsets;
+    }
+
+    /**
+     * Stop tracking batches for partitions that are no longer assigned to this
+     * consumer. Records in those batches are redelivered to the new owner.
+     * 
+     * @param partitions
+     */
+    public synchronized void revoke(Collection<TopicPartition> partitions) {
+	for (TopicPartition partition : partitions) {
+	    pending.remove(partition);
+	}
+    }
+
+    /**
+     * Get number of batches awaiting acknowledgement.
+     * 
+     * @return
+     */
+    public synchronized int getPendingCount() {
+	int count = 0;
+	for (Deque<PendingBatch> batches : pending.values()) {
+	    count += batches.size();
+	}
+	return count;
+    }
+
+    /**
+     * Batch of records awaiting acknowledgement.
+     */
+    public static class PendingBatch {
+
+	/** Offset following the last record in the batch */
+	private final long nextOffset;
+
+	/** Indicates batch has been acknowledged */
+	private volatile boolean complete;
+
+	public PendingBatch(long nextOffset) {
+	    this.nextOffset = nextOffset;
+	}
+
+	/**
+	 * Mark the batch as acknowledged.
+	 */
+	public void complete() {
+	    this.complete = true;
+	}
+
+	public boolean isComplete() {
+	    return complete;
+	}
+
+	public long getNextOffset() {
+	    return nextOffset;
+	}
+    }
+}
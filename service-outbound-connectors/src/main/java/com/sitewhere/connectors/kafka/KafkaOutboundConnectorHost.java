@@ -7,13 +7,19 @@
  */
 package com.sitewhere.connectors.kafka;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -22,11 +28,17 @@ import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.TopicPartition;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
 import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.connectors.common.CircuitBreaker;
+import com.sitewhere.connectors.kafka.AcknowledgedOffsetTracker.PendingBatch;
+import com.sitewhere.connectors.spi.IAcknowledgingOutboundConnector;
 import com.sitewhere.connectors.spi.IOutboundConnector;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
 import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer;
 import com.sitewhere.microservice.security.SystemUserRunnable;
 import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
@@ -37,7 +49,19 @@ import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
 
 /**
  * Kafka host container that reads from the enriched events topic and forwards
- * the messages to a wrapped outbound connector.
+ * the messages to a wrapped outbound connector. For connectors that acknowledge
+ * batches, offsets are only committed once the batches they cover have been
+ * delivered.
+ * 
+ * Each host acts as a bulkhead for its connector. Batches are queued for a
+ * fixed pool of processing threads with a bounded queue. Batches that do not
+ * fit in the queue, or that arrive while the connector is failing, are written
+ * to a {@link SpillLog} on local disk and resubmitted once the connector
+ * recovers. A slow or failing downstream system therefore uses a bounded
+ * amount of memory and does not hold up other connectors. New batches are not
+ * queued behind spilled ones, so delivery order is not preserved for batches
+ * that were spilled. Spilled batches stay in the log until they have been
+ * processed again.
  * 
  * @author Derek
  */
@@ -49,8 +73,44 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
     /** Get wrapped outbound connector implementation */
     private IOutboundConnector outboundConnector;
 
+    /** Poll timeout used so acknowledged offsets are committed promptly */
+    private static final long ACKNOWLEDGED_POLL_TIMEOUT_MS = 500;
+
+    /** Folder (relative to file system storage root) containing spill logs */
+    private static final String SPILL_FOLDER = "outbound-spill";
+
+    /** Size of spill log segments */
+    private static final long SPILL_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    /** Time spill drainer waits when there is nothing to drain */
+    private static final long SPILL_IDLE_MS = 200;
+
     /** Batch processors executor */
-    private ExecutorService batchProcessors;
+    private ThreadPoolExecutor batchProcessors;
+
+    /** Tracks failures of connector */
+    private CircuitBreaker circuitBreaker;
+
+    /** Holds batches that could not be processed */
+    private SpillLog spillLog;
+
+    /** Resubmits spilled batches */
+    private ExecutorService spillDrainer;
+
+    /** Batches written to spill log */
+    private Meter spilled;
+
+    /** Batches resubmitted from spill log */
+    private Meter drained;
+
+    /** Batches that could not be spilled */
+    private Meter spillDropped;
+
+    /** Names of registered spill gauges */
+    private List<String> spillGauges = new ArrayList<>();
+
+    /** Tracks batches awaiting acknowledgement */
+    private AcknowledgedOffsetTracker offsetTracker = new AcknowledgedOffsetTracker();
 
     public KafkaOutboundConnectorHost(IOutboundConnector outboundConnector) {
 	this.outboundConnector = outboundConnector;
@@ -111,14 +171,29 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
 	// Start the wrapped connector component.
 	startNestedComponent(getOutboundConnector(), monitor, true);
 
+	IOutboundConnector connector = getOutboundConnector();
+	int numThreads = connector.getNumProcessingThreads();
+	getLogger().info(String.format("Connector host starting connector with pool of %d %s and queue of %d batches.",
+		numThreads, numThreads == 1 ? "thread" : "threads", connector.getMaxQueuedBatches()));
+	this.batchProcessors = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+		new ArrayBlockingQueue<>(Math.max(1, connector.getMaxQueuedBatches())),
+		new EventPayloadProcessorThreadFactory());
+	this.circuitBreaker = new CircuitBreaker(connector.getBulkheadFailureThreshold(),
+		connector.getBulkheadOpenMs());
+	this.spillLog = new SpillLog(getSpillFolder(), SPILL_SEGMENT_BYTES,
+		connector.getMaxSpillMegabytes() * 1024L * 1024L);
+	getSpillLog().open();
+	this.spilled = createMeterMetric(connectorMetric("outboundConnector.spilled"));
+	this.drained = createMeterMetric(connectorMetric("outboundConnector.spillDrained"));
+	this.spillDropped = createMeterMetric(connectorMetric("outboundConnector.spillDropped"));
+	registerSpillGauge("outboundConnector.spillDepth", () -> getSpillLog().getDepth());
+	registerSpillGauge("outboundConnector.spillAgeMs", () -> getSpillLog().getAgeMs());
+	this.spillDrainer = Executors.newSingleThreadExecutor(
+		r -> new Thread(r, "Outbound Connector '" + connector.getConnectorId() + "' Spill Drainer"));
+	spillDrainer.execute(new SpillDrainer());
+
 	// Only start the consumer if outbound connector started successfully.
 	super.start(monitor);
-
-	int numThreads = getOutboundConnector().getNumProcessingThreads();
-	getLogger().info(String.format("Connector host starting connector with pool of %d %s.", numThreads,
-		numThreads == 1 ? "thread" : "threads"));
-	this.batchProcessors = Executors.newFixedThreadPool(getOutboundConnector().getNumProcessingThreads(),
-		new EventPayloadProcessorThreadFactory());
     }
 
     /*
@@ -130,6 +205,9 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	super.stop(monitor);
+	if (spillDrainer != null) {
+	    spillDrainer.shutdownNow();
+	}
 	if (getBatchProcessors() != null) {
 	    getBatchProcessors().shutdown();
 	    try {
@@ -139,6 +217,14 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
 	    }
 	}
 
+	if (getSpillLog() != null) {
+	    getSpillLog().close();
+	}
+	for (String name : spillGauges) {
+	    getMetricRegistry().remove(name);
+	}
+	spillGauges.clear();
+
 	// Stop the wrapped connector component.
 	stopNestedComponent(getOutboundConnector(), monitor);
     }
@@ -152,30 +238,218 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
     public void process(TopicPartition topicPartition, List<ConsumerRecord<String, byte[]>> records) {
 	if (getOutboundConnector().getLifecycleStatus() == LifecycleStatus.Started) {
 	    if (records.size() > 0) {
-		getBatchProcessors().execute(new TopicBatchProcessor(topicPartition, records));
+		List<byte[]> messages = new ArrayList<>(records.size());
+		for (ConsumerRecord<String, byte[]> record : records) {
+		    messages.add(record.value());
+		}
+		if (isAcknowledging()) {
+		    long nextOffset = records.get(records.size() - 1).offset() + 1;
+		    dispatch(messages, getOffsetTracker().register(topicPartition, nextOffset));
+		    return;
+		}
+		dispatch(messages, null);
 
 		// Send new offset information.
-		getConsumer().commitAsync(new OffsetCommitCallback() {
-		    public void onComplete(Map<TopicPartition, OffsetAndMetadata> offsets, Exception e) {
-			if (e != null) {
-			    getLogger().error("Commit failed for offsets " + offsets, e);
-			}
-		    }
-		});
+		getConsumer().commitAsync(commitCallback);
 	    }
 	} else {
 	    getLogger().warn("Skipping record batch due to outbound connector not in started state.");
 	}
     }
 
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * getPollTimeoutMs()
+     */
+    @Override
+    protected long getPollTimeoutMs() {
+	return isAcknowledging() ? ACKNOWLEDGED_POLL_TIMEOUT_MS : super.getPollTimeoutMs();
+    }
+
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#afterPoll()
+     */
+    @Override
+    protected void afterPoll() {
+	if (isAcknowledging()) {
+	    Map<TopicPartition, OffsetAndMetadata> offsets = getOffsetTracker().drainCommittable();
+	    if (!offsets.isEmpty()) {
+		getConsumer().commitAsync(offsets, commitCallback);
+	    }
+	}
+    }
+
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * onPartitionsRevoked(java.util.Collection)
+     */
+    @Override
+    protected void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+	if (isAcknowledging()) {
+	    Map<TopicPartition, OffsetAndMetadata> offsets = getOffsetTracker().drainCommittable();
+	    if (!offsets.isEmpty()) {
+		getConsumer().commitSync(offsets);
+	    }
+	    getOffsetTracker().revoke(partitions);
+	}
+    }
+
+    /**
+     * Queue a batch for processing. The batch is spilled if the connector is
+     * failing or if the queue is full.
+     * 
+     * @param messages
+     * @param pending
+     */
+    protected void dispatch(List<byte[]> messages, PendingBatch pending) {
+	if (getCircuitBreaker().allowRequest()) {
+	    try {
+		getBatchProcessors().execute(new TopicBatchProcessor(messages, pending, null));
+		return;
+	    } catch (RejectedExecutionException e) {
+		releaseProbe();
+	    }
+	}
+	spill(messages, pending, null);
+    }
+
+    /**
+     * Write a batch to the spill log. If the log is full, the batch is passed to
+     * the connector failure handler.
+     * 
+     * @param messages
+     * @param pending
+     * @param reason
+     */
+    protected void spill(List<byte[]> messages, PendingBatch pending, Throwable reason) {
+	try {
+	    if (getSpillLog().append(messages)) {
+		spilled.mark();
+		return;
+	    }
+	    spillDropped.mark();
+	    getLogger().error("Spill log is full. Dropping batch of " + messages.size() + " events.");
+	    getOutboundConnector().handleFailedBatch(decode(messages),
+		    (reason != null) ? reason : new SiteWhereException("Spill log is full."));
+	} catch (Throwable e) {
+	    spillDropped.mark();
+	    getLogger().error("Unable to spill batch of " + messages.size() + " events.", e);
+	} finally {
+	    if (pending != null) {
+		pending.complete();
+	    }
+	}
+    }
+
+    /**
+     * Called when a batch allowed through a half-open circuit breaker could not
+     * be queued, so that another batch may be used to probe the connector.
+     */
+    protected void releaseProbe() {
+	if (getCircuitBreaker().getState() == CircuitBreaker.State.HalfOpen) {
+	    getCircuitBreaker().onFailure();
+	}
+    }
+
+    /**
+     * Decode enriched event payloads. Messages that can not be decoded are
+     * logged and skipped.
+     * 
+     * @param messages
+     * @return
+     */
+    protected List<IEnrichedEventPayload> decode(List<byte[]> messages) {
+	List<IEnrichedEventPayload> decoded = new ArrayList<>();
+	for (byte[] message : messages) {
+	    try {
+		GEnrichedEventPayload grpc = EventModelMarshaler.parseEnrichedEventPayloadMessage(message);
+		EnrichedEventPayload payload = EventModelConverter.asApiEnrichedEventPayload(grpc);
+		if (getLogger().isDebugEnabled()) {
+		    getLogger().debug(
+			    "Received enriched event payload:\n\n" + MarshalUtils.marshalJsonAsPrettyString(payload));
+		}
+		decoded.add(payload);
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to parse outbound connector event payload.", e);
+	    } catch (Throwable e) {
+		getLogger().error("Unhandled exception parsing connector event payload.", e);
+	    }
+	}
+	return decoded;
+    }
+
+    /**
+     * Get folder holding spill log for connector.
+     * 
+     * @return
+     */
+    protected File getSpillFolder() {
+	File root = new File(getMicroservice().getInstanceSettings().getFileSystemStorageRoot(), SPILL_FOLDER);
+	File tenant = new File(root, getTenantEngine().getTenant().getId().toString());
+	return new File(tenant, getOutboundConnector().getConnectorId());
+    }
+
+    /**
+     * Get metric name tagged with connector id.
+     * 
+     * @param name
+     * @return
+     */
+    protected String connectorMetric(String name) {
+	return MetricsUtils.tagged(name, "connector", getOutboundConnector().getConnectorId());
+    }
+
+    /**
+     * Register a gauge reporting on the spill log.
+     * 
+     * @param name
+     * @param gauge
+     */
+    protected void registerSpillGauge(String name, Gauge<Number> gauge) {
+	String metric = getTenantMetricName(connectorMetric(name));
+	getMetricRegistry().remove(metric);
+	getMetricRegistry().register(metric, gauge);
+	spillGauges.add(metric);
+    }
+
+    /**
+     * Indicates whether the wrapped connector acknowledges batches.
+     * 
+     * @return
+     */
+    protected boolean isAcknowledging() {
+	return getOutboundConnector() instanceof IAcknowledgingOutboundConnector;
+    }
+
+    /** Logs failed offset commits */
+    private OffsetCommitCallback commitCallback = new OffsetCommitCallback() {
+	public void onComplete(Map<TopicPartition, OffsetAndMetadata> offsets, Exception e) {
+	    if (e != null) {
+		getLogger().error("Commit failed for offsets " + offsets, e);
+	    }
+	}
+    };
+
     protected IOutboundConnector getOutboundConnector() {
 	return outboundConnector;
     }
 
-    protected ExecutorService getBatchProcessors() {
+    protected ThreadPoolExecutor getBatchProcessors() {
 	return batchProcessors;
     }
 
+    protected CircuitBreaker getCircuitBreaker() {
+	return circuitBreaker;
+    }
+
+    protected SpillLog getSpillLog() {
+	return spillLog;
+    }
+
+    protected AcknowledgedOffsetTracker getOffsetTracker() {
+	return offsetTracker;
+    }
+
     /**
      * Processor that unmarshals an enriched event and forwards it to outbound
      * connector implementation.
@@ -184,16 +458,20 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
      */
     protected class TopicBatchProcessor extends SystemUserRunnable {
 
-	/** Partition */
-	private TopicPartition topicPartition;
+	/** Encoded messages to process */
+	private List<byte[]> messages;
 
-	/** Records to process */
-	private List<ConsumerRecord<String, byte[]>> records;
+	/** Tracks acknowledgement (null if not tracked) */
+	private PendingBatch pending;
 
-	public TopicBatchProcessor(TopicPartition topicPartition, List<ConsumerRecord<String, byte[]>> records) {
+	/** Spill log entry being resubmitted (null if not from spill log) */
+	private SpillLog.Entry spilled;
+
+	public TopicBatchProcessor(List<byte[]> messages, PendingBatch pending, SpillLog.Entry spilled) {
 	    super(getTenantEngine().getMicroservice(), getTenantEngine().getTenant());
-	    this.topicPartition = topicPartition;
-	    this.records = records;
+	    this.messages = messages;
+	    this.pending = pending;
+	    this.spilled = spilled;
 	}
 
 	/*
@@ -201,47 +479,127 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
 	 */
 	@Override
 	public void runAsSystemUser() throws SiteWhereException {
-	    List<IEnrichedEventPayload> decoded = new ArrayList<>();
-	    for (ConsumerRecord<String, byte[]> record : getRecords()) {
-		try {
-		    GEnrichedEventPayload grpc = EventModelMarshaler.parseEnrichedEventPayloadMessage(record.value());
-		    EnrichedEventPayload payload = EventModelConverter.asApiEnrichedEventPayload(grpc);
-		    if (getLogger().isDebugEnabled()) {
-			getLogger().debug("Received enriched event payload:\n\n"
-				+ MarshalUtils.marshalJsonAsPrettyString(payload));
-		    }
-		    decoded.add(payload);
-		} catch (SiteWhereException e) {
-		    getLogger().error("Unable to parse outbound connector event payload.", e);
-		} catch (Throwable e) {
-		    getLogger().error("Unhandled exception parsing connector event payload.", e);
+	    List<IEnrichedEventPayload> decoded = decode(getMessages());
+	    try {
+		if (((pending != null) || (spilled != null)) && isAcknowledging()) {
+		    ((IAcknowledgingOutboundConnector) getOutboundConnector()).processEventBatch(decoded,
+			    () -> complete());
+		} else {
+		    getOutboundConnector().processEventBatch(decoded);
+		    complete();
 		}
+		getCircuitBreaker().onSuccess();
+	    } catch (Throwable e) {
+		handleFailure(decoded, e);
+	    }
+	}
+
+	/**
+	 * Handle a batch the connector failed to process. While the circuit
+	 * breaker is closed, the batch is passed to the connector failure handler.
+	 * Once failures open the breaker, failed batches are spilled so they can
+	 * be retried after the connector recovers.
+	 * 
+	 * @param decoded
+	 * @param e
+	 */
+	protected void handleFailure(List<IEnrichedEventPayload> decoded, Throwable e) {
+	    if (getCircuitBreaker().onFailure()) {
+		getLogger().warn(String.format("Outbound connector failing. Spilling batches for %d ms.",
+			getOutboundConnector().getBulkheadOpenMs()));
+	    }
+	    if (getCircuitBreaker().getState() != CircuitBreaker.State.Closed) {
+		spill(getMessages(), pending, e);
+		completeSpilled();
+		return;
 	    }
+	    complete();
 	    try {
-		getOutboundConnector().processEventBatch(decoded);
-	    } catch (SiteWhereException e) {
-		getOutboundConnector().handleFailedBatch(decoded, e);
-		getLogger().error("Unable to process outbound connector batch.", e);
-	    } catch (Throwable e) {
 		getOutboundConnector().handleFailedBatch(decoded, e);
-		getLogger().error("Unhandled exception processing connector batch.", e);
+	    } catch (Throwable t) {
+		getLogger().error("Unable to handle failed batch.", t);
 	    }
+	    getLogger().error("Unable to process outbound connector batch.", e);
 	}
 
-	public TopicPartition getTopicPartition() {
-	    return topicPartition;
+	/**
+	 * Mark batch complete so offsets or the spill log cursor may move past it.
+	 */
+	protected void complete() {
+	    if (pending != null) {
+		pending.complete();
+	    }
+	    completeSpilled();
 	}
 
-	public void setTopicPartition(TopicPartition topicPartition) {
-	    this.topicPartition = topicPartition;
+	/**
+	 * Mark spill log entry complete.
+	 */
+	protected void completeSpilled() {
+	    if (spilled != null) {
+		try {
+		    getSpillLog().complete(spilled);
+		} catch (SiteWhereException e) {
+		    getLogger().error("Unable to update spill log cursor.", e);
+		}
+	    }
 	}
 
-	public List<ConsumerRecord<String, byte[]>> getRecords() {
-	    return records;
+	public List<byte[]> getMessages() {
+	    return messages;
 	}
 
-	public void setRecords(List<ConsumerRecord<String, byte[]>> records) {
-	    this.records = records;
+	public void setMessages(List<byte[]> messages) {
+	    this.messages = messages;
+	}
+    }
+
+    /**
+     * Resubmits spilled batches for processing while the connector is healthy
+     * and the processing queue has room. Batches are resubmitted without delay
+     * while the queue is less than half full and at the configured drain rate
+     * otherwise, so the log drains quickly once the connector has recovered
+     * without crowding out new batches.
+     */
+    private class SpillDrainer implements Runnable {
+
+	@Override
+	public void run() {
+	    long interval = 1000 / Math.max(1, getOutboundConnector().getSpillDrainRate());
+	    try {
+		while (!Thread.currentThread().isInterrupted()) {
+		    if ((getSpillLog().getDepth() == 0) || (getBatchProcessors().getQueue().remainingCapacity() == 0)
+			    || !getCircuitBreaker().allowRequest()) {
+			Thread.sleep(SPILL_IDLE_MS);
+			continue;
+		    }
+		    try {
+			SpillLog.Entry entry = getSpillLog().read();
+			if (entry == null) {
+			    releaseProbe();
+			    continue;
+			}
+			try {
+			    getBatchProcessors().execute(new TopicBatchProcessor(entry.getMessages(), null, entry));
+			    drained.mark();
+			} catch (RejectedExecutionException e) {
+			    releaseProbe();
+			    spill(entry.getMessages(), null, null);
+			    getSpillLog().complete(entry);
+			}
+		    } catch (SiteWhereException e) {
+			releaseProbe();
+			getLogger().error("Unable to drain spill log.", e);
+			Thread.sleep(SPILL_IDLE_MS);
+		    }
+		    BlockingQueue<Runnable> queue = getBatchProcessors().getQueue();
+		    if (queue.size() >= queue.remainingCapacity()) {
+			Thread.sleep(interval);
+		    }
+		}
+	    } catch (InterruptedException e) {
+		getLogger().info("Spill drainer shutting down.");
+	    }
 	}
     }
 
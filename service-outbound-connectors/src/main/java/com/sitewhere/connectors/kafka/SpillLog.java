@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.kafka;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Append-only log on local disk holding batches of messages that could not be
+ * handed to an outbound connector. Batches are written to numbered segment
+ * files which are forced to disk after every batch. Batches returned by
+ * {@link #read()} must be passed to {@link #complete(Entry)} once they have
+ * been processed. The position after the last batch for which it and every
+ * earlier batch completed is stored in a cursor file, and segments before it
+ * are deleted, so batches that were read but not processed before a restart
+ * are read again afterward.
+ * 
+ * Each entry holds the time it was written, the number of messages and each
+ * message prefixed with its length. An incomplete entry at the end of a
+ * segment (left by a crash while writing) is skipped.
+ * 
+ * @author Derek
+ */
+public class SpillLog {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(SpillLog.class);
+
+    /** Suffix for segment files */
+    private static final String SEGMENT_SUFFIX = ".spill";
+
+    /** Name of file holding read position */
+    private static final String CURSOR_FILE = "cursor";
+
+    /** Size of entry header (timestamp and message count) */
+    private static final int ENTRY_HEADER_SIZE = 12;
+
+    /** Size of buffer used when writing segments */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /** Folder containing segments */
+    private final File folder;
+
+    /** Size at which a new segment is started */
+    private final long segmentBytes;
+
+    /** Largest total size of segments */
+    private final long maxBytes;
+
+    /** Segment files by id */
+    private TreeMap<Long, File> segments = new TreeMap<>();
+
+    /** Stream for segment being written */
+    private FileOutputStream segmentOutput;
+
+    /** Output for segment being written */
+    private DataOutputStream writer;
+
+    /** Id of segment being written */
+    private long writeSegment = -1;
+
+    /** Bytes written to current segment */
+    private long writePosition;
+
+    /** Id of segment being read */
+    private long readSegment;
+
+    /** Position of next entry in segment being read */
+    private long readPosition;
+
+    /** Entries read but not yet completed in read order */
+    private Deque<Entry> inFlight = new ArrayDeque<>();
+
+    /** Total size of all segments */
+    private long totalBytes;
+
+    /** Number of unread entries */
+    private int depth;
+
+    /** Time oldest unread entry was written */
+    private long oldestTimestamp;
+
+    public SpillLog(File folder, long segmentBytes, long maxBytes) {
+	this.folder = folder;
+	this.segmentBytes = segmentBytes;
+	this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Open the log, recovering any entries left from a previous run.
+     * 
+     * @throws SiteWhereException
+     */
+    public synchronized void open() throws SiteWhereException {
+	if (!folder.exists() && !folder.mkdirs()) {
+	    throw new SiteWhereException("Unable to create spill folder: " + folder.getAbsolutePath());
+	}
+	segments.clear();
+	inFlight.clear();
+	File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+	for (File file : (files != null) ? files : new File[0]) {
+	    try {
+		segments.put(Long.parseLong(file.getName().replace(SEGMENT_SUFFIX, "")), file);
+	    } catch (NumberFormatException e) {
+		LOGGER.warn("Ignoring unexpected file in spill folder: " + file.getAbsolutePath());
+	    }
+	}
+	readCursor();
+	while (!segments.isEmpty() && (segments.firstKey() < readSegment)) {
+	    segments.pollFirstEntry().getValue().delete();
+	}
+	if (segments.isEmpty()) {
+	    readSegment = 0;
+	    readPosition = 0;
+	}
+	totalBytes = 0;
+	for (File file : segments.values()) {
+	    totalBytes += file.length();
+	}
+	countEntries();
+	openWriter(segments.isEmpty() ? readSegment : segments.lastKey() + 1);
+    }
+
+    /**
+     * Close the log. Unread entries remain on disk.
+     */
+    public synchronized void close() {
+	closeWriter();
+    }
+
+    /**
+     * Append a batch of messages.
+     * 
+     * @param messages
+     * @return false if the log is full
+     * @throws SiteWhereException
+     */
+    public synchronized boolean append(List<byte[]> messages) throws SiteWhereException {
+	long size = ENTRY_HEADER_SIZE;
+	for (byte[] message : messages) {
+	    size += 4 + message.length;
+	}
+	if (totalBytes + size > maxBytes) {
+	    return false;
+	}
+	if (writePosition >= segmentBytes) {
+	    openWriter(writeSegment + 1);
+	}
+	long now = System.currentTimeMillis();
+	try {
+	    writer.writeLong(now);
+	    writer.writeInt(messages.size());
+	    for (byte[] message : messages) {
+		writer.writeInt(message.length);
+		writer.write(message);
+	    }
+	    writer.flush();
+	    segmentOutput.getChannel().force(false);
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to write to spill log.", e);
+	}
+	writePosition += size;
+	totalBytes += size;
+	if (depth++ == 0) {
+	    oldestTimestamp = now;
+	}
+	return true;
+    }
+
+    /**
+     * Read the oldest unread batch of messages. The stored read position does
+     * not move past the batch until it is passed to {@link #complete(Entry)}.
+     * 
+     * @return entry or null if the log is empty
+     * @throws SiteWhereException
+     */
+    public synchronized Entry read() throws SiteWhereException {
+	while (depth > 0) {
+	    File segment = segments.get(readSegment);
+	    long position = readPosition;
+	    List<byte[]> messages = (segment != null) ? readEntry(segment) : null;
+	    if (messages != null) {
+		depth--;
+		oldestTimestamp = (depth > 0) ? peekTimestamp() : 0;
+		Entry entry = new Entry(readSegment, position, readPosition, messages);
+		inFlight.addLast(entry);
+		return entry;
+	    }
+	    if (readSegment >= writeSegment) {
+		// Counted entries were not found (should not happen).
+		depth = 0;
+		break;
+	    }
+	    advanceSegment();
+	}
+	return null;
+    }
+
+    /**
+     * Mark a batch returned by {@link #read()} as processed. The stored read
+     * position moves past every batch that has completed along with all batches
+     * read before it, and segments before that position are deleted.
+     * 
+     * @param entry
+     * @throws SiteWhereException
+     */
+    public synchronized void complete(Entry entry) throws SiteWhereException {
+	entry.completed = true;
+	Entry last = null;
+	while (!inFlight.isEmpty() && inFlight.peekFirst().completed) {
+	    last = inFlight.pollFirst();
+	}
+	if (last != null) {
+	    commit(last.segment, last.end);
+	}
+    }
+
+    /**
+     * Get number of batches read but not yet completed.
+     * 
+     * @return
+     */
+    public synchronized int getInFlight() {
+	return inFlight.size();
+    }
+
+    /**
+     * Get number of unread batches.
+     * 
+     * @return
+     */
+    public synchronized int getDepth() {
+	return depth;
+    }
+
+    /**
+     * Get age in milliseconds of the oldest unread batch.
+     * 
+     * @return
+     */
+    public synchronized long getAgeMs() {
+	return (depth > 0) ? Math.max(0, System.currentTimeMillis() - oldestTimestamp) : 0;
+    }
+
+    /**
+     * Get size in bytes of all segments.
+     * 
+     * @return
+     */
+    public synchronized long getSizeBytes() {
+	return totalBytes;
+    }
+
+    /**
+     * Read entry at the current read position, advancing past it.
+     * 
+     * @param segment
+     * @return messages or null if no complete entry remains in the segment
+     * @throws SiteWhereException
+     */
+    protected List<byte[]> readEntry(File segment) throws SiteWhereException {
+	try (RandomAccessFile input = new RandomAccessFile(segment, "r")) {
+	    if (readPosition + ENTRY_HEADER_SIZE > input.length()) {
+		return null;
+	    }
+	    input.seek(readPosition);
+	    input.readLong();
+	    int count = input.readInt();
+	    List<byte[]> messages = new ArrayList<>(count);
+	    for (int i = 0; i < count; i++) {
+		int length = input.readInt();
+		if ((length < 0) || (input.getFilePointer() + length > input.length())) {
+		    return null;
+		}
+		byte[] message = new byte[length];
+		input.readFully(message);
+		messages.add(message);
+	    }
+	    readPosition = input.getFilePointer();
+	    return messages;
+	} catch (EOFException e) {
+	    return null;
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to read from spill log.", e);
+	}
+    }
+
+    /**
+     * Get timestamp of entry at the current read position.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    protected long peekTimestamp() throws SiteWhereException {
+	long position = readPosition;
+	for (File segment : segments.tailMap(readSegment).values()) {
+	    try (RandomAccessFile input = new RandomAccessFile(segment, "r")) {
+		if (position + ENTRY_HEADER_SIZE <= input.length()) {
+		    input.seek(position);
+		    return input.readLong();
+		}
+	    } catch (IOException e) {
+		throw new SiteWhereException("Unable to read from spill log.", e);
+	    }
+	    position = 0;
+	}
+	return System.currentTimeMillis();
+    }
+
+    /**
+     * Move to the next segment once the current one has been fully read. If no
+     * batches are in flight, the fully read segment is deleted.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void advanceSegment() throws SiteWhereException {
+	readSegment++;
+	readPosition = 0;
+	if (inFlight.isEmpty()) {
+	    commit(readSegment, 0);
+	}
+    }
+
+    /**
+     * Store the read position and delete segments before it.
+     * 
+     * @param segment
+     * @param position
+     * @throws SiteWhereException
+     */
+    protected void commit(long segment, long position) throws SiteWhereException {
+	writeCursor(segment, position);
+	while (!segments.isEmpty() && (segments.firstKey() < segment) && (segments.firstKey() != writeSegment)) {
+	    File finished = segments.pollFirstEntry().getValue();
+	    totalBytes -= finished.length();
+	    if (!finished.delete()) {
+		LOGGER.warn("Unable to delete spill segment: " + finished.getAbsolutePath());
+	    }
+	}
+    }
+
+    /**
+     * Count unread entries and find the oldest timestamp.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void countEntries() throws SiteWhereException {
+	depth = 0;
+	oldestTimestamp = 0;
+	long segment = readSegment;
+	long position = readPosition;
+	for (Long id : segments.tailMap(readSegment).keySet()) {
+	    readSegment = id;
+	    while (readEntry(segments.get(id)) != null) {
+		depth++;
+	    }
+	    readPosition = 0;
+	}
+	readSegment = segment;
+	readPosition = position;
+	if (depth > 0) {
+	    oldestTimestamp = peekTimestamp();
+	    LOGGER.info(String.format("Recovered %d spilled %s from %s.", depth, (depth == 1) ? "batch" : "batches",
+		    folder.getAbsolutePath()));
+	}
+    }
+
+    /**
+     * Start writing to a new segment.
+     * 
+     * @param id
+     * @throws SiteWhereException
+     */
+    protected void openWriter(long id) throws SiteWhereException {
+	closeWriter();
+	File file = new File(folder, String.format("%020d%s", id, SEGMENT_SUFFIX));
+	try {
+	    this.segmentOutput = new FileOutputStream(file, true);
+	    this.writer = new DataOutputStream(new BufferedOutputStream(segmentOutput, WRITE_BUFFER_SIZE));
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to create spill segment: " + file.getAbsolutePath(), e);
+	}
+	segments.put(id, file);
+	writeSegment = id;
+	writePosition = 0;
+    }
+
+    /**
+     * Close segment being written.
+     */
+    protected void closeWriter() {
+	if (writer != null) {
+	    try {
+		writer.close();
+	    } catch (IOException e) {
+		LOGGER.warn("Unable to close spill segment.", e);
+	    }
+	    writer = null;
+	    segmentOutput = null;
+	}
+    }
+
+    /**
+     * Load read position from cursor file.
+     */
+    protected void readCursor() {
+	readSegment = segments.isEmpty() ? 0 : segments.firstKey();
+	readPosition = 0;
+	File cursor = new File(folder, CURSOR_FILE);
+	if (cursor.exists()) {
+	    try (RandomAccessFile input = new RandomAccessFile(cursor, "r")) {
+		long segment = input.readLong();
+		long position = input.readLong();
+		if (segments.containsKey(segment)) {
+		    readSegment = segment;
+		    readPosition = position;
+		}
+	    } catch (IOException e) {
+		LOGGER.warn("Unable to read spill cursor. Reading from start of oldest segment.", e);
+	    }
+	}
+    }
+
+    /**
+     * Store read position in cursor file.
+     * 
+     * @param segment
+     * @param position
+     * @throws SiteWhereException
+     */
+    protected void writeCursor(long segment, long position) throws SiteWhereException {
+	try (RandomAccessFile output = new RandomAccessFile(new File(folder, CURSOR_FILE), "rwd")) {
+	    output.seek(0);
+	    output.writeLong(segment);
+	    output.writeLong(position);
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to write spill cursor.", e);
+	}
+    }
+
+    /**
+     * Batch read from the log along with its location.
+     */
+    public static class Entry {
+
+	/** Segment holding entry */
+	private final long segment;
+
+	/** Position of entry in segment */
+	private final long position;
+
+	/** Position after entry in segment */
+	private final long end;
+
+	/** Messages in batch */
+	private final List<byte[]> messages;
+
+	/** Indicates batch has been processed */
+	private boolean completed;
+
+	public Entry(long segment, long position, long end, List<byte[]> messages) {
+	    this.segment = segment;
+	    this.position = position;
+	    this.end = end;
+	    this.messages = messages;
+	}
+
+	public long getSegment() {
+	    return segment;
+	}
+
+	public long getPosition() {
+	    return position;
+	}
+
+	public List<byte[]> getMessages() {
+	    return messages;
+	}
+    }
+}
@@ -7,23 +7,32 @@
  */
 package com.sitewhere.connectors.mqtt;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fusesource.hawtdispatch.Dispatch;
-import org.fusesource.hawtdispatch.DispatchQueue;
-import org.fusesource.mqtt.client.Future;
-import org.fusesource.mqtt.client.FutureConnection;
+import org.fusesource.mqtt.client.Callback;
 import org.fusesource.mqtt.client.MQTT;
 import org.fusesource.mqtt.client.QoS;
 
-import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.communication.mqtt.IMqttComponent;
 import com.sitewhere.communication.mqtt.MqttLifecycleComponent;
+import com.sitewhere.communication.mqtt.MqttPublishingEngine;
 import com.sitewhere.connectors.SerialOutboundConnector;
+import com.sitewhere.connectors.encoding.JsonEventPayloadEncoder;
+import com.sitewhere.connectors.encoding.ProtobufEventPayloadEncoder;
+import com.sitewhere.connectors.spi.IAcknowledgingOutboundConnector;
 import com.sitewhere.connectors.spi.IMulticastingOutboundConnector;
+import com.sitewhere.connectors.spi.IOutboundBatchCallback;
+import com.sitewhere.connectors.spi.common.IEventPayloadEncoder;
 import com.sitewhere.connectors.spi.multicast.IDeviceEventMulticaster;
 import com.sitewhere.connectors.spi.routing.IRouteBuilder;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceAssignment;
@@ -34,15 +43,27 @@ import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventContext;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.kafka.IEnrichedEventPayload;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
 /**
- * Outbound connector that sends events to an MQTT topic.
+ * Outbound connector that sends events to an MQTT topic. Messages are
+ * published through an {@link MqttPublishingEngine} which keeps a window of
+ * unacknowledged messages on each broker connection rather than publishing one
+ * message per round trip. Batches are reported complete once every message
+ * published for them has been acknowledged so that Kafka offsets are only
+ * committed for delivered events.
  * 
  * @author Derek
  */
 public class MqttOutboundConnector extends SerialOutboundConnector
-	implements IMulticastingOutboundConnector<String>, IMqttComponent {
+	implements IMulticastingOutboundConnector<String>, IMqttComponent, IAcknowledgingOutboundConnector {
+
+    /** Encoding for JSON payloads */
+    public static final String ENCODING_JSON = "json";
+
+    /** Encoding for protobuf payloads */
+    public static final String ENCODING_PROTOBUF = "protobuf";
 
     private String protocol = MqttLifecycleComponent.DEFAULT_PROTOCOL;
 
@@ -82,14 +103,23 @@ public class MqttOutboundConnector extends SerialOutboundConnector
     /** Quality of service */
     private String qos = QoS.AT_LEAST_ONCE.name();
 
-    /** MQTT client */
-    private MQTT mqtt;
+    /** Number of broker connections */
+    private int numConnections = 1;
+
+    /** Unacknowledged messages allowed per connection */
+    private int maxInFlight = 1000;
 
-    /** Hawtdispatch queue */
-    private DispatchQueue queue;
+    /** Payload encoding */
+    private String encoding = ENCODING_JSON;
 
-    /** Shared MQTT connection */
-    private FutureConnection connection;
+    /** Encoder for payloads (overrides encoding if set) */
+    private IEventPayloadEncoder payloadEncoder;
+
+    /** Publishes messages */
+    private MqttPublishingEngine engine;
+
+    /** Tracks acknowledgements for batch being processed by current thread */
+    private ThreadLocal<BatchAcknowledgement> currentBatch = new ThreadLocal<>();
 
     /** Multicaster for events */
     private IDeviceEventMulticaster<String> multicaster;
@@ -125,18 +155,23 @@ public class MqttOutboundConnector extends SerialOutboundConnector
 	    startNestedComponent(getRouteBuilder(), monitor, true);
 	}
 
-	// Use common MQTT configuration setup.
-	this.queue = Dispatch.createQueue(getComponentId().toString());
-	this.mqtt = MqttLifecycleComponent.configure(this, queue);
-
-	getLogger().info(String.format("Connecting to MQTT broker at %s:%s ...", getHostname(), getPort()));
-	connection = mqtt.futureConnection();
-	try {
-	    Future<Void> future = connection.connect();
-	    future.await(MqttLifecycleComponent.DEFAULT_CONNECT_TIMEOUT_SECS, TimeUnit.SECONDS);
-	} catch (Exception e) {
-	    throw new SiteWhereException("Unable to connect to MQTT broker.", e);
+	if (getPayloadEncoder() == null) {
+	    this.payloadEncoder = ENCODING_PROTOBUF.equalsIgnoreCase(getEncoding()) ? new ProtobufEventPayloadEncoder()
+		    : new JsonEventPayloadEncoder();
 	}
+
+	// Use common MQTT configuration setup.
+	MQTT mqtt = MqttLifecycleComponent.configure(this, Dispatch.createQueue(getComponentId().toString()));
+
+	getLogger().info(String.format("Connecting to MQTT broker at %s:%s using %d %s ...", getHostname(), getPort(),
+		getNumConnections(), (getNumConnections() == 1) ? "connection" : "connections"));
+	this.engine = new MqttPublishingEngine();
+	engine.setNumConnections(getNumConnections());
+	engine.setMaxInFlight(getMaxInFlight());
+	engine.setQos(qosFromConfig(getQos()));
+	engine.setMeterFactory(
+		name -> createMeterMetric(MetricsUtils.tagged("outboundConnector." + name, "connector", getConnectorId())));
+	engine.start(mqtt, "MQTT Connector " + getConnectorId());
 	getLogger().info("Connected to MQTT broker.");
     }
 
@@ -157,16 +192,9 @@ public class MqttOutboundConnector extends SerialOutboundConnector
 	    routeBuilder.lifecycleStop(monitor);
 	}
 
-	if (connection != null) {
-	    try {
-		connection.disconnect();
-		connection.kill();
-	    } catch (Exception e) {
-		getLogger().error("Error shutting down MQTT device event receiver.", e);
-	    }
-	}
-	if (queue != null) {
-	    queue.suspend();
+	if (engine != null) {
+	    engine.stop();
+	    engine = null;
 	}
 	super.stop(monitor);
     }
@@ -179,7 +207,7 @@ public class MqttOutboundConnector extends SerialOutboundConnector
      */
     @Override
     public void onMeasurement(IDeviceEventContext context, IDeviceMeasurement mx) throws SiteWhereException {
-	sendEvent(mx);
+	sendEvent(context, mx);
     }
 
     /*
@@ -190,7 +218,7 @@ public class MqttOutboundConnector extends SerialOutboundConnector
      */
     @Override
     public void onLocation(IDeviceEventContext context, IDeviceLocation location) throws SiteWhereException {
-	sendEvent(location);
+	sendEvent(context, location);
     }
 
     /*
@@ -201,7 +229,7 @@ public class MqttOutboundConnector extends SerialOutboundConnector
      */
     @Override
     public void onAlert(IDeviceEventContext context, IDeviceAlert alert) throws SiteWhereException {
-	sendEvent(alert);
+	sendEvent(context, alert);
     }
 
     /*
@@ -213,7 +241,7 @@ public class MqttOutboundConnector extends SerialOutboundConnector
     @Override
     public void onCommandInvocation(IDeviceEventContext context, IDeviceCommandInvocation invocation)
 	    throws SiteWhereException {
-	sendEvent(invocation);
+	sendEvent(context, invocation);
     }
 
     /*
@@ -224,42 +252,234 @@ public class MqttOutboundConnector extends SerialOutboundConnector
     @Override
     public void onCommandResponse(IDeviceEventContext context, IDeviceCommandResponse response)
 	    throws SiteWhereException {
-	sendEvent(response);
+	sendEvent(context, response);
+    }
+
+    /*
+     * @see com.sitewhere.connectors.spi.IAcknowledgingOutboundConnector#
+     * processEventBatch(java.util.List,
+     * com.sitewhere.connectors.spi.IOutboundBatchCallback)
+     */
+    @Override
+    public void processEventBatch(List<IEnrichedEventPayload> payloads, IOutboundBatchCallback callback)
+	    throws SiteWhereException {
+	BatchAcknowledgement ack = new BatchAcknowledgement(payloads, callback);
+	currentBatch.set(ack);
+	try {
+	    processEventBatch(payloads);
+	} finally {
+	    currentBatch.remove();
+	    ack.onSuccess(null);
+	}
     }
 
     /**
      * Send an {@link IDeviceEvent} to the configured topic.
      * 
+     * @param context
      * @param event
      * @throws SiteWhereException
      */
-    protected void sendEvent(IDeviceEvent event) throws SiteWhereException {
+    protected void sendEvent(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException {
+	byte[] payload = getPayloadEncoder().encode(context, event);
 	if (getMulticaster() != null) {
 	    IDeviceAssignment assignment = getDeviceManagement().getDeviceAssignment(event.getDeviceAssignmentId());
 	    IDevice device = getDeviceManagement().getDevice(assignment.getDeviceId());
 	    List<String> routes = getMulticaster().calculateRoutes(event, device, assignment);
 	    for (String route : routes) {
-		publish(event, route);
+		publish(event, route, payload);
 	    }
 	} else {
 	    if (getRouteBuilder() != null) {
 		IDeviceAssignment assignment = getDeviceManagement().getDeviceAssignment(event.getDeviceAssignmentId());
 		IDevice device = getDeviceManagement().getDevice(assignment.getDeviceId());
-		publish(event, getRouteBuilder().build(event, device, assignment));
+		publish(event, getRouteBuilder().build(event, device, assignment), payload);
 	    } else {
-		publish(event, getTopic());
+		publish(event, getTopic(), payload);
 	    }
 	}
     }
 
     /**
-     * Publish an event to an MQTT topic.
+     * Publish an encoded event to an MQTT topic. Messages are sharded across
+     * connections by device so that events for a device stay in order.
      * 
      * @param event
+     * @param topic
+     * @param payload
      * @throws SiteWhereException
      */
-    protected void publish(IDeviceEvent event, String topic) throws SiteWhereException {
-	connection.publish(topic, MarshalUtils.marshalJson(event), QoS.AT_LEAST_ONCE, false);
+    protected void publish(IDeviceEvent event, String topic, byte[] payload) throws SiteWhereException {
+	BatchAcknowledgement ack = currentBatch.get();
+	if (ack != null) {
+	    ack.expect();
+	}
+	try {
+	    engine.publish(event.getDeviceId(), topic, payload, (ack != null) ? ack.forEvent(event) : failureLogger);
+	} catch (SiteWhereException e) {
+	    if (ack != null) {
+		ack.onSuccess(null);
+	    }
+	    throw e;
+	}
+    }
+
+    /**
+     * Convert QoS setting to enum value.
+     * 
+     * @param qos
+     * @return
+     */
+    protected static QoS qosFromConfig(String qos) {
+	if ("0".equals(qos) || "AT_MOST_ONCE".equals(qos)) {
+	    return QoS.AT_MOST_ONCE;
+	}
+	if ("2".equals(qos) || "EXACTLY_ONCE".equals(qos)) {
+	    return QoS.EXACTLY_ONCE;
+	}
+	return QoS.AT_LEAST_ONCE;
+    }
+
+    /** Logs messages that could not be published */
+    private Callback<Void> failureLogger = new Callback<Void>() {
+
+	@Override
+	public void onSuccess(Void value) {
+	}
+
+	@Override
+	public void onFailure(Throwable e) {
+	    getLogger().error("Unable to publish MQTT message: " + e.getMessage());
+	}
+    };
+
+    /**
+     * Counts messages published for a batch that have not been acknowledged and
+     * notifies the batch callback when all have completed. The count starts at
+     * one so that the batch cannot complete while it is still being published.
+     * Payloads with a message the broker did not accept are passed to
+     * {@link #handleFailedBatch(List, Throwable)} before the batch completes.
+     */
+    private class BatchAcknowledgement implements Callback<Void> {
+
+	/** Callback for batch */
+	private final IOutboundBatchCallback callback;
+
+	/** Outstanding messages */
+	private final AtomicInteger outstanding = new AtomicInteger(1);
+
+	/** Payloads in batch */
+	private final List<IEnrichedEventPayload> payloads;
+
+	/** Payloads in batch indexed by event */
+	private final Map<IDeviceEvent, IEnrichedEventPayload> payloadsByEvent = new IdentityHashMap<>();
+
+	/** Payloads with at least one failed message */
+	private final Set<IEnrichedEventPayload> failed = Collections
+		.newSetFromMap(new IdentityHashMap<IEnrichedEventPayload, Boolean>());
+
+	/** First failure reported for batch */
+	private volatile Throwable failReason;
+
+	public BatchAcknowledgement(List<IEnrichedEventPayload> payloads, IOutboundBatchCallback callback) {
+	    this.payloads = payloads;
+	    this.callback = callback;
+	    for (IEnrichedEventPayload payload : payloads) {
+		payloadsByEvent.put(payload.getEvent(), payload);
+	    }
+	}
+
+	/**
+	 * Get callback for a message published for an event in the batch.
+	 * 
+	 * @param event
+	 * @return
+	 */
+	public Callback<Void> forEvent(IDeviceEvent event) {
+	    return new Callback<Void>() {
+
+		@Override
+		public void onSuccess(Void value) {
+		    BatchAcknowledgement.this.onSuccess(null);
+		}
+
+		@Override
+		public void onFailure(Throwable e) {
+		    failed(event, e);
+		}
+	    };
+	}
+
+	/**
+	 * Expect acknowledgement for another message.
+	 */
+	public void expect() {
+	    outstanding.incrementAndGet();
+	}
+
+	/*
+	 * @see org.fusesource.mqtt.client.Callback#onSuccess(java.lang.Object)
+	 */
+	@Override
+	public void onSuccess(Void value) {
+	    if (outstanding.decrementAndGet() == 0) {
+		reportFailures();
+		callback.onBatchComplete();
+	    }
+	}
+
+	/*
+	 * @see org.fusesource.mqtt.client.Callback#onFailure(java.lang.Throwable)
+	 */
+	@Override
+	public void onFailure(Throwable e) {
+	    failed(null, e);
+	}
+
+	/**
+	 * Record a message that could not be published. If the event is not known,
+	 * every payload in the batch is treated as failed.
+	 * 
+	 * @param event
+	 * @param e
+	 */
+	protected void failed(IDeviceEvent event, Throwable e) {
+	    failureLogger.onFailure(e);
+	    IEnrichedEventPayload payload = (event != null) ? payloadsByEvent.get(event) : null;
+	    synchronized (failed) {
+		if (failReason == null) {
+		    failReason = e;
+		}
+		if (payload != null) {
+		    failed.add(payload);
+		} else {
+		    failed.addAll(payloads);
+		}
+	    }
+	    onSuccess(null);
+	}
+
+	/**
+	 * Pass payloads that were not delivered to the connector failure handler.
+	 */
+	protected void reportFailures() {
+	    List<IEnrichedEventPayload> undelivered = new ArrayList<>();
+	    synchronized (failed) {
+		if (failReason == null) {
+		    return;
+		}
+		for (IEnrichedEventPayload payload : payloads) {
+		    if (failed.contains(payload)) {
+			undelivered.add(payload);
+		    }
+		}
+	    }
+	    try {
+		handleFailedBatch(undelivered, failReason);
+	    } catch (Throwable t) {
+		getLogger().error("Unable to handle failed batch.", t);
+	    }
+	}
     }
 
     /*
@@ -439,4 +659,36 @@ public class MqttOutboundConnector extends SerialOutboundConnector
     public void setTopic(String topic) {
 	this.topic = topic;
     }
+
+    public int getNumConnections() {
+	return numConnections;
+    }
+
+    public void setNumConnections(int numConnections) {
+	this.numConnections = numConnections;
+    }
+
+    public int getMaxInFlight() {
+	return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+	this.maxInFlight = maxInFlight;
+    }
+
+    public String getEncoding() {
+	return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+	this.encoding = encoding;
+    }
+
+    public IEventPayloadEncoder getPayloadEncoder() {
+	return payloadEncoder;
+    }
+
+    public void setPayloadEncoder(IEventPayloadEncoder payloadEncoder) {
+	this.payloadEncoder = payloadEncoder;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.spi;
+
+import java.util.List;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.kafka.IEnrichedEventPayload;
+
+/**
+ * Outbound connector that delivers asynchronously and reports when a batch has
+ * been acknowledged by the destination. The connector host only commits Kafka
+ * offsets for batches that have completed, so events still awaiting
+ * acknowledgement are redelivered if the connector is restarted.
+ * 
+ * @author Derek
+ */
+public interface IAcknowledgingOutboundConnector extends IOutboundConnector {
+
+    /**
+     * Process a batch of events. The callback is invoked (possibly from another
+     * thread) once delivery of every event in the batch has finished.
+     * 
+     * @param payloads
+     * @param callback
+     * @throws SiteWhereException
+     */
+    public void processEventBatch(List<IEnrichedEventPayload> payloads, IOutboundBatchCallback callback)
+	    throws SiteWhereException;
+}
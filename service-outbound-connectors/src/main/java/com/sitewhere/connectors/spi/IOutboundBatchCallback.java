@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.spi;
+
+/**
+ * Notified when delivery of every payload in a batch has finished.
+ * 
+ * @author Derek
+ */
+public interface IOutboundBatchCallback {
+
+    /**
+     * Called once all payloads in the batch have been acknowledged by the
+     * destination or abandoned after failing.
+     */
+    public void onBatchComplete();
+}
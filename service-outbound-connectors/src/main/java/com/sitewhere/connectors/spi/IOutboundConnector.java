@@ -36,6 +36,46 @@ public interface IOutboundConnector extends ITenantEngineLifecycleComponent {
      */
     public int getNumProcessingThreads();
 
+    /**
+     * Get maximum number of batches queued for processing threads. Batches that
+     * do not fit are spilled to local disk.
+     * 
+     * @return
+     */
+    public int getMaxQueuedBatches();
+
+    /**
+     * Get number of consecutive failed batches after which new batches are
+     * spilled to local disk rather than processed.
+     * 
+     * @return
+     */
+    public int getBulkheadFailureThreshold();
+
+    /**
+     * Get time in milliseconds to wait after batches start failing before a
+     * batch is processed again.
+     * 
+     * @return
+     */
+    public long getBulkheadOpenMs();
+
+    /**
+     * Get number of spilled batches per second resubmitted for processing while
+     * the processing queue is at least half full. Batches are resubmitted
+     * without delay while the queue has more room.
+     * 
+     * @return
+     */
+    public int getSpillDrainRate();
+
+    /**
+     * Get maximum size of spilled data on local disk in megabytes.
+     * 
+     * @return
+     */
+    public int getMaxSpillMegabytes();
+
     /**
      * Process a batch of events.
      * 
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.spi.common;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+
+/**
+ * Encodes a device event into the payload sent by an outbound connector.
+ * Implementations must be thread safe.
+ * 
+ * @author Derek
+ */
+public interface IEventPayloadEncoder {
+
+    /**
+     * Encode an event.
+     * 
+     * @param context
+     * @param event
+     * @return
+     * @throws SiteWhereException
+     */
+    public byte[] encode(IDeviceEventContext context, IDeviceEvent event) throws SiteWhereException;
+}
@@ -148,6 +148,15 @@ public class OutboundConnectorsParser extends AbstractBeanDefinitionParser {
 	if (numProcessingThreads != null) {
 	    builder.addPropertyValue("numProcessingThreads", numProcessingThreads.getValue());
 	}
+
+	// Handle bulkhead settings.
+	for (String name : new String[] { "maxQueuedBatches", "bulkheadFailureThreshold", "bulkheadOpenMs",
+		"spillDrainRate", "maxSpillMegabytes" }) {
+	    Attr attr = element.getAttributeNode(name);
+	    if (attr != null) {
+		builder.addPropertyValue(name, attr.getValue());
+	    }
+	}
     }
 
     /**
@@ -232,6 +241,14 @@ public class OutboundConnectorsParser extends AbstractBeanDefinitionParser {
 	    processor.addPropertyValue("topic", topic.getValue());
 	}
 
+	// Parse publishing settings.
+	for (String name : new String[] { "encoding", "numConnections", "maxInFlight" }) {
+	    Attr attr = element.getAttributeNode(name);
+	    if (attr != null) {
+		processor.addPropertyValue(name, attr.getValue());
+	    }
+	}
+
 	// Parse nested filters.
 	processor.addPropertyValue("filters", parseFilters(element, context));
 
@@ -424,6 +441,15 @@ public class OutboundConnectorsParser extends AbstractBeanDefinitionParser {
 	    connector.addPropertyValue("method", method.getValue());
 	}
 
+	// Parse delivery tuning attributes.
+	for (String name : new String[] { "maxConnections", "maxInFlight", "requestTimeoutMs", "batchSize",
+		"batchLingerMs", "maxRetries", "retryBackoffMs", "circuitBreakerThreshold", "circuitBreakerOpenMs" }) {
+	    Attr attr = element.getAttributeNode(name);
+	    if (attr != null) {
+		connector.addPropertyValue(name, attr.getValue());
+	    }
+	}
+
 	// Parse URI builder.
 	connector.addPropertyValue("uriBuilder", parseUriBuilder(element, context));
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Verifies that the circuit breaker opens after consecutive failures and lets
+ * a single probe through once the open interval has passed.
+ *
+ * @author Derek
+ */
+public class CircuitBreakerTest {
+
+    /** Time breaker stays open */
+    private static final long OPEN_MS = 50;
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() throws Exception {
+	CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MS);
+	assertFalse(breaker.onFailure());
+	assertFalse(breaker.onFailure());
+
+	// A success resets the count of consecutive failures.
+	breaker.onSuccess();
+	assertFalse(breaker.onFailure());
+	assertFalse(breaker.onFailure());
+	assertTrue(breaker.allowRequest());
+	assertTrue(breaker.onFailure());
+	assertEquals(CircuitBreaker.State.Open, breaker.getState());
+	assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testSuccessfulProbeClosesBreaker() throws Exception {
+	CircuitBreaker breaker = open();
+	Thread.sleep(OPEN_MS + 10);
+
+	// Only one probe is allowed while half open.
+	assertTrue(breaker.allowRequest());
+	assertEquals(CircuitBreaker.State.HalfOpen, breaker.getState());
+	assertFalse(breaker.allowRequest());
+
+	breaker.onSuccess();
+	assertEquals(CircuitBreaker.State.Closed, breaker.getState());
+	assertTrue(breaker.allowRequest());
+	assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedProbeReopensBreaker() throws Exception {
+	CircuitBreaker breaker = open();
+	Thread.sleep(OPEN_MS + 10);
+
+	assertTrue(breaker.allowRequest());
+	assertTrue(breaker.onFailure());
+	assertEquals(CircuitBreaker.State.Open, breaker.getState());
+	assertFalse(breaker.allowRequest());
+
+	// Breaker allows another probe after the open interval.
+	Thread.sleep(OPEN_MS + 10);
+	assertTrue(breaker.allowRequest());
+    }
+
+    protected CircuitBreaker open() {
+	CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MS);
+	assertTrue(breaker.onFailure());
+	assertFalse(breaker.allowRequest());
+	return breaker;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Verifies delivery, batching and retry behavior of the asynchronous HTTP
+ * delivery engine against a local HTTP server.
+ *
+ * @author Derek
+ */
+public class AsyncHttpDeliveryEngineTest {
+
+    /** Local endpoint */
+    private HttpServer server;
+
+    /** Requests received as method followed by body */
+    private List<String> received = new ArrayList<>();
+
+    /** Statuses returned for upcoming requests (200 once empty) */
+    private Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setup() throws Exception {
+	server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+	server.createContext("/", this::handle);
+	server.start();
+    }
+
+    @After
+    public void teardown() {
+	server.stop(0);
+    }
+
+    @Test
+    public void testDeliversWithConfiguredMethod() throws Exception {
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.start();
+	engine.submit("put", uri(), bytes("a"));
+	engine.submit("POST", uri(), bytes("b"));
+	engine.stop();
+
+	assertEquals(new HashSet<>(Arrays.asList("PUT a", "POST b")), new HashSet<>(getReceived()));
+	assertEquals(2, engine.getDelivered().getCount());
+	assertEquals(0, engine.getFailed().getCount());
+    }
+
+    @Test
+    public void testRejectsUnsupportedMethod() throws Exception {
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.start();
+	try {
+	    engine.submit("delete", uri(), bytes("a"));
+	    fail("Unsupported method was accepted.");
+	} catch (SiteWhereException e) {
+	    // Expected.
+	}
+	engine.stop();
+	assertEquals(0, getReceived().size());
+    }
+
+    @Test
+    public void testBatchesJsonPayloads() throws Exception {
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.setBatchSize(3);
+	engine.setBatchLingerMs(60 * 1000);
+	engine.start();
+	for (int i = 1; i <= 4; i++) {
+	    engine.submit("post", uri(), bytes(String.valueOf(i)));
+	}
+
+	// Partial batch is flushed on stop.
+	engine.stop();
+	assertEquals(new HashSet<>(Arrays.asList("POST [1,2,3]", "POST [4]")), new HashSet<>(getReceived()));
+	assertEquals(2, engine.getDelivered().getCount());
+    }
+
+    @Test
+    public void testRetriesServerErrors() throws Exception {
+	statuses.add(503);
+	statuses.add(500);
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.setRetryBackoffMs(10);
+	engine.start();
+	engine.submit("post", uri(), bytes("a"));
+	engine.stop();
+
+	assertEquals(Arrays.asList("POST a", "POST a", "POST a"), getReceived());
+	assertEquals(2, engine.getRetried().getCount());
+	assertEquals(1, engine.getDelivered().getCount());
+	assertEquals(0, engine.getFailed().getCount());
+    }
+
+    @Test
+    public void testClientErrorsAreNotRetried() throws Exception {
+	statuses.add(400);
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.setRetryBackoffMs(10);
+	engine.start();
+	engine.submit("post", uri(), bytes("a"));
+	engine.stop();
+
+	assertEquals(Arrays.asList("POST a"), getReceived());
+	assertEquals(0, engine.getRetried().getCount());
+	assertEquals(1, engine.getFailed().getCount());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetries() throws Exception {
+	for (int i = 0; i < 3; i++) {
+	    statuses.add(503);
+	}
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.setMaxRetries(2);
+	engine.setRetryBackoffMs(10);
+	engine.start();
+	engine.submit("post", uri(), bytes("a"));
+	engine.stop();
+
+	assertEquals(3, getReceived().size());
+	assertEquals(2, engine.getRetried().getCount());
+	assertEquals(0, engine.getDelivered().getCount());
+	assertEquals(1, engine.getFailed().getCount());
+    }
+
+    /**
+     * Record a request and respond with the next queued status.
+     *
+     * @param exchange
+     * @throws IOException
+     */
+    protected void handle(HttpExchange exchange) throws IOException {
+	ByteArrayOutputStream body = new ByteArrayOutputStream();
+	try (InputStream input = exchange.getRequestBody()) {
+	    byte[] buffer = new byte[1024];
+	    int read;
+	    while ((read = input.read(buffer)) != -1) {
+		body.write(buffer, 0, read);
+	    }
+	}
+	synchronized (received) {
+	    received.add(exchange.getRequestMethod() + " " + new String(body.toByteArray(), StandardCharsets.UTF_8));
+	}
+	Integer status = statuses.poll();
+	exchange.sendResponseHeaders((status != null) ? status : 200, -1);
+	exchange.close();
+    }
+
+    protected List<String> getReceived() {
+	synchronized (received) {
+	    return new ArrayList<>(received);
+	}
+    }
+
+    protected String uri() {
+	return "http://localhost:" + server.getAddress().getPort() + "/events";
+    }
+
+    protected byte[] bytes(String value) {
+	return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
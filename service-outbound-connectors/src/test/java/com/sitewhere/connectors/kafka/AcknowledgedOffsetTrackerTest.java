@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import com.sitewhere.connectors.kafka.AcknowledgedOffsetTracker.PendingBatch;
+
+/**
+ * Verifies that committable offsets only advance past batches that completed
+ * along with every batch before them and that revoked partitions are dropped.
+ *
+ * @author Derek
+ */
+public class AcknowledgedOffsetTrackerTest {
+
+    /** First partition */
+    private static final TopicPartition P0 = new TopicPartition("events", 0);
+
+    /** Second partition */
+    private static final TopicPartition P1 = new TopicPartition("events", 1);
+
+    @Test
+    public void testContiguousBatchesAreCommitted() throws Exception {
+	AcknowledgedOffsetTracker tracker = new AcknowledgedOffsetTracker();
+	PendingBatch first = tracker.register(P0, 10);
+	PendingBatch second = tracker.register(P0, 20);
+	tracker.register(P0, 30);
+	assertTrue(tracker.drainCommittable().isEmpty());
+
+	first.complete();
+	second.complete();
+	Map<TopicPartition, OffsetAndMetadata> offsets = tracker.drainCommittable();
+	assertEquals(Collections.singletonMap(P0, new OffsetAndMetadata(20)), offsets);
+	assertEquals(1, tracker.getPendingCount());
+
+	// Offsets already drained are not returned again.
+	assertTrue(tracker.drainCommittable().isEmpty());
+    }
+
+    @Test
+    public void testOutOfOrderCompletionWaitsForEarlierBatches() throws Exception {
+	AcknowledgedOffsetTracker tracker = new AcknowledgedOffsetTracker();
+	PendingBatch first = tracker.register(P0, 10);
+	PendingBatch second = tracker.register(P0, 20);
+	PendingBatch third = tracker.register(P0, 30);
+
+	third.complete();
+	second.complete();
+	assertTrue(tracker.drainCommittable().isEmpty());
+	assertEquals(3, tracker.getPendingCount());
+
+	first.complete();
+	assertEquals(Collections.singletonMap(P0, new OffsetAndMetadata(30)), tracker.drainCommittable());
+	assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    public void testPartitionsAreTrackedIndependently() throws Exception {
+	AcknowledgedOffsetTracker tracker = new AcknowledgedOffsetTracker();
+	PendingBatch blocked = tracker.register(P0, 10);
+	tracker.register(P0, 20).complete();
+	tracker.register(P1, 5).complete();
+
+	assertEquals(Collections.singletonMap(P1, new OffsetAndMetadata(5)), tracker.drainCommittable());
+	blocked.complete();
+	assertEquals(Collections.singletonMap(P0, new OffsetAndMetadata(20)), tracker.drainCommittable());
+    }
+
+    @Test
+    public void testRevokedPartitionsAreDropped() throws Exception {
+	AcknowledgedOffsetTracker tracker = new AcknowledgedOffsetTracker();
+	PendingBatch revoked = tracker.register(P0, 10);
+	tracker.register(P1, 5);
+	tracker.revoke(Collections.singletonList(P0));
+	assertEquals(1, tracker.getPendingCount());
+
+	// Completing a batch from a revoked partition does not commit its offset.
+	revoked.complete();
+	assertTrue(tracker.drainCommittable().isEmpty());
+
+	// Batches registered after the partition is reassigned are tracked again.
+	tracker.register(P0, 40).complete();
+	assertEquals(Collections.singletonMap(P0, new OffsetAndMetadata(40)), tracker.drainCommittable());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.connectors.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies that spilled batches survive a restart until they have been
+ * completed and that an incomplete entry left by a crash is skipped.
+ *
+ * @author Derek
+ */
+public class SpillLogTest {
+
+    /** Segment size small enough to roll over after a few batches */
+    private static final long SEGMENT_BYTES = 64;
+
+    /** Maximum log size */
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+	SpillLog log = open();
+	assertTrue(log.append(batch("a1", "a2")));
+	assertTrue(log.append(batch("b1")));
+	assertEquals(2, log.getDepth());
+
+	SpillLog.Entry first = log.read();
+	assertEquals(Arrays.asList("a1", "a2"), strings(first));
+	SpillLog.Entry second = log.read();
+	assertEquals(Arrays.asList("b1"), strings(second));
+	assertNull(log.read());
+	assertEquals(0, log.getDepth());
+	assertEquals(2, log.getInFlight());
+
+	log.complete(second);
+	assertEquals(2, log.getInFlight());
+	log.complete(first);
+	assertEquals(0, log.getInFlight());
+	log.close();
+    }
+
+    @Test
+    public void testReopenReadsUncompletedBatches() throws Exception {
+	SpillLog log = open();
+	for (int i = 0; i < 10; i++) {
+	    assertTrue(log.append(batch("m" + i)));
+	}
+	log.complete(log.read());
+	log.complete(log.read());
+	SpillLog.Entry inFlight = log.read();
+	log.complete(log.read());
+	assertEquals("m2", strings(inFlight).get(0));
+	log.close();
+
+	// Batch still in flight and everything after it is read again.
+	log = open();
+	assertEquals(8, log.getDepth());
+	List<String> read = new ArrayList<>();
+	SpillLog.Entry entry;
+	while ((entry = log.read()) != null) {
+	    read.addAll(strings(entry));
+	    log.complete(entry);
+	}
+	assertEquals(Arrays.asList("m2", "m3", "m4", "m5", "m6", "m7", "m8", "m9"), read);
+	log.close();
+
+	// Completed batches are not read again and read segments are removed.
+	log = open();
+	assertEquals(0, log.getDepth());
+	assertNull(log.read());
+	assertTrue(log.getSizeBytes() < SEGMENT_BYTES);
+	log.close();
+    }
+
+    @Test
+    public void testTornTailIsSkipped() throws Exception {
+	SpillLog log = open();
+	assertTrue(log.append(batch("complete")));
+	assertTrue(log.append(batch("torn")));
+	log.close();
+
+	File[] segments = folder.getRoot().listFiles((dir, name) -> name.endsWith(".spill"));
+	assertEquals(1, segments.length);
+	try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+	    file.setLength(file.length() - 2);
+	}
+
+	log = open();
+	assertEquals(1, log.getDepth());
+	assertTrue(log.append(batch("after")));
+	assertEquals(2, log.getDepth());
+	SpillLog.Entry first = log.read();
+	assertEquals(Arrays.asList("complete"), strings(first));
+	SpillLog.Entry second = log.read();
+	assertEquals(Arrays.asList("after"), strings(second));
+	assertNull(log.read());
+	log.complete(first);
+	log.complete(second);
+	log.close();
+    }
+
+    @Test
+    public void testFullLogRejectsBatch() throws Exception {
+	SpillLog log = new SpillLog(folder.getRoot(), SEGMENT_BYTES, 40);
+	log.open();
+	assertTrue(log.append(batch("0123456789")));
+	assertFalse(log.append(batch("0123456789")));
+	assertEquals(1, log.getDepth());
+	log.close();
+    }
+
+    protected SpillLog open() throws Exception {
+	SpillLog log = new SpillLog(folder.getRoot(), SEGMENT_BYTES, MAX_BYTES);
+	log.open();
+	return log;
+    }
+
+    protected List<byte[]> batch(String... messages) {
+	List<byte[]> batch = new ArrayList<>();
+	for (String message : messages) {
+	    batch.add(message.getBytes(StandardCharsets.UTF_8));
+	}
+	return batch;
+    }
+
+    protected List<String> strings(SpillLog.Entry entry) {
+	List<String> strings = new ArrayList<>();
+	for (byte[] message : entry.getMessages()) {
+	    strings.add(new String(message, StandardCharsets.UTF_8));
+	}
+	return strings;
+    }
+}
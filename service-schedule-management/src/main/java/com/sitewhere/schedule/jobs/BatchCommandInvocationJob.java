@@ -64,6 +64,14 @@ public class BatchCommandInvocationJob implements Job {
 	try {
 	    ITenant tenant = getTenantManagement().getTenantByToken(context.getScheduler().getSchedulerName());
 
+	    // Devices are resolved page by page as the operation is initialized.
+	    if (BatchUtils.canResolveDuringInitialization(criteria)) {
+		getBatchManagement(tenant)
+			.createBatchOperation(BatchUtils.buildBatchCommandInvocationForCriteria(criteria));
+		LOGGER.info("Executed batch command invocation job.");
+		return;
+	    }
+
 	    // Resolve tokens for devices matching criteria.
 	    List<String> deviceTokens = BatchUtils.resolveDeviceTokensForCriteria(criteria, getDeviceManagement(),
 		    getAssetManagement());
@@ -60,6 +60,16 @@ public class ScheduleManagementMicroservice
 	return false;
     }
 
+    /*
+     * @see com.sitewhere.microservice.multitenant.MultitenantMicroservice#
+     * isTenantEngineLazyActivationSupported()
+     */
+    @Override
+    protected boolean isTenantEngineLazyActivationSupported() {
+	// Scheduled jobs fire on a timer, so engines are not shut down when idle.
+	return false;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.IMicroservice#buildConfigurationModel()
      */
@@ -42,6 +42,11 @@ public class JsonpFilter implements Filter {
      */
     public static final Pattern SAFE_PATTERN = Pattern.compile("[a-zA-Z0-9_\\.]+");
 
+    /**
+     * Paths that stream content directly to the response and must not be buffered
+     */
+    private static final String[] STREAMING_PATHS = { "/events/export" };
+
     /*
      * (non-Javadoc)
      * 
@@ -50,6 +55,23 @@ public class JsonpFilter implements Filter {
     public void init(FilterConfig fConfig) throws ServletException {
     }
 
+    /**
+     * Indicates whether the request is for a streaming endpoint. Streamed content
+     * can be arbitrarily large, so it is never buffered for JSONP padding.
+     * 
+     * @param request
+     * @return
+     */
+    protected boolean isStreamingRequest(HttpServletRequest request) {
+	String uri = request.getRequestURI();
+	for (String path : STREAMING_PATHS) {
+	    if (uri.endsWith(path)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -63,7 +85,7 @@ public class JsonpFilter implements Filter {
 
 	Map<String, String[]> parms = httpRequest.getParameterMap();
 
-	if (parms.containsKey(CALLBACK_PARAMETER)) {
+	if (parms.containsKey(CALLBACK_PARAMETER) && !isStreamingRequest(httpRequest)) {
 
 	    // Make sure that callback value is a function name and not code.
 	    String callback = parms.get(CALLBACK_PARAMETER)[0];
@@ -505,10 +505,8 @@ public class Areas extends RestControllerBase {
 	helper.setIncludeArea(includeArea);
 	helper.setIncludeAsset(includeAsset);
 
-	List<DeviceAssignment> converted = new ArrayList<DeviceAssignment>();
-	for (IDeviceAssignment assignment : matches.getResults()) {
-	    converted.add(helper.convert(assignment, getAssetManagement()));
-	}
+	List<DeviceAssignment> converted = new ArrayList<DeviceAssignment>(
+		helper.convertAll(matches.getResults(), getAssetManagement()));
 	return new SearchResults<DeviceAssignment>(converted, matches.getNumResults());
     }
 
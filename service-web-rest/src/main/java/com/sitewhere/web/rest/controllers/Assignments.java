@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -46,6 +47,7 @@ import com.sitewhere.grpc.client.event.BlockingDeviceEventManagement;
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
 import com.sitewhere.rest.model.device.DeviceAssignment;
 import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregationCriteria;
 import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
 import com.sitewhere.rest.model.device.event.request.DeviceCommandInvocationCreateRequest;
 import com.sitewhere.rest.model.device.event.request.DeviceCommandResponseCreateRequest;
@@ -75,6 +77,8 @@ import com.sitewhere.spi.device.event.IDeviceCommandResponse;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.MeasurementAggregateFunction;
 import com.sitewhere.spi.error.ErrorCode;
 import com.sitewhere.spi.error.ErrorLevel;
 import com.sitewhere.spi.label.ILabel;
@@ -108,6 +112,12 @@ public class Assignments extends RestControllerBase {
     /** Default date range for event queries */
     private static final long DEFAULT_EVENT_QUERY_DATE_RANGE = 24 * 60 * 60 * 1000;
 
+    /** Number of buckets used for aggregation if no interval is specified */
+    private static final int DEFAULT_AGGREGATE_POINTS = 1000;
+
+    /** Minimum bucket width used if no interval is specified */
+    private static final long MIN_AGGREGATE_INTERVAL = 1000;
+
     /**
      * Used by AJAX calls to create a device assignment.
      * 
@@ -287,10 +297,7 @@ public class Assignments extends RestControllerBase {
 	helper.setIncludeArea(includeArea);
 	helper.setIncludeAsset(includeAsset);
 
-	List<IDeviceAssignment> results = new ArrayList<>();
-	for (IDeviceAssignment assn : matches.getResults()) {
-	    results.add(helper.convert(assn, getAssetManagement()));
-	}
+	List<IDeviceAssignment> results = new ArrayList<>(helper.convertAll(matches.getResults(), getAssetManagement()));
 	return new SearchResults<IDeviceAssignment>(results, matches.getNumResults());
     }
 
@@ -414,6 +421,53 @@ public class Assignments extends RestControllerBase {
 	return builder.process(measurements.getResults(), measurementIds);
     }
 
+    /**
+     * Aggregate device measurements for a given assignment into fixed-width time
+     * buckets. Aggregation is performed by the event store so that response size
+     * depends on the number of buckets rather than the number of events.
+     * 
+     * @param token
+     * @param startDate
+     * @param endDate
+     * @param interval
+     * @param functions
+     * @param measurementIds
+     * @param maxPoints
+     * @param response
+     * @return
+     * @throws SiteWhereException
+     */
+    @GetMapping(value = "/{token}/measurements/aggregate")
+    @ApiOperation(value = "Aggregate assignment measurements into time buckets")
+    public List<IMeasurementAggregateSeries> aggregateMeasurementsForAssignment(
+	    @ApiParam(value = "Assignment token", required = true) @PathVariable String token,
+	    @ApiParam(value = "Start date", required = false) @RequestParam(required = false) String startDate,
+	    @ApiParam(value = "End date", required = false) @RequestParam(required = false) String endDate,
+	    @ApiParam(value = "Bucket width in milliseconds", required = false) @RequestParam(required = false) Long interval,
+	    @ApiParam(value = "Aggregate functions", required = false) @RequestParam(required = false) MeasurementAggregateFunction[] functions,
+	    @ApiParam(value = "Measurement Ids", required = false) @RequestParam(required = false) String[] measurementIds,
+	    @ApiParam(value = "Max points per series", required = false) @RequestParam(required = false) Integer maxPoints,
+	    HttpServletResponse response) throws SiteWhereException {
+	IDateRangeSearchCriteria dates = createDateRangeSearchCriteria(1, 0, startDate, endDate, response);
+	IDeviceAssignment assignment = assertDeviceAssignment(token);
+	long range = dates.getEndDate().getTime() - dates.getStartDate().getTime();
+	if (interval == null) {
+	    int points = (maxPoints != null) ? maxPoints : DEFAULT_AGGREGATE_POINTS;
+	    interval = Math.max(MIN_AGGREGATE_INTERVAL, range / Math.max(1, points));
+	}
+	MeasurementAggregationCriteria criteria = new MeasurementAggregationCriteria(dates.getStartDate(),
+		dates.getEndDate(), interval);
+	if (functions != null) {
+	    criteria.setFunctions(Arrays.asList(functions));
+	}
+	if (measurementIds != null) {
+	    criteria.setMeasurementNames(Arrays.asList(measurementIds));
+	}
+	criteria.setMaxPoints(maxPoints);
+	return new BlockingDeviceEventManagement(getDeviceEventManagement()).aggregateDeviceMeasurementsForIndex(
+		DeviceEventIndex.Assignment, Collections.singletonList(assignment.getId()), criteria);
+    }
+
     /**
      * Create measurements to be associated with a device assignment.
      * 
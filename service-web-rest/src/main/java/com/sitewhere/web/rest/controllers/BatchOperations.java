@@ -8,7 +8,9 @@
 package com.sitewhere.web.rest.controllers;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
@@ -23,6 +25,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.sitewhere.batch.BatchDispatchMetadata;
 import com.sitewhere.batch.BatchUtils;
 import com.sitewhere.batch.marshaling.BatchElementMarshalHelper;
 import com.sitewhere.batch.marshaling.BatchOperationMarshalHelper;
@@ -100,6 +103,44 @@ public class BatchOperations extends RestControllerBase {
 	return new SearchResults<IBatchOperation>(converted, results.getNumResults());
     }
 
+    @RequestMapping(value = "/{batchToken}/pause", method = RequestMethod.POST)
+    @ApiOperation(value = "Pause dispatch of batch operation elements")
+    @Secured({ SiteWhereRoles.REST })
+    public IBatchOperation pauseBatchOperation(
+	    @ApiParam(value = "Unique token that identifies batch operation", required = true) @PathVariable String batchToken)
+	    throws SiteWhereException {
+	Map<String, String> values = new HashMap<String, String>();
+	values.put(BatchDispatchMetadata.PAUSED, "true");
+	return updateDispatchSettings(batchToken, values);
+    }
+
+    @RequestMapping(value = "/{batchToken}/resume", method = RequestMethod.POST)
+    @ApiOperation(value = "Resume dispatch of batch operation elements")
+    @Secured({ SiteWhereRoles.REST })
+    public IBatchOperation resumeBatchOperation(
+	    @ApiParam(value = "Unique token that identifies batch operation", required = true) @PathVariable String batchToken)
+	    throws SiteWhereException {
+	Map<String, String> values = new HashMap<String, String>();
+	values.put(BatchDispatchMetadata.PAUSED, "false");
+	return updateDispatchSettings(batchToken, values);
+    }
+
+    @RequestMapping(value = "/{batchToken}/priority", method = RequestMethod.POST)
+    @ApiOperation(value = "Change dispatch priority and rate limit for batch operation")
+    @Secured({ SiteWhereRoles.REST })
+    public IBatchOperation prioritizeBatchOperation(
+	    @ApiParam(value = "Unique token that identifies batch operation", required = true) @PathVariable String batchToken,
+	    @ApiParam(value = "Priority (1-10)", required = true) @RequestParam int priority,
+	    @ApiParam(value = "Maximum elements per second (0 for no limit)", required = false) @RequestParam(required = false) Double maxRate)
+	    throws SiteWhereException {
+	Map<String, String> values = new HashMap<String, String>();
+	values.put(BatchDispatchMetadata.PRIORITY, String.valueOf(priority));
+	if (maxRate != null) {
+	    values.put(BatchDispatchMetadata.MAX_RATE, String.valueOf(maxRate));
+	}
+	return updateDispatchSettings(batchToken, values);
+    }
+
     @RequestMapping(value = "/{operationToken}/elements", method = RequestMethod.GET)
     @ApiOperation(value = "List batch operation elements")
     @Secured({ SiteWhereRoles.REST })
@@ -151,6 +192,12 @@ public class BatchOperations extends RestControllerBase {
 	    IScheduledJobCreateRequest job = ScheduledJobHelper
 		    .createBatchCommandInvocationJobByCriteria(UUID.randomUUID().toString(), request, scheduleToken);
 	    return getScheduleManagement().createScheduledJob(job);
+	} else if (BatchUtils.canResolveDuringInitialization(request)) {
+	    // Devices are resolved page by page as the operation is initialized.
+	    IBatchOperation result = getBatchManagement()
+		    .createBatchOperation(BatchUtils.buildBatchCommandInvocationForCriteria(request));
+	    BatchOperationMarshalHelper helper = new BatchOperationMarshalHelper();
+	    return helper.convert(result);
 	} else {
 	    // Resolve tokens for devices matching criteria.
 	    List<String> deviceTokens = BatchUtils.resolveDeviceTokensForCriteria(request, getDeviceManagement(),
@@ -191,6 +238,23 @@ public class BatchOperations extends RestControllerBase {
      * @return
      * @throws SiteWhereException
      */
+    /**
+     * Merge dispatch settings into batch operation metadata.
+     * 
+     * @param token
+     * @param values
+     * @return
+     * @throws SiteWhereException
+     */
+    protected IBatchOperation updateDispatchSettings(String token, Map<String, String> values)
+	    throws SiteWhereException {
+	IBatchOperation batchOperation = assureBatchOperation(token);
+	IBatchOperation updated = getBatchManagement().updateBatchOperation(batchOperation.getId(),
+		BatchDispatchMetadata.buildUpdate(batchOperation, values));
+	BatchOperationMarshalHelper helper = new BatchOperationMarshalHelper();
+	return helper.convert(updated);
+    }
+
     protected IBatchOperation assureBatchOperation(String token) throws SiteWhereException {
 	IBatchOperation batchOperation = getBatchManagement().getBatchOperationByToken(token);
 	if (batchOperation == null) {
@@ -7,22 +7,49 @@
  */
 package com.sitewhere.web.rest.controllers;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.logging.Log;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.sitewhere.core.DataUtils;
+import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.event.BlockingDeviceEventManagement;
+import com.sitewhere.grpc.client.event.DeviceEventExportStream;
+import com.sitewhere.grpc.client.event.DeviceEventManagementExtensionsGrpc;
+import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
+import com.sitewhere.rest.model.device.event.export.DeviceEventExportCriteria;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.SiteWhereSystemException;
+import com.sitewhere.spi.area.IArea;
+import com.sitewhere.spi.customer.ICustomer;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+import com.sitewhere.spi.device.event.DeviceEventType;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
+import com.sitewhere.spi.error.ErrorCode;
+import com.sitewhere.spi.error.ErrorLevel;
 import com.sitewhere.spi.user.SiteWhereRoles;
 import com.sitewhere.web.annotation.SiteWhereCrossOrigin;
 import com.sitewhere.web.rest.RestControllerBase;
@@ -46,6 +73,15 @@ public class DeviceEvents extends RestControllerBase {
     @SuppressWarnings("unused")
     private static Log LOGGER = LogFactory.getLog(DeviceEvents.class);
 
+    /** Content type for newline-delimited JSON */
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    /** Content encoding for gzip */
+    private static final String GZIP_ENCODING = "gzip";
+
+    /** Buffer size for gzip output */
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Find a device event by unique id.
      * 
@@ -78,6 +114,158 @@ public class DeviceEvents extends RestControllerBase {
 	return getDeviceEventManagement().getDeviceEventByAlternateId(alternateId);
     }
 
+    /**
+     * Export events for assignments, areas or customers as newline-delimited JSON.
+     * Content is streamed from event management directly to the response, so the
+     * size of an export is not limited by available memory.
+     * 
+     * @param assignmentTokens
+     * @param areaTokens
+     * @param customerTokens
+     * @param eventTypes
+     * @param startDate
+     * @param endDate
+     * @param gzip
+     * @param servletRequest
+     * @param response
+     * @throws SiteWhereException
+     * @throws IOException
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    @ApiOperation(value = "Export events as newline-delimited JSON")
+    @Secured({ SiteWhereRoles.REST })
+    public void exportEvents(
+	    @ApiParam(value = "Assignment tokens", required = false) @RequestParam(required = false) String[] assignmentTokens,
+	    @ApiParam(value = "Area tokens", required = false) @RequestParam(required = false) String[] areaTokens,
+	    @ApiParam(value = "Customer tokens", required = false) @RequestParam(required = false) String[] customerTokens,
+	    @ApiParam(value = "Event types", required = false) @RequestParam(required = false) DeviceEventType[] eventTypes,
+	    @ApiParam(value = "Start date", required = false) @RequestParam(required = false) String startDate,
+	    @ApiParam(value = "End date", required = false) @RequestParam(required = false) String endDate,
+	    @ApiParam(value = "Compress with gzip", required = false) @RequestParam(required = false, defaultValue = "false") boolean gzip,
+	    HttpServletRequest servletRequest, HttpServletResponse response) throws SiteWhereException, IOException {
+	DeviceEventIndex index;
+	List<UUID> entityIds = new ArrayList<>();
+	if (hasTokens(assignmentTokens) && !hasTokens(areaTokens) && !hasTokens(customerTokens)) {
+	    index = DeviceEventIndex.Assignment;
+	    for (String token : assignmentTokens) {
+		IDeviceAssignment assignment = getDeviceManagement().getDeviceAssignmentByToken(token);
+		if (assignment == null) {
+		    throw new SiteWhereSystemException(ErrorCode.InvalidDeviceAssignmentToken, ErrorLevel.ERROR);
+		}
+		entityIds.add(assignment.getId());
+	    }
+	} else if (hasTokens(areaTokens) && !hasTokens(assignmentTokens) && !hasTokens(customerTokens)) {
+	    index = DeviceEventIndex.Area;
+	    for (String token : areaTokens) {
+		IArea area = getDeviceManagement().getAreaByToken(token);
+		if (area == null) {
+		    throw new SiteWhereSystemException(ErrorCode.InvalidAreaToken, ErrorLevel.ERROR);
+		}
+		entityIds.add(area.getId());
+	    }
+	} else if (hasTokens(customerTokens) && !hasTokens(assignmentTokens) && !hasTokens(areaTokens)) {
+	    index = DeviceEventIndex.Customer;
+	    for (String token : customerTokens) {
+		ICustomer customer = getDeviceManagement().getCustomerByToken(token);
+		if (customer == null) {
+		    throw new SiteWhereSystemException(ErrorCode.InvalidCustomerToken, ErrorLevel.ERROR);
+		}
+		entityIds.add(customer.getId());
+	    }
+	} else {
+	    throw new SiteWhereException("Export requires exactly one of assignment, area or customer tokens.");
+	}
+
+	DeviceEventExportCriteria criteria = new DeviceEventExportCriteria(parseDate(startDate), parseDate(endDate),
+		(eventTypes != null) ? Arrays.asList(eventTypes) : null);
+	boolean compress = gzip || acceptsGzip(servletRequest);
+
+	DeviceEventExportStream stream = getDeviceEventManagementApiChannel().exportDeviceEventsForIndex(index,
+		entityIds, criteria);
+	try {
+	    // Wait for first chunk so that failures can still be reported as errors.
+	    boolean hasData = readNext(stream);
+
+	    response.setStatus(HttpServletResponse.SC_OK);
+	    response.setContentType(NDJSON_CONTENT_TYPE);
+	    if (compress) {
+		response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+	    }
+	    OutputStream output = compress ? new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE)
+		    : response.getOutputStream();
+	    while (hasData) {
+		output.write(stream.next());
+		hasData = readNext(stream);
+	    }
+	    output.close();
+	} finally {
+	    stream.close();
+	}
+    }
+
+    /**
+     * Wait for the next chunk of an export stream.
+     * 
+     * @param stream
+     * @return
+     * @throws SiteWhereException
+     */
+    protected boolean readNext(DeviceEventExportStream stream) throws SiteWhereException {
+	try {
+	    return stream.hasNext();
+	} catch (RuntimeException e) {
+	    throw GrpcUtils.handleClientMethodException(
+		    DeviceEventManagementExtensionsGrpc.getExportDeviceEventsForIndexMethod(), e);
+	}
+    }
+
+    /**
+     * Indicates whether any tokens were passed for a parameter.
+     * 
+     * @param tokens
+     * @return
+     */
+    protected static boolean hasTokens(String[] tokens) {
+	return (tokens != null) && (tokens.length > 0);
+    }
+
+    /**
+     * Indicates whether client accepts gzip content encoding.
+     * 
+     * @param request
+     * @return
+     */
+    protected static boolean acceptsGzip(HttpServletRequest request) {
+	String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+	return (accept != null) && (accept.toLowerCase().contains(GZIP_ENCODING));
+    }
+
+    /**
+     * Parse an optional date parameter.
+     * 
+     * @param value
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static Date parseDate(String value) throws SiteWhereException {
+	if (StringUtils.isBlank(value)) {
+	    return null;
+	}
+	try {
+	    return Date.from(DataUtils.parseDateInMutipleFormats(value).toInstant());
+	} catch (DateTimeParseException e) {
+	    throw new SiteWhereException("Unable to parse date: " + value);
+	}
+    }
+
+    private IDeviceManagement getDeviceManagement() {
+	return getMicroservice().getDeviceManagementApiDemux().getApiChannel();
+    }
+
+    private IDeviceEventManagementApiChannel<?> getDeviceEventManagementApiChannel() {
+	return getMicroservice().getDeviceEventManagementApiDemux().getApiChannel();
+    }
+
     private IDeviceEventManagement getDeviceEventManagement() {
 	return new BlockingDeviceEventManagement(getMicroservice().getDeviceEventManagementApiDemux().getApiChannel());
     }
@@ -252,10 +252,8 @@ public class Devices extends RestControllerBase {
 	helper.setIncludeArea(includeArea);
 	helper.setIncludeAsset(includeAsset);
 
-	List<IDeviceAssignment> converted = new ArrayList<IDeviceAssignment>();
-	for (IDeviceAssignment assignment : history.getResults()) {
-	    converted.add(helper.convert(assignment, getAssetManagement()));
-	}
+	List<IDeviceAssignment> converted = new ArrayList<IDeviceAssignment>(
+		helper.convertAll(history.getResults(), getAssetManagement()));
 	return new SearchResults<IDeviceAssignment>(converted, history.getNumResults());
     }
 
@@ -358,10 +356,7 @@ public class Devices extends RestControllerBase {
 	DeviceMarshalHelper helper = new DeviceMarshalHelper(getDeviceManagement());
 	helper.setIncludeDeviceType(includeDeviceType);
 	helper.setIncludeAssignment(includeAssignment);
-	List<IDevice> devicesConv = new ArrayList<IDevice>();
-	for (IDevice device : results.getResults()) {
-	    devicesConv.add(helper.convert(device, getAssetManagement()));
-	}
+	List<IDevice> devicesConv = new ArrayList<IDevice>(helper.convertAll(results.getResults(), getAssetManagement()));
 	return new SearchResults<IDevice>(devicesConv, results.getNumResults());
     }
 
@@ -388,10 +383,7 @@ public class Devices extends RestControllerBase {
 	DeviceMarshalHelper helper = new DeviceMarshalHelper(getDeviceManagement());
 	helper.setIncludeDeviceType(includeDeviceType);
 	helper.setIncludeAssignment(includeAssignment);
-	List<IDevice> devicesConv = new ArrayList<IDevice>();
-	for (IDevice device : matches) {
-	    devicesConv.add(helper.convert(device, getAssetManagement()));
-	}
+	List<IDevice> devicesConv = new ArrayList<IDevice>(helper.convertAll(matches, getAssetManagement()));
 	return new SearchResults<IDevice>(devicesConv, matches.size());
     }
 
@@ -417,10 +409,7 @@ public class Devices extends RestControllerBase {
 	DeviceMarshalHelper helper = new DeviceMarshalHelper(getDeviceManagement());
 	helper.setIncludeDeviceType(includeDeviceType);
 	helper.setIncludeAssignment(includeAssignment);
-	List<IDevice> devicesConv = new ArrayList<IDevice>();
-	for (IDevice device : matches) {
-	    devicesConv.add(helper.convert(device, getAssetManagement()));
-	}
+	List<IDevice> devicesConv = new ArrayList<IDevice>(helper.convertAll(matches, getAssetManagement()));
 	return new SearchResults<IDevice>(devicesConv, matches.size());
     }
 
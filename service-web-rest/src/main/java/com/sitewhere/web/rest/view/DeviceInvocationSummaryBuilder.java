@@ -7,7 +7,13 @@
  */
 package com.sitewhere.web.rest.view;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import com.sitewhere.rest.model.common.MetadataProvider;
 import com.sitewhere.rest.model.device.event.DeviceCommandInvocation;
@@ -56,11 +62,12 @@ public class DeviceInvocationSummaryBuilder {
 	    param.setValue(invocation.getParameterValues().get(parameter.getName()));
 	    summary.getParameters().add(param);
 	}
+	Map<UUID, IDeviceEvent> responseEvents = getResponseEvents(responses, deviceEventManagement);
 	for (IDeviceCommandResponse response : responses) {
 	    DeviceCommandInvocationSummary.Response rsp = new DeviceCommandInvocationSummary.Response();
 	    rsp.setDate(response.getEventDate());
 	    if (response.getResponseEventId() != null) {
-		IDeviceEvent event = deviceEventManagement.getDeviceEventById(response.getResponseEventId());
+		IDeviceEvent event = responseEvents.get(response.getResponseEventId());
 		rsp.setDescription(getDeviceEventDescription(event));
 	    } else if (response.getResponse() != null) {
 		rsp.setDescription("Ack (\"" + response.getResponse() + "\")");
@@ -73,6 +80,33 @@ public class DeviceInvocationSummaryBuilder {
 	return summary;
     }
 
+    /**
+     * Resolve the events referenced by command responses. All distinct events are
+     * loaded with a single multi-get call regardless of how many responses
+     * reference them.
+     * 
+     * @param responses
+     * @param deviceEventManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static Map<UUID, IDeviceEvent> getResponseEvents(List<IDeviceCommandResponse> responses,
+	    IDeviceEventManagement deviceEventManagement) throws SiteWhereException {
+	Set<UUID> eventIds = new LinkedHashSet<>();
+	for (IDeviceCommandResponse response : responses) {
+	    if (response.getResponseEventId() != null) {
+		eventIds.add(response.getResponseEventId());
+	    }
+	}
+	Map<UUID, IDeviceEvent> events = new HashMap<>();
+	if (!eventIds.isEmpty()) {
+	    for (IDeviceEvent event : deviceEventManagement.getDeviceEventsByIds(new ArrayList<>(eventIds))) {
+		events.put(event.getId(), event);
+	    }
+	}
+	return events;
+    }
+
     /**
      * Get a short description of a device event.
      * 
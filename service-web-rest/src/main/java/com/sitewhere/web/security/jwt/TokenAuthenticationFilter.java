@@ -31,13 +31,12 @@ import com.sitewhere.microservice.security.JwtExpiredException;
 import com.sitewhere.security.SitewhereGrantedAuthority;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.security.ITokenManagement;
+import com.sitewhere.spi.microservice.security.IVerifiedToken;
 import com.sitewhere.spi.security.ITenantAwareAuthentication;
 import com.sitewhere.spi.tenant.ITenant;
 import com.sitewhere.spi.user.IGrantedAuthority;
 import com.sitewhere.web.security.SiteWhereHttpHeaders;
 
-import io.jsonwebtoken.Claims;
-
 /**
  * Filter that pulls JWT and tenant token from authentication header and pushes
  * it into Spring {@link SecurityContextHolder}.
@@ -79,18 +78,11 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
 	    // Get username from token and load user.
 	    ITokenManagement tokenManagement = getTenantManagementDemuxProvider().getTokenManagement();
 	    try {
-		Claims claims = tokenManagement.getClaimsForToken(jwt);
-		String username = tokenManagement.getUsernameFromClaims(claims);
-		LOGGER.debug("JWT decoded for username: " + username);
-		List<IGrantedAuthority> auths = tokenManagement.getGrantedAuthoritiesFromClaims(claims);
-		List<GrantedAuthority> springAuths = new ArrayList<GrantedAuthority>();
-		for (IGrantedAuthority auth : auths) {
-		    springAuths.add(new SitewhereGrantedAuthority(auth));
-		}
+		IVerifiedToken verified = tokenManagement.getVerifiedToken(jwt);
+		LOGGER.debug("JWT verified for username: " + verified.getUsername());
 
 		// Create authentication object based on JWT and tenant token.
-		JwtAuthenticationToken token = new JwtAuthenticationToken(username, springAuths, jwt);
-		Authentication authenticated = getAuthenticationManager().authenticate(token);
+		Authentication authenticated = authenticate(jwt, verified);
 		if ((!StringUtils.isEmpty(tenantId)) && (StringUtils.isEmpty(tenantAuth))) {
 		    throw new SiteWhereException("Tenant id passed without corresponding tenant auth token.");
 		}
@@ -113,6 +105,25 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
 	}
     }
 
+    /**
+     * Create an authentication for a verified token. Only the signature check is
+     * cached (see {@link ITokenManagement#getVerifiedToken(String)}). The user is
+     * resolved by the authentication manager on every request so that disabled
+     * users and changed authorities take effect immediately.
+     * 
+     * @param jwt
+     * @param verified
+     * @return
+     */
+    protected Authentication authenticate(String jwt, IVerifiedToken verified) {
+	List<GrantedAuthority> springAuths = new ArrayList<GrantedAuthority>();
+	for (IGrantedAuthority auth : verified.getGrantedAuthorities()) {
+	    springAuths.add(new SitewhereGrantedAuthority(auth));
+	}
+	JwtAuthenticationToken token = new JwtAuthenticationToken(verified.getUsername(), springAuths, jwt);
+	return getAuthenticationManager().authenticate(token);
+    }
+
     /**
      * Based on fields passed in HTTP headers, look up tenant and verify that tenant
      * auth token is valid. Store tenant information in Spring authentication data
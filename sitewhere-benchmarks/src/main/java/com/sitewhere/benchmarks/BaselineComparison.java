@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares JMH JSON results against a stored baseline and exits with a non-zero
+ * status if any benchmark regressed by more than the given tolerance.
+ * 
+ * Usage: BaselineComparison &lt;baseline.json&gt; &lt;results.json&gt;
+ * [tolerance]
+ * 
+ * @author Derek
+ */
+public class BaselineComparison {
+
+    /** Default allowed regression (fraction of baseline score) */
+    private static final double DEFAULT_TOLERANCE = 0.10;
+
+    /** Used to parse JMH results */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+	if (args.length < 2) {
+	    System.err.println("Usage: BaselineComparison <baseline.json> <results.json> [tolerance]");
+	    System.exit(2);
+	}
+	File baselineFile = new File(args[0]);
+	if (!baselineFile.exists()) {
+	    System.out.println("No baseline found at '" + baselineFile + "'. Skipping comparison.");
+	    return;
+	}
+	double tolerance = (args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+	Map<String, Score> baseline = load(baselineFile);
+	Map<String, Score> results = load(new File(args[1]));
+
+	int regressions = 0;
+	for (Map.Entry<String, Score> entry : results.entrySet()) {
+	    Score previous = baseline.get(entry.getKey());
+	    if (previous == null) {
+		System.out.println(String.format("NEW        %s %.3f %s", entry.getKey(), entry.getValue().getValue(),
+			entry.getValue().getUnit()));
+		continue;
+	    }
+	    double change = entry.getValue().getChange(previous);
+	    boolean regressed = change > tolerance;
+	    if (regressed) {
+		regressions++;
+	    }
+	    System.out.println(String.format("%-10s %s %.3f -> %.3f %s (%+.1f%%)", regressed ? "REGRESSED" : "OK",
+		    entry.getKey(), previous.getValue(), entry.getValue().getValue(), entry.getValue().getUnit(),
+		    change * 100));
+	}
+	if (regressions > 0) {
+	    System.err.println(regressions + " benchmark(s) regressed by more than " + (tolerance * 100) + "%.");
+	    System.exit(1);
+	}
+    }
+
+    /**
+     * Load primary scores from a JMH JSON result file keyed by benchmark name,
+     * mode and parameters.
+     * 
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    protected static Map<String, Score> load(File file) throws IOException {
+	Map<String, Score> scores = new TreeMap<>();
+	for (JsonNode result : MAPPER.readTree(file)) {
+	    StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+	    String mode = result.path("mode").asText();
+	    key.append(" [").append(mode);
+	    Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+	    while (params.hasNext()) {
+		Map.Entry<String, JsonNode> param = params.next();
+		key.append(", ").append(param.getKey()).append("=").append(param.getValue().asText());
+	    }
+	    key.append("]");
+	    JsonNode metric = result.path("primaryMetric");
+	    scores.put(key.toString(),
+		    new Score(mode, metric.path("score").asDouble(), metric.path("scoreUnit").asText()));
+	}
+	return scores;
+    }
+
+    /**
+     * Primary score for a single benchmark.
+     */
+    protected static class Score {
+
+	/** JMH mode (thrpt, avgt, sample, ss) */
+	private String mode;
+
+	/** Score value */
+	private double value;
+
+	/** Score unit */
+	private String unit;
+
+	public Score(String mode, double value, String unit) {
+	    this.mode = mode;
+	    this.value = value;
+	    this.unit = unit;
+	}
+
+	/**
+	 * Get relative change versus a previous score where positive values are
+	 * always worse.
+	 * 
+	 * @param previous
+	 * @return
+	 */
+	public double getChange(Score previous) {
+	    if (previous.getValue() == 0) {
+		return 0;
+	    }
+	    double delta = (getValue() - previous.getValue()) / previous.getValue();
+	    return "thrpt".equals(getMode()) ? -delta : delta;
+	}
+
+	public String getMode() {
+	    return mode;
+	}
+
+	public double getValue() {
+	    return value;
+	}
+
+	public String getUnit() {
+	    return unit;
+	}
+    }
+}
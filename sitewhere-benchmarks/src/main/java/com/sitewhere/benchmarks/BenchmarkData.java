@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.sitewhere.rest.model.device.Device;
+import com.sitewhere.rest.model.device.DeviceAssignment;
+import com.sitewhere.rest.model.device.event.DeviceAlert;
+import com.sitewhere.rest.model.device.event.DeviceCommandInvocation;
+import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
+import com.sitewhere.rest.model.device.event.DeviceEvent;
+import com.sitewhere.rest.model.device.event.DeviceEventContext;
+import com.sitewhere.rest.model.device.event.DeviceLocation;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.DeviceStateChange;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.PersistedEventPayload;
+import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.spi.device.DeviceAssignmentStatus;
+import com.sitewhere.spi.device.event.AlertLevel;
+import com.sitewhere.spi.device.event.AlertSource;
+import com.sitewhere.spi.device.event.CommandInitiator;
+import com.sitewhere.spi.device.event.CommandTarget;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
+
+/**
+ * Builds representative model objects used as benchmark inputs. Values are
+ * fixed so that results are comparable between runs.
+ * 
+ * @author Derek
+ */
+public class BenchmarkData {
+
+    /** Token used for device in all events */
+    public static final String DEVICE_TOKEN = "benchmark-device-0001";
+
+    /** Fixed timestamp for event dates */
+    private static final long EVENT_TIME = 1538352000000L;
+
+    /**
+     * Build metadata map of typical size.
+     * 
+     * @return
+     */
+    public static Map<String, String> metadata() {
+	Map<String, String> metadata = new HashMap<>();
+	metadata.put("firmware", "1.4.2");
+	metadata.put("region", "us-east");
+	metadata.put("gateway", "gw-042");
+	return metadata;
+    }
+
+    /**
+     * Populate fields common to all events.
+     * 
+     * @param event
+     * @param type
+     * @return
+     */
+    protected static <T extends DeviceEvent> T event(T event, DeviceEventType type) {
+	event.setId(UUID.nameUUIDFromBytes(type.name().getBytes()));
+	event.setAlternateId("alt-" + type.name());
+	event.setEventType(type);
+	event.setDeviceId(UUID.nameUUIDFromBytes("device".getBytes()));
+	event.setDeviceAssignmentId(UUID.nameUUIDFromBytes("assignment".getBytes()));
+	event.setCustomerId(UUID.nameUUIDFromBytes("customer".getBytes()));
+	event.setAreaId(UUID.nameUUIDFromBytes("area".getBytes()));
+	event.setAssetId(UUID.nameUUIDFromBytes("asset".getBytes()));
+	event.setEventDate(new Date(EVENT_TIME));
+	event.setReceivedDate(new Date(EVENT_TIME + 25));
+	event.setMetadata(metadata());
+	return event;
+    }
+
+    public static DeviceMeasurement measurement() {
+	DeviceMeasurement mx = event(new DeviceMeasurement(), DeviceEventType.Measurement);
+	mx.setName("engine.temperature");
+	mx.setValue(98.6);
+	return mx;
+    }
+
+    /**
+     * Build a measurement in a series reported periodically by the same device.
+     * 
+     * @param index
+     * @return
+     */
+    public static DeviceMeasurement measurement(int index) {
+	DeviceMeasurement mx = measurement();
+	mx.setId(UUID.nameUUIDFromBytes(("measurement-" + index).getBytes()));
+	mx.setEventDate(new Date(EVENT_TIME + (index * 1000L)));
+	mx.setReceivedDate(new Date(EVENT_TIME + (index * 1000L) + 25));
+	mx.setValue(98.6 + ((index % 10) / 10.0));
+	return mx;
+    }
+
+    public static DeviceLocation location() {
+	DeviceLocation location = event(new DeviceLocation(), DeviceEventType.Location);
+	location.setLatitude(33.7550);
+	location.setLongitude(-84.3900);
+	location.setElevation(320.0);
+	return location;
+    }
+
+    public static DeviceAlert alert() {
+	DeviceAlert alert = event(new DeviceAlert(), DeviceEventType.Alert);
+	alert.setSource(AlertSource.Device);
+	alert.setLevel(AlertLevel.Warning);
+	alert.setType("engine.overheat");
+	alert.setMessage("Engine temperature above threshold.");
+	return alert;
+    }
+
+    public static DeviceCommandInvocation commandInvocation() {
+	DeviceCommandInvocation invocation = event(new DeviceCommandInvocation(), DeviceEventType.CommandInvocation);
+	invocation.setInitiator(CommandInitiator.REST);
+	invocation.setInitiatorId("admin");
+	invocation.setTarget(CommandTarget.Assignment);
+	invocation.setTargetId(invocation.getDeviceAssignmentId().toString());
+	invocation.setCommandToken("set-reporting-interval");
+	Map<String, String> parameters = new HashMap<>();
+	parameters.put("interval", "30");
+	parameters.put("units", "seconds");
+	invocation.setParameterValues(parameters);
+	return invocation;
+    }
+
+    public static DeviceCommandResponse commandResponse() {
+	DeviceCommandResponse response = event(new DeviceCommandResponse(), DeviceEventType.CommandResponse);
+	response.setOriginatingEventId(UUID.nameUUIDFromBytes("invocation".getBytes()));
+	response.setResponse("interval=30");
+	return response;
+    }
+
+    public static DeviceStateChange stateChange() {
+	DeviceStateChange state = event(new DeviceStateChange(), DeviceEventType.StateChange);
+	state.setAttribute(IDeviceStateChangeCreateRequest.ATTRIBUTE_ASSIGNMENT);
+	state.setType("create");
+	state.setPreviousState("unassigned");
+	state.setNewState("assigned");
+	return state;
+    }
+
+    public static DeviceMeasurementCreateRequest measurementCreateRequest() {
+	DeviceMeasurementCreateRequest request = new DeviceMeasurementCreateRequest();
+	request.setName("engine.temperature");
+	request.setValue(98.6);
+	request.setEventDate(new Date(EVENT_TIME));
+	request.setUpdateState(true);
+	request.setMetadata(metadata());
+	return request;
+    }
+
+    public static DeviceLocationCreateRequest locationCreateRequest() {
+	DeviceLocationCreateRequest request = new DeviceLocationCreateRequest();
+	request.setLatitude(33.7550);
+	request.setLongitude(-84.3900);
+	request.setElevation(320.0);
+	request.setEventDate(new Date(EVENT_TIME));
+	request.setMetadata(metadata());
+	return request;
+    }
+
+    public static DeviceAlertCreateRequest alertCreateRequest() {
+	DeviceAlertCreateRequest request = new DeviceAlertCreateRequest();
+	request.setSource(AlertSource.Device);
+	request.setLevel(AlertLevel.Warning);
+	request.setType("engine.overheat");
+	request.setMessage("Engine temperature above threshold.");
+	request.setEventDate(new Date(EVENT_TIME));
+	request.setMetadata(metadata());
+	return request;
+    }
+
+    /**
+     * Build inbound payload for a measurement in a series reported periodically
+     * by the same device.
+     * 
+     * @param index
+     * @return
+     */
+    public static InboundEventPayload inboundMeasurementPayload(int index) {
+	InboundEventPayload payload = inboundMeasurementPayload();
+	DeviceMeasurementCreateRequest request = measurementCreateRequest();
+	request.setValue(98.6 + ((index % 10) / 10.0));
+	request.setEventDate(new Date(EVENT_TIME + (index * 1000L)));
+	payload.setEventCreateRequest(request);
+	return payload;
+    }
+
+    /**
+     * Build persisted payload for a measurement in a series.
+     * 
+     * @param index
+     * @return
+     */
+    public static PersistedEventPayload persistedMeasurementPayload(int index) {
+	PersistedEventPayload payload = new PersistedEventPayload();
+	payload.setDeviceId(device().getId());
+	payload.setEvent(measurement(index));
+	return payload;
+    }
+
+    /**
+     * Build enriched payload for a measurement in a series. All payloads share
+     * the same device context.
+     * 
+     * @param index
+     * @return
+     */
+    public static EnrichedEventPayload enrichedMeasurementPayload(int index) {
+	Device device = device();
+	DeviceAssignment assignment = assignment();
+	DeviceEventContext context = new DeviceEventContext();
+	context.setDeviceId(device.getId());
+	context.setDeviceTypeId(device.getDeviceTypeId());
+	context.setDeviceStatus(device.getStatus());
+	context.setDeviceMetadata(device.getMetadata());
+	context.setAssignmentStatus(assignment.getStatus());
+	context.setAssignmentMetadata(assignment.getMetadata());
+
+	EnrichedEventPayload payload = new EnrichedEventPayload();
+	payload.setEventContext(context);
+	payload.setEvent(measurement(index));
+	return payload;
+    }
+
+    public static InboundEventPayload inboundMeasurementPayload() {
+	InboundEventPayload payload = new InboundEventPayload();
+	payload.setSourceId("mqtt");
+	payload.setDeviceToken(DEVICE_TOKEN);
+	payload.setOriginator("benchmark");
+	payload.setEventCreateRequest(measurementCreateRequest());
+	return payload;
+    }
+
+    public static Device device() {
+	Device device = new Device();
+	device.setId(UUID.nameUUIDFromBytes("device".getBytes()));
+	device.setToken(DEVICE_TOKEN);
+	device.setDeviceTypeId(UUID.nameUUIDFromBytes("device-type".getBytes()));
+	device.setDeviceAssignmentId(UUID.nameUUIDFromBytes("assignment".getBytes()));
+	device.setStatus("active");
+	device.setComments("Benchmark device.");
+	device.setCreatedBy("admin");
+	device.setCreatedDate(new Date(EVENT_TIME));
+	device.setUpdatedBy("admin");
+	device.setUpdatedDate(new Date(EVENT_TIME));
+	device.setMetadata(metadata());
+	return device;
+    }
+
+    public static DeviceAssignment assignment() {
+	DeviceAssignment assignment = new DeviceAssignment();
+	assignment.setId(UUID.nameUUIDFromBytes("assignment".getBytes()));
+	assignment.setToken("benchmark-assignment-0001");
+	assignment.setStatus(DeviceAssignmentStatus.Active);
+	assignment.setDeviceId(UUID.nameUUIDFromBytes("device".getBytes()));
+	assignment.setDeviceTypeId(UUID.nameUUIDFromBytes("device-type".getBytes()));
+	assignment.setCustomerId(UUID.nameUUIDFromBytes("customer".getBytes()));
+	assignment.setAreaId(UUID.nameUUIDFromBytes("area".getBytes()));
+	assignment.setAssetId(UUID.nameUUIDFromBytes("asset".getBytes()));
+	assignment.setActiveDate(new Date(EVENT_TIME));
+	assignment.setCreatedBy("admin");
+	assignment.setCreatedDate(new Date(EVENT_TIME));
+	assignment.setMetadata(metadata());
+	return assignment;
+    }
+}
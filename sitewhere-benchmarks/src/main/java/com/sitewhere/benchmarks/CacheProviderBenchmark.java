@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.grpc.client.cache.CacheConfiguration;
+import com.sitewhere.grpc.client.cache.CacheIdentifier;
+import com.sitewhere.grpc.client.cache.CacheProvider;
+import com.sitewhere.rest.model.device.Device;
+import com.sitewhere.rest.model.tenant.Tenant;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+
+/**
+ * Measures {@link CacheProvider} lookups and updates with concurrent readers
+ * and writers sharing the same tenant cache.
+ * 
+ * @author Derek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheProviderBenchmark {
+
+    /** Number of distinct keys in rotation */
+    @Param({ "1000", "100000" })
+    private int keyCount;
+
+    private BenchmarkCacheProvider provider;
+
+    private Tenant tenant;
+
+    private String[] keys;
+
+    private Device[] devices;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	tenant = new Tenant();
+	tenant.setId(UUID.randomUUID());
+	tenant.setToken("benchmark");
+
+	provider = new BenchmarkCacheProvider(new CacheConfiguration(keyCount, 60));
+	provider.init();
+
+	keys = new String[keyCount];
+	devices = new Device[keyCount];
+	for (int i = 0; i < keyCount; i++) {
+	    keys[i] = "device-" + i;
+	    devices[i] = BenchmarkData.device();
+	    devices[i].setToken(keys[i]);
+	    provider.setCacheEntry(tenant, keys[i], devices[i]);
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	provider.close();
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public IDevice readOnlyGet() throws SiteWhereException {
+	return provider.getCacheEntry(tenant, keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public IDevice mixedGet() throws SiteWhereException {
+	return provider.getCacheEntry(tenant, keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedPut() throws SiteWhereException {
+	int index = ThreadLocalRandom.current().nextInt(keyCount);
+	provider.setCacheEntry(tenant, keys[index], devices[index]);
+    }
+
+    /**
+     * Provider that manages its cache manager outside of the component
+     * lifecycle.
+     */
+    public static class BenchmarkCacheProvider extends CacheProvider<String, IDevice> {
+
+	public BenchmarkCacheProvider(CacheConfiguration configuration) {
+	    super(CacheIdentifier.DeviceByToken, String.class, IDevice.class, configuration);
+	}
+
+	public void init() {
+	    getCacheManager().init();
+	}
+
+	public void close() {
+	    getCacheManager().close();
+	}
+    }
+}
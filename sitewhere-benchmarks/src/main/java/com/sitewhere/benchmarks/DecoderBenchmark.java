@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.sources.DecodedDeviceRequest;
+import com.sitewhere.sources.decoder.json.JsonDeviceRequestDecoder;
+import com.sitewhere.sources.decoder.protobuf.ProtobufDeviceEventDecoder;
+import com.sitewhere.sources.decoder.protobuf.ProtobufDeviceEventEncoder;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.request.IDeviceMeasurementCreateRequest;
+
+/**
+ * Measures decoding of inbound device payloads in the formats supported by
+ * event sources along with plain JSON marshaling of the event model.
+ * 
+ * @author Derek
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+
+    private JsonDeviceRequestDecoder jsonDecoder = new JsonDeviceRequestDecoder();
+    private byte[] jsonPayload;
+
+    private ProtobufDeviceEventDecoder protobufDecoder = new ProtobufDeviceEventDecoder();
+    private byte[] protobufPayload;
+
+    private Map<String, Object> metadata = new HashMap<>();
+
+    private DeviceMeasurement measurement;
+    private byte[] measurementJson;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	jsonPayload = ("{\"deviceToken\":\"" + BenchmarkData.DEVICE_TOKEN + "\",\"type\":\"DeviceMeasurement\","
+		+ "\"request\":" + MarshalUtils.marshalJsonAsString(BenchmarkData.measurementCreateRequest()) + "}")
+			.getBytes();
+
+	DecodedDeviceRequest<IDeviceMeasurementCreateRequest> decoded = new DecodedDeviceRequest<>(
+		BenchmarkData.DEVICE_TOKEN, null, BenchmarkData.measurementCreateRequest());
+	protobufPayload = new ProtobufDeviceEventEncoder().encode(decoded);
+
+	measurement = BenchmarkData.measurement();
+	measurementJson = MarshalUtils.marshalJson(measurement);
+    }
+
+    @Benchmark
+    public List<IDecodedDeviceRequest<?>> decodeJson() throws SiteWhereException {
+	return jsonDecoder.decode(jsonPayload, metadata);
+    }
+
+    @Benchmark
+    public List<IDecodedDeviceRequest<?>> decodeProtobuf() throws SiteWhereException {
+	return protobufDecoder.decode(protobufPayload, metadata);
+    }
+
+    @Benchmark
+    public byte[] marshalMeasurementJson() {
+	return MarshalUtils.marshalJson(measurement);
+    }
+
+    @Benchmark
+    public DeviceMeasurement unmarshalMeasurementJson() {
+	return MarshalUtils.unmarshalJson(measurementJson, DeviceMeasurement.class);
+    }
+}
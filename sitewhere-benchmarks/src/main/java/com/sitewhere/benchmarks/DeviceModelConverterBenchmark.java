@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.grpc.client.device.DeviceModelConverter;
+import com.sitewhere.grpc.model.DeviceModel.GDevice;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignment;
+import com.sitewhere.rest.model.device.Device;
+import com.sitewhere.rest.model.device.DeviceAssignment;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Measures conversion of the device management entities that are looked up
+ * while processing events between the API model and gRPC.
+ * 
+ * @author Derek
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceModelConverterBenchmark {
+
+    private Device device;
+    private GDevice grpcDevice;
+
+    private DeviceAssignment assignment;
+    private GDeviceAssignment grpcAssignment;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	device = BenchmarkData.device();
+	grpcDevice = DeviceModelConverter.asGrpcDevice(device);
+	assignment = BenchmarkData.assignment();
+	grpcAssignment = DeviceModelConverter.asGrpcDeviceAssignment(assignment);
+    }
+
+    @Benchmark
+    public GDevice deviceToGrpc() throws SiteWhereException {
+	return DeviceModelConverter.asGrpcDevice(device);
+    }
+
+    @Benchmark
+    public Device deviceToApi() throws SiteWhereException {
+	return DeviceModelConverter.asApiDevice(grpcDevice);
+    }
+
+    @Benchmark
+    public GDeviceAssignment assignmentToGrpc() throws SiteWhereException {
+	return DeviceModelConverter.asGrpcDeviceAssignment(assignment);
+    }
+
+    @Benchmark
+    public DeviceAssignment assignmentToApi() throws SiteWhereException {
+	return DeviceModelConverter.asApiDeviceAssignment(grpcAssignment);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceAlert;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandInvocation;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandResponse;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceLocation;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceMeasurement;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceStateChange;
+import com.sitewhere.rest.model.device.event.DeviceAlert;
+import com.sitewhere.rest.model.device.event.DeviceCommandInvocation;
+import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
+import com.sitewhere.rest.model.device.event.DeviceLocation;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.DeviceStateChange;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Measures conversion of each event type between the API model and its gRPC
+ * representation.
+ * 
+ * @author Derek
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventModelConverterBenchmark {
+
+    private DeviceMeasurement measurement;
+    private GDeviceMeasurement grpcMeasurement;
+
+    private DeviceLocation location;
+    private GDeviceLocation grpcLocation;
+
+    private DeviceAlert alert;
+    private GDeviceAlert grpcAlert;
+
+    private DeviceCommandInvocation invocation;
+    private GDeviceCommandInvocation grpcInvocation;
+
+    private DeviceCommandResponse response;
+    private GDeviceCommandResponse grpcResponse;
+
+    private DeviceStateChange stateChange;
+    private GDeviceStateChange grpcStateChange;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	measurement = BenchmarkData.measurement();
+	grpcMeasurement = EventModelConverter.asGrpcDeviceMeasurement(measurement);
+	location = BenchmarkData.location();
+	grpcLocation = EventModelConverter.asGrpcDeviceLocation(location);
+	alert = BenchmarkData.alert();
+	grpcAlert = EventModelConverter.asGrpcDeviceAlert(alert);
+	invocation = BenchmarkData.commandInvocation();
+	grpcInvocation = EventModelConverter.asGrpcDeviceCommandInvocation(invocation);
+	response = BenchmarkData.commandResponse();
+	grpcResponse = EventModelConverter.asGrpcDeviceCommandResponse(response);
+	stateChange = BenchmarkData.stateChange();
+	grpcStateChange = EventModelConverter.asGrpcDeviceStateChange(stateChange);
+    }
+
+    @Benchmark
+    public GDeviceMeasurement measurementToGrpc() throws SiteWhereException {
+	return EventModelConverter.asGrpcDeviceMeasurement(measurement);
+    }
+
+    @Benchmark
+    public DeviceMeasurement measurementToApi() throws SiteWhereException {
+	return EventModelConverter.asApiDeviceMeasurement(grpcMeasurement);
+    }
+
+    @Benchmark
+    public GDeviceLocation locationToGrpc() throws SiteWhereException {
+	return EventModelConverter.asGrpcDeviceLocation(location);
+    }
+
+    @Benchmark
+    public DeviceLocation locationToApi() throws SiteWhereException {
+	return EventModelConverter.asApiDeviceLocation(grpcLocation);
+    }
+
+    @Benchmark
+    public GDeviceAlert alertToGrpc() throws SiteWhereException {
+	return EventModelConverter.asGrpcDeviceAlert(alert);
+    }
+
+    @Benchmark
+    public DeviceAlert alertToApi() throws SiteWhereException {
+	return EventModelConverter.asApiDeviceAlert(grpcAlert);
+    }
+
+    @Benchmark
+    public GDeviceCommandInvocation commandInvocationToGrpc() throws SiteWhereException {
+	return EventModelConverter.asGrpcDeviceCommandInvocation(invocation);
+    }
+
+    @Benchmark
+    public DeviceCommandInvocation commandInvocationToApi() throws SiteWhereException {
+	return EventModelConverter.asApiDeviceCommandInvocation(grpcInvocation);
+    }
+
+    @Benchmark
+    public GDeviceCommandResponse commandResponseToGrpc() throws SiteWhereException {
+	return EventModelConverter.asGrpcDeviceCommandResponse(response);
+    }
+
+    @Benchmark
+    public DeviceCommandResponse commandResponseToApi() throws SiteWhereException {
+	return EventModelConverter.asApiDeviceCommandResponse(grpcResponse);
+    }
+
+    @Benchmark
+    public GDeviceStateChange stateChangeToGrpc() throws SiteWhereException {
+	return EventModelConverter.asGrpcDeviceStateChange(stateChange);
+    }
+
+    @Benchmark
+    public DeviceStateChange stateChangeToApi() throws SiteWhereException {
+	return EventModelConverter.asApiDeviceStateChange(grpcStateChange);
+    }
+}
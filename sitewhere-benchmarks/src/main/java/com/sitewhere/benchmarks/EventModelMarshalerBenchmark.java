@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
+import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.PersistedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Measures building and parsing the binary payloads that are exchanged over
+ * Kafka between pipeline stages.
+ * 
+ * @author Derek
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventModelMarshalerBenchmark {
+
+    private InboundEventPayload inbound;
+    private byte[] inboundMessage;
+
+    private GPersistedEventPayload persisted;
+    private byte[] persistedMessage;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	inbound = BenchmarkData.inboundMeasurementPayload();
+	inboundMessage = EventModelMarshaler.buildInboundEventPayloadMessage(inbound);
+
+	PersistedEventPayload api = new PersistedEventPayload();
+	api.setDeviceId(BenchmarkData.device().getId());
+	api.setEvent(BenchmarkData.measurement());
+	persisted = EventModelConverter.asGrpcPersistedEventPayload(api);
+	persistedMessage = EventModelMarshaler.buildPersistedEventPayloadMessage(persisted);
+    }
+
+    @Benchmark
+    public byte[] buildInboundEventPayload() throws SiteWhereException {
+	return EventModelMarshaler.buildInboundEventPayloadMessage(inbound);
+    }
+
+    @Benchmark
+    public GInboundEventPayload parseInboundEventPayload() throws SiteWhereException {
+	return EventModelMarshaler.parseInboundEventPayloadMessage(inboundMessage);
+    }
+
+    @Benchmark
+    public InboundEventPayload parseInboundEventPayloadToApi() throws SiteWhereException {
+	return EventModelConverter
+		.asApiInboundEventPayload(EventModelMarshaler.parseInboundEventPayloadMessage(inboundMessage));
+    }
+
+    @Benchmark
+    public byte[] buildPersistedEventPayload() throws SiteWhereException {
+	return EventModelMarshaler.buildPersistedEventPayloadMessage(persisted);
+    }
+
+    @Benchmark
+    public GPersistedEventPayload parsePersistedEventPayload() throws SiteWhereException {
+	return EventModelMarshaler.parsePersistedEventPayloadMessage(persistedMessage);
+    }
+}
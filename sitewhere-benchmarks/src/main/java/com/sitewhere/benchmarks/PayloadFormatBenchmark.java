@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sitewhere.grpc.client.event.CompactPayloadCodec;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Compares encode and decode cost per event for enriched event payloads in
+ * standard protobuf encoding, compact encoding with one event per record and
+ * compact encoding with all events from a device grouped into one record. Use
+ * {@link PayloadSizeReport} for the matching bytes per event.
+ *
+ * @author Derek
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    /** Number of events reported together by a device */
+    private static final int EVENTS = 10;
+
+    private List<GEnrichedEventPayload> payloads = new ArrayList<>();
+
+    private List<byte[]> protobufRecords = new ArrayList<>();
+
+    private List<byte[]> compactRecords = new ArrayList<>();
+
+    private byte[] groupedRecord;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	for (int i = 0; i < EVENTS; i++) {
+	    GEnrichedEventPayload payload = EventModelConverter
+		    .asGrpcEnrichedEventPayload(BenchmarkData.enrichedMeasurementPayload(i));
+	    payloads.add(payload);
+	    protobufRecords.add(payload.toByteArray());
+	    compactRecords.add(CompactPayloadCodec.encode(Collections.singletonList(payload)));
+	}
+	groupedRecord = CompactPayloadCodec.encode(payloads);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void encodeProtobuf(Blackhole blackhole) {
+	for (GEnrichedEventPayload payload : payloads) {
+	    blackhole.consume(payload.toByteArray());
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void encodeCompact(Blackhole blackhole) {
+	for (GEnrichedEventPayload payload : payloads) {
+	    blackhole.consume(CompactPayloadCodec.encode(Collections.singletonList(payload)));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public byte[] encodeCompactGrouped() {
+	return CompactPayloadCodec.encode(payloads);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void decodeProtobuf(Blackhole blackhole) throws SiteWhereException {
+	for (byte[] record : protobufRecords) {
+	    blackhole.consume(EventModelMarshaler.parseEnrichedEventPayloadMessage(record));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void decodeCompact(Blackhole blackhole) throws SiteWhereException {
+	for (byte[] record : compactRecords) {
+	    blackhole.consume(EventModelMarshaler.parseEnrichedEventPayloadMessage(record));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public List<GEnrichedEventPayload> decodeCompactGrouped() throws SiteWhereException {
+	return EventModelMarshaler.parseEnrichedEventPayloadsMessage(groupedRecord);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+
+import com.google.protobuf.Message;
+import com.sitewhere.grpc.client.event.CompactPayloadCodec;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Reports bytes per event for the payloads written to internal Kafka topics in
+ * standard protobuf encoding, compact encoding and compact encoding with
+ * events from a device grouped into one record. Sizes are reported for the
+ * encoded payload alone and for Kafka record batches using each compression
+ * type, which includes per-record overhead. Records are split into batches of
+ * about the default producer batch size. Settings are passed as system
+ * properties prefixed with 'payloadsize.'.
+ *
+ * @author Derek
+ */
+public class PayloadSizeReport {
+
+    /** Prefix for system properties */
+    private static final String PREFIX = "payloadsize.";
+
+    /** Compression types reported for record batches */
+    private static final CompressionType[] COMPRESSION = { CompressionType.NONE, CompressionType.GZIP,
+	    CompressionType.SNAPPY, CompressionType.LZ4 };
+
+    public static void main(String[] args) throws Exception {
+	int events = Integer.getInteger(PREFIX + "events", 1000);
+	int groupSize = Integer.getInteger(PREFIX + "groupSize", 10);
+	int batchBytes = Integer.getInteger(PREFIX + "batchBytes", 16384);
+
+	List<Message> inbound = new ArrayList<>();
+	List<Message> persisted = new ArrayList<>();
+	List<Message> enriched = new ArrayList<>();
+	for (int i = 0; i < events; i++) {
+	    inbound.add(EventModelConverter.asGrpcInboundEventPayload(BenchmarkData.inboundMeasurementPayload(i)));
+	    persisted.add(
+		    EventModelConverter.asGrpcPersistedEventPayload(BenchmarkData.persistedMeasurementPayload(i)));
+	    enriched.add(EventModelConverter.asGrpcEnrichedEventPayload(BenchmarkData.enrichedMeasurementPayload(i)));
+	}
+
+	StringBuilder header = new StringBuilder(String.format("%-10s %-16s %8s", "payload", "format", "encoded"));
+	for (CompressionType type : COMPRESSION) {
+	    header.append(String.format(" %8s", type.name));
+	}
+	System.out.println("Bytes per event (" + events + " events, groups of " + groupSize + ")");
+	System.out.println(header);
+	report("inbound", inbound, groupSize, batchBytes);
+	report("persisted", persisted, groupSize, batchBytes);
+	report("enriched", enriched, groupSize, batchBytes);
+    }
+
+    /**
+     * Print sizes for each format for a list of payloads.
+     *
+     * @param name
+     * @param payloads
+     * @param groupSize
+     * @param batchBytes
+     * @throws SiteWhereException
+     */
+    protected static void report(String name, List<Message> payloads, int groupSize, int batchBytes)
+	    throws SiteWhereException {
+	List<byte[]> protobuf = new ArrayList<>();
+	List<byte[]> compact = new ArrayList<>();
+	List<byte[]> grouped = new ArrayList<>();
+	for (Message payload : payloads) {
+	    protobuf.add(payload.toByteArray());
+	    compact.add(CompactPayloadCodec.encode(Collections.singletonList(payload)));
+	}
+	for (int i = 0; i < payloads.size(); i += groupSize) {
+	    grouped.add(CompactPayloadCodec.encode(payloads.subList(i, Math.min(i + groupSize, payloads.size()))));
+	}
+	print(name, "protobuf", protobuf, payloads.size(), batchBytes);
+	print(name, "compact", compact, payloads.size(), batchBytes);
+	print(name, "compact-grouped", grouped, payloads.size(), batchBytes);
+    }
+
+    /**
+     * Print encoded size and batch size for each compression type.
+     *
+     * @param name
+     * @param format
+     * @param records
+     * @param events
+     * @param batchBytes
+     */
+    protected static void print(String name, String format, List<byte[]> records, int events, int batchBytes) {
+	long encoded = 0;
+	for (byte[] record : records) {
+	    encoded += record.length;
+	}
+	StringBuilder line = new StringBuilder(
+		String.format("%-10s %-16s %8.1f", name, format, (double) encoded / events));
+	for (CompressionType type : COMPRESSION) {
+	    line.append(String.format(" %8.1f", (double) batchedSize(records, type, batchBytes) / events));
+	}
+	System.out.println(line);
+    }
+
+    /**
+     * Get total size of the Kafka record batches holding the records.
+     *
+     * @param records
+     * @param type
+     * @param batchBytes
+     * @return
+     */
+    protected static long batchedSize(List<byte[]> records, CompressionType type, int batchBytes) {
+	byte[] key = BenchmarkData.DEVICE_TOKEN.getBytes(StandardCharsets.UTF_8);
+	long timestamp = System.currentTimeMillis();
+	long total = 0;
+	MemoryRecordsBuilder builder = null;
+	int pending = 0;
+	for (byte[] record : records) {
+	    if ((builder != null) && (pending + record.length > batchBytes)) {
+		total += builder.build().sizeInBytes();
+		builder = null;
+	    }
+	    if (builder == null) {
+		builder = MemoryRecords.builder(ByteBuffer.allocate(batchBytes), type, TimestampType.CREATE_TIME, 0L);
+		pending = 0;
+	    }
+	    builder.append(timestamp, key, record);
+	    pending += record.length;
+	}
+	if (builder != null) {
+	    total += builder.build().sizeInBytes();
+	}
+	return total;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.microservice.security.TokenManagement;
+import com.sitewhere.rest.model.user.User;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.security.IVerifiedToken;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Compares the per-request cost of fully parsing and verifying a JWT against
+ * looking up a previously verified token in the cache.
+ * 
+ * @author Derek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenVerificationBenchmark {
+
+    /** Number of distinct tokens in rotation */
+    @Param({ "100" })
+    private int tokenCount;
+
+    private TokenManagement tokens;
+
+    private String[] jwts;
+
+    private int next;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	tokens = new TokenManagement();
+	jwts = new String[tokenCount];
+	for (int i = 0; i < tokenCount; i++) {
+	    User user = new User();
+	    user.setUsername("user" + i);
+	    user.setAuthorities(Arrays.asList(new String[] { "this", "that", "other" }));
+	    jwts[i] = tokens.generateToken(user, 60);
+	}
+    }
+
+    @Benchmark
+    public Claims parseAndVerify() throws SiteWhereException {
+	return tokens.getClaimsForToken(nextToken());
+    }
+
+    @Benchmark
+    public IVerifiedToken cachedLookup() throws SiteWhereException {
+	return tokens.getVerifiedToken(nextToken());
+    }
+
+    protected String nextToken() {
+	next = (next + 1) % tokenCount;
+	return jwts[next];
+    }
+}
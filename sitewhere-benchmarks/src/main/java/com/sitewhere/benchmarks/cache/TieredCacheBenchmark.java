@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.cache;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import org.HdrHistogram.Histogram;
+
+import com.sitewhere.benchmarks.BenchmarkData;
+import com.sitewhere.grpc.client.cache.CacheConfiguration;
+import com.sitewhere.grpc.client.cache.DeviceManagementCacheProviders;
+import com.sitewhere.rest.model.device.Device;
+import com.sitewhere.rest.model.tenant.Tenant;
+import com.sitewhere.spi.SiteWhereException;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Loads a large fleet of devices into the device by id cache and compares
+ * heap-only, heap with off-heap, and heap with off-heap and disk tiers. For
+ * each configuration it reports retained heap, lookup latency for a hot key
+ * set that stays on heap and for uniformly random keys that are mostly served
+ * from the lower tiers, and garbage collection pauses while loading and during
+ * lookups. Settings are read from system properties prefixed with 'cachebench.'
+ * (for instance -Pcachebench.devices=5000000). Run one scenario per JVM
+ * (-Pcachebench.scenarios=offheap) for the most accurate GC figures.
+ *
+ * @author Derek
+ */
+public class TieredCacheBenchmark {
+
+    /** Prefix for system properties */
+    private static final String PREFIX = "cachebench.";
+
+    /** Time to live for cache entries (longer than any run) */
+    private static final int TTL_SECONDS = 24 * 60 * 60;
+
+    /** Tenant that owns the cache */
+    private static Tenant tenant;
+
+    /** Records garbage collection durations */
+    private static GcMonitor gc = new GcMonitor();
+
+    public static void main(String[] args) throws Exception {
+	int devices = Integer.getInteger(PREFIX + "devices", 5000000);
+	int lookups = Integer.getInteger(PREFIX + "lookups", 1000000);
+	int hotKeys = Math.min(devices, Integer.getInteger(PREFIX + "hotKeys", 10000));
+	int heapEntries = Integer.getInteger(PREFIX + "heapEntries", 50000);
+	long offHeapMb = Long.getLong(PREFIX + "offHeapMb", 4096);
+	long diskOffHeapMb = Long.getLong(PREFIX + "diskOffHeapMb", 512);
+	long diskMb = Long.getLong(PREFIX + "diskMb", 8192);
+	String scenarios = System.getProperty(PREFIX + "scenarios", "heap,offheap,disk");
+	File diskPath = new File(System.getProperty("java.io.tmpdir"), "sitewhere-cachebench");
+
+	tenant = new Tenant();
+	tenant.setId(UUID.randomUUID());
+	tenant.setToken("benchmark");
+	gc.register();
+
+	System.out.println("Devices: " + devices + ", lookups: " + lookups + ", hot keys: " + hotKeys);
+	System.out.println(String.format("%-8s %8s %8s %18s %16s %16s %8s %12s", "scenario", "load s", "heap MB",
+		"load gc n/sum/max", "hot p50/p99 us", "cold p50/p99 us", "misses", "lookup gc n/max"));
+	for (String scenario : scenarios.split(",")) {
+	    CacheConfiguration config;
+	    switch (scenario.trim()) {
+	    case "heap":
+		config = new CacheConfiguration(devices, TTL_SECONDS);
+		break;
+	    case "offheap":
+		config = new CacheConfiguration(heapEntries, TTL_SECONDS, offHeapMb, 0);
+		break;
+	    case "disk":
+		config = new CacheConfiguration(heapEntries, TTL_SECONDS, diskOffHeapMb, diskMb);
+		break;
+	    default:
+		throw new IllegalArgumentException("Unknown scenario: " + scenario);
+	    }
+	    config.setDiskPath(diskPath.getPath());
+	    run(scenario.trim(), config, devices, lookups, hotKeys);
+	}
+    }
+
+    /**
+     * Load devices into a cache with the given configuration and measure lookups.
+     *
+     * @param scenario
+     * @param config
+     * @param devices
+     * @param lookups
+     * @param hotKeys
+     * @throws SiteWhereException
+     */
+    protected static void run(String scenario, CacheConfiguration config, int devices, int lookups, int hotKeys)
+	    throws SiteWhereException {
+	BenchmarkCache cache = new BenchmarkCache(config);
+	cache.init();
+	try {
+	    System.gc();
+	    gc.reset();
+	    long start = System.nanoTime();
+	    for (int i = 0; i < devices; i++) {
+		cache.setCacheEntry(tenant, id(i), device(i));
+	    }
+	    double loadSeconds = (System.nanoTime() - start) / 1e9;
+	    String loadGc = String.format("%d/%d/%d", gc.getCount(), gc.getTotalMs(), gc.getMaxMs());
+
+	    System.gc();
+	    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+	    long heapMb = heap.getUsed() / (1024 * 1024);
+
+	    // Bring hot keys onto heap before measuring.
+	    for (int pass = 0; pass < 2; pass++) {
+		for (int i = 0; i < hotKeys; i++) {
+		    cache.getCacheEntry(tenant, id(i));
+		}
+	    }
+	    gc.reset();
+	    Histogram hot = new Histogram(3);
+	    Histogram cold = new Histogram(3);
+	    ThreadLocalRandom random = ThreadLocalRandom.current();
+	    long misses = 0;
+	    for (int i = 0; i < lookups; i++) {
+		UUID key = id(random.nextInt(hotKeys));
+		long begin = System.nanoTime();
+		cache.getCacheEntry(tenant, key);
+		hot.recordValue(System.nanoTime() - begin);
+	    }
+	    for (int i = 0; i < lookups; i++) {
+		UUID key = id(random.nextInt(devices));
+		long begin = System.nanoTime();
+		if (cache.getCacheEntry(tenant, key) == null) {
+		    misses++;
+		}
+		cold.recordValue(System.nanoTime() - begin);
+	    }
+	    String lookupGc = String.format("%d/%d", gc.getCount(), gc.getMaxMs());
+
+	    System.out.println(String.format("%-8s %8.1f %8d %18s %16s %16s %8d %12s", scenario, loadSeconds, heapMb,
+		    loadGc, percentiles(hot), percentiles(cold), misses, lookupGc));
+	} catch (OutOfMemoryError e) {
+	    System.out.println(String.format("%-8s failed: %s", scenario, e.getMessage()));
+	} finally {
+	    cache.closeCacheManager();
+	}
+    }
+
+    protected static String percentiles(Histogram histogram) {
+	return String.format("%.1f/%.1f", histogram.getValueAtPercentile(50) / 1000.0,
+		histogram.getValueAtPercentile(99) / 1000.0);
+    }
+
+    protected static UUID id(int index) {
+	return new UUID(0x5173L, index);
+    }
+
+    protected static Device device(int index) {
+	Device device = BenchmarkData.device();
+	device.setId(id(index));
+	device.setToken("device-" + index);
+	return device;
+    }
+
+    /**
+     * Device by id cache with its cache manager managed outside of the component
+     * lifecycle.
+     */
+    public static class BenchmarkCache extends DeviceManagementCacheProviders.DeviceByIdCache {
+
+	public BenchmarkCache(CacheConfiguration configuration) {
+	    super(configuration);
+	}
+
+	public void init() {
+	    getCacheManager().init();
+	}
+    }
+
+    /**
+     * Collects durations of garbage collections reported by the JVM.
+     */
+    public static class GcMonitor {
+
+	/** Number of collections */
+	private long count;
+
+	/** Total duration in ms */
+	private long totalMs;
+
+	/** Longest duration in ms */
+	private long maxMs;
+
+	public void register() {
+	    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+		if (bean instanceof NotificationEmitter) {
+		    ((NotificationEmitter) bean).addNotificationListener((notification, handback) -> {
+			if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+				.equals(notification.getType())) {
+			    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				    .from((CompositeData) notification.getUserData());
+			    record(info.getGcInfo().getDuration());
+			}
+		    }, null, null);
+		}
+	    }
+	}
+
+	protected synchronized void record(long durationMs) {
+	    count++;
+	    totalMs += durationMs;
+	    maxMs = Math.max(maxMs, durationMs);
+	}
+
+	public synchronized void reset() {
+	    count = 0;
+	    totalMs = 0;
+	    maxMs = 0;
+	}
+
+	public synchronized long getCount() {
+	    return count;
+	}
+
+	public synchronized long getTotalMs() {
+	    return totalMs;
+	}
+
+	public synchronized long getMaxMs() {
+	    return maxMs;
+	}
+    }
+}
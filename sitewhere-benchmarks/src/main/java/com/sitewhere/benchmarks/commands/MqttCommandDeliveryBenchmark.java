@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.commands;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerService;
+import org.fusesource.mqtt.client.Callback;
+import org.fusesource.mqtt.client.FutureConnection;
+import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.QoS;
+
+import com.sitewhere.commands.NestedDeviceSupport.NestedDeviceInformation;
+import com.sitewhere.commands.encoding.EncodedCommandExecution;
+import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.communication.mqtt.MqttPublishingEngine;
+import com.sitewhere.rest.model.device.Device;
+import com.sitewhere.rest.model.device.command.DeviceCommand;
+import com.sitewhere.rest.model.device.command.DeviceCommandExecution;
+import com.sitewhere.rest.model.device.event.DeviceCommandInvocation;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Measures MQTT command delivery throughput against an embedded broker for a
+ * fleet-wide command sent to a large number of devices, each addressed on its
+ * own command topic. Publishing one QoS 1 command at a time and waiting for the
+ * acknowledgement (timed on a subset of devices) is compared with the windowed
+ * {@link MqttPublishingEngine} sharded by topic over a range of connection
+ * counts, and optionally with a publish rate limit. Each command is encoded as
+ * JSON as it is sent. Settings are read from system properties prefixed with
+ * 'cmdbench.' (for instance -Pcmdbench.devices=100000).
+ *
+ * @author Derek
+ */
+public class MqttCommandDeliveryBenchmark {
+
+    /** Prefix for system properties */
+    private static final String PREFIX = "cmdbench.";
+
+    /** Command topic prefix (one topic per device) */
+    private static final String TOPIC_PREFIX = "SiteWhere/benchmark/command/";
+
+    public static void main(String[] args) throws Exception {
+	int devices = Integer.getInteger(PREFIX + "devices", 100000);
+	int awaitedDevices = Math.min(devices, Integer.getInteger(PREFIX + "awaitedDevices", 5000));
+	int window = Integer.getInteger(PREFIX + "window", 1000);
+	String connections = System.getProperty(PREFIX + "connections", "1,4,8");
+	double rate = Double.parseDouble(System.getProperty(PREFIX + "rate", "0"));
+
+	int port = getFreePort();
+	BrokerService broker = new BrokerService();
+	broker.setBrokerName("cmdbench");
+	broker.setPersistent(false);
+	broker.setUseJmx(false);
+	broker.setUseShutdownHook(false);
+	broker.addConnector("mqtt://127.0.0.1:" + port);
+	broker.start();
+	broker.waitUntilStarted();
+	try {
+	    MQTT mqtt = new MQTT();
+	    mqtt.setHost("127.0.0.1", port);
+	    CommandFactory factory = new CommandFactory();
+
+	    System.out.println(String.format("%-26s %10s %12s", "mode", "commands", "commands/s"));
+	    report("awaited x1", awaitedDevices, runAwaited(mqtt, factory, awaitedDevices));
+	    for (String value : connections.split(",")) {
+		int numConnections = Integer.parseInt(value.trim());
+		report("window " + window + " x" + numConnections, devices,
+			runWindowed(mqtt, factory, devices, numConnections, window, 0));
+	    }
+	    if (rate > 0) {
+		int limited = (int) Math.min(devices, rate * 10);
+		report("limited " + (long) rate + "/s", limited, runWindowed(mqtt, factory, limited, 1, window, rate));
+	    }
+	} finally {
+	    broker.stop();
+	    broker.waitUntilStopped();
+	}
+    }
+
+    /**
+     * Print results for a run.
+     *
+     * @param mode
+     * @param commands
+     * @param elapsedNanos
+     */
+    protected static void report(String mode, int commands, long elapsedNanos) {
+	double seconds = elapsedNanos / 1e9;
+	System.out.println(String.format("%-26s %10d %12.1f", mode, commands, commands / seconds));
+    }
+
+    /**
+     * Publish one command per device, waiting for each acknowledgement.
+     *
+     * @param mqtt
+     * @param factory
+     * @param devices
+     * @return
+     * @throws Exception
+     */
+    protected static long runAwaited(MQTT mqtt, CommandFactory factory, int devices) throws Exception {
+	FutureConnection connection = new MQTT(mqtt).futureConnection();
+	connection.connect().await(10, TimeUnit.SECONDS);
+	try {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < devices; i++) {
+		connection.publish(TOPIC_PREFIX + i, factory.encode(i), QoS.AT_LEAST_ONCE, false).await(10,
+			TimeUnit.SECONDS);
+	    }
+	    return System.nanoTime() - start;
+	} finally {
+	    connection.disconnect().await(10, TimeUnit.SECONDS);
+	}
+    }
+
+    /**
+     * Publish one command per device through the windowed engine, sharded by
+     * topic. Elapsed time includes waiting for all acknowledgements.
+     *
+     * @param mqtt
+     * @param factory
+     * @param devices
+     * @param numConnections
+     * @param maxInFlight
+     * @param rate
+     * @return
+     * @throws Exception
+     */
+    protected static long runWindowed(MQTT mqtt, CommandFactory factory, int devices, int numConnections,
+	    int maxInFlight, double rate) throws Exception {
+	MqttPublishingEngine engine = new MqttPublishingEngine();
+	engine.setNumConnections(numConnections);
+	engine.setMaxInFlight(maxInFlight);
+	engine.setMaxPublishRate(rate);
+	engine.start(mqtt, "Command Benchmark");
+	CountDownLatch acknowledged = new CountDownLatch(devices);
+	Callback<Void> callback = new Callback<Void>() {
+
+	    @Override
+	    public void onSuccess(Void value) {
+		acknowledged.countDown();
+	    }
+
+	    @Override
+	    public void onFailure(Throwable e) {
+		acknowledged.countDown();
+	    }
+	};
+	try {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < devices; i++) {
+		String topic = TOPIC_PREFIX + i;
+		engine.publish(topic, topic, factory.encode(i), callback);
+	    }
+	    acknowledged.await();
+	    long elapsed = System.nanoTime() - start;
+	    if (engine.getFailed().getCount() > 0) {
+		System.out.println("Failed commands: " + engine.getFailed().getCount());
+	    }
+	    return elapsed;
+	} finally {
+	    engine.stop();
+	}
+    }
+
+    /**
+     * Find a free local port for the broker.
+     *
+     * @return
+     * @throws IOException
+     */
+    protected static int getFreePort() throws IOException {
+	try (ServerSocket socket = new ServerSocket(0)) {
+	    return socket.getLocalPort();
+	}
+    }
+
+    /**
+     * Encodes a command execution for a device as the JSON command encoder does.
+     */
+    protected static class CommandFactory {
+
+	/** Command sent to every device */
+	private DeviceCommand command = new DeviceCommand();
+
+	public CommandFactory() {
+	    command.setId(UUID.randomUUID());
+	    command.setToken("reboot");
+	    command.setName("reboot");
+	    command.setNamespace("http://sitewhere/benchmark");
+	}
+
+	/**
+	 * Encode command for the device with the given index.
+	 *
+	 * @param index
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public byte[] encode(int index) throws SiteWhereException {
+	    Device device = new Device();
+	    device.setId(UUID.randomUUID());
+	    device.setToken("device-" + index);
+
+	    DeviceCommandInvocation invocation = new DeviceCommandInvocation();
+	    invocation.setId(UUID.randomUUID());
+	    invocation.setDeviceId(device.getId());
+	    invocation.setCommandToken(command.getToken());
+
+	    DeviceCommandExecution execution = new DeviceCommandExecution();
+	    execution.setCommand(command);
+	    execution.setInvocation(invocation);
+	    execution.getParameters().put("delay", 5);
+
+	    NestedDeviceInformation nesting = new NestedDeviceInformation();
+	    nesting.setGateway(device);
+	    return MarshalUtils.marshalJson(new EncodedCommandExecution(execution, nesting, null));
+	}
+    }
+}
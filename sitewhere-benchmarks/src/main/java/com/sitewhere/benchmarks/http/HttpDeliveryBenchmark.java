@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.web.client.RestTemplate;
+
+import com.sitewhere.connectors.http.AsyncHttpDeliveryEngine;
+
+/**
+ * Measures HTTP outbound delivery throughput against a loopback endpoint for a
+ * range of simulated endpoint latencies. Each run compares blocking delivery
+ * with a {@link RestTemplate} from a fixed number of processing threads (as the
+ * HTTP connector originally worked) with the pooled asynchronous engine, with
+ * and without batching. Settings are read from system properties prefixed with
+ * 'httpbench.' (for instance -Phttpbench.latencies=0,10,100).
+ *
+ * @author Derek
+ */
+public class HttpDeliveryBenchmark {
+
+    /** Prefix for system properties */
+    private static final String PREFIX = "httpbench.";
+
+    /** Sample event payload */
+    private static final byte[] PAYLOAD = ("{\"deviceToken\":\"bench-device\",\"type\":\"Measurement\","
+	    + "\"request\":{\"name\":\"engine.temperature\",\"value\":72.5}}").getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+	int events = Integer.getInteger(PREFIX + "events", 2000);
+	int threads = Integer.getInteger(PREFIX + "threads", 4);
+	int maxInFlight = Integer.getInteger(PREFIX + "maxInFlight", 100);
+	int batchSize = Integer.getInteger(PREFIX + "batchSize", 50);
+	String latencies = System.getProperty(PREFIX + "latencies", "0,5,20,100");
+
+	LoopbackHttpServer server = new LoopbackHttpServer();
+	server.start();
+	try {
+	    System.out.println(String.format("%-10s %-22s %10s %12s %10s", "latency", "mode", "events", "events/s",
+		    "requests"));
+	    for (String value : latencies.split(",")) {
+		long latency = Long.parseLong(value.trim());
+		server.setLatencyMs(latency);
+		report(server, latency, "blocking x" + threads, runBlocking(server.getUri(), events, threads));
+		report(server, latency, "async", runAsync(server.getUri(), events, maxInFlight, 1));
+		report(server, latency, "async batch " + batchSize,
+			runAsync(server.getUri(), events, maxInFlight, batchSize));
+	    }
+	} finally {
+	    server.stop();
+	}
+    }
+
+    /**
+     * Print results for a run and reset server counters.
+     *
+     * @param server
+     * @param latency
+     * @param mode
+     * @param result
+     */
+    protected static void report(LoopbackHttpServer server, long latency, String mode, Result result) {
+	double seconds = result.getElapsedNanos() / 1e9;
+	System.out.println(String.format("%-10s %-22s %10d %12.1f %10d", latency + "ms", mode, result.getEvents(),
+		result.getEvents() / seconds, server.getRequests()));
+	server.reset();
+    }
+
+    /**
+     * Deliver events with blocking requests from a fixed set of threads.
+     *
+     * @param uri
+     * @param events
+     * @param threads
+     * @return
+     * @throws Exception
+     */
+    protected static Result runBlocking(String uri, int events, int threads) throws Exception {
+	RestTemplate client = new RestTemplate();
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	AtomicInteger remaining = new AtomicInteger(events);
+	long start = System.nanoTime();
+	List<Future<?>> futures = new ArrayList<>();
+	for (int i = 0; i < threads; i++) {
+	    futures.add(executor.submit(() -> {
+		while (remaining.getAndDecrement() > 0) {
+		    client.postForLocation(uri, PAYLOAD);
+		}
+	    }));
+	}
+	for (Future<?> future : futures) {
+	    future.get();
+	}
+	long elapsed = System.nanoTime() - start;
+	executor.shutdown();
+	return new Result(events, elapsed);
+    }
+
+    /**
+     * Deliver events with the asynchronous engine. Elapsed time includes waiting
+     * for all requests to complete.
+     *
+     * @param uri
+     * @param events
+     * @param maxInFlight
+     * @param batchSize
+     * @return
+     * @throws Exception
+     */
+    protected static Result runAsync(String uri, int events, int maxInFlight, int batchSize) throws Exception {
+	AsyncHttpDeliveryEngine engine = new AsyncHttpDeliveryEngine();
+	engine.setMaxInFlight(maxInFlight);
+	engine.setMaxConnections(maxInFlight);
+	engine.setMaxConnectionsPerEndpoint(maxInFlight);
+	engine.setBatchSize(batchSize);
+	engine.start();
+	long start = System.nanoTime();
+	for (int i = 0; i < events; i++) {
+	    engine.submit("post", uri, PAYLOAD);
+	}
+	engine.stop();
+	long elapsed = System.nanoTime() - start;
+	if (engine.getFailed().getCount() > 0) {
+	    System.out.println("Failed requests: " + engine.getFailed().getCount());
+	}
+	return new Result(events, elapsed);
+    }
+
+    /**
+     * Result of a single run.
+     */
+    protected static class Result {
+
+	/** Events delivered */
+	private final int events;
+
+	/** Elapsed time */
+	private final long elapsedNanos;
+
+	public Result(int events, long elapsedNanos) {
+	    this.events = events;
+	    this.elapsedNanos = elapsedNanos;
+	}
+
+	public int getEvents() {
+	    return events;
+	}
+
+	public long getElapsedNanos() {
+	    return elapsedNanos;
+	}
+    }
+}
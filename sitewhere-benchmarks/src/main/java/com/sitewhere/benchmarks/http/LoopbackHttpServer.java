@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP server bound to the loopback interface that simulates a webhook
+ * endpoint with a fixed response latency. Each request body is read fully
+ * before the server waits for the configured latency and responds with an
+ * empty 200 response.
+ *
+ * @author Derek
+ */
+public class LoopbackHttpServer {
+
+    /** Simulated endpoint latency */
+    private volatile long latencyMs;
+
+    /** Underlying server */
+    private HttpServer server;
+
+    /** Handles requests (unbounded so latency does not limit concurrency) */
+    private ExecutorService executor;
+
+    /** Requests received */
+    private AtomicLong requests = new AtomicLong();
+
+    /** Request body bytes received */
+    private AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Start the server on an ephemeral port.
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+	this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+	this.executor = Executors.newCachedThreadPool();
+	server.setExecutor(executor);
+	server.createContext("/", this::handle);
+	server.start();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+	server.stop(0);
+	executor.shutdownNow();
+    }
+
+    /**
+     * Handle a single request.
+     *
+     * @param exchange
+     * @throws IOException
+     */
+    protected void handle(HttpExchange exchange) throws IOException {
+	byte[] buffer = new byte[8192];
+	long length = 0;
+	try (InputStream input = exchange.getRequestBody()) {
+	    int read;
+	    while ((read = input.read(buffer)) != -1) {
+		length += read;
+	    }
+	}
+	try {
+	    if (latencyMs > 0) {
+		TimeUnit.MILLISECONDS.sleep(latencyMs);
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	exchange.sendResponseHeaders(200, -1);
+	exchange.close();
+	requests.incrementAndGet();
+	bytes.addAndGet(length);
+    }
+
+    /**
+     * Reset request counters.
+     */
+    public void reset() {
+	requests.set(0);
+	bytes.set(0);
+    }
+
+    /**
+     * Get URI for the server.
+     *
+     * @return
+     */
+    public String getUri() {
+	return "http://127.0.0.1:" + server.getAddress().getPort() + "/events";
+    }
+
+    public long getLatencyMs() {
+	return latencyMs;
+    }
+
+    public void setLatencyMs(long latencyMs) {
+	this.latencyMs = latencyMs;
+    }
+
+    public long getRequests() {
+	return requests.get();
+    }
+
+    public long getBytes() {
+	return bytes.get();
+    }
+}
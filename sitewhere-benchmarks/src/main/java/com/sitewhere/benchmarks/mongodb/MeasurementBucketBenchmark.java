@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.mongodb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.Document;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.WriteModel;
+import com.sitewhere.event.persistence.mongodb.MongoConverters;
+import com.sitewhere.event.persistence.mongodb.MongoDeviceEvent;
+import com.sitewhere.event.persistence.mongodb.MongoDeviceEventManagementPersistence;
+import com.sitewhere.event.persistence.mongodb.MongoDeviceMeasurement;
+import com.sitewhere.event.persistence.mongodb.MongoMeasurementBucket;
+import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.search.DateRangeSearchCriteria;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+
+/**
+ * Compares index size, write rate and range-scan latency between individual
+ * measurement documents and time-bucketed measurement documents. Requires a
+ * running MongoDB instance. Settings are read from system properties prefixed
+ * with 'bucketbench.' (for instance -Pbucketbench.hostname=mongodb). The
+ * benchmark database is dropped before each run.
+ *
+ * @author Derek
+ */
+public class MeasurementBucketBenchmark {
+
+    /** Prefix for system properties */
+    private static final String PREFIX = "bucketbench.";
+
+    /** Host to connect to */
+    private static final String MONGO_HOSTNAME = System.getProperty(PREFIX + "hostname", "localhost");
+
+    /** Port to connect on */
+    private static final int MONGO_PORT = Integer.getInteger(PREFIX + "port", 27017);
+
+    /** Database used for benchmark data (dropped before each run) */
+    private static final String MONGO_DATABASE = System.getProperty(PREFIX + "database", "sitewhere-benchmark");
+
+    /** Number of assignments generating data */
+    private static final int NUM_ASSIGNMENTS = Integer.getInteger(PREFIX + "assignments", 10);
+
+    /** Number of measurements generated per assignment (1 Hz) */
+    private static final int NUM_MEASUREMENTS = Integer.getInteger(PREFIX + "measurements", 20000);
+
+    /** Writes per bulk operation */
+    private static final int CHUNK_SIZE = 200;
+
+    /** Bucket interval */
+    private static final long BUCKET_INTERVAL_MS = 60 * 60 * 1000;
+
+    /** Max samples per bucket */
+    private static final int MAX_SAMPLES = 1000;
+
+    /** Number of range scans averaged for latency */
+    private static final int NUM_SCANS = 50;
+
+    public static void main(String[] args) throws Exception {
+	MongoClient client = new MongoClient(MONGO_HOSTNAME, MONGO_PORT);
+	try {
+	    MongoDatabase db = client.getDatabase(MONGO_DATABASE);
+	    db.drop();
+
+	    MongoCollection<Document> events = db.getCollection("events");
+	    events.createIndex(new BasicDBObject(MongoDeviceEvent.PROP_DEVICE_ASSIGNMENT_ID, 1)
+		    .append(MongoDeviceEvent.PROP_EVENT_TYPE, 1).append(MongoDeviceEvent.PROP_EVENT_DATE, -1));
+	    MongoCollection<Document> buckets = db.getCollection("measurementBuckets");
+	    buckets.createIndex(new BasicDBObject(MongoMeasurementBucket.PROP_DEVICE_ASSIGNMENT_ID, 1)
+		    .append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+	    buckets.createIndex(new BasicDBObject(MongoMeasurementBucket.PROP_SAMPLE_KEY_HASH, 1)
+		    .append(MongoMeasurementBucket.PROP_BUCKET_START, -1));
+
+	    List<UUID> assignments = new ArrayList<UUID>();
+	    for (int i = 0; i < NUM_ASSIGNMENTS; i++) {
+		assignments.add(UUID.randomUUID());
+	    }
+	    long base = System.currentTimeMillis() - (NUM_MEASUREMENTS * 1000L);
+
+	    // Write individual documents.
+	    long start = System.currentTimeMillis();
+	    List<WriteModel<Document>> writes = new ArrayList<WriteModel<Document>>();
+	    List<Document> docs = new ArrayList<Document>();
+	    for (int i = 0; i < NUM_MEASUREMENTS; i++) {
+		for (UUID assignment : assignments) {
+		    docs.add(MongoDeviceMeasurement.toDocument(createMeasurement(assignment, base + (i * 1000L)), false));
+		    if (docs.size() >= CHUNK_SIZE) {
+			events.insertMany(docs);
+			docs.clear();
+		    }
+		}
+	    }
+	    if (!docs.isEmpty()) {
+		events.insertMany(docs);
+	    }
+	    long docsElapsed = System.currentTimeMillis() - start;
+
+	    // Write bucketed documents.
+	    List<UUID> sampleIds = new ArrayList<UUID>();
+	    start = System.currentTimeMillis();
+	    for (int i = 0; i < NUM_MEASUREMENTS; i++) {
+		for (UUID assignment : assignments) {
+		    DeviceMeasurement mx = createMeasurement(assignment, base + (i * 1000L));
+		    mx.setId(MongoMeasurementBucket.createSampleId(mx, BUCKET_INTERVAL_MS));
+		    if ((i % Math.max(1, NUM_MEASUREMENTS / NUM_SCANS)) == 0) {
+			sampleIds.add(mx.getId());
+		    }
+		    writes.add(MongoMeasurementBucket.createUpsert(mx, BUCKET_INTERVAL_MS, MAX_SAMPLES));
+		    if (writes.size() >= CHUNK_SIZE) {
+			buckets.bulkWrite(writes);
+			writes.clear();
+		    }
+		}
+	    }
+	    if (!writes.isEmpty()) {
+		buckets.bulkWrite(writes);
+	    }
+	    long bucketsElapsed = System.currentTimeMillis() - start;
+
+	    int total = NUM_MEASUREMENTS * NUM_ASSIGNMENTS;
+	    System.out.println("Wrote " + total + " measurements.");
+	    System.out.println("Document writes: " + rate(total, docsElapsed) + " events/sec");
+	    System.out.println("Bucket writes: " + rate(total, bucketsElapsed) + " events/sec");
+	    System.out.println("Document index size: " + stats(db, "events").get("totalIndexSize") + " bytes");
+	    System.out.println(
+		    "Bucket index size: " + stats(db, "measurementBuckets").get("totalIndexSize") + " bytes");
+
+	    // Range scans over the most recent hour, day and full data set.
+	    long end = base + (NUM_MEASUREMENTS * 1000L);
+	    long[] ranges = { 60 * 60 * 1000L, 24 * 60 * 60 * 1000L, NUM_MEASUREMENTS * 1000L };
+	    for (long range : ranges) {
+		DateRangeSearchCriteria criteria = new DateRangeSearchCriteria(1, 100, new Date(end - range),
+			new Date(end));
+		List<UUID> ids = Collections.singletonList(assignments.get(0));
+
+		start = System.nanoTime();
+		for (int i = 0; i < NUM_SCANS; i++) {
+		    Document query = new Document(MongoDeviceEvent.PROP_DEVICE_ASSIGNMENT_ID,
+			    new Document("$in", ids)).append(MongoDeviceEvent.PROP_EVENT_TYPE,
+				    DeviceEventType.Measurement.name());
+		    MongoPersistence.addDateSearchCriteria(query, MongoDeviceEvent.PROP_EVENT_DATE, criteria);
+		    MongoPersistence.search(IDeviceMeasurement.class, events, query,
+			    new Document(MongoDeviceEvent.PROP_EVENT_DATE, -1), criteria, new MongoConverters());
+		}
+		long docsScan = (System.nanoTime() - start) / NUM_SCANS;
+
+		start = System.nanoTime();
+		for (int i = 0; i < NUM_SCANS; i++) {
+		    Document query = new Document(MongoMeasurementBucket.PROP_DEVICE_ASSIGNMENT_ID,
+			    new Document("$in", ids));
+		    MongoDeviceEventManagementPersistence.searchMeasurementBuckets(buckets, query, criteria);
+		}
+		long bucketsScan = (System.nanoTime() - start) / NUM_SCANS;
+
+		System.out.println("Range " + (range / 1000) + "s page 1x100: documents " + (docsScan / 1000)
+			+ "us, buckets " + (bucketsScan / 1000) + "us");
+	    }
+
+	    // Lookups by id resolve the bucket from the id without a per-sample index.
+	    start = System.nanoTime();
+	    for (UUID id : sampleIds) {
+		Document bucket = buckets.find(MongoMeasurementBucket.getSampleIdQuery(id)).first();
+		if (MongoMeasurementBucket.findSample(bucket, MongoDeviceEvent.PROP_ID, id) == null) {
+		    throw new IllegalStateException("Sample not found by id: " + id);
+		}
+	    }
+	    long lookup = (System.nanoTime() - start) / sampleIds.size();
+	    System.out.println("Bucket lookup by id: " + (lookup / 1000) + "us");
+	} finally {
+	    client.close();
+	}
+    }
+
+    protected static DeviceMeasurement createMeasurement(UUID assignment, long time) {
+	DeviceMeasurement mx = new DeviceMeasurement();
+	mx.setId(UUID.randomUUID());
+	mx.setDeviceAssignmentId(assignment);
+	mx.setDeviceId(assignment);
+	mx.setEventDate(new Date(time));
+	mx.setReceivedDate(new Date(time));
+	mx.setName("temperature");
+	mx.setValue(Math.random() * 100);
+	return mx;
+    }
+
+    protected static Document stats(MongoDatabase db, String collection) {
+	return db.runCommand(new Document("collStats", collection));
+    }
+
+    protected static long rate(int count, long elapsedMs) {
+	return (count * 1000L) / Math.max(1, elapsedMs);
+    }
+}
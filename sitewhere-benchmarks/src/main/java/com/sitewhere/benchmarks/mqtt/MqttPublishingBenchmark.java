@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.mqtt;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerService;
+import org.fusesource.mqtt.client.Callback;
+import org.fusesource.mqtt.client.FutureConnection;
+import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.QoS;
+
+import com.sitewhere.benchmarks.BenchmarkData;
+import com.sitewhere.communication.mqtt.MqttPublishingEngine;
+import com.sitewhere.connectors.encoding.JsonEventPayloadEncoder;
+import com.sitewhere.connectors.encoding.ProtobufEventPayloadEncoder;
+import com.sitewhere.connectors.spi.common.IEventPayloadEncoder;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+
+/**
+ * Measures MQTT outbound publishing throughput against an embedded broker.
+ * Each run compares publishing one QoS 1 message at a time and waiting for the
+ * acknowledgement (the round trip the MQTT connector originally paid per
+ * event) with the windowed {@link MqttPublishingEngine} for a range of
+ * connection counts and window sizes, using both JSON and protobuf encoding.
+ * Settings are read from system properties prefixed with 'mqttbench.' (for
+ * instance -Pmqttbench.windows=100,1000).
+ *
+ * @author Derek
+ */
+public class MqttPublishingBenchmark {
+
+    /** Prefix for system properties */
+    private static final String PREFIX = "mqttbench.";
+
+    /** Topic messages are published to */
+    private static final String TOPIC = "SiteWhere/benchmark/outbound";
+
+    public static void main(String[] args) throws Exception {
+	int events = Integer.getInteger(PREFIX + "events", 20000);
+	int devices = Integer.getInteger(PREFIX + "devices", 100);
+	String connections = System.getProperty(PREFIX + "connections", "1,4");
+	String windows = System.getProperty(PREFIX + "windows", "10,100,1000");
+
+	int port = getFreePort();
+	BrokerService broker = new BrokerService();
+	broker.setBrokerName("mqttbench");
+	broker.setPersistent(false);
+	broker.setUseJmx(false);
+	broker.setUseShutdownHook(false);
+	broker.addConnector("mqtt://127.0.0.1:" + port);
+	broker.start();
+	broker.waitUntilStarted();
+	try {
+	    MQTT mqtt = new MQTT();
+	    mqtt.setHost("127.0.0.1", port);
+
+	    DeviceMeasurement[] measurements = new DeviceMeasurement[devices];
+	    for (int i = 0; i < devices; i++) {
+		measurements[i] = BenchmarkData.measurement();
+		measurements[i].setDeviceId(UUID.randomUUID());
+	    }
+	    IEventPayloadEncoder[] encoders = { new JsonEventPayloadEncoder(), new ProtobufEventPayloadEncoder() };
+	    String[] encodings = { "json", "protobuf" };
+
+	    System.out.println(String.format("%-10s %-22s %10s %12s", "encoding", "mode", "events", "events/s"));
+	    for (int e = 0; e < encoders.length; e++) {
+		report(encodings[e], "awaited", events, runAwaited(mqtt, encoders[e], measurements, events));
+		for (String connectionCount : connections.split(",")) {
+		    for (String window : windows.split(",")) {
+			int numConnections = Integer.parseInt(connectionCount.trim());
+			int maxInFlight = Integer.parseInt(window.trim());
+			report(encodings[e], "window " + maxInFlight + " x" + numConnections, events,
+				runWindowed(mqtt, encoders[e], measurements, events, numConnections, maxInFlight));
+		    }
+		}
+	    }
+	} finally {
+	    broker.stop();
+	    broker.waitUntilStopped();
+	}
+    }
+
+    /**
+     * Print results for a run.
+     *
+     * @param encoding
+     * @param mode
+     * @param events
+     * @param elapsedNanos
+     */
+    protected static void report(String encoding, String mode, int events, long elapsedNanos) {
+	double seconds = elapsedNanos / 1e9;
+	System.out.println(String.format("%-10s %-22s %10d %12.1f", encoding, mode, events, events / seconds));
+    }
+
+    /**
+     * Publish events one at a time, waiting for each acknowledgement.
+     *
+     * @param mqtt
+     * @param encoder
+     * @param measurements
+     * @param events
+     * @return
+     * @throws Exception
+     */
+    protected static long runAwaited(MQTT mqtt, IEventPayloadEncoder encoder, DeviceMeasurement[] measurements,
+	    int events) throws Exception {
+	FutureConnection connection = new MQTT(mqtt).futureConnection();
+	connection.connect().await(10, TimeUnit.SECONDS);
+	try {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < events; i++) {
+		byte[] payload = encoder.encode(null, measurements[i % measurements.length]);
+		connection.publish(TOPIC, payload, QoS.AT_LEAST_ONCE, false).await(10, TimeUnit.SECONDS);
+	    }
+	    return System.nanoTime() - start;
+	} finally {
+	    connection.disconnect().await(10, TimeUnit.SECONDS);
+	}
+    }
+
+    /**
+     * Publish events through the windowed engine. Elapsed time includes waiting
+     * for all messages to be acknowledged.
+     *
+     * @param mqtt
+     * @param encoder
+     * @param measurements
+     * @param events
+     * @param numConnections
+     * @param maxInFlight
+     * @return
+     * @throws Exception
+     */
+    protected static long runWindowed(MQTT mqtt, IEventPayloadEncoder encoder, DeviceMeasurement[] measurements,
+	    int events, int numConnections, int maxInFlight) throws Exception {
+	MqttPublishingEngine engine = new MqttPublishingEngine();
+	engine.setNumConnections(numConnections);
+	engine.setMaxInFlight(maxInFlight);
+	engine.start(mqtt, "MQTT Benchmark");
+	CountDownLatch acknowledged = new CountDownLatch(events);
+	Callback<Void> callback = new Callback<Void>() {
+
+	    @Override
+	    public void onSuccess(Void value) {
+		acknowledged.countDown();
+	    }
+
+	    @Override
+	    public void onFailure(Throwable e) {
+		acknowledged.countDown();
+	    }
+	};
+	try {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < events; i++) {
+		DeviceMeasurement measurement = measurements[i % measurements.length];
+		engine.publish(measurement.getDeviceId(), TOPIC, encoder.encode(null, measurement), callback);
+	    }
+	    acknowledged.await();
+	    long elapsed = System.nanoTime() - start;
+	    if (engine.getFailed().getCount() > 0) {
+		System.out.println("Failed messages: " + engine.getFailed().getCount());
+	    }
+	    return elapsed;
+	} finally {
+	    engine.stop();
+	}
+    }
+
+    /**
+     * Find a free local port for the broker.
+     *
+     * @return
+     * @throws IOException
+     */
+    protected static int getFreePort() throws IOException {
+	try (ServerSocket socket = new ServerSocket(0)) {
+	    return socket.getLocalPort();
+	}
+    }
+}
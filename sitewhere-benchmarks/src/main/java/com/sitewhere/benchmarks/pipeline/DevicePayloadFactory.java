@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.rest.model.device.communication.DeviceRequest.Type;
+import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceEventCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.sources.DecodedDeviceRequest;
+import com.sitewhere.sources.decoder.protobuf.ProtobufDeviceEventEncoder;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.AlertLevel;
+import com.sitewhere.spi.device.event.AlertSource;
+
+/**
+ * Creates synthetic measurement, location and alert payloads for simulated
+ * devices in the configured wire format.
+ * 
+ * @author Derek
+ */
+public class DevicePayloadFactory {
+
+    /** Load test settings */
+    private LoadTestConfiguration configuration;
+
+    /** Encoder for protobuf payloads */
+    private ProtobufDeviceEventEncoder protobufEncoder = new ProtobufDeviceEventEncoder();
+
+    public DevicePayloadFactory(LoadTestConfiguration configuration) {
+	this.configuration = configuration;
+    }
+
+    /**
+     * Create an encoded payload for a device.
+     * 
+     * @param deviceToken
+     * @return
+     * @throws SiteWhereException
+     */
+    public byte[] createPayload(String deviceToken) throws SiteWhereException {
+	ThreadLocalRandom random = ThreadLocalRandom.current();
+	int roll = random.nextInt(100);
+	Type type;
+	DeviceEventCreateRequest request;
+	if (roll < getConfiguration().getMeasurementPercent()) {
+	    DeviceMeasurementCreateRequest mx = new DeviceMeasurementCreateRequest();
+	    mx.setName("engine.temperature");
+	    mx.setValue(60 + random.nextDouble() * 60);
+	    request = mx;
+	    type = Type.DeviceMeasurement;
+	} else if (roll < getConfiguration().getMeasurementPercent() + getConfiguration().getLocationPercent()) {
+	    DeviceLocationCreateRequest location = new DeviceLocationCreateRequest();
+	    location.setLatitude(33.75 + random.nextDouble() / 10);
+	    location.setLongitude(-84.39 + random.nextDouble() / 10);
+	    location.setElevation(300 + random.nextDouble() * 50);
+	    request = location;
+	    type = Type.DeviceLocation;
+	} else {
+	    DeviceAlertCreateRequest alert = new DeviceAlertCreateRequest();
+	    alert.setSource(AlertSource.Device);
+	    alert.setLevel(AlertLevel.Warning);
+	    alert.setType("engine.overheat");
+	    alert.setMessage("Engine temperature above threshold.");
+	    request = alert;
+	    type = Type.DeviceAlert;
+	}
+	request.setEventDate(new Date());
+
+	if (LoadTestConfiguration.FORMAT_PROTOBUF.equals(getConfiguration().getFormat())) {
+	    return protobufEncoder.encode(new DecodedDeviceRequest<>(deviceToken, null, request));
+	}
+	Map<String, Object> json = new HashMap<>();
+	json.put("deviceToken", deviceToken);
+	json.put("type", type.name());
+	json.put("request", request);
+	return MarshalUtils.marshalJson(json);
+    }
+
+    public LoadTestConfiguration getConfiguration() {
+	return configuration;
+    }
+}
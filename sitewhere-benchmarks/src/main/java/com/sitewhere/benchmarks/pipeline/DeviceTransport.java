@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Carries payloads from simulated devices to the event source stage. Network
+ * transports prefix each payload with its origin time so that latency can be
+ * measured across the hop.
+ * 
+ * @author Derek
+ */
+public interface DeviceTransport {
+
+    /**
+     * Start transport delivering received payloads to an event source.
+     * 
+     * @param source
+     * @throws SiteWhereException
+     */
+    public void start(EventSourceStage source) throws SiteWhereException;
+
+    /**
+     * Send a payload for a device.
+     * 
+     * @param connection
+     * @param deviceToken
+     * @param payload
+     * @param originNanos
+     * @throws SiteWhereException
+     */
+    public void send(int connection, String deviceToken, byte[] payload, long originNanos) throws SiteWhereException;
+
+    /**
+     * Stop transport.
+     */
+    public void stop();
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Hands payloads directly to the event source stage on the sending thread.
+ * 
+ * @author Derek
+ */
+public class DirectTransport implements DeviceTransport {
+
+    /** Event source receiving payloads */
+    private EventSourceStage source;
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#start(com.sitewhere.
+     * benchmarks.pipeline.EventSourceStage)
+     */
+    @Override
+    public void start(EventSourceStage source) throws SiteWhereException {
+	this.source = source;
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#send(int,
+     * java.lang.String, byte[], long)
+     */
+    @Override
+    public void send(int connection, String deviceToken, byte[] payload, long originNanos)
+	    throws SiteWhereException {
+	source.handle(payload, originNanos);
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#stop()
+     */
+    @Override
+    public void stop() {
+    }
+}
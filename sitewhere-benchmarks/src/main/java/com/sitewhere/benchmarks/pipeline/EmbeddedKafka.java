@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import com.sitewhere.spi.SiteWhereException;
+
+import kafka.server.KafkaServerStartable;
+
+/**
+ * Single-node ZooKeeper and Kafka broker running in the current JVM with data
+ * stored in temporary directories that are removed on shutdown.
+ * 
+ * @author Derek
+ */
+public class EmbeddedKafka {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(EmbeddedKafka.class);
+
+    /** Loopback address used for all listeners */
+    private static final String HOST = "127.0.0.1";
+
+    /** ZooKeeper tick time in milliseconds */
+    private static final int ZK_TICK_TIME = 500;
+
+    /** Root directory for ZooKeeper and Kafka data */
+    private File dataDir;
+
+    /** ZooKeeper connection factory */
+    private ServerCnxnFactory zookeeperFactory;
+
+    /** Kafka broker */
+    private KafkaServerStartable broker;
+
+    /** Port Kafka broker is listening on */
+    private int kafkaPort;
+
+    /**
+     * Start ZooKeeper and Kafka.
+     * 
+     * @throws SiteWhereException
+     */
+    public void start() throws SiteWhereException {
+	try {
+	    this.dataDir = Files.createTempDirectory("sitewhere-loadtest").toFile();
+	    File zkDir = new File(dataDir, "zookeeper");
+	    int zkPort = getFreePort();
+	    ZooKeeperServer zookeeper = new ZooKeeperServer(zkDir, zkDir, ZK_TICK_TIME);
+	    this.zookeeperFactory = ServerCnxnFactory.createFactory(new InetSocketAddress(HOST, zkPort), 1000);
+	    getZookeeperFactory().startup(zookeeper);
+	    LOGGER.info("Embedded ZooKeeper started on port " + zkPort + ".");
+
+	    this.kafkaPort = getFreePort();
+	    Properties config = new Properties();
+	    config.put("broker.id", "0");
+	    config.put("zookeeper.connect", HOST + ":" + zkPort);
+	    config.put("listeners", "PLAINTEXT://" + HOST + ":" + kafkaPort);
+	    config.put("log.dirs", new File(dataDir, "kafka").getAbsolutePath());
+	    config.put("num.partitions", "1");
+	    config.put("offsets.topic.replication.factor", "1");
+	    config.put("offsets.topic.num.partitions", "1");
+	    config.put("transaction.state.log.replication.factor", "1");
+	    config.put("transaction.state.log.min.isr", "1");
+	    config.put("group.initial.rebalance.delay.ms", "0");
+	    config.put("auto.create.topics.enable", "false");
+	    this.broker = KafkaServerStartable.fromProps(config);
+	    getBroker().startup();
+	    LOGGER.info("Embedded Kafka broker started on port " + kafkaPort + ".");
+	} catch (Exception e) {
+	    throw new SiteWhereException("Unable to start embedded Kafka.", e);
+	}
+    }
+
+    /**
+     * Create topics with the given number of partitions.
+     * 
+     * @param topics
+     * @param partitions
+     * @throws SiteWhereException
+     */
+    public void createTopics(Collection<String> topics, int partitions) throws SiteWhereException {
+	Properties config = new Properties();
+	config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, getBootstrapServers());
+	try (AdminClient admin = AdminClient.create(config)) {
+	    List<NewTopic> created = new ArrayList<>();
+	    for (String topic : topics) {
+		created.add(new NewTopic(topic, partitions, (short) 1));
+	    }
+	    admin.createTopics(created).all().get();
+	} catch (Exception e) {
+	    throw new SiteWhereException("Unable to create topics.", e);
+	}
+    }
+
+    /**
+     * Stop Kafka and ZooKeeper and remove data.
+     */
+    public void stop() {
+	if (getBroker() != null) {
+	    getBroker().shutdown();
+	    getBroker().awaitShutdown();
+	}
+	if (getZookeeperFactory() != null) {
+	    getZookeeperFactory().shutdown();
+	}
+	if (dataDir != null) {
+	    delete(dataDir);
+	}
+    }
+
+    /**
+     * Get bootstrap servers for clients.
+     * 
+     * @return
+     */
+    public String getBootstrapServers() {
+	return HOST + ":" + kafkaPort;
+    }
+
+    /**
+     * Find a port that is not currently in use.
+     * 
+     * @return
+     * @throws IOException
+     */
+    protected static int getFreePort() throws IOException {
+	try (ServerSocket socket = new ServerSocket(0)) {
+	    return socket.getLocalPort();
+	}
+    }
+
+    /**
+     * Recursively delete a file or directory.
+     * 
+     * @param file
+     */
+    protected static void delete(File file) {
+	File[] children = file.listFiles();
+	if (children != null) {
+	    for (File child : children) {
+		delete(child);
+	    }
+	}
+	if (!file.delete()) {
+	    LOGGER.warn("Unable to delete '" + file.getAbsolutePath() + "'.");
+	}
+    }
+
+    public ServerCnxnFactory getZookeeperFactory() {
+	return zookeeperFactory;
+    }
+
+    public KafkaServerStartable getBroker() {
+	return broker;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
+import com.sitewhere.rest.model.device.event.DeviceEventContext;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+/**
+ * Consumes persisted events, adds device and assignment context and forwards
+ * them to the enriched events topic (as done by outbound payload enrichment).
+ * 
+ * @author Derek
+ */
+public class EnrichmentStage extends KafkaPipelineStage {
+
+    /** Stage name */
+    public static final String NAME = "enrichment";
+
+    /** Stand-in for device management */
+    private SimulatedFleet fleet;
+
+    public EnrichmentStage(String bootstrapServers, int threads, SimulatedFleet fleet) {
+	super(NAME, bootstrapServers, PipelineKafka.TOPIC_PERSISTED_EVENTS, threads);
+	this.fleet = fleet;
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.KafkaPipelineStage#process(java.lang.
+     * String, byte[], long)
+     */
+    @Override
+    protected void process(String key, byte[] value, long originNanos) throws SiteWhereException {
+	GPersistedEventPayload payload = EventModelMarshaler.parsePersistedEventPayloadMessage(value);
+	IDeviceEvent event = EventModelConverter.asApiGenericDeviceEvent(payload.getEvent());
+	IDeviceAssignment assignment = fleet.getDeviceAssignment(event.getDeviceAssignmentId());
+	if (assignment == null) {
+	    throw new SiteWhereException("Event references non-existent device assignment.");
+	}
+	IDevice device = fleet.getDevice(assignment.getDeviceId());
+	if (device == null) {
+	    throw new SiteWhereException("Event references assignment for non-existent device.");
+	}
+
+	DeviceEventContext context = new DeviceEventContext();
+	context.setDeviceId(device.getId());
+	context.setDeviceTypeId(device.getDeviceTypeId());
+	context.setParentDeviceId(device.getParentDeviceId());
+	context.setDeviceStatus(device.getStatus());
+	context.setDeviceMetadata(device.getMetadata());
+	context.setAssignmentStatus(assignment.getStatus());
+	context.setAssignmentMetadata(assignment.getMetadata());
+
+	EnrichedEventPayload enriched = new EnrichedEventPayload();
+	enriched.setEventContext(context);
+	enriched.setEvent(event);
+	send(PipelineKafka.TOPIC_ENRICHED_EVENTS, device.getToken(),
+		EventModelMarshaler.buildEnrichedEventPayloadMessage(enriched), originNanos);
+	getMetrics().record(originNanos);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+
+import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.rest.model.device.event.DeviceEvent;
+import com.sitewhere.rest.model.device.event.kafka.PersistedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceLocationCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceMeasurementCreateRequest;
+
+/**
+ * Stand-in for device event management. Events are created with the same
+ * persistence logic used by the event management microservice, kept in memory
+ * (latest event per assignment) and published to the persisted events topic as
+ * done by the Kafka persistence triggers.
+ * 
+ * @author Derek
+ */
+public class EventManagementStage {
+
+    /** Stage name */
+    public static final String NAME = "eventManagement";
+
+    /** Producer for persisted events */
+    private KafkaProducer<String, byte[]> producer;
+
+    /** Latency and throughput for stage */
+    private StageMetrics metrics = new StageMetrics(NAME);
+
+    /** Latest event by assignment id */
+    private Map<UUID, IDeviceEvent> latestEvents = new ConcurrentHashMap<>();
+
+    public EventManagementStage(String bootstrapServers) {
+	this.producer = PipelineKafka.createProducer(bootstrapServers, "loadtest-" + NAME);
+    }
+
+    /**
+     * Create and store an event for an assignment, then publish it.
+     * 
+     * @param deviceToken
+     * @param assignment
+     * @param request
+     * @param originNanos
+     * @throws SiteWhereException
+     */
+    public void addDeviceEvent(String deviceToken, IDeviceAssignment assignment, IDeviceEventCreateRequest request,
+	    long originNanos) throws SiteWhereException {
+	DeviceEvent event;
+	switch (request.getEventType()) {
+	case Measurement:
+	    event = DeviceEventManagementPersistence
+		    .deviceMeasurementCreateLogic((IDeviceMeasurementCreateRequest) request, assignment);
+	    break;
+	case Location:
+	    event = DeviceEventManagementPersistence.deviceLocationCreateLogic(assignment,
+		    (IDeviceLocationCreateRequest) request);
+	    break;
+	case Alert:
+	    event = DeviceEventManagementPersistence.deviceAlertCreateLogic(assignment,
+		    (IDeviceAlertCreateRequest) request);
+	    break;
+	default:
+	    throw new SiteWhereException("Event type not supported by load test: " + request.getEventType());
+	}
+	latestEvents.put(assignment.getId(), event);
+
+	PersistedEventPayload payload = new PersistedEventPayload();
+	payload.setDeviceId(assignment.getDeviceId());
+	payload.setEvent(event);
+	byte[] message = EventModelMarshaler
+		.buildPersistedEventPayloadMessage(EventModelConverter.asGrpcPersistedEventPayload(payload));
+	producer.send(PipelineKafka.createRecord(PipelineKafka.TOPIC_PERSISTED_EVENTS, deviceToken, message,
+		originNanos));
+	metrics.record(originNanos);
+    }
+
+    /**
+     * Close producer.
+     */
+    public void stop() {
+	producer.close();
+    }
+
+    public StageMetrics getMetrics() {
+	return metrics;
+    }
+}
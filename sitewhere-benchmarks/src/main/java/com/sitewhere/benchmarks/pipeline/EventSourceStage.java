@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.producer.KafkaProducer;
+
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
+import com.sitewhere.sources.decoder.json.JsonDeviceRequestDecoder;
+import com.sitewhere.sources.decoder.protobuf.ProtobufDeviceEventDecoder;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.sources.spi.IDeviceEventDecoder;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+
+/**
+ * Decodes device payloads with the same decoders used by event sources and
+ * forwards decoded events to the decoded events topic (as handled by the event
+ * sources manager).
+ * 
+ * @author Derek
+ */
+public class EventSourceStage {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(EventSourceStage.class);
+
+    /** Stage name */
+    public static final String NAME = "eventSources";
+
+    /** Source id reported in inbound payloads */
+    private static final String SOURCE_ID = "loadtest";
+
+    /** Decoder for configured payload format */
+    private IDeviceEventDecoder<byte[]> decoder;
+
+    /** Producer for decoded events */
+    private KafkaProducer<String, byte[]> producer;
+
+    /** Latency and throughput for stage */
+    private StageMetrics metrics = new StageMetrics(NAME);
+
+    /** Count of payloads that failed processing */
+    private AtomicLong errors = new AtomicLong();
+
+    /** Metadata passed to decoder */
+    private Map<String, Object> metadata = Collections.emptyMap();
+
+    public EventSourceStage(String bootstrapServers, String format) {
+	this.decoder = LoadTestConfiguration.FORMAT_PROTOBUF.equals(format) ? new ProtobufDeviceEventDecoder()
+		: new JsonDeviceRequestDecoder();
+	this.producer = PipelineKafka.createProducer(bootstrapServers, "loadtest-" + NAME);
+    }
+
+    /**
+     * Decode a payload received from a device and forward the decoded events.
+     * 
+     * @param payload
+     * @param originNanos
+     */
+    public void handle(byte[] payload, long originNanos) {
+	try {
+	    for (IDecodedDeviceRequest<?> decoded : decoder.decode(payload, metadata)) {
+		if (decoded.getRequest() instanceof IDeviceEventCreateRequest) {
+		    InboundEventPayload inbound = new InboundEventPayload();
+		    inbound.setSourceId(SOURCE_ID);
+		    inbound.setDeviceToken(decoded.getDeviceToken());
+		    inbound.setOriginator(decoded.getOriginator());
+		    inbound.setEventCreateRequest((IDeviceEventCreateRequest) decoded.getRequest());
+		    producer.send(PipelineKafka.createRecord(PipelineKafka.TOPIC_DECODED_EVENTS,
+			    decoded.getDeviceToken(), EventModelMarshaler.buildInboundEventPayloadMessage(inbound),
+			    originNanos));
+		    metrics.record(originNanos);
+		}
+	    }
+	} catch (SiteWhereException e) {
+	    if (errors.incrementAndGet() == 1) {
+		LOGGER.error("Unable to decode device payload.", e);
+	    }
+	}
+    }
+
+    /**
+     * Close producer.
+     */
+    public void stop() {
+	producer.close();
+    }
+
+    public StageMetrics getMetrics() {
+	return metrics;
+    }
+
+    public long getErrorCount() {
+	return errors.get();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Drives the simulated fleet at a fixed aggregate rate. Each sender thread
+ * owns a slice of the devices and one transport connection. Events are stamped
+ * with the time they were scheduled to be sent rather than the time they were
+ * actually sent, so a sender that falls behind shows up as added latency
+ * instead of being hidden (coordinated omission).
+ * 
+ * @author Derek
+ */
+public class FleetDriver {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(FleetDriver.class);
+
+    /** Longest time a sender parks between checks */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Load test settings */
+    private LoadTestConfiguration configuration;
+
+    /** Simulated devices */
+    private SimulatedFleet fleet;
+
+    /** Transport for payloads */
+    private DeviceTransport transport;
+
+    /** Creates payloads */
+    private DevicePayloadFactory payloads;
+
+    /** Sender threads */
+    private List<Thread> senders = new ArrayList<>();
+
+    /** Number of payloads sent */
+    private AtomicLong sent = new AtomicLong();
+
+    /** Number of payloads that could not be sent */
+    private AtomicLong errors = new AtomicLong();
+
+    /** Indicates whether senders should keep running */
+    private volatile boolean running;
+
+    public FleetDriver(LoadTestConfiguration configuration, SimulatedFleet fleet, DeviceTransport transport) {
+	this.configuration = configuration;
+	this.fleet = fleet;
+	this.transport = transport;
+	this.payloads = new DevicePayloadFactory(configuration);
+    }
+
+    /**
+     * Start sender threads.
+     */
+    public void start() {
+	this.running = true;
+	int count = Math.max(1, Math.min(configuration.getConnections(), fleet.size()));
+	double perSenderRate = (double) configuration.getEventsPerSecond() / count;
+	long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSenderRate);
+	for (int i = 0; i < count; i++) {
+	    final int sender = i;
+	    Thread thread = new Thread(() -> send(sender, count, intervalNanos), "Load Test Sender " + i);
+	    senders.add(thread);
+	    thread.start();
+	}
+    }
+
+    /**
+     * Send payloads for devices in a slice of the fleet on a fixed schedule.
+     * 
+     * @param sender
+     * @param senderCount
+     * @param intervalNanos
+     */
+    protected void send(int sender, int senderCount, long intervalNanos) {
+	int device = sender;
+	long next = System.nanoTime();
+	while (running) {
+	    long now = System.nanoTime();
+	    while (running && (next <= now)) {
+		String token = fleet.getToken(device);
+		try {
+		    transport.send(sender, token, payloads.createPayload(token), next);
+		    sent.incrementAndGet();
+		} catch (SiteWhereException e) {
+		    if (errors.incrementAndGet() == 1) {
+			LOGGER.error("Unable to send payload.", e);
+		    }
+		}
+		device += senderCount;
+		if (device >= fleet.size()) {
+		    device = sender;
+		}
+		next += intervalNanos;
+	    }
+	    LockSupport.parkNanos(Math.min(next - now, MAX_PARK_NANOS));
+	}
+    }
+
+    /**
+     * Stop sender threads.
+     * 
+     * @throws InterruptedException
+     */
+    public void stop() throws InterruptedException {
+	this.running = false;
+	for (Thread sender : senders) {
+	    sender.join();
+	}
+    }
+
+    public long getSentCount() {
+	return sent.get();
+    }
+
+    public long getErrorCount() {
+	return errors.get();
+    }
+}
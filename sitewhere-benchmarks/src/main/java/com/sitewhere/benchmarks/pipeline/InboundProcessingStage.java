@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+
+/**
+ * Consumes decoded events, resolves the device and active assignment and
+ * stores the event via event management (as done by inbound processing).
+ * 
+ * @author Derek
+ */
+public class InboundProcessingStage extends KafkaPipelineStage {
+
+    /** Stage name */
+    public static final String NAME = "inboundProcessing";
+
+    /** Stand-in for device management */
+    private SimulatedFleet fleet;
+
+    /** Stand-in for event management */
+    private EventManagementStage eventManagement;
+
+    public InboundProcessingStage(String bootstrapServers, int threads, SimulatedFleet fleet,
+	    EventManagementStage eventManagement) {
+	super(NAME, bootstrapServers, PipelineKafka.TOPIC_DECODED_EVENTS, threads);
+	this.fleet = fleet;
+	this.eventManagement = eventManagement;
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.KafkaPipelineStage#process(java.lang.
+     * String, byte[], long)
+     */
+    @Override
+    protected void process(String key, byte[] value, long originNanos) throws SiteWhereException {
+	GInboundEventPayload payload = EventModelMarshaler.parseInboundEventPayloadMessage(value);
+	IDevice device = fleet.getDeviceByToken(payload.getDeviceToken());
+	if (device == null) {
+	    throw new SiteWhereException("Event references unregistered device: " + payload.getDeviceToken());
+	}
+	IDeviceAssignment assignment = fleet.getDeviceAssignment(device.getDeviceAssignmentId());
+	if (assignment == null) {
+	    throw new SiteWhereException("Device is not assigned: " + payload.getDeviceToken());
+	}
+	getMetrics().record(originNanos);
+	eventManagement.addDeviceEvent(device.getToken(), assignment,
+		EventModelConverter.asApiDeviceEventCreateRequest(payload.getEvent()), originNanos);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Base class for pipeline stages that consume records from a Kafka topic and
+ * (optionally) forward results to another topic. Each consumer thread owns
+ * its own consumer in a group shared by the stage.
+ * 
+ * @author Derek
+ */
+public abstract class KafkaPipelineStage {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(KafkaPipelineStage.class);
+
+    /** Poll timeout */
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+    /** Kafka bootstrap servers */
+    private String bootstrapServers;
+
+    /** Topic consumed by stage */
+    private String inputTopic;
+
+    /** Number of consumer threads */
+    private int threads;
+
+    /** Latency and throughput for stage */
+    private StageMetrics metrics;
+
+    /** Count of records that failed processing */
+    private AtomicLong errors = new AtomicLong();
+
+    /** Producer for forwarded records */
+    private KafkaProducer<String, byte[]> producer;
+
+    /** Runs consumer threads */
+    private ExecutorService executor;
+
+    /** Indicates whether consumers should keep running */
+    private volatile boolean running;
+
+    public KafkaPipelineStage(String name, String bootstrapServers, String inputTopic, int threads) {
+	this.metrics = new StageMetrics(name);
+	this.bootstrapServers = bootstrapServers;
+	this.inputTopic = inputTopic;
+	this.threads = threads;
+    }
+
+    /**
+     * Process a single record.
+     * 
+     * @param key
+     * @param value
+     * @param originNanos
+     * @throws SiteWhereException
+     */
+    protected abstract void process(String key, byte[] value, long originNanos) throws SiteWhereException;
+
+    /**
+     * Start producer and consumer threads.
+     */
+    public void start() {
+	this.running = true;
+	this.producer = PipelineKafka.createProducer(bootstrapServers, "loadtest-" + getName());
+	AtomicInteger counter = new AtomicInteger();
+	this.executor = Executors.newFixedThreadPool(threads,
+		r -> new Thread(r, "Load Test " + getName() + " " + counter.incrementAndGet()));
+	for (int i = 0; i < threads; i++) {
+	    executor.execute(this::consume);
+	}
+    }
+
+    /**
+     * Stop consumer threads and producer.
+     * 
+     * @throws InterruptedException
+     */
+    public void stop() throws InterruptedException {
+	this.running = false;
+	if (executor != null) {
+	    executor.shutdown();
+	    executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+	if (producer != null) {
+	    producer.close();
+	}
+    }
+
+    /**
+     * Consume records until stopped.
+     */
+    protected void consume() {
+	try (KafkaConsumer<String, byte[]> consumer = PipelineKafka.createConsumer(bootstrapServers,
+		"loadtest-" + getName())) {
+	    consumer.subscribe(Collections.singletonList(inputTopic));
+	    while (running) {
+		ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+		for (ConsumerRecord<String, byte[]> record : records) {
+		    try {
+			process(record.key(), record.value(), PipelineKafka.getOrigin(record));
+		    } catch (SiteWhereException e) {
+			if (errors.incrementAndGet() == 1) {
+			    LOGGER.error("Stage '" + getName() + "' failed to process record.", e);
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    /**
+     * Forward a record to another topic.
+     * 
+     * @param topic
+     * @param key
+     * @param value
+     * @param originNanos
+     */
+    protected void send(String topic, String key, byte[] value, long originNanos) {
+	producer.send(PipelineKafka.createRecord(topic, key, value, originNanos));
+    }
+
+    public String getName() {
+	return metrics.getName();
+    }
+
+    public StageMetrics getMetrics() {
+	return metrics;
+    }
+
+    public long getErrorCount() {
+	return errors.get();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+/**
+ * Settings for a pipeline load test. Values are read from system properties
+ * prefixed with 'loadtest.' so that they may be passed from the Gradle command
+ * line (for instance -Ploadtest.devices=5000).
+ * 
+ * @author Derek
+ */
+public class LoadTestConfiguration {
+
+    /** Prefix for system properties */
+    public static final String PREFIX = "loadtest.";
+
+    /** Transport that delivers payloads in-process */
+    public static final String TRANSPORT_DIRECT = "direct";
+
+    /** Transport that publishes payloads through an embedded MQTT broker */
+    public static final String TRANSPORT_MQTT = "mqtt";
+
+    /** Transport that writes framed payloads over TCP sockets */
+    public static final String TRANSPORT_SOCKET = "socket";
+
+    /** Payload format for JSON device requests */
+    public static final String FORMAT_JSON = "json";
+
+    /** Payload format for SiteWhere protobuf device requests */
+    public static final String FORMAT_PROTOBUF = "protobuf";
+
+    /** Device lookups are not cached */
+    public static final String CACHE_NONE = "none";
+
+    /** Device lookup cache starts empty */
+    public static final String CACHE_COLD = "cold";
+
+    /** Device lookup cache is warmed in the background as load starts */
+    public static final String CACHE_WARM = "warm";
+
+    /** Device lookup cache is restored from a snapshot before load starts */
+    public static final String CACHE_SNAPSHOT = "snapshot";
+
+    /** Number of simulated devices */
+    private int devices = 1000;
+
+    /** Target events per second across all devices */
+    private int eventsPerSecond = 5000;
+
+    /** Seconds of load before measurement starts */
+    private int warmupSeconds = 10;
+
+    /** Seconds of load included in the report */
+    private int durationSeconds = 60;
+
+    /** Transport used to deliver device payloads */
+    private String transport = TRANSPORT_DIRECT;
+
+    /** Format of device payloads */
+    private String format = FORMAT_JSON;
+
+    /** Number of client connections used by network transports */
+    private int connections = 4;
+
+    /** Partitions for each pipeline topic */
+    private int partitions = 8;
+
+    /** Consumer threads per Kafka-connected stage */
+    private int stageThreads = 2;
+
+    /** Percentage of events that are measurements */
+    private int measurementPercent = 80;
+
+    /** Percentage of events that are locations (remainder are alerts) */
+    private int locationPercent = 15;
+
+    /** Simulated device management latency for uncached lookups */
+    private int lookupMicros = 0;
+
+    /** Device lookup cache mode */
+    private String cache = CACHE_COLD;
+
+    /**
+     * Load configuration from system properties.
+     * 
+     * @return
+     */
+    public static LoadTestConfiguration fromSystemProperties() {
+	LoadTestConfiguration config = new LoadTestConfiguration();
+	config.setDevices(getInt("devices", config.getDevices()));
+	config.setEventsPerSecond(getInt("rate", config.getEventsPerSecond()));
+	config.setWarmupSeconds(getInt("warmup", config.getWarmupSeconds()));
+	config.setDurationSeconds(getInt("duration", config.getDurationSeconds()));
+	config.setTransport(System.getProperty(PREFIX + "transport", config.getTransport()));
+	config.setFormat(System.getProperty(PREFIX + "format", config.getFormat()));
+	config.setConnections(getInt("connections", config.getConnections()));
+	config.setPartitions(getInt("partitions", config.getPartitions()));
+	config.setStageThreads(getInt("threads", config.getStageThreads()));
+	config.setMeasurementPercent(getInt("measurements", config.getMeasurementPercent()));
+	config.setLocationPercent(getInt("locations", config.getLocationPercent()));
+	config.setLookupMicros(getInt("lookupMicros", config.getLookupMicros()));
+	config.setCache(System.getProperty(PREFIX + "cache", config.getCache()));
+	return config;
+    }
+
+    /**
+     * Get an integer system property.
+     * 
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    protected static int getInt(String name, int defaultValue) {
+	String value = System.getProperty(PREFIX + name);
+	return (value != null) ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    /*
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return "devices=" + devices + ", rate=" + eventsPerSecond + "/s, warmup=" + warmupSeconds + "s, duration="
+		+ durationSeconds + "s, transport=" + transport + ", format=" + format + ", connections="
+		+ connections + ", partitions=" + partitions + ", threads=" + stageThreads + ", mix="
+		+ measurementPercent + "/" + locationPercent + "/" + (100 - measurementPercent - locationPercent)
+		+ ", lookup=" + lookupMicros + "us, cache=" + cache;
+    }
+
+    public int getDevices() {
+	return devices;
+    }
+
+    public void setDevices(int devices) {
+	this.devices = devices;
+    }
+
+    public int getEventsPerSecond() {
+	return eventsPerSecond;
+    }
+
+    public void setEventsPerSecond(int eventsPerSecond) {
+	this.eventsPerSecond = eventsPerSecond;
+    }
+
+    public int getWarmupSeconds() {
+	return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(int warmupSeconds) {
+	this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+	return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+	this.durationSeconds = durationSeconds;
+    }
+
+    public String getTransport() {
+	return transport;
+    }
+
+    public void setTransport(String transport) {
+	this.transport = transport;
+    }
+
+    public String getFormat() {
+	return format;
+    }
+
+    public void setFormat(String format) {
+	this.format = format;
+    }
+
+    public int getConnections() {
+	return connections;
+    }
+
+    public void setConnections(int connections) {
+	this.connections = connections;
+    }
+
+    public int getPartitions() {
+	return partitions;
+    }
+
+    public void setPartitions(int partitions) {
+	this.partitions = partitions;
+    }
+
+    public int getStageThreads() {
+	return stageThreads;
+    }
+
+    public void setStageThreads(int stageThreads) {
+	this.stageThreads = stageThreads;
+    }
+
+    public int getMeasurementPercent() {
+	return measurementPercent;
+    }
+
+    public void setMeasurementPercent(int measurementPercent) {
+	this.measurementPercent = measurementPercent;
+    }
+
+    public int getLocationPercent() {
+	return locationPercent;
+    }
+
+    public void setLocationPercent(int locationPercent) {
+	this.locationPercent = locationPercent;
+    }
+
+    public int getLookupMicros() {
+	return lookupMicros;
+    }
+
+    public void setLookupMicros(int lookupMicros) {
+	this.lookupMicros = lookupMicros;
+    }
+
+    public String getCache() {
+	return cache;
+    }
+
+    public void setCache(String cache) {
+	this.cache = cache;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.fusesource.mqtt.client.BlockingConnection;
+import org.fusesource.mqtt.client.FutureConnection;
+import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.Message;
+import org.fusesource.mqtt.client.QoS;
+import org.fusesource.mqtt.client.Topic;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Publishes payloads to an embedded MQTT broker from a pool of client
+ * connections while a subscriber (like the MQTT event receiver) hands received
+ * messages to the event source stage.
+ * 
+ * @author Derek
+ */
+public class MqttTransport implements DeviceTransport {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(MqttTransport.class);
+
+    /** Prefix for device topics */
+    private static final String TOPIC_PREFIX = "SiteWhere/loadtest/input/";
+
+    /** Quality of service used for publish and subscribe */
+    private static final QoS QOS = QoS.AT_LEAST_ONCE;
+
+    /** Number of publisher connections */
+    private int connections;
+
+    /** Embedded broker */
+    private BrokerService broker;
+
+    /** Subscriber connection */
+    private BlockingConnection subscriber;
+
+    /** Subscriber thread */
+    private Thread subscriberThread;
+
+    /** Publisher connections */
+    private List<FutureConnection> publishers = new ArrayList<>();
+
+    /** Indicates whether subscriber should keep running */
+    private volatile boolean running;
+
+    public MqttTransport(int connections) {
+	this.connections = connections;
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#start(com.sitewhere.
+     * benchmarks.pipeline.EventSourceStage)
+     */
+    @Override
+    public void start(EventSourceStage source) throws SiteWhereException {
+	try {
+	    int port = EmbeddedKafka.getFreePort();
+	    this.broker = new BrokerService();
+	    broker.setBrokerName("loadtest");
+	    broker.setPersistent(false);
+	    broker.setUseJmx(false);
+	    broker.setUseShutdownHook(false);
+	    broker.addConnector("mqtt://127.0.0.1:" + port);
+	    broker.start();
+	    broker.waitUntilStarted();
+
+	    MQTT mqtt = new MQTT();
+	    mqtt.setHost("127.0.0.1", port);
+	    this.subscriber = mqtt.blockingConnection();
+	    subscriber.connect();
+	    subscriber.subscribe(new Topic[] { new Topic(TOPIC_PREFIX + "#", QOS) });
+	    this.running = true;
+	    this.subscriberThread = new Thread(() -> receive(source), "Load Test MQTT Subscriber");
+	    subscriberThread.start();
+
+	    for (int i = 0; i < connections; i++) {
+		MQTT client = new MQTT();
+		client.setHost("127.0.0.1", port);
+		client.setClientId("loadtest-" + i);
+		FutureConnection publisher = client.futureConnection();
+		publisher.connect().await();
+		publishers.add(publisher);
+	    }
+	} catch (Exception e) {
+	    throw new SiteWhereException("Unable to start MQTT transport.", e);
+	}
+    }
+
+    /**
+     * Receive messages until stopped.
+     * 
+     * @param source
+     */
+    protected void receive(EventSourceStage source) {
+	while (running) {
+	    try {
+		Message message = subscriber.receive();
+		message.ack();
+		ByteBuffer buffer = ByteBuffer.wrap(message.getPayload());
+		long origin = buffer.getLong();
+		source.handle(Arrays.copyOfRange(buffer.array(), Long.BYTES, buffer.limit()), origin);
+	    } catch (Exception e) {
+		if (running) {
+		    LOGGER.error("Error receiving MQTT message.", e);
+		}
+	    }
+	}
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#send(int,
+     * java.lang.String, byte[], long)
+     */
+    @Override
+    public void send(int connection, String deviceToken, byte[] payload, long originNanos)
+	    throws SiteWhereException {
+	byte[] framed = ByteBuffer.allocate(Long.BYTES + payload.length).putLong(originNanos).put(payload).array();
+	publishers.get(connection % publishers.size()).publish(TOPIC_PREFIX + deviceToken, framed, QOS, false);
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#stop()
+     */
+    @Override
+    public void stop() {
+	this.running = false;
+	try {
+	    for (FutureConnection publisher : publishers) {
+		publisher.disconnect().await();
+	    }
+	    if (subscriber != null) {
+		subscriber.kill();
+	    }
+	    if (broker != null) {
+		broker.stop();
+		broker.waitUntilStopped();
+	    }
+	} catch (Exception e) {
+	    LOGGER.warn("Error stopping MQTT transport.", e);
+	}
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
+
+/**
+ * Consumes enriched events and delivers them to a connector that counts events
+ * by type. Latency recorded by this stage is the end-to-end pipeline latency.
+ * 
+ * @author Derek
+ */
+public class OutboundStage extends KafkaPipelineStage {
+
+    /** Stage name */
+    public static final String NAME = "outbound";
+
+    /** Events delivered by type */
+    private Map<DeviceEventType, LongAdder> delivered = new ConcurrentHashMap<>();
+
+    public OutboundStage(String bootstrapServers, int threads) {
+	super(NAME, bootstrapServers, PipelineKafka.TOPIC_ENRICHED_EVENTS, threads);
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.KafkaPipelineStage#process(java.lang.
+     * String, byte[], long)
+     */
+    @Override
+    protected void process(String key, byte[] value, long originNanos) throws SiteWhereException {
+	EnrichedEventPayload payload = EventModelConverter
+		.asApiEnrichedEventPayload(EventModelMarshaler.parseEnrichedEventPayloadMessage(value));
+	delivered.computeIfAbsent(payload.getEvent().getEventType(), type -> new LongAdder()).increment();
+	getMetrics().record(originNanos);
+    }
+
+    /**
+     * Get total number of events delivered.
+     * 
+     * @return
+     */
+    public long getDeliveredCount() {
+	long total = 0;
+	for (LongAdder count : delivered.values()) {
+	    total += count.sum();
+	}
+	return total;
+    }
+}
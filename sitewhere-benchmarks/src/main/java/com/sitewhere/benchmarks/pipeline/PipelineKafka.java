@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+/**
+ * Kafka client settings shared by pipeline stages along with helpers for
+ * carrying the time an event originated in record headers.
+ * 
+ * @author Derek
+ */
+public class PipelineKafka {
+
+    /** Topic for events decoded by event sources */
+    public static final String TOPIC_DECODED_EVENTS = "loadtest.event-source-decoded-events";
+
+    /** Topic for events persisted by event management */
+    public static final String TOPIC_PERSISTED_EVENTS = "loadtest.inbound-persisted-events";
+
+    /** Topic for persisted events enriched with device context */
+    public static final String TOPIC_ENRICHED_EVENTS = "loadtest.inbound-enriched-events";
+
+    /** Header carrying event origin time (System.nanoTime) */
+    public static final String HEADER_ORIGIN = "loadtest-origin";
+
+    /**
+     * Create a producer with the settings used by SiteWhere microservices.
+     * 
+     * @param bootstrapServers
+     * @param clientId
+     * @return
+     */
+    public static KafkaProducer<String, byte[]> createProducer(String bootstrapServers, String clientId) {
+	Properties config = new Properties();
+	config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+	config.put(ProducerConfig.CLIENT_ID_CONFIG, clientId);
+	config.put(ProducerConfig.ACKS_CONFIG, "1");
+	config.put(ProducerConfig.LINGER_MS_CONFIG, "1");
+	config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+	config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+	return new KafkaProducer<>(config);
+    }
+
+    /**
+     * Create a consumer in the given group reading from the earliest offset.
+     * 
+     * @param bootstrapServers
+     * @param groupId
+     * @return
+     */
+    public static KafkaConsumer<String, byte[]> createConsumer(String bootstrapServers, String groupId) {
+	Properties config = new Properties();
+	config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+	config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+	config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+	config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "true");
+	config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+	config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	return new KafkaConsumer<>(config);
+    }
+
+    /**
+     * Create a record that carries the event origin time.
+     * 
+     * @param topic
+     * @param key
+     * @param value
+     * @param originNanos
+     * @return
+     */
+    public static ProducerRecord<String, byte[]> createRecord(String topic, String key, byte[] value,
+	    long originNanos) {
+	ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, key, value);
+	record.headers().add(HEADER_ORIGIN, ByteBuffer.allocate(Long.BYTES).putLong(originNanos).array());
+	return record;
+    }
+
+    /**
+     * Get event origin time from a record.
+     * 
+     * @param record
+     * @return origin or current time if header is missing
+     */
+    public static long getOrigin(ConsumerRecord<String, byte[]> record) {
+	Header header = record.headers().lastHeader(HEADER_ORIGIN);
+	return (header != null) ? ByteBuffer.wrap(header.value()).getLong() : System.nanoTime();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Runs the event pipeline (event sources, inbound processing, event
+ * management, enrichment and outbound delivery) in a single JVM against an
+ * embedded Kafka broker, drives it with a simulated device fleet and reports
+ * throughput and latency percentiles for each stage.
+ * 
+ * @author Derek
+ */
+public class PipelineLoadTest {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(PipelineLoadTest.class);
+
+    /** Longest time to wait for in-flight events after load stops */
+    private static final long DRAIN_TIMEOUT_MS = 30 * 1000;
+
+    public static void main(String[] args) throws Exception {
+	LoadTestConfiguration config = LoadTestConfiguration.fromSystemProperties();
+	LOGGER.info("Starting pipeline load test (" + config + ").");
+	new PipelineLoadTest().run(config);
+    }
+
+    /**
+     * Run a load test with the given configuration.
+     * 
+     * @param config
+     * @throws Exception
+     */
+    public void run(LoadTestConfiguration config) throws Exception {
+	EmbeddedKafka kafka = new EmbeddedKafka();
+	kafka.start();
+	EventSourceStage sources = null;
+	EventManagementStage eventManagement = null;
+	List<KafkaPipelineStage> stages = new ArrayList<>();
+	DeviceTransport transport = createTransport(config);
+	FleetDriver driver = null;
+	try {
+	    kafka.createTopics(Arrays.asList(PipelineKafka.TOPIC_DECODED_EVENTS, PipelineKafka.TOPIC_PERSISTED_EVENTS,
+		    PipelineKafka.TOPIC_ENRICHED_EVENTS), config.getPartitions());
+
+	    SimulatedFleet fleet = new SimulatedFleet(config.getDevices(), config.getLookupMicros(),
+		    !LoadTestConfiguration.CACHE_NONE.equals(config.getCache()));
+	    if (LoadTestConfiguration.CACHE_SNAPSHOT.equals(config.getCache())) {
+		fleet.restoreCaches();
+	    }
+	    String bootstrap = kafka.getBootstrapServers();
+	    sources = new EventSourceStage(bootstrap, config.getFormat());
+	    eventManagement = new EventManagementStage(bootstrap);
+	    InboundProcessingStage inbound = new InboundProcessingStage(bootstrap, config.getStageThreads(), fleet,
+		    eventManagement);
+	    EnrichmentStage enrichment = new EnrichmentStage(bootstrap, config.getStageThreads(), fleet);
+	    OutboundStage outbound = new OutboundStage(bootstrap, config.getStageThreads());
+	    stages.add(inbound);
+	    stages.add(enrichment);
+	    stages.add(outbound);
+	    for (KafkaPipelineStage stage : stages) {
+		stage.start();
+	    }
+	    transport.start(sources);
+
+	    List<StageMetrics> metrics = Arrays.asList(sources.getMetrics(), inbound.getMetrics(),
+		    eventManagement.getMetrics(), enrichment.getMetrics(), outbound.getMetrics());
+
+	    driver = new FleetDriver(config, fleet, transport);
+	    driver.start();
+	    if (LoadTestConfiguration.CACHE_WARM.equals(config.getCache())) {
+		fleet.startWarmup();
+	    }
+	    LOGGER.info("Warming up for " + config.getWarmupSeconds() + " seconds.");
+	    Thread.sleep(TimeUnit.SECONDS.toMillis(config.getWarmupSeconds()));
+	    List<String> coldStart = report(metrics);
+	    for (StageMetrics stage : metrics) {
+		stage.reset();
+	    }
+	    LOGGER.info("Measuring for " + config.getDurationSeconds() + " seconds.");
+	    Thread.sleep(TimeUnit.SECONDS.toMillis(config.getDurationSeconds()));
+	    List<String> report = report(metrics);
+	    driver.stop();
+
+	    long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+	    while ((outbound.getDeliveredCount() < driver.getSentCount()) && (System.currentTimeMillis() < deadline)) {
+		Thread.sleep(100);
+	    }
+
+	    System.out.println();
+	    System.out.println("Pipeline load test: " + config);
+	    System.out.println("Cold start (first " + config.getWarmupSeconds() + " seconds):");
+	    for (String line : coldStart) {
+		System.out.println(line);
+	    }
+	    System.out.println("Steady state:");
+	    for (String line : report) {
+		System.out.println(line);
+	    }
+	    System.out.println(String.format("Sent %d, delivered %d, errors: sender %d, sources %d, %s",
+		    driver.getSentCount(), outbound.getDeliveredCount(), driver.getErrorCount(),
+		    sources.getErrorCount(), getStageErrors(stages)));
+	} finally {
+	    if (driver != null) {
+		driver.stop();
+	    }
+	    transport.stop();
+	    if (sources != null) {
+		sources.stop();
+	    }
+	    for (KafkaPipelineStage stage : stages) {
+		stage.stop();
+	    }
+	    if (eventManagement != null) {
+		eventManagement.stop();
+	    }
+	    kafka.stop();
+	}
+    }
+
+    /**
+     * Create transport based on configuration.
+     * 
+     * @param config
+     * @return
+     * @throws SiteWhereException
+     */
+    protected DeviceTransport createTransport(LoadTestConfiguration config) throws SiteWhereException {
+	switch (config.getTransport()) {
+	case LoadTestConfiguration.TRANSPORT_DIRECT:
+	    return new DirectTransport();
+	case LoadTestConfiguration.TRANSPORT_MQTT:
+	    return new MqttTransport(config.getConnections());
+	case LoadTestConfiguration.TRANSPORT_SOCKET:
+	    return new SocketTransport(config.getConnections());
+	default:
+	    throw new SiteWhereException("Unknown transport: " + config.getTransport());
+	}
+    }
+
+    /**
+     * Build report lines for the current measurement interval.
+     * 
+     * @param metrics
+     * @return
+     */
+    protected List<String> report(List<StageMetrics> metrics) {
+	List<String> lines = new ArrayList<>();
+	lines.add(String.format("%-20s %12s %12s %10s %10s %10s %10s", "stage", "events", "events/s", "p50 ms",
+		"p99 ms", "p999 ms", "max ms"));
+	for (StageMetrics stage : metrics) {
+	    double seconds = stage.getIntervalSeconds();
+	    Histogram histogram = stage.getIntervalHistogram();
+	    lines.add(String.format("%-20s %12d %12.1f %10.2f %10.2f %10.2f %10.2f", stage.getName(),
+		    histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+		    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+		    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0));
+	}
+	return lines;
+    }
+
+    /**
+     * Get error counts for Kafka-connected stages.
+     * 
+     * @param stages
+     * @return
+     */
+    protected String getStageErrors(List<KafkaPipelineStage> stages) {
+	StringBuilder errors = new StringBuilder();
+	for (KafkaPipelineStage stage : stages) {
+	    if (errors.length() > 0) {
+		errors.append(", ");
+	    }
+	    errors.append(stage.getName()).append(" ").append(stage.getErrorCount());
+	}
+	return errors.toString();
+    }
+}
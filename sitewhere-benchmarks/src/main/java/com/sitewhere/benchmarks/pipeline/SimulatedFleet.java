@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.rest.model.device.Device;
+import com.sitewhere.rest.model.device.DeviceAssignment;
+import com.sitewhere.spi.device.DeviceAssignmentStatus;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+
+/**
+ * Devices and assignments for the simulated fleet. Acts as an in-memory
+ * stand-in for device management lookups performed by inbound processing and
+ * enrichment. If a lookup latency is configured, each lookup that misses the
+ * local cache is delayed to simulate a device management round trip, and the
+ * cache may be started cold, warmed in the background or restored from a
+ * snapshot so that cold-start latency can be compared.
+ * 
+ * @author Derek
+ */
+public class SimulatedFleet {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(SimulatedFleet.class);
+
+    /** Number of devices loaded per simulated warm-up page */
+    private static final int WARMUP_PAGE_SIZE = 500;
+
+    /** Device type shared by all simulated devices */
+    private UUID deviceTypeId = UUID.randomUUID();
+
+    /** Device tokens indexed by position */
+    private String[] tokens;
+
+    /** Devices by token */
+    private Map<String, IDevice> devicesByToken = new HashMap<>();
+
+    /** Devices by id */
+    private Map<UUID, IDevice> devicesById = new HashMap<>();
+
+    /** Assignments by id */
+    private Map<UUID, IDeviceAssignment> assignmentsById = new HashMap<>();
+
+    /** Simulated device management round trip for cache misses */
+    private long lookupNanos;
+
+    /** Indicates whether lookups are cached */
+    private boolean cached;
+
+    /** Cached devices by token */
+    private Map<String, IDevice> cachedDevicesByToken = new ConcurrentHashMap<>();
+
+    /** Cached devices by id */
+    private Map<UUID, IDevice> cachedDevicesById = new ConcurrentHashMap<>();
+
+    /** Cached assignments by id */
+    private Map<UUID, IDeviceAssignment> cachedAssignmentsById = new ConcurrentHashMap<>();
+
+    public SimulatedFleet(int count, long lookupMicros, boolean cached) {
+	this.lookupNanos = TimeUnit.MICROSECONDS.toNanos(lookupMicros);
+	this.cached = cached;
+	this.tokens = new String[count];
+	UUID customerId = UUID.randomUUID();
+	UUID areaId = UUID.randomUUID();
+	Date created = new Date();
+	for (int i = 0; i < count; i++) {
+	    Map<String, String> metadata = new HashMap<>();
+	    metadata.put("fleet", "loadtest");
+	    metadata.put("index", String.valueOf(i));
+
+	    Device device = new Device();
+	    device.setId(UUID.randomUUID());
+	    device.setToken(String.format("loadtest-%06d", i));
+	    device.setDeviceTypeId(deviceTypeId);
+	    device.setStatus("active");
+	    device.setCreatedDate(created);
+	    device.setMetadata(metadata);
+
+	    DeviceAssignment assignment = new DeviceAssignment();
+	    assignment.setId(UUID.randomUUID());
+	    assignment.setToken(device.getToken() + "-assignment");
+	    assignment.setDeviceId(device.getId());
+	    assignment.setDeviceTypeId(deviceTypeId);
+	    assignment.setCustomerId(customerId);
+	    assignment.setAreaId(areaId);
+	    assignment.setStatus(DeviceAssignmentStatus.Active);
+	    assignment.setActiveDate(created);
+	    assignment.setMetadata(metadata);
+	    device.setDeviceAssignmentId(assignment.getId());
+
+	    tokens[i] = device.getToken();
+	    devicesByToken.put(device.getToken(), device);
+	    devicesById.put(device.getId(), device);
+	    assignmentsById.put(assignment.getId(), assignment);
+	}
+    }
+
+    public int size() {
+	return tokens.length;
+    }
+
+    public String getToken(int index) {
+	return tokens[index];
+    }
+
+    public IDevice getDeviceByToken(String token) {
+	return lookup(cachedDevicesByToken, devicesByToken, token);
+    }
+
+    public IDevice getDevice(UUID id) {
+	return lookup(cachedDevicesById, devicesById, id);
+    }
+
+    public IDeviceAssignment getDeviceAssignment(UUID id) {
+	return lookup(cachedAssignmentsById, assignmentsById, id);
+    }
+
+    /**
+     * Populate caches with the whole fleet without delay (as when restoring a
+     * cache snapshot).
+     */
+    public void restoreCaches() {
+	cachedDevicesByToken.putAll(devicesByToken);
+	cachedDevicesById.putAll(devicesById);
+	cachedAssignmentsById.putAll(assignmentsById);
+    }
+
+    /**
+     * Warm caches in the background one page at a time. Each page costs one
+     * simulated round trip to list assignments and one for the multi-get of the
+     * referenced devices.
+     */
+    public void startWarmup() {
+	Thread thread = new Thread(() -> {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < tokens.length; i += WARMUP_PAGE_SIZE) {
+		simulateLookup();
+		simulateLookup();
+		for (int j = i; j < Math.min(i + WARMUP_PAGE_SIZE, tokens.length); j++) {
+		    IDevice device = devicesByToken.get(tokens[j]);
+		    cachedDevicesByToken.put(device.getToken(), device);
+		    cachedDevicesById.put(device.getId(), device);
+		    cachedAssignmentsById.put(device.getDeviceAssignmentId(),
+			    assignmentsById.get(device.getDeviceAssignmentId()));
+		}
+	    }
+	    LOGGER.info("Warmed caches for " + tokens.length + " devices in "
+		    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+	}, "Fleet Cache Warmup");
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    /**
+     * Look up an entity, checking the cache first if caching is enabled.
+     * 
+     * @param cache
+     * @param source
+     * @param key
+     * @return
+     */
+    protected <K, V> V lookup(Map<K, V> cache, Map<K, V> source, K key) {
+	if (cached) {
+	    V value = cache.get(key);
+	    if (value != null) {
+		return value;
+	    }
+	}
+	simulateLookup();
+	V value = source.get(key);
+	if (cached && (value != null)) {
+	    cache.put(key, value);
+	}
+	return value;
+    }
+
+    /**
+     * Delay the calling thread for the configured lookup latency.
+     */
+    protected void simulateLookup() {
+	if (lookupNanos > 0) {
+	    LockSupport.parkNanos(lookupNanos);
+	}
+    }
+}
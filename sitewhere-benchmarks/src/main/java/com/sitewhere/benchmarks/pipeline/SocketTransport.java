@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Sends payloads over TCP connections to a socket server that reads frames of
+ * origin time, payload length and payload bytes.
+ * 
+ * @author Derek
+ */
+public class SocketTransport implements DeviceTransport {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(SocketTransport.class);
+
+    /** Number of client connections */
+    private int connections;
+
+    /** Server receiving payloads */
+    private ServerSocket server;
+
+    /** Runs server accept and connection threads */
+    private ExecutorService executor = Executors.newCachedThreadPool(r -> new Thread(r, "Load Test Socket"));
+
+    /** Client output streams */
+    private List<DataOutputStream> clients = new ArrayList<>();
+
+    /** Client sockets */
+    private List<Socket> sockets = new ArrayList<>();
+
+    public SocketTransport(int connections) {
+	this.connections = connections;
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#start(com.sitewhere.
+     * benchmarks.pipeline.EventSourceStage)
+     */
+    @Override
+    public void start(EventSourceStage source) throws SiteWhereException {
+	try {
+	    this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+	    executor.execute(() -> accept(source));
+	    for (int i = 0; i < connections; i++) {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+		socket.setTcpNoDelay(true);
+		sockets.add(socket);
+		clients.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+	    }
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to start socket transport.", e);
+	}
+    }
+
+    /**
+     * Accept connections and read frames until the server is closed.
+     * 
+     * @param source
+     */
+    protected void accept(EventSourceStage source) {
+	while (!server.isClosed()) {
+	    try {
+		Socket socket = server.accept();
+		executor.execute(() -> read(socket, source));
+	    } catch (IOException e) {
+		if (!server.isClosed()) {
+		    LOGGER.error("Error accepting socket connection.", e);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Read frames from a connection.
+     * 
+     * @param socket
+     * @param source
+     */
+    protected void read(Socket socket, EventSourceStage source) {
+	try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+	    while (true) {
+		long origin = input.readLong();
+		byte[] payload = new byte[input.readInt()];
+		input.readFully(payload);
+		source.handle(payload, origin);
+	    }
+	} catch (EOFException e) {
+	    // Client closed connection.
+	} catch (IOException e) {
+	    if (!server.isClosed()) {
+		LOGGER.error("Error reading socket payload.", e);
+	    }
+	}
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#send(int,
+     * java.lang.String, byte[], long)
+     */
+    @Override
+    public void send(int connection, String deviceToken, byte[] payload, long originNanos)
+	    throws SiteWhereException {
+	DataOutputStream output = clients.get(connection % clients.size());
+	synchronized (output) {
+	    try {
+		output.writeLong(originNanos);
+		output.writeInt(payload.length);
+		output.write(payload);
+		output.flush();
+	    } catch (IOException e) {
+		throw new SiteWhereException("Unable to send socket payload.", e);
+	    }
+	}
+    }
+
+    /*
+     * @see com.sitewhere.benchmarks.pipeline.DeviceTransport#stop()
+     */
+    @Override
+    public void stop() {
+	try {
+	    for (Socket socket : sockets) {
+		socket.close();
+	    }
+	    if (server != null) {
+		server.close();
+	    }
+	} catch (IOException e) {
+	    LOGGER.warn("Error closing socket transport.", e);
+	}
+	executor.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.benchmarks.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Throughput and latency for a single pipeline stage. Latency is measured from
+ * the time an event was scheduled to be sent by the simulated device until the
+ * stage finished handling it, so percentiles for later stages include all time
+ * spent in earlier stages.
+ * 
+ * @author Derek
+ */
+public class StageMetrics {
+
+    /** Highest latency tracked (in microseconds) */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    /** Stage name */
+    private String name;
+
+    /** Records latency across threads */
+    private Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+
+    /** Start of measurement interval */
+    private long intervalStart = System.nanoTime();
+
+    public StageMetrics(String name) {
+	this.name = name;
+    }
+
+    /**
+     * Record an event completing this stage.
+     * 
+     * @param originNanos
+     */
+    public void record(long originNanos) {
+	long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - originNanos);
+	recorder.recordValue(Math.max(0, Math.min(micros, MAX_LATENCY_MICROS)));
+    }
+
+    /**
+     * Discard values recorded so far and start a new measurement interval.
+     */
+    public void reset() {
+	recorder.reset();
+	intervalStart = System.nanoTime();
+    }
+
+    /**
+     * Get values recorded since the last reset.
+     * 
+     * @return
+     */
+    public Histogram getIntervalHistogram() {
+	return recorder.getIntervalHistogram();
+    }
+
+    /**
+     * Get seconds elapsed since the last reset.
+     * 
+     * @return
+     */
+    public double getIntervalSeconds() {
+	return (System.nanoTime() - intervalStart) / 1e9;
+    }
+
+    public String getName() {
+	return name;
+    }
+}
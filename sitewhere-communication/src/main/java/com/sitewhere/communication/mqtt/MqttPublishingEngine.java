@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.communication.mqtt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.fusesource.hawtdispatch.Dispatch;
+import org.fusesource.hawtdispatch.DispatchQueue;
+import org.fusesource.mqtt.client.Callback;
+import org.fusesource.mqtt.client.FutureConnection;
+import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.QoS;
+
+import com.codahale.metrics.Meter;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Publishes messages to an MQTT broker over one or more connections without
+ * waiting for each message to be acknowledged before sending the next. Each
+ * connection allows a bounded number of unacknowledged messages, so publishers
+ * block only when the window for their connection is full. Messages are
+ * assigned to connections by a shard key (normally the device id) so that
+ * messages for a given device stay in order. An optional rate limit paces
+ * publishing across all connections.
+ *
+ * @author Derek
+ */
+public class MqttPublishingEngine {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(MqttPublishingEngine.class);
+
+    /** Longest time to wait for unacknowledged messages on shutdown */
+    private static final long DRAIN_TIMEOUT_MS = 10 * 1000;
+
+    /** Number of broker connections */
+    private int numConnections = 1;
+
+    /** Unacknowledged messages allowed per connection */
+    private int maxInFlight = 1000;
+
+    /** Quality of service for published messages */
+    private QoS qos = QoS.AT_LEAST_ONCE;
+
+    /** Maximum messages published per second (0 for no limit) */
+    private double maxPublishRate = 0;
+
+    /** Earliest time (in nanoseconds) the next rate limited message may be sent */
+    private long nextPublishNanos = System.nanoTime();
+
+    /** Creates meters for publishing metrics */
+    private Function<String, Meter> meterFactory = name -> new Meter();
+
+    /** Connections by shard */
+    private List<Shard> shards = new ArrayList<>();
+
+    /** Messages acknowledged by broker */
+    private Meter published;
+
+    /** Messages that could not be published */
+    private Meter failed;
+
+    /**
+     * Connect to the broker. Each connection is a copy of the given MQTT client
+     * settings with its own dispatch queue. If a client id is configured, a
+     * suffix is added for connections after the first so that connections do not
+     * replace each other on the broker.
+     *
+     * @param settings
+     * @param name
+     * @throws SiteWhereException
+     */
+    public void start(MQTT settings, String name) throws SiteWhereException {
+	this.published = getMeterFactory().apply("mqttPublished");
+	this.failed = getMeterFactory().apply("mqttFailed");
+	String clientId = (settings.getClientId() != null) ? settings.getClientId().toString() : null;
+	for (int i = 0; i < Math.max(1, getNumConnections()); i++) {
+	    MQTT mqtt = new MQTT(settings);
+	    DispatchQueue queue = Dispatch.createQueue(name + " " + i);
+	    mqtt.setDispatchQueue(queue);
+	    if ((clientId != null) && (clientId.length() > 0) && (i > 0)) {
+		mqtt.setClientId(clientId + "-" + i);
+	    }
+	    FutureConnection connection = mqtt.futureConnection();
+	    try {
+		connection.connect().await(MqttLifecycleComponent.DEFAULT_CONNECT_TIMEOUT_SECS, TimeUnit.SECONDS);
+	    } catch (Exception e) {
+		connection.kill();
+		queue.suspend();
+		stop();
+		throw new SiteWhereException("Unable to connect to MQTT broker.", e);
+	    }
+	    shards.add(new Shard(connection, queue, new Semaphore(getMaxInFlight())));
+	}
+    }
+
+    /**
+     * Wait for unacknowledged messages and disconnect from the broker.
+     */
+    public void stop() {
+	long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+	for (Shard shard : shards) {
+	    try {
+		long remaining = Math.max(0, deadline - System.currentTimeMillis());
+		if (!shard.getWindow().tryAcquire(getMaxInFlight(), remaining, TimeUnit.MILLISECONDS)) {
+		    LOGGER.warn("Disconnecting from MQTT broker with unacknowledged messages.");
+		}
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    try {
+		shard.getConnection().disconnect();
+		shard.getConnection().kill();
+	    } catch (Exception e) {
+		LOGGER.error("Error disconnecting from MQTT broker.", e);
+	    }
+	    shard.getQueue().suspend();
+	}
+	shards.clear();
+    }
+
+    /**
+     * Publish a message. Blocks while the rate limit is exceeded or the window for
+     * the connection is full. The callback is invoked on an MQTT dispatch thread once the broker acknowledges
+     * the message (or immediately after it is written for QoS 0) and must not
+     * block.
+     *
+     * @param shardKey
+     * @param topic
+     * @param payload
+     * @param callback
+     * @throws SiteWhereException
+     */
+    public void publish(Object shardKey, String topic, byte[] payload, Callback<Void> callback)
+	    throws SiteWhereException {
+	if (shards.isEmpty()) {
+	    throw new SiteWhereException("MQTT publishing engine is not connected.");
+	}
+	Shard shard = shards.get(((shardKey != null) ? (shardKey.hashCode() & Integer.MAX_VALUE) : 0) % shards.size());
+	try {
+	    throttle();
+	    shard.getWindow().acquire();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while waiting to publish MQTT message.", e);
+	}
+	shard.getConnection().publish(topic, payload, getQos(), false).then(new Callback<Void>() {
+
+	    @Override
+	    public void onSuccess(Void value) {
+		shard.getWindow().release();
+		published.mark();
+		if (callback != null) {
+		    callback.onSuccess(value);
+		}
+	    }
+
+	    @Override
+	    public void onFailure(Throwable e) {
+		shard.getWindow().release();
+		failed.mark();
+		if (callback != null) {
+		    callback.onFailure(e);
+		}
+	    }
+	});
+    }
+
+    /**
+     * Wait until the next message may be sent without exceeding the maximum
+     * publish rate. Each caller reserves the next slot, so concurrent publishers
+     * are spaced evenly.
+     *
+     * @throws InterruptedException
+     */
+    protected void throttle() throws InterruptedException {
+	double rate = getMaxPublishRate();
+	if (rate <= 0) {
+	    return;
+	}
+	long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+	long wait;
+	synchronized (this) {
+	    long now = System.nanoTime();
+	    long slot = Math.max(nextPublishNanos, now);
+	    nextPublishNanos = slot + interval;
+	    wait = slot - now;
+	}
+	if (wait > 0) {
+	    TimeUnit.NANOSECONDS.sleep(wait);
+	}
+    }
+
+    /**
+     * Get number of messages awaiting acknowledgement across all connections.
+     *
+     * @return
+     */
+    public int getInFlightCount() {
+	int count = 0;
+	for (Shard shard : shards) {
+	    count += getMaxInFlight() - shard.getWindow().availablePermits();
+	}
+	return count;
+    }
+
+    public Meter getPublished() {
+	return published;
+    }
+
+    public Meter getFailed() {
+	return failed;
+    }
+
+    public int getNumConnections() {
+	return numConnections;
+    }
+
+    public void setNumConnections(int numConnections) {
+	this.numConnections = numConnections;
+    }
+
+    public int getMaxInFlight() {
+	return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+	this.maxInFlight = maxInFlight;
+    }
+
+    public QoS getQos() {
+	return qos;
+    }
+
+    public void setQos(QoS qos) {
+	this.qos = qos;
+    }
+
+    public double getMaxPublishRate() {
+	return maxPublishRate;
+    }
+
+    public void setMaxPublishRate(double maxPublishRate) {
+	this.maxPublishRate = maxPublishRate;
+    }
+
+    public Function<String, Meter> getMeterFactory() {
+	return meterFactory;
+    }
+
+    public void setMeterFactory(Function<String, Meter> meterFactory) {
+	this.meterFactory = meterFactory;
+    }
+
+    /**
+     * Broker connection with its window of unacknowledged messages.
+     */
+    private static class Shard {
+
+	/** Broker connection */
+	private final FutureConnection connection;
+
+	/** Dispatch queue for connection */
+	private final DispatchQueue queue;
+
+	/** Bounds unacknowledged messages */
+	private final Semaphore window;
+
+	public Shard(FutureConnection connection, DispatchQueue queue, Semaphore window) {
+	    this.connection = connection;
+	    this.queue = queue;
+	    this.window = window;
+	}
+
+	public FutureConnection getConnection() {
+	    return connection;
+	}
+
+	public DispatchQueue getQueue() {
+	    return queue;
+	}
+
+	public Semaphore getWindow() {
+	    return window;
+	}
+    }
+}
@@ -84,6 +84,33 @@ public class CommonDatastoreProvider extends ConfigurationModelProvider {
 		CommonDatastoreRoleKeys.EventManagementDatastore, this);
 
 	builder.description("Specifies how device event data will be stored.");
+	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE);
+
+	builder.attribute((new AttributeNode.Builder("Use measurement buckets", "useMeasurementBuckets",
+		AttributeType.Boolean, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Store measurements in time-bucketed documents (MongoDB only).").defaultValue("false")
+			.build()));
+	builder.attribute((new AttributeNode.Builder("Bucket interval (seconds)", "measurementBucketIntervalSecs",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Width of time window covered by a measurement bucket.").defaultValue("3600")
+			.build()));
+	builder.attribute((new AttributeNode.Builder("Max samples per bucket", "measurementBucketMaxSamples",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Maximum number of samples stored in a single bucket document.")
+			.defaultValue("1000").build()));
+	builder.attribute((new AttributeNode.Builder("Migrate measurements on start", "migrateMeasurementsOnStart",
+		AttributeType.Boolean, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Move existing measurement documents into buckets when the tenant engine starts.")
+			.defaultValue("false").build()));
+	builder.attribute((new AttributeNode.Builder("Delete migrated measurements", "deleteMigratedMeasurements",
+		AttributeType.Boolean, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Remove measurement documents once they have been moved into buckets.")
+			.defaultValue("false").build()));
+	builder.attribute((new AttributeNode.Builder("Exact result counts", "exactResultCounts",
+		AttributeType.Boolean, ConfigurationModelProvider.ATTR_GROUP_PERFORMANCE)
+			.description("Count every matching event for search totals (Cassandra only). When disabled, "
+				+ "searches stop after the requested page and totals are a lower bound.")
+			.defaultValue("false").build()));
 
 	return builder.build();
     }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.rest.model.device.event.aggregation;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate;
+
+/**
+ * Model object for aggregated measurement values in a time bucket.
+ * 
+ * @author Derek
+ */
+@JsonInclude(Include.NON_NULL)
+public class MeasurementAggregate implements IMeasurementAggregate {
+
+    /** Bucket start date */
+    private Date bucketDate;
+
+    /** Number of values */
+    private Long count;
+
+    /** Minimum value */
+    private Double min;
+
+    /** Maximum value */
+    private Double max;
+
+    /** Average value */
+    private Double avg;
+
+    /** Latest value */
+    private Double last;
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate#getBucketDate()
+     */
+    @Override
+    public Date getBucketDate() {
+	return bucketDate;
+    }
+
+    public void setBucketDate(Date bucketDate) {
+	this.bucketDate = bucketDate;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate#getCount()
+     */
+    @Override
+    public Long getCount() {
+	return count;
+    }
+
+    public void setCount(Long count) {
+	this.count = count;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate#getMin()
+     */
+    @Override
+    public Double getMin() {
+	return min;
+    }
+
+    public void setMin(Double min) {
+	this.min = min;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate#getMax()
+     */
+    @Override
+    public Double getMax() {
+	return max;
+    }
+
+    public void setMax(Double max) {
+	this.max = max;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate#getAvg()
+     */
+    @Override
+    public Double getAvg() {
+	return avg;
+    }
+
+    public void setAvg(Double avg) {
+	this.avg = avg;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate#getLast()
+     */
+    @Override
+    public Double getLast() {
+	return last;
+    }
+
+    public void setLast(Double last) {
+	this.last = last;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.rest.model.device.event.aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+
+/**
+ * Model object for a series of aggregated measurement values.
+ * 
+ * @author Derek
+ */
+public class MeasurementAggregateSeries implements IMeasurementAggregateSeries {
+
+    /** Measurement name */
+    private String measurementName;
+
+    /** Aggregates ordered by bucket date */
+    @JsonDeserialize(contentAs = MeasurementAggregate.class)
+    private List<IMeasurementAggregate> entries = new ArrayList<IMeasurementAggregate>();
+
+    public MeasurementAggregateSeries() {
+    }
+
+    public MeasurementAggregateSeries(String measurementName) {
+	this.measurementName = measurementName;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries#
+     * getMeasurementName()
+     */
+    @Override
+    public String getMeasurementName() {
+	return measurementName;
+    }
+
+    public void setMeasurementName(String measurementName) {
+	this.measurementName = measurementName;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries#
+     * getEntries()
+     */
+    @Override
+    public List<IMeasurementAggregate> getEntries() {
+	return entries;
+    }
+
+    public void setEntries(List<IMeasurementAggregate> entries) {
+	this.entries = entries;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.rest.model.device.event.aggregation;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.aggregation.MeasurementAggregateFunction;
+
+/**
+ * Model object for measurement aggregation criteria.
+ * 
+ * @author Derek
+ */
+@JsonInclude(Include.NON_NULL)
+public class MeasurementAggregationCriteria implements IMeasurementAggregationCriteria {
+
+    /** Start date */
+    private Date startDate;
+
+    /** End date */
+    private Date endDate;
+
+    /** Bucket width in milliseconds */
+    private long intervalMs;
+
+    /** Functions to calculate */
+    private List<MeasurementAggregateFunction> functions;
+
+    /** Measurement names to include */
+    private List<String> measurementNames;
+
+    /** Max points per series */
+    private Integer maxPoints;
+
+    public MeasurementAggregationCriteria() {
+    }
+
+    public MeasurementAggregationCriteria(Date startDate, Date endDate, long intervalMs) {
+	this.startDate = startDate;
+	this.endDate = endDate;
+	this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Create a copy of the given criteria.
+     * 
+     * @param source
+     * @return
+     */
+    public static MeasurementAggregationCriteria copy(IMeasurementAggregationCriteria source) {
+	MeasurementAggregationCriteria result = new MeasurementAggregationCriteria(source.getStartDate(),
+		source.getEndDate(), source.getIntervalMs());
+	result.setFunctions(source.getFunctions());
+	result.setMeasurementNames(source.getMeasurementNames());
+	result.setMaxPoints(source.getMaxPoints());
+	return result;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.
+     * IMeasurementAggregationCriteria#getStartDate()
+     */
+    @Override
+    public Date getStartDate() {
+	return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+	this.startDate = startDate;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.
+     * IMeasurementAggregationCriteria#getEndDate()
+     */
+    @Override
+    public Date getEndDate() {
+	return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+	this.endDate = endDate;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.
+     * IMeasurementAggregationCriteria#getIntervalMs()
+     */
+    @Override
+    public long getIntervalMs() {
+	return intervalMs;
+    }
+
+    public void setIntervalMs(long intervalMs) {
+	this.intervalMs = intervalMs;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.
+     * IMeasurementAggregationCriteria#getFunctions()
+     */
+    @Override
+    public List<MeasurementAggregateFunction> getFunctions() {
+	return functions;
+    }
+
+    public void setFunctions(List<MeasurementAggregateFunction> functions) {
+	this.functions = functions;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.
+     * IMeasurementAggregationCriteria#getMeasurementNames()
+     */
+    @Override
+    public List<String> getMeasurementNames() {
+	return measurementNames;
+    }
+
+    public void setMeasurementNames(List<String> measurementNames) {
+	this.measurementNames = measurementNames;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.
+     * IMeasurementAggregationCriteria#getMaxPoints()
+     */
+    @Override
+    public Integer getMaxPoints() {
+	return maxPoints;
+    }
+
+    public void setMaxPoints(Integer maxPoints) {
+	this.maxPoints = maxPoints;
+    }
+}
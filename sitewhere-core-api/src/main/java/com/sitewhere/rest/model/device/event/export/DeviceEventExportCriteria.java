@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.rest.model.device.event.export;
+
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
+
+/**
+ * Model object for device event export criteria.
+ * 
+ * @author Derek
+ */
+@JsonInclude(Include.NON_NULL)
+public class DeviceEventExportCriteria implements IDeviceEventExportCriteria {
+
+    /** Start date */
+    private Date startDate;
+
+    /** End date */
+    private Date endDate;
+
+    /** Event types to export */
+    private List<DeviceEventType> eventTypes;
+
+    public DeviceEventExportCriteria() {
+    }
+
+    public DeviceEventExportCriteria(Date startDate, Date endDate, List<DeviceEventType> eventTypes) {
+	this.startDate = startDate;
+	this.endDate = endDate;
+	this.eventTypes = eventTypes;
+    }
+
+    /**
+     * Create a copy of the given criteria.
+     * 
+     * @param source
+     * @return
+     */
+    public static DeviceEventExportCriteria copy(IDeviceEventExportCriteria source) {
+	return new DeviceEventExportCriteria(source.getStartDate(), source.getEndDate(), source.getEventTypes());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria#getStartDate(
+     * )
+     */
+    @Override
+    public Date getStartDate() {
+	return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+	this.startDate = startDate;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria#getEndDate()
+     */
+    @Override
+    public Date getEndDate() {
+	return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+	this.endDate = endDate;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria#getEventTypes
+     * ()
+     */
+    @Override
+    public List<DeviceEventType> getEventTypes() {
+	return eventTypes;
+    }
+
+    public void setEventTypes(List<DeviceEventType> eventTypes) {
+	this.eventTypes = eventTypes;
+    }
+}
@@ -7,6 +7,7 @@
  */
 package com.sitewhere.spi.batch;
 
+import java.util.List;
 import java.util.UUID;
 
 import com.sitewhere.spi.SiteWhereException;
@@ -95,6 +96,19 @@ public interface IBatchManagement extends ITenantEngineLifecycleComponent {
     public IBatchElement createBatchElement(UUID batchOperationId, IBatchElementCreateRequest request)
 	    throws SiteWhereException;
 
+    /**
+     * Create multiple batch elements associated with a batch operation. The
+     * returned list is aligned with the list of requests and contains null for
+     * any request that could not be created (e.g. unknown device token).
+     * 
+     * @param batchOperationId
+     * @param requests
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IBatchElement> createBatchElements(UUID batchOperationId,
+	    List<? extends IBatchElementCreateRequest> requests) throws SiteWhereException;
+
     /**
      * Lists elements for an {@link IBatchOperation} that meet the given criteria.
      * 
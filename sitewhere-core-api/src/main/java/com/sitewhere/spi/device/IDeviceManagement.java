@@ -70,6 +70,17 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public IDeviceType getDeviceType(UUID id) throws SiteWhereException;
 
+    /**
+     * Get device types for a list of unique ids in a single call. Ids that do
+     * not match an existing device type are omitted and result order is not
+     * guaranteed.
+     * 
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDeviceType> getDeviceTypesByIds(List<UUID> ids) throws SiteWhereException;
+
     /**
      * Get a device type by unique token.
      * 
@@ -251,6 +262,27 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public IDevice getDeviceByToken(String token) throws SiteWhereException;
 
+    /**
+     * Get devices for a list of unique ids in a single call. Ids that do not
+     * match an existing device are omitted and result order is not guaranteed.
+     * 
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDevice> getDevicesByIds(List<UUID> ids) throws SiteWhereException;
+
+    /**
+     * Get devices for a list of reference tokens in a single call. Tokens that do
+     * not match an existing device are omitted and result order is not
+     * guaranteed.
+     * 
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDevice> getDevicesByTokens(List<String> tokens) throws SiteWhereException;
+
     /**
      * Update device information.
      * 
@@ -317,6 +349,17 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public IDeviceAssignment getDeviceAssignment(UUID id) throws SiteWhereException;
 
+    /**
+     * Get device assignments for a list of unique ids in a single call. Ids
+     * that do not match an existing device assignment are omitted and result
+     * order is not guaranteed.
+     * 
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDeviceAssignment> getDeviceAssignmentsByIds(List<UUID> ids) throws SiteWhereException;
+
     /**
      * Get a device assignment by unique token.
      * 
@@ -494,6 +537,17 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public ICustomer getCustomer(UUID id) throws SiteWhereException;
 
+    /**
+     * Get customers for a list of unique ids in a single call. Ids that do not
+     * match an existing customer are omitted and result order is not
+     * guaranteed.
+     * 
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<ICustomer> getCustomersByIds(List<UUID> ids) throws SiteWhereException;
+
     /**
      * Get a customer by alias token.
      * 
@@ -613,6 +667,16 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public IArea getArea(UUID id) throws SiteWhereException;
 
+    /**
+     * Get areas for a list of unique ids in a single call. Ids that do not
+     * match an existing area are omitted and result order is not guaranteed.
+     * 
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IArea> getAreasByIds(List<UUID> ids) throws SiteWhereException;
+
     /**
      * Get a area by alias token.
      * 
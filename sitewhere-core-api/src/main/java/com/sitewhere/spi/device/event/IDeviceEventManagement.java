@@ -49,6 +49,16 @@ public interface IDeviceEventManagement extends ITenantEngineLifecycleComponent
      */
     public IDeviceEvent getDeviceEventById(UUID eventId) throws SiteWhereException;
 
+    /**
+     * Get device events for a list of ids in a single call. Ids that do not match
+     * an existing event are omitted and result order is not guaranteed.
+     * 
+     * @param eventIds
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDeviceEvent> getDeviceEventsByIds(List<UUID> eventIds) throws SiteWhereException;
+
     /**
      * Get a device event by alternate (external) id.
      * 
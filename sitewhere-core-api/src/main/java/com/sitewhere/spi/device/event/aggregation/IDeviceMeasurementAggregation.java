@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.aggregation;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+
+/**
+ * Implemented by event stores that can aggregate measurements without
+ * returning each individual event to the caller.
+ * 
+ * @author Derek
+ */
+public interface IDeviceMeasurementAggregation {
+
+    /**
+     * Aggregate measurements for an index into fixed-width time buckets. One
+     * series is returned for each measurement name.
+     * 
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IMeasurementAggregateSeries> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, IMeasurementAggregationCriteria criteria) throws SiteWhereException;
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.aggregation;
+
+import java.util.Date;
+
+/**
+ * Aggregated values for measurements that fall within a single time bucket.
+ * Values for functions that were not requested are null.
+ * 
+ * @author Derek
+ */
+public interface IMeasurementAggregate {
+
+    /**
+     * Get start date of bucket.
+     * 
+     * @return
+     */
+    public Date getBucketDate();
+
+    /**
+     * Get number of measurements in bucket.
+     * 
+     * @return
+     */
+    public Long getCount();
+
+    /**
+     * Get minimum value in bucket.
+     * 
+     * @return
+     */
+    public Double getMin();
+
+    /**
+     * Get maximum value in bucket.
+     * 
+     * @return
+     */
+    public Double getMax();
+
+    /**
+     * Get average value in bucket.
+     * 
+     * @return
+     */
+    public Double getAvg();
+
+    /**
+     * Get value with latest event date in bucket.
+     * 
+     * @return
+     */
+    public Double getLast();
+}
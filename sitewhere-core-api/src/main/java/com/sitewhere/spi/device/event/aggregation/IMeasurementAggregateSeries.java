@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.aggregation;
+
+import java.util.List;
+
+/**
+ * Aggregated buckets for a single measurement name ordered by bucket date.
+ * 
+ * @author Derek
+ */
+public interface IMeasurementAggregateSeries {
+
+    /**
+     * Get measurement name.
+     * 
+     * @return
+     */
+    public String getMeasurementName();
+
+    /**
+     * Get aggregates ordered by bucket date.
+     * 
+     * @return
+     */
+    public List<IMeasurementAggregate> getEntries();
+}
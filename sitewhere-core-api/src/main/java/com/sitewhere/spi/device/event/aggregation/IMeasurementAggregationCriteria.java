@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.aggregation;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Criteria used when aggregating measurements into fixed-width time buckets.
+ * 
+ * @author Derek
+ */
+public interface IMeasurementAggregationCriteria {
+
+    /**
+     * Get start of date range (inclusive). Null for unbounded.
+     * 
+     * @return
+     */
+    public Date getStartDate();
+
+    /**
+     * Get end of date range (inclusive). Null for unbounded.
+     * 
+     * @return
+     */
+    public Date getEndDate();
+
+    /**
+     * Get width of each time bucket in milliseconds.
+     * 
+     * @return
+     */
+    public long getIntervalMs();
+
+    /**
+     * Get functions to calculate for each bucket. Null or empty calculates all
+     * functions.
+     * 
+     * @return
+     */
+    public List<MeasurementAggregateFunction> getFunctions();
+
+    /**
+     * Get names of measurements to include. Null or empty includes all
+     * measurements.
+     * 
+     * @return
+     */
+    public List<String> getMeasurementNames();
+
+    /**
+     * Get maximum number of points returned per series. If set, series with more
+     * buckets are downsampled using the largest-triangle-three-buckets algorithm.
+     * 
+     * @return
+     */
+    public Integer getMaxPoints();
+}
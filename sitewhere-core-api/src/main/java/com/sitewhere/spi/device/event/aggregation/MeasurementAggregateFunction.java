@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.aggregation;
+
+/**
+ * Functions that may be applied to measurement values within a time bucket.
+ * 
+ * @author Derek
+ */
+public enum MeasurementAggregateFunction {
+
+    /** Minimum value */
+    Min,
+
+    /** Maximum value */
+    Max,
+
+    /** Average value */
+    Avg,
+
+    /** Number of values */
+    Count,
+
+    /** Value with latest event date */
+    Last;
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.export;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+
+/**
+ * Implemented by event stores that can stream all events matching a set of
+ * criteria without paging through search results.
+ * 
+ * @author Derek
+ */
+public interface IDeviceEventExport {
+
+    /**
+     * Export all events for an index that match the given criteria. Events are
+     * passed to the handler as they are read and are not held in memory. Events
+     * are grouped by event type and are only guaranteed to be in date order
+     * within a single entity.
+     * 
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @param handler
+     * @return number of events exported
+     * @throws SiteWhereException
+     */
+    public long exportDeviceEventsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IDeviceEventExportCriteria criteria, IDeviceEventExportHandler handler) throws SiteWhereException;
+}
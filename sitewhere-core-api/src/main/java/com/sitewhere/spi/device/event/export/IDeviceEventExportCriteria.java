@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.export;
+
+import java.util.Date;
+import java.util.List;
+
+import com.sitewhere.spi.device.event.DeviceEventType;
+
+/**
+ * Criteria used when exporting device events.
+ * 
+ * @author Derek
+ */
+public interface IDeviceEventExportCriteria {
+
+    /**
+     * Get start of date range (inclusive). Null for unbounded.
+     * 
+     * @return
+     */
+    public Date getStartDate();
+
+    /**
+     * Get end of date range (inclusive). Null for unbounded.
+     * 
+     * @return
+     */
+    public Date getEndDate();
+
+    /**
+     * Get event types to export. Null or empty for all types.
+     * 
+     * @return
+     */
+    public List<DeviceEventType> getEventTypes();
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event.export;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+/**
+ * Receives events as they are read during an export.
+ * 
+ * @author Derek
+ */
+public interface IDeviceEventExportHandler {
+
+    /**
+     * Handle an exported event. Throwing an exception aborts the export.
+     * 
+     * @param event
+     * @throws SiteWhereException
+     */
+    public void handle(IDeviceEvent event) throws SiteWhereException;
+}
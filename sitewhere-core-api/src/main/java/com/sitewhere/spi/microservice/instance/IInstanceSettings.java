@@ -70,6 +70,37 @@ public interface IInstanceSettings {
      */
     public String getKafkaBootstrapServers();
 
+    /**
+     * Get encoding used for payloads written to internal Kafka topics. Either
+     * 'protobuf' (standard encoding) or 'compact'. Consumers read both.
+     * 
+     * @return
+     */
+    public String getKafkaPayloadFormat();
+
+    /**
+     * Indicates whether events decoded together for a device are written as a
+     * single Kafka record. Only applies to the compact payload format.
+     * 
+     * @return
+     */
+    public boolean isKafkaPayloadGrouping();
+
+    /**
+     * Get default compression type used by Kafka producers.
+     * 
+     * @return
+     */
+    public String getKafkaCompression();
+
+    /**
+     * Get per-topic compression overrides as a comma-delimited list of
+     * 'topic-suffix=type' pairs.
+     * 
+     * @return
+     */
+    public String getKafkaCompressionTopics();
+
     /**
      * Get root filesystem path where microservice resources may be stored.
      * 
@@ -105,6 +136,83 @@ public interface IInstanceSettings {
      */
     public boolean isLogMetrics();
 
+    /**
+     * Get port for HTTP endpoint that exposes metrics in OpenMetrics format. The
+     * endpoint is disabled if the port is not a positive number.
+     * 
+     * @return
+     */
+    public int getMetricsHttpPort();
+
+    /**
+     * Get minimum number of tenant engines that may be started concurrently.
+     * 
+     * @return
+     */
+    public int getTenantEngineMinConcurrency();
+
+    /**
+     * Get maximum number of tenant engines that may be started concurrently.
+     * Concurrency is adjusted between the minimum and maximum based on how
+     * quickly engines start.
+     * 
+     * @return
+     */
+    public int getTenantEngineMaxConcurrency();
+
+    /**
+     * Indicates whether tenant engines are started on demand (on the first API
+     * call or event for a tenant) rather than when the microservice starts.
+     * 
+     * @return
+     */
+    public boolean isTenantEngineLazyActivation();
+
+    /**
+     * Get number of seconds without activity after which a lazily activated
+     * tenant engine is shut down.
+     * 
+     * @return
+     */
+    public int getTenantEngineIdleTimeoutSeconds();
+
+    /**
+     * Indicates whether device management caches are preloaded with active device
+     * assignments when a tenant engine starts.
+     * 
+     * @return
+     */
+    public boolean isCacheWarmupEnabled();
+
+    /**
+     * Get maximum number of device assignments preloaded per tenant engine.
+     * 
+     * @return
+     */
+    public int getCacheWarmupMaxAssignments();
+
+    /**
+     * Indicates whether device management caches are saved to local disk when a
+     * tenant engine stops and restored when it restarts.
+     * 
+     * @return
+     */
+    public boolean isCacheSnapshotEnabled();
+
+    /**
+     * Get tier sizes for API caches as a comma-delimited list of
+     * 'type=heapEntries:offHeapMb:diskMb' entries. Types are area, deviceType,
+     * device, deviceAssignment, assetType and asset. Off-heap and disk tiers are
+     * disabled for a type unless sizes are given. When they are given, all sizes
+     * are shared by the tenants of the microservice. Otherwise the heap entry
+     * count applies to each tenant. Sizes apply separately to the by-token and
+     * by-id caches of a type, so a type uses up to twice the configured off-heap
+     * and disk space.
+     * 
+     * @return
+     */
+    public String getCacheTiers();
+
     /**
      * Identifies public hostname used to access microservice instance.
      * 
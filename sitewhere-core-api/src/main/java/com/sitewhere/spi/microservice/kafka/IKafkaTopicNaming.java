@@ -145,6 +145,17 @@ public interface IKafkaTopicNaming {
      */
     public String getUndeliveredCommandInvocationsTopic(ITenant tenant);
 
+    /**
+     * Get topic for command invocations waiting to be retried after a delay. Each
+     * delay tier uses a separate topic.
+     * 
+     * @param tenant
+     * @param tier
+     *            name of delay tier (for instance '10s')
+     * @return
+     */
+    public String getCommandRetryTopic(ITenant tenant, String tier);
+
     /**
      * Get topic for unprocessed batch operations.
      * 
@@ -10,6 +10,7 @@ package com.sitewhere.spi.microservice.kafka;
 import java.util.concurrent.Future;
 
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
 
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.server.lifecycle.ILifecycleComponent;
@@ -38,4 +39,16 @@ public interface IMicroserviceKafkaProducer extends ILifecycleComponent {
      * @throws SiteWhereException
      */
     public Future<RecordMetadata> send(String key, byte[] message) throws SiteWhereException;
+
+    /**
+     * Send a message to the topic with record headers.
+     * 
+     * @param key
+     * @param message
+     * @param headers
+     * @return
+     * @throws SiteWhereException
+     */
+    public Future<RecordMetadata> send(String key, byte[] message, Iterable<Header> headers)
+	    throws SiteWhereException;
 }
\ No newline at end of file
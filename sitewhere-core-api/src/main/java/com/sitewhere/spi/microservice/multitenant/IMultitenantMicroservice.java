@@ -49,6 +49,14 @@ public interface IMultitenantMicroservice<I extends IFunctionIdentifier, T exten
      */
     public T assureTenantEngineAvailable(UUID tenantId) throws TenantEngineNotAvailableException;
 
+    /**
+     * Record activity for a tenant so that its engine is not shut down as idle
+     * when lazy activation is enabled.
+     * 
+     * @param tenantId
+     */
+    public void markTenantEngineActive(UUID tenantId);
+
     /**
      * Shuts down and restarts the given tenant engine.
      * 
@@ -41,6 +41,17 @@ public interface ITokenManagement {
      */
     public Claims getClaimsForToken(String token) throws SiteWhereException;
 
+    /**
+     * Verify the given token and extract the information needed to authenticate
+     * its bearer. Results may be served from a cache of previously verified
+     * tokens, but an expired token is never returned.
+     * 
+     * @param token
+     * @return
+     * @throws SiteWhereException
+     */
+    public IVerifiedToken getVerifiedToken(String token) throws SiteWhereException;
+
     /**
      * Get username from the given token.
      * 
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.microservice.security;
+
+import java.util.Date;
+import java.util.List;
+
+import com.sitewhere.spi.user.IGrantedAuthority;
+
+/**
+ * Information extracted from a JWT whose signature and expiration have been
+ * verified.
+ * 
+ * @author Derek
+ */
+public interface IVerifiedToken {
+
+    /**
+     * Get username the token was issued to.
+     * 
+     * @return
+     */
+    public String getUsername();
+
+    /**
+     * Get authorities granted by the token.
+     * 
+     * @return
+     */
+    public List<IGrantedAuthority> getGrantedAuthorities();
+
+    /**
+     * Get authority ids granted by the token.
+     * 
+     * @return
+     */
+    public List<String> getAuthorityIds();
+
+    /**
+     * Get date the token expires.
+     * 
+     * @return
+     */
+    public Date getExpiration();
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.metrics;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * {@link Reservoir} backed by an HDR histogram. Unlike the default sampling
+ * reservoirs every recorded value is counted, so high percentiles are accurate
+ * to the configured number of significant digits. Recording is wait-free.
+ * Snapshots cover the values recorded during the last completed window plus
+ * the window in progress, so they reflect recent behavior regardless of how
+ * often (or by how many reporters) they are taken.
+ * 
+ * @author Derek
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    /** Default number of significant value digits */
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+    /** Default window length in milliseconds */
+    public static final long DEFAULT_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Number of significant value digits */
+    private final int significantDigits;
+
+    /** Window length in milliseconds */
+    private final long windowMs;
+
+    /** Records values between snapshots */
+    private final Recorder recorder;
+
+    /** Values from last completed window */
+    private Histogram previous;
+
+    /** Values from window in progress */
+    private Histogram current;
+
+    /** Start of window in progress */
+    private long windowStart;
+
+    public HdrHistogramReservoir() {
+	this(DEFAULT_SIGNIFICANT_DIGITS, DEFAULT_WINDOW_MS);
+    }
+
+    public HdrHistogramReservoir(int significantDigits, long windowMs) {
+	this.significantDigits = significantDigits;
+	this.windowMs = windowMs;
+	this.recorder = new Recorder(significantDigits);
+	this.previous = new Histogram(significantDigits);
+	this.current = new Histogram(significantDigits);
+	this.windowStart = System.currentTimeMillis();
+    }
+
+    /*
+     * @see com.codahale.metrics.Reservoir#update(long)
+     */
+    @Override
+    public void update(long value) {
+	recorder.recordValue(Math.max(0, value));
+    }
+
+    /*
+     * @see com.codahale.metrics.Reservoir#size()
+     */
+    @Override
+    public int size() {
+	return getSnapshot().size();
+    }
+
+    /*
+     * @see com.codahale.metrics.Reservoir#getSnapshot()
+     */
+    @Override
+    public synchronized Snapshot getSnapshot() {
+	current.add(recorder.getIntervalHistogram());
+	long now = System.currentTimeMillis();
+	if ((now - windowStart) >= windowMs) {
+	    previous = current;
+	    current = new Histogram(significantDigits);
+	    windowStart = now;
+	}
+	Histogram combined = previous.copy();
+	combined.add(current);
+	return new HdrSnapshot(combined);
+    }
+
+    /**
+     * Snapshot of an HDR histogram.
+     */
+    public static class HdrSnapshot extends Snapshot {
+
+	/** Copy of histogram values */
+	private final Histogram histogram;
+
+	public HdrSnapshot(Histogram histogram) {
+	    this.histogram = histogram;
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#getValue(double)
+	 */
+	@Override
+	public double getValue(double quantile) {
+	    return histogram.getValueAtPercentile(quantile * 100.0);
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#getValues()
+	 */
+	@Override
+	public long[] getValues() {
+	    long[] values = new long[size()];
+	    int index = 0;
+	    for (HistogramIterationValue value : histogram.recordedValues()) {
+		long highest = histogram.highestEquivalentValue(value.getValueIteratedTo());
+		for (long i = 0; (i < value.getCountAtValueIteratedTo()) && (index < values.length); i++) {
+		    values[index++] = highest;
+		}
+	    }
+	    return values;
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#size()
+	 */
+	@Override
+	public int size() {
+	    return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#getMax()
+	 */
+	@Override
+	public long getMax() {
+	    return histogram.getMaxValue();
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#getMean()
+	 */
+	@Override
+	public double getMean() {
+	    return (histogram.getTotalCount() > 0) ? histogram.getMean() : 0;
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#getMin()
+	 */
+	@Override
+	public long getMin() {
+	    return (histogram.getTotalCount() > 0) ? histogram.getMinValue() : 0;
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#getStdDev()
+	 */
+	@Override
+	public double getStdDev() {
+	    return (histogram.getTotalCount() > 0) ? histogram.getStdDeviation() : 0;
+	}
+
+	/*
+	 * @see com.codahale.metrics.Snapshot#dump(java.io.OutputStream)
+	 */
+	@Override
+	public void dump(OutputStream output) {
+	    PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+	    try {
+		for (long value : getValues()) {
+		    out.printf("%d%n", value);
+		}
+	    } finally {
+		out.flush();
+	    }
+	}
+
+	public Histogram getHistogram() {
+	    return histogram;
+	}
+    }
+}
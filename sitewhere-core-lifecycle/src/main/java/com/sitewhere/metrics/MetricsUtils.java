@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Utility methods for naming and creating metrics. Metric registry names carry
+ * tags in the form <code>base{key=value,key=value}</code> so that exporters can
+ * turn them into labels (for instance the tenant a metric applies to) while
+ * the registry itself stays a flat map of names.
+ * 
+ * @author Derek
+ */
+public class MetricsUtils {
+
+    /** Tag that identifies the tenant a metric applies to */
+    public static final String TAG_TENANT = "tenant";
+
+    /** Starts tag section of name */
+    private static final char TAGS_START = '{';
+
+    /** Ends tag section of name */
+    private static final char TAGS_END = '}';
+
+    /** Separates tags */
+    private static final char TAG_SEPARATOR = ',';
+
+    /** Separates tag key from value */
+    private static final char TAG_ASSIGN = '=';
+
+    /**
+     * Build a tagged metric name.
+     * 
+     * @param name
+     *            base name (may already contain tags)
+     * @param tags
+     *            alternating tag keys and values
+     * @return
+     */
+    public static String tagged(String name, String... tags) {
+	if ((tags.length % 2) != 0) {
+	    throw new IllegalArgumentException("Tags must be passed as key/value pairs.");
+	}
+	String result = name;
+	for (int i = 0; i < tags.length; i += 2) {
+	    result = withTag(result, tags[i], tags[i + 1]);
+	}
+	return result;
+    }
+
+    /**
+     * Add a tag to a metric name. Tags with null values are ignored.
+     * 
+     * @param name
+     * @param key
+     * @param value
+     * @return
+     */
+    public static String withTag(String name, String key, String value) {
+	if (value == null) {
+	    return name;
+	}
+	String tag = sanitize(key) + TAG_ASSIGN + sanitize(value);
+	int start = name.indexOf(TAGS_START);
+	if (start == -1) {
+	    return name + TAGS_START + tag + TAGS_END;
+	}
+	return name.substring(0, name.length() - 1) + TAG_SEPARATOR + tag + TAGS_END;
+    }
+
+    /**
+     * Get base name without tags.
+     * 
+     * @param name
+     * @return
+     */
+    public static String getBaseName(String name) {
+	int start = name.indexOf(TAGS_START);
+	return (start == -1) ? name : name.substring(0, start);
+    }
+
+    /**
+     * Get tags encoded in a metric name.
+     * 
+     * @param name
+     * @return
+     */
+    public static Map<String, String> getTags(String name) {
+	int start = name.indexOf(TAGS_START);
+	if ((start == -1) || (name.charAt(name.length() - 1) != TAGS_END)) {
+	    return Collections.emptyMap();
+	}
+	Map<String, String> tags = new LinkedHashMap<>();
+	for (String tag : name.substring(start + 1, name.length() - 1).split(String.valueOf(TAG_SEPARATOR))) {
+	    int assign = tag.indexOf(TAG_ASSIGN);
+	    if (assign > 0) {
+		tags.put(tag.substring(0, assign), tag.substring(assign + 1));
+	    }
+	}
+	return tags;
+    }
+
+    /**
+     * Get or create a timer backed by a high dynamic range histogram.
+     * 
+     * @param registry
+     * @param name
+     * @return
+     */
+    public static Timer timer(MetricRegistry registry, String name) {
+	Metric existing = registry.getMetrics().get(name);
+	if (existing instanceof Timer) {
+	    return (Timer) existing;
+	}
+	try {
+	    return registry.register(name, new Timer(new HdrHistogramReservoir()));
+	} catch (IllegalArgumentException e) {
+	    return registry.timer(name);
+	}
+    }
+
+    /**
+     * Get or create a histogram backed by a high dynamic range histogram.
+     * 
+     * @param registry
+     * @param name
+     * @return
+     */
+    public static Histogram histogram(MetricRegistry registry, String name) {
+	Metric existing = registry.getMetrics().get(name);
+	if (existing instanceof Histogram) {
+	    return (Histogram) existing;
+	}
+	try {
+	    return registry.register(name, new Histogram(new HdrHistogramReservoir()));
+	} catch (IllegalArgumentException e) {
+	    return registry.histogram(name);
+	}
+    }
+
+    /**
+     * Replace characters that would break tag parsing.
+     * 
+     * @param value
+     * @return
+     */
+    protected static String sanitize(String value) {
+	StringBuilder result = new StringBuilder(value.length());
+	for (char c : value.toCharArray()) {
+	    switch (c) {
+	    case TAGS_START:
+	    case TAGS_END:
+	    case TAG_SEPARATOR:
+	    case TAG_ASSIGN:
+		result.append('_');
+		break;
+	    default:
+		result.append(c);
+	    }
+	}
+	return result.toString();
+    }
+}
@@ -8,7 +8,9 @@
 package com.sitewhere.server.lifecycle;
 
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IMicroservice;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
@@ -43,7 +45,7 @@ public abstract class TenantEngineLifecycleComponent extends LifecycleComponent
      */
     @Override
     public Meter createMeterMetric(String name) {
-	return getTenantEngine().getMicroservice().getMetricRegistry().meter(getTenentMetricPrefix() + name);
+	return getMetricRegistry().meter(getTenantMetricName(name));
     }
 
     /*
@@ -52,21 +54,42 @@ public abstract class TenantEngineLifecycleComponent extends LifecycleComponent
      */
     @Override
     public Timer createTimerMetric(String name) {
-	return getTenantEngine().getMicroservice().getMetricRegistry().timer(getTenentMetricPrefix() + name);
+	return MetricsUtils.timer(getMetricRegistry(), getTenantMetricName(name));
     }
 
     /**
-     * Get prefix added to metrics so they are unique.
+     * Get metric registry for the microservice hosting the component.
      * 
      * @return
      */
-    protected String getTenentMetricPrefix() {
-	IMicroservice<?> microservice = getTenantEngine().getMicroservice();
-	ITenant tenant = getTenantEngine().getTenant();
-	String instanceId = microservice.getInstanceSettings().getInstanceId();
-	String identifier = microservice.getIdentifier().getPath();
-	String tenantToken = tenant.getToken();
-	return instanceId + "." + identifier + "." + tenantToken + ".";
+    protected MetricRegistry getMetricRegistry() {
+	return getMetricMicroservice().getMetricRegistry();
+    }
+
+    /**
+     * Get registry name for a metric. Names are prefixed by the microservice
+     * identifier and tagged with the tenant token when the component belongs to
+     * a tenant engine. The instance id is not part of the name since it is
+     * attached as a label when metrics are exported.
+     * 
+     * @param name
+     *            metric name (may include tags)
+     * @return
+     */
+    protected String getTenantMetricName(String name) {
+	String identifier = getMetricMicroservice().getIdentifier().getPath();
+	ITenant tenant = (getTenantEngine() != null) ? getTenantEngine().getTenant() : null;
+	return MetricsUtils.withTag(identifier + "." + name, MetricsUtils.TAG_TENANT,
+		(tenant != null) ? tenant.getToken() : null);
+    }
+
+    /**
+     * Get microservice used for metrics.
+     * 
+     * @return
+     */
+    protected IMicroservice<?> getMetricMicroservice() {
+	return (getTenantEngine() != null) ? getTenantEngine().getMicroservice() : getMicroservice();
     }
 
     /*
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sitewhere.rest.model.batch.request.BatchOperationUpdateRequest;
+import com.sitewhere.spi.batch.IBatchOperation;
+
+/**
+ * Batch operation metadata keys used to control dispatch of batch elements and
+ * to report dispatch progress. Keys share a common prefix so that they can be
+ * excluded from values passed on to command invocations. Keys do not contain
+ * dots since metadata is stored as MongoDB field names.
+ * 
+ * @author Derek
+ */
+public class BatchDispatchMetadata {
+
+    /** Prefix for all dispatch metadata keys */
+    public static final String PREFIX = "dispatch_";
+
+    /** Set to 'true' to pause dispatch of a batch */
+    public static final String PAUSED = PREFIX + "paused";
+
+    /** Relative priority of a batch (1-10) */
+    public static final String PRIORITY = PREFIX + "priority";
+
+    /** Maximum elements per second for a batch */
+    public static final String MAX_RATE = PREFIX + "maxRate";
+
+    /** Current elements processed per second (reported) */
+    public static final String RATE = PREFIX + "rate";
+
+    /** Elements remaining (reported) */
+    public static final String REMAINING = PREFIX + "remaining";
+
+    /** Estimated completion time in ISO-8601 format (reported) */
+    public static final String ETA = PREFIX + "eta";
+
+    /**
+     * Indicates whether a metadata key is used for dispatch.
+     * 
+     * @param key
+     * @return
+     */
+    public static boolean isDispatchKey(String key) {
+	return (key != null) && key.startsWith(PREFIX);
+    }
+
+    /**
+     * Copy metadata without dispatch keys.
+     * 
+     * @param metadata
+     * @return
+     */
+    public static Map<String, String> withoutDispatchKeys(Map<String, String> metadata) {
+	Map<String, String> result = new HashMap<String, String>();
+	if (metadata != null) {
+	    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+		if (!isDispatchKey(entry.getKey())) {
+		    result.put(entry.getKey(), entry.getValue());
+		}
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Build an update request that merges the given values into the existing
+     * metadata for a batch operation (metadata is replaced on update).
+     * 
+     * @param operation
+     * @param values
+     * @return
+     */
+    public static BatchOperationUpdateRequest buildUpdate(IBatchOperation operation, Map<String, String> values) {
+	Map<String, String> metadata = new HashMap<String, String>();
+	if (operation.getMetadata() != null) {
+	    metadata.putAll(operation.getMetadata());
+	}
+	metadata.putAll(values);
+	BatchOperationUpdateRequest request = new BatchOperationUpdateRequest();
+	request.setMetadata(metadata);
+	return request;
+    }
+}
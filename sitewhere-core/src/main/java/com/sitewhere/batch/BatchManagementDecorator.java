@@ -7,6 +7,7 @@
  */
 package com.sitewhere.batch;
 
+import java.util.List;
 import java.util.UUID;
 
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponentDecorator;
@@ -106,6 +107,17 @@ public class BatchManagementDecorator extends TenantEngineLifecycleComponentDeco
 	return getDelegate().createBatchElement(batchOperationId, request);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.batch.IBatchManagement#createBatchElements(java.util.UUID,
+     * java.util.List)
+     */
+    @Override
+    public List<IBatchElement> createBatchElements(UUID batchOperationId,
+	    List<? extends IBatchElementCreateRequest> requests) throws SiteWhereException {
+	return getDelegate().createBatchElements(batchOperationId, requests);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#listBatchElements(java.util.UUID,
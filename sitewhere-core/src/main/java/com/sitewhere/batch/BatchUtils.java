@@ -9,14 +9,22 @@ package com.sitewhere.batch;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.sitewhere.device.group.DeviceGroupUtils;
+import com.sitewhere.rest.model.batch.request.BatchOperationCreateRequest;
 import com.sitewhere.rest.model.search.device.DeviceSearchCriteria;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.SiteWhereSystemException;
 import com.sitewhere.spi.asset.IAssetManagement;
+import com.sitewhere.spi.batch.IBatchOperation;
 import com.sitewhere.spi.batch.request.IBatchCommandForCriteriaRequest;
+import com.sitewhere.spi.batch.request.IBatchCommandInvocationRequest;
 import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceManagement;
 import com.sitewhere.spi.device.group.IDeviceGroup;
@@ -31,6 +39,21 @@ import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
  */
 public class BatchUtils {
 
+    /** Number of devices requested per page when resolving criteria */
+    public static final int DEVICE_PAGE_SIZE = 1000;
+
+    /** Prefix for operation parameters that hold device criteria */
+    public static final String PARAM_CRITERIA_PREFIX = "criteria";
+
+    /** Operation parameter for device type token */
+    public static final String PARAM_DEVICE_TYPE_TOKEN = PARAM_CRITERIA_PREFIX + "DeviceType";
+
+    /** Operation parameter for earliest device created date (epoch millis) */
+    public static final String PARAM_START_DATE = PARAM_CRITERIA_PREFIX + "StartDate";
+
+    /** Operation parameter for latest device created date (epoch millis) */
+    public static final String PARAM_END_DATE = PARAM_CRITERIA_PREFIX + "EndDate";
+
     /**
      * Get device tokens based on the given criteria.
      * 
@@ -67,7 +90,13 @@ public class BatchUtils {
 	    matches = DeviceGroupUtils.getDevicesInGroupsWithRole(criteria.getGroupsWithRole(), deviceSearch,
 		    deviceManagement, assetManagement);
 	} else {
-	    matches = deviceManagement.listDevices(deviceSearch).getResults();
+	    List<String> deviceTokens = new ArrayList<String>();
+	    forEachDevicePage(deviceSearch, deviceManagement, page -> {
+		for (IDevice match : page) {
+		    deviceTokens.add(match.getToken());
+		}
+	    });
+	    return deviceTokens;
 	}
 	List<String> deviceTokens = new ArrayList<String>();
 	for (IDevice match : matches) {
@@ -75,4 +104,132 @@ public class BatchUtils {
 	}
 	return deviceTokens;
     }
+
+    /**
+     * Indicates whether criteria can be resolved page by page while the batch
+     * operation is initialized rather than up front. Group criteria are resolved
+     * by expanding the group and must be resolved by the caller.
+     * 
+     * @param criteria
+     * @return
+     */
+    public static boolean canResolveDuringInitialization(IBatchCommandForCriteriaRequest criteria) {
+	return ((criteria.getGroupToken() == null) || (criteria.getGroupToken().trim().length() == 0))
+		&& ((criteria.getGroupsWithRole() == null) || (criteria.getGroupsWithRole().trim().length() == 0));
+    }
+
+    /**
+     * Build a request for a batch command invocation that carries the device
+     * criteria as operation parameters instead of a list of device tokens. The
+     * devices are resolved page by page when the operation is initialized.
+     * 
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public static BatchOperationCreateRequest buildBatchCommandInvocationForCriteria(
+	    IBatchCommandForCriteriaRequest criteria) throws SiteWhereException {
+	if (criteria.getDeviceTypeToken() == null) {
+	    throw new SiteWhereSystemException(ErrorCode.InvalidDeviceTypeToken, ErrorLevel.ERROR);
+	}
+	if (!canResolveDuringInitialization(criteria)) {
+	    throw new SiteWhereException("Group criteria must be resolved before creating batch operation.");
+	}
+	BatchOperationCreateRequest batch = new BatchOperationCreateRequest();
+	batch.setToken(criteria.getToken());
+	batch.setOperationType(BatchOperationTypes.OPERATION_BATCH_COMMAND_INVOCATION);
+	batch.setDeviceTokens(new ArrayList<String>());
+	batch.getParameters().put(IBatchCommandInvocationRequest.PARAM_COMMAND_TOKEN, criteria.getCommandToken());
+	batch.getParameters().put(PARAM_DEVICE_TYPE_TOKEN, criteria.getDeviceTypeToken());
+	if (criteria.getStartDate() != null) {
+	    batch.getParameters().put(PARAM_START_DATE, String.valueOf(criteria.getStartDate().getTime()));
+	}
+	if (criteria.getEndDate() != null) {
+	    batch.getParameters().put(PARAM_END_DATE, String.valueOf(criteria.getEndDate().getTime()));
+	}
+	Map<String, String> metadata = new HashMap<String, String>();
+	if (criteria.getParameterValues() != null) {
+	    metadata.putAll(criteria.getParameterValues());
+	}
+	batch.setMetadata(metadata);
+	return batch;
+    }
+
+    /**
+     * Get device search criteria stored in the parameters of a batch operation.
+     * Returns null if the operation targets an explicit list of devices.
+     * 
+     * @param operation
+     * @return
+     */
+    public static IDeviceSearchCriteria getDeviceCriteria(IBatchOperation operation) {
+	Map<String, String> params = operation.getParameters();
+	if ((params == null) || (params.get(PARAM_DEVICE_TYPE_TOKEN) == null)) {
+	    return null;
+	}
+	String start = params.get(PARAM_START_DATE);
+	String end = params.get(PARAM_END_DATE);
+	return new DeviceSearchCriteria(params.get(PARAM_DEVICE_TYPE_TOKEN), false, 1, DEVICE_PAGE_SIZE,
+		(start != null) ? new Date(Long.parseLong(start)) : null,
+		(end != null) ? new Date(Long.parseLong(end)) : null);
+    }
+
+    /**
+     * Pass devices matching criteria to a handler one page at a time. Devices are
+     * listed newest first, so rather than skipping an ever growing number of
+     * results, each page is requested with the created date of the last device
+     * seen as the upper bound. Devices sharing the boundary date are remembered
+     * so that they are not passed on twice.
+     * 
+     * @param criteria
+     * @param deviceManagement
+     * @param handler
+     * @throws SiteWhereException
+     */
+    public static void forEachDevicePage(IDeviceSearchCriteria criteria, IDeviceManagement deviceManagement,
+	    DevicePageHandler handler) throws SiteWhereException {
+	Date endDate = criteria.getEndDate();
+	Set<String> boundary = new HashSet<String>();
+	int page = 1;
+	while (true) {
+	    IDeviceSearchCriteria deviceSearch = new DeviceSearchCriteria(criteria.getDeviceTypeToken(), false, page,
+		    DEVICE_PAGE_SIZE, criteria.getStartDate(), endDate);
+	    List<IDevice> matches = deviceManagement.listDevices(deviceSearch).getResults();
+	    List<IDevice> unseen = new ArrayList<IDevice>();
+	    for (IDevice match : matches) {
+		if (!boundary.contains(match.getToken())) {
+		    unseen.add(match);
+		}
+	    }
+	    if (!unseen.isEmpty()) {
+		handler.handle(unseen);
+	    }
+	    if (matches.size() < DEVICE_PAGE_SIZE) {
+		return;
+	    }
+
+	    // Only page by offset while a single created date fills whole pages.
+	    Date last = matches.get(matches.size() - 1).getCreatedDate();
+	    if ((last != null) && !last.equals(endDate)) {
+		endDate = last;
+		boundary.clear();
+		page = 1;
+	    } else {
+		page++;
+	    }
+	    for (IDevice match : matches) {
+		if ((last != null) && last.equals(match.getCreatedDate())) {
+		    boundary.add(match.getToken());
+		}
+	    }
+	}
+    }
+
+    /**
+     * Handles a page of devices matching criteria.
+     */
+    @FunctionalInterface
+    public static interface DevicePageHandler {
+	public void handle(List<IDevice> devices) throws SiteWhereException;
+    }
 }
\ No newline at end of file
@@ -83,6 +83,16 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().getDeviceType(id);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDeviceTypesByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<IDeviceType> getDeviceTypesByIds(List<UUID> ids) throws SiteWhereException {
+	return getDelegate().getDeviceTypesByIds(ids);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getDeviceTypeByToken(java.lang.
@@ -268,6 +278,25 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().getDeviceByToken(token);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevicesByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<IDevice> getDevicesByIds(List<UUID> ids) throws SiteWhereException {
+	return getDelegate().getDevicesByIds(ids);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDevicesByTokens(java.util.
+     * List)
+     */
+    @Override
+    public List<IDevice> getDevicesByTokens(List<String> tokens) throws SiteWhereException {
+	return getDelegate().getDevicesByTokens(tokens);
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#updateDevice(java.util.UUID,
      * com.sitewhere.spi.device.request.IDeviceCreateRequest)
@@ -344,6 +373,16 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().getDeviceAssignment(id);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDeviceAssignmentsByIds(java.
+     * util.List)
+     */
+    @Override
+    public List<IDeviceAssignment> getDeviceAssignmentsByIds(List<UUID> ids) throws SiteWhereException {
+	return getDelegate().getDeviceAssignmentsByIds(ids);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getDeviceAssignmentByToken(java.
@@ -520,6 +559,15 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().getCustomer(id);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getCustomersByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<ICustomer> getCustomersByIds(List<UUID> ids) throws SiteWhereException {
+	return getDelegate().getCustomersByIds(ids);
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#getCustomerByToken(java.lang.
      * String)
@@ -642,6 +690,14 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().getArea(id);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getAreasByIds(java.util.List)
+     */
+    @Override
+    public List<IArea> getAreasByIds(List<UUID> ids) throws SiteWhereException {
+	return getDelegate().getAreasByIds(ids);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getAreaByToken(java.lang.String)
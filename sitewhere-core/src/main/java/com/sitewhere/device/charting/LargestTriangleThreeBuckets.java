@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.charting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate;
+
+/**
+ * Downsamples a series using the largest-triangle-three-buckets algorithm,
+ * which keeps the points that contribute most to the visual shape of a line
+ * chart. The first and last points are always retained.
+ * 
+ * @author Derek
+ */
+public class LargestTriangleThreeBuckets {
+
+    /**
+     * Downsample a series ordered by date to at most the given number of points.
+     * 
+     * @param data
+     * @param threshold
+     * @return
+     */
+    public static List<IMeasurementAggregate> downsample(List<IMeasurementAggregate> data, int threshold) {
+	int size = data.size();
+	if ((threshold >= size) || (threshold < 3)) {
+	    return data;
+	}
+	List<IMeasurementAggregate> sampled = new ArrayList<>(threshold);
+	double every = (double) (size - 2) / (threshold - 2);
+
+	int a = 0;
+	sampled.add(data.get(a));
+	for (int i = 0; i < threshold - 2; i++) {
+	    // Average point of next bucket is the third triangle vertex.
+	    int avgStart = (int) Math.floor((i + 1) * every) + 1;
+	    int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, size);
+	    double avgX = 0;
+	    double avgY = 0;
+	    for (int j = avgStart; j < avgEnd; j++) {
+		avgX += getX(data.get(j));
+		avgY += getY(data.get(j));
+	    }
+	    int avgLength = Math.max(1, avgEnd - avgStart);
+	    avgX /= avgLength;
+	    avgY /= avgLength;
+
+	    // Choose point in current bucket forming the largest triangle.
+	    int rangeStart = (int) Math.floor(i * every) + 1;
+	    int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+	    double ax = getX(data.get(a));
+	    double ay = getY(data.get(a));
+	    double maxArea = -1;
+	    int next = rangeStart;
+	    for (int j = rangeStart; j < rangeEnd; j++) {
+		double area = Math.abs(
+			(ax - avgX) * (getY(data.get(j)) - ay) - (ax - getX(data.get(j))) * (avgY - ay));
+		if (area > maxArea) {
+		    maxArea = area;
+		    next = j;
+		}
+	    }
+	    sampled.add(data.get(next));
+	    a = next;
+	}
+	sampled.add(data.get(size - 1));
+	return sampled;
+    }
+
+    /**
+     * Get x coordinate for an aggregate.
+     * 
+     * @param aggregate
+     * @return
+     */
+    protected static double getX(IMeasurementAggregate aggregate) {
+	return aggregate.getBucketDate().getTime();
+    }
+
+    /**
+     * Get y coordinate for an aggregate, preferring the average value.
+     * 
+     * @param aggregate
+     * @return
+     */
+    protected static double getY(IMeasurementAggregate aggregate) {
+	if (aggregate.getAvg() != null) {
+	    return aggregate.getAvg();
+	} else if (aggregate.getLast() != null) {
+	    return aggregate.getLast();
+	} else if (aggregate.getMax() != null) {
+	    return aggregate.getMax();
+	} else if (aggregate.getMin() != null) {
+	    return aggregate.getMin();
+	} else if (aggregate.getCount() != null) {
+	    return aggregate.getCount();
+	}
+	return 0;
+    }
+}
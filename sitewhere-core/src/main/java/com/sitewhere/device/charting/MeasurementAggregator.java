@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.charting;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregate;
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregateSeries;
+import com.sitewhere.rest.model.search.DateRangeSearchCriteria;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+import com.sitewhere.spi.device.event.IDeviceEventManagement;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.aggregation.MeasurementAggregateFunction;
+import com.sitewhere.spi.search.ISearchResults;
+
+/**
+ * Aggregates a stream of measurement values into fixed-width time buckets.
+ * Only one accumulator is held per (measurement name, bucket) so memory use
+ * depends on the number of buckets rather than the number of events. Used by
+ * event stores that can not push aggregation down to the database.
+ * 
+ * @author Derek
+ */
+public class MeasurementAggregator {
+
+    /** Max number of buckets that may be requested for a single series */
+    public static final long MAX_BUCKETS_PER_SERIES = 100000;
+
+    /** Page size used when aggregating from paged search results */
+    private static final int FALLBACK_PAGE_SIZE = 1000;
+
+    /** Aggregation criteria */
+    private IMeasurementAggregationCriteria criteria;
+
+    /** Accumulators by measurement name and bucket start */
+    private Map<String, TreeMap<Long, Accumulator>> buckets = new HashMap<>();
+
+    public MeasurementAggregator(IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	validate(criteria);
+	this.criteria = criteria;
+    }
+
+    /**
+     * Indicates whether values for the given measurement name are included.
+     * 
+     * @param name
+     * @return
+     */
+    public boolean accepts(String name) {
+	List<String> names = getCriteria().getMeasurementNames();
+	return (names == null) || (names.isEmpty()) || (names.contains(name));
+    }
+
+    /**
+     * Add a measurement value.
+     * 
+     * @param name
+     * @param eventDate
+     * @param value
+     */
+    public void add(String name, Date eventDate, Double value) {
+	if ((value == null) || (!accepts(name))) {
+	    return;
+	}
+	TreeMap<Long, Accumulator> series = buckets.get(name);
+	if (series == null) {
+	    series = new TreeMap<>();
+	    buckets.put(name, series);
+	}
+	long time = eventDate.getTime();
+	Long start = getBucketStart(time, getCriteria().getIntervalMs());
+	Accumulator accumulator = series.get(start);
+	if (accumulator == null) {
+	    accumulator = new Accumulator();
+	    series.put(start, accumulator);
+	}
+	accumulator.add(time, value);
+    }
+
+    /**
+     * Build series from accumulated values.
+     * 
+     * @return
+     */
+    public List<IMeasurementAggregateSeries> getResults() {
+	List<MeasurementAggregateSeries> results = new ArrayList<>();
+	for (Map.Entry<String, TreeMap<Long, Accumulator>> series : buckets.entrySet()) {
+	    MeasurementAggregateSeries result = new MeasurementAggregateSeries(series.getKey());
+	    for (Map.Entry<Long, Accumulator> bucket : series.getValue().entrySet()) {
+		Accumulator acc = bucket.getValue();
+		result.getEntries().add(createAggregate(getCriteria(), new Date(bucket.getKey()), acc.count, acc.min,
+			acc.max, acc.sum / acc.count, acc.last));
+	    }
+	    results.add(result);
+	}
+	return finish(results, getCriteria());
+    }
+
+    /**
+     * Verify that criteria describe a valid aggregation.
+     * 
+     * @param criteria
+     * @throws SiteWhereException
+     */
+    public static void validate(IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	if (criteria.getIntervalMs() <= 0) {
+	    throw new SiteWhereException("Aggregation interval must be greater than zero.");
+	}
+	if ((criteria.getStartDate() != null) && (criteria.getEndDate() != null)) {
+	    long range = criteria.getEndDate().getTime() - criteria.getStartDate().getTime();
+	    if ((range / criteria.getIntervalMs()) > MAX_BUCKETS_PER_SERIES) {
+		throw new SiteWhereException("Aggregation interval too small for date range. More than "
+			+ MAX_BUCKETS_PER_SERIES + " buckets would be created.");
+	    }
+	}
+	if ((criteria.getMaxPoints() != null) && (criteria.getMaxPoints() < 3)) {
+	    throw new SiteWhereException("Max points must be at least 3.");
+	}
+    }
+
+    /**
+     * Calculate start of bucket that contains the given time.
+     * 
+     * @param time
+     * @param intervalMs
+     * @return
+     */
+    public static long getBucketStart(long time, long intervalMs) {
+	return time - Math.floorMod(time, intervalMs);
+    }
+
+    /**
+     * Get set of functions to calculate for the given criteria.
+     * 
+     * @param criteria
+     * @return
+     */
+    public static Set<MeasurementAggregateFunction> getFunctions(IMeasurementAggregationCriteria criteria) {
+	if ((criteria.getFunctions() == null) || (criteria.getFunctions().isEmpty())) {
+	    return EnumSet.allOf(MeasurementAggregateFunction.class);
+	}
+	return EnumSet.copyOf(criteria.getFunctions());
+    }
+
+    /**
+     * Create an aggregate including only the values for requested functions.
+     * 
+     * @param criteria
+     * @param bucketDate
+     * @param count
+     * @param min
+     * @param max
+     * @param avg
+     * @param last
+     * @return
+     */
+    public static MeasurementAggregate createAggregate(IMeasurementAggregationCriteria criteria, Date bucketDate,
+	    Long count, Double min, Double max, Double avg, Double last) {
+	Set<MeasurementAggregateFunction> functions = getFunctions(criteria);
+	MeasurementAggregate aggregate = new MeasurementAggregate();
+	aggregate.setBucketDate(bucketDate);
+	aggregate.setCount(functions.contains(MeasurementAggregateFunction.Count) ? count : null);
+	aggregate.setMin(functions.contains(MeasurementAggregateFunction.Min) ? min : null);
+	aggregate.setMax(functions.contains(MeasurementAggregateFunction.Max) ? max : null);
+	aggregate.setAvg(functions.contains(MeasurementAggregateFunction.Avg) ? avg : null);
+	aggregate.setLast(functions.contains(MeasurementAggregateFunction.Last) ? last : null);
+	return aggregate;
+    }
+
+    /**
+     * Apply downsampling (if requested) to completed series.
+     * 
+     * @param series
+     * @param criteria
+     * @return
+     */
+    public static List<IMeasurementAggregateSeries> finish(List<MeasurementAggregateSeries> series,
+	    IMeasurementAggregationCriteria criteria) {
+	List<IMeasurementAggregateSeries> results = new ArrayList<>();
+	for (MeasurementAggregateSeries current : series) {
+	    if (criteria.getMaxPoints() != null) {
+		List<IMeasurementAggregate> sampled = LargestTriangleThreeBuckets.downsample(current.getEntries(),
+			criteria.getMaxPoints());
+		current.setEntries(sampled);
+	    }
+	    results.add(current);
+	}
+	return results;
+    }
+
+    /**
+     * Aggregate measurements by paging through search results. Used for event
+     * stores that do not support aggregation natively.
+     * 
+     * @param events
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IMeasurementAggregateSeries> aggregate(IDeviceEventManagement events,
+	    DeviceEventIndex index, List<UUID> entityIds, IMeasurementAggregationCriteria criteria)
+	    throws SiteWhereException {
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria);
+	int page = 1;
+	while (true) {
+	    DateRangeSearchCriteria search = new DateRangeSearchCriteria(page, FALLBACK_PAGE_SIZE,
+		    criteria.getStartDate(), criteria.getEndDate());
+	    ISearchResults<IDeviceMeasurement> matches = events.listDeviceMeasurementsForIndex(index, entityIds,
+		    search);
+	    for (IDeviceMeasurement mx : matches.getResults()) {
+		aggregator.add(mx.getName(), mx.getEventDate(), mx.getValue());
+	    }
+	    if (matches.getResults().size() < FALLBACK_PAGE_SIZE) {
+		break;
+	    }
+	    page++;
+	}
+	return aggregator.getResults();
+    }
+
+    /**
+     * Running values for a single bucket.
+     */
+    private static class Accumulator {
+
+	/** Number of values */
+	private long count;
+
+	/** Minimum value */
+	private double min = Double.POSITIVE_INFINITY;
+
+	/** Maximum value */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/** Sum of values */
+	private double sum;
+
+	/** Latest value */
+	private double last;
+
+	/** Time of latest value */
+	private long lastTime = Long.MIN_VALUE;
+
+	public void add(long time, double value) {
+	    count++;
+	    min = Math.min(min, value);
+	    max = Math.max(max, value);
+	    sum += value;
+	    if (time >= lastTime) {
+		last = value;
+		lastTime = time;
+	    }
+	}
+    }
+
+    public IMeasurementAggregationCriteria getCriteria() {
+	return criteria;
+    }
+}
@@ -110,10 +110,8 @@ public class AreaMarshalHelper {
 	    criteria.setStatus(DeviceAssignmentStatus.Active);
 	    criteria.setAreaIds(areaIds);
 	    ISearchResults<IDeviceAssignment> matches = getDeviceManagement().listDeviceAssignments(criteria);
-	    List<DeviceAssignment> assignments = new ArrayList<DeviceAssignment>();
-	    for (IDeviceAssignment match : matches.getResults()) {
-		assignments.add(assignmentHelper.convert(match, getAssetManagement()));
-	    }
+	    List<DeviceAssignment> assignments = new ArrayList<DeviceAssignment>(
+		    assignmentHelper.convertAll(matches.getResults(), getAssetManagement()));
 	    area.setDeviceAssignments(assignments);
 	}
 	if (isIncludeZones()) {
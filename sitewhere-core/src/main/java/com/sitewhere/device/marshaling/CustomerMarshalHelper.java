@@ -93,10 +93,8 @@ public class CustomerMarshalHelper {
 	    criteria.setStatus(DeviceAssignmentStatus.Active);
 	    criteria.setCustomerIds(customerIds);
 	    ISearchResults<IDeviceAssignment> matches = getDeviceManagement().listDeviceAssignments(criteria);
-	    List<DeviceAssignment> assignments = new ArrayList<DeviceAssignment>();
-	    for (IDeviceAssignment match : matches.getResults()) {
-		assignments.add(assignmentHelper.convert(match, getAssetManagement()));
-	    }
+	    List<DeviceAssignment> assignments = new ArrayList<DeviceAssignment>(
+		    assignmentHelper.convertAll(matches.getResults(), getAssetManagement()));
 	    customer.setDeviceAssignments(assignments);
 	}
 	return customer;
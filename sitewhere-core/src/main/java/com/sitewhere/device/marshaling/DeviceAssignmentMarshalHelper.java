@@ -7,6 +7,13 @@
  */
 package com.sitewhere.device.marshaling;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +73,80 @@ public class DeviceAssignmentMarshalHelper {
      */
     public MarshaledDeviceAssignment convert(IDeviceAssignment source, IAssetManagement assetManagement)
 	    throws SiteWhereException {
+	return convert(source, new MarshalReferenceResolver(getDeviceManagement(), assetManagement));
+    }
+
+    /**
+     * Convert a page of SPI objects into model objects for marshaling. Referenced
+     * entities are resolved once for the whole page rather than per assignment.
+     * 
+     * @param sources
+     * @param assetManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<MarshaledDeviceAssignment> convertAll(Collection<? extends IDeviceAssignment> sources,
+	    IAssetManagement assetManagement) throws SiteWhereException {
+	MarshalReferenceResolver resolver = new MarshalReferenceResolver(getDeviceManagement(), assetManagement);
+	prefetch(sources, resolver);
+	List<MarshaledDeviceAssignment> results = new ArrayList<>();
+	for (IDeviceAssignment source : sources) {
+	    results.add(convert(source, resolver));
+	}
+	return results;
+    }
+
+    /**
+     * Resolve entities referenced by a group of assignments based on the
+     * information to be included.
+     * 
+     * @param sources
+     * @param resolver
+     * @throws SiteWhereException
+     */
+    public void prefetch(Collection<? extends IDeviceAssignment> sources, MarshalReferenceResolver resolver)
+	    throws SiteWhereException {
+	Set<UUID> assetIds = new HashSet<>();
+	Set<UUID> customerIds = new HashSet<>();
+	Set<UUID> areaIds = new HashSet<>();
+	Set<UUID> deviceIds = new HashSet<>();
+	for (IDeviceAssignment source : sources) {
+	    assetIds.add(source.getAssetId());
+	    customerIds.add(source.getCustomerId());
+	    areaIds.add(source.getAreaId());
+	    deviceIds.add(source.getDeviceId());
+	}
+	resolver.prefetchAssets(assetIds);
+	if (isIncludeCustomer()) {
+	    resolver.prefetchCustomers(customerIds);
+	}
+	if (isIncludeArea()) {
+	    resolver.prefetchAreas(areaIds);
+	}
+	if (isIncludeDevice()) {
+	    resolver.prefetchDevices(deviceIds);
+	    List<IDevice> devices = new ArrayList<>();
+	    for (UUID deviceId : deviceIds) {
+		IDevice device = resolver.getDevice(deviceId);
+		if (device != null) {
+		    devices.add(device);
+		}
+	    }
+	    getDeviceHelper().prefetch(devices, resolver);
+	}
+    }
+
+    /**
+     * Convert the SPI object into a model object for marshaling, resolving
+     * references via the given resolver.
+     * 
+     * @param source
+     * @param resolver
+     * @return
+     * @throws SiteWhereException
+     */
+    public MarshaledDeviceAssignment convert(IDeviceAssignment source, MarshalReferenceResolver resolver)
+	    throws SiteWhereException {
 	MarshaledDeviceAssignment result = new MarshaledDeviceAssignment();
 	result.setActiveDate(source.getActiveDate());
 	result.setReleasedDate(source.getReleasedDate());
@@ -75,7 +156,7 @@ public class DeviceAssignmentMarshalHelper {
 	// If asset is assigned, look it up.
 	result.setAssetId(source.getAssetId());
 	if (source.getAssetId() != null) {
-	    IAsset asset = assetManagement.getAsset(source.getAssetId());
+	    IAsset asset = resolver.getAsset(source.getAssetId());
 	    if (asset == null) {
 		LOGGER.warn("Device assignment has reference to non-existent asset.");
 		asset = new InvalidAsset();
@@ -90,21 +171,21 @@ public class DeviceAssignmentMarshalHelper {
 	// If customer is assigned, look it up.
 	result.setCustomerId(source.getCustomerId());
 	if ((isIncludeCustomer()) && (source.getCustomerId() != null)) {
-	    result.setCustomer(getDeviceManagement().getCustomer(source.getCustomerId()));
+	    result.setCustomer(resolver.getCustomer(source.getCustomerId()));
 	}
 
 	// If area is assigned, look it up.
 	result.setAreaId(source.getAreaId());
 	if ((isIncludeArea()) && (source.getAreaId() != null)) {
-	    result.setArea(getDeviceManagement().getArea(source.getAreaId()));
+	    result.setArea(resolver.getArea(source.getAreaId()));
 	}
 
 	// Add device information.
 	result.setDeviceId(source.getDeviceId());
 	if (isIncludeDevice()) {
-	    IDevice device = getDeviceManagement().getDevice(source.getDeviceId());
+	    IDevice device = resolver.getDevice(source.getDeviceId());
 	    if (device != null) {
-		result.setDevice(getDeviceHelper().convert(device, assetManagement));
+		result.setDevice(getDeviceHelper().convert(device, resolver));
 	    } else {
 		LOGGER.error("Assignment references invalid device id.");
 	    }
@@ -7,6 +7,13 @@
  */
 package com.sitewhere.device.marshaling;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,6 +76,86 @@ public class DeviceMarshalHelper {
      * @throws SiteWhereException
      */
     public MarshaledDevice convert(IDevice source, IAssetManagement assetManagement) throws SiteWhereException {
+	return convert(source, new MarshalReferenceResolver(getDeviceManagement(), assetManagement));
+    }
+
+    /**
+     * Convert a page of SPI objects into model objects for marshaling. Referenced
+     * entities are resolved once for the whole page rather than per device.
+     * 
+     * @param sources
+     * @param assetManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<MarshaledDevice> convertAll(Collection<? extends IDevice> sources, IAssetManagement assetManagement)
+	    throws SiteWhereException {
+	MarshalReferenceResolver resolver = new MarshalReferenceResolver(getDeviceManagement(), assetManagement);
+	prefetch(sources, resolver);
+	List<MarshaledDevice> results = new ArrayList<>();
+	for (IDevice source : sources) {
+	    results.add(convert(source, resolver));
+	}
+	return results;
+    }
+
+    /**
+     * Resolve entities referenced by a group of devices based on the information
+     * to be included.
+     * 
+     * @param sources
+     * @param resolver
+     * @throws SiteWhereException
+     */
+    public void prefetch(Collection<? extends IDevice> sources, MarshalReferenceResolver resolver)
+	    throws SiteWhereException {
+	Set<UUID> deviceTypeIds = new HashSet<>();
+	Set<UUID> assignmentIds = new HashSet<>();
+	Set<String> nestedTokens = new HashSet<>();
+	for (IDevice source : sources) {
+	    deviceTypeIds.add(source.getDeviceTypeId());
+	    assignmentIds.add(source.getDeviceAssignmentId());
+	    for (IDeviceElementMapping mapping : source.getDeviceElementMappings()) {
+		nestedTokens.add(mapping.getDeviceToken());
+	    }
+	}
+	if (isIncludeDeviceType()) {
+	    resolver.prefetchDeviceTypes(deviceTypeIds);
+	}
+	if (isIncludeAssignment()) {
+	    resolver.prefetchDeviceAssignments(assignmentIds);
+	    List<IDeviceAssignment> assignments = new ArrayList<>();
+	    for (UUID assignmentId : assignmentIds) {
+		IDeviceAssignment assignment = resolver.getDeviceAssignment(assignmentId);
+		if (assignment != null) {
+		    assignments.add(assignment);
+		}
+	    }
+	    getAssignmentHelper().prefetch(assignments, resolver);
+	}
+	if (isIncludeNested()) {
+	    resolver.prefetchDevicesByToken(nestedTokens);
+	    List<IDevice> nested = new ArrayList<>();
+	    for (String token : nestedTokens) {
+		IDevice device = resolver.getDeviceByToken(token);
+		if (device != null) {
+		    nested.add(device);
+		}
+	    }
+	    getNestedHelper().prefetch(nested, resolver);
+	}
+    }
+
+    /**
+     * Convert an IDevice SPI object into a model object for marshaling, resolving
+     * references via the given resolver.
+     * 
+     * @param source
+     * @param resolver
+     * @return
+     * @throws SiteWhereException
+     */
+    public MarshaledDevice convert(IDevice source, MarshalReferenceResolver resolver) throws SiteWhereException {
 	MarshaledDevice result = new MarshaledDevice();
 	result.setDeviceTypeId(source.getDeviceTypeId());
 	result.setDeviceAssignmentId(source.getDeviceAssignmentId());
@@ -81,15 +168,15 @@ public class DeviceMarshalHelper {
 	for (IDeviceElementMapping mapping : source.getDeviceElementMappings()) {
 	    DeviceElementMapping cnvMapping = DeviceElementMapping.copy(mapping);
 	    if (isIncludeNested()) {
-		IDevice device = getDeviceManagement().getDeviceByToken(mapping.getDeviceToken());
-		cnvMapping.setDevice(getNestedHelper().convert(device, assetManagement));
+		IDevice device = resolver.getDeviceByToken(mapping.getDeviceToken());
+		cnvMapping.setDevice(getNestedHelper().convert(device, resolver));
 	    }
 	    result.getDeviceElementMappings().add(cnvMapping);
 	}
 
 	// Look up device type information.
 	if ((source.getDeviceTypeId() != null) && (isIncludeDeviceType())) {
-	    IDeviceType deviceType = getDeviceManagement().getDeviceType(source.getDeviceTypeId());
+	    IDeviceType deviceType = resolver.getDeviceType(source.getDeviceTypeId());
 	    if (deviceType == null) {
 		throw new SiteWhereException("Device references non-existent device type.");
 	    }
@@ -99,12 +186,11 @@ public class DeviceMarshalHelper {
 	}
 	if ((source.getDeviceAssignmentId() != null) && (isIncludeAssignment())) {
 	    try {
-		IDeviceAssignment assignment = getDeviceManagement()
-			.getDeviceAssignment(source.getDeviceAssignmentId());
+		IDeviceAssignment assignment = resolver.getDeviceAssignment(source.getDeviceAssignmentId());
 		if (assignment == null) {
 		    throw new SiteWhereException("Device contains an invalid assignment reference.");
 		}
-		result.setAssignment(getAssignmentHelper().convert(assignment, assetManagement));
+		result.setAssignment(getAssignmentHelper().convert(assignment, resolver));
 	    } catch (SiteWhereException e) {
 		LOGGER.warn("Device has token for non-existent assignment.");
 	    }
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.marshaling;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.area.IArea;
+import com.sitewhere.spi.asset.IAsset;
+import com.sitewhere.spi.asset.IAssetManagement;
+import com.sitewhere.spi.customer.ICustomer;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.device.IDeviceType;
+
+/**
+ * Request-scoped resolver for entities referenced by objects being marshaled.
+ * Marshal helpers collect the references for a whole page of results and
+ * prefetch them so that each distinct entity is loaded once per request rather
+ * than once per referencing object. Resolved entities (including references
+ * that could not be resolved) are memoized for the life of the resolver, so an
+ * instance should not be held beyond the request it was created for.
+ *
+ * @author Derek
+ */
+public class MarshalReferenceResolver {
+
+    /** Device management implementation */
+    private IDeviceManagement deviceManagement;
+
+    /** Asset management implementation */
+    private IAssetManagement assetManagement;
+
+    /** Devices by id */
+    private Memo<UUID, IDevice> devices = new Memo<>(this::fetchDevices);
+
+    /** Devices by token */
+    private Memo<String, IDevice> devicesByToken = new Memo<>(this::fetchDevicesByToken);
+
+    /** Device types by id */
+    private Memo<UUID, IDeviceType> deviceTypes = new Memo<>(this::fetchDeviceTypes);
+
+    /** Device assignments by id */
+    private Memo<UUID, IDeviceAssignment> assignments = new Memo<>(this::fetchDeviceAssignments);
+
+    /** Customers by id */
+    private Memo<UUID, ICustomer> customers = new Memo<>(this::fetchCustomers);
+
+    /** Areas by id */
+    private Memo<UUID, IArea> areas = new Memo<>(this::fetchAreas);
+
+    /** Assets by id */
+    private Memo<UUID, IAsset> assets = new Memo<>(this::fetchAssets);
+
+    public MarshalReferenceResolver(IDeviceManagement deviceManagement, IAssetManagement assetManagement) {
+	this.deviceManagement = deviceManagement;
+	this.assetManagement = assetManagement;
+    }
+
+    public void prefetchDevices(Collection<UUID> ids) throws SiteWhereException {
+	devices.prefetch(ids);
+    }
+
+    public IDevice getDevice(UUID id) throws SiteWhereException {
+	return devices.get(id);
+    }
+
+    public void prefetchDevicesByToken(Collection<String> tokens) throws SiteWhereException {
+	devicesByToken.prefetch(tokens);
+    }
+
+    public IDevice getDeviceByToken(String token) throws SiteWhereException {
+	return devicesByToken.get(token);
+    }
+
+    public void prefetchDeviceTypes(Collection<UUID> ids) throws SiteWhereException {
+	deviceTypes.prefetch(ids);
+    }
+
+    public IDeviceType getDeviceType(UUID id) throws SiteWhereException {
+	return deviceTypes.get(id);
+    }
+
+    public void prefetchDeviceAssignments(Collection<UUID> ids) throws SiteWhereException {
+	assignments.prefetch(ids);
+    }
+
+    public IDeviceAssignment getDeviceAssignment(UUID id) throws SiteWhereException {
+	return assignments.get(id);
+    }
+
+    public void prefetchCustomers(Collection<UUID> ids) throws SiteWhereException {
+	customers.prefetch(ids);
+    }
+
+    public ICustomer getCustomer(UUID id) throws SiteWhereException {
+	return customers.get(id);
+    }
+
+    public void prefetchAreas(Collection<UUID> ids) throws SiteWhereException {
+	areas.prefetch(ids);
+    }
+
+    public IArea getArea(UUID id) throws SiteWhereException {
+	return areas.get(id);
+    }
+
+    public void prefetchAssets(Collection<UUID> ids) throws SiteWhereException {
+	assets.prefetch(ids);
+    }
+
+    public IAsset getAsset(UUID id) throws SiteWhereException {
+	return assets.get(id);
+    }
+
+    /**
+     * Load devices for a set of ids not already resolved using a single multi-get
+     * call.
+     *
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IDevice> fetchDevices(Set<UUID> ids) throws SiteWhereException {
+	Map<UUID, IDevice> results = new HashMap<>();
+	for (IDevice found : getDeviceManagement().getDevicesByIds(new ArrayList<>(ids))) {
+	    results.put(found.getId(), found);
+	}
+	return results;
+    }
+
+    /**
+     * Load devices for a set of tokens not already resolved.
+     *
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<String, IDevice> fetchDevicesByToken(Set<String> tokens) throws SiteWhereException {
+	Map<String, IDevice> results = new HashMap<>();
+	for (IDevice found : getDeviceManagement().getDevicesByTokens(new ArrayList<>(tokens))) {
+	    results.put(found.getToken(), found);
+	}
+	return results;
+    }
+
+    /**
+     * Load device types for a set of ids not already resolved.
+     *
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IDeviceType> fetchDeviceTypes(Set<UUID> ids) throws SiteWhereException {
+	Map<UUID, IDeviceType> results = new HashMap<>();
+	for (IDeviceType found : getDeviceManagement().getDeviceTypesByIds(new ArrayList<>(ids))) {
+	    results.put(found.getId(), found);
+	}
+	return results;
+    }
+
+    /**
+     * Load device assignments for a set of ids not already resolved.
+     *
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IDeviceAssignment> fetchDeviceAssignments(Set<UUID> ids) throws SiteWhereException {
+	Map<UUID, IDeviceAssignment> results = new HashMap<>();
+	for (IDeviceAssignment found : getDeviceManagement().getDeviceAssignmentsByIds(new ArrayList<>(ids))) {
+	    results.put(found.getId(), found);
+	}
+	return results;
+    }
+
+    /**
+     * Load customers for a set of ids not already resolved.
+     *
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, ICustomer> fetchCustomers(Set<UUID> ids) throws SiteWhereException {
+	Map<UUID, ICustomer> results = new HashMap<>();
+	for (ICustomer found : getDeviceManagement().getCustomersByIds(new ArrayList<>(ids))) {
+	    results.put(found.getId(), found);
+	}
+	return results;
+    }
+
+    /**
+     * Load areas for a set of ids not already resolved.
+     *
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IArea> fetchAreas(Set<UUID> ids) throws SiteWhereException {
+	Map<UUID, IArea> results = new HashMap<>();
+	for (IArea found : getDeviceManagement().getAreasByIds(new ArrayList<>(ids))) {
+	    results.put(found.getId(), found);
+	}
+	return results;
+    }
+
+    /**
+     * Load assets for a set of ids not already resolved.
+     *
+     * @param ids
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<UUID, IAsset> fetchAssets(Set<UUID> ids) throws SiteWhereException {
+	Map<UUID, IAsset> results = new HashMap<>();
+	for (UUID id : ids) {
+	    results.put(id, getAssetManagement().getAsset(id));
+	}
+	return results;
+    }
+
+    public IDeviceManagement getDeviceManagement() {
+	return deviceManagement;
+    }
+
+    public IAssetManagement getAssetManagement() {
+	return assetManagement;
+    }
+
+    /**
+     * Loads a batch of entities for keys that have not been resolved.
+     *
+     * @param <K>
+     * @param <V>
+     */
+    @FunctionalInterface
+    protected static interface Fetcher<K, V> {
+
+	public Map<K, V> fetch(Set<K> keys) throws SiteWhereException;
+    }
+
+    /**
+     * Memo of resolved entities by key. Keys that do not resolve to an entity are
+     * remembered so that they are not requested again.
+     *
+     * @param <K>
+     * @param <V>
+     */
+    protected static class Memo<K, V> {
+
+	/** Resolved entities */
+	private Map<K, V> resolved = new HashMap<>();
+
+	/** Used to load unresolved entities */
+	private Fetcher<K, V> fetcher;
+
+	public Memo(Fetcher<K, V> fetcher) {
+	    this.fetcher = fetcher;
+	}
+
+	/**
+	 * Resolve all keys not already in the memo with a single fetch.
+	 *
+	 * @param keys
+	 * @throws SiteWhereException
+	 */
+	public void prefetch(Collection<K> keys) throws SiteWhereException {
+	    Set<K> missing = new LinkedHashSet<>();
+	    for (K key : keys) {
+		if ((key != null) && (!resolved.containsKey(key))) {
+		    missing.add(key);
+		}
+	    }
+	    if (missing.isEmpty()) {
+		return;
+	    }
+	    Map<K, V> fetched = fetcher.fetch(missing);
+	    for (K key : missing) {
+		resolved.put(key, fetched.get(key));
+	    }
+	}
+
+	/**
+	 * Get entity for a key, fetching it if not already resolved.
+	 *
+	 * @param key
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public V get(K key) throws SiteWhereException {
+	    if (key == null) {
+		return null;
+	    }
+	    if (!resolved.containsKey(key)) {
+		Set<K> keys = new LinkedHashSet<>();
+		keys.add(key);
+		prefetch(keys);
+	    }
+	    return resolved.get(key);
+	}
+    }
+}
@@ -41,6 +41,25 @@ public class SitewhereAuthentication implements ITenantAwareAuthentication {
 	this.password = password;
     }
 
+    public SitewhereAuthentication(SitewhereUserDetails details, String password, ITenant tenant) {
+	this(details, password);
+	this.tenant = tenant;
+    }
+
+    /**
+     * Create a copy of this authentication associated with the given tenant. Used
+     * instead of {@link #setTenant(ITenant)} when the authentication may be shared
+     * between threads.
+     * 
+     * @param tenant
+     * @return
+     */
+    public SitewhereAuthentication withTenant(ITenant tenant) {
+	SitewhereAuthentication copy = new SitewhereAuthentication(userDetails, password, tenant);
+	copy.setAuthenticated(isAuthenticated());
+	return copy;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -74,7 +74,7 @@ public class UserContextManager {
     public static void setCurrentTenant(ITenant tenant) {
 	Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 	if ((auth != null) && (auth instanceof SitewhereAuthentication)) {
-	    ((SitewhereAuthentication) auth).setTenant(tenant);
+	    SecurityContextHolder.getContext().setAuthentication(((SitewhereAuthentication) auth).withTenant(tenant));
 	} else {
 	    throw new RuntimeException("Setting tenant when no Spring Security context has been established.");
 	}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Bounded cache of values derived from tokens whose signatures have already
+ * been verified. Entries are keyed by a SHA-256 hash of the token so that raw
+ * bearer tokens are not retained, expire no later than the token itself, and
+ * are evicted in least-recently-used order once the cache is full.
+ * 
+ * @author Derek
+ *
+ * @param <T>
+ */
+public class VerifiedTokenCache<T> {
+
+    /** Default maximum number of cached tokens */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** Default maximum time an entry is cached regardless of token expiration */
+    public static final long DEFAULT_MAX_AGE_MS = 5 * 60 * 1000;
+
+    /** Hash algorithm used for cache keys */
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /** Digest for calculating token hashes */
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+	try {
+	    return MessageDigest.getInstance(HASH_ALGORITHM);
+	} catch (NoSuchAlgorithmException e) {
+	    throw new IllegalStateException("Token hash algorithm not available.", e);
+	}
+    });
+
+    /** Maximum number of cached tokens */
+    private int maxEntries;
+
+    /** Maximum time an entry is cached */
+    private long maxAgeMs;
+
+    /** Cached entries in access order */
+    private Map<String, Entry<T>> entries;
+
+    /** Cache hits */
+    private Meter hits = new Meter();
+
+    /** Cache misses (including expired entries) */
+    private Meter misses = new Meter();
+
+    /** Entries evicted to make room for new ones */
+    private Meter evictions = new Meter();
+
+    public VerifiedTokenCache() {
+	this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE_MS);
+    }
+
+    public VerifiedTokenCache(int maxEntries, long maxAgeMs) {
+	this.maxEntries = maxEntries;
+	this.maxAgeMs = maxAgeMs;
+	this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+
+	    /** Serial version UID */
+	    private static final long serialVersionUID = 1L;
+
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+		if (size() > getMaxEntries()) {
+		    evictions.mark();
+		    return true;
+		}
+		return false;
+	    }
+	};
+    }
+
+    /**
+     * Get cached value for a token. Returns null if the token has not been
+     * cached or the cached entry has expired.
+     * 
+     * @param token
+     * @return
+     */
+    public T get(String token) {
+	String key = hash(token);
+	long now = System.currentTimeMillis();
+	synchronized (entries) {
+	    Entry<T> entry = entries.get(key);
+	    if (entry != null) {
+		if (entry.getExpires() > now) {
+		    hits.mark();
+		    return entry.getValue();
+		}
+		entries.remove(key);
+	    }
+	}
+	misses.mark();
+	return null;
+    }
+
+    /**
+     * Cache a value for a verified token. The entry expires at the token
+     * expiration date or after the maximum age, whichever is first.
+     * 
+     * @param token
+     * @param value
+     * @param tokenExpiration
+     */
+    public void put(String token, T value, Date tokenExpiration) {
+	long expires = System.currentTimeMillis() + getMaxAgeMs();
+	if (tokenExpiration != null) {
+	    expires = Math.min(expires, tokenExpiration.getTime());
+	}
+	String key = hash(token);
+	synchronized (entries) {
+	    entries.put(key, new Entry<T>(value, expires));
+	}
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void clear() {
+	synchronized (entries) {
+	    entries.clear();
+	}
+    }
+
+    /**
+     * Get number of cached entries.
+     * 
+     * @return
+     */
+    public int size() {
+	synchronized (entries) {
+	    return entries.size();
+	}
+    }
+
+    /**
+     * Register cache metrics with a registry using the given name prefix. Metrics
+     * previously registered under the same names are replaced.
+     * 
+     * @param registry
+     * @param prefix
+     */
+    public void registerMetrics(MetricRegistry registry, String prefix) {
+	register(registry, MetricRegistry.name(prefix, "hits"), hits);
+	register(registry, MetricRegistry.name(prefix, "misses"), misses);
+	register(registry, MetricRegistry.name(prefix, "evictions"), evictions);
+	register(registry, MetricRegistry.name(prefix, "size"), new Gauge<Integer>() {
+
+	    @Override
+	    public Integer getValue() {
+		return size();
+	    }
+	});
+    }
+
+    /**
+     * Register a metric, replacing any existing metric with the same name.
+     * 
+     * @param registry
+     * @param name
+     * @param metric
+     */
+    protected static void register(MetricRegistry registry, String name, Metric metric) {
+	registry.remove(name);
+	registry.register(name, metric);
+    }
+
+    /**
+     * Calculate the cache key for a token.
+     * 
+     * @param token
+     * @return
+     */
+    protected static String hash(String token) {
+	MessageDigest digest = DIGEST.get();
+	digest.reset();
+	return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public int getMaxEntries() {
+	return maxEntries;
+    }
+
+    public long getMaxAgeMs() {
+	return maxAgeMs;
+    }
+
+    public Meter getHits() {
+	return hits;
+    }
+
+    public Meter getMisses() {
+	return misses;
+    }
+
+    public Meter getEvictions() {
+	return evictions;
+    }
+
+    /**
+     * Cached value with expiration time.
+     * 
+     * @param <T>
+     */
+    private static class Entry<T> {
+
+	/** Cached value */
+	private T value;
+
+	/** Time at which entry expires */
+	private long expires;
+
+	public Entry(T value, long expires) {
+	    this.value = value;
+	    this.expires = expires;
+	}
+
+	public T getValue() {
+	    return value;
+	}
+
+	public long getExpires() {
+	    return expires;
+	}
+    }
+}
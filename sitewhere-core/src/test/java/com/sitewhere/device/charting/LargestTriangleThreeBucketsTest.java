@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.charting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregate;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate;
+
+/**
+ * Verifies endpoint retention, bucket boundaries and point selection of the
+ * largest-triangle-three-buckets downsampling.
+ *
+ * @author Derek
+ */
+public class LargestTriangleThreeBucketsTest {
+
+    @Test
+    public void testEmptyAndSinglePointInput() throws Exception {
+	List<IMeasurementAggregate> empty = Collections.emptyList();
+	assertSame(empty, LargestTriangleThreeBuckets.downsample(empty, 3));
+
+	List<IMeasurementAggregate> single = series(5.0);
+	assertSame(single, LargestTriangleThreeBuckets.downsample(single, 3));
+    }
+
+    @Test
+    public void testInputReturnedWhenWithinThreshold() throws Exception {
+	List<IMeasurementAggregate> data = series(1, 2, 3, 4, 5);
+	assertSame(data, LargestTriangleThreeBuckets.downsample(data, 5));
+	assertSame(data, LargestTriangleThreeBuckets.downsample(data, 10));
+
+	// Thresholds below three can not keep both endpoints and a middle point.
+	assertSame(data, LargestTriangleThreeBuckets.downsample(data, 2));
+    }
+
+    @Test
+    public void testKeepsEndpoints() throws Exception {
+	List<IMeasurementAggregate> data = new ArrayList<>();
+	for (int i = 0; i < 100; i++) {
+	    data.add(point(i, Math.sin(i / 5.0)));
+	}
+	List<IMeasurementAggregate> sampled = LargestTriangleThreeBuckets.downsample(data, 10);
+	assertEquals(10, sampled.size());
+	assertSame(data.get(0), sampled.get(0));
+	assertSame(data.get(99), sampled.get(9));
+    }
+
+    @Test
+    public void testOnePointPerBucket() throws Exception {
+	// Ten points into four leaves two buckets of four points (1-4 and 5-8).
+	List<IMeasurementAggregate> data = series(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+	List<IMeasurementAggregate> sampled = LargestTriangleThreeBuckets.downsample(data, 4);
+	assertEquals(4, sampled.size());
+	int first = data.indexOf(sampled.get(1));
+	int second = data.indexOf(sampled.get(2));
+	assertTrue((first >= 1) && (first <= 4));
+	assertTrue((second >= 5) && (second <= 8));
+
+	// Points are returned in date order.
+	for (int i = 1; i < sampled.size(); i++) {
+	    assertTrue(sampled.get(i).getBucketDate().after(sampled.get(i - 1).getBucketDate()));
+	}
+    }
+
+    @Test
+    public void testSelectsPeaks() throws Exception {
+	List<IMeasurementAggregate> data = series(0, 0, 0, 50, 0, 0, 0, -50, 0, 0);
+	List<IMeasurementAggregate> sampled = LargestTriangleThreeBuckets.downsample(data, 4);
+	assertSame(data.get(3), sampled.get(1));
+	assertSame(data.get(7), sampled.get(2));
+    }
+
+    @Test
+    public void testFallsBackToOtherValues() throws Exception {
+	// Series with only maximum values is sampled on those values.
+	List<IMeasurementAggregate> data = new ArrayList<>();
+	for (int i = 0; i < 10; i++) {
+	    MeasurementAggregate aggregate = new MeasurementAggregate();
+	    aggregate.setBucketDate(new Date(i * 1000L));
+	    aggregate.setMax((i == 6) ? 100.0 : 0.0);
+	    data.add(aggregate);
+	}
+	List<IMeasurementAggregate> sampled = LargestTriangleThreeBuckets.downsample(data, 4);
+	assertSame(data.get(6), sampled.get(2));
+    }
+
+    protected List<IMeasurementAggregate> series(double... values) {
+	List<IMeasurementAggregate> data = new ArrayList<>();
+	for (int i = 0; i < values.length; i++) {
+	    data.add(point(i, values[i]));
+	}
+	return data;
+    }
+
+    protected MeasurementAggregate point(int index, double value) {
+	MeasurementAggregate aggregate = new MeasurementAggregate();
+	aggregate.setBucketDate(new Date(index * 1000L));
+	aggregate.setAvg(value);
+	return aggregate;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.charting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregationCriteria;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregate;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.MeasurementAggregateFunction;
+
+/**
+ * Verifies bucketing, aggregate functions, name filtering and validation of
+ * the streaming measurement aggregator.
+ *
+ * @author Derek
+ */
+public class MeasurementAggregatorTest {
+
+    /** Bucket width used by tests */
+    private static final long INTERVAL = 1000;
+
+    @Test
+    public void testBucketStart() throws Exception {
+	assertEquals(0, MeasurementAggregator.getBucketStart(0, INTERVAL));
+	assertEquals(0, MeasurementAggregator.getBucketStart(999, INTERVAL));
+	assertEquals(1000, MeasurementAggregator.getBucketStart(1000, INTERVAL));
+	assertEquals(12000, MeasurementAggregator.getBucketStart(12345, INTERVAL));
+
+	// Times before the epoch fall into the bucket below them.
+	assertEquals(-1000, MeasurementAggregator.getBucketStart(-1, INTERVAL));
+    }
+
+    @Test
+    public void testEmptyInput() throws Exception {
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria());
+	assertTrue(aggregator.getResults().isEmpty());
+
+	// Null values are ignored.
+	aggregator.add("temp", new Date(0), null);
+	assertTrue(aggregator.getResults().isEmpty());
+    }
+
+    @Test
+    public void testSinglePoint() throws Exception {
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria());
+	aggregator.add("temp", new Date(1500), 7.0);
+	IMeasurementAggregate aggregate = single(aggregator.getResults()).getEntries().get(0);
+	assertEquals(1000, aggregate.getBucketDate().getTime());
+	assertEquals(Long.valueOf(1), aggregate.getCount());
+	assertEquals(7.0, aggregate.getMin(), 0);
+	assertEquals(7.0, aggregate.getMax(), 0);
+	assertEquals(7.0, aggregate.getAvg(), 0);
+	assertEquals(7.0, aggregate.getLast(), 0);
+    }
+
+    @Test
+    public void testAggregateFunctions() throws Exception {
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria());
+
+	// Values arrive out of order. Last is taken by event date.
+	aggregator.add("temp", new Date(900), 4.0);
+	aggregator.add("temp", new Date(100), 2.0);
+	aggregator.add("temp", new Date(500), 9.0);
+	aggregator.add("temp", new Date(1000), 1.0);
+
+	List<IMeasurementAggregate> entries = single(aggregator.getResults()).getEntries();
+	assertEquals(2, entries.size());
+	IMeasurementAggregate first = entries.get(0);
+	assertEquals(0, first.getBucketDate().getTime());
+	assertEquals(Long.valueOf(3), first.getCount());
+	assertEquals(2.0, first.getMin(), 0);
+	assertEquals(9.0, first.getMax(), 0);
+	assertEquals(5.0, first.getAvg(), 0.0001);
+	assertEquals(4.0, first.getLast(), 0);
+
+	// Value on a bucket boundary starts the next bucket.
+	IMeasurementAggregate second = entries.get(1);
+	assertEquals(1000, second.getBucketDate().getTime());
+	assertEquals(Long.valueOf(1), second.getCount());
+    }
+
+    @Test
+    public void testRequestedFunctionsOnly() throws Exception {
+	MeasurementAggregationCriteria criteria = criteria();
+	criteria.setFunctions(Arrays.asList(MeasurementAggregateFunction.Min, MeasurementAggregateFunction.Last));
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria);
+	aggregator.add("temp", new Date(100), 3.0);
+	aggregator.add("temp", new Date(200), 5.0);
+
+	IMeasurementAggregate aggregate = single(aggregator.getResults()).getEntries().get(0);
+	assertEquals(3.0, aggregate.getMin(), 0);
+	assertEquals(5.0, aggregate.getLast(), 0);
+	assertNull(aggregate.getCount());
+	assertNull(aggregate.getMax());
+	assertNull(aggregate.getAvg());
+    }
+
+    @Test
+    public void testFiltersMeasurementNames() throws Exception {
+	MeasurementAggregationCriteria criteria = criteria();
+	criteria.setMeasurementNames(Arrays.asList("temp"));
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria);
+	aggregator.add("temp", new Date(100), 3.0);
+	aggregator.add("humidity", new Date(100), 40.0);
+	assertEquals("temp", single(aggregator.getResults()).getMeasurementName());
+    }
+
+    @Test
+    public void testDownsamplesToMaxPoints() throws Exception {
+	MeasurementAggregationCriteria criteria = criteria();
+	criteria.setMaxPoints(3);
+	MeasurementAggregator aggregator = new MeasurementAggregator(criteria);
+	for (int i = 0; i < 10; i++) {
+	    aggregator.add("temp", new Date(i * INTERVAL), (double) i);
+	}
+	List<IMeasurementAggregate> entries = single(aggregator.getResults()).getEntries();
+	assertEquals(3, entries.size());
+	assertEquals(0, entries.get(0).getBucketDate().getTime());
+	assertEquals(9 * INTERVAL, entries.get(2).getBucketDate().getTime());
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+	assertInvalid(new MeasurementAggregationCriteria(null, null, 0));
+	assertInvalid(new MeasurementAggregationCriteria(new Date(0),
+		new Date((MeasurementAggregator.MAX_BUCKETS_PER_SERIES + 1) * INTERVAL), INTERVAL));
+	MeasurementAggregationCriteria criteria = criteria();
+	criteria.setMaxPoints(2);
+	assertInvalid(criteria);
+
+	MeasurementAggregator.validate(new MeasurementAggregationCriteria(new Date(0),
+		new Date(MeasurementAggregator.MAX_BUCKETS_PER_SERIES * INTERVAL), INTERVAL));
+    }
+
+    protected MeasurementAggregationCriteria criteria() {
+	return new MeasurementAggregationCriteria(null, null, INTERVAL);
+    }
+
+    protected IMeasurementAggregateSeries single(List<IMeasurementAggregateSeries> results) {
+	assertEquals(1, results.size());
+	return results.get(0);
+    }
+
+    protected void assertInvalid(MeasurementAggregationCriteria criteria) {
+	try {
+	    MeasurementAggregator.validate(criteria);
+	    fail("Invalid criteria were accepted.");
+	} catch (SiteWhereException e) {
+	    // Expected.
+	}
+    }
+}
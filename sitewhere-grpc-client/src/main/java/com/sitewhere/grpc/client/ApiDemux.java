@@ -14,8 +14,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.backoff.BackOffExecution;
 import org.springframework.util.backoff.ExponentialBackOff;
 
@@ -29,7 +27,6 @@ import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.discovery.IServiceNode;
 import com.sitewhere.spi.microservice.discovery.ServiceNodeStatus;
-import com.sitewhere.spi.security.ITenantAwareAuthentication;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
 import com.sitewhere.spi.tenant.ITenant;
@@ -126,12 +123,7 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
     @Override
     public T getApiChannel() {
 	try {
-	    ITenant tenant = null;
-	    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-	    if ((authentication != null) && (authentication instanceof ITenantAwareAuthentication)) {
-		tenant = ((ITenantAwareAuthentication) authentication).getTenant();
-	    }
-	    return getApiChannelWithConstraints(tenant);
+	    return getApiChannelWithConstraints(TenantExecutionContext.currentTenant());
 	} catch (SiteWhereException e) {
 	    throw new RuntimeException("Unable to get API channel.", e);
 	}
@@ -63,6 +63,9 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
     /** Client interceptor for GRPC tracing */
     private ClientTracingInterceptor tracingInterceptor;
 
+    /** Client interceptor for call latency metrics */
+    private MetricsClientInterceptor metricsInterceptor;
+
     /** Executor service used to handle GRPC requests */
     private ExecutorService serverExecutor = Executors.newFixedThreadPool(THREAD_POOL_SIZE,
 	    new GrpcClientThreadFactory());
@@ -92,6 +95,9 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	    if (isUseTracingInterceptor()) {
 		builder.intercept(getTracingInterceptor());
 	    }
+	    if (getMetricsInterceptor() != null) {
+		builder.intercept(getMetricsInterceptor());
+	    }
 	    this.channel = builder.build();
 	    this.blockingStub = createBlockingStub();
 	    this.asyncStub = createAsyncStub();
@@ -187,6 +193,23 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	this.jwtInterceptor = jwtInterceptor;
     }
 
+    /**
+     * Get interceptor that records call latency metrics.
+     * 
+     * @return interceptor or null if no microservice is available
+     */
+    public MetricsClientInterceptor getMetricsInterceptor() {
+	if ((metricsInterceptor == null) && (getMicroservice() != null)) {
+	    metricsInterceptor = new MetricsClientInterceptor(getMicroservice().getMetricRegistry(),
+		    getMicroservice().getIdentifier().getPath() + ".grpc.client");
+	}
+	return metricsInterceptor;
+    }
+
+    public void setMetricsInterceptor(MetricsClientInterceptor metricsInterceptor) {
+	this.metricsInterceptor = metricsInterceptor;
+    }
+
     public ClientTracingInterceptor getTracingInterceptor() {
 	return tracingInterceptor;
     }
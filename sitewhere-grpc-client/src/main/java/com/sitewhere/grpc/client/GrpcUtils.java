@@ -7,11 +7,8 @@
  */
 package com.sitewhere.grpc.client;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +32,7 @@ import com.sitewhere.spi.microservice.ServiceNotAvailableException;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
 import com.sitewhere.spi.microservice.multitenant.IMultitenantMicroservice;
 import com.sitewhere.spi.microservice.multitenant.TenantEngineNotAvailableException;
+import com.sitewhere.spi.microservice.security.IVerifiedToken;
 import com.sitewhere.spi.tenant.ITenant;
 import com.sitewhere.spi.user.IGrantedAuthority;
 
@@ -44,16 +42,12 @@ import io.grpc.Status.Code;
 import io.grpc.StatusException;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
-import io.jsonwebtoken.Claims;
 
 public class GrpcUtils {
 
     /** Static logger instance */
     private static Logger LOGGER = LoggerFactory.getLogger(GrpcUtils.class);
 
-    /** Hashmap of JWT to decoded claims */
-    private static Map<String, Claims> jwtToClaims = new HashMap<String, Claims>();
-
     public static void handleClientMethodEntry(IApiChannel<?> channel, MethodDescriptor<?, ?> method,
 	    DebugParameter... parameters) {
 	LOGGER.debug(channel.getClass().getSimpleName() + " connected to '" + channel.getHostname()
@@ -107,34 +101,14 @@ public class GrpcUtils {
 		    tenant = engine.getTenant();
 		}
 	    }
-	    Claims claims = getClaimsForJwt(api, jwt);
-	    String username = api.getMicroservice().getTokenManagement().getUsernameFromClaims(claims);
-	    List<IGrantedAuthority> gauths = api.getMicroservice().getTokenManagement()
-		    .getGrantedAuthoritiesFromClaims(claims);
-	    List<String> auths = gauths.stream().map(g -> g.getAuthority()).collect(Collectors.toList());
-	    establishSecurityContext(jwt, username, gauths, auths, tenant);
+	    IVerifiedToken verified = api.getMicroservice().getTokenManagement().getVerifiedToken(jwt);
+	    establishSecurityContext(jwt, verified.getUsername(), verified.getGrantedAuthorities(),
+		    verified.getAuthorityIds(), tenant);
 	} catch (SiteWhereException e) {
 	    LOGGER.error("Error in gRPC server method " + method.getFullMethodName(), e);
 	}
     }
 
-    /**
-     * Get cached claims for JWT.
-     * 
-     * @param jwt
-     * @return
-     * @throws SiteWhereException
-     */
-    protected static Claims getClaimsForJwt(IGrpcApiImplementation api, String jwt) throws SiteWhereException {
-	// TODO: Swap to expiring cache and put limits on number of cached JWTs.
-	Claims claims = jwtToClaims.get(jwt);
-	if (claims == null) {
-	    claims = api.getMicroservice().getTokenManagement().getClaimsForToken(jwt);
-	    jwtToClaims.put(jwt, claims);
-	}
-	return claims;
-    }
-
     /**
      * Indicate that Spring security content was not properly cleared previously.
      */
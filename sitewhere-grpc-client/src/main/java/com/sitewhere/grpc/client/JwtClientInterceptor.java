@@ -9,8 +9,6 @@ package com.sitewhere.grpc.client;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 
 import io.grpc.CallOptions;
 import io.grpc.Channel;
@@ -21,8 +19,8 @@ import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 
 /**
- * GRPC interceptor that pushes JWT from Spring Security credentials into call
- * metadata.
+ * GRPC interceptor that pushes JWT from the {@link TenantExecutionContext} (or
+ * Spring Security credentials if none is attached) into call metadata.
  * 
  * @author Derek
  */
@@ -54,11 +52,11 @@ public class JwtClientInterceptor implements ClientInterceptor {
 	     */
 	    @Override
 	    public void start(Listener<RespT> responseListener, Metadata headers) {
-		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-		if (authentication == null) {
+		TenantExecutionContext context = TenantExecutionContext.forCall(callOptions);
+		if (context == null) {
 		    throw new RuntimeException("Attempting to make remote call with no Spring Security context.");
 		}
-		String jwt = (String) authentication.getCredentials();
+		String jwt = context.getJwt();
 		if (jwt == null) {
 		    throw new RuntimeException("Attempting to make remote call with no JWT provided.");
 		}
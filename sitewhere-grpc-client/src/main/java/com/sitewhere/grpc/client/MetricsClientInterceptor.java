@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sitewhere.metrics.MetricsUtils;
+import com.sitewhere.spi.tenant.ITenant;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * GRPC interceptor that records client-side latency for each call, from the
+ * time the call is started until it is closed. Timers are tagged with the
+ * method name, the resulting status code and the tenant from the
+ * {@link TenantExecutionContext} for the call.
+ * 
+ * @author Derek
+ */
+public class MetricsClientInterceptor implements ClientInterceptor {
+
+    /** Registry metrics are added to */
+    private MetricRegistry metricRegistry;
+
+    /** Base metric name */
+    private String metricName;
+
+    public MetricsClientInterceptor(MetricRegistry metricRegistry, String metricName) {
+	this.metricRegistry = metricRegistry;
+	this.metricName = metricName;
+    }
+
+    /*
+     * @see io.grpc.ClientInterceptor#interceptCall(io.grpc.MethodDescriptor,
+     * io.grpc.CallOptions, io.grpc.Channel)
+     */
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+	    CallOptions callOptions, Channel next) {
+	return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+
+	    /*
+	     * @see io.grpc.ForwardingClientCall#start(io.grpc.ClientCall.Listener,
+	     * io.grpc.Metadata)
+	     */
+	    @Override
+	    public void start(Listener<RespT> responseListener, Metadata headers) {
+		final long start = System.nanoTime();
+		final String tenant = getTenantToken(callOptions);
+		super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+
+		    /*
+		     * @see io.grpc.ForwardingClientCallListener#onClose(io.grpc.Status,
+		     * io.grpc.Metadata)
+		     */
+		    @Override
+		    public void onClose(Status status, Metadata trailers) {
+			String name = MetricsUtils.tagged(getMetricName(), "method", method.getFullMethodName(),
+				"status", status.getCode().name());
+			name = MetricsUtils.withTag(name, MetricsUtils.TAG_TENANT, tenant);
+			MetricsUtils.timer(getMetricRegistry(), name).update(System.nanoTime() - start,
+				TimeUnit.NANOSECONDS);
+			super.onClose(status, trailers);
+		    }
+		}, headers);
+	    }
+	};
+    }
+
+    /**
+     * Get token for tenant associated with the call.
+     * 
+     * @param callOptions
+     * @return
+     */
+    protected String getTenantToken(CallOptions callOptions) {
+	TenantExecutionContext context = TenantExecutionContext.forCall(callOptions);
+	ITenant tenant = (context != null) ? context.getTenant() : null;
+	return (tenant != null) ? tenant.getToken() : null;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+	return metricRegistry;
+    }
+
+    public String getMetricName() {
+	return metricName;
+    }
+}
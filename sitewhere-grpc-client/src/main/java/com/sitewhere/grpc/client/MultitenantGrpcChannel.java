@@ -60,6 +60,9 @@ public abstract class MultitenantGrpcChannel<B, A> extends GrpcChannel<B, A> imp
 	if (isUseTracingInterceptor()) {
 	    builder.intercept(getTracingInterceptor());
 	}
+	if (getMetricsInterceptor() != null) {
+	    builder.intercept(getMetricsInterceptor());
+	}
 	this.channel = builder.build();
 	this.blockingStub = createBlockingStub();
 	this.asyncStub = createAsyncStub();
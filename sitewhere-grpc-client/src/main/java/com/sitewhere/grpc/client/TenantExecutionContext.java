@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.sitewhere.spi.security.ITenantAwareAuthentication;
+import com.sitewhere.spi.tenant.ITenant;
+
+import io.grpc.CallOptions;
+import io.grpc.Context;
+
+/**
+ * Immutable tenant and credentials used for outbound gRPC calls. A context is
+ * attached to the current gRPC {@link Context} (or passed explicitly via
+ * {@link CallOptions}) so that API demuxes and client interceptors can resolve
+ * the tenant and JWT without consulting the Spring Security context on each
+ * call. When no context has been attached, values are taken from the Spring
+ * Security context as before. An authentication placed in the Spring Security
+ * context after the context was attached (e.g. when switching tenants) takes
+ * precedence over the attached context.
+ *
+ * @author Derek
+ */
+public final class TenantExecutionContext {
+
+    /** Key for accessing execution context from gRPC context */
+    public static final Context.Key<TenantExecutionContext> CONTEXT_KEY = Context.key("tenant-execution-context");
+
+    /** Key for passing execution context explicitly in call options */
+    public static final CallOptions.Key<TenantExecutionContext> CALL_OPTION_KEY = CallOptions.Key
+	    .createWithDefault("tenant-execution-context", null);
+
+    /** Tenant (null for system-level calls) */
+    private final ITenant tenant;
+
+    /** JWT passed to remote calls */
+    private final String jwt;
+
+    /** Authentication the context was created from */
+    private final Authentication authentication;
+
+    private TenantExecutionContext(ITenant tenant, String jwt, Authentication authentication) {
+	this.tenant = tenant;
+	this.jwt = jwt;
+	this.authentication = authentication;
+    }
+
+    /**
+     * Create an execution context based on an existing authentication.
+     *
+     * @param authentication
+     * @return
+     */
+    public static TenantExecutionContext forAuthentication(Authentication authentication) {
+	ITenant tenant = (authentication instanceof ITenantAwareAuthentication)
+		? ((ITenantAwareAuthentication) authentication).getTenant()
+		: null;
+	String jwt = (authentication != null) ? (String) authentication.getCredentials() : null;
+	return new TenantExecutionContext(tenant, jwt, authentication);
+    }
+
+    /**
+     * Get execution context attached to the current gRPC context or, if none is
+     * attached, build one from the Spring Security context. If the Spring
+     * Security context holds a different authentication than the one the attached
+     * context was created from, the Spring authentication wins so that tenant
+     * switches are not ignored. Returns null if neither is available.
+     *
+     * @return
+     */
+    public static TenantExecutionContext current() {
+	TenantExecutionContext context = CONTEXT_KEY.get();
+	Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+	if ((context != null) && ((authentication == null) || (authentication == context.getAuthentication()))) {
+	    return context;
+	}
+	return (authentication != null) ? forAuthentication(authentication) : null;
+    }
+
+    /**
+     * Resolve execution context for an outbound call. Context passed explicitly in
+     * call options takes precedence over the current context.
+     *
+     * @param callOptions
+     * @return
+     */
+    public static TenantExecutionContext forCall(CallOptions callOptions) {
+	TenantExecutionContext context = callOptions.getOption(CALL_OPTION_KEY);
+	return (context != null) ? context : current();
+    }
+
+    /**
+     * Get tenant associated with the current execution context.
+     *
+     * @return
+     */
+    public static ITenant currentTenant() {
+	TenantExecutionContext context = current();
+	return (context != null) ? context.getTenant() : null;
+    }
+
+    /**
+     * Run code with this execution context attached to the gRPC context.
+     *
+     * @param runnable
+     */
+    public void run(Runnable runnable) {
+	Context.current().withValue(CONTEXT_KEY, this).run(runnable);
+    }
+
+    /**
+     * Call code with this execution context attached to the gRPC context.
+     *
+     * @param callable
+     * @return
+     * @throws Exception
+     */
+    public <V> V call(Callable<V> callable) throws Exception {
+	return Context.current().withValue(CONTEXT_KEY, this).call(callable);
+    }
+
+    /**
+     * Add this execution context to call options for an outbound call.
+     *
+     * @param callOptions
+     * @return
+     */
+    public CallOptions applyTo(CallOptions callOptions) {
+	return callOptions.withOption(CALL_OPTION_KEY, this);
+    }
+
+    public ITenant getTenant() {
+	return tenant;
+    }
+
+    public String getJwt() {
+	return jwt;
+    }
+
+    public Authentication getAuthentication() {
+	return authentication;
+    }
+}
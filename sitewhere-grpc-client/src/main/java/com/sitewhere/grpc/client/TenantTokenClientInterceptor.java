@@ -7,10 +7,6 @@
  */
 package com.sitewhere.grpc.client;
 
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-
-import com.sitewhere.spi.security.ITenantAwareAuthentication;
 import com.sitewhere.spi.tenant.ITenant;
 
 import io.grpc.CallOptions;
@@ -22,7 +18,8 @@ import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 
 /**
- * GRPC interceptor that pushes tenant token into GRPC call metadata.
+ * GRPC interceptor that pushes tenant token into GRPC call metadata. The tenant
+ * is taken from the {@link TenantExecutionContext} for the call.
  * 
  * @author Derek
  */
@@ -51,12 +48,10 @@ public class TenantTokenClientInterceptor implements ClientInterceptor {
 	     */
 	    @Override
 	    public void start(Listener<RespT> responseListener, Metadata headers) {
-		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-		if ((authentication != null) && (authentication instanceof ITenantAwareAuthentication)) {
-		    ITenant tenant = ((ITenantAwareAuthentication) authentication).getTenant();
-		    if (tenant != null) {
-			headers.put(TENANT_ID_KEY, tenant.getId().toString());
-		    }
+		TenantExecutionContext context = TenantExecutionContext.forCall(callOptions);
+		ITenant tenant = (context != null) ? context.getTenant() : null;
+		if (tenant != null) {
+		    headers.put(TENANT_ID_KEY, tenant.getId().toString());
 		}
 		super.start(responseListener, headers);
 	    }
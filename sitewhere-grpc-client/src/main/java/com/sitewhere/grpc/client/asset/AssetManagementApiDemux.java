@@ -7,7 +7,10 @@
  */
 package com.sitewhere.grpc.client.asset;
 
+import java.io.File;
+
 import com.sitewhere.grpc.client.MultitenantApiDemux;
+import com.sitewhere.grpc.client.cache.CacheProvider;
 import com.sitewhere.grpc.client.spi.client.IAssetManagementApiChannel;
 import com.sitewhere.grpc.client.spi.client.IAssetManagementApiDemux;
 import com.sitewhere.spi.SiteWhereException;
@@ -47,8 +50,20 @@ public class AssetManagementApiDemux extends MultitenantApiDemux<IAssetManagemen
 	if (!cacheEnabled) {
 	    settings.getAssetTypeConfiguration().setEnabled(false);
 	    settings.getAssetConfiguration().setEnabled(false);
+	} else {
+	    settings.configureTiers(getMicroservice().getInstanceSettings().getCacheTiers(), getCacheTierPath());
 	}
 	return new CachedAssetManagementApiChannel(this, host, getMicroservice().getInstanceSettings().getGrpcPort(),
 		settings);
     }
-}
\ No newline at end of file
+
+    /**
+     * Get folder used for disk tier data by caches in this microservice.
+     * 
+     * @return
+     */
+    protected String getCacheTierPath() {
+	return new File(new File(getMicroservice().getInstanceSettings().getFileSystemStorageRoot(),
+		CacheProvider.DISK_TIER_FOLDER), getMicroservice().getIdentifier().getPath()).getPath();
+    }
+}
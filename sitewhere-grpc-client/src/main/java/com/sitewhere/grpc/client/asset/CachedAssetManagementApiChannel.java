@@ -166,6 +166,21 @@ public class CachedAssetManagementApiChannel extends AssetManagementApiChannel {
 	/** Cache configuraton for assets */
 	private ICacheConfiguration assetConfiguration = new CacheConfiguration(10000, 60);
 
+	/**
+	 * Apply tier sizes per cache type.
+	 * 
+	 * @param tiers
+	 *            comma-delimited 'type=heapEntries:offHeapMb:diskMb' entries
+	 * @param diskPath
+	 *            folder for disk tier data
+	 */
+	public void configureTiers(String tiers, String diskPath) {
+	    getAssetTypeConfiguration().setDiskPath(diskPath);
+	    CacheConfiguration.configureTiers(getAssetTypeConfiguration(), "assetType", tiers);
+	    getAssetConfiguration().setDiskPath(diskPath);
+	    CacheConfiguration.configureTiers(getAssetConfiguration(), "asset", tiers);
+	}
+
 	public ICacheConfiguration getAssetTypeConfiguration() {
 	    return assetTypeConfiguration;
 	}
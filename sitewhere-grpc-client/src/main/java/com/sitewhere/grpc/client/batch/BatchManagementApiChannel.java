@@ -7,6 +7,8 @@
  */
 package com.sitewhere.grpc.client.batch;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import com.sitewhere.grpc.client.GrpcUtils;
@@ -257,6 +259,26 @@ public class BatchManagementApiChannel extends MultitenantApiChannel<BatchManage
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.batch.IBatchManagement#createBatchElements(java.util.UUID,
+     * java.util.List)
+     */
+    @Override
+    public List<IBatchElement> createBatchElements(UUID batchOperationId,
+	    List<? extends IBatchElementCreateRequest> requests) throws SiteWhereException {
+	// Elements are only created in bulk within the batch operations service.
+	List<IBatchElement> results = new ArrayList<>();
+	for (IBatchElementCreateRequest request : requests) {
+	    try {
+		results.add(createBatchElement(batchOperationId, request));
+	    } catch (SiteWhereException e) {
+		results.add(null);
+	    }
+	}
+	return results;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#listBatchElements(java.util.UUID,
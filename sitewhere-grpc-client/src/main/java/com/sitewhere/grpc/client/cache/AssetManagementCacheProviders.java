@@ -9,17 +9,29 @@ package com.sitewhere.grpc.client.cache;
 
 import java.util.UUID;
 
+import com.sitewhere.grpc.client.asset.AssetModelConverter;
 import com.sitewhere.grpc.client.spi.cache.ICacheConfiguration;
+import com.sitewhere.grpc.model.AssetModel.GAsset;
+import com.sitewhere.grpc.model.AssetModel.GAssetType;
 import com.sitewhere.spi.asset.IAsset;
 import com.sitewhere.spi.asset.IAssetType;
 
 /**
- * Cache providers for asset management entities.
+ * Cache providers for asset management entities. Values are stored as GRPC
+ * model bytes in off-heap and disk tiers.
  * 
  * @author Derek
  */
 public class AssetManagementCacheProviders {
 
+    /** Serializer for asset types */
+    public static final GrpcModelSerializer<IAssetType, GAssetType> ASSET_TYPE_SERIALIZER = new GrpcModelSerializer<>(
+	    GAssetType.parser(), AssetModelConverter::asGrpcAssetType, AssetModelConverter::asApiAssetType);
+
+    /** Serializer for assets */
+    public static final GrpcModelSerializer<IAsset, GAsset> ASSET_SERIALIZER = new GrpcModelSerializer<>(
+	    GAsset.parser(), AssetModelConverter::asGrpcAsset, AssetModelConverter::asApiAsset);
+
     /**
      * Cache for asset types by token.
      * 
@@ -28,7 +40,8 @@ public class AssetManagementCacheProviders {
     public static class AssetTypeByTokenCache extends CacheProvider<String, IAssetType> {
 
 	public AssetTypeByTokenCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.AssetTypeByToken, String.class, IAssetType.class, configuration);
+	    super(CacheIdentifier.AssetTypeByToken, String.class, IAssetType.class, configuration,
+		    ASSET_TYPE_SERIALIZER);
 	}
     }
 
@@ -40,7 +53,7 @@ public class AssetManagementCacheProviders {
     public static class AssetTypeByIdCache extends CacheProvider<UUID, IAssetType> {
 
 	public AssetTypeByIdCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.AssetTypeById, UUID.class, IAssetType.class, configuration);
+	    super(CacheIdentifier.AssetTypeById, UUID.class, IAssetType.class, configuration, ASSET_TYPE_SERIALIZER);
 	}
     }
 
@@ -52,7 +65,7 @@ public class AssetManagementCacheProviders {
     public static class AssetByTokenCache extends CacheProvider<String, IAsset> {
 
 	public AssetByTokenCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.AssetByToken, String.class, IAsset.class, configuration);
+	    super(CacheIdentifier.AssetByToken, String.class, IAsset.class, configuration, ASSET_SERIALIZER);
 	}
     }
 
@@ -64,7 +77,7 @@ public class AssetManagementCacheProviders {
     public static class AssetByIdCache extends CacheProvider<UUID, IAsset> {
 
 	public AssetByIdCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.AssetById, UUID.class, IAsset.class, configuration);
+	    super(CacheIdentifier.AssetById, UUID.class, IAsset.class, configuration, ASSET_SERIALIZER);
 	}
     }
 }
\ No newline at end of file
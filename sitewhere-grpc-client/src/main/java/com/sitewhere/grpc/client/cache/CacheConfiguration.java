@@ -7,16 +7,29 @@
  */
 package com.sitewhere.grpc.client.cache;
 
+import java.io.File;
+
 import com.sitewhere.grpc.client.spi.cache.ICacheConfiguration;
 
 /**
- * Provides settings which control how a cache is to be configured.
+ * Provides settings which control how a cache is to be configured. Caches hold
+ * up to a maximum number of entries on heap and may overflow to off-heap and
+ * local disk tiers sized in megabytes.
  */
 public class CacheConfiguration implements ICacheConfiguration {
 
     /** Maximum number of cache entries */
     private int maximumSize;
 
+    /** Size of off-heap tier in megabytes */
+    private long offHeapSizeInMb;
+
+    /** Size of disk tier in megabytes */
+    private long diskSizeInMb;
+
+    /** Folder for disk tier data */
+    private String diskPath = new File(System.getProperty("java.io.tmpdir"), "sitewhere-cache").getPath();
+
     /** Max life of cache entries in seconds */
     private int ttlInSeconds;
 
@@ -29,6 +42,42 @@ public class CacheConfiguration implements ICacheConfiguration {
 	this.enabled = true;
     }
 
+    public CacheConfiguration(int maximumSize, int ttlInSeconds, long offHeapSizeInMb, long diskSizeInMb) {
+	this(maximumSize, ttlInSeconds);
+	this.offHeapSizeInMb = offHeapSizeInMb;
+	this.diskSizeInMb = diskSizeInMb;
+    }
+
+    /**
+     * Apply tier sizes for a cache type from a comma-delimited list of
+     * 'type=heapEntries:offHeapMb:diskMb' entries. Trailing sizes may be omitted.
+     * 
+     * @param configuration
+     * @param type
+     * @param tiers
+     */
+    public static void configureTiers(ICacheConfiguration configuration, String type, String tiers) {
+	if ((tiers == null) || (tiers.trim().length() == 0)) {
+	    return;
+	}
+	for (String entry : tiers.split(",")) {
+	    String[] parts = entry.split("=");
+	    if ((parts.length != 2) || !parts[0].trim().equals(type)) {
+		continue;
+	    }
+	    String[] sizes = parts[1].trim().split(":");
+	    if ((sizes.length > 0) && (sizes[0].length() > 0)) {
+		configuration.setMaximumSize(Integer.parseInt(sizes[0]));
+	    }
+	    if (sizes.length > 1) {
+		configuration.setOffHeapSizeInMb(Long.parseLong(sizes[1]));
+	    }
+	    if (sizes.length > 2) {
+		configuration.setDiskSizeInMb(Long.parseLong(sizes[2]));
+	    }
+	}
+    }
+
     /*
      * @see com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#getMaximumSize()
      */
@@ -64,6 +113,60 @@ public class CacheConfiguration implements ICacheConfiguration {
 	this.ttlInSeconds = ttlInSeconds;
     }
 
+    /*
+     * @see
+     * com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#getOffHeapSizeInMb()
+     */
+    @Override
+    public long getOffHeapSizeInMb() {
+	return offHeapSizeInMb;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#setOffHeapSizeInMb(
+     * long)
+     */
+    @Override
+    public void setOffHeapSizeInMb(long offHeapSizeInMb) {
+	this.offHeapSizeInMb = offHeapSizeInMb;
+    }
+
+    /*
+     * @see com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#getDiskSizeInMb()
+     */
+    @Override
+    public long getDiskSizeInMb() {
+	return diskSizeInMb;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#setDiskSizeInMb(long)
+     */
+    @Override
+    public void setDiskSizeInMb(long diskSizeInMb) {
+	this.diskSizeInMb = diskSizeInMb;
+    }
+
+    /*
+     * @see com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#getDiskPath()
+     */
+    @Override
+    public String getDiskPath() {
+	return diskPath;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#setDiskPath(java.lang
+     * .String)
+     */
+    @Override
+    public void setDiskPath(String diskPath) {
+	this.diskPath = diskPath;
+    }
+
     /*
      * @see com.sitewhere.grpc.client.spi.cache.ICacheConfiguration#isEnabled()
      */
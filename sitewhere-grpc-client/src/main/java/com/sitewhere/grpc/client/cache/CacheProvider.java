@@ -7,20 +7,34 @@
  */
 package com.sitewhere.grpc.client.cache;
 
+import java.io.File;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
+import org.ehcache.CachePersistenceException;
+import org.ehcache.PersistentCacheManager;
 import org.ehcache.config.CacheConfiguration;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.CacheManagerBuilder;
 import org.ehcache.config.builders.ExpiryPolicyBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.impl.serialization.StringSerializer;
+import org.ehcache.spi.serialization.Serializer;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import com.sitewhere.grpc.client.spi.cache.ICacheConfiguration;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.grpc.client.spi.cache.ICacheProvider;
 import com.sitewhere.server.lifecycle.LifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
@@ -28,7 +42,16 @@ import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.tenant.ITenant;
 
 /**
- * Base class for cache providers.
+ * Base class for cache providers. Entries are held on heap up to a maximum
+ * count and, if configured, overflow to off-heap and local disk tiers sized in
+ * megabytes. Values in the lower tiers are stored in serialized form, so
+ * providers that allow tiering supply a value serializer.
+ * 
+ * Without lower tiers, each tenant has its own cache and the maximum count
+ * applies per tenant. With lower tiers, entries for all tenants are held in a
+ * single cache keyed by {@link TenantScopedKey} so that the configured heap,
+ * off-heap and disk sizes are shared by all tenants rather than allocated for
+ * each of them.
  * 
  * @author Derek
  *
@@ -37,6 +60,9 @@ import com.sitewhere.spi.tenant.ITenant;
  */
 public abstract class CacheProvider<K, V> extends LifecycleComponent implements ICacheProvider<K, V> {
 
+    /** Folder (relative to file system storage root) for disk tier data */
+    public static final String DISK_TIER_FOLDER = "cache-tiers";
+
     /** Cache identifier */
     private CacheIdentifier cacheIdentifier;
 
@@ -52,19 +78,34 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
     /** Cache configuration */
     private ICacheConfiguration cacheConfiguration;
 
+    /** Serializer for values in off-heap and disk tiers */
+    private Serializer<V> valueSerializer;
+
     /** Cache for global objects */
     private Cache<K, V> globalCache;
 
     /** Map of tenant-specific caches */
     private Map<UUID, Cache<K, V>> tenantCaches = new HashMap<>();
 
+    /** Cache shared by all tenants when lower tiers are configured */
+    private Cache<TenantScopedKey<K>, V> sharedCache;
+
+    /** Hit/miss metrics indexed by tenant token (empty string for global) */
+    private Map<String, CacheMetrics> cacheMetrics = new ConcurrentHashMap<>();
+
     public CacheProvider(CacheIdentifier cacheIdentifier, Class<K> keyType, Class<V> valueType,
 	    ICacheConfiguration cacheConfiguration) {
-	this.cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build();
+	this(cacheIdentifier, keyType, valueType, cacheConfiguration, null);
+    }
+
+    public CacheProvider(CacheIdentifier cacheIdentifier, Class<K> keyType, Class<V> valueType,
+	    ICacheConfiguration cacheConfiguration, Serializer<V> valueSerializer) {
 	this.cacheIdentifier = cacheIdentifier;
 	this.keyType = keyType;
 	this.valueType = valueType;
 	this.cacheConfiguration = cacheConfiguration;
+	this.valueSerializer = valueSerializer;
+	this.cacheManager = buildCacheManager();
     }
 
     /*
@@ -85,10 +126,24 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
-	getCacheManager().close();
+	closeCacheManager();
 	super.stop(monitor);
     }
 
+    /**
+     * Close cache manager and remove any data written to the disk tier.
+     */
+    public void closeCacheManager() {
+	getCacheManager().close();
+	if (getCacheManager() instanceof PersistentCacheManager) {
+	    try {
+		((PersistentCacheManager) getCacheManager()).destroy();
+	    } catch (CachePersistenceException e) {
+		getLogger().warn("Unable to remove disk tier data for cache.", e);
+	    }
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.spi.microservice.ignite.IIgniteCacheProvider#setCacheEntry(com.
@@ -98,9 +153,13 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
     public void setCacheEntry(ITenant tenant, K key, V value) throws SiteWhereException {
 	getLogger().debug("Caching value for '" + key.toString() + "'.");
 	if ((value != null) && (getCacheConfiguration().isEnabled())) {
-	    getCache(tenant).put(key, value);
+	    if (isTiered()) {
+		getSharedCache().put(getScopedKey(tenant, key), value);
+	    } else {
+		getCache(tenant).put(key, value);
+	    }
 	} else {
-	    getCache(tenant).remove(key);
+	    removeCacheEntry(tenant, key);
 	}
     }
 
@@ -111,9 +170,15 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
      */
     @Override
     public V getCacheEntry(ITenant tenant, K key) throws SiteWhereException {
-	V result = getCache(tenant).get(key);
+	V result = isTiered() ? getSharedCache().get(getScopedKey(tenant, key)) : getCache(tenant).get(key);
+	CacheMetrics metrics = getCacheMetrics(tenant);
 	if (result != null) {
 	    getLogger().debug("Found cached value for '" + key.toString() + "'.");
+	    if (metrics != null) {
+		metrics.getHits().mark();
+	    }
+	} else if (metrics != null) {
+	    metrics.getMisses().mark();
 	}
 	return result;
     }
@@ -125,7 +190,34 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
      */
     @Override
     public void removeCacheEntry(ITenant tenant, K key) throws SiteWhereException {
-	getCache(tenant).remove(key);
+	if (isTiered()) {
+	    getSharedCache().remove(getScopedKey(tenant, key));
+	} else {
+	    getCache(tenant).remove(key);
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.grpc.client.spi.cache.ICacheProvider#getCacheEntries(com.
+     * sitewhere.spi.tenant.ITenant)
+     */
+    @Override
+    public Map<K, V> getCacheEntries(ITenant tenant) throws SiteWhereException {
+	Map<K, V> entries = new LinkedHashMap<>();
+	if (isTiered()) {
+	    UUID tenantId = (tenant != null) ? tenant.getId() : null;
+	    for (Cache.Entry<TenantScopedKey<K>, V> entry : getSharedCache()) {
+		if (Objects.equals(tenantId, entry.getKey().getTenantId())) {
+		    entries.put(entry.getKey().getKey(), entry.getValue());
+		}
+	    }
+	} else {
+	    for (Cache.Entry<K, V> entry : getCache(tenant)) {
+		entries.put(entry.getKey(), entry.getValue());
+	    }
+	}
+	return entries;
     }
 
     /**
@@ -156,6 +248,52 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
 	}
     }
 
+    /**
+     * Get cache shared by all tenants (create if not found).
+     * 
+     * @return
+     */
+    protected Cache<TenantScopedKey<K>, V> getSharedCache() {
+	synchronized (tenantCaches) {
+	    if (sharedCache == null) {
+		sharedCache = getCacheManager().createCache(getCacheIdentifier().getCacheKey(),
+			buildCacheConfiguration(getScopedKeyType(), new TenantScopedKeySerializer<K>(getKeySerializer())));
+	    }
+	    return sharedCache;
+	}
+    }
+
+    /**
+     * Get key for an entry in the cache shared by all tenants.
+     * 
+     * @param tenant
+     * @param key
+     * @return
+     */
+    protected TenantScopedKey<K> getScopedKey(ITenant tenant, K key) {
+	return new TenantScopedKey<K>((tenant != null) ? tenant.getId() : null, key);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Class<TenantScopedKey<K>> getScopedKeyType() {
+	return (Class<TenantScopedKey<K>>) (Class<?>) TenantScopedKey.class;
+    }
+
+    /**
+     * Get hit/miss metrics for the cache associated with a tenant (or null for
+     * global).
+     * 
+     * @param tenant
+     * @return metrics or null if no microservice is available
+     */
+    protected CacheMetrics getCacheMetrics(ITenant tenant) {
+	if (getMicroservice() == null) {
+	    return null;
+	}
+	String token = (tenant != null) ? tenant.getToken() : "";
+	return cacheMetrics.computeIfAbsent(token, t -> new CacheMetrics(tenant));
+    }
+
     /**
      * Create a new cache for the given tenant (or null for global).
      * 
@@ -165,21 +303,88 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
     protected Cache<K, V> createCache(ITenant tenant) {
 	String alias = (tenant != null) ? getCacheIdentifier().getCacheKey() + "-" + tenant.getId().toString()
 		: getCacheIdentifier().getCacheKey();
-	return getCacheManager().createCache(alias, buildCacheConfiguration());
+	return getCacheManager().createCache(alias, buildCacheConfiguration(getKeyType(), null));
+    }
+
+    /**
+     * Indicates whether entries overflow from heap to off-heap or disk tiers.
+     * 
+     * @return
+     */
+    protected boolean isTiered() {
+	ICacheConfiguration config = getCacheConfiguration();
+	return config.isEnabled() && (getValueSerializer() != null) && (getKeySerializer() != null)
+		&& ((config.getOffHeapSizeInMb() > 0) || (config.getDiskSizeInMb() > 0));
+    }
+
+    /**
+     * Build cache manager. A disk tier requires a persistent cache manager with
+     * a folder unique to this provider.
+     * 
+     * @return
+     */
+    protected CacheManager buildCacheManager() {
+	if (isTiered() && (getCacheConfiguration().getDiskSizeInMb() > 0)) {
+	    File folder = new File(getCacheConfiguration().getDiskPath(),
+		    getCacheIdentifier().getCacheKey() + "-" + UUID.randomUUID().toString());
+	    return CacheManagerBuilder.newCacheManagerBuilder().with(CacheManagerBuilder.persistence(folder)).build();
+	}
+	return CacheManagerBuilder.newCacheManagerBuilder().build();
+    }
+
+    /**
+     * Build resource pools for heap and any configured off-heap and disk tiers.
+     * Pools with lower tiers are only used by the cache shared by all tenants.
+     * 
+     * @return
+     */
+    protected ResourcePoolsBuilder buildResourcePools() {
+	ResourcePoolsBuilder pools = ResourcePoolsBuilder.newResourcePoolsBuilder()
+		.heap(getCacheConfiguration().getMaximumSize(), EntryUnit.ENTRIES);
+	if (isTiered()) {
+	    if (getCacheConfiguration().getOffHeapSizeInMb() > 0) {
+		pools = pools.offheap(getCacheConfiguration().getOffHeapSizeInMb(), MemoryUnit.MB);
+	    }
+	    if (getCacheConfiguration().getDiskSizeInMb() > 0) {
+		pools = pools.disk(getCacheConfiguration().getDiskSizeInMb(), MemoryUnit.MB, false);
+	    }
+	}
+	return pools;
     }
 
     /**
      * Get cache configuration.
      * 
+     * @param keyType
+     * @param keySerializer
+     *            serializer for keys in lower tiers (null if not tiered)
      * @return
      */
-    protected CacheConfiguration<K, V> buildCacheConfiguration() {
-	return CacheConfigurationBuilder
-		.newCacheConfigurationBuilder(getKeyType(), getValueType(),
-			ResourcePoolsBuilder.heap(getCacheConfiguration().getMaximumSize()))
+    protected <T> CacheConfiguration<T, V> buildCacheConfiguration(Class<T> keyType, Serializer<T> keySerializer) {
+	CacheConfigurationBuilder<T, V> builder = CacheConfigurationBuilder
+		.newCacheConfigurationBuilder(keyType, getValueType(), buildResourcePools())
 		.withExpiry(ExpiryPolicyBuilder
-			.timeToLiveExpiration(Duration.ofSeconds(getCacheConfiguration().getTtlInSeconds())))
-		.build();
+			.timeToLiveExpiration(Duration.ofSeconds(getCacheConfiguration().getTtlInSeconds())));
+	if (keySerializer != null) {
+	    builder = builder.withKeySerializer(keySerializer).withValueSerializer(getValueSerializer());
+	}
+	return builder.build();
+    }
+
+    /**
+     * Get serializer for keys in off-heap and disk tiers. Returns null if keys of
+     * this type can not be stored in lower tiers.
+     * 
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected Serializer<K> getKeySerializer() {
+	if (UUID.class.equals(getKeyType())) {
+	    return (Serializer<K>) new UuidSerializer();
+	} else if (String.class.equals(getKeyType())) {
+	    return (Serializer<K>) new StringSerializer();
+	}
+	return null;
     }
 
     /*
@@ -219,6 +424,10 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
 	return valueType;
     }
 
+    protected Serializer<V> getValueSerializer() {
+	return valueSerializer;
+    }
+
     protected Cache<K, V> getGlobalCache() {
 	return globalCache;
     }
@@ -226,4 +435,56 @@ public abstract class CacheProvider<K, V> extends LifecycleComponent implements
     protected Map<UUID, Cache<K, V>> getTenantCaches() {
 	return tenantCaches;
     }
+
+    /**
+     * Hit and miss meters for a single cache along with a gauge that reports the
+     * ratio of hits to lookups.
+     */
+    protected class CacheMetrics {
+
+	/** Meter for cache hits */
+	private Meter hits;
+
+	/** Meter for cache misses */
+	private Meter misses;
+
+	public CacheMetrics(ITenant tenant) {
+	    MetricRegistry registry = getMicroservice().getMetricRegistry();
+	    String base = getMicroservice().getIdentifier().getPath() + ".cache.";
+	    this.hits = registry.meter(getMetricName(base + "hits", tenant));
+	    this.misses = registry.meter(getMetricName(base + "misses", tenant));
+	    try {
+		registry.register(getMetricName(base + "hitRatio", tenant), new RatioGauge() {
+
+		    @Override
+		    protected Ratio getRatio() {
+			long hitCount = hits.getCount();
+			return Ratio.of(hitCount, hitCount + misses.getCount());
+		    }
+		});
+	    } catch (IllegalArgumentException e) {
+		// Gauge already registered for cache.
+	    }
+	}
+
+	/**
+	 * Get metric name tagged with cache key and tenant.
+	 * 
+	 * @param name
+	 * @param tenant
+	 * @return
+	 */
+	protected String getMetricName(String name, ITenant tenant) {
+	    return MetricsUtils.withTag(MetricsUtils.tagged(name, "cache", getCacheIdentifier().getCacheKey()),
+		    MetricsUtils.TAG_TENANT, (tenant != null) ? tenant.getToken() : null);
+	}
+
+	public Meter getHits() {
+	    return hits;
+	}
+
+	public Meter getMisses() {
+	    return misses;
+	}
+    }
 }
\ No newline at end of file
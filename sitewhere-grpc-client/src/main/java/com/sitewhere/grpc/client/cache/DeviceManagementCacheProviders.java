@@ -9,19 +9,43 @@ package com.sitewhere.grpc.client.cache;
 
 import java.util.UUID;
 
+import com.sitewhere.grpc.client.device.DeviceModelConverter;
 import com.sitewhere.grpc.client.spi.cache.ICacheConfiguration;
+import com.sitewhere.grpc.model.DeviceModel.GArea;
+import com.sitewhere.grpc.model.DeviceModel.GDevice;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignment;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceType;
 import com.sitewhere.spi.area.IArea;
 import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.IDeviceType;
 
 /**
- * Cache providers for device management entities.
+ * Cache providers for device management entities. Values are stored as GRPC
+ * model bytes in off-heap and disk tiers.
  * 
  * @author Derek
  */
 public class DeviceManagementCacheProviders {
 
+    /** Serializer for areas */
+    public static final GrpcModelSerializer<IArea, GArea> AREA_SERIALIZER = new GrpcModelSerializer<>(
+	    GArea.parser(), DeviceModelConverter::asGrpcArea, DeviceModelConverter::asApiArea);
+
+    /** Serializer for device types */
+    public static final GrpcModelSerializer<IDeviceType, GDeviceType> DEVICE_TYPE_SERIALIZER =
+	    new GrpcModelSerializer<>(GDeviceType.parser(), DeviceModelConverter::asGrpcDeviceType,
+		    DeviceModelConverter::asApiDeviceType);
+
+    /** Serializer for devices */
+    public static final GrpcModelSerializer<IDevice, GDevice> DEVICE_SERIALIZER = new GrpcModelSerializer<>(
+	    GDevice.parser(), DeviceModelConverter::asGrpcDevice, DeviceModelConverter::asApiDevice);
+
+    /** Serializer for device assignments */
+    public static final GrpcModelSerializer<IDeviceAssignment, GDeviceAssignment> DEVICE_ASSIGNMENT_SERIALIZER =
+	    new GrpcModelSerializer<>(GDeviceAssignment.parser(), DeviceModelConverter::asGrpcDeviceAssignment,
+		    DeviceModelConverter::asApiDeviceAssignment);
+
     /**
      * Cache for areas.
      * 
@@ -30,7 +54,7 @@ public class DeviceManagementCacheProviders {
     public static class AreaByTokenCache extends CacheProvider<String, IArea> {
 
 	public AreaByTokenCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.AreaByToken, String.class, IArea.class, configuration);
+	    super(CacheIdentifier.AreaByToken, String.class, IArea.class, configuration, AREA_SERIALIZER);
 	}
     }
 
@@ -42,7 +66,7 @@ public class DeviceManagementCacheProviders {
     public static class AreaByIdCache extends CacheProvider<UUID, IArea> {
 
 	public AreaByIdCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.AreaById, UUID.class, IArea.class, configuration);
+	    super(CacheIdentifier.AreaById, UUID.class, IArea.class, configuration, AREA_SERIALIZER);
 	}
     }
 
@@ -54,7 +78,8 @@ public class DeviceManagementCacheProviders {
     public static class DeviceTypeByTokenCache extends CacheProvider<String, IDeviceType> {
 
 	public DeviceTypeByTokenCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.DeviceByToken, String.class, IDeviceType.class, configuration);
+	    super(CacheIdentifier.DeviceTypeByToken, String.class, IDeviceType.class, configuration,
+		    DEVICE_TYPE_SERIALIZER);
 	}
     }
 
@@ -66,7 +91,7 @@ public class DeviceManagementCacheProviders {
     public static class DeviceTypeByIdCache extends CacheProvider<UUID, IDeviceType> {
 
 	public DeviceTypeByIdCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.DeviceTypeById, UUID.class, IDeviceType.class, configuration);
+	    super(CacheIdentifier.DeviceTypeById, UUID.class, IDeviceType.class, configuration, DEVICE_TYPE_SERIALIZER);
 	}
     }
 
@@ -78,7 +103,7 @@ public class DeviceManagementCacheProviders {
     public static class DeviceByTokenCache extends CacheProvider<String, IDevice> {
 
 	public DeviceByTokenCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.DeviceByToken, String.class, IDevice.class, configuration);
+	    super(CacheIdentifier.DeviceByToken, String.class, IDevice.class, configuration, DEVICE_SERIALIZER);
 	}
     }
 
@@ -90,7 +115,7 @@ public class DeviceManagementCacheProviders {
     public static class DeviceByIdCache extends CacheProvider<UUID, IDevice> {
 
 	public DeviceByIdCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.DeviceById, UUID.class, IDevice.class, configuration);
+	    super(CacheIdentifier.DeviceById, UUID.class, IDevice.class, configuration, DEVICE_SERIALIZER);
 	}
     }
 
@@ -102,7 +127,8 @@ public class DeviceManagementCacheProviders {
     public static class DeviceAssignmentByTokenCache extends CacheProvider<String, IDeviceAssignment> {
 
 	public DeviceAssignmentByTokenCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.DeviceAssignmentByToken, String.class, IDeviceAssignment.class, configuration);
+	    super(CacheIdentifier.DeviceAssignmentByToken, String.class, IDeviceAssignment.class, configuration,
+		    DEVICE_ASSIGNMENT_SERIALIZER);
 	}
     }
 
@@ -114,7 +140,8 @@ public class DeviceManagementCacheProviders {
     public static class DeviceAssignmentByIdCache extends CacheProvider<UUID, IDeviceAssignment> {
 
 	public DeviceAssignmentByIdCache(ICacheConfiguration configuration) {
-	    super(CacheIdentifier.DeviceAssignmentById, UUID.class, IDeviceAssignment.class, configuration);
+	    super(CacheIdentifier.DeviceAssignmentById, UUID.class, IDeviceAssignment.class, configuration,
+		    DEVICE_ASSIGNMENT_SERIALIZER);
 	}
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.cache;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Cache key qualified by tenant id. Used when entries for all tenants are held
+ * in a single cache so that they share the same off-heap and disk tiers.
+ *
+ * @author Derek
+ *
+ * @param <K>
+ */
+public final class TenantScopedKey<K> {
+
+    /** Tenant id (null for global entries) */
+    private final UUID tenantId;
+
+    /** Key within tenant */
+    private final K key;
+
+    public TenantScopedKey(UUID tenantId, K key) {
+	this.tenantId = tenantId;
+	this.key = key;
+    }
+
+    /*
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+	if (this == obj) {
+	    return true;
+	}
+	if (!(obj instanceof TenantScopedKey)) {
+	    return false;
+	}
+	TenantScopedKey<?> other = (TenantScopedKey<?>) obj;
+	return Objects.equals(tenantId, other.tenantId) && key.equals(other.key);
+    }
+
+    /*
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+	return 31 * Objects.hashCode(tenantId) + key.hashCode();
+    }
+
+    /*
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return (tenantId != null) ? tenantId + ":" + key : key.toString();
+    }
+
+    public UUID getTenantId() {
+	return tenantId;
+    }
+
+    public K getKey() {
+	return key;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.cache;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+
+/**
+ * Serializes {@link TenantScopedKey} cache keys for off-heap and disk cache
+ * tiers as a flag byte, the 16 bytes of the tenant id (if present) and the key
+ * as written by the serializer for the key type.
+ *
+ * @author Derek
+ *
+ * @param <K>
+ */
+public class TenantScopedKeySerializer<K> implements Serializer<TenantScopedKey<K>> {
+
+    /** Serializer for key within tenant */
+    private Serializer<K> keySerializer;
+
+    public TenantScopedKeySerializer(Serializer<K> keySerializer) {
+	this.keySerializer = keySerializer;
+    }
+
+    /*
+     * @see org.ehcache.spi.serialization.Serializer#serialize(java.lang.Object)
+     */
+    @Override
+    public ByteBuffer serialize(TenantScopedKey<K> object) throws SerializerException {
+	ByteBuffer key = keySerializer.serialize(object.getKey());
+	UUID tenantId = object.getTenantId();
+	ByteBuffer buffer = ByteBuffer.allocate(1 + ((tenantId != null) ? 16 : 0) + key.remaining());
+	buffer.put((byte) ((tenantId != null) ? 1 : 0));
+	if (tenantId != null) {
+	    buffer.putLong(tenantId.getMostSignificantBits());
+	    buffer.putLong(tenantId.getLeastSignificantBits());
+	}
+	buffer.put(key);
+	buffer.flip();
+	return buffer;
+    }
+
+    /*
+     * @see org.ehcache.spi.serialization.Serializer#read(java.nio.ByteBuffer)
+     */
+    @Override
+    public TenantScopedKey<K> read(ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+	ByteBuffer buffer = binary.duplicate();
+	UUID tenantId = (buffer.get() != 0) ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+	return new TenantScopedKey<K>(tenantId, keySerializer.read(buffer.slice()));
+    }
+
+    /*
+     * @see org.ehcache.spi.serialization.Serializer#equals(java.lang.Object,
+     * java.nio.ByteBuffer)
+     */
+    @Override
+    public boolean equals(TenantScopedKey<K> object, ByteBuffer binary)
+	    throws ClassNotFoundException, SerializerException {
+	return object.equals(read(binary));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.cache;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+
+/**
+ * Serializes {@link UUID} cache keys for off-heap and disk cache tiers as 16
+ * raw bytes rather than using Java serialization.
+ *
+ * @author Derek
+ */
+public class UuidSerializer implements Serializer<UUID> {
+
+    /*
+     * @see org.ehcache.spi.serialization.Serializer#serialize(java.lang.Object)
+     */
+    @Override
+    public ByteBuffer serialize(UUID object) throws SerializerException {
+	ByteBuffer buffer = ByteBuffer.allocate(16);
+	buffer.putLong(object.getMostSignificantBits());
+	buffer.putLong(object.getLeastSignificantBits());
+	buffer.flip();
+	return buffer;
+    }
+
+    /*
+     * @see org.ehcache.spi.serialization.Serializer#read(java.nio.ByteBuffer)
+     */
+    @Override
+    public UUID read(ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+	ByteBuffer buffer = binary.duplicate();
+	return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /*
+     * @see org.ehcache.spi.serialization.Serializer#equals(java.lang.Object,
+     * java.nio.ByteBuffer)
+     */
+    @Override
+    public boolean equals(UUID object, ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+	return object.equals(read(binary));
+    }
+}
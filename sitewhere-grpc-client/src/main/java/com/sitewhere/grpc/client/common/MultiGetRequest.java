@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request sent to gRPC methods that look up multiple entities by id or token
+ * in a single call.
+ * 
+ * @author Derek
+ */
+public class MultiGetRequest {
+
+    /** Unique ids */
+    private List<UUID> ids = new ArrayList<UUID>();
+
+    /** Reference tokens */
+    private List<String> tokens = new ArrayList<String>();
+
+    public MultiGetRequest() {
+    }
+
+    public static MultiGetRequest forIds(List<UUID> ids) {
+	MultiGetRequest request = new MultiGetRequest();
+	request.setIds(ids);
+	return request;
+    }
+
+    public static MultiGetRequest forTokens(List<String> tokens) {
+	MultiGetRequest request = new MultiGetRequest();
+	request.setTokens(tokens);
+	return request;
+    }
+
+    public List<UUID> getIds() {
+	return ids;
+    }
+
+    public void setIds(List<UUID> ids) {
+	this.ids = ids;
+    }
+
+    public List<String> getTokens() {
+	return tokens;
+    }
+
+    public void setTokens(List<String> tokens) {
+	this.tokens = tokens;
+    }
+}
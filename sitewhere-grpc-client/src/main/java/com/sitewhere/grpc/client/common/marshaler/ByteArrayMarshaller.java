@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.common.marshaler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.io.ByteStreams;
+
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.Status;
+
+/**
+ * Passes gRPC message payloads through as raw bytes. Used for methods that
+ * stream content which has already been serialized by the server.
+ * 
+ * @author Derek
+ */
+public class ByteArrayMarshaller implements Marshaller<byte[]> {
+
+    /*
+     * @see io.grpc.MethodDescriptor.Marshaller#stream(java.lang.Object)
+     */
+    @Override
+    public InputStream stream(byte[] value) {
+	return new ByteArrayInputStream(value);
+    }
+
+    /*
+     * @see io.grpc.MethodDescriptor.Marshaller#parse(java.io.InputStream)
+     */
+    @Override
+    public byte[] parse(InputStream stream) {
+	try {
+	    return ByteStreams.toByteArray(stream);
+	} catch (IOException e) {
+	    throw Status.INTERNAL.withDescription("Unable to read message bytes.").withCause(e).asRuntimeException();
+	}
+    }
+}
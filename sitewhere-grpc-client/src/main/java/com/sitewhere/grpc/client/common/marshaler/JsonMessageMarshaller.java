@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.common.marshaler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.io.ByteStreams;
+import com.sitewhere.common.MarshalUtils;
+
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.Status;
+
+/**
+ * Marshals gRPC messages as JSON. Used for methods that are not part of the
+ * published protobuf service definitions so that API model objects may be sent
+ * without a generated message type.
+ * 
+ * @author Derek
+ *
+ * @param <T>
+ */
+public class JsonMessageMarshaller<T> implements Marshaller<T> {
+
+    /** Message type */
+    private Class<T> type;
+
+    public JsonMessageMarshaller(Class<T> type) {
+	this.type = type;
+    }
+
+    /*
+     * @see io.grpc.MethodDescriptor.Marshaller#stream(java.lang.Object)
+     */
+    @Override
+    public InputStream stream(T value) {
+	return new ByteArrayInputStream(MarshalUtils.marshalJson(value));
+    }
+
+    /*
+     * @see io.grpc.MethodDescriptor.Marshaller#parse(java.io.InputStream)
+     */
+    @Override
+    public T parse(InputStream stream) {
+	try {
+	    return MarshalUtils.unmarshalJson(ByteStreams.toByteArray(stream), type);
+	} catch (IOException | RuntimeException e) {
+	    throw Status.INTERNAL.withDescription("Unable to parse JSON message of type " + type.getName() + ".")
+		    .withCause(e).asRuntimeException();
+	}
+    }
+}
@@ -7,7 +7,13 @@
  */
 package com.sitewhere.grpc.client.device;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import com.sitewhere.grpc.client.cache.CacheConfiguration;
 import com.sitewhere.grpc.client.cache.DeviceManagementCacheProviders;
@@ -24,12 +30,17 @@ import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.tenant.ITenant;
 
 /**
- * Adds caching support to device management API channel.
+ * Adds caching support to device management API channel. Caches may be
+ * preloaded with active assignments and saved to or restored from a
+ * {@link DeviceManagementCacheSnapshot} so that they do not start cold.
  * 
  * @author Derek
  */
 public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel {
 
+    /** Number of entities reloaded per call when revalidating a snapshot */
+    private static final int REVALIDATE_CHUNK_SIZE = 500;
+
     /** Area cache */
     private ICacheProvider<String, IArea> areaCache;
 
@@ -155,6 +166,16 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	return area;
     }
 
+    /*
+     * @see
+     * com.sitewhere.grpc.client.device.DeviceManagementApiChannel#getAreasByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IArea> getAreasByIds(List<UUID> ids) throws SiteWhereException {
+	return getAllCached(ids, getAreaByIdCache(), IArea::getId, super::getAreasByIds);
+    }
+
     /*
      * @see com.sitewhere.grpc.client.device.DeviceManagementApiChannel#
      * getDeviceTypeByToken(java.lang.String)
@@ -186,6 +207,15 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	return deviceType;
     }
 
+    /*
+     * @see com.sitewhere.grpc.client.device.DeviceManagementApiChannel#
+     * getDeviceTypesByIds(java.util.List)
+     */
+    @Override
+    public List<IDeviceType> getDeviceTypesByIds(List<UUID> ids) throws SiteWhereException {
+	return getAllCached(ids, getDeviceTypeByIdCache(), IDeviceType::getId, super::getDeviceTypesByIds);
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.client.device.DeviceManagementApiChannel#getDeviceByToken(
@@ -218,6 +248,25 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	return device;
     }
 
+    /*
+     * @see
+     * com.sitewhere.grpc.client.device.DeviceManagementApiChannel#getDevicesByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IDevice> getDevicesByIds(List<UUID> ids) throws SiteWhereException {
+	return getAllCached(ids, getDeviceByIdCache(), IDevice::getId, super::getDevicesByIds);
+    }
+
+    /*
+     * @see com.sitewhere.grpc.client.device.DeviceManagementApiChannel#
+     * getDevicesByTokens(java.util.List)
+     */
+    @Override
+    public List<IDevice> getDevicesByTokens(List<String> tokens) throws SiteWhereException {
+	return getAllCached(tokens, getDeviceCache(), IDevice::getToken, super::getDevicesByTokens);
+    }
+
     /*
      * @see com.sitewhere.grpc.model.client.DeviceManagementApiChannel#
      * getDeviceAssignmentByToken(java.lang.String)
@@ -248,6 +297,248 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	return assignment;
     }
 
+    /*
+     * @see com.sitewhere.grpc.client.device.DeviceManagementApiChannel#
+     * getDeviceAssignmentsByIds(java.util.List)
+     */
+    @Override
+    public List<IDeviceAssignment> getDeviceAssignmentsByIds(List<UUID> ids) throws SiteWhereException {
+	return getAllCached(ids, getDeviceAssignmentByIdCache(), IDeviceAssignment::getId,
+		super::getDeviceAssignmentsByIds);
+    }
+
+    /**
+     * Preload caches with a page of device assignments along with the devices,
+     * device types and areas they reference. Referenced entities that are not
+     * already cached are loaded with multi-get calls.
+     * 
+     * @param assignments
+     * @throws SiteWhereException
+     */
+    public void preloadDeviceAssignments(List<IDeviceAssignment> assignments) throws SiteWhereException {
+	ITenant tenant = UserContextManager.getCurrentTenant(true);
+	Set<UUID> deviceIds = new LinkedHashSet<>();
+	Set<UUID> deviceTypeIds = new LinkedHashSet<>();
+	Set<UUID> areaIds = new LinkedHashSet<>();
+	for (IDeviceAssignment assignment : assignments) {
+	    deviceIds.add(assignment.getDeviceId());
+	    deviceTypeIds.add(assignment.getDeviceTypeId());
+	    if (assignment.getAreaId() != null) {
+		areaIds.add(assignment.getAreaId());
+	    }
+	}
+	cacheDeviceAssignments(tenant, assignments);
+	if (!deviceIds.isEmpty()) {
+	    cacheDevices(tenant, getDevicesByIds(new ArrayList<>(deviceIds)));
+	}
+	if (!deviceTypeIds.isEmpty()) {
+	    cacheDeviceTypes(tenant, getDeviceTypesByIds(new ArrayList<>(deviceTypeIds)));
+	}
+	if (!areaIds.isEmpty()) {
+	    cacheAreas(tenant, getAreasByIds(new ArrayList<>(areaIds)));
+	}
+    }
+
+    /**
+     * Create a snapshot of the entities currently cached for a tenant.
+     * 
+     * @param tenant
+     * @return
+     * @throws SiteWhereException
+     */
+    public DeviceManagementCacheSnapshot createSnapshot(ITenant tenant) throws SiteWhereException {
+	DeviceManagementCacheSnapshot snapshot = new DeviceManagementCacheSnapshot();
+	snapshot.setAreas(new ArrayList<>(getAreaByIdCache().getCacheEntries(tenant).values()));
+	snapshot.setDeviceTypes(new ArrayList<>(getDeviceTypeByIdCache().getCacheEntries(tenant).values()));
+	snapshot.setDevices(new ArrayList<>(getDeviceByIdCache().getCacheEntries(tenant).values()));
+	snapshot.setDeviceAssignments(
+		new ArrayList<>(getDeviceAssignmentByIdCache().getCacheEntries(tenant).values()));
+	return snapshot;
+    }
+
+    /**
+     * Populate caches for a tenant from a snapshot. Restored entities should be
+     * revalidated with {@link #revalidateSnapshot(DeviceManagementCacheSnapshot)}
+     * once device management is reachable.
+     * 
+     * @param tenant
+     * @param snapshot
+     * @throws SiteWhereException
+     */
+    public void restoreSnapshot(ITenant tenant, DeviceManagementCacheSnapshot snapshot) throws SiteWhereException {
+	cacheAreas(tenant, snapshot.getAreas());
+	cacheDeviceTypes(tenant, snapshot.getDeviceTypes());
+	cacheDevices(tenant, snapshot.getDevices());
+	cacheDeviceAssignments(tenant, snapshot.getDeviceAssignments());
+    }
+
+    /**
+     * Reload entities restored from a snapshot directly from device management.
+     * Cached values are replaced with current versions and entities that no
+     * longer exist are removed.
+     * 
+     * @param snapshot
+     * @throws SiteWhereException
+     */
+    public void revalidateSnapshot(DeviceManagementCacheSnapshot snapshot) throws SiteWhereException {
+	ITenant tenant = UserContextManager.getCurrentTenant(true);
+	List<IDeviceAssignment> assignments = revalidate(snapshot.getDeviceAssignments(), IDeviceAssignment::getId,
+		super::getDeviceAssignmentsByIds);
+	for (IDeviceAssignment missing : assignments) {
+	    getDeviceAssignmentByIdCache().removeCacheEntry(tenant, missing.getId());
+	    getDeviceAssignmentCache().removeCacheEntry(tenant, missing.getToken());
+	}
+	List<IDevice> devices = revalidate(snapshot.getDevices(), IDevice::getId, super::getDevicesByIds);
+	for (IDevice missing : devices) {
+	    getDeviceByIdCache().removeCacheEntry(tenant, missing.getId());
+	    getDeviceCache().removeCacheEntry(tenant, missing.getToken());
+	}
+	List<IDeviceType> deviceTypes = revalidate(snapshot.getDeviceTypes(), IDeviceType::getId,
+		super::getDeviceTypesByIds);
+	for (IDeviceType missing : deviceTypes) {
+	    getDeviceTypeByIdCache().removeCacheEntry(tenant, missing.getId());
+	    getDeviceTypeCache().removeCacheEntry(tenant, missing.getToken());
+	}
+	List<IArea> areas = revalidate(snapshot.getAreas(), IArea::getId, super::getAreasByIds);
+	for (IArea missing : areas) {
+	    getAreaByIdCache().removeCacheEntry(tenant, missing.getId());
+	    getAreaCache().removeCacheEntry(tenant, missing.getToken());
+	}
+    }
+
+    /**
+     * Reload a list of possibly stale entities in chunks and update the caches
+     * with the current versions.
+     * 
+     * @param stale
+     * @param idOf
+     * @param loader
+     * @return stale entities that no longer exist
+     * @throws SiteWhereException
+     */
+    protected <T> List<T> revalidate(List<T> stale, Function<T, UUID> idOf, MultiGetLoader<UUID, T> loader)
+	    throws SiteWhereException {
+	ITenant tenant = UserContextManager.getCurrentTenant(true);
+	List<T> missing = new ArrayList<>();
+	for (int start = 0; start < stale.size(); start += REVALIDATE_CHUNK_SIZE) {
+	    List<T> chunk = stale.subList(start, Math.min(start + REVALIDATE_CHUNK_SIZE, stale.size()));
+	    List<UUID> ids = new ArrayList<>();
+	    for (T entity : chunk) {
+		ids.add(idOf.apply(entity));
+	    }
+	    List<T> current = loader.load(ids);
+	    Set<UUID> found = new HashSet<>();
+	    for (T entity : current) {
+		found.add(idOf.apply(entity));
+		cacheEntity(tenant, entity);
+	    }
+	    for (T entity : chunk) {
+		if (!found.contains(idOf.apply(entity))) {
+		    missing.add(entity);
+		}
+	    }
+	}
+	return missing;
+    }
+
+    /**
+     * Add an entity to the caches for its type.
+     * 
+     * @param tenant
+     * @param entity
+     * @throws SiteWhereException
+     */
+    protected void cacheEntity(ITenant tenant, Object entity) throws SiteWhereException {
+	if (entity instanceof IDeviceAssignment) {
+	    IDeviceAssignment assignment = (IDeviceAssignment) entity;
+	    getDeviceAssignmentByIdCache().setCacheEntry(tenant, assignment.getId(), assignment);
+	    getDeviceAssignmentCache().setCacheEntry(tenant, assignment.getToken(), assignment);
+	} else if (entity instanceof IDevice) {
+	    IDevice device = (IDevice) entity;
+	    getDeviceByIdCache().setCacheEntry(tenant, device.getId(), device);
+	    getDeviceCache().setCacheEntry(tenant, device.getToken(), device);
+	} else if (entity instanceof IDeviceType) {
+	    IDeviceType deviceType = (IDeviceType) entity;
+	    getDeviceTypeByIdCache().setCacheEntry(tenant, deviceType.getId(), deviceType);
+	    getDeviceTypeCache().setCacheEntry(tenant, deviceType.getToken(), deviceType);
+	} else if (entity instanceof IArea) {
+	    IArea area = (IArea) entity;
+	    getAreaByIdCache().setCacheEntry(tenant, area.getId(), area);
+	    getAreaCache().setCacheEntry(tenant, area.getToken(), area);
+	}
+    }
+
+    protected void cacheAreas(ITenant tenant, List<IArea> areas) throws SiteWhereException {
+	for (IArea area : areas) {
+	    cacheEntity(tenant, area);
+	}
+    }
+
+    protected void cacheDeviceTypes(ITenant tenant, List<IDeviceType> deviceTypes) throws SiteWhereException {
+	for (IDeviceType deviceType : deviceTypes) {
+	    cacheEntity(tenant, deviceType);
+	}
+    }
+
+    protected void cacheDevices(ITenant tenant, List<IDevice> devices) throws SiteWhereException {
+	for (IDevice device : devices) {
+	    cacheEntity(tenant, device);
+	}
+    }
+
+    protected void cacheDeviceAssignments(ITenant tenant, List<IDeviceAssignment> assignments)
+	    throws SiteWhereException {
+	for (IDeviceAssignment assignment : assignments) {
+	    cacheEntity(tenant, assignment);
+	}
+    }
+
+    /**
+     * Resolve entities for a list of keys. Entries found in the cache are returned
+     * directly and all misses are loaded with a single multi-get call. Loaded
+     * entities are added to the cache.
+     * 
+     * @param keys
+     * @param cache
+     * @param keyOf
+     * @param loader
+     * @return
+     * @throws SiteWhereException
+     */
+    protected <K, T> List<T> getAllCached(List<K> keys, ICacheProvider<K, T> cache, Function<T, K> keyOf,
+	    MultiGetLoader<K, T> loader) throws SiteWhereException {
+	ITenant tenant = UserContextManager.getCurrentTenant(true);
+	List<T> results = new ArrayList<>();
+	Set<K> misses = new LinkedHashSet<>();
+	for (K key : keys) {
+	    T cached = cache.getCacheEntry(tenant, key);
+	    if (cached != null) {
+		results.add(cached);
+	    } else {
+		misses.add(key);
+	    }
+	}
+	if (!misses.isEmpty()) {
+	    for (T loaded : loader.load(new ArrayList<>(misses))) {
+		cache.setCacheEntry(tenant, keyOf.apply(loaded), loaded);
+		results.add(loaded);
+	    }
+	}
+	return results;
+    }
+
+    /**
+     * Loads entities that were not found in the cache.
+     *
+     * @param <K>
+     * @param <T>
+     */
+    @FunctionalInterface
+    protected static interface MultiGetLoader<K, T> {
+
+	public List<T> load(List<K> keys) throws SiteWhereException;
+    }
+
     /**
      * Contains default cache settings for device management entities.
      */
@@ -265,6 +556,26 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	/** Cache configuration for device assignments */
 	private ICacheConfiguration deviceAssignmentConfiguration = new CacheConfiguration(10000, 30);
 
+	/**
+	 * Apply tier sizes per cache type.
+	 * 
+	 * @param tiers
+	 *            comma-delimited 'type=heapEntries:offHeapMb:diskMb' entries
+	 * @param diskPath
+	 *            folder for disk tier data
+	 */
+	public void configureTiers(String tiers, String diskPath) {
+	    configureTiers(getAreaConfiguration(), "area", tiers, diskPath);
+	    configureTiers(getDeviceTypeConfiguration(), "deviceType", tiers, diskPath);
+	    configureTiers(getDeviceConfiguration(), "device", tiers, diskPath);
+	    configureTiers(getDeviceAssignmentConfiguration(), "deviceAssignment", tiers, diskPath);
+	}
+
+	protected void configureTiers(ICacheConfiguration configuration, String type, String tiers, String diskPath) {
+	    configuration.setDiskPath(diskPath);
+	    CacheConfiguration.configureTiers(configuration, type, tiers);
+	}
+
 	public ICacheConfiguration getAreaConfiguration() {
 	    return areaConfiguration;
 	}
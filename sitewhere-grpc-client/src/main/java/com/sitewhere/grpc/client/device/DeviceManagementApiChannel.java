@@ -12,9 +12,15 @@ import java.util.UUID;
 
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.MultitenantApiChannel;
+import com.sitewhere.grpc.client.common.MultiGetRequest;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
 import com.sitewhere.grpc.client.spi.IApiDemux;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
+import com.sitewhere.grpc.model.DeviceModel.GAreaSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GCustomerSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignmentSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceTypeSearchResults;
 import com.sitewhere.grpc.service.*;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.area.IArea;
@@ -56,6 +62,10 @@ import com.sitewhere.spi.search.device.IDeviceStatusSearchCriteria;
 import com.sitewhere.spi.search.device.IZoneSearchCriteria;
 import com.sitewhere.spi.tracing.ITracerProvider;
 
+import io.grpc.CallOptions;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
+
 /**
  * Supports SiteWhere device management APIs on top of a
  * {@link DeviceManagementGrpcChannel}.
@@ -254,6 +264,26 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getCustomersByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<ICustomer> getCustomersByIds(List<UUID> ids) throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GCustomerSearchResults> method = DeviceManagementExtensionsGrpc
+		.getGetCustomersByIdsMethod();
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GCustomerSearchResults gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    CallOptions.DEFAULT, GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forIds(ids)));
+	    List<ICustomer> response = DeviceModelConverter.asApiCustomerSearchResults(gresponse).getResults();
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#getCustomerByToken(java.lang.
      * String)
@@ -519,6 +549,25 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getAreasByIds(java.util.List)
+     */
+    @Override
+    public List<IArea> getAreasByIds(List<UUID> ids) throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GAreaSearchResults> method = DeviceManagementExtensionsGrpc
+		.getGetAreasByIdsMethod();
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GAreaSearchResults gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    CallOptions.DEFAULT, GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forIds(ids)));
+	    List<IArea> response = DeviceModelConverter.asApiAreaSearchResults(gresponse).getResults();
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getAreaByToken(java.lang.String)
@@ -772,6 +821,26 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDeviceTypesByIds(java.util.
+     * List)
+     */
+    @Override
+    public List<IDeviceType> getDeviceTypesByIds(List<UUID> ids) throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GDeviceTypeSearchResults> method = DeviceManagementExtensionsGrpc
+		.getGetDeviceTypesByIdsMethod();
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GDeviceTypeSearchResults gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    CallOptions.DEFAULT, GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forIds(ids)));
+	    List<IDeviceType> response = DeviceModelConverter.asApiDeviceTypeSearchResults(gresponse).getResults();
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#getDeviceTypeByToken(java.lang.
@@ -1193,6 +1262,45 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevicesByIds(java.util.List)
+     */
+    @Override
+    public List<IDevice> getDevicesByIds(List<UUID> ids) throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GDeviceSearchResults> method = DeviceManagementExtensionsGrpc
+		.getGetDevicesByIdsMethod();
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GDeviceSearchResults gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    CallOptions.DEFAULT, GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forIds(ids)));
+	    List<IDevice> response = DeviceModelConverter.asApiDeviceSearchResults(gresponse).getResults();
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevicesByTokens(java.util.
+     * List)
+     */
+    @Override
+    public List<IDevice> getDevicesByTokens(List<String> tokens) throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GDeviceSearchResults> method = DeviceManagementExtensionsGrpc
+		.getGetDevicesByTokensMethod();
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GDeviceSearchResults gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    CallOptions.DEFAULT, GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forTokens(tokens)));
+	    List<IDevice> response = DeviceModelConverter.asApiDeviceSearchResults(gresponse).getResults();
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#updateDevice(java.util.UUID,
      * com.sitewhere.spi.device.request.IDeviceCreateRequest)
@@ -1342,6 +1450,27 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDeviceAssignmentsByIds(java.
+     * util.List)
+     */
+    @Override
+    public List<IDeviceAssignment> getDeviceAssignmentsByIds(List<UUID> ids) throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GDeviceAssignmentSearchResults> method = DeviceManagementExtensionsGrpc
+		.getGetDeviceAssignmentsByIdsMethod();
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GDeviceAssignmentSearchResults gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    CallOptions.DEFAULT, GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forIds(ids)));
+	    List<IDeviceAssignment> response = DeviceModelConverter.asApiDeviceAssignmentSearchResults(gresponse)
+		    .getResults();
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -7,7 +7,10 @@
  */
 package com.sitewhere.grpc.client.device;
 
+import java.io.File;
+
 import com.sitewhere.grpc.client.MultitenantApiDemux;
+import com.sitewhere.grpc.client.cache.CacheProvider;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiDemux;
 import com.sitewhere.spi.SiteWhereException;
@@ -50,8 +53,20 @@ public class DeviceManagementApiDemux extends MultitenantApiDemux<IDeviceManagem
 	    settings.getDeviceTypeConfiguration().setEnabled(false);
 	    settings.getDeviceConfiguration().setEnabled(false);
 	    settings.getDeviceAssignmentConfiguration().setEnabled(false);
+	} else {
+	    settings.configureTiers(getMicroservice().getInstanceSettings().getCacheTiers(), getCacheTierPath());
 	}
 	return new CachedDeviceManagementApiChannel(this, host, getMicroservice().getInstanceSettings().getGrpcPort(),
 		settings);
     }
-}
\ No newline at end of file
+
+    /**
+     * Get folder used for disk tier data by caches in this microservice.
+     * 
+     * @return
+     */
+    protected String getCacheTierPath() {
+	return new File(new File(getMicroservice().getInstanceSettings().getFileSystemStorageRoot(),
+		CacheProvider.DISK_TIER_FOLDER), getMicroservice().getIdentifier().getPath()).getPath();
+    }
+}
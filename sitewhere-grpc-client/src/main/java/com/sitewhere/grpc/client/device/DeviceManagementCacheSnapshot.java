@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.device;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.sitewhere.grpc.model.DeviceModel.GArea;
+import com.sitewhere.grpc.model.DeviceModel.GDevice;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignment;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceType;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.area.IArea;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.IDeviceType;
+
+/**
+ * Point-in-time copy of the device management entities cached for a tenant.
+ * Snapshots are stored on local disk as gzipped, length-delimited protobuf
+ * messages so that caches may be repopulated immediately when a tenant engine
+ * restarts. Entities restored from a snapshot may be stale and should be
+ * revalidated against device management.
+ *
+ * @author Derek
+ */
+public class DeviceManagementCacheSnapshot {
+
+    /** Identifies snapshot files */
+    private static final int MAGIC = 0x53574353;
+
+    /** Snapshot format version */
+    private static final int VERSION = 1;
+
+    /** Cached areas */
+    private List<IArea> areas = new ArrayList<>();
+
+    /** Cached device types */
+    private List<IDeviceType> deviceTypes = new ArrayList<>();
+
+    /** Cached devices */
+    private List<IDevice> devices = new ArrayList<>();
+
+    /** Cached device assignments */
+    private List<IDeviceAssignment> deviceAssignments = new ArrayList<>();
+
+    /**
+     * Get number of entities in the snapshot.
+     *
+     * @return
+     */
+    public int size() {
+	return areas.size() + deviceTypes.size() + devices.size() + deviceAssignments.size();
+    }
+
+    /**
+     * Write snapshot to a file. Data is written to a temporary file which then
+     * replaces any existing snapshot.
+     *
+     * @param file
+     * @throws SiteWhereException
+     */
+    public void write(File file) throws SiteWhereException {
+	File parent = file.getAbsoluteFile().getParentFile();
+	if ((parent != null) && (!parent.exists()) && (!parent.mkdirs())) {
+	    throw new SiteWhereException("Unable to create cache snapshot folder: " + parent.getAbsolutePath());
+	}
+	File temp = new File(file.getAbsolutePath() + ".tmp");
+	try (DataOutputStream output = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(temp)))) {
+	    output.writeInt(MAGIC);
+	    output.writeInt(VERSION);
+	    output.writeInt(areas.size());
+	    for (IArea area : areas) {
+		DeviceModelConverter.asGrpcArea(area).writeDelimitedTo(output);
+	    }
+	    output.writeInt(deviceTypes.size());
+	    for (IDeviceType deviceType : deviceTypes) {
+		DeviceModelConverter.asGrpcDeviceType(deviceType).writeDelimitedTo(output);
+	    }
+	    output.writeInt(devices.size());
+	    for (IDevice device : devices) {
+		DeviceModelConverter.asGrpcDevice(device).writeDelimitedTo(output);
+	    }
+	    output.writeInt(deviceAssignments.size());
+	    for (IDeviceAssignment assignment : deviceAssignments) {
+		DeviceModelConverter.asGrpcDeviceAssignment(assignment).writeDelimitedTo(output);
+	    }
+	} catch (IOException e) {
+	    temp.delete();
+	    throw new SiteWhereException("Unable to write cache snapshot.", e);
+	}
+	if (file.exists() && (!file.delete())) {
+	    throw new SiteWhereException("Unable to replace cache snapshot: " + file.getAbsolutePath());
+	}
+	if (!temp.renameTo(file)) {
+	    throw new SiteWhereException("Unable to move cache snapshot into place: " + file.getAbsolutePath());
+	}
+    }
+
+    /**
+     * Read a snapshot from a file.
+     *
+     * @param file
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DeviceManagementCacheSnapshot read(File file) throws SiteWhereException {
+	DeviceManagementCacheSnapshot snapshot = new DeviceManagementCacheSnapshot();
+	try (DataInputStream input = new DataInputStream(new GZIPInputStream(new FileInputStream(file)))) {
+	    if (input.readInt() != MAGIC) {
+		throw new SiteWhereException("File is not a cache snapshot: " + file.getAbsolutePath());
+	    }
+	    int version = input.readInt();
+	    if (version != VERSION) {
+		throw new SiteWhereException("Unsupported cache snapshot version: " + version);
+	    }
+	    int count = input.readInt();
+	    for (int i = 0; i < count; i++) {
+		snapshot.getAreas().add(DeviceModelConverter.asApiArea(GArea.parseDelimitedFrom(input)));
+	    }
+	    count = input.readInt();
+	    for (int i = 0; i < count; i++) {
+		snapshot.getDeviceTypes()
+			.add(DeviceModelConverter.asApiDeviceType(GDeviceType.parseDelimitedFrom(input)));
+	    }
+	    count = input.readInt();
+	    for (int i = 0; i < count; i++) {
+		snapshot.getDevices().add(DeviceModelConverter.asApiDevice(GDevice.parseDelimitedFrom(input)));
+	    }
+	    count = input.readInt();
+	    for (int i = 0; i < count; i++) {
+		snapshot.getDeviceAssignments()
+			.add(DeviceModelConverter.asApiDeviceAssignment(GDeviceAssignment.parseDelimitedFrom(input)));
+	    }
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to read cache snapshot.", e);
+	}
+	return snapshot;
+    }
+
+    public List<IArea> getAreas() {
+	return areas;
+    }
+
+    public void setAreas(List<IArea> areas) {
+	this.areas = areas;
+    }
+
+    public List<IDeviceType> getDeviceTypes() {
+	return deviceTypes;
+    }
+
+    public void setDeviceTypes(List<IDeviceType> deviceTypes) {
+	this.deviceTypes = deviceTypes;
+    }
+
+    public List<IDevice> getDevices() {
+	return devices;
+    }
+
+    public void setDevices(List<IDevice> devices) {
+	this.devices = devices;
+    }
+
+    public List<IDeviceAssignment> getDeviceAssignments() {
+	return deviceAssignments;
+    }
+
+    public void setDeviceAssignments(List<IDeviceAssignment> deviceAssignments) {
+	this.deviceAssignments = deviceAssignments;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.device;
+
+import com.google.protobuf.Message;
+import com.sitewhere.grpc.client.common.MultiGetRequest;
+import com.sitewhere.grpc.client.common.marshaler.JsonMessageMarshaller;
+import com.sitewhere.grpc.model.DeviceModel.GAreaSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GCustomerSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignmentSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceTypeSearchResults;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptors for device management methods that are hosted alongside the
+ * generated device management service but are not part of its protobuf
+ * definition. Requests are marshaled as JSON. Responses reuse the existing
+ * protobuf search results messages.
+ * 
+ * @author Derek
+ */
+public class DeviceManagementExtensionsGrpc {
+
+    /** Service name */
+    public static final String SERVICE_NAME = "com.sitewhere.grpc.service.DeviceManagementExtensions";
+
+    /** Method for getting multiple device types by id */
+    private static final MethodDescriptor<MultiGetRequest, GDeviceTypeSearchResults> GET_DEVICE_TYPES_BY_IDS = multiGet(
+	    "GetDeviceTypesByIds", GDeviceTypeSearchResults.getDefaultInstance());
+
+    /** Method for getting multiple devices by id */
+    private static final MethodDescriptor<MultiGetRequest, GDeviceSearchResults> GET_DEVICES_BY_IDS = multiGet(
+	    "GetDevicesByIds", GDeviceSearchResults.getDefaultInstance());
+
+    /** Method for getting multiple devices by token */
+    private static final MethodDescriptor<MultiGetRequest, GDeviceSearchResults> GET_DEVICES_BY_TOKENS = multiGet(
+	    "GetDevicesByTokens", GDeviceSearchResults.getDefaultInstance());
+
+    /** Method for getting multiple device assignments by id */
+    private static final MethodDescriptor<MultiGetRequest, GDeviceAssignmentSearchResults> GET_DEVICE_ASSIGNMENTS_BY_IDS = multiGet(
+	    "GetDeviceAssignmentsByIds", GDeviceAssignmentSearchResults.getDefaultInstance());
+
+    /** Method for getting multiple customers by id */
+    private static final MethodDescriptor<MultiGetRequest, GCustomerSearchResults> GET_CUSTOMERS_BY_IDS = multiGet(
+	    "GetCustomersByIds", GCustomerSearchResults.getDefaultInstance());
+
+    /** Method for getting multiple areas by id */
+    private static final MethodDescriptor<MultiGetRequest, GAreaSearchResults> GET_AREAS_BY_IDS = multiGet(
+	    "GetAreasByIds", GAreaSearchResults.getDefaultInstance());
+
+    /**
+     * Build descriptor for a unary multi-get method.
+     * 
+     * @param name
+     * @param prototype
+     * @return
+     */
+    private static <T extends Message> MethodDescriptor<MultiGetRequest, T> multiGet(String name, T prototype) {
+	return MethodDescriptor.<MultiGetRequest, T>newBuilder().setType(MethodDescriptor.MethodType.UNARY)
+		.setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, name))
+		.setRequestMarshaller(new JsonMessageMarshaller<>(MultiGetRequest.class))
+		.setResponseMarshaller(ProtoUtils.marshaller(prototype)).build();
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GDeviceTypeSearchResults> getGetDeviceTypesByIdsMethod() {
+	return GET_DEVICE_TYPES_BY_IDS;
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GDeviceSearchResults> getGetDevicesByIdsMethod() {
+	return GET_DEVICES_BY_IDS;
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GDeviceSearchResults> getGetDevicesByTokensMethod() {
+	return GET_DEVICES_BY_TOKENS;
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GDeviceAssignmentSearchResults> getGetDeviceAssignmentsByIdsMethod() {
+	return GET_DEVICE_ASSIGNMENTS_BY_IDS;
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GCustomerSearchResults> getGetCustomersByIdsMethod() {
+	return GET_CUSTOMERS_BY_IDS;
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GAreaSearchResults> getGetAreasByIdsMethod() {
+	return GET_AREAS_BY_IDS;
+    }
+}
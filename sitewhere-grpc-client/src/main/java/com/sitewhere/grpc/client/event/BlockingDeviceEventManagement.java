@@ -24,6 +24,9 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -38,7 +41,8 @@ import com.sitewhere.spi.search.ISearchResults;
  * 
  * @author Derek
  */
-public class BlockingDeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
+public class BlockingDeviceEventManagement extends TenantEngineLifecycleComponent
+	implements IDeviceEventManagement, IDeviceMeasurementAggregation {
 
     /** Wrapped API */
     private IDeviceEventManagementApiChannel<?> api;
@@ -72,6 +76,18 @@ public class BlockingDeviceEventManagement extends TenantEngineLifecycleComponen
 	return observer.getResult();
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceEventManagement#getDeviceEventsByIds(
+     * java.util.List)
+     */
+    @Override
+    public List<IDeviceEvent> getDeviceEventsByIds(List<UUID> eventIds) throws SiteWhereException {
+	BlockingStreamObserver<List<IDeviceEvent>> observer = new BlockingStreamObserver<>();
+	api.getDeviceEventsByIds(eventIds, observer);
+	return observer.getResult();
+    }
+
     /*
      * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
      * getDeviceEventByAlternateId(java.lang.String)
@@ -111,6 +127,20 @@ public class BlockingDeviceEventManagement extends TenantEngineLifecycleComponen
 	return observer.getResult();
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.aggregation.IDeviceMeasurementAggregation#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List,
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria)
+     */
+    @Override
+    public List<IMeasurementAggregateSeries> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, IMeasurementAggregationCriteria criteria) throws SiteWhereException {
+	BlockingStreamObserver<List<IMeasurementAggregateSeries>> observer = new BlockingStreamObserver<>();
+	api.aggregateDeviceMeasurementsForIndex(index, entityIds, criteria, observer);
+	return observer.getResult();
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
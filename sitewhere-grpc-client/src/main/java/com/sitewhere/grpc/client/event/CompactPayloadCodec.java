@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.sitewhere.grpc.model.CommonModel.GUUID;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Compact encoding of GRPC payload messages used on internal Kafka topics.
+ * Records start with a zero byte, which can never start a non-empty protobuf
+ * message, followed by a format version so that consumers can read both the
+ * standard protobuf encoding and any compact version during rolling upgrades.
+ *
+ * Compared to standard protobuf encoding, UUIDs are written as 16 raw bytes,
+ * every string (metadata keys, tokens, names) is written once per record and
+ * then referenced by index, and a record may hold several payloads. Message
+ * fields of a payload that are equal to the same field of the previous payload
+ * in the record (for instance the device context for many events from one
+ * device) are written as a reference to the previous value.
+ *
+ * Each field starts with its number and a wire type that tells readers how to
+ * skip the value, so that fields added to the model by a newer version are
+ * ignored by older consumers rather than failing the record. Version 1
+ * records, which do not carry wire types, can still be read.
+ *
+ * @author Derek
+ */
+public class CompactPayloadCodec {
+
+    /** First byte of a compact record */
+    public static final byte MAGIC = 0x00;
+
+    /** Format version without wire types */
+    public static final byte VERSION_1 = 0x01;
+
+    /** Current format version */
+    public static final byte VERSION_2 = 0x02;
+
+    /** Wire type for zigzag varints, booleans and enums */
+    static final int WIRE_VARINT = 0;
+
+    /** Wire type for 32 bit floating point values */
+    static final int WIRE_FIXED32 = 1;
+
+    /** Wire type for 64 bit floating point values */
+    static final int WIRE_FIXED64 = 2;
+
+    /** Wire type for length prefixed bytes */
+    static final int WIRE_BYTES = 3;
+
+    /** Wire type for a string reference or first occurrence of a string */
+    static final int WIRE_STRING = 4;
+
+    /** Wire type for nested messages terminated by a zero tag */
+    static final int WIRE_MESSAGE = 5;
+
+    /** Wire type for a UUID written as 16 raw bytes */
+    static final int WIRE_UUID = 6;
+
+    /** Wire type for a reference to the value in the previous payload */
+    static final int WIRE_PREVIOUS = 7;
+
+    /** Number of bits used for wire type in a field tag */
+    static final int WIRE_TYPE_BITS = 3;
+
+    /** Descriptor name for UUID messages */
+    private static final String UUID_TYPE = GUUID.getDescriptor().getFullName();
+
+    /**
+     * Indicates whether a record uses the compact encoding.
+     *
+     * @param record
+     * @return
+     */
+    public static boolean isCompact(byte[] record) {
+	return (record != null) && (record.length > 0) && (record[0] == MAGIC);
+    }
+
+    /**
+     * Encode one or more payloads of the same type into a single record.
+     *
+     * @param payloads
+     * @return
+     */
+    public static byte[] encode(List<? extends Message> payloads) {
+	Writer writer = new Writer();
+	writer.write(MAGIC);
+	writer.write(VERSION_2);
+	writer.writeVarint(payloads.size());
+	Message previous = null;
+	for (Message payload : payloads) {
+	    writer.writeMessage(payload, previous);
+	    previous = payload;
+	}
+	return writer.toByteArray();
+    }
+
+    /**
+     * Decode all payloads in a compact record.
+     *
+     * @param record
+     * @param prototype
+     * @return
+     * @throws SiteWhereException
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Message> List<T> decode(byte[] record, T prototype) throws SiteWhereException {
+	if (!isCompact(record) || (record.length < 2)) {
+	    throw new SiteWhereException("Record does not use compact payload encoding.");
+	}
+	if ((record[1] != VERSION_1) && (record[1] != VERSION_2)) {
+	    throw new SiteWhereException("Unsupported compact payload version: " + record[1]);
+	}
+	try {
+	    Reader reader = new Reader(record, record[1], 2);
+	    int count = reader.readVarint32();
+	    List<T> payloads = new ArrayList<>(count);
+	    Message previous = null;
+	    for (int i = 0; i < count; i++) {
+		Message.Builder builder = prototype.newBuilderForType();
+		reader.readMessage(builder, previous);
+		previous = builder.build();
+		payloads.add((T) previous);
+	    }
+	    return payloads;
+	} catch (RuntimeException e) {
+	    throw new SiteWhereException("Unable to parse compact payload record.", e);
+	}
+    }
+
+    /**
+     * Get wire type used for values of a field.
+     *
+     * @param field
+     * @return
+     */
+    protected static int getWireType(FieldDescriptor field) {
+	switch (field.getJavaType()) {
+	case FLOAT:
+	    return WIRE_FIXED32;
+	case DOUBLE:
+	    return WIRE_FIXED64;
+	case STRING:
+	    return WIRE_STRING;
+	case BYTE_STRING:
+	    return WIRE_BYTES;
+	case MESSAGE:
+	    return UUID_TYPE.equals(field.getMessageType().getFullName()) ? WIRE_UUID : WIRE_MESSAGE;
+	default:
+	    return WIRE_VARINT;
+	}
+    }
+
+    /**
+     * Writes compact encoding to a growable buffer.
+     */
+    private static class Writer extends ByteArrayOutputStream {
+
+	/** Indexes of strings already written to the record */
+	private Map<String, Integer> strings = new HashMap<>();
+
+	public Writer() {
+	    super(256);
+	}
+
+	/**
+	 * Write fields that have values followed by a zero terminator. Each value
+	 * starts with a tag holding the field number and wire type. Values of
+	 * repeated fields are written with one tag each. Message values that are
+	 * the same as in the previous message are written as a tag alone.
+	 *
+	 * @param message
+	 * @param previous
+	 */
+	protected void writeMessage(Message message, Message previous) {
+	    boolean mapEntry = message.getDescriptorForType().getOptions().getMapEntry();
+	    for (FieldDescriptor field : message.getDescriptorForType().getFields()) {
+		if (field.isRepeated()) {
+		    int count = message.getRepeatedFieldCount(field);
+		    for (int i = 0; i < count; i++) {
+			writeTag(field, getWireType(field));
+			writeValue(field, message.getRepeatedField(field, i));
+		    }
+		} else if (mapEntry || message.hasField(field)) {
+		    Object value = message.getField(field);
+		    if ((previous != null) && (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE)
+			    && previous.hasField(field) && value.equals(previous.getField(field))) {
+			writeTag(field, WIRE_PREVIOUS);
+		    } else {
+			writeTag(field, getWireType(field));
+			writeValue(field, value);
+		    }
+		}
+	    }
+	    writeVarint(0);
+	}
+
+	protected void writeTag(FieldDescriptor field, int wireType) {
+	    writeVarint((field.getNumber() << WIRE_TYPE_BITS) | wireType);
+	}
+
+	protected void writeValue(FieldDescriptor field, Object value) {
+	    switch (field.getJavaType()) {
+	    case INT:
+		writeVarint64(zigZag((Integer) value));
+		break;
+	    case LONG:
+		writeVarint64(zigZag((Long) value));
+		break;
+	    case FLOAT:
+		writeFixed32(Float.floatToRawIntBits((Float) value));
+		break;
+	    case DOUBLE:
+		writeFixed64(Double.doubleToRawLongBits((Double) value));
+		break;
+	    case BOOLEAN:
+		write(((Boolean) value) ? 1 : 0);
+		break;
+	    case STRING:
+		writeString((String) value);
+		break;
+	    case BYTE_STRING:
+		ByteString bytes = (ByteString) value;
+		writeVarint(bytes.size());
+		write(bytes.toByteArray(), 0, bytes.size());
+		break;
+	    case ENUM:
+		writeVarint(((EnumValueDescriptor) value).getNumber());
+		break;
+	    case MESSAGE:
+		if (UUID_TYPE.equals(field.getMessageType().getFullName())) {
+		    GUUID uuid = (GUUID) value;
+		    writeFixed64(uuid.getMsb());
+		    writeFixed64(uuid.getLsb());
+		} else {
+		    writeMessage((Message) value, null);
+		}
+		break;
+	    }
+	}
+
+	/**
+	 * Write a reference to a string already in the record or, for the first
+	 * occurrence, a zero marker followed by the UTF-8 bytes.
+	 *
+	 * @param value
+	 */
+	protected void writeString(String value) {
+	    Integer index = strings.get(value);
+	    if (index != null) {
+		writeVarint(index + 1);
+		return;
+	    }
+	    strings.put(value, strings.size());
+	    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+	    writeVarint(0);
+	    writeVarint(utf8.length);
+	    write(utf8, 0, utf8.length);
+	}
+
+	protected void writeVarint(int value) {
+	    writeVarint64(value & 0xffffffffL);
+	}
+
+	protected void writeVarint64(long value) {
+	    while ((value & ~0x7fL) != 0) {
+		write((int) ((value & 0x7f) | 0x80));
+		value >>>= 7;
+	    }
+	    write((int) value);
+	}
+
+	protected void writeFixed32(int value) {
+	    for (int shift = 24; shift >= 0; shift -= 8) {
+		write(value >>> shift);
+	    }
+	}
+
+	protected void writeFixed64(long value) {
+	    for (int shift = 56; shift >= 0; shift -= 8) {
+		write((int) (value >>> shift));
+	    }
+	}
+
+	protected static long zigZag(long value) {
+	    return (value << 1) ^ (value >> 63);
+	}
+    }
+
+    /**
+     * Reads compact encoding from a byte array.
+     */
+    private static class Reader {
+
+	/** Record being read */
+	private byte[] data;
+
+	/** Format version of record */
+	private byte version;
+
+	/** Current position */
+	private int position;
+
+	/** Strings read so far in order of first occurrence */
+	private List<String> strings = new ArrayList<>();
+
+	public Reader(byte[] data, byte version, int position) {
+	    this.data = data;
+	    this.version = version;
+	    this.position = position;
+	}
+
+	/**
+	 * Read fields into a builder. Fields not known to this version of the
+	 * model, or whose wire type no longer matches the model, are skipped.
+	 *
+	 * @param builder
+	 * @param previous
+	 */
+	protected void readMessage(Message.Builder builder, Message previous) {
+	    if (version == VERSION_1) {
+		readMessageVersion1(builder, previous);
+		return;
+	    }
+	    Descriptor descriptor = builder.getDescriptorForType();
+	    int tag;
+	    while ((tag = readVarint32()) != 0) {
+		int wireType = tag & ((1 << WIRE_TYPE_BITS) - 1);
+		FieldDescriptor field = descriptor.findFieldByNumber(tag >>> WIRE_TYPE_BITS);
+		if (wireType == WIRE_PREVIOUS) {
+		    if (field == null) {
+			continue;
+		    }
+		    if (previous == null) {
+			throw new IllegalArgumentException("Reference to previous value in first payload.");
+		    }
+		    builder.setField(field, previous.getField(field));
+		} else if ((field == null) || (getWireType(field) != wireType)) {
+		    skipValue(wireType);
+		} else {
+		    Object value = readValue(builder, field);
+		    if (value == null) {
+			continue;
+		    }
+		    if (field.isRepeated()) {
+			builder.addRepeatedField(field, value);
+		    } else {
+			builder.setField(field, value);
+		    }
+		}
+	    }
+	}
+
+	/**
+	 * Read fields written without wire types. Unknown fields can not be
+	 * skipped in this version.
+	 *
+	 * @param builder
+	 * @param previous
+	 */
+	protected void readMessageVersion1(Message.Builder builder, Message previous) {
+	    Descriptor descriptor = builder.getDescriptorForType();
+	    int tag;
+	    while ((tag = readVarint32()) != 0) {
+		FieldDescriptor field = descriptor.findFieldByNumber(tag >>> 1);
+		if (field == null) {
+		    throw new IllegalArgumentException(
+			    "Unknown field " + (tag >>> 1) + " for " + descriptor.getFullName() + ".");
+		}
+		if ((tag & 1) != 0) {
+		    if (previous == null) {
+			throw new IllegalArgumentException("Reference to previous value in first payload.");
+		    }
+		    builder.setField(field, previous.getField(field));
+		} else if (field.isRepeated()) {
+		    int count = readVarint32();
+		    for (int i = 0; i < count; i++) {
+			Object value = readValue(builder, field);
+			if (value != null) {
+			    builder.addRepeatedField(field, value);
+			}
+		    }
+		} else {
+		    Object value = readValue(builder, field);
+		    if (value != null) {
+			builder.setField(field, value);
+		    }
+		}
+	    }
+	}
+
+	/**
+	 * Read a single value. Returns null for enum values not known to this
+	 * version of the model.
+	 *
+	 * @param parent
+	 * @param field
+	 * @return
+	 */
+	protected Object readValue(Message.Builder parent, FieldDescriptor field) {
+	    switch (field.getJavaType()) {
+	    case INT:
+		return (int) unZigZag(readVarint64());
+	    case LONG:
+		return unZigZag(readVarint64());
+	    case FLOAT:
+		return Float.intBitsToFloat(readFixed32());
+	    case DOUBLE:
+		return Double.longBitsToDouble(readFixed64());
+	    case BOOLEAN:
+		return data[position++] != 0;
+	    case STRING:
+		return readString();
+	    case BYTE_STRING:
+		int length = readVarint32();
+		ByteString bytes = ByteString.copyFrom(data, position, length);
+		position += length;
+		return bytes;
+	    case ENUM:
+		return field.getEnumType().findValueByNumber(readVarint32());
+	    case MESSAGE:
+		if (UUID_TYPE.equals(field.getMessageType().getFullName())) {
+		    return GUUID.newBuilder().setMsb(readFixed64()).setLsb(readFixed64()).build();
+		}
+		Message.Builder builder = parent.newBuilderForField(field);
+		readMessage(builder, null);
+		return builder.build();
+	    }
+	    throw new IllegalArgumentException("Unsupported field type: " + field.getJavaType());
+	}
+
+	/**
+	 * Skip a value of a field that is not known. Strings are read rather than
+	 * skipped so that later references to them resolve correctly.
+	 *
+	 * @param wireType
+	 */
+	protected void skipValue(int wireType) {
+	    switch (wireType) {
+	    case WIRE_VARINT:
+		readVarint64();
+		break;
+	    case WIRE_FIXED32:
+		position += 4;
+		break;
+	    case WIRE_FIXED64:
+		position += 8;
+		break;
+	    case WIRE_BYTES:
+		int length = readVarint32();
+		position += length;
+		break;
+	    case WIRE_STRING:
+		readString();
+		break;
+	    case WIRE_MESSAGE:
+		int tag;
+		while ((tag = readVarint32()) != 0) {
+		    int nested = tag & ((1 << WIRE_TYPE_BITS) - 1);
+		    if (nested != WIRE_PREVIOUS) {
+			skipValue(nested);
+		    }
+		}
+		break;
+	    case WIRE_UUID:
+		position += 16;
+		break;
+	    default:
+		throw new IllegalArgumentException("Unsupported wire type: " + wireType);
+	    }
+	}
+
+	protected String readString() {
+	    int index = readVarint32();
+	    if (index > 0) {
+		return strings.get(index - 1);
+	    }
+	    int length = readVarint32();
+	    String value = new String(data, position, length, StandardCharsets.UTF_8);
+	    position += length;
+	    strings.add(value);
+	    return value;
+	}
+
+	protected int readVarint32() {
+	    return (int) readVarint64();
+	}
+
+	protected long readVarint64() {
+	    long result = 0;
+	    for (int shift = 0; shift < 64; shift += 7) {
+		byte b = data[position++];
+		result |= (long) (b & 0x7f) << shift;
+		if ((b & 0x80) == 0) {
+		    return result;
+		}
+	    }
+	    throw new IllegalArgumentException("Malformed varint.");
+	}
+
+	protected int readFixed32() {
+	    int value = 0;
+	    for (int i = 0; i < 4; i++) {
+		value = (value << 8) | (data[position++] & 0xff);
+	    }
+	    return value;
+	}
+
+	protected long readFixed64() {
+	    long value = 0;
+	    for (int i = 0; i < 8; i++) {
+		value = (value << 8) | (data[position++] & 0xff);
+	    }
+	    return value;
+	}
+
+	protected static long unZigZag(long value) {
+	    return (value >>> 1) ^ -(value & 1);
+	}
+    }
+}
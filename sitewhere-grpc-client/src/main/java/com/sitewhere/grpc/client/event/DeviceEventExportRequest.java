@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.sitewhere.rest.model.device.event.export.DeviceEventExportCriteria;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+
+/**
+ * Request sent to the device event export gRPC method.
+ * 
+ * @author Derek
+ */
+public class DeviceEventExportRequest {
+
+    /** Event index */
+    private DeviceEventIndex index;
+
+    /** Entity ids for index */
+    private List<UUID> entityIds;
+
+    /** Export criteria */
+    private DeviceEventExportCriteria criteria;
+
+    public DeviceEventIndex getIndex() {
+	return index;
+    }
+
+    public void setIndex(DeviceEventIndex index) {
+	this.index = index;
+    }
+
+    public List<UUID> getEntityIds() {
+	return entityIds;
+    }
+
+    public void setEntityIds(List<UUID> entityIds) {
+	this.entityIds = entityIds;
+    }
+
+    public DeviceEventExportCriteria getCriteria() {
+	return criteria;
+    }
+
+    public void setCriteria(DeviceEventExportCriteria criteria) {
+	this.criteria = criteria;
+    }
+}
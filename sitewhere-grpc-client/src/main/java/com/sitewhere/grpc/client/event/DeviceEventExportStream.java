@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import io.grpc.ClientCall;
+import io.grpc.stub.ClientCalls;
+
+/**
+ * Iterates over chunks of newline-delimited JSON returned by a device event
+ * export call. Only one chunk is requested from the server at a time, so a slow
+ * consumer slows the export rather than causing chunks to be buffered. Closing
+ * the stream before it is exhausted cancels the call.
+ * 
+ * @author Derek
+ */
+public class DeviceEventExportStream implements Iterator<byte[]>, Closeable {
+
+    /** Underlying call */
+    private ClientCall<DeviceEventExportRequest, byte[]> call;
+
+    /** Blocking iterator for call responses */
+    private Iterator<byte[]> chunks;
+
+    /** Indicates all chunks have been read */
+    private boolean complete = false;
+
+    public DeviceEventExportStream(ClientCall<DeviceEventExportRequest, byte[]> call,
+	    DeviceEventExportRequest request) {
+	this.call = call;
+	this.chunks = ClientCalls.blockingServerStreamingCall(call, request);
+    }
+
+    /*
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+	boolean hasNext = chunks.hasNext();
+	if (!hasNext) {
+	    complete = true;
+	}
+	return hasNext;
+    }
+
+    /*
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public byte[] next() {
+	return chunks.next();
+    }
+
+    /*
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+	if (!complete) {
+	    complete = true;
+	    call.cancel("Export stream closed by client.", null);
+	}
+    }
+}
@@ -7,15 +7,18 @@
  */
 package com.sitewhere.grpc.client.event;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.MultitenantApiChannel;
+import com.sitewhere.grpc.client.common.MultiGetRequest;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
 import com.sitewhere.grpc.client.common.tracing.DebugParameter;
 import com.sitewhere.grpc.client.spi.IApiDemux;
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventSearchResults;
 import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
 import com.sitewhere.grpc.service.GAddAlertsRequest;
 import com.sitewhere.grpc.service.GAddAlertsResponse;
@@ -55,6 +58,8 @@ import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
 import com.sitewhere.rest.model.device.event.DeviceLocation;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.rest.model.device.event.DeviceStateChange;
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregationCriteria;
+import com.sitewhere.rest.model.device.event.export.DeviceEventExportCriteria;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.DeviceEventIndex;
 import com.sitewhere.spi.device.event.IDeviceAlert;
@@ -66,6 +71,9 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -76,6 +84,9 @@ import com.sitewhere.spi.search.IDateRangeSearchCriteria;
 import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.tracing.ITracerProvider;
 
+import io.grpc.CallOptions;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -186,6 +197,44 @@ public class DeviceEventManagementApiChannel extends MultitenantApiChannel<Devic
 		});
     }
 
+    /*
+     * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
+     * getDeviceEventsByIds(java.util.List, io.grpc.stub.StreamObserver)
+     */
+    @Override
+    public void getDeviceEventsByIds(List<UUID> eventIds, StreamObserver<List<IDeviceEvent>> observer)
+	    throws SiteWhereException {
+	MethodDescriptor<MultiGetRequest, GDeviceEventSearchResults> method = DeviceEventManagementExtensionsGrpc
+		.getGetDeviceEventsByIdsMethod();
+	GrpcUtils.handleClientMethodEntry(this, method, DebugParameter.create("Event Ids", eventIds));
+	ClientCalls.asyncUnaryCall(getGrpcChannel().getChannel().newCall(method, CallOptions.DEFAULT),
+		GrpcUtils.logGrpcClientRequest(method, MultiGetRequest.forIds(eventIds)),
+		new StreamObserver<GDeviceEventSearchResults>() {
+
+		    @Override
+		    public void onNext(GDeviceEventSearchResults gresponse) {
+			try {
+			    List<IDeviceEvent> results = EventModelConverter.asApiDeviceEventSearchResults(gresponse)
+				    .getResults();
+			    GrpcUtils.logClientMethodResponse(method, results);
+			    observer.onNext(results);
+			} catch (Throwable t) {
+			    observer.onError(GrpcUtils.handleClientMethodException(method, t));
+			}
+		    }
+
+		    @Override
+		    public void onError(Throwable t) {
+			observer.onError(t);
+		    }
+
+		    @Override
+		    public void onCompleted() {
+			observer.onCompleted();
+		    }
+		});
+    }
+
     /*
      * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
      * getDeviceEventByAlternateId(java.lang.String, io.grpc.stub.StreamObserver)
@@ -324,6 +373,72 @@ public class DeviceEventManagementApiChannel extends MultitenantApiChannel<Devic
 		});
     }
 
+    /*
+     * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List,
+     * com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria,
+     * io.grpc.stub.StreamObserver)
+     */
+    @Override
+    public void aggregateDeviceMeasurementsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IMeasurementAggregationCriteria criteria, StreamObserver<List<IMeasurementAggregateSeries>> observer)
+	    throws SiteWhereException {
+	MethodDescriptor<MeasurementAggregationRequest, MeasurementAggregationResponse> method = DeviceEventManagementExtensionsGrpc
+		.getAggregateMeasurementsForIndexMethod();
+	GrpcUtils.handleClientMethodEntry(this, method, DebugParameter.create("Index", index),
+		DebugParameter.create("Entity Ids", entityIds), DebugParameter.create("Criteria", criteria));
+	MeasurementAggregationRequest request = new MeasurementAggregationRequest();
+	request.setIndex(index);
+	request.setEntityIds(entityIds);
+	request.setCriteria(MeasurementAggregationCriteria.copy(criteria));
+	ClientCalls.asyncUnaryCall(getGrpcChannel().getChannel().newCall(method, CallOptions.DEFAULT),
+		GrpcUtils.logGrpcClientRequest(method, request), new StreamObserver<MeasurementAggregationResponse>() {
+
+		    @Override
+		    public void onNext(MeasurementAggregationResponse response) {
+			try {
+			    List<IMeasurementAggregateSeries> results = new ArrayList<>(response.getSeries());
+			    GrpcUtils.logClientMethodResponse(method, results);
+			    observer.onNext(results);
+			} catch (Throwable t) {
+			    observer.onError(GrpcUtils.handleClientMethodException(method, t));
+			}
+		    }
+
+		    @Override
+		    public void onError(Throwable t) {
+			observer.onError(t);
+		    }
+
+		    @Override
+		    public void onCompleted() {
+			observer.onCompleted();
+		    }
+		});
+    }
+
+    /*
+     * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
+     * exportDeviceEventsForIndex(com.sitewhere.spi.device.event.DeviceEventIndex,
+     * java.util.List,
+     * com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria)
+     */
+    @Override
+    public DeviceEventExportStream exportDeviceEventsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IDeviceEventExportCriteria criteria) throws SiteWhereException {
+	MethodDescriptor<DeviceEventExportRequest, byte[]> method = DeviceEventManagementExtensionsGrpc
+		.getExportDeviceEventsForIndexMethod();
+	GrpcUtils.handleClientMethodEntry(this, method, DebugParameter.create("Index", index),
+		DebugParameter.create("Entity Ids", entityIds), DebugParameter.create("Criteria", criteria));
+	DeviceEventExportRequest request = new DeviceEventExportRequest();
+	request.setIndex(index);
+	request.setEntityIds(entityIds);
+	request.setCriteria(DeviceEventExportCriteria.copy(criteria));
+	return new DeviceEventExportStream(getGrpcChannel().getChannel().newCall(method, CallOptions.DEFAULT),
+		GrpcUtils.logGrpcClientRequest(method, request));
+    }
+
     /*
      * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
      * addDeviceLocations(java.util.UUID, io.grpc.stub.StreamObserver,
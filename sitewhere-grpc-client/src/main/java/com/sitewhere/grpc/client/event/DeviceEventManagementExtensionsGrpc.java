@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import com.sitewhere.grpc.client.common.MultiGetRequest;
+import com.sitewhere.grpc.client.common.marshaler.ByteArrayMarshaller;
+import com.sitewhere.grpc.client.common.marshaler.JsonMessageMarshaller;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventSearchResults;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptors for device event management methods that are hosted alongside
+ * the generated device event management service but are not part of its
+ * protobuf definition. Requests are marshaled as JSON. Responses are marshaled
+ * as JSON or, where an existing protobuf message fits, as protobuf.
+ * 
+ * @author Derek
+ */
+public class DeviceEventManagementExtensionsGrpc {
+
+    /** Service name */
+    public static final String SERVICE_NAME = "com.sitewhere.grpc.service.DeviceEventManagementExtensions";
+
+    /** Method for aggregating measurements */
+    private static final MethodDescriptor<MeasurementAggregationRequest, MeasurementAggregationResponse> AGGREGATE_MEASUREMENTS_FOR_INDEX = MethodDescriptor
+	    .<MeasurementAggregationRequest, MeasurementAggregationResponse>newBuilder()
+	    .setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "AggregateMeasurementsForIndex"))
+	    .setRequestMarshaller(new JsonMessageMarshaller<>(MeasurementAggregationRequest.class))
+	    .setResponseMarshaller(new JsonMessageMarshaller<>(MeasurementAggregationResponse.class)).build();
+
+    /** Method for streaming an export of events as newline-delimited JSON */
+    private static final MethodDescriptor<DeviceEventExportRequest, byte[]> EXPORT_DEVICE_EVENTS_FOR_INDEX = MethodDescriptor
+	    .<DeviceEventExportRequest, byte[]>newBuilder().setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+	    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "ExportDeviceEventsForIndex"))
+	    .setRequestMarshaller(new JsonMessageMarshaller<>(DeviceEventExportRequest.class))
+	    .setResponseMarshaller(new ByteArrayMarshaller()).build();
+
+    /** Method for getting multiple events by id */
+    private static final MethodDescriptor<MultiGetRequest, GDeviceEventSearchResults> GET_DEVICE_EVENTS_BY_IDS = MethodDescriptor
+	    .<MultiGetRequest, GDeviceEventSearchResults>newBuilder().setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "GetDeviceEventsByIds"))
+	    .setRequestMarshaller(new JsonMessageMarshaller<>(MultiGetRequest.class))
+	    .setResponseMarshaller(ProtoUtils.marshaller(GDeviceEventSearchResults.getDefaultInstance())).build();
+
+    public static MethodDescriptor<MeasurementAggregationRequest, MeasurementAggregationResponse> getAggregateMeasurementsForIndexMethod() {
+	return AGGREGATE_MEASUREMENTS_FOR_INDEX;
+    }
+
+    public static MethodDescriptor<DeviceEventExportRequest, byte[]> getExportDeviceEventsForIndexMethod() {
+	return EXPORT_DEVICE_EVENTS_FOR_INDEX;
+    }
+
+    public static MethodDescriptor<MultiGetRequest, GDeviceEventSearchResults> getGetDeviceEventsByIdsMethod() {
+	return GET_DEVICE_EVENTS_BY_IDS;
+    }
+}
@@ -10,20 +10,31 @@ package com.sitewhere.grpc.client.event;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
 import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
 import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
 import com.sitewhere.spi.device.event.kafka.IEnrichedEventPayload;
 import com.sitewhere.spi.device.event.kafka.IInboundEventPayload;
 
 /**
- * Methods that support marshaling/unmarshaling event model payloads.
+ * Methods that support marshaling/unmarshaling event model payloads. Payloads
+ * are written in standard protobuf encoding unless the compact format has been
+ * enabled. Parsing detects the format of each record so that old and new
+ * formats may be mixed on a topic during rolling upgrades.
  * 
  * @author Derek
  */
@@ -32,6 +43,15 @@ public class EventModelMarshaler {
     /** Static logger instance */
     private static Logger LOGGER = LoggerFactory.getLogger(EventModelMarshaler.class);
 
+    /** Kafka record header that carries the type of an enriched event */
+    public static final String HEADER_EVENT_TYPE = "sw-event-type";
+
+    /** Indicates whether payloads are written in compact format */
+    private static volatile boolean compactPayloads = false;
+
+    /** Indicates whether events for a device may be grouped into one record */
+    private static volatile boolean groupedPayloads = false;
+
     /**
      * Build binary message for API inbound event payload.
      * 
@@ -52,6 +72,9 @@ public class EventModelMarshaler {
      * @throws SiteWhereException
      */
     public static byte[] buildInboundEventPayloadMessage(GInboundEventPayload grpc) throws SiteWhereException {
+	if (isCompactPayloads()) {
+	    return CompactPayloadCodec.encode(Collections.singletonList(grpc));
+	}
 	ByteArrayOutputStream output = new ByteArrayOutputStream();
 	try {
 	    grpc.writeTo(output);
@@ -71,6 +94,9 @@ public class EventModelMarshaler {
      * @throws SiteWhereException
      */
     public static GInboundEventPayload parseInboundEventPayloadMessage(byte[] payload) throws SiteWhereException {
+	if (CompactPayloadCodec.isCompact(payload)) {
+	    return single(CompactPayloadCodec.decode(payload, GInboundEventPayload.getDefaultInstance()));
+	}
 	try {
 	    return GInboundEventPayload.parseFrom(payload);
 	} catch (InvalidProtocolBufferException e) {
@@ -78,6 +104,33 @@ public class EventModelMarshaler {
 	}
     }
 
+    /**
+     * Build a single binary message for a group of inbound event payloads. Grouped
+     * messages always use the compact format.
+     * 
+     * @param grpc
+     * @return
+     * @throws SiteWhereException
+     */
+    public static byte[] buildInboundEventPayloadsMessage(List<GInboundEventPayload> grpc) throws SiteWhereException {
+	return CompactPayloadCodec.encode(grpc);
+    }
+
+    /**
+     * Parse message that contains one or more inbound event payloads.
+     * 
+     * @param payload
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<GInboundEventPayload> parseInboundEventPayloadsMessage(byte[] payload)
+	    throws SiteWhereException {
+	if (CompactPayloadCodec.isCompact(payload)) {
+	    return CompactPayloadCodec.decode(payload, GInboundEventPayload.getDefaultInstance());
+	}
+	return Collections.singletonList(parseInboundEventPayloadMessage(payload));
+    }
+
     /**
      * Build binary message for GRPC persisted event payload.
      * 
@@ -86,6 +139,9 @@ public class EventModelMarshaler {
      * @throws SiteWhereException
      */
     public static byte[] buildPersistedEventPayloadMessage(GPersistedEventPayload grpc) throws SiteWhereException {
+	if (isCompactPayloads()) {
+	    return CompactPayloadCodec.encode(Collections.singletonList(grpc));
+	}
 	ByteArrayOutputStream output = new ByteArrayOutputStream();
 	try {
 	    grpc.writeTo(output);
@@ -105,6 +161,9 @@ public class EventModelMarshaler {
      * @throws SiteWhereException
      */
     public static GPersistedEventPayload parsePersistedEventPayloadMessage(byte[] payload) throws SiteWhereException {
+	if (CompactPayloadCodec.isCompact(payload)) {
+	    return single(CompactPayloadCodec.decode(payload, GPersistedEventPayload.getDefaultInstance()));
+	}
 	try {
 	    return GPersistedEventPayload.parseFrom(payload);
 	} catch (InvalidProtocolBufferException e) {
@@ -112,6 +171,34 @@ public class EventModelMarshaler {
 	}
     }
 
+    /**
+     * Build a single binary message for a group of persisted event payloads. Grouped
+     * messages always use the compact format.
+     * 
+     * @param grpc
+     * @return
+     * @throws SiteWhereException
+     */
+    public static byte[] buildPersistedEventPayloadsMessage(List<GPersistedEventPayload> grpc)
+	    throws SiteWhereException {
+	return CompactPayloadCodec.encode(grpc);
+    }
+
+    /**
+     * Parse message that contains one or more persisted event payloads.
+     * 
+     * @param payload
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<GPersistedEventPayload> parsePersistedEventPayloadsMessage(byte[] payload)
+	    throws SiteWhereException {
+	if (CompactPayloadCodec.isCompact(payload)) {
+	    return CompactPayloadCodec.decode(payload, GPersistedEventPayload.getDefaultInstance());
+	}
+	return Collections.singletonList(parsePersistedEventPayloadMessage(payload));
+    }
+
     /**
      * Build binary message for GRPC enriched event payload.
      * 
@@ -120,6 +207,9 @@ public class EventModelMarshaler {
      * @throws SiteWhereException
      */
     public static byte[] buildEnrichedEventPayloadMessage(GEnrichedEventPayload grpc) throws SiteWhereException {
+	if (isCompactPayloads()) {
+	    return CompactPayloadCodec.encode(Collections.singletonList(grpc));
+	}
 	ByteArrayOutputStream output = new ByteArrayOutputStream();
 	try {
 	    grpc.writeTo(output);
@@ -151,6 +241,9 @@ public class EventModelMarshaler {
      * @throws SiteWhereException
      */
     public static GEnrichedEventPayload parseEnrichedEventPayloadMessage(byte[] payload) throws SiteWhereException {
+	if (CompactPayloadCodec.isCompact(payload)) {
+	    return single(CompactPayloadCodec.decode(payload, GEnrichedEventPayload.getDefaultInstance()));
+	}
 	try {
 	    return GEnrichedEventPayload.parseFrom(payload);
 	} catch (InvalidProtocolBufferException e) {
@@ -158,6 +251,92 @@ public class EventModelMarshaler {
 	}
     }
 
+    /**
+     * Build a single binary message for a group of enriched event payloads. Grouped
+     * messages always use the compact format.
+     * 
+     * @param grpc
+     * @return
+     * @throws SiteWhereException
+     */
+    public static byte[] buildEnrichedEventPayloadsMessage(List<GEnrichedEventPayload> grpc) throws SiteWhereException {
+	return CompactPayloadCodec.encode(grpc);
+    }
+
+    /**
+     * Parse message that contains one or more enriched event payloads.
+     * 
+     * @param payload
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<GEnrichedEventPayload> parseEnrichedEventPayloadsMessage(byte[] payload)
+	    throws SiteWhereException {
+	if (CompactPayloadCodec.isCompact(payload)) {
+	    return CompactPayloadCodec.decode(payload, GEnrichedEventPayload.getDefaultInstance());
+	}
+	return Collections.singletonList(parseEnrichedEventPayloadMessage(payload));
+    }
+
+    /**
+     * Get the only payload in a record parsed where a single payload is expected.
+     * 
+     * @param payloads
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static <T extends Message> T single(List<T> payloads) throws SiteWhereException {
+	if (payloads.size() != 1) {
+	    throw new SiteWhereException("Expected a single payload but record contains " + payloads.size() + ".");
+	}
+	return payloads.get(0);
+    }
+
+    /**
+     * Build Kafka record header that carries the event type so that consumers
+     * interested in a few event types can skip others without parsing them.
+     * 
+     * @param type
+     * @return
+     */
+    public static Header buildEventTypeHeader(DeviceEventType type) {
+	return new RecordHeader(HEADER_EVENT_TYPE, type.name().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get event type from Kafka record headers.
+     * 
+     * @param headers
+     * @return event type or null if the record has no (known) event type header
+     */
+    public static DeviceEventType getEventType(Headers headers) {
+	Header header = headers.lastHeader(HEADER_EVENT_TYPE);
+	if (header == null) {
+	    return null;
+	}
+	try {
+	    return DeviceEventType.valueOf(new String(header.value(), StandardCharsets.UTF_8));
+	} catch (IllegalArgumentException e) {
+	    return null;
+	}
+    }
+
+    public static boolean isCompactPayloads() {
+	return compactPayloads;
+    }
+
+    public static void setCompactPayloads(boolean compactPayloads) {
+	EventModelMarshaler.compactPayloads = compactPayloads;
+    }
+
+    public static boolean isGroupedPayloads() {
+	return groupedPayloads;
+    }
+
+    public static void setGroupedPayloads(boolean groupedPayloads) {
+	EventModelMarshaler.groupedPayloads = groupedPayloads;
+    }
+
     protected static void closeQuietly(OutputStream output) {
 	if (output != null) {
 	    try {
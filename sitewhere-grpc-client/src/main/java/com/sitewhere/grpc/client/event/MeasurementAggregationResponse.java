@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sitewhere.rest.model.device.event.aggregation.MeasurementAggregateSeries;
+
+/**
+ * Response returned by the measurement aggregation gRPC method.
+ * 
+ * @author Derek
+ */
+public class MeasurementAggregationResponse {
+
+    /** Series for each measurement name */
+    private List<MeasurementAggregateSeries> series = new ArrayList<MeasurementAggregateSeries>();
+
+    public List<MeasurementAggregateSeries> getSeries() {
+	return series;
+    }
+
+    public void setSeries(List<MeasurementAggregateSeries> series) {
+	this.series = series;
+    }
+}
@@ -40,6 +40,48 @@ public interface ICacheConfiguration {
      */
     public void setTtlInSeconds(int value);
 
+    /**
+     * Get size (in megabytes) of off-heap tier. Zero disables the tier.
+     * 
+     * @return
+     */
+    public long getOffHeapSizeInMb();
+
+    /**
+     * Set size (in megabytes) of off-heap tier.
+     * 
+     * @param value
+     */
+    public void setOffHeapSizeInMb(long value);
+
+    /**
+     * Get size (in megabytes) of local disk tier. Zero disables the tier.
+     * 
+     * @return
+     */
+    public long getDiskSizeInMb();
+
+    /**
+     * Set size (in megabytes) of local disk tier.
+     * 
+     * @param value
+     */
+    public void setDiskSizeInMb(long value);
+
+    /**
+     * Get folder under which local disk tier data is stored.
+     * 
+     * @return
+     */
+    public String getDiskPath();
+
+    /**
+     * Set folder under which local disk tier data is stored.
+     * 
+     * @param value
+     */
+    public void setDiskPath(String value);
+
     /**
      * Indicates whether cache is enabled.
      * 
@@ -7,6 +7,8 @@
  */
 package com.sitewhere.grpc.client.spi.cache;
 
+import java.util.Map;
+
 import com.sitewhere.grpc.client.cache.CacheIdentifier;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.server.lifecycle.ILifecycleComponent;
@@ -64,4 +66,13 @@ public interface ICacheProvider<K, V> extends ILifecycleComponent {
      * @throws SiteWhereException
      */
     public void removeCacheEntry(ITenant tenant, K key) throws SiteWhereException;
+
+    /**
+     * Get a copy of all unexpired entries currently cached for a tenant.
+     * 
+     * @param tenant
+     * @return
+     * @throws SiteWhereException
+     */
+    public Map<K, V> getCacheEntries(ITenant tenant) throws SiteWhereException;
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.UUID;
 
 import com.sitewhere.grpc.client.MultitenantGrpcChannel;
+import com.sitewhere.grpc.client.event.DeviceEventExportStream;
 import com.sitewhere.grpc.client.spi.multitenant.IMultitenantApiChannel;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.DeviceEventIndex;
@@ -24,6 +25,9 @@ import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregateSeries;
+import com.sitewhere.spi.device.event.aggregation.IMeasurementAggregationCriteria;
+import com.sitewhere.spi.device.event.export.IDeviceEventExportCriteria;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
@@ -62,6 +66,17 @@ public interface IDeviceEventManagementApiChannel<T extends MultitenantGrpcChann
      */
     public void getDeviceEventById(UUID eventId, StreamObserver<IDeviceEvent> observer) throws SiteWhereException;
 
+    /**
+     * Get multiple device events by id in a single call. Ids that do not match
+     * an event are omitted from the result.
+     * 
+     * @param eventIds
+     * @param observer
+     * @throws SiteWhereException
+     */
+    public void getDeviceEventsByIds(List<UUID> eventIds, StreamObserver<List<IDeviceEvent>> observer)
+	    throws SiteWhereException;
+
     /**
      * Get a device event by alternate (external) id.
      * 
@@ -96,6 +111,32 @@ public interface IDeviceEventManagementApiChannel<T extends MultitenantGrpcChann
 	    IDateRangeSearchCriteria criteria, StreamObserver<ISearchResults<IDeviceMeasurement>> observer)
 	    throws SiteWhereException;
 
+    /**
+     * Aggregate device measurements for an index into fixed-width time buckets.
+     * 
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @param observer
+     * @throws SiteWhereException
+     */
+    public void aggregateDeviceMeasurementsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IMeasurementAggregationCriteria criteria, StreamObserver<List<IMeasurementAggregateSeries>> observer)
+	    throws SiteWhereException;
+
+    /**
+     * Export device events for an index as a stream of newline-delimited JSON
+     * chunks. The returned stream must be closed if it is not read to the end.
+     * 
+     * @param index
+     * @param entityIds
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public DeviceEventExportStream exportDeviceEventsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    IDeviceEventExportCriteria criteria) throws SiteWhereException;
+
     /**
      * Add locations for a given device assignment.
      * 
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.sitewhere.rest.model.tenant.Tenant;
+import com.sitewhere.security.SitewhereAuthentication;
+
+/**
+ * Verifies how the execution context resolves the tenant when both a gRPC
+ * context and a Spring Security authentication are present.
+ *
+ * @author Derek
+ */
+public class TenantExecutionContextTest {
+
+    @Test
+    public void testSpringTenantSwitchWins() throws Exception {
+	TenantExecutionContext attached = TenantExecutionContext.forAuthentication(authentication("tenantA"));
+	try {
+	    attached.call(() -> {
+		SecurityContextHolder.getContext().setAuthentication(authentication("tenantB"));
+		assertEquals("tenantB", TenantExecutionContext.currentTenant().getToken());
+		assertEquals("jwt-tenantB", TenantExecutionContext.current().getJwt());
+		return null;
+	    });
+	} finally {
+	    SecurityContextHolder.clearContext();
+	}
+    }
+
+    @Test
+    public void testAttachedContextUsedForSameAuthentication() throws Exception {
+	SitewhereAuthentication authentication = authentication("tenantA");
+	TenantExecutionContext attached = TenantExecutionContext.forAuthentication(authentication);
+	try {
+	    attached.call(() -> {
+		SecurityContextHolder.getContext().setAuthentication(authentication);
+		assertSame(attached, TenantExecutionContext.current());
+		return null;
+	    });
+	} finally {
+	    SecurityContextHolder.clearContext();
+	}
+    }
+
+    @Test
+    public void testAttachedContextUsedWithoutSpringAuthentication() throws Exception {
+	SecurityContextHolder.clearContext();
+	assertNull(TenantExecutionContext.current());
+	TenantExecutionContext attached = TenantExecutionContext.forAuthentication(authentication("tenantA"));
+	attached.call(() -> {
+	    assertSame(attached, TenantExecutionContext.current());
+	    assertEquals("tenantA", TenantExecutionContext.currentTenant().getToken());
+	    return null;
+	});
+    }
+
+    protected SitewhereAuthentication authentication(String tenantToken) {
+	Tenant tenant = new Tenant();
+	tenant.setToken(tenantToken);
+	return new SitewhereAuthentication(null, "jwt-" + tenantToken, tenant);
+    }
+}
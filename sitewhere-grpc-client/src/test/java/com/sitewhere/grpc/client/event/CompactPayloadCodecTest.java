@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
+import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
+import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
+import com.sitewhere.rest.model.device.event.DeviceAlert;
+import com.sitewhere.rest.model.device.event.DeviceEvent;
+import com.sitewhere.rest.model.device.event.DeviceEventContext;
+import com.sitewhere.rest.model.device.event.DeviceLocation;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.PersistedEventPayload;
+import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceEventCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.spi.device.DeviceAssignmentStatus;
+import com.sitewhere.spi.device.event.AlertLevel;
+import com.sitewhere.spi.device.event.AlertSource;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
+
+/**
+ * Verifies that each payload type survives a round trip through the compact
+ * encoding, that records may be mixed with standard protobuf encoding and that
+ * fields unknown to the reader are skipped.
+ *
+ * @author Derek
+ */
+public class CompactPayloadCodecTest {
+
+    /** Fixed timestamp for event dates */
+    private static final long EVENT_TIME = 1538352000000L;
+
+    /** Field number not used by any payload message */
+    private static final int UNKNOWN_FIELD = 1000;
+
+    @After
+    public void resetFormat() {
+	EventModelMarshaler.setCompactPayloads(false);
+    }
+
+    @Test
+    public void testInboundPayloads() throws Exception {
+	List<GInboundEventPayload> payloads = Arrays.asList(inbound(measurementRequest(0)), inbound(locationRequest()),
+		inbound(alertRequest()));
+	assertEquals(payloads, CompactPayloadCodec.decode(CompactPayloadCodec.encode(payloads),
+		GInboundEventPayload.getDefaultInstance()));
+    }
+
+    @Test
+    public void testPersistedPayloads() throws Exception {
+	List<GPersistedEventPayload> payloads = Arrays.asList(persisted(measurement(0)), persisted(location()),
+		persisted(alert()));
+	assertEquals(payloads, CompactPayloadCodec.decode(CompactPayloadCodec.encode(payloads),
+		GPersistedEventPayload.getDefaultInstance()));
+    }
+
+    @Test
+    public void testEnrichedPayloads() throws Exception {
+	List<GEnrichedEventPayload> payloads = Arrays.asList(enriched(measurement(0), "active"),
+		enriched(location(), "active"), enriched(alert(), "inactive"));
+	assertEquals(payloads, CompactPayloadCodec.decode(CompactPayloadCodec.encode(payloads),
+		GEnrichedEventPayload.getDefaultInstance()));
+    }
+
+    @Test
+    public void testMetadataAndEnums() throws Exception {
+	GInboundEventPayload grpc = inbound(alertRequest());
+	List<GInboundEventPayload> decoded = CompactPayloadCodec
+		.decode(CompactPayloadCodec.encode(Collections.singletonList(grpc)), grpc);
+	IDeviceAlertCreateRequest request = (IDeviceAlertCreateRequest) EventModelConverter
+		.asApiInboundEventPayload(decoded.get(0)).getEventCreateRequest();
+	assertEquals(metadata(), request.getMetadata());
+	assertEquals(AlertSource.System, request.getSource());
+	assertEquals(AlertLevel.Critical, request.getLevel());
+    }
+
+    @Test
+    public void testNegativeValues() throws Exception {
+	DeviceLocation location = location();
+	location.setId(new UUID(-1L, Long.MIN_VALUE));
+	location.setLatitude(-33.8688);
+	location.setLongitude(-151.2093);
+	location.setElevation(-28.0);
+	location.setEventDate(new Date(-EVENT_TIME));
+	location.setReceivedDate(new Date(-1L));
+	GPersistedEventPayload grpc = persisted(location);
+	assertEquals(Collections.singletonList(grpc),
+		CompactPayloadCodec.decode(CompactPayloadCodec.encode(Collections.singletonList(grpc)), grpc));
+    }
+
+    @Test
+    public void testGroupedPayloadsReferencePreviousValues() throws Exception {
+	List<GEnrichedEventPayload> shared = new ArrayList<>();
+	List<GEnrichedEventPayload> distinct = new ArrayList<>();
+	for (int i = 0; i < 10; i++) {
+	    shared.add(enriched(measurement(i), "active"));
+	    distinct.add(enriched(measurement(i), "status-" + i));
+	}
+	byte[] sharedRecord = CompactPayloadCodec.encode(shared);
+	byte[] distinctRecord = CompactPayloadCodec.encode(distinct);
+	assertEquals(shared, CompactPayloadCodec.decode(sharedRecord, GEnrichedEventPayload.getDefaultInstance()));
+	assertEquals(distinct, CompactPayloadCodec.decode(distinctRecord, GEnrichedEventPayload.getDefaultInstance()));
+
+	// A context equal to the previous one is written as a reference.
+	assertTrue(sharedRecord.length + (shared.size() - 1) * 32 < distinctRecord.length);
+    }
+
+    @Test
+    public void testProtobufAndCompactRecordsMayBeMixed() throws Exception {
+	GInboundEventPayload grpc = inbound(measurementRequest(0));
+	byte[] protobuf = EventModelMarshaler.buildInboundEventPayloadMessage(grpc);
+	EventModelMarshaler.setCompactPayloads(true);
+	byte[] compact = EventModelMarshaler.buildInboundEventPayloadMessage(grpc);
+
+	assertFalse(CompactPayloadCodec.isCompact(protobuf));
+	assertTrue(CompactPayloadCodec.isCompact(compact));
+	assertEquals(grpc, EventModelMarshaler.parseInboundEventPayloadMessage(protobuf));
+	assertEquals(grpc, EventModelMarshaler.parseInboundEventPayloadMessage(compact));
+	assertEquals(Collections.singletonList(grpc), EventModelMarshaler.parseInboundEventPayloadsMessage(protobuf));
+	assertEquals(Collections.singletonList(grpc), EventModelMarshaler.parseInboundEventPayloadsMessage(compact));
+    }
+
+    @Test
+    public void testUnknownFieldsAreSkipped() throws Exception {
+	GInboundEventPayload grpc = inbound(measurementRequest(0));
+	assertNull(grpc.getDescriptorForType().findFieldByNumber(UNKNOWN_FIELD));
+	byte[] record = CompactPayloadCodec.encode(Collections.singletonList(grpc));
+
+	// Append fields of every wire type before the terminator of the payload.
+	RecordBuilder unknown = new RecordBuilder();
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_VARINT).varint(-1L);
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_FIXED32).raw(new byte[4]);
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_FIXED64).raw(new byte[8]);
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_BYTES).varint(3).raw(new byte[] { 1, 2, 3 });
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_STRING).varint(1);
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_STRING).newString("added");
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_MESSAGE);
+	unknown.tag(1, CompactPayloadCodec.WIRE_VARINT).varint(5);
+	unknown.tag(2, CompactPayloadCodec.WIRE_UUID).raw(new byte[16]);
+	unknown.tag(3, CompactPayloadCodec.WIRE_PREVIOUS);
+	unknown.varint(0);
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_UUID).raw(new byte[16]);
+	unknown.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_PREVIOUS);
+
+	RecordBuilder extended = new RecordBuilder();
+	extended.raw(Arrays.copyOf(record, record.length - 1)).raw(unknown.toByteArray()).varint(0);
+	assertEquals(Collections.singletonList(grpc),
+		CompactPayloadCodec.decode(extended.toByteArray(), GInboundEventPayload.getDefaultInstance()));
+    }
+
+    @Test
+    public void testStringsInSkippedFieldsMayBeReferenced() throws Exception {
+	FieldDescriptor sourceId = fieldWithValue(inbound(measurementRequest(0)), "mqtt");
+	RecordBuilder record = new RecordBuilder();
+	record.raw(new byte[] { CompactPayloadCodec.MAGIC, CompactPayloadCodec.VERSION_2 }).varint(1);
+	record.tag(UNKNOWN_FIELD, CompactPayloadCodec.WIRE_STRING).newString("coap");
+	record.tag(sourceId.getNumber(), CompactPayloadCodec.WIRE_STRING).varint(1);
+	record.varint(0);
+	GInboundEventPayload decoded = CompactPayloadCodec
+		.decode(record.toByteArray(), GInboundEventPayload.getDefaultInstance()).get(0);
+	assertEquals("coap", decoded.getField(sourceId));
+    }
+
+    @Test
+    public void testVersion1RecordsAreRead() throws Exception {
+	FieldDescriptor sourceId = fieldWithValue(inbound(measurementRequest(0)), "mqtt");
+	RecordBuilder record = new RecordBuilder();
+	record.raw(new byte[] { CompactPayloadCodec.MAGIC, CompactPayloadCodec.VERSION_1 }).varint(1);
+	record.varint(sourceId.getNumber() << 1).newString("coap");
+	record.varint(0);
+	GInboundEventPayload decoded = CompactPayloadCodec
+		.decode(record.toByteArray(), GInboundEventPayload.getDefaultInstance()).get(0);
+	assertEquals("coap", decoded.getField(sourceId));
+    }
+
+    protected GInboundEventPayload inbound(DeviceEventCreateRequest request) throws Exception {
+	InboundEventPayload payload = new InboundEventPayload();
+	payload.setSourceId("mqtt");
+	payload.setDeviceToken("device-0001");
+	payload.setOriginator("test");
+	payload.setEventCreateRequest(request);
+	return EventModelConverter.asGrpcInboundEventPayload(payload);
+    }
+
+    protected GPersistedEventPayload persisted(DeviceEvent event) throws Exception {
+	PersistedEventPayload payload = new PersistedEventPayload();
+	payload.setDeviceId(event.getDeviceId());
+	payload.setEvent(event);
+	return EventModelConverter.asGrpcPersistedEventPayload(payload);
+    }
+
+    protected GEnrichedEventPayload enriched(DeviceEvent event, String status) throws Exception {
+	DeviceEventContext context = new DeviceEventContext();
+	context.setDeviceId(event.getDeviceId());
+	context.setDeviceTypeId(UUID.nameUUIDFromBytes("device-type".getBytes()));
+	context.setDeviceStatus(status);
+	context.setDeviceMetadata(metadata());
+	context.setAssignmentStatus(DeviceAssignmentStatus.Active);
+	context.setAssignmentMetadata(metadata());
+
+	EnrichedEventPayload payload = new EnrichedEventPayload();
+	payload.setEventContext(context);
+	payload.setEvent(event);
+	return EventModelConverter.asGrpcEnrichedEventPayload(payload);
+    }
+
+    protected DeviceMeasurementCreateRequest measurementRequest(int index) {
+	DeviceMeasurementCreateRequest request = new DeviceMeasurementCreateRequest();
+	request.setName("engine.temperature");
+	request.setValue(98.6 + index);
+	request.setEventDate(new Date(EVENT_TIME + (index * 1000L)));
+	request.setUpdateState(true);
+	request.setMetadata(metadata());
+	return request;
+    }
+
+    protected DeviceLocationCreateRequest locationRequest() {
+	DeviceLocationCreateRequest request = new DeviceLocationCreateRequest();
+	request.setLatitude(33.7550);
+	request.setLongitude(-84.3900);
+	request.setElevation(320.0);
+	request.setEventDate(new Date(EVENT_TIME));
+	request.setMetadata(metadata());
+	return request;
+    }
+
+    protected DeviceAlertCreateRequest alertRequest() {
+	DeviceAlertCreateRequest request = new DeviceAlertCreateRequest();
+	request.setSource(AlertSource.System);
+	request.setLevel(AlertLevel.Critical);
+	request.setType("engine.overheat");
+	request.setMessage("Engine temperature above threshold.");
+	request.setEventDate(new Date(EVENT_TIME));
+	request.setMetadata(metadata());
+	return request;
+    }
+
+    protected DeviceMeasurement measurement(int index) {
+	DeviceMeasurement measurement = event(new DeviceMeasurement(), DeviceEventType.Measurement, index);
+	measurement.setName("engine.temperature");
+	measurement.setValue(98.6 + index);
+	return measurement;
+    }
+
+    protected DeviceLocation location() {
+	DeviceLocation location = event(new DeviceLocation(), DeviceEventType.Location, 0);
+	location.setLatitude(33.7550);
+	location.setLongitude(-84.3900);
+	location.setElevation(320.0);
+	return location;
+    }
+
+    protected DeviceAlert alert() {
+	DeviceAlert alert = event(new DeviceAlert(), DeviceEventType.Alert, 0);
+	alert.setSource(AlertSource.Device);
+	alert.setLevel(AlertLevel.Warning);
+	alert.setType("engine.overheat");
+	alert.setMessage("Engine temperature above threshold.");
+	return alert;
+    }
+
+    protected <T extends DeviceEvent> T event(T event, DeviceEventType type, int index) {
+	event.setId(UUID.nameUUIDFromBytes((type.name() + index).getBytes()));
+	event.setAlternateId("alt-" + type.name());
+	event.setEventType(type);
+	event.setDeviceId(UUID.nameUUIDFromBytes("device".getBytes()));
+	event.setDeviceAssignmentId(UUID.nameUUIDFromBytes("assignment".getBytes()));
+	event.setCustomerId(UUID.nameUUIDFromBytes("customer".getBytes()));
+	event.setAreaId(UUID.nameUUIDFromBytes("area".getBytes()));
+	event.setAssetId(UUID.nameUUIDFromBytes("asset".getBytes()));
+	event.setEventDate(new Date(EVENT_TIME + (index * 1000L)));
+	event.setReceivedDate(new Date(EVENT_TIME + (index * 1000L) + 25));
+	event.setMetadata(metadata());
+	return event;
+    }
+
+    protected Map<String, String> metadata() {
+	Map<String, String> metadata = new HashMap<>();
+	metadata.put("firmware", "1.4.2");
+	metadata.put("region", "us-east");
+	metadata.put("empty", "");
+	return metadata;
+    }
+
+    /**
+     * Find the top level field of a message that holds a value.
+     *
+     * @param message
+     * @param value
+     * @return
+     */
+    protected FieldDescriptor fieldWithValue(Message message, Object value) {
+	for (FieldDescriptor field : message.getDescriptorForType().getFields()) {
+	    if (!field.isRepeated() && value.equals(message.getField(field))) {
+		return field;
+	    }
+	}
+	fail("No field with value " + value + ".");
+	return null;
+    }
+
+    /**
+     * Builds records by hand for cases the codec does not write itself.
+     */
+    protected static class RecordBuilder extends ByteArrayOutputStream {
+
+	public RecordBuilder tag(int number, int wireType) {
+	    return varint((number << CompactPayloadCodec.WIRE_TYPE_BITS) | wireType);
+	}
+
+	public RecordBuilder varint(long value) {
+	    while ((value & ~0x7fL) != 0) {
+		write((int) ((value & 0x7f) | 0x80));
+		value >>>= 7;
+	    }
+	    write((int) value);
+	    return this;
+	}
+
+	public RecordBuilder newString(String value) {
+	    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+	    return varint(0).varint(utf8.length).raw(utf8);
+	}
+
+	public RecordBuilder raw(byte[] bytes) {
+	    write(bytes, 0, bytes.length);
+	    return this;
+	}
+    }
+}
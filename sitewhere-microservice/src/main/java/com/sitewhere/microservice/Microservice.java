@@ -24,9 +24,12 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ScheduledReporter;
 import com.codahale.metrics.Slf4jReporter;
 import com.sitewhere.Version;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
 import com.sitewhere.microservice.discovery.consul.ConsulServiceDiscoveryProvider;
 import com.sitewhere.microservice.management.MicroserviceManagementGrpcServer;
+import com.sitewhere.microservice.metrics.MetricsHttpServer;
 import com.sitewhere.microservice.scripting.ScriptTemplateManager;
+import com.sitewhere.microservice.security.TokenManagement;
 import com.sitewhere.microservice.state.MicroserviceStateUpdatesKafkaProducer;
 import com.sitewhere.rest.model.configuration.ConfigurationModel;
 import com.sitewhere.rest.model.microservice.state.MicroserviceDetails;
@@ -144,6 +147,9 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
     /** Metrics reporter */
     private ScheduledReporter metricsReporter;
 
+    /** Serves metrics for scraping */
+    private MetricsHttpServer metricsHttpServer;
+
     /** Unique id for microservice */
     private UUID id = UUID.randomUUID();
 
@@ -188,6 +194,9 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
 	// Initialize metrics logging.
 	initializeMetrics();
 
+	// Initialize encoding of payloads on Kafka topics.
+	initializeKafkaPayloads();
+
 	// Initialize GRPC components.
 	initializeGrpcComponents();
 
@@ -248,6 +257,10 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
      * Initialize metrics.
      */
     protected void initializeMetrics() {
+	if (getTokenManagement() instanceof TokenManagement) {
+	    ((TokenManagement) getTokenManagement()).getVerifiedTokenCache().registerMetrics(getMetricRegistry(),
+		    "security.jwt.verified");
+	}
 	if (getInstanceSettings().isLogMetrics()) {
 	    this.metricsReporter = Slf4jReporter.forRegistry(getMetricRegistry()).convertRatesTo(TimeUnit.SECONDS)
 		    .convertDurationsTo(TimeUnit.MILLISECONDS).build();
@@ -255,6 +268,27 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
 	} else {
 	    getLogger().info(MicroserviceMessages.METRICS_REPORTING_DISABLED);
 	}
+	if (getInstanceSettings().getMetricsHttpPort() > 0) {
+	    this.metricsHttpServer = new MetricsHttpServer(this, getInstanceSettings().getMetricsHttpPort());
+	    try {
+		getMetricsHttpServer().start();
+	    } catch (SiteWhereException e) {
+		getLogger().error("Metrics will not be available via HTTP.", e);
+	    }
+	}
+    }
+
+    /**
+     * Initialize encoding used for payloads written to Kafka topics.
+     */
+    protected void initializeKafkaPayloads() {
+	boolean compact = "compact".equalsIgnoreCase(getInstanceSettings().getKafkaPayloadFormat());
+	EventModelMarshaler.setCompactPayloads(compact);
+	EventModelMarshaler.setGroupedPayloads(compact && getInstanceSettings().isKafkaPayloadGrouping());
+	if (compact) {
+	    getLogger().info("Writing Kafka payloads in compact format"
+		    + (EventModelMarshaler.isGroupedPayloads() ? " with grouping." : "."));
+	}
     }
 
     /**
@@ -296,6 +330,9 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
 	if (getMetricsReporter() != null) {
 	    getMetricsReporter().stop();
 	}
+	if (getMetricsHttpServer() != null) {
+	    getMetricsHttpServer().stop();
+	}
 
 	// Stop sending heartbeats.
 	if (getMicroserviceHeartbeatService() != null) {
@@ -669,6 +706,14 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
 	this.metricsReporter = metricsReporter;
     }
 
+    public MetricsHttpServer getMetricsHttpServer() {
+	return metricsHttpServer;
+    }
+
+    public void setMetricsHttpServer(MetricsHttpServer metricsHttpServer) {
+	this.metricsHttpServer = metricsHttpServer;
+    }
+
     /*
      * @see com.sitewhere.spi.tracing.ITracerProvider#getTracer()
      */
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sitewhere.grpc.client.device.CachedDeviceManagementApiChannel;
+import com.sitewhere.grpc.client.device.DeviceManagementCacheSnapshot;
+import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
+import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiDemux;
+import com.sitewhere.microservice.security.SystemUserRunnable;
+import com.sitewhere.rest.model.search.device.DeviceAssignmentSearchCriteria;
+import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.DeviceAssignmentStatus;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.microservice.instance.IInstanceSettings;
+import com.sitewhere.spi.search.ISearchResults;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
+
+/**
+ * Warms device management caches in the background when a tenant engine
+ * starts so that event processing does not fall back to a gRPC lookup for
+ * every event while caches are cold. If snapshots are enabled, the entities
+ * cached for the tenant are written to local disk when the engine stops. On
+ * the next start they are restored immediately and then revalidated against
+ * device management. Active device assignments are then loaded page by page,
+ * most recently activated first, along with the devices, device types and
+ * areas they reference.
+ *
+ * @author Derek
+ */
+public class DeviceManagementCacheWarmer extends TenantEngineLifecycleComponent {
+
+    /** Number of assignments requested per page */
+    private static final int PAGE_SIZE = 500;
+
+    /** Folder (relative to file system storage root) containing snapshots */
+    private static final String SNAPSHOT_FOLDER = "cache-snapshots";
+
+    /** Device management demux whose channel caches are warmed */
+    private IDeviceManagementApiDemux deviceManagementApiDemux;
+
+    /** Runs warm-up in the background */
+    private ExecutorService executor;
+
+    /** Indicates warm-up should continue */
+    private volatile boolean running;
+
+    public DeviceManagementCacheWarmer(IDeviceManagementApiDemux deviceManagementApiDemux) {
+	this.deviceManagementApiDemux = deviceManagementApiDemux;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#start(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	IInstanceSettings settings = getMicroservice().getInstanceSettings();
+	if (!settings.isCacheWarmupEnabled() && !settings.isCacheSnapshotEnabled()) {
+	    return;
+	}
+	this.running = true;
+	this.executor = Executors.newSingleThreadExecutor(new CacheWarmerThreadFactory());
+	executor.execute(new Warmup());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.running = false;
+	if (executor != null) {
+	    executor.shutdownNow();
+	    executor = null;
+	}
+	if (getMicroservice().getInstanceSettings().isCacheSnapshotEnabled()) {
+	    saveSnapshot();
+	}
+    }
+
+    /**
+     * Get caching channels for device management.
+     *
+     * @return
+     */
+    protected List<CachedDeviceManagementApiChannel> getCachedChannels() {
+	List<CachedDeviceManagementApiChannel> channels = new ArrayList<>();
+	for (IDeviceManagementApiChannel<?> channel : getDeviceManagementApiDemux().getApiChannels().values()) {
+	    if (channel instanceof CachedDeviceManagementApiChannel) {
+		channels.add((CachedDeviceManagementApiChannel) channel);
+	    }
+	}
+	return channels;
+    }
+
+    /**
+     * Get file used to store the cache snapshot for the tenant.
+     *
+     * @return
+     */
+    protected File getSnapshotFile() {
+	File root = new File(getMicroservice().getInstanceSettings().getFileSystemStorageRoot(), SNAPSHOT_FOLDER);
+	File folder = new File(root, getMicroservice().getIdentifier().getPath());
+	return new File(folder, getTenantEngine().getTenant().getId().toString() + ".snapshot");
+    }
+
+    /**
+     * Load snapshot saved when the tenant engine last stopped (null if none).
+     *
+     * @return
+     */
+    protected DeviceManagementCacheSnapshot loadSnapshot() {
+	File file = getSnapshotFile();
+	if (!file.exists()) {
+	    return null;
+	}
+	try {
+	    return DeviceManagementCacheSnapshot.read(file);
+	} catch (SiteWhereException e) {
+	    getLogger().warn("Ignoring unreadable device management cache snapshot.", e);
+	    file.delete();
+	    return null;
+	}
+    }
+
+    /**
+     * Write entities currently cached for the tenant to the snapshot file.
+     */
+    protected void saveSnapshot() {
+	List<CachedDeviceManagementApiChannel> channels = getCachedChannels();
+	if (channels.isEmpty()) {
+	    return;
+	}
+	try {
+	    DeviceManagementCacheSnapshot snapshot = channels.get(0).createSnapshot(getTenantEngine().getTenant());
+	    if (snapshot.size() > 0) {
+		snapshot.write(getSnapshotFile());
+		getLogger().info("Saved " + snapshot.size() + " cached device management entities to snapshot.");
+	    }
+	} catch (SiteWhereException e) {
+	    getLogger().warn("Unable to save device management cache snapshot.", e);
+	}
+    }
+
+    public IDeviceManagementApiDemux getDeviceManagementApiDemux() {
+	return deviceManagementApiDemux;
+    }
+
+    /**
+     * Restores the snapshot and preloads active assignments.
+     */
+    private class Warmup extends SystemUserRunnable {
+
+	public Warmup() {
+	    super(getTenantEngine().getMicroservice(), getTenantEngine().getTenant());
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#runAsSystemUser()
+	 */
+	@Override
+	public void runAsSystemUser() throws SiteWhereException {
+	    long start = System.currentTimeMillis();
+	    IInstanceSettings settings = getMicroservice().getInstanceSettings();
+	    DeviceManagementCacheSnapshot snapshot = settings.isCacheSnapshotEnabled() ? loadSnapshot() : null;
+	    if (snapshot != null) {
+		for (CachedDeviceManagementApiChannel channel : getCachedChannels()) {
+		    channel.restoreSnapshot(getTenant(), snapshot);
+		}
+		getLogger().info("Restored " + snapshot.size() + " device management entities from cache snapshot.");
+	    }
+
+	    getDeviceManagementApiDemux().waitForCorrespondingTenantEngineAvailable(getTenantEngine());
+	    List<CachedDeviceManagementApiChannel> channels = getCachedChannels();
+	    if (snapshot != null) {
+		for (CachedDeviceManagementApiChannel channel : channels) {
+		    if (!running) {
+			return;
+		    }
+		    channel.revalidateSnapshot(snapshot);
+		}
+		getLogger().info("Revalidated cache snapshot in " + (System.currentTimeMillis() - start) + "ms.");
+	    }
+	    if (!settings.isCacheWarmupEnabled() || channels.isEmpty()) {
+		return;
+	    }
+
+	    int limit = settings.getCacheWarmupMaxAssignments();
+	    int loaded = 0;
+	    DeviceAssignmentSearchCriteria criteria = new DeviceAssignmentSearchCriteria(1, PAGE_SIZE);
+	    criteria.setStatus(DeviceAssignmentStatus.Active);
+	    while (running && (loaded < limit)) {
+		ISearchResults<IDeviceAssignment> page = channels.get(0).listDeviceAssignments(criteria);
+		List<IDeviceAssignment> assignments = page.getResults();
+		if (assignments.isEmpty()) {
+		    break;
+		}
+		if (loaded + assignments.size() > limit) {
+		    assignments = assignments.subList(0, limit - loaded);
+		}
+		for (CachedDeviceManagementApiChannel channel : channels) {
+		    channel.preloadDeviceAssignments(assignments);
+		}
+		loaded += assignments.size();
+		if (page.getResults().size() < PAGE_SIZE) {
+		    break;
+		}
+		criteria.setPageNumber(criteria.getPageNumber() + 1);
+	    }
+	    getLogger().info("Preloaded caches with " + loaded + " active device assignments in "
+		    + (System.currentTimeMillis() - start) + "ms.");
+	}
+    }
+
+    /** Used for naming cache warm-up threads */
+    private class CacheWarmerThreadFactory implements ThreadFactory {
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, "Cache Warmup " + getTenantEngine().getTenant().getToken());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+}
@@ -8,6 +8,8 @@
 package com.sitewhere.microservice.grpc;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -43,6 +45,9 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
     /** Service implementation */
     private BindableService serviceImplementation;
 
+    /** Services hosted in addition to the primary implementation */
+    private List<BindableService> additionalServices = new ArrayList<BindableService>();
+
     /** Indicates whether to use tracing interceptor */
     private boolean useTracingInterceptor = false;
 
@@ -52,6 +57,9 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
     /** Interceptor for open tracing APIs */
     private ServerTracingInterceptor tracingInterceptor;
 
+    /** Interceptor for call latency metrics */
+    private MetricsServerInterceptor metricsInterceptor;
+
     /** Executor service used to handle GRPC requests */
     private ExecutorService serverExecutor = Executors.newFixedThreadPool(THREAD_POOL_SIZE,
 	    new GrpcServerThreadFactory());
@@ -69,6 +77,10 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
     protected Server buildServer() {
 	NettyServerBuilder builder = NettyServerBuilder.forPort(port);
 	builder.addService(getServiceImplementation()).intercept(getJwtInterceptor());
+	builder.intercept(getMetricsInterceptor());
+	for (BindableService service : getAdditionalServices()) {
+	    builder.addService(service);
+	}
 	builder.executor(getServerExecutor());
 	builder.bossEventLoopGroup(new NioEventLoopGroup(1));
 	builder.workerEventLoopGroup(new NioEventLoopGroup(100));
@@ -89,6 +101,7 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
 	try {
 	    this.jwtInterceptor = new JwtServerInterceptor(getMicroservice(), getServiceImplementation().getClass());
 	    this.tracingInterceptor = new ServerTracingInterceptor(getMicroservice().getTracer());
+	    this.metricsInterceptor = new MetricsServerInterceptor(getMicroservice());
 	    this.server = buildServer();
 	    getLogger().debug("Initialized GRPC server on port " + port + ".");
 	} catch (Throwable e) {
@@ -144,6 +157,14 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
 	this.serviceImplementation = serviceImplementation;
     }
 
+    public List<BindableService> getAdditionalServices() {
+	return additionalServices;
+    }
+
+    public void setAdditionalServices(List<BindableService> additionalServices) {
+	this.additionalServices = additionalServices;
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.client.spi.server.IGrpcServer#isUseTracingInterceptor()
@@ -200,6 +221,14 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
 	this.tracingInterceptor = tracingInterceptor;
     }
 
+    public MetricsServerInterceptor getMetricsInterceptor() {
+	return metricsInterceptor;
+    }
+
+    public void setMetricsInterceptor(MetricsServerInterceptor metricsInterceptor) {
+	this.metricsInterceptor = metricsInterceptor;
+    }
+
     public ExecutorService getServerExecutor() {
 	return serverExecutor;
     }
@@ -12,6 +12,8 @@ import org.apache.commons.logging.LogFactory;
 
 import com.sitewhere.grpc.client.GrpcContextKeys;
 import com.sitewhere.grpc.client.JwtClientInterceptor;
+import com.sitewhere.microservice.security.JwtExpiredException;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IMicroservice;
 
 import io.grpc.BindableService;
@@ -58,15 +60,37 @@ public class JwtServerInterceptor implements ServerInterceptor {
 	if (headers.containsKey(JwtClientInterceptor.JWT_KEY)) {
 	    String jwt = headers.get(JwtClientInterceptor.JWT_KEY);
 	    LOGGER.trace("Server received jwt key: " + jwt);
+
+	    // Reject bad tokens up front. Verified tokens are cached, so the lookup
+	    // made when the service method is entered does not verify again.
+	    try {
+		getMicroservice().getTokenManagement().getVerifiedToken(jwt);
+	    } catch (JwtExpiredException e) {
+		return reject(call, headers, "JWT has expired.");
+	    } catch (SiteWhereException e) {
+		return reject(call, headers, "JWT is invalid.");
+	    }
 	    Context ctx = Context.current().withValue(GrpcContextKeys.JWT_KEY, jwt);
 	    return Contexts.interceptCall(ctx, call, headers, next);
 	} else {
-	    call.close(Status.UNAUTHENTICATED.withDescription("JWT not passed in metadata."), headers);
-	    return new ServerCall.Listener<ReqT>() {
-	    };
+	    return reject(call, headers, "JWT not passed in metadata.");
 	}
     }
 
+    /**
+     * Close a call as unauthenticated.
+     * 
+     * @param call
+     * @param headers
+     * @param reason
+     * @return
+     */
+    protected <ReqT, RespT> Listener<ReqT> reject(ServerCall<ReqT, RespT> call, Metadata headers, String reason) {
+	call.close(Status.UNAUTHENTICATED.withDescription(reason), headers);
+	return new ServerCall.Listener<ReqT>() {
+	};
+    }
+
     protected IMicroservice<?> getMicroservice() {
 	return microservice;
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.grpc;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.sitewhere.grpc.client.TenantTokenClientInterceptor;
+import com.sitewhere.metrics.MetricsUtils;
+import com.sitewhere.spi.microservice.IMicroservice;
+import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
+import com.sitewhere.spi.microservice.multitenant.IMultitenantMicroservice;
+
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+/**
+ * Records server-side latency for each gRPC call, from the time the call is
+ * received until it is closed. Timers are tagged with the method name, the
+ * resulting status code and the tenant the call was made for.
+ * 
+ * @author Derek
+ */
+public class MetricsServerInterceptor implements ServerInterceptor {
+
+    /** Parent microservice */
+    private IMicroservice<?> microservice;
+
+    public MetricsServerInterceptor(IMicroservice<?> microservice) {
+	this.microservice = microservice;
+    }
+
+    /*
+     * @see io.grpc.ServerInterceptor#interceptCall(io.grpc.ServerCall,
+     * io.grpc.Metadata, io.grpc.ServerCallHandler)
+     */
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+	    ServerCallHandler<ReqT, RespT> next) {
+	final long start = System.nanoTime();
+	final String method = call.getMethodDescriptor().getFullMethodName();
+	final String tenant = getTenantToken(headers.get(TenantTokenClientInterceptor.TENANT_ID_KEY));
+	return next.startCall(new SimpleForwardingServerCall<ReqT, RespT>(call) {
+
+	    /*
+	     * @see io.grpc.ForwardingServerCall#close(io.grpc.Status, io.grpc.Metadata)
+	     */
+	    @Override
+	    public void close(Status status, Metadata trailers) {
+		String name = MetricsUtils.tagged(getMicroservice().getIdentifier().getPath() + ".grpc.server",
+			"method", method, "status", status.getCode().name());
+		name = MetricsUtils.withTag(name, MetricsUtils.TAG_TENANT, tenant);
+		MetricsUtils.timer(getMicroservice().getMetricRegistry(), name).update(System.nanoTime() - start,
+			TimeUnit.NANOSECONDS);
+		super.close(status, trailers);
+	    }
+	}, headers);
+    }
+
+    /**
+     * Resolve the token for the tenant a call was made for. Falls back to the
+     * tenant id if no engine is loaded for the tenant.
+     * 
+     * @param tenantId
+     * @return
+     */
+    protected String getTenantToken(String tenantId) {
+	if ((tenantId == null) || (!(getMicroservice() instanceof IMultitenantMicroservice))) {
+	    return tenantId;
+	}
+	try {
+	    IMicroserviceTenantEngine engine = ((IMultitenantMicroservice<?, ?>) getMicroservice())
+		    .getTenantEngineByTenantId(UUID.fromString(tenantId));
+	    return ((engine != null) && (engine.getTenant() != null)) ? engine.getTenant().getToken() : tenantId;
+	} catch (Throwable e) {
+	    return tenantId;
+	}
+    }
+
+    public IMicroservice<?> getMicroservice() {
+	return microservice;
+    }
+
+    public void setMicroservice(IMicroservice<?> microservice) {
+	this.microservice = microservice;
+    }
+}
@@ -38,6 +38,10 @@ public class MultitenantGrpcServer extends GrpcServer {
 	NettyServerBuilder builder = NettyServerBuilder.forPort(getPort());
 	builder.addService(getServiceImplementation()).intercept(getTenantTokenInterceptor())
 		.intercept(getJwtInterceptor());
+	builder.intercept(getMetricsInterceptor());
+	for (BindableService service : getAdditionalServices()) {
+	    builder.addService(service);
+	}
 	builder.addService(new MultitenantManagementImpl((IMultitenantMicroservice<?, ?>) getMicroservice()));
 	builder.executor(getServerExecutor());
 	builder.bossEventLoopGroup(new NioEventLoopGroup(1));
@@ -50,6 +50,22 @@ public class InstanceSettings implements IInstanceSettings {
     @Value("#{systemEnvironment['sitewhere.kafka.bootstrap.servers'] ?: 'kafka:9092'}")
     private String kafkaBootstrapServers;
 
+    /** Encoding for payloads on internal Kafka topics (protobuf or compact) */
+    @Value("#{systemEnvironment['sitewhere.kafka.payload.format'] ?: 'protobuf'}")
+    private String kafkaPayloadFormat;
+
+    /** Flag for whether events from one device are grouped into one Kafka record */
+    @Value("#{systemEnvironment['sitewhere.kafka.payload.grouping'] ?: 'false'}")
+    private boolean kafkaPayloadGrouping;
+
+    /** Default compression type for Kafka producers */
+    @Value("#{systemEnvironment['sitewhere.kafka.compression'] ?: 'none'}")
+    private String kafkaCompression;
+
+    /** Per-topic compression overrides as 'topic-suffix=type' pairs */
+    @Value("#{systemEnvironment['sitewhere.kafka.compression.topics'] ?: ''}")
+    private String kafkaCompressionTopics;
+
     /** File system root for storing SiteWhere data for microservices */
     @Value("#{systemEnvironment['sitewhere.filesystem.storage.root'] ?: '/var/sitewhere'}")
     private String fileSystemStorageRoot;
@@ -70,6 +86,42 @@ public class InstanceSettings implements IInstanceSettings {
     @Value("#{systemEnvironment['sitewhere.log.metrics'] ?: 'false'}")
     private boolean logMetrics;
 
+    /** Port for HTTP metrics endpoint (disabled if not positive) */
+    @Value("#{systemEnvironment['sitewhere.metrics.http.port'] ?: '9090'}")
+    private int metricsHttpPort;
+
+    /** Minimum number of tenant engines started concurrently */
+    @Value("#{systemEnvironment['sitewhere.tenant.engine.min.concurrency'] ?: '2'}")
+    private int tenantEngineMinConcurrency;
+
+    /** Maximum number of tenant engines started concurrently */
+    @Value("#{systemEnvironment['sitewhere.tenant.engine.max.concurrency'] ?: '32'}")
+    private int tenantEngineMaxConcurrency;
+
+    /** Flag for whether tenant engines are started on demand */
+    @Value("#{systemEnvironment['sitewhere.tenant.engine.lazy'] ?: 'false'}")
+    private boolean tenantEngineLazyActivation;
+
+    /** Seconds without activity before a lazily activated tenant engine is stopped */
+    @Value("#{systemEnvironment['sitewhere.tenant.engine.idle.timeout'] ?: '1800'}")
+    private int tenantEngineIdleTimeoutSeconds;
+
+    /** Flag for whether device management caches are preloaded on tenant engine start */
+    @Value("#{systemEnvironment['sitewhere.cache.warmup.enabled'] ?: 'true'}")
+    private boolean cacheWarmupEnabled;
+
+    /** Maximum number of device assignments preloaded per tenant engine */
+    @Value("#{systemEnvironment['sitewhere.cache.warmup.max.assignments'] ?: '10000'}")
+    private int cacheWarmupMaxAssignments;
+
+    /** Flag for whether device management caches are snapshotted to local disk */
+    @Value("#{systemEnvironment['sitewhere.cache.snapshot.enabled'] ?: 'false'}")
+    private boolean cacheSnapshotEnabled;
+
+    /** Tier sizes per cache type as 'type=heapEntries:offHeapMb:diskMb' pairs */
+    @Value("#{systemEnvironment['sitewhere.cache.tiers'] ?: ''}")
+    private String cacheTiers;
+
     /** Microservice publicly resolvable hostname */
     @Value("#{systemEnvironment['sitewhere.service.public.hostname'] ?: '#{null}'}")
     private String publicHostname;
@@ -181,6 +233,58 @@ public class InstanceSettings implements IInstanceSettings {
 	this.kafkaBootstrapServers = kafkaBootstrapServers;
     }
 
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * getKafkaPayloadFormat()
+     */
+    @Override
+    public String getKafkaPayloadFormat() {
+	return kafkaPayloadFormat;
+    }
+
+    public void setKafkaPayloadFormat(String kafkaPayloadFormat) {
+	this.kafkaPayloadFormat = kafkaPayloadFormat;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * isKafkaPayloadGrouping()
+     */
+    @Override
+    public boolean isKafkaPayloadGrouping() {
+	return kafkaPayloadGrouping;
+    }
+
+    public void setKafkaPayloadGrouping(boolean kafkaPayloadGrouping) {
+	this.kafkaPayloadGrouping = kafkaPayloadGrouping;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.instance.IInstanceSettings#getKafkaCompression()
+     */
+    @Override
+    public String getKafkaCompression() {
+	return kafkaCompression;
+    }
+
+    public void setKafkaCompression(String kafkaCompression) {
+	this.kafkaCompression = kafkaCompression;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * getKafkaCompressionTopics()
+     */
+    @Override
+    public String getKafkaCompressionTopics() {
+	return kafkaCompressionTopics;
+    }
+
+    public void setKafkaCompressionTopics(String kafkaCompressionTopics) {
+	this.kafkaCompressionTopics = kafkaCompressionTopics;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
      * getFileSystemStorageRoot()
@@ -244,6 +348,122 @@ public class InstanceSettings implements IInstanceSettings {
 	this.logMetrics = logMetrics;
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.instance.IInstanceSettings#getMetricsHttpPort()
+     */
+    @Override
+    public int getMetricsHttpPort() {
+	return metricsHttpPort;
+    }
+
+    public void setMetricsHttpPort(int metricsHttpPort) {
+	this.metricsHttpPort = metricsHttpPort;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * getTenantEngineMinConcurrency()
+     */
+    @Override
+    public int getTenantEngineMinConcurrency() {
+	return tenantEngineMinConcurrency;
+    }
+
+    public void setTenantEngineMinConcurrency(int tenantEngineMinConcurrency) {
+	this.tenantEngineMinConcurrency = tenantEngineMinConcurrency;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * getTenantEngineMaxConcurrency()
+     */
+    @Override
+    public int getTenantEngineMaxConcurrency() {
+	return tenantEngineMaxConcurrency;
+    }
+
+    public void setTenantEngineMaxConcurrency(int tenantEngineMaxConcurrency) {
+	this.tenantEngineMaxConcurrency = tenantEngineMaxConcurrency;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * isTenantEngineLazyActivation()
+     */
+    @Override
+    public boolean isTenantEngineLazyActivation() {
+	return tenantEngineLazyActivation;
+    }
+
+    public void setTenantEngineLazyActivation(boolean tenantEngineLazyActivation) {
+	this.tenantEngineLazyActivation = tenantEngineLazyActivation;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * getTenantEngineIdleTimeoutSeconds()
+     */
+    @Override
+    public int getTenantEngineIdleTimeoutSeconds() {
+	return tenantEngineIdleTimeoutSeconds;
+    }
+
+    public void setTenantEngineIdleTimeoutSeconds(int tenantEngineIdleTimeoutSeconds) {
+	this.tenantEngineIdleTimeoutSeconds = tenantEngineIdleTimeoutSeconds;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.instance.IInstanceSettings#isCacheWarmupEnabled()
+     */
+    @Override
+    public boolean isCacheWarmupEnabled() {
+	return cacheWarmupEnabled;
+    }
+
+    public void setCacheWarmupEnabled(boolean cacheWarmupEnabled) {
+	this.cacheWarmupEnabled = cacheWarmupEnabled;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#
+     * getCacheWarmupMaxAssignments()
+     */
+    @Override
+    public int getCacheWarmupMaxAssignments() {
+	return cacheWarmupMaxAssignments;
+    }
+
+    public void setCacheWarmupMaxAssignments(int cacheWarmupMaxAssignments) {
+	this.cacheWarmupMaxAssignments = cacheWarmupMaxAssignments;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.instance.IInstanceSettings#isCacheSnapshotEnabled()
+     */
+    @Override
+    public boolean isCacheSnapshotEnabled() {
+	return cacheSnapshotEnabled;
+    }
+
+    public void setCacheSnapshotEnabled(boolean cacheSnapshotEnabled) {
+	this.cacheSnapshotEnabled = cacheSnapshotEnabled;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.instance.IInstanceSettings#getCacheTiers()
+     */
+    @Override
+    public String getCacheTiers() {
+	return cacheTiers;
+    }
+
+    public void setCacheTiers(String cacheTiers) {
+	this.cacheTiers = cacheTiers;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.microservice.instance.IInstanceSettings#getPublicHostname()
@@ -68,6 +68,9 @@ public class KafkaTopicNaming implements IKafkaTopicNaming {
     /** Topic suffix for undelivered command invocations */
     protected static final String TENANT_TOPIC_UNDELIVERED_COMMAND_INVOCATIONS = "undelivered-command-invocations";
 
+    /** Topic suffix for command invocations waiting to be retried */
+    protected static final String TENANT_TOPIC_COMMAND_RETRY = "command-retry-";
+
     /** Topic suffix for unprocessed batch operations */
     protected static final String TENANT_TOPIC_UNPROCESSED_BATCH_OPERATIONS = "unprocessed-batch-operations";
 
@@ -227,6 +230,16 @@ public class KafkaTopicNaming implements IKafkaTopicNaming {
 	return getTenantPrefix(tenant) + TENANT_TOPIC_UNDELIVERED_COMMAND_INVOCATIONS;
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.kafka.IKafkaTopicNaming#getCommandRetryTopic(
+     * com.sitewhere.spi.tenant.ITenant, java.lang.String)
+     */
+    @Override
+    public String getCommandRetryTopic(ITenant tenant, String tier) {
+	return getTenantPrefix(tenant) + TENANT_TOPIC_COMMAND_RETRY + tier;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IKafkaTopicNaming#
      * getUnprocessedBatchOperationsTopic(com.sitewhere.spi.tenant.ITenant)
@@ -8,25 +8,34 @@
 package com.sitewhere.microservice.kafka;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 
+import com.codahale.metrics.Gauge;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer;
+import com.sitewhere.spi.microservice.multitenant.IMultitenantMicroservice;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
 /**
@@ -43,6 +52,9 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
     /** Executor service */
     private ExecutorService executor;
 
+    /** Names of consumer lag gauges registered for assigned partitions */
+    private Map<TopicPartition, String> lagGauges = new ConcurrentHashMap<>();
+
     /*
      * (non-Javadoc)
      * 
@@ -75,6 +87,60 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 	if (executor != null) {
 	    executor.shutdown();
 	}
+	for (String name : lagGauges.values()) {
+	    getMetricRegistry().remove(name);
+	}
+	lagGauges.clear();
+    }
+
+    /**
+     * Register a gauge that reports consumer lag for a partition. Lag is read
+     * from the metrics maintained by the Kafka client, so no broker requests are
+     * made when the gauge is sampled.
+     * 
+     * @param topicPartition
+     */
+    protected void registerLagGauge(TopicPartition topicPartition) {
+	if (lagGauges.containsKey(topicPartition)) {
+	    return;
+	}
+	String name = getTenantMetricName(MetricsUtils.tagged("kafka.consumer.lag", "topic", topicPartition.topic(),
+		"partition", String.valueOf(topicPartition.partition())));
+	try {
+	    getMetricRegistry().register(name, new Gauge<Double>() {
+
+		@Override
+		public Double getValue() {
+		    return getRecordsLag(topicPartition);
+		}
+	    });
+	} catch (IllegalArgumentException e) {
+	    // Gauge already registered by a previous instance.
+	}
+	lagGauges.put(topicPartition, name);
+    }
+
+    /**
+     * Get number of records the consumer is behind for a partition.
+     * 
+     * @param topicPartition
+     * @return lag or NaN if not yet known
+     */
+    protected double getRecordsLag(TopicPartition topicPartition) {
+	KafkaConsumer<String, byte[]> consumer = getConsumer();
+	if (consumer == null) {
+	    return Double.NaN;
+	}
+	String partition = String.valueOf(topicPartition.partition());
+	for (Map.Entry<MetricName, ? extends Metric> entry : consumer.metrics().entrySet()) {
+	    MetricName metric = entry.getKey();
+	    if ("records-lag".equals(metric.name()) && topicPartition.topic().equals(metric.tags().get("topic"))
+		    && partition.equals(metric.tags().get("partition"))) {
+		Object value = entry.getValue().metricValue();
+		return (value instanceof Number) ? ((Number) value).doubleValue() : Double.NaN;
+	    }
+	}
+	return Double.NaN;
     }
 
     /**
@@ -109,6 +175,47 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 	this.consumer = consumer;
     }
 
+    /**
+     * Get longest time a poll waits for records. Subclasses that need
+     * {@link #afterPoll()} to run while no records arrive should return a bounded
+     * value.
+     * 
+     * @return
+     */
+    protected long getPollTimeoutMs() {
+	return Long.MAX_VALUE;
+    }
+
+    /**
+     * Called on the consumer thread after each poll once records (if any) have
+     * been processed. This is the only place other than
+     * {@link #process(TopicPartition, List)} where the consumer may be used
+     * safely, for instance to commit offsets completed by other threads.
+     */
+    protected void afterPoll() {
+    }
+
+    /**
+     * Called on the consumer thread before partitions are reassigned to another
+     * consumer, for instance to commit completed offsets and discard state kept
+     * for the partitions.
+     * 
+     * @param partitions
+     */
+    protected void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+    }
+
+    /**
+     * Record tenant activity so that engines started lazily are kept running
+     * while records are being consumed.
+     */
+    protected void markTenantActive() {
+	if ((getTenantEngine() != null) && (getMicroservice() instanceof IMultitenantMicroservice)) {
+	    IMultitenantMicroservice<?, ?> microservice = (IMultitenantMicroservice<?, ?>) getMicroservice();
+	    microservice.markTenantEngineActive(getTenantEngine().getTenant().getId());
+	}
+    }
+
     /**
      * Thread that polls Kafka for records arriving on the specified topic.
      * 
@@ -121,7 +228,7 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 	    // Attempt to subscribe
 	    while (true) {
 		try {
-		    getConsumer().subscribe(getSourceTopicNames());
+		    getConsumer().subscribe(getSourceTopicNames(), new RebalanceListener());
 		    break;
 		} catch (SiteWhereException e) {
 		    getLogger().error("Unable to subscribe to topics.", e);
@@ -136,8 +243,12 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 	    }
 	    try {
 		while (true) {
-		    ConsumerRecords<String, byte[]> records = getConsumer().poll(Duration.ofMillis(Long.MAX_VALUE));
+		    ConsumerRecords<String, byte[]> records = getConsumer().poll(Duration.ofMillis(getPollTimeoutMs()));
+		    if (!records.isEmpty()) {
+			markTenantActive();
+		    }
 		    for (TopicPartition topicPartition : records.partitions()) {
+			registerLagGauge(topicPartition);
 			try {
 			    List<ConsumerRecord<String, byte[]>> topicRecords = records.records(topicPartition);
 			    process(topicPartition, topicRecords);
@@ -145,6 +256,13 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 			    getLogger().error("Unhandled exception in consumer processing.", e);
 			}
 		    }
+		    try {
+			afterPoll();
+		    } catch (WakeupException e) {
+			throw e;
+		    } catch (Throwable e) {
+			getLogger().error("Unhandled exception after consumer poll.", e);
+		    }
 		}
 	    } catch (WakeupException e) {
 		getLogger().info("Consumer thread received shutdown request.");
@@ -155,6 +273,35 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 	}
     }
 
+    /**
+     * Passes partition revocation to the consumer.
+     */
+    private class RebalanceListener implements ConsumerRebalanceListener {
+
+	/*
+	 * @see org.apache.kafka.clients.consumer.ConsumerRebalanceListener#
+	 * onPartitionsRevoked(java.util.Collection)
+	 */
+	@Override
+	public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+	    try {
+		MicroserviceKafkaConsumer.this.onPartitionsRevoked(partitions);
+	    } catch (WakeupException e) {
+		throw e;
+	    } catch (Throwable e) {
+		getLogger().error("Unhandled exception while revoking partitions.", e);
+	    }
+	}
+
+	/*
+	 * @see org.apache.kafka.clients.consumer.ConsumerRebalanceListener#
+	 * onPartitionsAssigned(java.util.Collection)
+	 */
+	@Override
+	public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+	}
+    }
+
     /** Used for naming microservice consumer thread */
     private class MicroserviceConsumerThreadFactory implements ThreadFactory {
 
@@ -16,9 +16,12 @@ import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
+import com.codahale.metrics.Timer;
+import com.sitewhere.metrics.MetricsUtils;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
@@ -45,6 +48,9 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
     /** Kafka acknowledgement policy */
     private AckPolicy ackPolicy;
 
+    /** Timer for latency from send until acknowledged */
+    private Timer produceTimer;
+
     public MicroserviceKafkaProducer(AckPolicy ackPolicy) {
 	this.ackPolicy = ackPolicy;
     }
@@ -63,6 +69,7 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
 	getLogger().info("Will be producing messages for: " + getTargetTopicName());
 	this.producer = new KafkaProducer<String, byte[]>(buildConfiguration());
 	this.kafkaAdmin = AdminClient.create(buildAdminConfiguration());
+	this.produceTimer = createTimerMetric(MetricsUtils.tagged("kafka.produce", "topic", getTargetTopicName()));
 	waitForKafkaAvailable();
     }
 
@@ -109,9 +116,22 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
      */
     @Override
     public Future<RecordMetadata> send(String key, byte[] message) throws SiteWhereException {
-	ProducerRecord<String, byte[]> record = new ProducerRecord<String, byte[]>(getTargetTopicName(), key, message);
+	return send(key, message, null);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer#send(java.
+     * lang.String, byte[], java.lang.Iterable)
+     */
+    @Override
+    public Future<RecordMetadata> send(String key, byte[] message, Iterable<Header> headers)
+	    throws SiteWhereException {
+	ProducerRecord<String, byte[]> record = new ProducerRecord<String, byte[]>(getTargetTopicName(), null, key,
+		message, headers);
+	final Timer.Context context = getProduceTimer().time();
 	try {
-	    return getProducer().send(record);
+	    return getProducer().send(record, (metadata, exception) -> context.stop());
 	} catch (IllegalStateException e) {
 	    throw new SiteWhereException("Producer unable to send record.", e);
 	} catch (Throwable e) {
@@ -132,9 +152,31 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
 	config.put(ProducerConfig.ACKS_CONFIG, getAckPolicy().getConfig());
 	config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
 	config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+	config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, getCompressionType());
 	return config;
     }
 
+    /**
+     * Get compression type for the target topic. Per-topic overrides are matched
+     * against the end of the topic name so they apply across tenants.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    protected String getCompressionType() throws SiteWhereException {
+	String overrides = getMicroservice().getInstanceSettings().getKafkaCompressionTopics();
+	if ((overrides != null) && (overrides.trim().length() > 0)) {
+	    String topic = getTargetTopicName();
+	    for (String override : overrides.split(",")) {
+		String[] parts = override.split("=");
+		if ((parts.length == 2) && topic.endsWith(parts[0].trim())) {
+		    return parts[1].trim();
+		}
+	    }
+	}
+	return getMicroservice().getInstanceSettings().getKafkaCompression();
+    }
+
     /**
      * Build configuration settings used by admin client.
      * 
@@ -164,6 +206,10 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
 	this.kafkaAdmin = kafkaAdmin;
     }
 
+    protected Timer getProduceTimer() {
+	return produceTimer;
+    }
+
     protected AckPolicy getAckPolicy() {
 	return ackPolicy;
     }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.IMicroservice;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server that exposes the microservice metric registry for
+ * scraping at <code>/metrics</code>. OpenMetrics output is returned when
+ * requested via the <code>Accept</code> header, otherwise the Prometheus text
+ * format is used.
+ * 
+ * @author Derek
+ */
+public class MetricsHttpServer {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(MetricsHttpServer.class);
+
+    /** Path metrics are served from */
+    public static final String METRICS_PATH = "/metrics";
+
+    /** Parent microservice */
+    private IMicroservice<?> microservice;
+
+    /** Port server listens on */
+    private int port;
+
+    /** Wrapped HTTP server */
+    private HttpServer server;
+
+    /** Executor that handles requests */
+    private ExecutorService executor;
+
+    public MetricsHttpServer(IMicroservice<?> microservice, int port) {
+	this.microservice = microservice;
+	this.port = port;
+    }
+
+    /**
+     * Start listening for requests.
+     * 
+     * @throws SiteWhereException
+     */
+    public void start() throws SiteWhereException {
+	try {
+	    this.server = HttpServer.create(new InetSocketAddress(getPort()), 0);
+	    this.executor = Executors.newSingleThreadExecutor(new MetricsHttpThreadFactory());
+	    server.createContext(METRICS_PATH, new MetricsHandler());
+	    server.setExecutor(executor);
+	    server.start();
+	    LOGGER.info("Metrics available via HTTP on port " + getPort() + " at '" + METRICS_PATH + "'.");
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to start metrics HTTP server.", e);
+	}
+    }
+
+    /**
+     * Stop listening for requests.
+     */
+    public void stop() {
+	if (server != null) {
+	    server.stop(0);
+	}
+	if (executor != null) {
+	    executor.shutdownNow();
+	}
+    }
+
+    /**
+     * Get labels added to all exported metrics.
+     * 
+     * @return
+     */
+    protected Map<String, String> getConstantLabels() {
+	Map<String, String> labels = new LinkedHashMap<>();
+	labels.put("instance", getMicroservice().getInstanceSettings().getInstanceId());
+	labels.put("service", getMicroservice().getIdentifier().getPath());
+	return labels;
+    }
+
+    /**
+     * Handles requests for metrics.
+     */
+    private class MetricsHandler implements HttpHandler {
+
+	/*
+	 * @see com.sun.net.httpserver.HttpHandler#handle(com.sun.net.httpserver.
+	 * HttpExchange)
+	 */
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+	    try {
+		String method = exchange.getRequestMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method)) {
+		    exchange.sendResponseHeaders(405, -1);
+		    return;
+		}
+		String accept = exchange.getRequestHeaders().getFirst("Accept");
+		boolean openMetrics = (accept != null) && accept.contains("application/openmetrics-text");
+		OpenMetricsWriter writer = new OpenMetricsWriter(getConstantLabels(), openMetrics);
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+		try {
+		    writer.write(getMicroservice().getMetricRegistry(),
+			    new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+		} catch (Throwable t) {
+		    LOGGER.error("Unable to write metrics.", t);
+		    exchange.sendResponseHeaders(500, -1);
+		    return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", openMetrics
+			? OpenMetricsWriter.CONTENT_TYPE_OPENMETRICS : OpenMetricsWriter.CONTENT_TYPE_TEXT);
+		if ("HEAD".equals(method)) {
+		    exchange.sendResponseHeaders(200, -1);
+		    return;
+		}
+		exchange.sendResponseHeaders(200, buffer.size());
+		OutputStream output = exchange.getResponseBody();
+		buffer.writeTo(output);
+		output.flush();
+	    } finally {
+		exchange.close();
+	    }
+	}
+    }
+
+    /** Used for naming metrics HTTP threads */
+    private class MetricsHttpThreadFactory implements ThreadFactory {
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, "Metrics HTTP");
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+
+    public IMicroservice<?> getMicroservice() {
+	return microservice;
+    }
+
+    public int getPort() {
+	return port;
+    }
+}
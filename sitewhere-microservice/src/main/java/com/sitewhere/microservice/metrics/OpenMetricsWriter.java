@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.sitewhere.metrics.MetricsUtils;
+
+/**
+ * Writes the contents of a {@link MetricRegistry} in the OpenMetrics text
+ * format (or the Prometheus 0.0.4 text format for older scrapers). Tags encoded
+ * in registry names are exported as labels and metrics sharing a base name are
+ * grouped into a single family. Timers are exported as summaries in seconds
+ * with a fixed set of quantiles.
+ * 
+ * @author Derek
+ */
+public class OpenMetricsWriter {
+
+    /** Content type for OpenMetrics output */
+    public static final String CONTENT_TYPE_OPENMETRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /** Content type for Prometheus text output */
+    public static final String CONTENT_TYPE_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    /** Prefix added to all metric names */
+    private static final String NAME_PREFIX = "sitewhere_";
+
+    /** Quantiles exported for summaries */
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.99, 0.999 };
+
+    /** Nanoseconds per second */
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** Labels added to every sample */
+    private Map<String, String> constantLabels;
+
+    /** Indicates whether OpenMetrics (rather than Prometheus text) is written */
+    private boolean openMetrics;
+
+    public OpenMetricsWriter(Map<String, String> constantLabels, boolean openMetrics) {
+	this.constantLabels = constantLabels;
+	this.openMetrics = openMetrics;
+    }
+
+    /**
+     * Write all metrics in a registry.
+     * 
+     * @param registry
+     * @param out
+     * @throws IOException
+     */
+    public void write(MetricRegistry registry, Writer out) throws IOException {
+	Map<String, List<Map.Entry<String, Metric>>> families = new TreeMap<>();
+	for (Map.Entry<String, Metric> entry : registry.getMetrics().entrySet()) {
+	    String family = getFamilyName(entry.getValue(), sanitizeName(MetricsUtils.getBaseName(entry.getKey())));
+	    if (family != null) {
+		families.computeIfAbsent(family, f -> new ArrayList<>()).add(entry);
+	    }
+	}
+	for (Map.Entry<String, List<Map.Entry<String, Metric>>> family : families.entrySet()) {
+	    writeFamily(family.getKey(), family.getValue(), out);
+	}
+	if (isOpenMetrics()) {
+	    out.write("# EOF\n");
+	}
+	out.flush();
+    }
+
+    /**
+     * Get name of family a metric is exported in. Metrics of different types
+     * that share a base name are exported in different families.
+     * 
+     * @param metric
+     * @param name
+     * @return family name or null if metric type is not exported
+     */
+    protected String getFamilyName(Metric metric, String name) {
+	if (metric instanceof Timer) {
+	    return name + "_seconds";
+	} else if (metric instanceof Meter) {
+	    return isOpenMetrics() ? name : name + "_total";
+	} else if ((metric instanceof Gauge) || (metric instanceof Counter) || (metric instanceof Histogram)) {
+	    return name;
+	}
+	return null;
+    }
+
+    /**
+     * Write metadata and samples for a family of metrics.
+     * 
+     * @param family
+     * @param metrics
+     * @param out
+     * @throws IOException
+     */
+    protected void writeFamily(String family, List<Map.Entry<String, Metric>> metrics, Writer out)
+	    throws IOException {
+	Metric first = metrics.get(0).getValue();
+	String type = ((first instanceof Timer) || (first instanceof Histogram)) ? "summary"
+		: (first instanceof Meter) ? "counter" : "gauge";
+	out.write("# TYPE " + family + " " + type + "\n");
+	if (isOpenMetrics() && (first instanceof Timer)) {
+	    out.write("# UNIT " + family + " seconds\n");
+	}
+	for (Map.Entry<String, Metric> entry : metrics) {
+	    Map<String, String> labels = getLabels(entry.getKey());
+	    Metric metric = entry.getValue();
+	    if (metric instanceof Timer) {
+		Timer timer = (Timer) metric;
+		writeSummary(family, labels, timer.getSnapshot(), timer.getCount(), 1.0 / NANOS_PER_SECOND, out);
+	    } else if (metric instanceof Histogram) {
+		Histogram histogram = (Histogram) metric;
+		writeSummary(family, labels, histogram.getSnapshot(), histogram.getCount(), 1.0, out);
+	    } else if (metric instanceof Meter) {
+		String sample = isOpenMetrics() ? family + "_total" : family;
+		writeSample(sample, labels, ((Meter) metric).getCount(), out);
+	    } else if (metric instanceof Counter) {
+		writeSample(family, labels, ((Counter) metric).getCount(), out);
+	    } else if (metric instanceof Gauge) {
+		Object value = ((Gauge<?>) metric).getValue();
+		if (value instanceof Number) {
+		    writeSample(family, labels, ((Number) value).doubleValue(), out);
+		} else if (value instanceof Boolean) {
+		    writeSample(family, labels, ((Boolean) value) ? 1 : 0, out);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Write quantiles and count for a summary.
+     * 
+     * @param family
+     * @param labels
+     * @param snapshot
+     * @param count
+     * @param scale
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSummary(String family, Map<String, String> labels, Snapshot snapshot, long count, double scale,
+	    Writer out) throws IOException {
+	for (double quantile : QUANTILES) {
+	    Map<String, String> quantileLabels = new LinkedHashMap<>(labels);
+	    quantileLabels.put("quantile", String.valueOf(quantile));
+	    writeSample(family, quantileLabels, snapshot.getValue(quantile) * scale, out);
+	}
+	writeSample(family + "_count", labels, count, out);
+    }
+
+    /**
+     * Write a single sample with an integer value.
+     * 
+     * @param name
+     * @param labels
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSample(String name, Map<String, String> labels, long value, Writer out) throws IOException {
+	writeSample(name, labels, String.valueOf(value), out);
+    }
+
+    /**
+     * Write a single sample with a floating point value.
+     * 
+     * @param name
+     * @param labels
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSample(String name, Map<String, String> labels, double value, Writer out) throws IOException {
+	writeSample(name, labels, formatDouble(value), out);
+    }
+
+    /**
+     * Write a single sample.
+     * 
+     * @param name
+     * @param labels
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    protected void writeSample(String name, Map<String, String> labels, String value, Writer out) throws IOException {
+	out.write(name);
+	if (!labels.isEmpty()) {
+	    out.write('{');
+	    boolean first = true;
+	    for (Map.Entry<String, String> label : labels.entrySet()) {
+		if (!first) {
+		    out.write(',');
+		}
+		out.write(label.getKey());
+		out.write("=\"");
+		out.write(escapeLabelValue(label.getValue()));
+		out.write('"');
+		first = false;
+	    }
+	    out.write('}');
+	}
+	out.write(' ');
+	out.write(value);
+	out.write('\n');
+    }
+
+    /**
+     * Get constant labels merged with tags encoded in a registry name.
+     * 
+     * @param registryName
+     * @return
+     */
+    protected Map<String, String> getLabels(String registryName) {
+	Map<String, String> labels = new LinkedHashMap<>();
+	for (Map.Entry<String, String> label : getConstantLabels().entrySet()) {
+	    labels.put(sanitizeLabelName(label.getKey()), label.getValue());
+	}
+	for (Map.Entry<String, String> tag : MetricsUtils.getTags(registryName).entrySet()) {
+	    labels.put(sanitizeLabelName(tag.getKey()), tag.getValue());
+	}
+	return labels;
+    }
+
+    /**
+     * Convert a registry base name into a valid metric name.
+     * 
+     * @param name
+     * @return
+     */
+    protected static String sanitizeName(String name) {
+	return NAME_PREFIX + sanitizeLabelName(name);
+    }
+
+    /**
+     * Replace characters not allowed in metric or label names.
+     * 
+     * @param name
+     * @return
+     */
+    protected static String sanitizeLabelName(String name) {
+	StringBuilder result = new StringBuilder(name.length());
+	for (char c : name.toCharArray()) {
+	    boolean valid = ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9'));
+	    result.append(valid ? c : '_');
+	}
+	if ((result.length() > 0) && Character.isDigit(result.charAt(0))) {
+	    result.insert(0, '_');
+	}
+	return result.toString();
+    }
+
+    /**
+     * Escape backslashes, quotes and newlines in a label value.
+     * 
+     * @param value
+     * @return
+     */
+    protected static String escapeLabelValue(String value) {
+	if (value == null) {
+	    return "";
+	}
+	StringBuilder result = new StringBuilder(value.length());
+	for (char c : value.toCharArray()) {
+	    switch (c) {
+	    case '\\':
+		result.append("\\\\");
+		break;
+	    case '"':
+		result.append("\\\"");
+		break;
+	    case '\n':
+		result.append("\\n");
+		break;
+	    default:
+		result.append(c);
+	    }
+	}
+	return result.toString();
+    }
+
+    /**
+     * Format a floating point value.
+     * 
+     * @param value
+     * @return
+     */
+    protected static String formatDouble(double value) {
+	if (Double.isNaN(value)) {
+	    return "NaN";
+	} else if (Double.isInfinite(value)) {
+	    return (value > 0) ? "+Inf" : "-Inf";
+	}
+	return Double.toString(value);
+    }
+
+    public Map<String, String> getConstantLabels() {
+	return constantLabels;
+    }
+
+    public boolean isOpenMetrics() {
+	return openMetrics;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.multitenant;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent operations, adjusting the limit based on
+ * how long operations take. The limit grows by one while operations complete
+ * within a tolerance of the best observed time and is reduced when they slow
+ * down (shared dependencies such as ZooKeeper or the database are saturated)
+ * or fail.
+ * 
+ * @author Derek
+ */
+public class AdaptiveConcurrencyLimit {
+
+    /** Operations slower than this multiple of the baseline reduce the limit */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /** Rate at which the baseline drifts toward recent samples */
+    private static final double BASELINE_DRIFT = 0.05;
+
+    /** Minimum limit */
+    private final int minimum;
+
+    /** Maximum limit */
+    private final int maximum;
+
+    /** Current limit */
+    private int limit;
+
+    /** Operations currently running */
+    private int inFlight;
+
+    /** Baseline operation time in milliseconds (0 until first sample) */
+    private double baselineMs;
+
+    /** Guards state */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signaled when a permit may be available */
+    private final Condition available = lock.newCondition();
+
+    public AdaptiveConcurrencyLimit(int minimum, int maximum) {
+	this.minimum = Math.max(1, minimum);
+	this.maximum = Math.max(this.minimum, maximum);
+	this.limit = this.minimum;
+    }
+
+    /**
+     * Wait until an operation may be started.
+     * 
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+	lock.lock();
+	try {
+	    while (inFlight >= limit) {
+		available.await();
+	    }
+	    inFlight++;
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Indicate that an operation has completed and adjust the limit.
+     * 
+     * @param elapsedMs
+     * @param successful
+     */
+    public void release(long elapsedMs, boolean successful) {
+	lock.lock();
+	try {
+	    inFlight--;
+	    if (!successful) {
+		limit = Math.max(minimum, limit / 2);
+	    } else {
+		if ((baselineMs == 0) || (elapsedMs < baselineMs)) {
+		    baselineMs = elapsedMs;
+		} else {
+		    baselineMs += (elapsedMs - baselineMs) * BASELINE_DRIFT;
+		}
+		if (elapsedMs <= baselineMs * LATENCY_TOLERANCE) {
+		    limit = Math.min(maximum, limit + 1);
+		} else {
+		    limit = Math.max(minimum, limit - 1);
+		}
+	    }
+	    available.signalAll();
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    public int getLimit() {
+	lock.lock();
+	try {
+	    return limit;
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    public int getInFlight() {
+	lock.lock();
+	try {
+	    return inFlight;
+	} finally {
+	    lock.unlock();
+	}
+    }
+}
@@ -12,6 +12,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 
 import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.configuration.ConfigurationUtils;
@@ -260,6 +261,11 @@ public abstract class MicroserviceTenantEngine extends TenantEngineLifecycleComp
 
 	// Execute terminate steps.
 	stop.execute(monitor);
+
+	// Release module beans so passivated engines do not hold heap.
+	if (getModuleContext() instanceof ConfigurableApplicationContext) {
+	    ((ConfigurableApplicationContext) getModuleContext()).close();
+	}
     }
 
     /*
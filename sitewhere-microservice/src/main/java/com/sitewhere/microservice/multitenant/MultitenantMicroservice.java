@@ -7,19 +7,25 @@
  */
 package com.sitewhere.microservice.multitenant;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.curator.framework.CuratorFramework;
 
+import com.codahale.metrics.Gauge;
 import com.google.common.collect.MapMaker;
 import com.sitewhere.grpc.client.spi.client.ITenantManagementApiDemux;
 import com.sitewhere.grpc.client.tenant.TenantManagementApiDemux;
@@ -54,8 +60,11 @@ import com.sitewhere.spi.tenant.ITenant;
 public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T extends IMicroserviceTenantEngine>
 	extends ConfigurableMicroservice<I> implements IMultitenantMicroservice<I, T> {
 
-    /** Max number of tenants being added/removed concurrently */
-    private static final int MAX_CONCURRENT_TENANT_OPERATIONS = 5;
+    /** Delay before retrying a tenant that has not been bootstrapped */
+    private static final long BOOTSTRAP_RETRY_DELAY_MS = 5 * 1000;
+
+    /** Time an API call waits for a lazily activated tenant engine to start */
+    private static final long ACTIVATION_WAIT_MS = 10 * 1000;
 
     /** Tenant management API demux */
     private ITenantManagementApiDemux tenantManagementApiDemux;
@@ -75,6 +84,30 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
     /** Executor for tenant operations */
     private ExecutorService tenantOperations;
 
+    /** Executor for thread that takes tenants from the queue */
+    private ExecutorService tenantEngineStarter;
+
+    /** Executor for requeueing tenants that are not bootstrapped */
+    private ScheduledExecutorService tenantRetries;
+
+    /** Limits number of tenant engines started concurrently */
+    private AdaptiveConcurrencyLimit tenantEngineConcurrency;
+
+    /** Handles lazy activation (null if engines are started eagerly) */
+    private TenantEngineActivationManager tenantEngineActivationManager;
+
+    /** Tenants whose engines are being initialized, started and bootstrapped */
+    private Set<UUID> startingTenantEngines = ConcurrentHashMap.newKeySet();
+
+    /** Tenants from initial batch whose engines have not been processed */
+    private Set<UUID> pendingInitialTenantEngines = ConcurrentHashMap.newKeySet();
+
+    /** Notified when startup of a tenant engine completes */
+    private Object tenantEngineStartup = new Object();
+
+    /** Time at which initial batch of tenant engines was queued */
+    private volatile long initialTenantEnginesQueued;
+
     /*
      * (non-Javadoc)
      * 
@@ -89,9 +122,21 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 	createGrpcComponents();
 
 	// Handles threading for tenant operations.
-	this.tenantOperations = Executors.newFixedThreadPool(MAX_CONCURRENT_TENANT_OPERATIONS,
-		new TenantOperationsThreadFactory());
-	tenantOperations.execute(new TenantEngineStarter(this));
+	this.tenantEngineConcurrency = new AdaptiveConcurrencyLimit(
+		getInstanceSettings().getTenantEngineMinConcurrency(),
+		getInstanceSettings().getTenantEngineMaxConcurrency());
+	this.tenantOperations = Executors.newCachedThreadPool(new TenantOperationsThreadFactory());
+	this.tenantRetries = Executors.newSingleThreadScheduledExecutor(new TenantOperationsThreadFactory());
+	this.tenantEngineStarter = Executors.newSingleThreadExecutor(new TenantOperationsThreadFactory());
+	tenantEngineStarter.execute(new TenantEngineStarter(this));
+
+	// Start engines on demand and shut down idle engines if configured.
+	if (getInstanceSettings().isTenantEngineLazyActivation() && isTenantEngineLazyActivationSupported()) {
+	    this.tenantEngineActivationManager = new TenantEngineActivationManager(this,
+		    getInstanceSettings().getTenantEngineIdleTimeoutSeconds() * 1000L);
+	    getTenantEngineActivationManager().start();
+	}
+	registerTenantEngineMetrics();
 
 	// Create step that will start components.
 	ICompositeLifecycleStep init = new CompositeLifecycleStep("Initialize " + getName());
@@ -176,6 +221,15 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
     @Override
     public void terminate(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	// Shut down any tenant operations.
+	if (getTenantEngineActivationManager() != null) {
+	    getTenantEngineActivationManager().stop();
+	}
+	if (tenantEngineStarter != null) {
+	    tenantEngineStarter.shutdownNow();
+	}
+	if (tenantRetries != null) {
+	    tenantRetries.shutdownNow();
+	}
 	if (tenantOperations != null) {
 	    tenantOperations.shutdown();
 	}
@@ -218,6 +272,12 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
     public T assureTenantEngineAvailable(UUID tenantId) throws TenantEngineNotAvailableException {
 	try {
 	    T engine = getTenantEngineByTenantId(tenantId);
+	    if ((getTenantEngineActivationManager() != null) && (isTenantEngineActivating(tenantId, engine))) {
+		engine = waitForTenantEngineStartup(tenantId);
+		if (engine == null) {
+		    throw new TenantEngineNotAvailableException("Requested tenant engine is being activated.");
+		}
+	    }
 	    if (engine == null) {
 		throw new TenantEngineNotAvailableException("No tenant engine found for tenant id.");
 	    } else if (engine.getLifecycleStatus() == LifecycleStatus.InitializationError) {
@@ -227,15 +287,105 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 	    } else if (engine.getLifecycleStatus() != LifecycleStatus.Started) {
 		throw new TenantEngineNotAvailableException("Requested tenant engine has not started.");
 	    }
+	    markTenantEngineActive(tenantId);
 	    return engine;
 	} catch (SiteWhereException e) {
 	    throw new TenantEngineNotAvailableException(e);
 	}
     }
 
+    /**
+     * Indicates whether a tenant engine is being started as a result of lazy
+     * activation. Dormant tenants are queued for activation by this call.
+     * 
+     * @param tenantId
+     * @param engine
+     * @return
+     */
+    protected boolean isTenantEngineActivating(UUID tenantId, T engine) {
+	if (engine != null) {
+	    return isStartupPending(tenantId, engine.getLifecycleStatus());
+	}
+	return getTenantEngineActivationManager().activate(tenantId)
+		|| getInitializingTenantEngines().containsKey(tenantId)
+		|| getTenantInitializationQueue().contains(tenantId);
+    }
+
+    /**
+     * Wait a bounded time for startup of a tenant engine to complete.
+     * 
+     * @param tenantId
+     * @return engine or null if startup did not complete in time
+     * @throws SiteWhereException
+     */
+    protected T waitForTenantEngineStartup(UUID tenantId) throws SiteWhereException {
+	long deadline = System.currentTimeMillis() + ACTIVATION_WAIT_MS;
+	synchronized (tenantEngineStartup) {
+	    while (true) {
+		T engine = getTenantEngineByTenantId(tenantId);
+		if ((engine != null) && (!isStartupPending(tenantId, engine.getLifecycleStatus()))) {
+		    return engine;
+		}
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+		    return null;
+		}
+		try {
+		    tenantEngineStartup.wait(remaining);
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    return null;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Indicates whether a tenant engine in the given state is still on its way
+     * to being started. A stopped engine is only pending while its startup is in
+     * progress (between initialization and start), so calls to engines that were
+     * stopped fail fast rather than waiting for the activation timeout.
+     * 
+     * @param tenantId
+     * @param status
+     * @return
+     */
+    protected boolean isStartupPending(UUID tenantId, LifecycleStatus status) {
+	if (status == LifecycleStatus.Stopped) {
+	    return getStartingTenantEngines().contains(tenantId);
+	}
+	return (status == LifecycleStatus.Initializing) || (status == LifecycleStatus.Starting);
+    }
+
+    /**
+     * Indicates whether tenant engines may be started on demand and shut down
+     * when idle. Microservices whose tenant engines do timer-driven work (such as
+     * scheduled jobs or presence checks) without API calls or consumed records
+     * return false so that their engines are always running.
+     * 
+     * @return
+     */
+    protected boolean isTenantEngineLazyActivationSupported() {
+	return true;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.multitenant.IMultitenantMicroservice#
+     * markTenantEngineActive(java.util.UUID)
+     */
+    @Override
+    public void markTenantEngineActive(UUID tenantId) {
+	if (getTenantEngineActivationManager() != null) {
+	    getTenantEngineActivationManager().markActive(tenantId);
+	}
+    }
+
     /**
      * Initialize tenant engines by inspecting the list of tenant configurations,
-     * loading tenant information, then creating a tenant engine for each.
+     * loading tenant information, then creating a tenant engine for each. Tenants
+     * that have already been bootstrapped are queued ahead of those still waiting
+     * on bootstrap so that they are not held up. If lazy activation is enabled,
+     * tenants are only registered as dormant.
      * 
      * @throws SiteWhereException
      */
@@ -244,14 +394,29 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 	try {
 	    if (curator.checkExists().forPath(getInstanceTenantsConfigurationPath()) != null) {
 		List<String> tenantIds = curator.getChildren().forPath(getInstanceTenantsConfigurationPath());
+		List<UUID> bootstrapped = new ArrayList<>();
+		List<UUID> waiting = new ArrayList<>();
 		for (String tenantIdStr : tenantIds) {
 		    UUID tenantId = UUID.fromString(tenantIdStr);
 		    if (getTenantEngineByTenantId(tenantId) == null) {
-			if (!getTenantInitializationQueue().contains(tenantId)) {
-			    getTenantInitializationQueue().offer(tenantId);
+			if (getTenantEngineActivationManager() != null) {
+			    getTenantEngineActivationManager().addDormantTenant(tenantId);
+			} else if (!getTenantInitializationQueue().contains(tenantId)) {
+			    if (isTenantBootstrapped(tenantId)) {
+				bootstrapped.add(tenantId);
+			    } else {
+				waiting.add(tenantId);
+			    }
 			}
 		    }
 		}
+		this.initialTenantEnginesQueued = System.currentTimeMillis();
+		getPendingInitialTenantEngines().addAll(bootstrapped);
+		getPendingInitialTenantEngines().addAll(waiting);
+		getTenantInitializationQueue().addAll(bootstrapped);
+		getTenantInitializationQueue().addAll(waiting);
+		getLogger().info("Queued " + bootstrapped.size() + " bootstrapped and " + waiting.size()
+			+ " pending tenants for tenant engine startup.");
 	    } else {
 		getLogger().warn("No tenants currently configured.");
 	    }
@@ -260,6 +425,73 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 	}
     }
 
+    /**
+     * Indicates whether tenant configuration has been bootstrapped.
+     * 
+     * @param tenantId
+     * @return
+     * @throws SiteWhereException
+     */
+    protected boolean isTenantBootstrapped(UUID tenantId) throws SiteWhereException {
+	try {
+	    return getZookeeperManager().getCurator().checkExists()
+		    .forPath(getInstanceTenantBootstrappedIndicatorPath(tenantId)) != null;
+	} catch (Exception e) {
+	    throw new SiteWhereException("Unable to check tenant bootstrap indicator.", e);
+	}
+    }
+
+    /**
+     * Called when startup of a tenant engine has completed (whether or not it
+     * succeeded). Wakes API calls waiting on lazily activated engines.
+     * 
+     * @param tenantId
+     * @param elapsed
+     * @param successful
+     */
+    protected void onTenantEngineStartupComplete(UUID tenantId, long elapsed, boolean successful) {
+	getTenantEngineConcurrency().release(elapsed, successful);
+	getStartingTenantEngines().remove(tenantId);
+	synchronized (tenantEngineStartup) {
+	    tenantEngineStartup.notifyAll();
+	}
+	onTenantEngineProcessed(tenantId);
+    }
+
+    /**
+     * Called when a tenant taken from the initialization queue has been started
+     * or skipped. Logs total time and heap usage once all engines queued at
+     * startup have been processed.
+     * 
+     * @param tenantId
+     */
+    protected void onTenantEngineProcessed(UUID tenantId) {
+	if (getPendingInitialTenantEngines().remove(tenantId) && getPendingInitialTenantEngines().isEmpty()) {
+	    Runtime runtime = Runtime.getRuntime();
+	    long heapMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+	    long elapsedMs = System.currentTimeMillis() - initialTenantEnginesQueued;
+	    getLogger().info("Initial tenant engines processed in " + elapsedMs + "ms with "
+		    + getInitializedTenantEngines().size() + " running (heap used " + heapMb + "MB).");
+	}
+    }
+
+    /**
+     * Register gauges for tenant engine counts and startup concurrency.
+     */
+    protected void registerTenantEngineMetrics() {
+	getMetricRegistry().remove("tenant.engines.active");
+	getMetricRegistry().remove("tenant.engines.dormant");
+	getMetricRegistry().remove("tenant.engines.concurrency");
+	getMetricRegistry().register("tenant.engines.active",
+		(Gauge<Integer>) () -> getInitializedTenantEngines().size());
+	getMetricRegistry().register("tenant.engines.dormant",
+		(Gauge<Integer>) () -> (getTenantEngineActivationManager() != null)
+			? getTenantEngineActivationManager().getDormantTenantCount()
+			: 0);
+	getMetricRegistry().register("tenant.engines.concurrency",
+		(Gauge<Integer>) () -> getTenantEngineConcurrency().getLimit());
+    }
+
     /**
      * Get the tenant engine responsible for handling configuration for the given
      * path.
@@ -273,6 +505,9 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 	    IMicroserviceTenantEngine engine = getTenantEngineByTenantId(pathInfo.getTenantId());
 	    if (engine != null) {
 		return engine;
+	    } else if ((getTenantEngineActivationManager() != null)
+		    && (getTenantEngineActivationManager().isDormant(pathInfo.getTenantId()))) {
+		return null;
 	    } else if (!getTenantInitializationQueue().contains(pathInfo.getTenantId())) {
 		getTenantInitializationQueue().offer(pathInfo.getTenantId());
 	    }
@@ -514,8 +749,27 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 	this.tenantOperations = tenantOperations;
     }
 
+    public AdaptiveConcurrencyLimit getTenantEngineConcurrency() {
+	return tenantEngineConcurrency;
+    }
+
+    public TenantEngineActivationManager getTenantEngineActivationManager() {
+	return tenantEngineActivationManager;
+    }
+
+    public Set<UUID> getStartingTenantEngines() {
+	return startingTenantEngines;
+    }
+
+    public Set<UUID> getPendingInitialTenantEngines() {
+	return pendingInitialTenantEngines;
+    }
+
     /**
      * Processes the list of tenants waiting for tenant engines to be started.
+     * Tenants that have not been bootstrapped are requeued after a delay rather
+     * than holding up a worker. The number of engines started concurrently is
+     * bounded by an adaptive limit.
      * 
      * @author Derek
      */
@@ -541,33 +795,61 @@ public abstract class MultitenantMicroservice<I extends IFunctionIdentifier, T e
 		    // Verify that multiple threads don't start duplicate engines.
 		    if (getInitializingTenantEngines().get(tenantId) != null) {
 			getLogger().debug("Skipping initialization for existing tenant engine '" + tenantId + "'.");
+			onTenantEngineProcessed(tenantId);
+			continue;
+		    }
+
+		    // Requeue tenants that have not been bootstrapped yet.
+		    if (!isTenantBootstrapped(tenantId)) {
+			getLogger().debug("Tenant '" + tenantId + "' not bootstrapped. Requeueing.");
+			tenantRetries.schedule(() -> getTenantInitializationQueue().offerLast(tenantId),
+				BOOTSTRAP_RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
 			continue;
 		    }
 
 		    // Look up tenant and add it to initializing tenants map.
 		    ITenant tenant = getTenantManagementApiDemux().getApiChannel().getTenant(tenantId);
 		    if (tenant == null) {
-			throw new SiteWhereException("Unable to locate tenant by id '" + tenantId + "'.");
+			getLogger().warn("Unable to locate tenant by id '" + tenantId + "'. Skipping.");
+			onTenantEngineProcessed(tenantId);
+			continue;
 		    }
 		    getInitializingTenantEngines().put(tenantId, tenant);
 
 		    // Start tenant initialization.
 		    if (getTenantEngineByTenantId(tenantId) == null) {
-			InitializeTenantEngineOperation
-				.createCompletableFuture(MultitenantMicroservice.this, tenant, getTenantOperations())
-				.thenCompose(engine -> StartTenantEngineOperation.createCompletableFuture(engine,
-					getTenantOperations()))
-				.thenCompose(engine -> BootstrapTenantEngineOperation.createCompletableFuture(engine,
-					getTenantOperations()))
-				.exceptionally(t -> {
-				    getLogger().error("Unable to bootstrap tenant engine.", t);
-				    return null;
-				});
+			getTenantEngineConcurrency().acquire();
+			getStartingTenantEngines().add(tenantId);
+			long start = System.currentTimeMillis();
+			try {
+			    InitializeTenantEngineOperation
+				    .createCompletableFuture(MultitenantMicroservice.this, tenant, getTenantOperations())
+				    .thenCompose(engine -> StartTenantEngineOperation.createCompletableFuture(engine,
+					    getTenantOperations()))
+				    .thenCompose(engine -> BootstrapTenantEngineOperation.createCompletableFuture(engine,
+					    getTenantOperations()))
+				    .whenComplete((engine, t) -> onTenantEngineStartupComplete(tenantId,
+					    System.currentTimeMillis() - start, t == null))
+				    .exceptionally(t -> {
+					getLogger().error("Unable to bootstrap tenant engine.", t);
+					return null;
+				    });
+			} catch (RuntimeException e) {
+			    // Release permit if startup could not be submitted.
+			    getInitializingTenantEngines().remove(tenantId);
+			    onTenantEngineStartupComplete(tenantId, System.currentTimeMillis() - start, false);
+			    throw e;
+			}
 		    } else {
 			getLogger().info("Tenant engine already exists for '" + tenantId + "'.");
+			getInitializingTenantEngines().remove(tenantId);
+			onTenantEngineProcessed(tenantId);
 		    }
 		} catch (SiteWhereException e) {
 		    getLogger().warn("Exception processing tenant engine.", e);
+		} catch (InterruptedException e) {
+		    getLogger().info("Tenant engine starter shutting down.");
+		    return;
 		} catch (Throwable e) {
 		    getLogger().warn("Unhandled exception processing tenant engine.", e);
 		}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.multitenant;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import com.sitewhere.rest.model.tenant.Tenant;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Supports lazy activation of tenant engines. Tenants without a running engine
+ * are tracked as dormant and their engines are started on the first API call
+ * or when new records appear on any of the tenant's Kafka topics. Engines that
+ * see no API calls or consumed records for the configured idle timeout are
+ * shut down and the tenant becomes dormant again. Microservices whose engines
+ * do timer-driven work opt out of lazy activation entirely (see
+ * {@link MultitenantMicroservice#isTenantEngineLazyActivationSupported()}).
+ * 
+ * @author Derek
+ */
+public class TenantEngineActivationManager {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(TenantEngineActivationManager.class);
+
+    /** Longest interval between checks */
+    private static final long MAX_CHECK_INTERVAL_MS = 30 * 1000;
+
+    /** Parent microservice */
+    private MultitenantMicroservice<?, ?> microservice;
+
+    /** Idle time before an engine is shut down */
+    private long idleTimeoutMs;
+
+    /** Tenants without a running engine */
+    private Set<UUID> dormantTenants = ConcurrentHashMap.newKeySet();
+
+    /** Last activity time by tenant id */
+    private Map<UUID, Long> lastActivity = new ConcurrentHashMap<>();
+
+    /** Total end offsets of tenant topics at last check for dormant tenants */
+    private Map<UUID, Long> dormantTopicOffsets = new HashMap<>();
+
+    /** Runs periodic checks */
+    private ScheduledExecutorService scheduler;
+
+    /** Reads topic metadata and end offsets (only used on scheduler thread) */
+    private KafkaConsumer<byte[], byte[]> offsetsConsumer;
+
+    public TenantEngineActivationManager(MultitenantMicroservice<?, ?> microservice, long idleTimeoutMs) {
+	this.microservice = microservice;
+	this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Start periodic idle and traffic checks.
+     */
+    public void start() {
+	long interval = Math.max(1000, Math.min(MAX_CHECK_INTERVAL_MS, idleTimeoutMs / 4));
+	this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "Tenant Engine Activation"));
+	scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop periodic checks.
+     */
+    public void stop() {
+	if (scheduler != null) {
+	    scheduler.shutdownNow();
+	    try {
+		scheduler.awaitTermination(5, TimeUnit.SECONDS);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	if (offsetsConsumer != null) {
+	    offsetsConsumer.close();
+	}
+    }
+
+    /**
+     * Track a tenant that has no running engine.
+     * 
+     * @param tenantId
+     */
+    public void addDormantTenant(UUID tenantId) {
+	dormantTenants.add(tenantId);
+    }
+
+    /**
+     * Request activation of a dormant tenant engine.
+     * 
+     * @param tenantId
+     * @return true if tenant was dormant and has been queued for startup
+     */
+    public boolean activate(UUID tenantId) {
+	if (dormantTenants.remove(tenantId)) {
+	    markActive(tenantId);
+	    getMicroservice().getTenantInitializationQueue().offerFirst(tenantId);
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * Record activity for a tenant.
+     * 
+     * @param tenantId
+     */
+    public void markActive(UUID tenantId) {
+	lastActivity.put(tenantId, System.currentTimeMillis());
+    }
+
+    /**
+     * Run idle and traffic checks.
+     */
+    protected void check() {
+	try {
+	    passivateIdleEngines();
+	    activateTenantsWithTraffic();
+	} catch (Throwable t) {
+	    LOGGER.error("Error checking tenant engine activity.", t);
+	}
+    }
+
+    /**
+     * Shut down engines that have been idle longer than the timeout.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void passivateIdleEngines() throws SiteWhereException {
+	long now = System.currentTimeMillis();
+	for (UUID tenantId : new ArrayList<>(getMicroservice().getInitializedTenantEngines().keySet())) {
+	    Long last = lastActivity.putIfAbsent(tenantId, now);
+	    if ((last != null) && ((now - last) > idleTimeoutMs)) {
+		LOGGER.info("Tenant engine for '" + tenantId + "' idle for " + ((now - last) / 1000)
+			+ "s. Shutting down.");
+		getMicroservice().removeTenantEngine(tenantId);
+		lastActivity.remove(tenantId);
+		dormantTenants.add(tenantId);
+	    }
+	}
+    }
+
+    /**
+     * Activate dormant tenants with new records on any of their topics. Only
+     * cluster metadata and end offsets are read, so no consumer group state is
+     * affected.
+     */
+    protected void activateTenantsWithTraffic() {
+	if (dormantTenants.isEmpty()) {
+	    dormantTopicOffsets.clear();
+	    return;
+	}
+	Map<String, List<PartitionInfo>> topics = getOffsetsConsumer().listTopics();
+	Map<UUID, List<TopicPartition>> partitionsByTenant = new HashMap<>();
+	List<TopicPartition> all = new ArrayList<>();
+	for (UUID tenantId : dormantTenants) {
+	    Tenant tenant = new Tenant();
+	    tenant.setId(tenantId);
+	    String prefix = getMicroservice().getKafkaTopicNaming().getTenantPrefix(tenant);
+	    List<TopicPartition> partitions = new ArrayList<>();
+	    for (Map.Entry<String, List<PartitionInfo>> topic : topics.entrySet()) {
+		if (topic.getKey().startsWith(prefix)) {
+		    for (PartitionInfo info : topic.getValue()) {
+			partitions.add(new TopicPartition(info.topic(), info.partition()));
+		    }
+		}
+	    }
+	    partitionsByTenant.put(tenantId, partitions);
+	    all.addAll(partitions);
+	}
+	Map<TopicPartition, Long> endOffsets = getOffsetsConsumer().endOffsets(all);
+	dormantTopicOffsets.keySet().retainAll(partitionsByTenant.keySet());
+	for (Map.Entry<UUID, List<TopicPartition>> entry : partitionsByTenant.entrySet()) {
+	    long total = 0;
+	    for (TopicPartition partition : entry.getValue()) {
+		Long offset = endOffsets.get(partition);
+		total += (offset != null) ? offset : 0;
+	    }
+	    Long previous = dormantTopicOffsets.put(entry.getKey(), total);
+	    if ((previous != null) && (total > previous) && activate(entry.getKey())) {
+		LOGGER.info("New records for dormant tenant '" + entry.getKey() + "'. Activating tenant engine.");
+		dormantTopicOffsets.remove(entry.getKey());
+	    }
+	}
+    }
+
+    /**
+     * Get consumer used to read topic metadata (created on first use).
+     * 
+     * @return
+     */
+    protected KafkaConsumer<byte[], byte[]> getOffsetsConsumer() {
+	if (offsetsConsumer == null) {
+	    Properties config = new Properties();
+	    config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
+		    getMicroservice().getInstanceSettings().getKafkaBootstrapServers());
+	    config.put(ConsumerConfig.CLIENT_ID_CONFIG, getMicroservice().getIdentifier().getPath() + "-activation");
+	    config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	    config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	    this.offsetsConsumer = new KafkaConsumer<>(config);
+	}
+	return offsetsConsumer;
+    }
+
+    public boolean isDormant(UUID tenantId) {
+	return dormantTenants.contains(tenantId);
+    }
+
+    public int getDormantTenantCount() {
+	return dormantTenants.size();
+    }
+
+    public MultitenantMicroservice<?, ?> getMicroservice() {
+	return microservice;
+    }
+}
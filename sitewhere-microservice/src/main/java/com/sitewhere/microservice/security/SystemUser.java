@@ -10,6 +10,9 @@ package com.sitewhere.microservice.security;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,7 +32,9 @@ import com.sitewhere.spi.user.SiteWhereAuthority;
 
 /**
  * Bean that provides a system "superuser" that allows microservices to
- * authenticate with other microservices.
+ * authenticate with other microservices. Authentication objects are never
+ * modified after creation. A separate authentication is precomputed for each
+ * tenant so that concurrent tenant work never shares mutable tenant state.
  * 
  * @author Derek
  */
@@ -52,10 +57,13 @@ public class SystemUser implements ISystemUser {
     private List<IGrantedAuthority> auths = SystemUser.getNonGroupAuthorities();
 
     /** Last authentication result */
-    private SitewhereAuthentication last = null;
+    private volatile SitewhereAuthentication last = null;
 
     /** Last time JWT was generated */
-    private long lastGenerated = 0;
+    private volatile long lastGenerated = 0;
+
+    /** Authentication for each tenant based on last generated JWT */
+    private Map<UUID, SitewhereAuthentication> tenantAuthentications = new ConcurrentHashMap<>();
 
     /*
      * (non-Javadoc)
@@ -64,11 +72,16 @@ public class SystemUser implements ISystemUser {
      */
     @Override
     public SitewhereAuthentication getAuthentication() throws SiteWhereException {
-	if ((System.currentTimeMillis() - lastGenerated) > (RENEW_INTERVAL_SEC * 1000)) {
-	    String jwt = tokenManagement.generateToken(user, SYSTEM_USER_TOKEN_EXPIRATION_IN_MINS);
-	    SitewhereUserDetails details = new SitewhereUserDetails(user, auths);
-	    this.last = new SitewhereAuthentication(details, jwt);
-	    this.lastGenerated = System.currentTimeMillis();
+	if (isRenewRequired()) {
+	    synchronized (this) {
+		if (isRenewRequired()) {
+		    String jwt = tokenManagement.generateToken(user, SYSTEM_USER_TOKEN_EXPIRATION_IN_MINS);
+		    SitewhereUserDetails details = new SitewhereUserDetails(user, auths);
+		    this.last = new SitewhereAuthentication(details, jwt);
+		    this.lastGenerated = System.currentTimeMillis();
+		    tenantAuthentications.clear();
+		}
+	    }
 	}
 	return this.last;
     }
@@ -81,11 +94,24 @@ public class SystemUser implements ISystemUser {
      */
     @Override
     public Authentication getAuthenticationForTenant(ITenant tenant) throws SiteWhereException {
-	SitewhereAuthentication auth = getAuthentication();
-	auth.setTenant(tenant);
+	SitewhereAuthentication system = getAuthentication();
+	SitewhereAuthentication auth = tenantAuthentications.get(tenant.getId());
+	if ((auth == null) || (auth.getTenant() != tenant) || (auth.getCredentials() != system.getCredentials())) {
+	    auth = system.withTenant(tenant);
+	    tenantAuthentications.put(tenant.getId(), auth);
+	}
 	return auth;
     }
 
+    /**
+     * Indicates whether system user JWT should be regenerated.
+     * 
+     * @return
+     */
+    protected boolean isRenewRequired() {
+	return (last == null) || ((System.currentTimeMillis() - lastGenerated) > (RENEW_INTERVAL_SEC * 1000));
+    }
+
     /**
      * Create default (fully authenticated) system user.
      * 
@@ -14,6 +14,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import com.sitewhere.grpc.client.TenantExecutionContext;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IMicroservice;
 import com.sitewhere.spi.tenant.ITenant;
@@ -21,7 +22,9 @@ import com.sitewhere.spi.tenant.ITenant;
 /**
  * Allows code to be run in a separate thread along with thread local security
  * credentials for the superuser account. This allows non-authenticated services
- * to interact with GRPC persistence APIs.
+ * to interact with GRPC persistence APIs. The system user authentication is
+ * also attached as a {@link TenantExecutionContext} for gRPC calls made by the
+ * task.
  * 
  * @author Derek
  */
@@ -57,14 +60,11 @@ public abstract class SystemUserCallable<V> implements Callable<V> {
     public V call() throws Exception {
 	Authentication previous = SecurityContextHolder.getContext().getAuthentication();
 	try {
-	    if (tenant != null) {
-		Authentication system = getMicroservice().getSystemUser().getAuthenticationForTenant(getTenant());
-		SecurityContextHolder.getContext().setAuthentication(system);
-	    } else {
-		Authentication system = getMicroservice().getSystemUser().getAuthentication();
-		SecurityContextHolder.getContext().setAuthentication(system);
-	    }
-	    return runAsSystemUser();
+	    Authentication system = (tenant != null)
+		    ? getMicroservice().getSystemUser().getAuthenticationForTenant(getTenant())
+		    : getMicroservice().getSystemUser().getAuthentication();
+	    SecurityContextHolder.getContext().setAuthentication(system);
+	    return TenantExecutionContext.forAuthentication(system).call(() -> runAsSystemUser());
 	} finally {
 	    SecurityContextHolder.getContext().setAuthentication(previous);
 	}
@@ -12,6 +12,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import com.sitewhere.grpc.client.TenantExecutionContext;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IMicroservice;
 import com.sitewhere.spi.tenant.ITenant;
@@ -19,7 +20,10 @@ import com.sitewhere.spi.tenant.ITenant;
 /**
  * Allows code to be run in a separate thread along with thread local security
  * credentials for the superuser account. This allows non-authenticated services
- * to interact with GRPC persistence APIs.
+ * to interact with GRPC persistence APIs. The precomputed system user
+ * authentication for the tenant is also attached as a
+ * {@link TenantExecutionContext} so that gRPC calls made by the task resolve
+ * tenant and credentials without consulting the security context.
  * 
  * @author Derek
  */
@@ -54,14 +58,14 @@ public abstract class SystemUserRunnable implements Runnable {
     public void run() {
 	Authentication previous = SecurityContextHolder.getContext().getAuthentication();
 	try {
-	    if (tenant != null) {
-		Authentication system = getMicroservice().getSystemUser().getAuthenticationForTenant(getTenant());
-		SecurityContextHolder.getContext().setAuthentication(system);
-	    } else {
-		Authentication system = getMicroservice().getSystemUser().getAuthentication();
-		SecurityContextHolder.getContext().setAuthentication(system);
-	    }
-	    runAsSystemUser();
+	    Authentication system = (tenant != null)
+		    ? getMicroservice().getSystemUser().getAuthenticationForTenant(getTenant())
+		    : getMicroservice().getSystemUser().getAuthentication();
+	    SecurityContextHolder.getContext().setAuthentication(system);
+	    TenantExecutionContext.forAuthentication(system).call(() -> {
+		runAsSystemUser();
+		return null;
+	    });
 	} catch (Throwable e) {
 	    LOGGER.error("Unhandled exception.", e);
 	} finally {
@@ -12,8 +12,10 @@ import java.util.Date;
 import java.util.List;
 
 import com.sitewhere.rest.model.user.GrantedAuthority;
+import com.sitewhere.security.VerifiedTokenCache;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.security.ITokenManagement;
+import com.sitewhere.spi.microservice.security.IVerifiedToken;
 import com.sitewhere.spi.user.IGrantedAuthority;
 import com.sitewhere.spi.user.IUser;
 
@@ -44,6 +46,9 @@ public class TokenManagement implements ITokenManagement {
     /** Signature algorithm */
     private SignatureAlgorithm SIGNATURE_ALGORITHM = SignatureAlgorithm.HS512;
 
+    /** Cache of tokens that have already been verified */
+    private VerifiedTokenCache<IVerifiedToken> verifiedTokenCache = new VerifiedTokenCache<>();
+
     /*
      * (non-Javadoc)
      * 
@@ -82,6 +87,23 @@ public class TokenManagement implements ITokenManagement {
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.security.ITokenManagement#getVerifiedToken(
+     * java.lang.String)
+     */
+    @Override
+    public IVerifiedToken getVerifiedToken(String token) throws SiteWhereException {
+	IVerifiedToken verified = getVerifiedTokenCache().get(token);
+	if (verified == null) {
+	    Claims claims = getClaimsForToken(token);
+	    verified = new VerifiedToken(getUsernameFromClaims(claims), getGrantedAuthoritiesFromClaims(claims),
+		    claims.getExpiration());
+	    getVerifiedTokenCache().put(token, verified, verified.getExpiration());
+	}
+	return verified;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -136,6 +158,14 @@ public class TokenManagement implements ITokenManagement {
 	return new Date(System.currentTimeMillis() + (expirationInMinutes * 60 * 1000));
     }
 
+    public VerifiedTokenCache<IVerifiedToken> getVerifiedTokenCache() {
+	return verifiedTokenCache;
+    }
+
+    public void setVerifiedTokenCache(VerifiedTokenCache<IVerifiedToken> verifiedTokenCache) {
+	this.verifiedTokenCache = verifiedTokenCache;
+    }
+
     public String getSecret() {
 	return secret;
     }
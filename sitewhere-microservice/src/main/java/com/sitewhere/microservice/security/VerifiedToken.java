@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.sitewhere.spi.microservice.security.IVerifiedToken;
+import com.sitewhere.spi.user.IGrantedAuthority;
+
+/**
+ * Immutable information extracted from a verified JWT. Instances are shared by
+ * all requests presenting the same token.
+ * 
+ * @author Derek
+ */
+public class VerifiedToken implements IVerifiedToken {
+
+    /** Username */
+    private final String username;
+
+    /** Granted authorities */
+    private final List<IGrantedAuthority> grantedAuthorities;
+
+    /** Granted authority ids */
+    private final List<String> authorityIds;
+
+    /** Expiration date */
+    private final Date expiration;
+
+    public VerifiedToken(String username, List<IGrantedAuthority> grantedAuthorities, Date expiration) {
+	this.username = username;
+	this.grantedAuthorities = Collections.unmodifiableList(new ArrayList<>(grantedAuthorities));
+	List<String> ids = new ArrayList<>();
+	for (IGrantedAuthority auth : grantedAuthorities) {
+	    ids.add(auth.getAuthority());
+	}
+	this.authorityIds = Collections.unmodifiableList(ids);
+	this.expiration = (expiration != null) ? new Date(expiration.getTime()) : null;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.security.IVerifiedToken#getUsername()
+     */
+    @Override
+    public String getUsername() {
+	return username;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.microservice.security.IVerifiedToken#getGrantedAuthorities()
+     */
+    @Override
+    public List<IGrantedAuthority> getGrantedAuthorities() {
+	return grantedAuthorities;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.security.IVerifiedToken#getAuthorityIds()
+     */
+    @Override
+    public List<String> getAuthorityIds() {
+	return authorityIds;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.security.IVerifiedToken#getExpiration()
+     */
+    @Override
+    public Date getExpiration() {
+	return (expiration != null) ? new Date(expiration.getTime()) : null;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.sitewhere.metrics.HdrHistogramReservoir;
+import com.sitewhere.metrics.MetricsUtils;
+
+/**
+ * Tests for exporting tagged metrics in OpenMetrics format.
+ * 
+ * @author Derek
+ */
+public class OpenMetricsWriterTest {
+
+    @Test
+    public void testTaggedNames() throws Exception {
+	String name = MetricsUtils.tagged("event-sources.eventSource.decode", "source", "mqtt{1}",
+		MetricsUtils.TAG_TENANT, "default");
+	assertEquals("event-sources.eventSource.decode", MetricsUtils.getBaseName(name));
+	Map<String, String> tags = MetricsUtils.getTags(name);
+	assertEquals("mqtt_1_", tags.get("source"));
+	assertEquals("default", tags.get(MetricsUtils.TAG_TENANT));
+	assertEquals(name, MetricsUtils.withTag(name, "ignored", null));
+    }
+
+    @Test
+    public void testHdrPercentiles() throws Exception {
+	HdrHistogramReservoir reservoir = new HdrHistogramReservoir();
+	for (int i = 1; i <= 1000; i++) {
+	    reservoir.update(i);
+	}
+	Snapshot snapshot = reservoir.getSnapshot();
+	assertEquals(1000, snapshot.size());
+	assertEquals(500, snapshot.getValue(0.5), 5);
+	assertEquals(990, snapshot.getValue(0.99), 10);
+	assertEquals(1000, snapshot.getMax(), 10);
+    }
+
+    @Test
+    public void testOpenMetricsOutput() throws Exception {
+	MetricRegistry registry = new MetricRegistry();
+	Timer timer = MetricsUtils.timer(registry,
+		MetricsUtils.tagged("event-sources.kafka.produce", "topic", "inbound", MetricsUtils.TAG_TENANT, "t1"));
+	timer.update(2, TimeUnit.MILLISECONDS);
+	registry.meter(MetricsUtils.tagged("event-sources.eventSource.decodedEvents", MetricsUtils.TAG_TENANT, "t1"))
+		.mark(3);
+
+	StringWriter out = new StringWriter();
+	new OpenMetricsWriter(Collections.singletonMap("instance", "sw\"1"), true).write(registry, out);
+	String text = out.toString();
+	String produce = "sitewhere_event_sources_kafka_produce_seconds";
+	String decoded = "sitewhere_event_sources_eventSource_decodedEvents";
+	assertTrue(text.contains("# TYPE " + produce + " summary\n"));
+	assertTrue(text.contains("# UNIT " + produce + " seconds\n"));
+	assertTrue(text.contains(produce + "_count{instance=\"sw\\\"1\",topic=\"inbound\",tenant=\"t1\"} 1\n"));
+	assertTrue(text.contains("# TYPE " + decoded + " counter\n"));
+	assertTrue(text.contains(decoded + "_total{instance=\"sw\\\"1\",tenant=\"t1\"} 3\n"));
+	assertTrue(text.endsWith("# EOF\n"));
+
+	out = new StringWriter();
+	new OpenMetricsWriter(Collections.emptyMap(), false).write(registry, out);
+	assertTrue(out.toString().contains("# TYPE " + decoded + "_total counter\n"));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.multitenant;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Verifies that the tenant engine startup limit grows while operations are
+ * fast and backs off when they slow down or fail.
+ *
+ * @author Derek
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    public void testLimitAdjustment() throws Exception {
+	AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 8);
+	assertEquals(2, limit.getLimit());
+
+	for (int i = 0; i < 10; i++) {
+	    limit.acquire();
+	    limit.release(100, true);
+	}
+	assertEquals(8, limit.getLimit());
+
+	limit.acquire();
+	limit.release(1000, true);
+	assertEquals(7, limit.getLimit());
+
+	limit.acquire();
+	limit.release(100, false);
+	assertEquals(3, limit.getLimit());
+
+	limit.acquire();
+	limit.release(100, false);
+	assertEquals(2, limit.getLimit());
+	assertEquals(0, limit.getInFlight());
+    }
+}
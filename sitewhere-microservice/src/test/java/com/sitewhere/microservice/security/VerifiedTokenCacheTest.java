@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.sitewhere.rest.model.user.User;
+import com.sitewhere.security.VerifiedTokenCache;
+import com.sitewhere.spi.microservice.security.IVerifiedToken;
+
+/**
+ * Verifies expiration, eviction and hit counting of the verified token cache.
+ *
+ * @author Derek
+ */
+public class VerifiedTokenCacheTest {
+
+    @Test
+    public void testVerifiedTokensAreCached() throws Exception {
+	TokenManagement tokens = new TokenManagement();
+	User user = new User();
+	user.setUsername("user");
+	user.setAuthorities(Arrays.asList(new String[] { "this", "that", "other" }));
+	String jwt = tokens.generateToken(user, 60);
+
+	for (int i = 0; i < 3; i++) {
+	    assertEquals("user", tokens.getVerifiedToken(jwt).getUsername());
+	}
+	VerifiedTokenCache<IVerifiedToken> cache = tokens.getVerifiedTokenCache();
+	assertEquals(1, cache.getMisses().getCount());
+	assertEquals(2, cache.getHits().getCount());
+    }
+
+    @Test
+    public void testExpirationAndEviction() throws Exception {
+	VerifiedTokenCache<String> cache = new VerifiedTokenCache<>(2, 60 * 1000);
+	cache.put("expired", "value", new Date(System.currentTimeMillis() - 1));
+	assertNull(cache.get("expired"));
+
+	Date expires = new Date(System.currentTimeMillis() + 60 * 1000);
+	cache.put("a", "a", expires);
+	cache.put("b", "b", expires);
+	cache.get("a");
+	cache.put("c", "c", expires);
+	assertEquals(2, cache.size());
+	assertEquals("a", cache.get("a"));
+	assertNull(cache.get("b"));
+	assertEquals(1, cache.getEvictions().getCount());
+    }
+}